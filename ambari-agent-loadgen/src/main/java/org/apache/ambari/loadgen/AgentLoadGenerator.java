@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.loadgen.LoadGeneratorConfiguration.Option;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads an Ambari Server with thousands of simulated agents running in a single JVM, and
+ * reports the throughput and latency of their registrations, heartbeats, commands and
+ * reports.  Unlike the agent simulator of contrib, it needs neither containers nor VMs.
+ * <p/>
+ * The agents connect to a running server, or to one started in this JVM with
+ * {@code --in.process=true}.  To have the server send commands to the agents, add their
+ * hosts to a cluster: {@code --blueprint=true} creates one from a blueprint before the
+ * agents start.
+ * <p/>
+ * Run with {@code java -jar agent-loadgen.jar --hosts=5000 --duration=600000}; {@code --help}
+ * lists the options.
+ */
+public class AgentLoadGenerator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AgentLoadGenerator.class);
+
+  private static final String SERVER_VERSION_PATH =
+      "/services/AMBARI/components/AMBARI_SERVER?fields=RootServiceComponents/component_version";
+
+  private final LoadGeneratorConfiguration configuration;
+  private final LoadStatistics statistics = new LoadStatistics();
+
+  public AgentLoadGenerator(LoadGeneratorConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 1 && "--help".equals(args[0])) {
+      System.out.print(LoadGeneratorConfiguration.getUsage());
+      return;
+    }
+
+    LoadGeneratorConfiguration configuration;
+    try {
+      configuration = new LoadGeneratorConfiguration(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(LoadGeneratorConfiguration.getUsage());
+      System.exit(1);
+      return;
+    }
+
+    new AgentLoadGenerator(configuration).run();
+    System.exit(0);
+  }
+
+  /**
+   * Runs the agents for the configured duration and prints the reports.
+   *
+   * @throws Exception if the server could not be started or reached
+   */
+  public void run() throws Exception {
+    InProcessAmbariServer server = null;
+    String serverUrl = configuration.getString(Option.SERVER_URL);
+    String apiUrl = configuration.getString(Option.API_URL);
+    String agentVersion = configuration.getString(Option.AGENT_VERSION);
+    if (configuration.getBoolean(Option.IN_PROCESS)) {
+      server = new InProcessAmbariServer(configuration);
+      server.start();
+      serverUrl = server.getAgentUrl();
+      apiUrl = server.getApiUrl();
+      if (agentVersion.isEmpty()) {
+        agentVersion = server.getServerVersion();
+      }
+    } else if (agentVersion.isEmpty()) {
+      agentVersion = getServerVersion();
+    }
+    if (configuration.getBoolean(Option.BLUEPRINT)) {
+      new BlueprintBootstrap(configuration, apiUrl).createCluster();
+    }
+
+    WebSocketClient webSocketClient = new WebSocketClient(new HttpClient(new SslContextFactory(true)));
+    webSocketClient.getPolicy().setMaxTextMessageSize(configuration.getInt(Option.MAX_MESSAGE_SIZE));
+    JettyWebSocketClient jettyClient = new JettyWebSocketClient(webSocketClient);
+    jettyClient.start();
+
+    WebSocketStompClient stompClient = new WebSocketStompClient(jettyClient);
+    stompClient.setInboundMessageSizeLimit(configuration.getInt(Option.MAX_MESSAGE_SIZE));
+    stompClient.setDefaultHeartbeat(new long[] {0, 0});
+
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(configuration.getInt(Option.THREADS),
+        new ThreadFactoryBuilder().setNameFormat("simulated-agent-%d").setDaemon(true).build());
+    RegistrationThrottle throttle = new RegistrationThrottle(configuration.getInt(Option.REGISTRATION_CONCURRENCY));
+    Thread throttleThread = new Thread(throttle, "simulated-agent-registration");
+    throttleThread.setDaemon(true);
+    throttleThread.start();
+
+    SimulationContext context = new SimulationContext(configuration, serverUrl, agentVersion, stompClient,
+        scheduler, throttle, statistics);
+    int hosts = configuration.getInt(Option.HOSTS);
+    List<SimulatedAgent> agents = new ArrayList<>(hosts);
+    for (int i = 0; i < hosts; i++) {
+      agents.add(new SimulatedAgent(i, context));
+    }
+
+    LOG.info("Starting {} agents of version {} against {}", hosts, agentVersion, serverUrl);
+    long start = System.currentTimeMillis();
+    for (SimulatedAgent agent : agents) {
+      agent.start();
+    }
+
+    try {
+      report(start);
+    } finally {
+      throttle.stop();
+      throttleThread.interrupt();
+      for (SimulatedAgent agent : agents) {
+        agent.stop();
+      }
+      long duration = System.currentTimeMillis() - start;
+      System.out.printf("%nTotal after %d s:%n%s", TimeUnit.MILLISECONDS.toSeconds(duration),
+          statistics.formatTotal(duration));
+
+      scheduler.shutdownNow();
+      jettyClient.stop();
+      if (server != null) {
+        server.stop();
+      }
+    }
+  }
+
+  /**
+   * Prints the interval reports until the end of the run.
+   */
+  private void report(long start) throws InterruptedException {
+    long end = start + configuration.getLong(Option.DURATION);
+    long reportInterval = Math.max(1000, configuration.getLong(Option.REPORT_INTERVAL));
+    long lastReport = start;
+    while (true) {
+      long now = System.currentTimeMillis();
+      if (now >= end) {
+        return;
+      }
+      Thread.sleep(Math.min(reportInterval - (now - lastReport), end - now));
+      now = System.currentTimeMillis();
+      if (now - lastReport >= reportInterval) {
+        System.out.printf("%nAfter %d s:%n%s", TimeUnit.MILLISECONDS.toSeconds(now - start),
+            statistics.formatInterval(now - lastReport));
+        lastReport = now;
+      }
+    }
+  }
+
+  /**
+   * Looks up the version of the server through its REST API, as the agents have to
+   * register with the same version.
+   */
+  private String getServerVersion() throws Exception {
+    URL url = new URL(configuration.getString(Option.API_URL) + SERVER_VERSION_PATH);
+    String credentials = configuration.getString(Option.API_USER) + ":" + configuration.getString(Option.API_PASSWORD);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setRequestProperty("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        throw new IllegalStateException("Unable to get the server version from " + url + ": HTTP "
+            + connection.getResponseCode() + "; set --" + Option.AGENT_VERSION.getKey() + " instead");
+      }
+      try (InputStream in = connection.getInputStream()) {
+        return new ObjectMapper().readTree(in).path("RootServiceComponents").path("component_version").asText();
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
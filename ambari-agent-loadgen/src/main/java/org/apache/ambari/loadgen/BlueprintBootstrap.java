@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.ambari.loadgen.LoadGeneratorConfiguration.Option;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Creates a cluster of the simulated hosts from a blueprint through the REST API, so that
+ * the server sends commands to the agents: the topology manager installs and starts the
+ * components of each host as soon as its agent registers.  The first host is the master,
+ * every other host is a worker.
+ * <p/>
+ * The cluster is created before the agents start, so that the command dispatch of the
+ * whole run is measured, from the first registration on.
+ */
+public class BlueprintBootstrap {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BlueprintBootstrap.class);
+
+  static final String MASTER_HOST_GROUP = "master";
+  static final String WORKER_HOST_GROUP = "worker";
+
+  private final LoadGeneratorConfiguration configuration;
+  private final String apiUrl;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * @param configuration the options of the run
+   * @param apiUrl the URL of the REST API of the server
+   */
+  public BlueprintBootstrap(LoadGeneratorConfiguration configuration, String apiUrl) {
+    this.configuration = configuration;
+    this.apiUrl = apiUrl;
+  }
+
+  /**
+   * Registers the blueprint and requests the creation of the cluster.
+   *
+   * @throws IOException if the server could not be reached
+   * @throws IllegalStateException if the server refused the blueprint or the cluster
+   */
+  public void createCluster() throws IOException {
+    String clusterName = configuration.getString(Option.CLUSTER_NAME);
+    LOG.info("Creating the cluster {} of {} hosts with the stack {}", clusterName,
+        configuration.getInt(Option.HOSTS), configuration.getString(Option.CLUSTER_STACK));
+
+    // the topology is left unvalidated, as any components may be simulated
+    post("/blueprints/" + clusterName + "?validate_topology=false", createBlueprint());
+    post("/clusters/" + clusterName, createClusterTemplate());
+  }
+
+  /**
+   * @return the blueprint, with a master and, for more than one host, a worker host group
+   */
+  ObjectNode createBlueprint() {
+    String stack = configuration.getString(Option.CLUSTER_STACK);
+    int separator = stack.lastIndexOf('-');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Expected --" + Option.CLUSTER_STACK.getKey()
+          + "=name-version but got " + stack);
+    }
+
+    ObjectNode blueprint = mapper.createObjectNode();
+    blueprint.putObject("Blueprints")
+        .put("blueprint_name", configuration.getString(Option.CLUSTER_NAME))
+        .put("stack_name", stack.substring(0, separator))
+        .put("stack_version", stack.substring(separator + 1));
+
+    ArrayNode hostGroups = blueprint.putArray("host_groups");
+    addHostGroup(hostGroups, MASTER_HOST_GROUP, 1, Option.MASTER_COMPONENTS);
+    int workers = configuration.getInt(Option.HOSTS) - 1;
+    if (workers > 0) {
+      addHostGroup(hostGroups, WORKER_HOST_GROUP, workers, Option.WORKER_COMPONENTS);
+    }
+    return blueprint;
+  }
+
+  /**
+   * @return the cluster creation template, mapping the first host to the master host
+   *         group and any other registering host to the worker host group
+   */
+  ObjectNode createClusterTemplate() {
+    ObjectNode template = mapper.createObjectNode();
+    template.put("blueprint", configuration.getString(Option.CLUSTER_NAME));
+    template.put("default_password", configuration.getString(Option.API_PASSWORD));
+
+    ArrayNode hostGroups = template.putArray("host_groups");
+    hostGroups.addObject()
+        .put("name", MASTER_HOST_GROUP)
+        .putArray("hosts").addObject()
+        .put("fqdn", String.format(configuration.getString(Option.HOST_NAME_FORMAT), 0));
+    int workers = configuration.getInt(Option.HOSTS) - 1;
+    if (workers > 0) {
+      hostGroups.addObject()
+          .put("name", WORKER_HOST_GROUP)
+          .put("host_count", workers);
+    }
+    return template;
+  }
+
+  private void addHostGroup(ArrayNode hostGroups, String name, int cardinality, Option components) {
+    ObjectNode hostGroup = hostGroups.addObject();
+    hostGroup.put("name", name);
+    hostGroup.put("cardinality", String.valueOf(cardinality));
+    ArrayNode componentNodes = hostGroup.putArray("components");
+    for (String component : configuration.getString(components).split(",")) {
+      if (!component.trim().isEmpty()) {
+        componentNodes.addObject().put("name", component.trim());
+      }
+    }
+  }
+
+  private void post(String path, ObjectNode body) throws IOException {
+    URL url = new URL(apiUrl + path);
+    String credentials = configuration.getString(Option.API_USER) + ":" + configuration.getString(Option.API_PASSWORD);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+      connection.setRequestProperty("X-Requested-By", "ambari");
+      try (OutputStream out = connection.getOutputStream()) {
+        mapper.writeValue(out, body);
+      }
+
+      int status = connection.getResponseCode();
+      if (status >= HttpURLConnection.HTTP_MULT_CHOICE) {
+        String message;
+        try (InputStream in = connection.getErrorStream()) {
+          message = (in == null) ? "" : IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        throw new IllegalStateException("Unable to POST " + url + ": HTTP " + status + " " + message);
+      }
+      LOG.info("POST {}: HTTP {}", url, status);
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.loadgen.LoadGeneratorConfiguration.Option;
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.audit.AuditLoggerModule;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.AmbariServer;
+import org.apache.ambari.server.controller.ControllerModule;
+import org.apache.ambari.server.ldap.LdapModule;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * An Ambari Server running in the load generator's JVM on an in-memory database, so that
+ * the agent endpoint can be loaded without installing a server.  The database is created
+ * with only the default users: the agents can register and heartbeat, but no cluster exists
+ * to send them commands unless one is created through the REST API, as
+ * {@link BlueprintBootstrap} does.
+ */
+public class InProcessAmbariServer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InProcessAmbariServer.class);
+
+  /**
+   * The time to wait for the server to answer on its API port.
+   */
+  private static final long STARTUP_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+  private final LoadGeneratorConfiguration configuration;
+  private Injector injector;
+  private AmbariServer server;
+  private Thread serverThread;
+
+  public InProcessAmbariServer(LoadGeneratorConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Starts the server and waits until it answers on its API port.
+   *
+   * @throws Exception if the server could not be started
+   */
+  public void start() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.SERVER_PERSISTENCE_TYPE.getKey(), "in-memory");
+    properties.setProperty(Configuration.METADATA_DIR_PATH.getKey(), configuration.getString(Option.STACKS_PATH));
+    properties.setProperty(Configuration.SERVER_VERSION_FILE.getKey(), configuration.getString(Option.VERSION_FILE));
+    properties.setProperty(Configuration.SHARED_RESOURCES_DIR.getKey(),
+        configuration.getString(Option.SHARED_RESOURCES_DIR));
+    properties.setProperty(Configuration.OS_VERSION.getKey(), getOsType());
+    properties.setProperty(Configuration.AGENT_USE_SSL.getKey(), "false");
+    properties.setProperty(Configuration.CLIENT_API_PORT.getKey(), configuration.getString(Option.API_PORT));
+    properties.setProperty(Configuration.SRVR_ONE_WAY_SSL_PORT.getKey(), configuration.getString(Option.AGENT_PORT));
+    properties.setProperty(Configuration.SRVR_KSTR_DIR.getKey(), System.getProperty("java.io.tmpdir"));
+
+    LOG.info("Starting an in-process Ambari Server with the stacks of {}", configuration.getString(Option.STACKS_PATH));
+    injector = Guice.createInjector(new ControllerModule(properties), new AuditLoggerModule(), new LdapModule());
+    injector.getInstance(GuiceJpaInitializer.class).setInitialized();
+
+    AmbariServer.setupProxyAuth();
+    server = injector.getInstance(AmbariServer.class);
+    server.initViewRegistry();
+
+    serverThread = new Thread(() -> {
+      try {
+        server.run();
+      } catch (InterruptedException e) {
+        LOG.info("The in-process Ambari Server was interrupted");
+      } catch (Exception e) {
+        LOG.error("The in-process Ambari Server failed", e);
+      }
+    }, "in-process-ambari-server");
+    serverThread.setDaemon(true);
+    serverThread.start();
+    waitForServer();
+  }
+
+  /**
+   * @return the version the agents have to register with
+   */
+  public String getServerVersion() {
+    return injector.getInstance(AmbariMetaInfo.class).getServerVersion();
+  }
+
+  /**
+   * @return the URL of the agent STOMP endpoint
+   */
+  public String getAgentUrl() {
+    return "ws://localhost:" + configuration.getString(Option.AGENT_PORT) + "/agent/stomp/v1";
+  }
+
+  /**
+   * @return the URL of the REST API
+   */
+  public String getApiUrl() {
+    return "http://localhost:" + configuration.getString(Option.API_PORT) + "/api/v1";
+  }
+
+  public void stop() throws Exception {
+    if (server != null) {
+      LOG.info("Stopping the in-process Ambari Server");
+      server.stop();
+    }
+  }
+
+  /**
+   * @return the OS type the agents register with, which the server has to support
+   */
+  private String getOsType() {
+    String release = configuration.getString(Option.OS_RELEASE);
+    int dot = release.indexOf('.');
+    return (configuration.getString(Option.OS) + (dot < 0 ? release : release.substring(0, dot))).toLowerCase();
+  }
+
+  private void waitForServer() throws Exception {
+    long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+    URL url = new URL(getApiUrl() + "/stacks");
+    while (!isServerUp(url)) {
+      if (!serverThread.isAlive()) {
+        throw new IllegalStateException("The in-process Ambari Server did not start");
+      }
+      if (System.currentTimeMillis() > deadline) {
+        throw new IllegalStateException("The in-process Ambari Server did not start within "
+            + TimeUnit.MILLISECONDS.toSeconds(STARTUP_TIMEOUT) + " seconds");
+      }
+      Thread.sleep(1000);
+    }
+    LOG.info("The in-process Ambari Server is up");
+  }
+
+  /**
+   * @return whether the server answered, whatever the status of its answer
+   */
+  private static boolean isServerUp(URL url) {
+    try {
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      try {
+        connection.setConnectTimeout(1000);
+        connection.setReadTimeout(5000);
+        connection.getResponseCode();
+        return true;
+      } finally {
+        connection.disconnect();
+      }
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
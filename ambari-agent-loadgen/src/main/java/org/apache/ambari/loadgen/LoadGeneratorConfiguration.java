@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The options of a load run, given on the command line as {@code --name=value}.
+ * Durations are in milliseconds and rates are probabilities between 0 and 1.
+ */
+public class LoadGeneratorConfiguration {
+
+  public enum Option {
+    IN_PROCESS("in.process", "false",
+        "start an Ambari Server with an in-memory database in this JVM rather than connecting to server.url"),
+    SERVER_URL("server.url", "ws://localhost:8440/agent/stomp/v1",
+        "the agent STOMP endpoint of the server"),
+    API_URL("api.url", "http://localhost:8080/api/v1",
+        "the REST API of the server, used to look up its version and to create the blueprint cluster"),
+    API_USER("api.user", "admin", "the user of the REST API"),
+    API_PASSWORD("api.password", "admin", "the password of the REST API user"),
+    BLUEPRINT("blueprint", "false",
+        "create a cluster of the simulated hosts from a blueprint before the agents start, so that the server"
+            + " sends them commands"),
+    CLUSTER_NAME("cluster.name", "loadgen", "the name of the cluster created from the blueprint"),
+    CLUSTER_STACK("cluster.stack", "HDP-2.0.6", "the stack of the blueprint"),
+    MASTER_COMPONENTS("master.components", "NAMENODE,SECONDARY_NAMENODE,ZOOKEEPER_SERVER",
+        "the components of the first host of the blueprint cluster"),
+    WORKER_COMPONENTS("worker.components", "DATANODE,HDFS_CLIENT,ZOOKEEPER_CLIENT",
+        "the components of the other hosts of the blueprint cluster"),
+    AGENT_VERSION("agent.version", "",
+        "the version the agents register with, which must be the server version; looked up when empty"),
+    HOSTS("hosts", "100", "the number of simulated agents"),
+    HOST_NAME_FORMAT("host.name.format", "loadgen-%05d.example.com",
+        "the format of the host names, given the index of the agent"),
+    OS("os", "centos", "the operating system the agents report"),
+    OS_RELEASE("os.release", "7.6.1810", "the operating system release the agents report"),
+    REGISTRATION_CONCURRENCY("registration.concurrency", "50",
+        "the number of agents connecting and registering at the same time"),
+    RECONNECT_DELAY("reconnect.delay", "5000",
+        "the delay before an agent reconnects after its connection was refused or lost"),
+    REQUEST_TIMEOUT("request.timeout", "60000", "the time to wait for the server to answer a request"),
+    HEARTBEAT_INTERVAL("heartbeat.interval", "10000", "the interval between the heartbeats of an agent"),
+    COMPONENT_STATUS_INTERVAL("component.status.interval", "60000",
+        "the interval between the component status reports of an agent"),
+    ALERT_INTERVAL("alert.interval", "60000", "the interval between the alert reports of an agent"),
+    ALERT_STATE_CHANGE_RATE("alert.state.change.rate", "0.01",
+        "the probability that an alert is reported as WARNING rather than OK"),
+    COMMAND_DURATION("command.duration", "1000", "the time an agent takes to execute a command"),
+    COMMAND_FAILURE_RATE("command.failure.rate", "0", "the probability that a command fails"),
+    DURATION("duration", "600000", "the duration of the run, from the start of the first agent"),
+    REPORT_INTERVAL("report.interval", "30000", "the interval between the intermediate reports"),
+    THREADS("threads", "16", "the number of threads simulating the agents"),
+    MAX_MESSAGE_SIZE("max.message.size", "67108864", "the largest message accepted from the server"),
+    STACKS_PATH("stacks.path", "../ambari-server/src/test/resources/stacks",
+        "the stack definitions of the in-process server"),
+    VERSION_FILE("version.file", "../ambari-server/src/test/resources/version",
+        "the version file of the in-process server"),
+    SHARED_RESOURCES_DIR("shared.resources.dir", "../ambari-common/src/main/python/ambari_commons/resources",
+        "the directory holding the os_family.json of the in-process server"),
+    API_PORT("api.port", "9995", "the REST API port of the in-process server"),
+    AGENT_PORT("agent.port", "9440", "the agent port of the in-process server");
+
+    private final String key;
+    private final String defaultValue;
+    private final String description;
+
+    Option(String key, String defaultValue, String description) {
+      this.key = key;
+      this.defaultValue = defaultValue;
+      this.description = description;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getDefaultValue() {
+      return defaultValue;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    static Option fromKey(String key) {
+      for (Option option : values()) {
+        if (option.key.equals(key)) {
+          return option;
+        }
+      }
+      throw new IllegalArgumentException("Unknown option " + key);
+    }
+  }
+
+  private final Map<Option, String> values = new EnumMap<>(Option.class);
+
+  /**
+   * Reads the options from the arguments of the command line.
+   *
+   * @param args arguments of the form {@code --name=value}
+   * @throws IllegalArgumentException if an argument is not a known option
+   */
+  public LoadGeneratorConfiguration(String... args) {
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      values.put(Option.fromKey(arg.substring(2, separator)), arg.substring(separator + 1));
+    }
+  }
+
+  public String getString(Option option) {
+    String value = values.get(option);
+    return value == null ? option.getDefaultValue() : value;
+  }
+
+  public int getInt(Option option) {
+    return Integer.parseInt(getString(option));
+  }
+
+  public long getLong(Option option) {
+    return Long.parseLong(getString(option));
+  }
+
+  public double getDouble(Option option) {
+    return Double.parseDouble(getString(option));
+  }
+
+  public boolean getBoolean(Option option) {
+    return Boolean.parseBoolean(getString(option));
+  }
+
+  /**
+   * @return the description of the options and their defaults
+   */
+  public static String getUsage() {
+    StringBuilder usage = new StringBuilder("Options:").append(System.lineSeparator());
+    for (Option option : Option.values()) {
+      usage.append(String.format("  --%-26s %s (default: %s)%n", option.getKey() + "=",
+          option.getDescription(), option.getDefaultValue()));
+    }
+    return usage.toString();
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a load run: the latencies of the operations of the agents, the
+ * state of their connections and the number of messages pushed by the server.
+ */
+public class LoadStatistics {
+
+  /**
+   * The operations of the agents whose latency is measured.  The latency of the reports
+   * is the time until the server acknowledges them, which it does once they are processed.
+   */
+  public enum Operation {
+    /**
+     * Opening the web socket and the STOMP session.
+     */
+    CONNECTION,
+    /**
+     * The {@code /register} request.
+     */
+    REGISTRATION,
+    /**
+     * The requests for the topology, metadata, configurations, host level parameters
+     * and alert definitions which follow the registration.
+     */
+    INITIAL_DATA,
+    HEARTBEAT,
+    /**
+     * The time from reporting the completion of a command until the next command of the
+     * same request reaches the host, which includes the scheduling of the next stage.
+     */
+    COMMAND_DISPATCH,
+    /**
+     * The acknowledgement of a command received from the server.
+     */
+    COMMAND_ACK,
+    COMMAND_REPORT,
+    COMPONENT_STATUS_REPORT,
+    ALERT_REPORT
+  }
+
+  private final Map<Operation, OperationStatistics> operations = new EnumMap<>(Operation.class);
+  private final AtomicInteger connectedAgents = new AtomicInteger();
+  private final AtomicInteger registeredAgents = new AtomicInteger();
+  private final LongAdder refusedConnections = new LongAdder();
+  private final LongAdder lostConnections = new LongAdder();
+  private final LongAdder receivedCommands = new LongAdder();
+  private final ConcurrentMap<String, LongAdder> receivedEvents = new ConcurrentHashMap<>();
+
+  public LoadStatistics() {
+    for (Operation operation : Operation.values()) {
+      operations.put(operation, new OperationStatistics());
+    }
+  }
+
+  public OperationStatistics get(Operation operation) {
+    return operations.get(operation);
+  }
+
+  public void agentConnected() {
+    connectedAgents.incrementAndGet();
+  }
+
+  public void agentDisconnected(boolean registered) {
+    connectedAgents.decrementAndGet();
+    if (registered) {
+      registeredAgents.decrementAndGet();
+    }
+  }
+
+  public void agentRegistered() {
+    registeredAgents.incrementAndGet();
+  }
+
+  public void connectionRefused() {
+    refusedConnections.increment();
+  }
+
+  public void connectionLost() {
+    lostConnections.increment();
+  }
+
+  public void commandReceived() {
+    receivedCommands.increment();
+  }
+
+  /**
+   * @param destination the destination of a message pushed by the server
+   */
+  public void eventReceived(String destination) {
+    LongAdder count = receivedEvents.get(destination);
+    if (count == null) {
+      count = receivedEvents.computeIfAbsent(destination, key -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  public int getRegisteredAgents() {
+    return registeredAgents.get();
+  }
+
+  /**
+   * Formats the operations since the previous interval report.
+   *
+   * @param periodMillis the time since the previous interval report
+   * @return the report
+   */
+  public String formatInterval(long periodMillis) {
+    return format(periodMillis, false);
+  }
+
+  /**
+   * Formats the operations since the start of the run.
+   *
+   * @param periodMillis the duration of the run
+   * @return the report
+   */
+  public String formatTotal(long periodMillis) {
+    return format(periodMillis, true);
+  }
+
+  private String format(long periodMillis, boolean total) {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("agents: connected=%d registered=%d refused=%d lost=%d, commands received=%d%n",
+        connectedAgents.get(), registeredAgents.get(), refusedConnections.sum(), lostConnections.sum(),
+        receivedCommands.sum()));
+    report.append(String.format("%-24s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors",
+        "ops/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+    for (Map.Entry<Operation, OperationStatistics> entry : operations.entrySet()) {
+      OperationStatistics.Snapshot snapshot = total ? entry.getValue().getTotal() : entry.getValue().getInterval();
+      if (snapshot.getCount() == 0 && snapshot.getErrors() == 0) {
+        continue;
+      }
+      report.append(String.format("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+          entry.getKey().name().toLowerCase(), snapshot.getCount(), snapshot.getErrors(),
+          snapshot.getThroughput(periodMillis), snapshot.getMean(), snapshot.getPercentile(50),
+          snapshot.getPercentile(95), snapshot.getPercentile(99), snapshot.getMax()));
+    }
+    if (total && !receivedEvents.isEmpty()) {
+      report.append("messages pushed by the server:").append(System.lineSeparator());
+      for (Map.Entry<String, LongAdder> entry : new TreeMap<>(receivedEvents).entrySet()) {
+        report.append(String.format("  %-30s %10d%n", entry.getKey(), entry.getValue().sum()));
+      }
+    }
+    return report.toString();
+  }
+}
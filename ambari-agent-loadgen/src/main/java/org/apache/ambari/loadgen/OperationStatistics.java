@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ambari.server.utils.LatencyHistogram;
+
+/**
+ * The number of completions, the number of errors and the latency histogram of one
+ * kind of operation, shared by all the simulated agents.
+ * <p/>
+ * Latencies are kept in a {@link LatencyHistogram}, as the server does for its query
+ * statistics, so that recording never allocates; the reported percentiles are the upper
+ * bounds of their buckets.
+ */
+public class OperationStatistics {
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder nanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  /**
+   * The counters as of the previous interval snapshot, guarded by this object's monitor.
+   */
+  private long lastCount;
+  private long lastErrors;
+  private long lastNanos;
+  private long lastMaxNanos;
+  private final long[] lastHistogram = new long[LatencyHistogram.BUCKETS];
+
+  /**
+   * Records a successful operation.
+   *
+   * @param latencyNanos the time the operation took
+   */
+  public void record(long latencyNanos) {
+    count.increment();
+    nanos.add(latencyNanos);
+    maxNanos.accumulate(latencyNanos);
+    histogram.record(latencyNanos);
+  }
+
+  /**
+   * Records a failed or timed out operation.
+   */
+  public void recordError() {
+    errors.increment();
+  }
+
+  /**
+   * @return the operations recorded since the start of the run
+   */
+  public synchronized Snapshot getTotal() {
+    return new Snapshot(count.sum(), errors.sum(), nanos.sum(), Math.max(lastMaxNanos, maxNanos.get()),
+        histogram.getCounts());
+  }
+
+  /**
+   * @return the operations recorded since the previous call
+   */
+  public synchronized Snapshot getInterval() {
+    long totalCount = count.sum();
+    long totalErrors = errors.sum();
+    long totalNanos = nanos.sum();
+    long[] counts = histogram.getIntervalCounts(lastHistogram);
+
+    long intervalMaxNanos = maxNanos.getThenReset();
+    Snapshot snapshot = new Snapshot(totalCount - lastCount, totalErrors - lastErrors,
+        totalNanos - lastNanos, intervalMaxNanos, counts);
+    lastMaxNanos = Math.max(lastMaxNanos, intervalMaxNanos);
+    lastCount = totalCount;
+    lastErrors = totalErrors;
+    lastNanos = totalNanos;
+    return snapshot;
+  }
+
+  /**
+   * The operations recorded over a period.
+   */
+  public static final class Snapshot {
+    private final long count;
+    private final long errors;
+    private final long nanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    private Snapshot(long count, long errors, long nanos, long maxNanos, long[] histogram) {
+      this.count = count;
+      this.errors = errors;
+      this.nanos = nanos;
+      this.maxNanos = maxNanos;
+      this.histogram = histogram;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * @param periodMillis the length of the period
+     * @return the number of successful operations per second
+     */
+    public double getThroughput(long periodMillis) {
+      return periodMillis <= 0 ? 0 : count * 1000.0 / periodMillis;
+    }
+
+    /**
+     * @return the mean latency in milliseconds
+     */
+    public double getMean() {
+      return count == 0 ? 0 : nanos / 1000000.0 / count;
+    }
+
+    /**
+     * @return the largest latency in milliseconds
+     */
+    public double getMax() {
+      return maxNanos / 1000000.0;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound in milliseconds of the bucket the percentile falls in
+     */
+    public double getPercentile(double percentile) {
+      return LatencyHistogram.getPercentileMicros(histogram, percentile) / 1000.0;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of agents connecting and registering at the same time, as a real
+ * cluster does not start all its agents at the same instant.  An agent holds a permit
+ * from the start of its connection until its registration is over, successful or not.
+ */
+class RegistrationThrottle implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RegistrationThrottle.class);
+
+  private final Semaphore permits;
+  private final DelayQueue<PendingConnection> queue = new DelayQueue<>();
+  private volatile boolean stopped;
+
+  RegistrationThrottle(int concurrency) {
+    permits = new Semaphore(concurrency);
+  }
+
+  /**
+   * Queues the connection of an agent.
+   *
+   * @param agent the agent to connect
+   * @param delayMillis the time to wait before connecting
+   */
+  void connect(SimulatedAgent agent, long delayMillis) {
+    if (!stopped) {
+      queue.add(new PendingConnection(agent, delayMillis));
+    }
+  }
+
+  /**
+   * Returns the permit of an agent whose registration is over.
+   */
+  void release() {
+    permits.release();
+  }
+
+  void stop() {
+    stopped = true;
+    queue.clear();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (!stopped) {
+        PendingConnection pending = queue.take();
+        permits.acquire();
+        if (stopped) {
+          break;
+        }
+        try {
+          pending.agent.connect();
+        } catch (RuntimeException e) {
+          LOG.warn("Unable to connect {}", pending.agent.getHostName(), e);
+          permits.release();
+          connect(pending.agent, 1000);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class PendingConnection implements Delayed {
+    private final SimulatedAgent agent;
+    private final long dueNanos;
+
+    private PendingConnection(SimulatedAgent agent, long delayMillis) {
+      this.agent = agent;
+      dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+  }
+}
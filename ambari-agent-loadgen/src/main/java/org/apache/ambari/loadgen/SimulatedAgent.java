@@ -0,0 +1,825 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.loadgen.LoadGeneratorConfiguration.Option;
+import org.apache.ambari.loadgen.LoadStatistics.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A fake host whose agent talks to the server over STOMP as the Python agent does: it
+ * registers, requests the data of its clusters, heartbeats, reports the status of its
+ * components and the state of its alerts, and executes the commands it receives by
+ * acknowledging them, reporting them in progress and, after a while, completed or failed.
+ * <p/>
+ * The components and alert definitions of the host are kept up to date from the topology
+ * and alert definition updates pushed by the server.  Nothing is executed for real.
+ */
+public class SimulatedAgent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SimulatedAgent.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final String CORRELATION_ID_HEADER = "correlationId";
+  private static final String MESSAGE_ID_HEADER = "messageId";
+  private static final String CONNECTION_NOT_ALLOWED = "Connection not allowed";
+
+  private static final String RESPONSES_TOPIC = "/user/";
+  private static final String COMMANDS_TOPIC = "/user/commands";
+  private static final String ALERT_DEFINITIONS_TOPIC = "/user/alert_definitions";
+  private static final String TOPOLOGIES_TOPIC = "/events/topologies";
+  private static final String[] OTHER_TOPICS = {
+      "/user/agent_actions", "/user/configs", "/user/host_level_params", "/events/metadata",
+      "/events/encryption_key"};
+
+  private static final String REGISTRATION_ENDPOINT = "/register";
+  private static final String HEARTBEAT_ENDPOINT = "/heartbeat";
+  private static final String TOPOLOGY_REQUEST_ENDPOINT = "/agents/topologies";
+  private static final String ALERT_DEFINITIONS_REQUEST_ENDPOINT = "/agents/alert_definitions";
+  private static final String[] OTHER_REQUEST_ENDPOINTS = {
+      "/agents/metadata", "/agents/configs", "/agents/host_level_params"};
+  private static final String COMPONENT_STATUS_ENDPOINT = "/reports/component_status";
+  private static final String COMMANDS_STATUS_ENDPOINT = "/reports/commands_status";
+  private static final String ALERTS_STATUS_ENDPOINT = "/reports/alerts_status";
+  private static final String RESPONSES_ENDPOINT = "/reports/responses";
+
+  private final int index;
+  private final String hostName;
+  private final SimulationContext context;
+  private final long startTime = System.currentTimeMillis();
+
+  /**
+   * The components of this host by cluster ID, then by component name.
+   */
+  private final ConcurrentMap<String, ConcurrentMap<String, ComponentState>> components = new ConcurrentHashMap<>();
+
+  /**
+   * The alert definitions scheduled on this host by cluster ID, then by definition name.
+   */
+  private final ConcurrentMap<String, ConcurrentMap<String, JsonNode>> alertDefinitions = new ConcurrentHashMap<>();
+
+  /**
+   * When the last command of each request completed on this host, to measure the time the
+   * server takes to dispatch the next one.
+   */
+  private final ConcurrentMap<Long, Long> commandCompletions = new ConcurrentHashMap<>();
+
+  private volatile Connection connection;
+  private volatile boolean stopped;
+
+  SimulatedAgent(int index, SimulationContext context) {
+    this.index = index;
+    this.context = context;
+    hostName = String.format(context.configuration.getString(Option.HOST_NAME_FORMAT), index);
+  }
+
+  public String getHostName() {
+    return hostName;
+  }
+
+  /**
+   * Queues the connection of the agent, which happens once the throttle lets it.
+   */
+  public void start() {
+    context.throttle.connect(this, 0);
+  }
+
+  public void stop() {
+    stopped = true;
+    Connection current = connection;
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  /**
+   * Opens a new connection; called by the throttle with a registration permit.
+   */
+  void connect() {
+    if (stopped) {
+      context.throttle.release();
+      return;
+    }
+    Connection current = new Connection();
+    connection = current;
+    current.open();
+  }
+
+  private ObjectNode createRegistration() {
+    String os = context.configuration.getString(Option.OS);
+    String osRelease = context.configuration.getString(Option.OS_RELEASE);
+    String ipAddress = "10." + ((index >> 16) & 0xff) + "." + ((index >> 8) & 0xff) + "." + (index & 0xff);
+    int dot = hostName.indexOf('.');
+    long now = System.currentTimeMillis();
+
+    ObjectNode hardwareProfile = MAPPER.createObjectNode();
+    hardwareProfile.put("architecture", "x86_64");
+    hardwareProfile.put("domain", dot < 0 ? "" : hostName.substring(dot + 1));
+    hardwareProfile.put("fqdn", hostName);
+    hardwareProfile.put("hardwareisa", "x86_64");
+    hardwareProfile.put("hardwaremodel", "x86_64");
+    hardwareProfile.put("hostname", dot < 0 ? hostName : hostName.substring(0, dot));
+    hardwareProfile.put("id", "root");
+    hardwareProfile.put("interfaces", "eth0,lo");
+    hardwareProfile.put("ipaddress", ipAddress);
+    hardwareProfile.put("kernel", "Linux");
+    hardwareProfile.put("kernelmajversion", "3.10");
+    hardwareProfile.put("kernelrelease", "3.10.0-957.el7.x86_64");
+    hardwareProfile.put("kernelversion", "3.10.0");
+    hardwareProfile.put("macaddress", String.format("02:00:00:%02x:%02x:%02x",
+        (index >> 16) & 0xff, (index >> 8) & 0xff, index & 0xff));
+    hardwareProfile.put("memoryfree", 60000000L);
+    hardwareProfile.put("memorysize", 65808000L);
+    hardwareProfile.put("memorytotal", 65808000L);
+    hardwareProfile.put("netmask", "255.0.0.0");
+    hardwareProfile.put("operatingsystem", os);
+    hardwareProfile.put("operatingsystemrelease", osRelease);
+    hardwareProfile.put("osfamily", "redhat");
+    hardwareProfile.put("physicalprocessorcount", 2);
+    hardwareProfile.put("processorcount", 16);
+    hardwareProfile.put("selinux", false);
+    hardwareProfile.put("swapfree", "0.00 GB");
+    hardwareProfile.put("swapsize", "0.00 GB");
+    hardwareProfile.put("timezone", "UTC");
+    hardwareProfile.put("uptime", "1:00 hours");
+    hardwareProfile.put("uptime_days", "0");
+    hardwareProfile.put("uptime_hours", "1");
+    ObjectNode mount = hardwareProfile.putArray("mounts").addObject();
+    mount.put("available", "400000000");
+    mount.put("device", "/dev/sda1");
+    mount.put("mountpoint", "/");
+    mount.put("percent", "20%");
+    mount.put("size", "500000000");
+    mount.put("type", "xfs");
+    mount.put("used", "100000000");
+
+    ObjectNode agentEnv = MAPPER.createObjectNode();
+    agentEnv.put("umask", 18);
+    agentEnv.put("transparentHugePage", "never");
+    agentEnv.put("reverseLookup", true);
+    agentEnv.put("firewallRunning", false);
+    agentEnv.put("firewallName", "iptables");
+    agentEnv.put("hasUnlimitedJcePolicy", true);
+    agentEnv.putArray("stackFoldersAndFiles");
+    agentEnv.putArray("existingUsers");
+    agentEnv.putArray("alternatives");
+    agentEnv.putArray("existingRepos");
+    agentEnv.putArray("installedPackages");
+    ObjectNode hostHealth = agentEnv.putObject("hostHealth");
+    hostHealth.put("agentTimeStampAtReporting", now);
+    hostHealth.putArray("activeJavaProcs");
+    hostHealth.putArray("liveServices");
+
+    ObjectNode registration = MAPPER.createObjectNode();
+    registration.put("id", -1);
+    registration.put("timestamp", now);
+    registration.put("hostname", hostName);
+    registration.put("currentPingPort", 8670);
+    registration.set("hardwareProfile", hardwareProfile);
+    registration.put("publicHostname", hostName);
+    registration.set("agentEnv", agentEnv);
+    registration.put("agentVersion", context.agentVersion);
+    registration.put("prefix", "/var/lib/ambari-agent/data");
+    registration.put("agentStartTime", startTime);
+    return registration;
+  }
+
+  /**
+   * Applies a topology, either the whole of it or a change pushed by the server, keeping
+   * the components which are on this host.
+   */
+  private void applyTopology(JsonNode topology) {
+    String eventType = topology.path("eventType").asText("CREATE");
+    if ("CREATE".equals(eventType)) {
+      components.clear();
+    }
+
+    Iterator<Map.Entry<String, JsonNode>> clusters = topology.path("clusters").fields();
+    while (clusters.hasNext()) {
+      Map.Entry<String, JsonNode> cluster = clusters.next();
+      ConcurrentMap<String, ComponentState> clusterComponents =
+          components.computeIfAbsent(cluster.getKey(), key -> new ConcurrentHashMap<>());
+      for (JsonNode component : cluster.getValue().path("components")) {
+        if (!isOnThisHost(component)) {
+          continue;
+        }
+        String componentName = component.path("componentName").asText();
+        if ("DELETE".equals(eventType)) {
+          clusterComponents.remove(componentName);
+        } else {
+          clusterComponents.computeIfAbsent(componentName,
+              name -> new ComponentState(component.path("serviceName").asText(),
+                  "STARTED".equals(component.path("lastComponentState").asText()) ? "STARTED" : "INSTALLED"));
+        }
+      }
+      if ("DELETE".equals(eventType)) {
+        for (JsonNode host : cluster.getValue().path("hosts")) {
+          if (hostName.equals(host.path("hostName").asText())) {
+            clusterComponents.clear();
+          }
+        }
+      }
+      if (clusterComponents.isEmpty()) {
+        components.remove(cluster.getKey());
+      }
+    }
+  }
+
+  private boolean isOnThisHost(JsonNode component) {
+    for (JsonNode name : component.path("hostNames")) {
+      if (hostName.equals(name.asText())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies the alert definitions of this host, either all of them or a change pushed by the server.
+   */
+  private void applyAlertDefinitions(JsonNode update) {
+    String eventType = update.path("eventType").asText("CREATE");
+    if ("CREATE".equals(eventType)) {
+      alertDefinitions.clear();
+    }
+
+    Iterator<Map.Entry<String, JsonNode>> clusters = update.path("clusters").fields();
+    while (clusters.hasNext()) {
+      Map.Entry<String, JsonNode> cluster = clusters.next();
+      ConcurrentMap<String, JsonNode> definitions =
+          alertDefinitions.computeIfAbsent(cluster.getKey(), key -> new ConcurrentHashMap<>());
+      for (JsonNode definition : cluster.getValue().path("alertDefinitions")) {
+        String name = definition.path("name").asText();
+        if ("DELETE".equals(eventType)) {
+          definitions.remove(name);
+        } else if (definition.path("enabled").asBoolean(true)) {
+          definitions.put(name, definition);
+        } else {
+          definitions.remove(name);
+        }
+      }
+      if (definitions.isEmpty()) {
+        alertDefinitions.remove(cluster.getKey());
+      }
+    }
+  }
+
+  /**
+   * Creates the report of a command, in the form of the Python agent's command status dictionary.
+   */
+  private static ObjectNode createCommandReport(String clusterId, JsonNode command, String status, int exitCode) {
+    ObjectNode report = MAPPER.createObjectNode();
+    report.put("role", command.path("role").asText());
+    report.put("actionId", command.path("commandId").asText());
+    report.put("taskId", command.path("taskId").asLong());
+    report.put("clusterId", clusterId);
+    report.put("serviceName", command.path("serviceName").asText());
+    report.put("roleCommand", command.path("roleCommand").asText());
+    JsonNode customCommand = command.path("commandParams").path("custom_command");
+    if (customCommand.isTextual()) {
+      report.put("customCommand", customCommand.asText());
+    }
+    report.put("status", status);
+    report.put("exitcode", exitCode);
+    report.put("stdout", "");
+    report.put("stderr", "");
+    report.put("structuredOut", "{}");
+    return report;
+  }
+
+  private static ObjectNode wrapInClusters(String clusterId, JsonNode reports) {
+    ObjectNode message = MAPPER.createObjectNode();
+    message.putObject("clusters").set(clusterId, reports);
+    return message;
+  }
+
+  private static long jitter(long interval) {
+    return ThreadLocalRandom.current().nextLong(interval);
+  }
+
+  /**
+   * The last known state of a component of this host.
+   */
+  private static final class ComponentState {
+    private final String serviceName;
+    private volatile String status;
+
+    private ComponentState(String serviceName, String status) {
+      this.serviceName = serviceName;
+      this.status = status;
+    }
+  }
+
+  /**
+   * A request waiting for the server's response, which carries the same correlation ID.
+   */
+  private static final class PendingRequest {
+    private final Operation operation;
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<JsonNode> response = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> timeout;
+
+    private PendingRequest(Operation operation) {
+      this.operation = operation;
+    }
+  }
+
+  /**
+   * A single STOMP session of the agent.  The agent opens a new one whenever its connection
+   * is refused or lost, as the Python agent does, and registers again.
+   */
+  private final class Connection extends StompSessionHandlerAdapter {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final ConcurrentMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    private final List<ScheduledFuture<?>> timers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean holdingPermit = new AtomicBoolean(true);
+    private final AtomicBoolean heartbeatInFlight = new AtomicBoolean();
+    private volatile StompSession session;
+    private volatile boolean registered;
+    private volatile boolean refused;
+    private volatile long responseId;
+
+    private void open() {
+      context.stompClient.connect(context.serverUrl, this).addCallback(connected -> {
+      }, failure -> {
+        context.statistics.get(Operation.CONNECTION).recordError();
+        LOG.debug("{} could not connect", hostName, failure);
+        lost();
+      });
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+      context.statistics.get(Operation.CONNECTION).record(System.nanoTime() - startNanos);
+      if (closed.get()) {
+        session.disconnect();
+        return;
+      }
+      this.session = session;
+      context.statistics.agentConnected();
+
+      subscribe(RESPONSES_TOPIC, this::onResponse);
+      subscribe(COMMANDS_TOPIC, this::onCommands);
+      subscribe(TOPOLOGIES_TOPIC, (headers, message) -> applyTopology(message));
+      subscribe(ALERT_DEFINITIONS_TOPIC, (headers, message) -> applyAlertDefinitions(message));
+      for (String topic : OTHER_TOPICS) {
+        subscribe(topic, null);
+      }
+      register();
+    }
+
+    private void subscribe(String topic, MessageHandler handler) {
+      session.subscribe(topic, new Subscription(topic, handler));
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+      return byte[].class;
+    }
+
+    /**
+     * Handles the ERROR frames of the server, such as the one refusing a connection
+     * when too many agents are registering.
+     */
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+      String message = headers.getFirst("message");
+      if (CONNECTION_NOT_ALLOWED.equals(message)) {
+        refused = true;
+        context.statistics.connectionRefused();
+      } else {
+        LOG.warn("{} received an error: {}", hostName, message);
+      }
+      lost();
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                byte[] payload, Throwable exception) {
+      LOG.warn("{} failed to handle a {} frame", hostName, command, exception);
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+      LOG.debug("{} lost its connection", hostName, exception);
+      lost();
+    }
+
+    private void register() {
+      request(REGISTRATION_ENDPOINT, createRegistration(), Operation.REGISTRATION).thenCompose(response -> {
+        if (response.path("exitstatus").asInt(0) != 0) {
+          throw new IllegalStateException("Registration failed due to: " + response.path("log").asText());
+        }
+        responseId = response.path("id").asLong();
+        return requestInitialData();
+      }).thenRun(() -> {
+        if (closed.get()) {
+          return;
+        }
+        registered = true;
+        context.statistics.agentRegistered();
+        releasePermit();
+        heartbeat();
+        scheduleReports();
+      }).exceptionally(failure -> {
+        if (!closed.get()) {
+          LOG.warn("{} could not register", hostName, failure);
+          lost();
+        }
+        return null;
+      });
+    }
+
+    private CompletableFuture<Void> requestInitialData() {
+      ObjectNode emptyHash = MAPPER.createObjectNode().put("hash", "");
+      CompletableFuture<JsonNode> topology = request(TOPOLOGY_REQUEST_ENDPOINT, emptyHash, Operation.INITIAL_DATA);
+      CompletableFuture<JsonNode> definitions =
+          request(ALERT_DEFINITIONS_REQUEST_ENDPOINT, emptyHash, Operation.INITIAL_DATA);
+      CompletableFuture<?>[] requests = new CompletableFuture<?>[OTHER_REQUEST_ENDPOINTS.length + 2];
+      requests[0] = topology;
+      requests[1] = definitions;
+      for (int i = 0; i < OTHER_REQUEST_ENDPOINTS.length; i++) {
+        requests[i + 2] = request(OTHER_REQUEST_ENDPOINTS[i], emptyHash, Operation.INITIAL_DATA);
+      }
+      return CompletableFuture.allOf(requests).thenRun(() -> {
+        applyTopology(topology.join());
+        applyAlertDefinitions(definitions.join());
+      });
+    }
+
+    private void scheduleReports() {
+      long heartbeatInterval = context.configuration.getLong(Option.HEARTBEAT_INTERVAL);
+      long componentStatusInterval = context.configuration.getLong(Option.COMPONENT_STATUS_INTERVAL);
+      long alertInterval = context.configuration.getLong(Option.ALERT_INTERVAL);
+      if (heartbeatInterval > 0) {
+        timers.add(context.scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval,
+            TimeUnit.MILLISECONDS));
+      }
+      if (componentStatusInterval > 0) {
+        timers.add(context.scheduler.scheduleAtFixedRate(this::reportComponentStatus,
+            jitter(componentStatusInterval), componentStatusInterval, TimeUnit.MILLISECONDS));
+      }
+      if (alertInterval > 0) {
+        timers.add(context.scheduler.scheduleAtFixedRate(this::reportAlerts, jitter(alertInterval), alertInterval,
+            TimeUnit.MILLISECONDS));
+      }
+      if (closed.get()) {
+        cancelTimers();
+      }
+    }
+
+    /**
+     * Sends a heartbeat unless the previous one is still waiting for its response.  The
+     * server answers with the next response ID, or with 0 when it does not know the agent,
+     * in which case the agent registers again.
+     */
+    private void heartbeat() {
+      if (closed.get() || !heartbeatInFlight.compareAndSet(false, true)) {
+        return;
+      }
+      long id = responseId;
+      request(HEARTBEAT_ENDPOINT, MAPPER.createObjectNode().put("id", id), Operation.HEARTBEAT)
+          .whenComplete((response, failure) -> {
+            heartbeatInFlight.set(false);
+            if (response == null) {
+              return;
+            }
+            long serverId = response.path("id").asLong();
+            if (serverId == id + 1) {
+              responseId = serverId;
+            } else {
+              LOG.warn("{} received response ID {} instead of {}, registering again", hostName, serverId, id + 1);
+              lost();
+            }
+          });
+    }
+
+    private void reportComponentStatus() {
+      ObjectNode clusters = MAPPER.createObjectNode();
+      for (Map.Entry<String, ConcurrentMap<String, ComponentState>> cluster : components.entrySet()) {
+        ArrayNode statuses = MAPPER.createArrayNode();
+        for (Map.Entry<String, ComponentState> component : cluster.getValue().entrySet()) {
+          if (component.getKey().endsWith("_CLIENT")) {
+            continue;
+          }
+          ObjectNode status = statuses.addObject();
+          status.put("componentName", component.getKey());
+          status.put("serviceName", component.getValue().serviceName);
+          status.put("clusterId", cluster.getKey());
+          status.put("command", "STATUS");
+          status.put("status", component.getValue().status);
+        }
+        if (statuses.size() > 0) {
+          clusters.set(cluster.getKey(), statuses);
+        }
+      }
+      if (clusters.size() > 0) {
+        ObjectNode message = MAPPER.createObjectNode();
+        message.set("clusters", clusters);
+        request(COMPONENT_STATUS_ENDPOINT, message, Operation.COMPONENT_STATUS_REPORT);
+      }
+    }
+
+    private void reportAlerts() {
+      double stateChangeRate = context.configuration.getDouble(Option.ALERT_STATE_CHANGE_RATE);
+      long now = System.currentTimeMillis();
+      ArrayNode alerts = MAPPER.createArrayNode();
+      for (Map.Entry<String, ConcurrentMap<String, JsonNode>> cluster : alertDefinitions.entrySet()) {
+        for (JsonNode definition : cluster.getValue().values()) {
+          boolean warning = ThreadLocalRandom.current().nextDouble() < stateChangeRate;
+          ObjectNode alert = alerts.addObject();
+          alert.put("name", definition.path("name").asText());
+          alert.putNull("instance");
+          alert.put("service", definition.path("serviceName").asText());
+          alert.put("component", definition.path("componentName").asText());
+          alert.put("host", hostName);
+          alert.put("state", warning ? "WARNING" : "OK");
+          alert.put("label", definition.path("label").asText());
+          alert.put("text", warning ? "Simulated warning" : "Simulated check passed");
+          alert.put("timestamp", now);
+          alert.put("clusterId", cluster.getKey());
+          alert.put("uuid", definition.path("uuid").asText());
+        }
+      }
+      if (alerts.size() > 0) {
+        request(ALERTS_STATUS_ENDPOINT, alerts, Operation.ALERT_REPORT);
+      }
+    }
+
+    private void onCommands(StompHeaders headers, JsonNode message) {
+      String messageId = headers.getFirst(MESSAGE_ID_HEADER);
+      if (messageId != null) {
+        ObjectNode ack = MAPPER.createObjectNode();
+        ack.put("messageId", Long.parseLong(messageId));
+        ack.put("status", "OK");
+        request(RESPONSES_ENDPOINT, ack, Operation.COMMAND_ACK);
+      }
+
+      Iterator<Map.Entry<String, JsonNode>> clusters = message.path("clusters").fields();
+      while (clusters.hasNext()) {
+        Map.Entry<String, JsonNode> cluster = clusters.next();
+        for (JsonNode command : cluster.getValue().path("commands")) {
+          execute(cluster.getKey(), command);
+        }
+      }
+    }
+
+    private void execute(String clusterId, JsonNode command) {
+      context.statistics.commandReceived();
+      long requestId = command.path("requestId").asLong();
+      Long completedNanos = commandCompletions.remove(requestId);
+      if (completedNanos != null) {
+        context.statistics.get(Operation.COMMAND_DISPATCH).record(System.nanoTime() - completedNanos);
+      }
+
+      sendCommandReport(clusterId, createCommandReport(clusterId, command, "IN_PROGRESS", 777));
+      context.scheduler.schedule(() -> complete(clusterId, command),
+          context.configuration.getLong(Option.COMMAND_DURATION), TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(String clusterId, JsonNode command) {
+      if (closed.get()) {
+        return;
+      }
+      boolean failed = ThreadLocalRandom.current().nextDouble() < context.configuration.getDouble(
+          Option.COMMAND_FAILURE_RATE);
+      if (!failed) {
+        updateComponentState(clusterId, command);
+      }
+
+      long now = System.nanoTime();
+      long staleNanos = TimeUnit.MILLISECONDS.toNanos(context.configuration.getLong(Option.REQUEST_TIMEOUT));
+      commandCompletions.values().removeIf(completedNanos -> now - completedNanos > staleNanos);
+      commandCompletions.put(command.path("requestId").asLong(), now);
+      sendCommandReport(clusterId, createCommandReport(clusterId, command, failed ? "FAILED" : "COMPLETED",
+          failed ? 1 : 0));
+    }
+
+    private void updateComponentState(String clusterId, JsonNode command) {
+      ConcurrentMap<String, ComponentState> clusterComponents = components.get(clusterId);
+      ComponentState state = clusterComponents == null ? null
+          : clusterComponents.get(command.path("role").asText());
+      if (state == null) {
+        return;
+      }
+      switch (command.path("roleCommand").asText()) {
+        case "START":
+          state.status = "STARTED";
+          break;
+        case "INSTALL":
+        case "STOP":
+          state.status = "INSTALLED";
+          break;
+        case "CUSTOM_COMMAND":
+          if ("RESTART".equals(command.path("commandParams").path("custom_command").asText())) {
+            state.status = "STARTED";
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void sendCommandReport(String clusterId, ObjectNode report) {
+      request(COMMANDS_STATUS_ENDPOINT, wrapInClusters(clusterId, MAPPER.createArrayNode().add(report)),
+          Operation.COMMAND_REPORT);
+    }
+
+    /**
+     * Sends a message expecting a response, timing the round trip.
+     *
+     * @return the response, failed if the message could not be sent or the server did not answer in time
+     */
+    private CompletableFuture<JsonNode> request(String destination, JsonNode body, Operation operation) {
+      PendingRequest request = new PendingRequest(operation);
+      StompSession currentSession = session;
+      if (closed.get() || currentSession == null) {
+        request.response.completeExceptionally(new IllegalStateException(hostName + " is not connected"));
+        return request.response;
+      }
+
+      String correlationId = Long.toString(correlationIds.incrementAndGet());
+      pendingRequests.put(correlationId, request);
+      try {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.set(CORRELATION_ID_HEADER, correlationId);
+        currentSession.send(headers, MAPPER.writeValueAsBytes(body));
+      } catch (Exception e) {
+        pendingRequests.remove(correlationId);
+        context.statistics.get(operation).recordError();
+        request.response.completeExceptionally(e);
+        return request.response;
+      }
+
+      request.timeout = context.scheduler.schedule(() -> {
+        if (pendingRequests.remove(correlationId) != null) {
+          context.statistics.get(operation).recordError();
+          request.response.completeExceptionally(
+              new TimeoutException(hostName + " got no response to " + destination));
+        }
+      }, context.configuration.getLong(Option.REQUEST_TIMEOUT), TimeUnit.MILLISECONDS);
+      return request.response;
+    }
+
+    private void onResponse(StompHeaders headers, JsonNode message) {
+      String correlationId = headers.getFirst(CORRELATION_ID_HEADER);
+      PendingRequest request = correlationId == null ? null : pendingRequests.remove(correlationId);
+      if (request == null) {
+        return;
+      }
+      ScheduledFuture<?> timeout = request.timeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+
+      if ("FAILED".equals(message.path("status").asText())) {
+        context.statistics.get(request.operation).recordError();
+        request.response.completeExceptionally(new IllegalStateException(
+            hostName + " got a failed response: " + message.path("reason").asText()));
+      } else {
+        context.statistics.get(request.operation).record(System.nanoTime() - request.startNanos);
+        request.response.complete(message);
+      }
+    }
+
+    /**
+     * Closes this connection and opens another one after the reconnect delay.
+     */
+    private void lost() {
+      if (close() && !stopped) {
+        if (!refused) {
+          context.statistics.connectionLost();
+        }
+        context.throttle.connect(SimulatedAgent.this, context.configuration.getLong(Option.RECONNECT_DELAY));
+      }
+    }
+
+    /**
+     * @return whether this call closed the connection
+     */
+    private boolean close() {
+      if (!closed.compareAndSet(false, true)) {
+        return false;
+      }
+      releasePermit();
+      cancelTimers();
+      for (PendingRequest request : pendingRequests.values()) {
+        ScheduledFuture<?> timeout = request.timeout;
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+        request.response.completeExceptionally(new IllegalStateException(hostName + " disconnected"));
+      }
+      pendingRequests.clear();
+
+      StompSession currentSession = session;
+      if (currentSession != null) {
+        context.statistics.agentDisconnected(registered);
+        registered = false;
+        if (currentSession.isConnected()) {
+          currentSession.disconnect();
+        }
+      }
+      return true;
+    }
+
+    private void releasePermit() {
+      if (holdingPermit.compareAndSet(true, false)) {
+        context.throttle.release();
+      }
+    }
+
+    private void cancelTimers() {
+      for (ScheduledFuture<?> timer : timers) {
+        timer.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Counts the messages pushed to a topic and passes them on to a handler, if any.
+   * Responses to requests are timed rather than counted.
+   */
+  private final class Subscription implements StompFrameHandler {
+    private final String topic;
+    private final MessageHandler handler;
+
+    private Subscription(String topic, MessageHandler handler) {
+      this.topic = topic;
+      this.handler = handler;
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+      return byte[].class;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+      if (!RESPONSES_TOPIC.equals(topic)) {
+        context.statistics.eventReceived(topic);
+      }
+      if (handler == null) {
+        return;
+      }
+      try {
+        handler.handle(headers, MAPPER.readTree((byte[]) payload));
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("{} could not handle a message of {}", hostName, topic, e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface MessageHandler {
+    void handle(StompHeaders headers, JsonNode message);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * What the simulated agents share: the options of the run, the STOMP client, the
+ * threads running the agents and the statistics they record.
+ */
+class SimulationContext {
+
+  final LoadGeneratorConfiguration configuration;
+  final String serverUrl;
+  final String agentVersion;
+  final WebSocketStompClient stompClient;
+  final ScheduledExecutorService scheduler;
+  final RegistrationThrottle throttle;
+  final LoadStatistics statistics;
+
+  SimulationContext(LoadGeneratorConfiguration configuration, String serverUrl, String agentVersion,
+                    WebSocketStompClient stompClient, ScheduledExecutorService scheduler,
+                    RegistrationThrottle throttle, LoadStatistics statistics) {
+    this.configuration = configuration;
+    this.serverUrl = serverUrl;
+    this.agentVersion = agentVersion;
+    this.stompClient = stompClient;
+    this.scheduler = scheduler;
+    this.throttle = throttle;
+    this.statistics = statistics;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class BlueprintBootstrapTest {
+
+  @Test
+  public void testBlueprintHasMasterAndWorkerHostGroups() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration("--hosts=100",
+        "--cluster.stack=HDP-2.0.6", "--worker.components=DATANODE, HDFS_CLIENT");
+    JsonNode blueprint = new BlueprintBootstrap(configuration, "http://localhost:8080/api/v1").createBlueprint();
+
+    assertEquals("HDP", blueprint.path("Blueprints").path("stack_name").asText());
+    assertEquals("2.0.6", blueprint.path("Blueprints").path("stack_version").asText());
+
+    JsonNode master = blueprint.path("host_groups").get(0);
+    assertEquals(BlueprintBootstrap.MASTER_HOST_GROUP, master.path("name").asText());
+    assertEquals("1", master.path("cardinality").asText());
+    assertEquals(3, master.path("components").size());
+    assertEquals("NAMENODE", master.path("components").get(0).path("name").asText());
+
+    JsonNode worker = blueprint.path("host_groups").get(1);
+    assertEquals(BlueprintBootstrap.WORKER_HOST_GROUP, worker.path("name").asText());
+    assertEquals("99", worker.path("cardinality").asText());
+    assertEquals(2, worker.path("components").size());
+    assertEquals("HDFS_CLIENT", worker.path("components").get(1).path("name").asText());
+  }
+
+  @Test
+  public void testClusterTemplateMapsTheFirstHostToTheMaster() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration("--hosts=100",
+        "--cluster.name=c1");
+    JsonNode template = new BlueprintBootstrap(configuration, "http://localhost:8080/api/v1").createClusterTemplate();
+
+    assertEquals("c1", template.path("blueprint").asText());
+    JsonNode master = template.path("host_groups").get(0);
+    assertEquals("loadgen-00000.example.com", master.path("hosts").get(0).path("fqdn").asText());
+    JsonNode worker = template.path("host_groups").get(1);
+    assertEquals(99, worker.path("host_count").asInt());
+  }
+
+  @Test
+  public void testSingleHostClusterHasNoWorkers() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration("--hosts=1");
+    BlueprintBootstrap bootstrap = new BlueprintBootstrap(configuration, "http://localhost:8080/api/v1");
+
+    assertEquals(1, bootstrap.createBlueprint().path("host_groups").size());
+    assertEquals(1, bootstrap.createClusterTemplate().path("host_groups").size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedStack() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration("--cluster.stack=HDP");
+    new BlueprintBootstrap(configuration, "http://localhost:8080/api/v1").createBlueprint();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.ambari.loadgen.LoadGeneratorConfiguration.Option;
+import org.junit.Test;
+
+public class LoadGeneratorConfigurationTest {
+
+  @Test
+  public void testOptionsOverrideDefaults() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration("--hosts=5000",
+        "--server.url=wss://ambari.example.com:8441/agent/stomp/v1", "--command.failure.rate=0.05");
+
+    assertEquals(5000, configuration.getInt(Option.HOSTS));
+    assertEquals("wss://ambari.example.com:8441/agent/stomp/v1", configuration.getString(Option.SERVER_URL));
+    assertEquals(0.05, configuration.getDouble(Option.COMMAND_FAILURE_RATE), 0.0001);
+    assertEquals(10000L, configuration.getLong(Option.HEARTBEAT_INTERVAL));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownOption() {
+    new LoadGeneratorConfiguration("--hostz=5000");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedOption() {
+    new LoadGeneratorConfiguration("hosts");
+  }
+
+  @Test
+  public void testUsageListsEveryOption() {
+    String usage = LoadGeneratorConfiguration.getUsage();
+    for (Option option : Option.values()) {
+      assertTrue(option.getKey(), usage.contains("--" + option.getKey() + "="));
+    }
+  }
+}
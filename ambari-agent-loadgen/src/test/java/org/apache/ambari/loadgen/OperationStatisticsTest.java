@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.loadgen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class OperationStatisticsTest {
+
+  @Test
+  public void testIntervalCoversOperationsSincePreviousInterval() {
+    OperationStatistics statistics = new OperationStatistics();
+    statistics.record(TimeUnit.MICROSECONDS.toNanos(100L));
+    statistics.record(TimeUnit.MICROSECONDS.toNanos(300L));
+    statistics.record(TimeUnit.MILLISECONDS.toNanos(3L));
+    statistics.record(TimeUnit.MILLISECONDS.toNanos(100L));
+    statistics.recordError();
+
+    OperationStatistics.Snapshot interval = statistics.getInterval();
+    assertEquals(4L, interval.getCount());
+    assertEquals(1L, interval.getErrors());
+    assertEquals(25.85, interval.getMean(), 0.001);
+    assertEquals(0.512, interval.getPercentile(50), 0.001);
+    assertEquals(131.072, interval.getPercentile(99), 0.001);
+    assertEquals(100.0, interval.getMax(), 0.001);
+    assertEquals(2.0, interval.getThroughput(2000L), 0.001);
+
+    statistics.record(TimeUnit.MILLISECONDS.toNanos(3L));
+    interval = statistics.getInterval();
+    assertEquals(1L, interval.getCount());
+    assertEquals(0L, interval.getErrors());
+    assertEquals(4.096, interval.getPercentile(99), 0.001);
+    assertEquals(3.0, interval.getMax(), 0.001);
+
+    // nothing new was recorded
+    interval = statistics.getInterval();
+    assertEquals(0L, interval.getCount());
+    assertEquals(0.0, interval.getPercentile(99), 0.001);
+  }
+
+  @Test
+  public void testTotalCoversWholeRun() {
+    OperationStatistics statistics = new OperationStatistics();
+    statistics.record(TimeUnit.MILLISECONDS.toNanos(100L));
+    statistics.getInterval();
+    statistics.record(TimeUnit.MILLISECONDS.toNanos(3L));
+    statistics.recordError();
+
+    OperationStatistics.Snapshot total = statistics.getTotal();
+    assertEquals(2L, total.getCount());
+    assertEquals(1L, total.getErrors());
+    assertEquals(100.0, total.getMax(), 0.001);
+    assertEquals(131.072, total.getPercentile(99), 0.001);
+  }
+}
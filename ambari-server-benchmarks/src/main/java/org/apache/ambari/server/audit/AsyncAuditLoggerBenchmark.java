@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.audit;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.audit.event.AuditEvent;
+import org.apache.ambari.server.audit.event.LoginAuditEvent;
+import org.apache.ambari.server.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many audit events request threads can log through {@link AsyncAuditLogger},
+ * against formatting and writing them on the request threads with {@link AuditLoggerDefaultImpl}.
+ * It lives in the audit package as the asynchronous logger is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(8)
+public class AsyncAuditLoggerBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({"block", "drop"})
+  public String overflowPolicy;
+
+  private AuditLogger asyncLogger;
+  private AuditLogger synchronousLogger;
+  private AuditEvent[] events;
+
+  @Setup
+  public void setUp() {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AUDIT_LOG_ENABLED.getKey(), "true");
+    properties.setProperty(Configuration.AUDIT_LOGGER_OVERFLOW_POLICY.getKey(), overflowPolicy);
+    Configuration configuration = new Configuration(properties);
+
+    synchronousLogger = new AuditLoggerDefaultImpl(configuration);
+    asyncLogger = new AsyncAuditLogger(synchronousLogger, configuration, new AuditLogStatistics());
+
+    events = new AuditEvent[EVENTS];
+    for (int i = 0; i < EVENTS; i++) {
+      events[i] = LoginAuditEvent.builder()
+          .withTimestamp(System.currentTimeMillis())
+          .withRemoteIp("192.168.0." + (i % 256))
+          .withUserName("user" + i)
+          .build();
+    }
+  }
+
+  @Benchmark
+  public void logAsynchronously(EventIndex index) {
+    asyncLogger.log(events[index.next()]);
+  }
+
+  @Benchmark
+  public void logSynchronously(EventIndex index) {
+    synchronousLogger.log(events[index.next()]);
+  }
+
+  /**
+   * The position of a benchmark thread in the events.
+   */
+  @State(Scope.Thread)
+  public static class EventIndex {
+    private int next;
+
+    int next() {
+      next = (next + 1) & (EVENTS - 1);
+      return next;
+    }
+  }
+}
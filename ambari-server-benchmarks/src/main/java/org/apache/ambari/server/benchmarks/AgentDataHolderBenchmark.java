@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.agent.stomp.AgentDataHolder;
+import org.apache.ambari.server.agent.stomp.dto.TopologyCluster;
+import org.apache.ambari.server.agent.stomp.dto.TopologyComponent;
+import org.apache.ambari.server.agent.stomp.dto.TopologyHost;
+import org.apache.ambari.server.events.TopologyUpdateEvent;
+import org.apache.ambari.server.events.UpdateEventType;
+import org.apache.ambari.server.state.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link AgentDataHolder#getHash} on the topology of a cluster, which is
+ * hashed whenever the topology sent to the agents changes.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AgentDataHolderBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private TopologyHashHolder holder;
+  private TopologyUpdateEvent topology;
+
+  @Setup
+  public void setUp() {
+    SyntheticCluster cluster = new SyntheticCluster(hosts);
+    holder = new TopologyHashHolder();
+    topology = createTopology(cluster);
+  }
+
+  @Benchmark
+  public String getHash() {
+    return holder.hash(topology);
+  }
+
+  static TopologyUpdateEvent createTopology(SyntheticCluster cluster) {
+    List<String> hostNames = cluster.getHostNames();
+    Map<String, Long> hostIds = new TreeMap<>();
+    Set<TopologyHost> topologyHosts = new HashSet<>();
+    for (int i = 0; i < hostNames.size(); i++) {
+      hostIds.put(hostNames.get(i), (long) i);
+      topologyHosts.add(new TopologyHost((long) i, hostNames.get(i), "/default-rack",
+          SyntheticCluster.getHostIp(i)));
+    }
+
+    Set<TopologyComponent> topologyComponents = new HashSet<>();
+    for (Map.Entry<String, List<String>> entry : cluster.getComponentHosts().entrySet()) {
+      String component = entry.getKey();
+      String service = cluster.getServiceName(component);
+
+      Set<Long> componentHostIds = new HashSet<>();
+      Set<String> componentHostNames = new HashSet<>();
+      for (String hostName : entry.getValue()) {
+        componentHostIds.add(hostIds.get(hostName));
+        componentHostNames.add(hostName);
+      }
+
+      TreeMap<String, String> componentLevelParams = new TreeMap<>();
+      componentLevelParams.put("unlimited_key_jce_required", "false");
+      componentLevelParams.put("clientsToUpdateConfigs", "[\"*\"]");
+
+      TreeMap<String, String> commandParams = new TreeMap<>();
+      commandParams.put("script", "scripts/" + component.toLowerCase() + ".py");
+      commandParams.put("script_type", "PYTHON");
+      commandParams.put("service_package_folder", "stacks/HDP/3.0/services/" + service + "/package");
+      commandParams.put("command_timeout", "1200");
+
+      topologyComponents.add(TopologyComponent.newBuilder()
+          .setComponentName(component)
+          .setServiceName(service)
+          .setDisplayName(component)
+          .setVersion("3.1.0.0-78")
+          .setHostIdentifiers(componentHostIds, componentHostNames)
+          .setPublicHostNames(new HashSet<>(componentHostNames))
+          .setComponentLevelParams(componentLevelParams)
+          .setCommandParams(commandParams)
+          .setLastComponentState(State.STARTED)
+          .build());
+    }
+
+    TreeMap<String, TopologyCluster> clusters = new TreeMap<>();
+    clusters.put(Long.toString(SyntheticCluster.CLUSTER_ID),
+        new TopologyCluster(topologyComponents, topologyHosts));
+    return new TopologyUpdateEvent(clusters, UpdateEventType.CREATE);
+  }
+
+  /**
+   * Exposes the hashing of the data holders.
+   */
+  private static final class TopologyHashHolder extends AgentDataHolder<TopologyUpdateEvent> {
+
+    @Override
+    protected TopologyUpdateEvent getEmptyData() {
+      return new TopologyUpdateEvent(new TreeMap<>(), UpdateEventType.CREATE);
+    }
+
+    String hash(TopologyUpdateEvent data) {
+      return getHash(data);
+    }
+  }
+}
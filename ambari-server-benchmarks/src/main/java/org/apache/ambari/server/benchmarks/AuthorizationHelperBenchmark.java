@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.orm.entities.PermissionEntity;
+import org.apache.ambari.server.orm.entities.PrincipalEntity;
+import org.apache.ambari.server.orm.entities.PrincipalTypeEntity;
+import org.apache.ambari.server.orm.entities.PrivilegeEntity;
+import org.apache.ambari.server.orm.entities.ResourceEntity;
+import org.apache.ambari.server.orm.entities.ResourceTypeEntity;
+import org.apache.ambari.server.security.authorization.AmbariGrantedAuthority;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.ambari.server.security.authorization.ResourceType;
+import org.apache.ambari.server.security.authorization.RoleAuthorization;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Measures {@link AuthorizationHelper#isAuthorized} as called once for each host
+ * resource of a request, by a cluster user who also uses a number of views. The
+ * cold variant drops the compiled authorizations first, as a privilege change does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AuthorizationHelperBenchmark {
+
+  private static final long CLUSTER_RESOURCE_ID = 4L;
+
+  /**
+   * The number of view instances the user has privileges on.
+   */
+  private static final int VIEW_INSTANCES = 50;
+
+  private static final Set<RoleAuthorization> REQUIRED_AUTHORIZATIONS =
+      EnumSet.of(RoleAuthorization.HOST_VIEW_METRICS, RoleAuthorization.CLUSTER_VIEW_STATUS_INFO);
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private Authentication authentication;
+
+  @Setup
+  public void setUp() {
+    PrincipalEntity principal = createPrincipal(1L);
+    List<GrantedAuthority> authorities = new ArrayList<>();
+
+    PermissionEntity clusterUser = createPermission(PermissionEntity.CLUSTER_USER_PERMISSION,
+        ResourceType.CLUSTER.name(), ResourceType.CLUSTER.getId(),
+        EnumSet.of(RoleAuthorization.CLUSTER_VIEW_STATUS_INFO, RoleAuthorization.CLUSTER_VIEW_METRICS,
+            RoleAuthorization.HOST_VIEW_CONFIGS, RoleAuthorization.HOST_VIEW_METRICS,
+            RoleAuthorization.SERVICE_VIEW_METRICS));
+    authorities.add(new AmbariGrantedAuthority(createPrivilege(
+        createResource(CLUSTER_RESOURCE_ID, clusterUser.getResourceType()), clusterUser, principal)));
+
+    for (int i = 0; i < VIEW_INSTANCES; i++) {
+      PermissionEntity viewUser = createPermission(PermissionEntity.VIEW_USER_PERMISSION,
+          "VIEW" + i + "{1.0.0}", 100 + i, EnumSet.of(RoleAuthorization.VIEW_USE));
+      authorities.add(new AmbariGrantedAuthority(createPrivilege(
+          createResource(100L + i, viewUser.getResourceType()), viewUser, principal)));
+    }
+
+    authentication = new UsernamePasswordAuthenticationToken("clusterUser", null, authorities);
+    AuthorizationHelper.invalidateAuthorizationCache();
+  }
+
+  @Benchmark
+  public int isAuthorized() {
+    return checkHosts();
+  }
+
+  @Benchmark
+  public int isAuthorizedCold() {
+    AuthorizationHelper.invalidateAuthorizationCache();
+    return checkHosts();
+  }
+
+  private int checkHosts() {
+    int authorized = 0;
+    for (int i = 0; i < hosts; i++) {
+      if (AuthorizationHelper.isAuthorized(authentication, ResourceType.CLUSTER, CLUSTER_RESOURCE_ID,
+          REQUIRED_AUTHORIZATIONS)) {
+        authorized++;
+      }
+    }
+    return authorized;
+  }
+
+  private static PermissionEntity createPermission(int id, String resourceTypeName, int resourceTypeId,
+                                                   EnumSet<RoleAuthorization> authorizations) {
+    ResourceTypeEntity resourceType = new ResourceTypeEntity();
+    resourceType.setId(resourceTypeId);
+    resourceType.setName(resourceTypeName);
+
+    PermissionEntity permission = new PermissionEntity();
+    permission.setId(id);
+    permission.setResourceType(resourceType);
+    permission.setPrincipal(createPrincipal((long) id + 1000));
+    permission.addAuthorizations(authorizations);
+    return permission;
+  }
+
+  private static ResourceEntity createResource(long id, ResourceTypeEntity resourceType) {
+    ResourceEntity resource = new ResourceEntity();
+    resource.setId(id);
+    resource.setResourceType(resourceType);
+    return resource;
+  }
+
+  private static PrivilegeEntity createPrivilege(ResourceEntity resource, PermissionEntity permission,
+                                                 PrincipalEntity principal) {
+    PrivilegeEntity privilege = new PrivilegeEntity();
+    privilege.setResource(resource);
+    privilege.setPermission(permission);
+    privilege.setPrincipal(principal);
+    return privilege;
+  }
+
+  private static PrincipalEntity createPrincipal(long id) {
+    PrincipalTypeEntity principalType = new PrincipalTypeEntity();
+    principalType.setId(1);
+    principalType.setName("ROLE");
+
+    PrincipalEntity principal = new PrincipalEntity();
+    principal.setId(id);
+    principal.setPrincipalType(principalType);
+    return principal;
+  }
+}
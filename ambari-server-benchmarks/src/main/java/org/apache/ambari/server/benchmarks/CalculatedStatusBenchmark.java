@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the calculation of the status of a request from the summaries of its
+ * stages, as done for every request returned by the REST API. The request starts
+ * every slave component of a cluster, one stage per component, half way through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CalculatedStatusBenchmark {
+
+  /**
+   * The number of stages of the request.
+   */
+  private static final int STAGES = 10;
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private Map<Long, HostRoleCommandStatusSummaryDTO> stageSummaries;
+  private Set<Long> stageIds;
+  private List<HostRoleStatus> taskStatuses;
+
+  @Setup
+  public void setUp() {
+    stageSummaries = new HashMap<>();
+    stageIds = new TreeSet<>();
+    for (long stageId = 0; stageId < STAGES; stageId++) {
+      HostRoleCommandStatusSummaryDTO summary;
+      if (stageId < STAGES / 2) {
+        int failed = hosts / 100;
+        summary = HostRoleCommandStatusSummaryDTO.create().completed(hosts - failed).failed(failed);
+      } else if (stageId == STAGES / 2) {
+        int completed = hosts / 2;
+        summary = HostRoleCommandStatusSummaryDTO.create().completed(completed)
+            .inProgress(hosts / 4).queued(hosts - completed - hosts / 4);
+      } else {
+        summary = HostRoleCommandStatusSummaryDTO.create().pending(hosts);
+      }
+      stageSummaries.put(stageId, summary);
+      stageIds.add(stageId);
+    }
+
+    taskStatuses = new ArrayList<>();
+    for (HostRoleCommandStatusSummaryDTO summary : stageSummaries.values()) {
+      taskStatuses.addAll(summary.getTaskStatuses());
+    }
+  }
+
+  @Benchmark
+  public CalculatedStatus statusFromStageSummary() {
+    return CalculatedStatus.statusFromStageSummary(stageSummaries, stageIds);
+  }
+
+  @Benchmark
+  public Map<HostRoleStatus, Integer> calculateTaskStatusCounts() {
+    return CalculatedStatus.calculateTaskStatusCounts(stageSummaries, stageIds);
+  }
+
+  @Benchmark
+  public Map<HostRoleStatus, Integer> calculateStatusCounts() {
+    return CalculatedStatus.calculateStatusCounts(taskStatuses);
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.dao.ClusterDAO;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Config;
+import org.apache.ambari.server.state.ConfigHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ConfigHelper#getEffectiveConfigProperties} for every host of a
+ * cluster, as done when building the commands of a request. Some of the hosts
+ * belong to config groups overriding the cluster configurations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConfigHelperBenchmark {
+
+  private static final String[] CONFIG_TYPES = {
+      "cluster-env", "core-site", "hdfs-site", "yarn-site", "mapred-site", "hbase-site", "zoo.cfg"};
+
+  private static final String CLUSTER_TAG = "version1";
+  private static final String OVERRIDE_TAG = "version2";
+
+  /**
+   * The number of properties of each configuration type.
+   */
+  private static final int PROPERTIES = 200;
+
+  /**
+   * One host in this number belongs to a config group.
+   */
+  private static final int CONFIG_GROUP_RATIO = 10;
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private ConfigHelper configHelper;
+  private Cluster cluster;
+  private List<Map<String, Map<String, String>>> hostDesiredTags;
+
+  @Setup
+  public void setUp() {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.isStaleConfigCacheEnabled()).andReturn(true).anyTimes();
+    expect(configuration.staleConfigCacheExpiration()).andReturn(300).anyTimes();
+    replay(configuration);
+
+    configHelper = new ConfigHelper(createNiceMock(Clusters.class), createNiceMock(AmbariMetaInfo.class),
+        configuration, createNiceMock(ClusterDAO.class));
+    cluster = createCluster();
+
+    hostDesiredTags = new ArrayList<>(hosts);
+    for (int i = 0; i < hosts; i++) {
+      Map<String, Map<String, String>> desiredTags = new HashMap<>();
+      for (String type : CONFIG_TYPES) {
+        Map<String, String> tags = new HashMap<>();
+        tags.put(ConfigHelper.CLUSTER_DEFAULT_TAG, CLUSTER_TAG);
+        if (i % CONFIG_GROUP_RATIO == 0) {
+          tags.put("1", OVERRIDE_TAG);
+        }
+        desiredTags.put(type, tags);
+      }
+      hostDesiredTags.add(desiredTags);
+    }
+  }
+
+  @Benchmark
+  public int getEffectiveConfigProperties() {
+    int properties = 0;
+    for (Map<String, Map<String, String>> desiredTags : hostDesiredTags) {
+      properties += configHelper.getEffectiveConfigProperties(cluster, desiredTags).size();
+    }
+    return properties;
+  }
+
+  /**
+   * Creates a cluster which only answers {@link Cluster#getConfig(String, String)}.
+   * Proxies are used rather than mocks, so that the benchmark does not measure the
+   * recording of the invocations.
+   */
+  private static Cluster createCluster() {
+    Map<String, Map<String, Config>> configs = new HashMap<>();
+    for (String type : CONFIG_TYPES) {
+      Map<String, String> clusterProperties = new HashMap<>();
+      Map<String, String> overrideProperties = new HashMap<>();
+      for (int i = 0; i < PROPERTIES; i++) {
+        String name = type.replace('-', '.') + ".property." + i;
+        clusterProperties.put(name, "/hadoop/" + type + "/value/" + i);
+        if (i % 20 == 0) {
+          overrideProperties.put(name, "/grid/" + type + "/override/" + i);
+        }
+      }
+
+      Map<String, Config> configsByTag = new HashMap<>();
+      configsByTag.put(CLUSTER_TAG, createConfig(type, CLUSTER_TAG, clusterProperties));
+      configsByTag.put(OVERRIDE_TAG, createConfig(type, OVERRIDE_TAG, overrideProperties));
+      configs.put(type, configsByTag);
+    }
+
+    InvocationHandler handler = (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getConfig":
+          Map<String, Config> configsByTag = configs.get(args[0]);
+          return (configsByTag == null) ? null : configsByTag.get(args[1]);
+        case "getClusterName":
+          return SyntheticCluster.CLUSTER_NAME;
+        case "getClusterId":
+          return SyntheticCluster.CLUSTER_ID;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    };
+    return (Cluster) Proxy.newProxyInstance(Cluster.class.getClassLoader(),
+        new Class<?>[] {Cluster.class}, handler);
+  }
+
+  private static Config createConfig(String type, String tag, Map<String, String> properties) {
+    Map<String, String> unmodifiableProperties = Collections.unmodifiableMap(properties);
+    InvocationHandler handler = (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getProperties":
+          return unmodifiableProperties;
+        case "getType":
+          return type;
+        case "getTag":
+          return tag;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    };
+    return (Config) Proxy.newProxyInstance(Config.class.getClassLoader(),
+        new Class<?>[] {Config.class}, handler);
+  }
+}
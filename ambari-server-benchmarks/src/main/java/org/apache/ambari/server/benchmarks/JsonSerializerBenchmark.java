@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.Result;
+import org.apache.ambari.server.api.services.ResultImpl;
+import org.apache.ambari.server.api.services.ResultStatus;
+import org.apache.ambari.server.api.services.serializers.JsonSerializer;
+import org.apache.ambari.server.api.util.TreeNode;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JsonSerializer#serialize} on the result of a
+ * {@code GET /clusters/c1/hosts?fields=Hosts/*,host_components/*} request, a tree of
+ * every host with its host components.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JsonSerializerBenchmark {
+
+  private static final String CLUSTER_HREF = "http://ambari.example.com:8080/api/v1/clusters/"
+      + SyntheticCluster.CLUSTER_NAME;
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  /**
+   * The serializer is not thread safe, each thread has its own as each service does.
+   */
+  private JsonSerializer serializer;
+  private Result result;
+
+  @Setup
+  public void setUp() {
+    serializer = new JsonSerializer();
+    result = createHostsResult(new SyntheticCluster(hosts));
+  }
+
+  @Benchmark
+  public Object serialize() {
+    return serializer.serialize(result);
+  }
+
+  private static Result createHostsResult(SyntheticCluster cluster) {
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+
+    TreeNode<Resource> tree = result.getResultTree();
+    tree.setProperty("href", CLUSTER_HREF + "/hosts?fields=Hosts/*,host_components/*");
+    TreeNode<Resource> items = tree.addChild(null, "items");
+
+    int index = 0;
+    for (Map.Entry<String, List<String>> entry : cluster.getHostComponents().entrySet()) {
+      String hostName = entry.getKey();
+      String hostHref = CLUSTER_HREF + "/hosts/" + hostName;
+
+      TreeNode<Resource> hostNode = items.addChild(createHost(hostName, index++), "Host:" + index);
+      hostNode.setProperty("href", hostHref);
+
+      TreeNode<Resource> componentsNode = hostNode.addChild(null, "host_components");
+      for (String component : entry.getValue()) {
+        TreeNode<Resource> componentNode = componentsNode.addChild(
+            createHostComponent(hostName, component, cluster.getServiceName(component)),
+            "HostComponent:" + component);
+        componentNode.setProperty("href", hostHref + "/host_components/" + component);
+      }
+    }
+    return result;
+  }
+
+  private static Resource createHost(String hostName, int index) {
+    Resource host = new ResourceImpl(Resource.Type.Host);
+    host.setProperty("Hosts/cluster_name", SyntheticCluster.CLUSTER_NAME);
+    host.setProperty("Hosts/host_name", hostName);
+    host.setProperty("Hosts/public_host_name", hostName);
+    host.setProperty("Hosts/ip", SyntheticCluster.getHostIp(index));
+    host.setProperty("Hosts/rack_info", "/default-rack");
+    host.setProperty("Hosts/os_type", "centos7");
+    host.setProperty("Hosts/os_arch", "x86_64");
+    host.setProperty("Hosts/cpu_count", 16);
+    host.setProperty("Hosts/ph_cpu_count", 8);
+    host.setProperty("Hosts/total_mem", 65806628L);
+    host.setProperty("Hosts/host_state", "HEALTHY");
+    host.setProperty("Hosts/host_status", "HEALTHY");
+    host.setProperty("Hosts/maintenance_state", "OFF");
+    host.setProperty("Hosts/last_heartbeat_time", 1546300800000L + index);
+    host.setProperty("Hosts/last_registration_time", 1546300000000L + index);
+
+    List<Map<String, String>> disks = new ArrayList<>();
+    for (String mountPoint : new String[] {"/", "/grid/0", "/grid/1", "/grid/2"}) {
+      Map<String, String> disk = new LinkedHashMap<>();
+      disk.put("available", "1783211212");
+      disk.put("device", "/dev/sd" + mountPoint.length());
+      disk.put("mountpoint", mountPoint);
+      disk.put("percent", "37%");
+      disk.put("size", "2884152036");
+      disk.put("type", "xfs");
+      disk.put("used", "1100940824");
+      disks.add(disk);
+    }
+    host.setProperty("Hosts/disk_info", disks);
+    return host;
+  }
+
+  private static Resource createHostComponent(String hostName, String component, String service) {
+    Resource hostComponent = new ResourceImpl(Resource.Type.HostComponent);
+    hostComponent.setProperty("HostRoles/cluster_name", SyntheticCluster.CLUSTER_NAME);
+    hostComponent.setProperty("HostRoles/component_name", component);
+    hostComponent.setProperty("HostRoles/host_name", hostName);
+    hostComponent.setProperty("HostRoles/service_name", service);
+    hostComponent.setProperty("HostRoles/state", "STARTED");
+    hostComponent.setProperty("HostRoles/desired_state", "STARTED");
+    hostComponent.setProperty("HostRoles/maintenance_state", "OFF");
+    hostComponent.setProperty("HostRoles/stale_configs", false);
+    hostComponent.setProperty("HostRoles/version", "3.1.0.0-78");
+    return hostComponent;
+  }
+}
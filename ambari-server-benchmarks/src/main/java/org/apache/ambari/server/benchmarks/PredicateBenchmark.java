@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.InvalidQueryException;
+import org.apache.ambari.server.api.predicate.PredicateCompiler;
+import org.apache.ambari.server.collections.Predicate;
+import org.apache.ambari.server.collections.PredicateUtils;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of predicates over every host of a cluster, both the
+ * {@link Predicate}s of the Kerberos descriptors, evaluated against a context of
+ * services and configurations, and the compiled query predicates of the REST API,
+ * evaluated against resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PredicateBenchmark {
+
+  private static final String CONTEXT_PREDICATE = "{\"and\":["
+      + "{\"contains\":[\"services\",\"HBASE\"]},"
+      + "{\"or\":["
+      + "{\"equals\":[\"configurations/hbase-site/hbase.security.authentication\",\"kerberos\"]},"
+      + "{\"not\":{\"equals\":[\"configurations/cluster-env/security_enabled\",\"false\"]}}"
+      + "]}"
+      + "]}";
+
+  private static final String QUERY_PREDICATE = "Hosts/host_state=HEALTHY"
+      + "&Hosts/maintenance_state=OFF"
+      + "&(Hosts/rack_info=/default-rack|Hosts/rack_info=/rack-1)"
+      + "&Hosts/cpu_count>=8"
+      + "&Hosts/host_name.matches(host0.*)";
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private Predicate contextPredicate;
+  private org.apache.ambari.server.controller.spi.Predicate queryPredicate;
+
+  private List<Map<String, Object>> contexts;
+  private List<Resource> resources;
+
+  @Setup
+  public void setUp() throws InvalidQueryException {
+    SyntheticCluster cluster = new SyntheticCluster(hosts);
+
+    contextPredicate = PredicateUtils.fromJSON(CONTEXT_PREDICATE);
+    queryPredicate = new PredicateCompiler().compile(QUERY_PREDICATE);
+
+    contexts = new ArrayList<>(hosts);
+    resources = new ArrayList<>(hosts);
+    int index = 0;
+    for (Map.Entry<String, List<String>> entry : cluster.getHostComponents().entrySet()) {
+      contexts.add(createContext(cluster, entry.getValue(), index));
+      resources.add(createHost(entry.getKey(), index));
+      index++;
+    }
+  }
+
+  @Benchmark
+  public int evaluateContextPredicate() {
+    int matches = 0;
+    for (Map<String, Object> context : contexts) {
+      if (contextPredicate.evaluate(context)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  public int evaluateQueryPredicate() {
+    int matches = 0;
+    for (Resource resource : resources) {
+      if (queryPredicate.evaluate(resource)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  public Object compileQueryPredicate() throws InvalidQueryException {
+    return new PredicateCompiler().compile(QUERY_PREDICATE);
+  }
+
+  private static Map<String, Object> createContext(SyntheticCluster cluster, List<String> components,
+                                                   int index) {
+    HashSet<String> services = new HashSet<>();
+    for (String component : components) {
+      services.add(cluster.getServiceName(component));
+    }
+
+    Map<String, String> hbaseSite = new HashMap<>();
+    hbaseSite.put("hbase.security.authentication", (index % 2 == 0) ? "kerberos" : "simple");
+    hbaseSite.put("hbase.security.authorization", "true");
+
+    Map<String, String> clusterEnv = new HashMap<>();
+    clusterEnv.put("security_enabled", (index % 4 == 1) ? "true" : "false");
+
+    Map<String, Object> configurations = new HashMap<>();
+    configurations.put("hbase-site", hbaseSite);
+    configurations.put("cluster-env", clusterEnv);
+
+    Map<String, Object> context = new HashMap<>();
+    context.put("services", services);
+    context.put("configurations", configurations);
+    return context;
+  }
+
+  private static Resource createHost(String hostName, int index) {
+    Resource host = new ResourceImpl(Resource.Type.Host);
+    host.setProperty("Hosts/host_name", hostName);
+    host.setProperty("Hosts/host_state", (index % 10 == 0) ? "UNHEALTHY" : "HEALTHY");
+    host.setProperty("Hosts/maintenance_state", (index % 20 == 0) ? "ON" : "OFF");
+    host.setProperty("Hosts/rack_info", (index % 2 == 0) ? "/default-rack" : "/rack-1");
+    host.setProperty("Hosts/cpu_count", 4 << (index % 3));
+    return host;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.HostRoleCommand;
+import org.apache.ambari.server.actionmanager.HostRoleCommandFactory;
+import org.apache.ambari.server.actionmanager.StageFactory;
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.metadata.RoleCommandOrder;
+import org.apache.ambari.server.orm.dao.HostDAO;
+import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
+import org.apache.ambari.server.stageplanner.RoleGraph;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponentHostEvent;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.state.StackInfo;
+import org.apache.ambari.server.state.stack.StackRoleCommandOrder;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Measures the ordering of the commands of a request into stages by
+ * {@link RoleGraph#getOrderedHostRoleCommands}, for starting and stopping every
+ * component of a cluster, using the role command order of the HDP 2.0.6 test stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RoleGraphBenchmark {
+
+  private static final StackId STACK_ID = new StackId("HDP", "2.0.6");
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private RoleGraph roleGraph;
+  private Map<String, Map<String, HostRoleCommand>> startCommands;
+  private Map<String, Map<String, HostRoleCommand>> stopCommands;
+
+  @Setup
+  public void setUp() throws Exception {
+    SyntheticCluster cluster = new SyntheticCluster(hosts);
+    HostDAO hostDAO = createNiceMock(HostDAO.class);
+    replay(hostDAO);
+
+    HostRoleCommandFactory hostRoleCommandFactory = new BenchmarkHostRoleCommandFactory(hostDAO);
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(AmbariMetaInfo.class).toInstance(createMetaInfo());
+        bind(HostRoleCommandFactory.class).toInstance(hostRoleCommandFactory);
+        bind(StageFactory.class).toInstance(createUnsupported(StageFactory.class));
+      }
+    });
+
+    LinkedHashSet<String> sectionKeys = new LinkedHashSet<>();
+    sectionKeys.add(RoleCommandOrder.NO_GLUSTERFS_DEPS_KEY);
+
+    RoleCommandOrder roleCommandOrder = injector.getInstance(RoleCommandOrder.class);
+    roleCommandOrder.initialize(createCluster(cluster), sectionKeys);
+
+    roleGraph = new RoleGraph(roleCommandOrder);
+    injector.injectMembers(roleGraph);
+
+    startCommands = createCommands(cluster, hostRoleCommandFactory, RoleCommand.START);
+    stopCommands = createCommands(cluster, hostRoleCommandFactory, RoleCommand.STOP);
+  }
+
+  @Benchmark
+  public List<Map<String, List<HostRoleCommand>>> orderStart() {
+    return roleGraph.getOrderedHostRoleCommands(startCommands);
+  }
+
+  @Benchmark
+  public List<Map<String, List<HostRoleCommand>>> orderStop() {
+    return roleGraph.getOrderedHostRoleCommands(stopCommands);
+  }
+
+  private static Map<String, Map<String, HostRoleCommand>> createCommands(SyntheticCluster cluster,
+      HostRoleCommandFactory hostRoleCommandFactory, RoleCommand roleCommand) {
+    Map<String, Map<String, HostRoleCommand>> commands = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : cluster.getHostComponents().entrySet()) {
+      Map<String, HostRoleCommand> hostCommands = new HashMap<>();
+      for (String component : entry.getValue()) {
+        if (!component.endsWith("_CLIENT")) {
+          hostCommands.put(component, hostRoleCommandFactory.create(entry.getKey(),
+              Role.valueOf(component), null, roleCommand));
+        }
+      }
+      commands.put(entry.getKey(), hostCommands);
+    }
+    return commands;
+  }
+
+  private static AmbariMetaInfo createMetaInfo() {
+    StackInfo stackInfo = new StackInfo();
+    stackInfo.setRoleCommandOrder(new StackRoleCommandOrder(readRoleCommandOrder()));
+
+    AmbariMetaInfo metaInfo = createNiceMock(AmbariMetaInfo.class);
+    try {
+      expect(metaInfo.getStack(STACK_ID.getStackName(), STACK_ID.getStackVersion()))
+          .andReturn(stackInfo).anyTimes();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    replay(metaInfo);
+    return metaInfo;
+  }
+
+  private static HashMap<String, Object> readRoleCommandOrder() {
+    try (InputStream in = RoleGraphBenchmark.class.getResourceAsStream("/role_command_order.json")) {
+      return new ObjectMapper().readValue(in, new TypeReference<HashMap<String, Object>>() {
+      });
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to read the role command order", e);
+    }
+  }
+
+  /**
+   * Creates a cluster whose services all belong to the benchmark stack.
+   */
+  private static Cluster createCluster(SyntheticCluster cluster) {
+    Service service = (Service) Proxy.newProxyInstance(Service.class.getClassLoader(),
+        new Class<?>[] {Service.class}, (proxy, method, args) -> {
+          if ("getDesiredStackId".equals(method.getName())) {
+            return STACK_ID;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+
+    Map<String, Service> services = new HashMap<>();
+    for (String component : cluster.getComponentHosts().keySet()) {
+      services.put(cluster.getServiceName(component), service);
+    }
+
+    return (Cluster) Proxy.newProxyInstance(Cluster.class.getClassLoader(),
+        new Class<?>[] {Cluster.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getServices":
+              return services;
+            case "getClusterName":
+              return SyntheticCluster.CLUSTER_NAME;
+            case "getClusterId":
+              return SyntheticCluster.CLUSTER_ID;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private static <T> T createUnsupported(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (proxy, method, args) -> {
+          throw new UnsupportedOperationException(method.getName());
+        }));
+  }
+
+  /**
+   * Creates the commands without execution commands, as the ordering only needs
+   * their hosts, roles and commands.
+   */
+  private static final class BenchmarkHostRoleCommandFactory implements HostRoleCommandFactory {
+
+    private final HostDAO hostDAO;
+
+    private BenchmarkHostRoleCommandFactory(HostDAO hostDAO) {
+      this.hostDAO = hostDAO;
+    }
+
+    @Override
+    public HostRoleCommand create(String hostName, Role role, ServiceComponentHostEvent event,
+        RoleCommand command) {
+      return create(hostName, role, event, command, false, false);
+    }
+
+    @Override
+    public HostRoleCommand create(String hostName, Role role, ServiceComponentHostEvent event,
+        RoleCommand command, boolean retryAllowed, boolean autoSkipFailure) {
+      return new HostRoleCommand(hostName, role, event, command, retryAllowed, autoSkipFailure,
+          hostDAO, null, null);
+    }
+
+    @Override
+    public HostRoleCommand create(Host host, Role role, ServiceComponentHostEvent event,
+        RoleCommand command, boolean retryAllowed, boolean autoSkipFailure) {
+      return new HostRoleCommand(host, role, event, command, retryAllowed, autoSkipFailure,
+          hostDAO, null, null);
+    }
+
+    @Override
+    public HostRoleCommand createExisting(HostRoleCommandEntity hostRoleCommandEntity) {
+      throw new UnsupportedOperationException("createExisting");
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The layout of a synthetic cluster of any number of hosts, shared by the benchmarks.
+ * <p/>
+ * The master components are spread over the first hosts, while the slave and client
+ * components are installed on every host, as in a typical large cluster. The layout
+ * is deterministic, so the benchmarks of a given size always see the same cluster.
+ */
+public class SyntheticCluster {
+
+  public static final String CLUSTER_NAME = "c1";
+  public static final long CLUSTER_ID = 2L;
+
+  /**
+   * The master components and their services.
+   */
+  private static final String[][] MASTERS = {
+      {"HDFS", "NAMENODE"},
+      {"HDFS", "SECONDARY_NAMENODE"},
+      {"YARN", "RESOURCEMANAGER"},
+      {"MAPREDUCE2", "HISTORYSERVER"},
+      {"HBASE", "HBASE_MASTER"},
+      {"ZOOKEEPER", "ZOOKEEPER_SERVER"}
+  };
+
+  /**
+   * The slave and client components and their services, installed on every host.
+   */
+  private static final String[][] SLAVES_AND_CLIENTS = {
+      {"HDFS", "DATANODE"},
+      {"YARN", "NODEMANAGER"},
+      {"HBASE", "HBASE_REGIONSERVER"},
+      {"HDFS", "HDFS_CLIENT"},
+      {"YARN", "YARN_CLIENT"},
+      {"HBASE", "HBASE_CLIENT"},
+      {"ZOOKEEPER", "ZOOKEEPER_CLIENT"}
+  };
+
+  /**
+   * The number of hosts ZooKeeper servers run on.
+   */
+  private static final int ZOOKEEPER_QUORUM = 3;
+
+  private final List<String> hostNames;
+  private final Map<String, String> componentServices = new LinkedHashMap<>();
+  private final Map<String, List<String>> componentHosts = new LinkedHashMap<>();
+  private final Map<String, List<String>> hostComponents = new LinkedHashMap<>();
+
+  /**
+   * @param hostCount the number of hosts of the cluster
+   */
+  public SyntheticCluster(int hostCount) {
+    if (hostCount < 1) {
+      throw new IllegalArgumentException("A cluster needs at least one host");
+    }
+
+    hostNames = new ArrayList<>(hostCount);
+    for (int i = 0; i < hostCount; i++) {
+      String hostName = getHostName(i);
+      hostNames.add(hostName);
+      hostComponents.put(hostName, new ArrayList<>());
+    }
+
+    for (int i = 0; i < MASTERS.length; i++) {
+      String component = MASTERS[i][1];
+      if ("ZOOKEEPER_SERVER".equals(component)) {
+        for (int j = 0; j < Math.min(ZOOKEEPER_QUORUM, hostCount); j++) {
+          addComponent(MASTERS[i][0], component, hostNames.get(j));
+        }
+      } else {
+        addComponent(MASTERS[i][0], component, hostNames.get(i % hostCount));
+      }
+    }
+
+    for (String[] slave : SLAVES_AND_CLIENTS) {
+      for (String hostName : hostNames) {
+        addComponent(slave[0], slave[1], hostName);
+      }
+    }
+  }
+
+  /**
+   * @param index the index of a host, from 0
+   * @return the name of the host
+   */
+  public static String getHostName(int index) {
+    return String.format("host%05d.example.com", index);
+  }
+
+  /**
+   * @param index the index of a host, from 0
+   * @return the IP address of the host
+   */
+  public static String getHostIp(int index) {
+    return String.format("10.%d.%d.%d", (index >> 16) & 0xff, (index >> 8) & 0xff, index & 0xff);
+  }
+
+  public int getHostCount() {
+    return hostNames.size();
+  }
+
+  public List<String> getHostNames() {
+    return Collections.unmodifiableList(hostNames);
+  }
+
+  /**
+   * @return the hosts of each component, by component name
+   */
+  public Map<String, List<String>> getComponentHosts() {
+    return Collections.unmodifiableMap(componentHosts);
+  }
+
+  /**
+   * @return the components of each host, by host name
+   */
+  public Map<String, List<String>> getHostComponents() {
+    return Collections.unmodifiableMap(hostComponents);
+  }
+
+  /**
+   * @param component a component name
+   * @return the name of the service of the component
+   */
+  public String getServiceName(String component) {
+    return componentServices.get(component);
+  }
+
+  private void addComponent(String service, String component, String hostName) {
+    componentServices.put(component, service);
+    componentHosts.computeIfAbsent(component, c -> new ArrayList<>()).add(hostName);
+    hostComponents.get(hostName).add(component);
+  }
+}
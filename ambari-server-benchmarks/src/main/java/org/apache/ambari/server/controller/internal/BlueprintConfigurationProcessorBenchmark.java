@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.internal;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.benchmarks.SyntheticCluster;
+import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.Cardinality;
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.ClusterTopologyImpl;
+import org.apache.ambari.server.topology.Component;
+import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
+import org.apache.ambari.server.topology.Configuration;
+import org.apache.ambari.server.topology.HostGroup;
+import org.apache.ambari.server.topology.HostGroupImpl;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.apache.ambari.server.topology.TopologyRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the topology updates of the {@link BlueprintConfigurationProcessor} on a large
+ * synthetic blueprint: the host groups required by the configuration, and the updaters
+ * applied to the cluster and host group configurations on cluster creation.
+ * <p/>
+ * The blueprint has three master host groups and one worker host group per
+ * {@value #HOSTS_PER_WORKER_GROUP} hosts, each with a configuration of its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlueprintConfigurationProcessorBenchmark {
+
+  private static final String BLUEPRINT_NAME = "benchmark";
+
+  private static final String[][] MASTER_GROUPS = {
+      {"NAMENODE", "RESOURCEMANAGER", "HISTORYSERVER", "ZOOKEEPER_SERVER"},
+      {"SECONDARY_NAMENODE", "HBASE_MASTER", "ZOOKEEPER_SERVER"},
+      {"APP_TIMELINE_SERVER", "ZOOKEEPER_SERVER"}
+  };
+
+  private static final String[] WORKER_COMPONENTS = {
+      "DATANODE", "NODEMANAGER", "HBASE_REGIONSERVER", "HDFS_CLIENT", "YARN_CLIENT", "HBASE_CLIENT",
+      "ZOOKEEPER_CLIENT"};
+
+  private static final Map<String, String> COMPONENT_SERVICES = new HashMap<>();
+  static {
+    for (String component : new String[] {"NAMENODE", "SECONDARY_NAMENODE", "DATANODE", "HDFS_CLIENT"}) {
+      COMPONENT_SERVICES.put(component, "HDFS");
+    }
+    for (String component : new String[] {"RESOURCEMANAGER", "APP_TIMELINE_SERVER", "NODEMANAGER", "YARN_CLIENT"}) {
+      COMPONENT_SERVICES.put(component, "YARN");
+    }
+    for (String component : new String[] {"HBASE_MASTER", "HBASE_REGIONSERVER", "HBASE_CLIENT"}) {
+      COMPONENT_SERVICES.put(component, "HBASE");
+    }
+    COMPONENT_SERVICES.put("HISTORYSERVER", "MAPREDUCE2");
+    COMPONENT_SERVICES.put("ZOOKEEPER_SERVER", "ZOOKEEPER");
+    COMPONENT_SERVICES.put("ZOOKEEPER_CLIENT", "ZOOKEEPER");
+  }
+
+  /**
+   * The properties handled by registered updaters, with the values of a blueprint.
+   */
+  private static final String[][] TOPOLOGY_PROPERTIES = {
+      {"core-site", "fs.defaultFS", "hdfs://localhost:8020"},
+      {"core-site", "ha.zookeeper.quorum", "localhost:2181"},
+      {"hdfs-site", "dfs.namenode.http-address", "localhost:50070"},
+      {"hdfs-site", "dfs.namenode.https-address", "localhost:50470"},
+      {"hdfs-site", "dfs.namenode.rpc-address", "localhost:8020"},
+      {"hdfs-site", "dfs.namenode.secondary.http-address", "localhost:50090"},
+      {"yarn-site", "yarn.resourcemanager.hostname", "localhost"},
+      {"yarn-site", "yarn.resourcemanager.address", "localhost:8050"},
+      {"yarn-site", "yarn.resourcemanager.scheduler.address", "localhost:8030"},
+      {"yarn-site", "yarn.resourcemanager.resource-tracker.address", "localhost:8025"},
+      {"yarn-site", "yarn.resourcemanager.zk-address", "localhost:2181"},
+      {"yarn-site", "yarn.timeline-service.address", "localhost:10200"},
+      {"yarn-site", "yarn.log.server.url", "http://localhost:19888/jobhistory/logs"},
+      {"mapred-site", "mapreduce.jobhistory.address", "localhost:10020"},
+      {"mapred-site", "mapreduce.jobhistory.webapp.address", "localhost:19888"},
+      {"hbase-site", "hbase.zookeeper.quorum", "localhost"}
+  };
+
+  private static final String[] CONFIG_TYPES = {"core-site", "hdfs-site", "yarn-site", "mapred-site", "hbase-site"};
+
+  /**
+   * The number of properties of each configuration type without a registered updater.
+   */
+  private static final int PROPERTIES = 200;
+
+  private static final int HOSTS_PER_WORKER_GROUP = 100;
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  private ClusterTopology topology;
+  private List<Configuration> configurations;
+  private List<Map<String, Map<String, String>>> initialProperties;
+
+  @Setup
+  public void setUp() throws Exception {
+    Stack stack = createNiceMock(Stack.class);
+    expect(stack.getCardinality(anyString())).andReturn(new Cardinality("0+")).anyTimes();
+    for (Map.Entry<String, String> entry : COMPONENT_SERVICES.entrySet()) {
+      expect(stack.getServiceForComponent(entry.getKey())).andReturn(entry.getValue()).anyTimes();
+    }
+    replay(stack);
+
+    Map<String, HostGroup> hostGroups = new LinkedHashMap<>();
+    Map<String, HostGroupInfo> hostGroupInfos = new LinkedHashMap<>();
+    int host = 0;
+    for (int i = 0; i < MASTER_GROUPS.length; i++) {
+      String name = "master_" + (i + 1);
+      addHostGroup(stack, name, MASTER_GROUPS[i], Collections.singletonList(SyntheticCluster.getHostName(host++)),
+          new Configuration(new HashMap<>(), new HashMap<>()), hostGroups, hostGroupInfos);
+    }
+    for (int group = 1; host < hosts; group++) {
+      List<String> hostNames = new ArrayList<>();
+      for (int i = 0; i < HOSTS_PER_WORKER_GROUP && host < hosts; i++) {
+        hostNames.add(SyntheticCluster.getHostName(host++));
+      }
+      addHostGroup(stack, "worker_" + group, WORKER_COMPONENTS, hostNames, createWorkerConfiguration(group),
+          hostGroups, hostGroupInfos);
+    }
+
+    Blueprint blueprint = createBlueprint(stack, hostGroups);
+    Configuration clusterConfig = createClusterConfiguration();
+
+    TopologyRequest request = createNiceMock(TopologyRequest.class);
+    expect(request.getClusterId()).andReturn(SyntheticCluster.CLUSTER_ID).anyTimes();
+    expect(request.getBlueprint()).andReturn(blueprint).anyTimes();
+    expect(request.getConfiguration()).andReturn(clusterConfig).anyTimes();
+    expect(request.getHostGroupInfo()).andReturn(hostGroupInfos).anyTimes();
+    replay(request);
+
+    topology = new ClusterTopologyImpl(null, request);
+    topology.setConfigRecommendationStrategy(ConfigRecommendationStrategy.NEVER_APPLY);
+
+    configurations = new ArrayList<>();
+    configurations.add(clusterConfig);
+    for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+      configurations.add(groupInfo.getConfiguration());
+    }
+    initialProperties = copyProperties(configurations);
+  }
+
+  /**
+   * Restores the configurations changed by the previous cluster creation update.
+   */
+  @Setup(Level.Invocation)
+  public void resetConfigurations() {
+    for (int i = 0; i < configurations.size(); i++) {
+      Map<String, Map<String, String>> properties = configurations.get(i).getProperties();
+      properties.clear();
+      properties.putAll(copyProperties(initialProperties.get(i)));
+    }
+  }
+
+  @Benchmark
+  public Set<String> getRequiredHostGroups() {
+    return new BlueprintConfigurationProcessor(topology).getRequiredHostGroups();
+  }
+
+  @Benchmark
+  public Set<String> doGeneralPropertyUpdatesForClusterCreate() {
+    BlueprintConfigurationProcessor processor =
+        new BlueprintConfigurationProcessor(IndexedClusterTopology.of(topology));
+    Configuration clusterConfig = topology.getConfiguration();
+    Set<String> configTypesUpdated = new HashSet<>();
+    processor.doGeneralPropertyUpdatesForClusterCreate(clusterConfig, clusterConfig.getFullProperties(),
+        configTypesUpdated);
+    return configTypesUpdated;
+  }
+
+  private static void addHostGroup(Stack stack, String name, String[] components, List<String> hostNames,
+                                   Configuration configuration, Map<String, HostGroup> hostGroups,
+                                   Map<String, HostGroupInfo> hostGroupInfos) {
+    List<Component> componentList = new ArrayList<>();
+    for (String component : components) {
+      componentList.add(new Component(component));
+    }
+    hostGroups.put(name, new HostGroupImpl(name, BLUEPRINT_NAME, stack, componentList,
+        new Configuration(new HashMap<>(), new HashMap<>()), "1"));
+
+    HostGroupInfo groupInfo = new HostGroupInfo(name);
+    groupInfo.addHosts(hostNames);
+    groupInfo.setConfiguration(configuration);
+    hostGroupInfos.put(name, groupInfo);
+  }
+
+  /**
+   * Creates the cluster configuration of the blueprint, whose parent holds the stack defaults.
+   * Some of the properties without an updater refer to a host group.
+   */
+  private static Configuration createClusterConfiguration() {
+    Map<String, Map<String, String>> stackDefaults = new HashMap<>();
+    for (String type : CONFIG_TYPES) {
+      Map<String, String> properties = new HashMap<>();
+      for (int i = 0; i < PROPERTIES; i++) {
+        String name = type.replace('-', '.') + ".property." + i;
+        properties.put(name, (i % 20 == 0) ? "%HOSTGROUP::master_1%:" + (10000 + i) : "/hadoop/" + type + "/" + i);
+      }
+      stackDefaults.put(type, properties);
+    }
+
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    for (String[] property : TOPOLOGY_PROPERTIES) {
+      properties.computeIfAbsent(property[0], type -> new HashMap<>()).put(property[1], property[2]);
+    }
+    Configuration clusterConfig = new Configuration(properties, new HashMap<>());
+    clusterConfig.setParentConfiguration(new Configuration(stackDefaults, new HashMap<>()));
+    return clusterConfig;
+  }
+
+  private static Configuration createWorkerConfiguration(int group) {
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    Map<String, String> hdfsSite = new HashMap<>();
+    hdfsSite.put("dfs.datanode.data.dir", "/grid/" + group + "/hdfs/data");
+    hdfsSite.put("dfs.namenode.http-address", "%HOSTGROUP::master_1%:50070");
+    properties.put("hdfs-site", hdfsSite);
+    Map<String, String> yarnSite = new HashMap<>();
+    yarnSite.put("yarn.nodemanager.local-dirs", "/grid/" + group + "/yarn/local");
+    yarnSite.put("yarn.resourcemanager.address", "localhost:8050");
+    properties.put("yarn-site", yarnSite);
+    return new Configuration(properties, new HashMap<>());
+  }
+
+  /**
+   * Creates a blueprint which only answers what the topology and the processor ask.
+   * A proxy is used rather than a mock, so that the benchmark does not measure the
+   * recording of the invocations.
+   */
+  private static Blueprint createBlueprint(Stack stack, Map<String, HostGroup> hostGroups) {
+    Set<String> services = new HashSet<>(COMPONENT_SERVICES.values());
+    InvocationHandler handler = (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+          return BLUEPRINT_NAME;
+        case "getStack":
+          return stack;
+        case "getHostGroups":
+          return hostGroups;
+        case "getHostGroup":
+          return hostGroups.get(args[0]);
+        case "getServices":
+          return services;
+        case "getServiceInfos":
+          return Collections.emptyList();
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    };
+    return (Blueprint) Proxy.newProxyInstance(Blueprint.class.getClassLoader(),
+        new Class<?>[] {Blueprint.class}, handler);
+  }
+
+  private static List<Map<String, Map<String, String>>> copyProperties(List<Configuration> configurations) {
+    List<Map<String, Map<String, String>>> copies = new ArrayList<>();
+    for (Configuration configuration : configurations) {
+      copies.add(copyProperties(configuration.getProperties()));
+    }
+    return copies;
+  }
+
+  private static Map<String, Map<String, String>> copyProperties(Map<String, Map<String, String>> properties) {
+    Map<String, Map<String, String>> copy = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> entry : properties.entrySet()) {
+      copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+    }
+    return copy;
+  }
+}
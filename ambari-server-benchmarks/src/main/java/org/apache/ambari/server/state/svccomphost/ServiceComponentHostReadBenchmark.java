@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.svccomphost;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.benchmarks.SyntheticCluster;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.orm.dao.HostComponentDesiredStateDAO;
+import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
+import org.apache.ambari.server.orm.entities.HostComponentDesiredStateEntity;
+import org.apache.ambari.server.orm.entities.HostComponentStateEntity;
+import org.apache.ambari.server.orm.entities.HostEntity;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostComponentAdminState;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.State;
+import org.apache.ambari.server.state.UpgradeState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the state of every host component of a cluster, as done for
+ * the status responses and the heartbeats: the desired state, version, upgrade
+ * state, admin state and restart flag of each {@link ServiceComponentHostImpl}.
+ * <p/>
+ * With {@code checked} set, every read also looks the entities up, as all the
+ * reads did before the state was kept in memory. The DAOs answer from a map,
+ * so this is a lower bound of the cost of a lookup in the persistence context.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ServiceComponentHostReadBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  @Param({"false", "true"})
+  public boolean checked;
+
+  private List<ServiceComponentHost> hostComponents;
+
+  @Setup
+  public void setUp() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.isHostComponentStateCheckEnabled()).andReturn(checked).anyTimes();
+    replay(configuration);
+    LockFactory lockFactory = new LockFactory(configuration);
+
+    Map<Long, HostComponentStateEntity> stateEntities = new HashMap<>();
+    Map<Long, HostComponentDesiredStateEntity> desiredStateEntities = new HashMap<>();
+    HostComponentStateDAO hostComponentStateDAO = new HostComponentStateDAO() {
+      @Override
+      public HostComponentStateEntity findById(long id) {
+        return stateEntities.get(id);
+      }
+    };
+    HostComponentDesiredStateDAO hostComponentDesiredStateDAO = new HostComponentDesiredStateDAO() {
+      @Override
+      public HostComponentDesiredStateEntity findById(long id) {
+        return desiredStateEntities.get(id);
+      }
+    };
+
+    Clusters clusters = proxy(Clusters.class, (proxy, method, args) -> {
+      if ("getHost".equals(method.getName())) {
+        return proxy(Host.class, (hostProxy, hostMethod, hostArgs) -> {
+          throw new UnsupportedOperationException(hostMethod.getName());
+        });
+      }
+      throw new UnsupportedOperationException(method.getName());
+    });
+
+    SyntheticCluster cluster = new SyntheticCluster(hosts);
+    hostComponents = new ArrayList<>();
+    long id = 0;
+    for (Map.Entry<String, List<String>> entry : cluster.getHostComponents().entrySet()) {
+      HostEntity hostEntity = new HostEntity();
+      hostEntity.setHostName(entry.getKey());
+      for (String component : entry.getValue()) {
+        String service = cluster.getServiceName(component);
+        id++;
+
+        HostComponentStateEntity stateEntity = new HostComponentStateEntity();
+        setId(stateEntity, id);
+        stateEntity.setHostEntity(hostEntity);
+        stateEntity.setServiceName(service);
+        stateEntity.setComponentName(component);
+        stateEntity.setCurrentState(State.STARTED);
+        stateEntity.setUpgradeState(UpgradeState.NONE);
+        stateEntity.setVersion("2.6.0.0-1234");
+        stateEntities.put(id, stateEntity);
+
+        HostComponentDesiredStateEntity desiredStateEntity = new HostComponentDesiredStateEntity();
+        setId(desiredStateEntity, id);
+        desiredStateEntity.setServiceName(service);
+        desiredStateEntity.setComponentName(component);
+        desiredStateEntity.setDesiredState(State.STARTED);
+        desiredStateEntity.setAdminState(HostComponentAdminState.INSERVICE);
+        desiredStateEntities.put(id, desiredStateEntity);
+
+        ServiceComponentHostImpl hostComponent = new ServiceComponentHostImpl(
+            createServiceComponent(service, component), stateEntity, desiredStateEntity, clusters,
+            null, null, null, hostComponentStateDAO, hostComponentDesiredStateDAO, null, lockFactory);
+        hostComponent.setConfiguration(configuration);
+        hostComponents.add(hostComponent);
+      }
+    }
+  }
+
+  @Benchmark
+  public int readState() {
+    int started = 0;
+    for (ServiceComponentHost hostComponent : hostComponents) {
+      if (hostComponent.getDesiredState() == State.STARTED
+          && hostComponent.getVersion() != null
+          && hostComponent.getUpgradeState() == UpgradeState.NONE
+          && hostComponent.getComponentAdminState() == HostComponentAdminState.INSERVICE
+          && !hostComponent.isRestartRequired()) {
+        started++;
+      }
+    }
+    return started;
+  }
+
+  private static ServiceComponent createServiceComponent(String service, String component) {
+    boolean client = component.endsWith("_CLIENT");
+    return proxy(ServiceComponent.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+          return component;
+        case "getServiceName":
+          return service;
+        case "getClusterName":
+          return SyntheticCluster.CLUSTER_NAME;
+        case "isClientComponent":
+          return client;
+        case "isMasterComponent":
+          return false;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  /**
+   * Sets the generated ID of an entity, which is otherwise only set when it is
+   * persisted.
+   */
+  private static void setId(Object entity, long id) throws ReflectiveOperationException {
+    Field field = entity.getClass().getDeclaredField("id");
+    field.setAccessible(true);
+    field.set(entity, id);
+  }
+
+  /**
+   * Proxies are used rather than mocks, so that the benchmark does not measure the
+   * recording of the invocations.
+   */
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+  }
+}
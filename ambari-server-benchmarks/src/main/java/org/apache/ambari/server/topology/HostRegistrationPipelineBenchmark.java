@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.topology;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to register a wave of hosts through the {@link HostRegistrationPipeline},
+ * persisting them in batches against one transaction per host. The persister simulates the
+ * cost of a transaction and of each row written, so the result shows what batching saves
+ * rather than the speed of a particular database. It lives in the topology package as the
+ * pipeline is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HostRegistrationPipelineBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int hosts;
+
+  @Param({"1", "100"})
+  public int batchSize;
+
+  /**
+   * The simulated cost of committing a transaction.
+   */
+  @Param({"500"})
+  public long transactionMicros;
+
+  /**
+   * The simulated cost of writing the association of one host.
+   */
+  @Param({"10"})
+  public long rowMicros;
+
+  private HostRegistrationPipeline pipeline;
+
+  @Setup
+  public void setUp() {
+    pipeline = new HostRegistrationPipeline(batchSize, this::persist, offer -> { });
+  }
+
+  @TearDown
+  public void tearDown() {
+    pipeline.stop();
+  }
+
+  @Benchmark
+  public long registerHosts() throws Exception {
+    CompletableFuture<?>[] registrations = new CompletableFuture<?>[hosts];
+    for (int i = 0; i < hosts; i++) {
+      registrations[i] = pipeline.submit(null, null, null, null);
+    }
+    CompletableFuture.allOf(registrations).get();
+    return pipeline.getHostsProcessed();
+  }
+
+  private void persist(List<HostRegistrationPipeline.AcceptedOffer> offers) {
+    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(transactionMicros + rowMicros * offers.size()));
+  }
+}
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -358,6 +359,11 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
 
     List<HostRoleCommand> hostRoleCommands = new ArrayList<>();
 
+    // the hosts of the commands and their log prefixes are looked up once per request rather than once per command,
+    // and each host is merged once after all of its commands have been created
+    Map<Long, HostEntity> hostEntities = new LinkedHashMap<>();
+    Map<Long, String> hostPrefixes = new HashMap<>();
+
     for (Stage stage : request.getStages()) {
       StageEntity stageEntity = stage.constructNewPersistenceEntity();
       Long stageId = stageEntity.getStageId();
@@ -383,30 +389,22 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         String output = "output-" + hostRoleCommandEntity.getTaskId() + ".txt";
         String error = "errors-" + hostRoleCommandEntity.getTaskId() + ".txt";
 
-        HostEntity hostEntity = null;
-        if (null != hostRoleCommandEntity.getHostId()) {
-          hostEntity = hostDAO.findById(hostRoleCommandEntity.getHostId());
+        Long hostId = hostRoleCommandEntity.getHostId();
+        if (null != hostId) {
+          HostEntity hostEntity = hostEntities.get(hostId);
           if (hostEntity == null) {
-            String msg = String.format("Host %s doesn't exist in database", hostRoleCommandEntity.getHostName());
-            LOG.error(msg);
-            throw new AmbariException(msg);
+            hostEntity = hostDAO.findById(hostId);
+            if (hostEntity == null) {
+              String msg = String.format("Host %s doesn't exist in database", hostRoleCommandEntity.getHostName());
+              LOG.error(msg);
+              throw new AmbariException(msg);
+            }
+            hostEntities.put(hostId, hostEntity);
+            hostPrefixes.put(hostId, getHostPrefix(hostEntity));
           }
 
           hostRoleCommandEntity.setHostEntity(hostEntity);
-
-          try {
-            // Get the in-memory host object and its prefix to construct the output and error log paths.
-            Host hostObject = clusters.getHost(hostEntity.getHostName());
-
-            if (!StringUtils.isBlank(hostObject.getPrefix())) {
-              prefix = hostObject.getPrefix();
-              if (!prefix.endsWith("/")) {
-                prefix = prefix + "/";
-              }
-            }
-          } catch (AmbariException e) {
-            LOG.warn("Exception in getting prefix for host and setting output and error log files.  Using no prefix");
-          }
+          prefix = hostPrefixes.get(hostId);
         }
 
         hostRoleCommand.setOutputLog(prefix + output);
@@ -422,10 +420,6 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
 
         executionCommandDAO.create(hostRoleCommandEntity.getExecutionCommand());
         hostRoleCommandEntity = hostRoleCommandDAO.mergeWithoutPublishEvent(hostRoleCommandEntity);
-
-        if (null != hostEntity) {
-          hostEntity = hostDAO.merge(hostEntity);
-        }
         hostRoleCommands.add(hostRoleCommand);
       }
 
@@ -437,6 +431,10 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
       stageEntity = stageDAO.merge(stageEntity);
     }
 
+    for (HostEntity hostEntity : hostEntities.values()) {
+      hostDAO.merge(hostEntity);
+    }
+
     requestEntity.setStages(stageEntities);
     requestDAO.merge(requestEntity);
 
@@ -457,6 +455,28 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
     }
   }
 
+  /**
+   * Gets the prefix of the output and error logs of the commands of a host, from
+   * the in-memory host object.
+   *
+   * @param hostEntity
+   *          the host
+   * @return the prefix, ending with a slash, or an empty string
+   */
+  private String getHostPrefix(HostEntity hostEntity) {
+    try {
+      Host hostObject = clusters.getHost(hostEntity.getHostName());
+
+      if (!StringUtils.isBlank(hostObject.getPrefix())) {
+        String prefix = hostObject.getPrefix();
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+      }
+    } catch (AmbariException e) {
+      LOG.warn("Exception in getting prefix for host and setting output and error log files.  Using no prefix");
+    }
+    return "";
+  }
+
   @Override
   @Transactional
   public void startRequest(long requestId) {
@@ -17,19 +17,34 @@
  */
 package org.apache.ambari.server.agent.stomp;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * Simultaneous processing a lot of registering/topology/metadata etc. requests from agents during
@@ -37,40 +52,279 @@ import com.google.inject.Injector;
  * only from limited number of agents with session ids from {@link registrationQueue}. Queue has limited capacity,
  * session id can able be appeared in queue with agent connecting to server and releases with first heartbeat or disconnect from
  * server.
+ * <p/>
+ * When pacing is enabled, agents are also admitted through a token bucket whose rate follows the rate at which the
+ * server was measured to complete registrations, so that a herd of agents reconnecting at once (e.g. after a server
+ * restart) is let in at the pace the server can register them rather than all timing out together. When prebuilding is
+ * enabled, the data sent to registering agents is built for every host on startup, so that registrations are served
+ * from the prebuilt data instead of each building its own.
+ * <p/>
+ * Pacing and prebuilding begin with {@link #start()} and end with {@link #stop()}.
  */
 public class AgentsRegistrationQueue {
   private static final Logger LOG = LoggerFactory.getLogger(AgentsRegistrationQueue.class);
+
+  /**
+   * The interval, in seconds, at which the registration throughput is measured and the admission rate adjusted.
+   */
+  private static final long PACING_INTERVAL = 5;
+
+  /**
+   * The admission rate is set this much above the measured throughput, so that it can grow back as long as the server
+   * keeps up.
+   */
+  private static final double PACING_HEADROOM = 1.5;
+
+  /**
+   * The lowest admission rate, in registrations per second.
+   */
+  private static final double MIN_ADMISSION_RATE = 1;
+
+  /**
+   * The number of recent registrations the latency percentiles are computed from.
+   */
+  private static final int LATENCY_SAMPLES = 1024;
+
+  private final Injector injector;
+  private final Configuration configuration;
   private final BlockingQueue<String> registrationQueue;
   private final ThreadFactory threadFactoryExecutor = new ThreadFactoryBuilder().setNameFormat("agents-queue-%d").build();
   private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1, threadFactoryExecutor);
+  private final ThreadFactory threadFactoryPrebuild = new ThreadFactoryBuilder().setNameFormat("agents-data-prebuild-%d")
+      .setDaemon(true).build();
+  private final ExecutorService prebuildExecutor = Executors.newSingleThreadExecutor(threadFactoryPrebuild);
+
+  /**
+   * The admission time of each registering session, in nanoseconds.
+   */
+  private final ConcurrentHashMap<String, Long> admissionTimes = new ConcurrentHashMap<>();
+  private final Histogram registrationLatency = new Histogram(new SlidingWindowReservoir(LATENCY_SAMPLES));
+
+  /**
+   * The completed registrations, whose rate is measured to pace the admissions.
+   */
+  private final Meter completedRegistrations = new Meter();
+  private final AtomicLong rejectedRegistrations = new AtomicLong();
+  private final AtomicLong totalRejectedRegistrations = new AtomicLong();
+  private long lastCompletedCount;
+
+  /**
+   * Token bucket pacing the admissions, or {@code null} if pacing is disabled.
+   */
+  private final RateLimiter admissionLimiter;
+
+  /**
+   * Whether admissions currently go through {@link #admissionLimiter}. They are not paced until the registration rate
+   * has been measured while agents register.
+   */
+  private volatile boolean paced;
 
   public AgentsRegistrationQueue(Injector injector) {
-    Configuration configuration = injector.getInstance(Configuration.class);
+    this.injector = injector;
+    configuration = injector.getInstance(Configuration.class);
     registrationQueue = new ArrayBlockingQueue<>(configuration.getAgentsRegistrationQueueSize());
+    admissionLimiter = configuration.isAgentsRegistrationPacingEnabled() ? RateLimiter.create(MIN_ADMISSION_RATE) : null;
+  }
+
+  /**
+   * Starts measuring the registration rate to pace the admissions, and prebuilding the data sent to registering
+   * agents, as configured.
+   */
+  public void start() {
+    if (admissionLimiter != null) {
+      scheduledExecutorService.scheduleWithFixedDelay(this::adjustAdmissionRate, PACING_INTERVAL, PACING_INTERVAL,
+          TimeUnit.SECONDS);
+    }
+
+    if (configuration.isAgentsRegistrationDataPrebuildEnabled()) {
+      int threads = configuration.getRegistrationThreadPoolSize();
+      prebuildExecutor.execute(() -> prebuildAgentData(injector, threads));
+    }
+  }
+
+  /**
+   * Stops pacing the admissions and prebuilding the data sent to registering agents.
+   */
+  public void stop() {
+    scheduledExecutorService.shutdownNow();
+    prebuildExecutor.shutdownNow();
   }
 
   public boolean offer(String sessionId) {
+    if (paced && !admissionLimiter.tryAcquire()) {
+      rejectedRegistrations.incrementAndGet();
+      totalRejectedRegistrations.incrementAndGet();
+      return false;
+    }
+
+    admissionTimes.put(sessionId, System.nanoTime());
     boolean offered = registrationQueue.offer(sessionId);
-    scheduledExecutorService.schedule(new CompleteJob(sessionId, registrationQueue), 60, TimeUnit.SECONDS);
+    if (offered) {
+      scheduledExecutorService.schedule(new CompleteJob(sessionId), 60, TimeUnit.SECONDS);
+    } else {
+      admissionTimes.remove(sessionId);
+      rejectedRegistrations.incrementAndGet();
+      totalRejectedRegistrations.incrementAndGet();
+    }
     return offered;
   }
 
+  /**
+   * Releases the place of a session in the queue on its first heartbeat, which completes its registration.
+   *
+   * @param sessionId the id of the session
+   */
   public void complete(String sessionId) {
     registrationQueue.remove(sessionId);
+    // called on every heartbeat, so only the first one of a session is counted
+    Long admissionTime = admissionTimes.remove(sessionId);
+    if (admissionTime != null) {
+      registrationLatency.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - admissionTime));
+      completedRegistrations.mark();
+    }
+  }
+
+  /**
+   * Releases the place of a session in the queue without completing its registration, as when the agent disconnects.
+   *
+   * @param sessionId the id of the session
+   */
+  public void release(String sessionId) {
+    registrationQueue.remove(sessionId);
+    admissionTimes.remove(sessionId);
+  }
+
+  /**
+   * @return the latency, in milliseconds, of recent registrations from admission to the first heartbeat
+   */
+  public Snapshot getRegistrationLatency() {
+    return registrationLatency.getSnapshot();
+  }
+
+  /**
+   * @return the number of registrations admitted per second, or {@code 0} if admissions are not being paced
+   */
+  public double getAdmissionRate() {
+    return paced ? admissionLimiter.getRate() : 0;
+  }
+
+  /**
+   * @return the number of registrations completed per second, as a one-minute exponentially weighted moving average
+   */
+  public double getRegistrationRate() {
+    return completedRegistrations.getOneMinuteRate();
+  }
+
+  /**
+   * @return the number of registrations completed since the server started
+   */
+  public long getCompletedRegistrations() {
+    return completedRegistrations.getCount();
+  }
+
+  /**
+   * @return the number of agents asked to reconnect since the server started
+   */
+  public long getRejectedRegistrations() {
+    return totalRejectedRegistrations.get();
+  }
+
+  /**
+   * Sets the admission rate to the registration rate measured since the last adjustment, with some headroom. While no
+   * agents are registering, the admissions are not paced.
+   */
+  @VisibleForTesting
+  void adjustAdmissionRate() {
+    long completedCount = completedRegistrations.getCount();
+    long completed = completedCount - lastCompletedCount;
+    lastCompletedCount = completedCount;
+    long rejected = rejectedRegistrations.getAndSet(0);
+
+    if (admissionTimes.isEmpty() && rejected == 0) {
+      paced = false;
+      return;
+    }
+
+    double measuredRate = (double) completed / PACING_INTERVAL;
+    double rate = Math.max(MIN_ADMISSION_RATE, PACING_HEADROOM * measuredRate);
+    admissionLimiter.setRate(rate);
+    paced = true;
+
+    if (completed > 0 || rejected > 0) {
+      Snapshot latency = registrationLatency.getSnapshot();
+      LOG.info("{} agents registered ({} per second) and {} were asked to reconnect in the last {} seconds, admitting "
+              + "{} registrations per second. Registration latency: median {} ms, 95th percentile {} ms, 99th "
+              + "percentile {} ms",
+          completed, String.format("%.1f", measuredRate), rejected, PACING_INTERVAL, String.format("%.1f", rate),
+          (long) latency.getMedian(), (long) latency.get95thPercentile(), (long) latency.get99thPercentile());
+    }
+  }
+
+  /**
+   * Builds the data sent to registering agents for every host, so that registrations do not each build it while
+   * competing for the database.
+   */
+  private void prebuildAgentData(Injector injector, int threads) {
+    long startTime = System.currentTimeMillis();
+    UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+
+    List<Host> hosts;
+    unitOfWork.begin();
+    try {
+      injector.getInstance(TopologyHolder.class).initializeDataIfNeeded(true);
+      injector.getInstance(MetadataHolder.class).initializeDataIfNeeded(true);
+      hosts = injector.getInstance(Clusters.class).getHosts();
+    } catch (AmbariException | RuntimeException e) {
+      LOG.warn("Unable to prebuild the data sent to registering agents", e);
+      return;
+    } finally {
+      unitOfWork.end();
+    }
+
+    List<AgentHostDataHolder<?>> holders = Arrays.asList(
+        injector.getInstance(AgentConfigsHolder.class),
+        injector.getInstance(HostLevelParamsHolder.class),
+        injector.getInstance(AlertDefinitionsHolder.class));
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), threadFactoryPrebuild);
+    for (Host host : hosts) {
+      executor.execute(() -> {
+        unitOfWork.begin();
+        try {
+          for (AgentHostDataHolder<?> holder : holders) {
+            holder.initializeDataIfNeeded(host.getHostId(), true);
+          }
+        } catch (AmbariException | RuntimeException e) {
+          LOG.warn("Unable to prebuild the data sent to the agent of host {}", host.getHostName(), e);
+        } finally {
+          unitOfWork.end();
+        }
+      });
+    }
+    executor.shutdown();
+
+    try {
+      if (executor.awaitTermination(1, TimeUnit.HOURS)) {
+        LOG.info("Prebuilt the data sent to registering agents for {} hosts in {} ms", hosts.size(),
+            System.currentTimeMillis() - startTime);
+      }
+    } catch (InterruptedException e) {
+      // stopped
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
   }
 
   private class CompleteJob implements Runnable {
     private String sessionId;
-    private BlockingQueue<String> registrationQueue;
 
-    public CompleteJob(String sessionId, BlockingQueue<String> registrationQueue) {
+    public CompleteJob(String sessionId) {
       this.sessionId = sessionId;
-      this.registrationQueue = registrationQueue;
     }
 
     @Override
     public void run() {
-      registrationQueue.remove(sessionId);
+      release(sessionId);
     }
   }
 }
@@ -23,8 +23,10 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -41,8 +43,9 @@ import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.HostState;
 import org.apache.ambari.server.state.MaintenanceState;
 import org.apache.ambari.server.state.alert.AlertDefinition;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex.Deadline;
 import org.apache.ambari.server.state.alert.AlertDefinitionFactory;
-import org.apache.ambari.server.state.alert.SourceType;
 import org.apache.ambari.server.state.services.AmbariServerAlertService;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -56,6 +59,9 @@ import com.google.inject.Inject;
  * checked and determine if it seems to no longer be running. It will produce a
  * single alert with {@link AlertState#CRITICAL} along with a textual
  * description of the alerts that are stale.
+ * <p/>
+ * Only the alerts which may be stale, as found through the
+ * {@link AlertDeadlineIndex}, are examined on each run.
  */
 public class StaleAlertRunnable extends AlertRunnable {
   /**
@@ -104,6 +110,13 @@ public class StaleAlertRunnable extends AlertRunnable {
   @Inject
   private AlertDefinitionsHolder alertDefinitionsHolder;
 
+  /**
+   * Used to find the current alerts which may be stale without reading all
+   * of them.
+   */
+  @Inject
+  private AlertDeadlineIndex m_alertDeadlines;
+
   /**
    * Constructor.
    *
@@ -132,36 +145,68 @@ public class StaleAlertRunnable extends AlertRunnable {
     Map<String, Set<String>> staleAlertsByHost = new HashMap<>();
     Set<String> hostsWithStaleAlerts = new TreeSet<>();
 
-    // get the cluster's current alerts
-    List<AlertCurrentEntity> currentAlerts = m_alertsDao.findCurrentByCluster(
-        cluster.getClusterId());
+    long clusterId = cluster.getClusterId();
+    m_alertDeadlines.setWaitFactor(waitFactor);
+
+    // the current alerts are only read in full the first time; after that
+    // the index is kept up to date as alerts are received
+    Map<Long, AlertCurrentEntity> loadedAlerts = null;
+    if (!m_alertDeadlines.isLoaded(clusterId)) {
+      List<AlertCurrentEntity> currentAlerts = m_alertsDao.findCurrentByCluster(clusterId);
+      m_alertDeadlines.load(clusterId, currentAlerts);
+
+      loadedAlerts = new HashMap<>();
+      for (AlertCurrentEntity current : currentAlerts) {
+        loadedAlerts.put(current.getAlertId(), current);
+      }
+    }
 
     long now = System.currentTimeMillis();
 
-    Map<Long, List<Long>> alertDefinitionsToHosts = prepareHostDefinitions(cluster.getClusterId());
+    Map<Long, List<Long>> alertDefinitionsToHosts = prepareHostDefinitions(clusterId);
+
+    // the alerts of hosts which lost their heartbeat or reported stale alerts
+    // are examined regardless of their deadline
+    Map<String, HostStaleness> hostsByName = new HashMap<>();
+    Map<Long, HostStaleness> hostsById = new HashMap<>();
+    Set<String> suspectHosts = new HashSet<>();
+    for (String hostName : m_alertDeadlines.getHostNames(clusterId)) {
+      HostStaleness host = getHostStaleness(cluster.getHost(hostName));
+      hostsByName.put(hostName, host);
+      if (null != host && host.isSuspect()) {
+        suspectHosts.add(hostName);
+      }
+    }
+
+    // for each alert which may be stale, check to see if the last time it ran
+    // is more than INTERVAL_WAIT_FACTOR * its interval value (indicating it
+    // hasn't run)
+    Map<Long, Deadline> candidates = m_alertDeadlines.getCandidates(clusterId, now, suspectHosts);
+
+    // the candidates are read together rather than one at a time
+    Map<Long, AlertCurrentEntity> currentAlerts = loadedAlerts;
+    if (null == currentAlerts) {
+      currentAlerts = new HashMap<>();
+      for (AlertCurrentEntity current : m_alertsDao.findCurrentByIds(candidates.keySet())) {
+        currentAlerts.put(current.getAlertId(), current);
+      }
+    }
+
+    for (Deadline deadline : candidates.values()) {
+      AlertCurrentEntity current = currentAlerts.get(deadline.getAlertId());
+      if (null == current) {
+        m_alertDeadlines.remove(clusterId, deadline.getAlertId());
+        continue;
+      }
 
-    // for each current alert, check to see if the last time it ran is
-    // more than INTERVAL_WAIT_FACTOR * its interval value (indicating it hasn't
-    // run)
-    for (AlertCurrentEntity current : currentAlerts) {
       AlertHistoryEntity history = current.getAlertHistory();
       AlertDefinitionEntity currentDefinition = history.getAlertDefinition();
 
-      // skip aggregates as they are special
-      if (currentDefinition.getSourceType() == SourceType.AGGREGATE) {
-          continue;
-        }
-
       // skip alerts in maintenance mode
       if (current.getMaintenanceState() != MaintenanceState.OFF) {
         continue;
       }
 
-      // skip alerts that have not run yet
-      if (current.getLatestTimestamp() == 0) {
-        continue;
-      }
-
       // skip this alert (who watches the watchers)
       if (currentDefinition.getDefinitionName().equals(m_definitionName)) {
         continue;
@@ -189,18 +234,24 @@ public class StaleAlertRunnable extends AlertRunnable {
       // host/hosts for alerts for master component/with host ignoring can be retrieved from current agent's alert definitions
 
       String currentHostName = history.getHostName();
-      List<Host> hosts = new ArrayList<>();
+      List<HostStaleness> hosts = new ArrayList<>();
       if (currentHostName != null) {
-        hosts.add(cluster.getHost(currentHostName));
+        HostStaleness host = hostsByName.computeIfAbsent(currentHostName,
+            hostName -> getHostStaleness(cluster.getHost(hostName)));
+        if (null != host) {
+          hosts.add(host);
+        }
       } else if (alertDefinitionsToHosts.containsKey(current.getDefinitionId())) {
         hosts = alertDefinitionsToHosts.get(current.getDefinitionId()).stream()
-            .map(i -> cluster.getHost(i)).collect(Collectors.toList());
+            .map(i -> hostsById.computeIfAbsent(i, hostId -> getHostStaleness(cluster.getHost(hostId))))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
       }
       if (!hosts.isEmpty()) {
 
         // in case alert ignores host we should to check alert is stale on all hosts
         timedout = true;
-        for (Host host : hosts) {
+        for (HostStaleness host : hosts) {
           if (timedout) {
             // check agent reported about stale alert
             if (alertHelper.getStaleAlerts(host.getHostId()).containsKey(current.getDefinitionId())) {
@@ -276,6 +327,23 @@ public class StaleAlertRunnable extends AlertRunnable {
     return Collections.singletonList(alert);
   }
 
+  /**
+   * Reads the state of a host which decides whether its alerts are stale, so
+   * that it is only read once per run.
+   *
+   * @param host
+   *          the host, or {@code null} if it does not exist.
+   * @return the state of the host, or {@code null} if it does not exist.
+   */
+  private HostStaleness getHostStaleness(Host host) {
+    if (null == host) {
+      return null;
+    }
+
+    return new HostStaleness(alertHelper.getStaleAlerts(host.getHostId()),
+        host.getState() == HostState.HEARTBEAT_LOST, host.getLastHeartbeatTime());
+  }
+
   /**
    * Retrieves alert definitions sent to agents.
    * @param clusterId cluster id
@@ -295,6 +363,32 @@ public class StaleAlertRunnable extends AlertRunnable {
     return alertDefinitionsToHosts;
   }
 
+  /**
+   * The state of a host which decides whether its alerts are stale.
+   */
+  private static final class HostStaleness {
+
+    /**
+     * The stale alerts reported by the agent, by definition ID.
+     */
+    private final Map<Long, Long> staleAlerts;
+
+    private final boolean heartbeatLost;
+
+    private final long lastHeartbeatTime;
+
+    private HostStaleness(Map<Long, Long> staleAlerts, boolean heartbeatLost,
+        long lastHeartbeatTime) {
+      this.staleAlerts = staleAlerts;
+      this.heartbeatLost = heartbeatLost;
+      this.lastHeartbeatTime = lastHeartbeatTime;
+    }
+
+    private boolean isSuspect() {
+      return heartbeatLost || !staleAlerts.isEmpty();
+    }
+  }
+
   /**
    * Converts given {@code milliseconds} to human-readable {@link String} like "1d 2h 3m" or "2h 4m".
    * @param milliseconds milliseconds to convert
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.rest;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.ambari.annotations.ApiIgnore;
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.api.services.ResultStatus;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.logging.LockStatistics;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.ambari.server.security.authorization.ResourceType;
+import org.apache.ambari.server.security.authorization.RoleAuthorization;
+
+import com.google.inject.Inject;
+
+/**
+ * Exposes the contention statistics of the locks created by the {@link LockFactory},
+ * by lock label.  Times are in microseconds.  Only Ambari administrators may read them.
+ */
+@StaticallyInject
+@Path("/lock_statistics/")
+public class LockStatisticsService {
+
+  private static final Set<RoleAuthorization> REQUIRED_AUTHORIZATIONS = EnumSet.of(RoleAuthorization.AMBARI_VIEW_STATUS_INFO);
+
+  @Inject
+  private static LockFactory lockFactory;
+
+  /**
+   * Handles: GET /lock_statistics
+   *
+   * @return the statistics of each lock label, or nothing if lock telemetry is disabled
+   */
+  @GET @ApiIgnore // until documented
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getLockStatistics() {
+    if (!AuthorizationHelper.isAuthorized(ResourceType.AMBARI, null, REQUIRED_AUTHORIZATIONS)) {
+      return Response.status(new ResultStatus(ResultStatus.STATUS.FORBIDDEN).getStatusCode())
+          .entity("The authenticated user is not authorized to perform this operation.").build();
+    }
+
+    Map<String, Map<String, Number>> result = new TreeMap<>();
+    if (lockFactory == null) {
+      return Response.ok(result).build();
+    }
+
+    for (LockStatistics statistics : lockFactory.getLockStatistics()) {
+      Map<String, Number> values = new LinkedHashMap<>();
+      values.put("acquisitions", statistics.getAcquisitions());
+      values.put("contended", statistics.getContended());
+      values.put("sampled", statistics.getSampledAcquisitions());
+      values.put("wait_avg", statistics.getAverageWaitMicros());
+      values.put("wait_p50", statistics.getWaitPercentileMicros(50));
+      values.put("wait_p95", statistics.getWaitPercentileMicros(95));
+      values.put("wait_p99", statistics.getWaitPercentileMicros(99));
+      values.put("hold_avg", statistics.getAverageHoldMicros());
+      values.put("hold_p50", statistics.getHoldPercentileMicros(50));
+      values.put("hold_p95", statistics.getHoldPercentileMicros(95));
+      values.put("hold_p99", statistics.getHoldPercentileMicros(99));
+      result.put(statistics.getLabel(), values);
+    }
+    return Response.ok(result).build();
+  }
+}
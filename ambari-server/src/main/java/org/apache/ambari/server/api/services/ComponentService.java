@@ -39,16 +39,28 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.annotations.ApiIgnore;
+import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.ClientConfigArchiveCache;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 
+import com.google.inject.Inject;
+
 /**
  * Service responsible for components resource requests.
  */
+@StaticallyInject
 public class ComponentService extends BaseService {
+
+  /**
+   * Streams the client configuration archives served from the cache.
+   */
+  @Inject
+  private static ClientConfigArchiveCache archiveCache;
+
   /**
    * Parent cluster id.
    */
@@ -250,8 +262,20 @@ public class ComponentService extends BaseService {
     Validate.notNull(filePrefixName, "compressed config file name should not be null");
     String fileName =  filePrefixName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION;
 
-    Response response = handleRequest(headers, body, ui, Request.Type.GET,
-            createResource(Resource.Type.ClientConfig, mapIds));
+    Response response = null;
+    ClientConfigArchiveCache.Archive archive;
+    try {
+      response = handleRequest(headers, body, ui, Request.Type.GET,
+              createResource(Resource.Type.ClientConfig, mapIds));
+    } finally {
+      // the archive served from the cache, if any, is pinned until it is streamed; it is taken
+      // even if the request failed, so that its pin is not left with the thread
+      archive = (archiveCache != null) ? archiveCache.takeDownload() : null;
+      if (archive != null && (response == null || response.getStatus() != 200)) {
+        archive.release();
+        archive = null;
+      }
+    }
 
     //If response has errors return response
     if (response.getStatus() != 200) {
@@ -264,7 +288,7 @@ public class ComponentService extends BaseService {
     File file = new File(tmpDir,fileName);
     InputStream resultInputStream = null;
     try {
-      resultInputStream = new FileInputStream(file);
+      resultInputStream = (archive != null) ? archive.openStream() : new FileInputStream(file);
     } catch (IOException e) {
       e.printStackTrace();
     }
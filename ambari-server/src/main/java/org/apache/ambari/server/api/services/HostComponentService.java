@@ -41,15 +41,19 @@ import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.annotations.ApiIgnore;
 import org.apache.ambari.annotations.SwaggerPreferredParent;
+import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.HostComponentProcessResponse;
 import org.apache.ambari.server.controller.HostComponentSwagger;
+import org.apache.ambari.server.controller.internal.ClientConfigArchiveCache;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.http.HttpStatus;
 
+import com.google.inject.Inject;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -60,12 +64,19 @@ import io.swagger.annotations.ApiResponses;
 /**
  * Service responsible for host_components resource requests.
  */
+@StaticallyInject
 @Api(value = "Host Components", description = "Endpoint for host component specific operations")
 @SwaggerPreferredParent(preferredParent = ClusterService.class)
 public class HostComponentService extends BaseService {
 
   public static final String HOST_ROLE_REQUEST_TYPE = "org.apache.ambari.server.controller.ServiceComponentHostResponse";
 
+  /**
+   * Streams the client configuration archives served from the cache.
+   */
+  @Inject
+  private static ClientConfigArchiveCache archiveCache;
+
   /**
    * Parent cluster id.
    */
@@ -402,8 +413,20 @@ public class HostComponentService extends BaseService {
     mapIds.put(Resource.Type.Host, m_hostName);
     mapIds.put(Resource.Type.Component, hostComponentName);
 
-    Response response = handleRequest(headers, body, ui, Request.Type.GET,
-            createResource(Resource.Type.ClientConfig, mapIds));
+    Response response = null;
+    ClientConfigArchiveCache.Archive archive;
+    try {
+      response = handleRequest(headers, body, ui, Request.Type.GET,
+              createResource(Resource.Type.ClientConfig, mapIds));
+    } finally {
+      // the archive served from the cache, if any, is pinned until it is streamed; it is taken
+      // even if the request failed, so that its pin is not left with the thread
+      archive = (archiveCache != null) ? archiveCache.takeDownload() : null;
+      if (archive != null && (response == null || response.getStatus() != 200)) {
+        archive.release();
+        archive = null;
+      }
+    }
 
     //If response has errors return response
     if (response.getStatus() != 200) {
@@ -427,7 +450,7 @@ public class HostComponentService extends BaseService {
     File file = new File(tmpDir,fileName);
     InputStream resultInputStream = null;
     try {
-      resultInputStream = new FileInputStream(file);
+      resultInputStream = (archive != null) ? archive.openStream() : new FileInputStream(file);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -70,6 +70,9 @@ public class StackAdvisorHelper {
   private Map<String, JsonNode> hostInfoCache = new ConcurrentHashMap<>();
   private Map<String, RecommendationResponse> configsRecommendationResponse = new ConcurrentHashMap<>();
 
+  /* Results of stack advisor commands by their input, null if disabled */
+  private final StackAdvisorResponseCache responseCache;
+
 
   @Inject
   public StackAdvisorHelper(Configuration conf, StackAdvisorRunner saRunner, AmbariMetaInfo metaInfo,
@@ -81,6 +84,9 @@ public class StackAdvisorHelper {
     this.metaInfo = metaInfo;
     this.ambariServerConfigurationHandler = ambariServerConfigurationHandler;
     this.gson = gson;
+
+    int responseCacheSize = conf.getStackAdvisorResponseCacheSize();
+    this.responseCache = (responseCacheSize > 0) ? new StackAdvisorResponseCache(responseCacheSize) : null;
   }
 
   /**
@@ -101,6 +107,7 @@ public class StackAdvisorHelper {
     String serviceName = "ZOOKEEPER";
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
     StackAdvisorCommand<ValidationResponse> command = createValidationCommand(serviceName, request);
+    useResponseCache(command);
 
     return command.invoke(request, serviceAdvisorType);
   }
@@ -142,6 +149,7 @@ public class StackAdvisorHelper {
 
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
     StackAdvisorCommand<RecommendationResponse> command = createRecommendationCommand(serviceName, request);
+    useResponseCache(command);
 
     StackAdvisorRequestType requestType = request.getRequestType();
     RecommendationResponse response = null;
@@ -161,6 +169,17 @@ public class StackAdvisorHelper {
     return response == null ? command.invoke(request, serviceAdvisorType) : response;
   }
 
+  /**
+   * Lets the command answer from {@link #responseCache}, dropping the cached
+   * results first if the stack definitions have been reloaded.
+   */
+  private void useResponseCache(StackAdvisorCommand<?> command) {
+    if (responseCache != null) {
+      responseCache.validate(metaInfo.getStackManager());
+      command.setResponseCache(responseCache);
+    }
+  }
+
   protected String getHash(StackAdvisorRequest request) {
     String json = gson.toJson(request);
     String generatedPassword = null;
@@ -201,7 +220,7 @@ public class StackAdvisorHelper {
           requestId, saRunner, metaInfo, ambariServerConfigurationHandler, null);
     } else if (requestType == StackAdvisorRequestType.CONFIGURATION_DEPENDENCIES) {
       command = new ConfigurationDependenciesRecommendationCommand(recommendationsDir, recommendationsArtifactsLifetime, serviceAdvisorType,
-          requestId, saRunner, metaInfo, ambariServerConfigurationHandler);
+          requestId, saRunner, metaInfo, ambariServerConfigurationHandler, hostInfoCache);
     } else {
       throw new StackAdvisorRequestException(String.format("Unsupported request type, type=%s",
           requestType));
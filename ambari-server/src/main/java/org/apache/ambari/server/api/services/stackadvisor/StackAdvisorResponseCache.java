@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services.stackadvisor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the results of stack advisor commands by the content they were
+ * computed from: the command type and the hosts.json and services.json
+ * documents passed to the stack advisor. As the documents carry the hosts,
+ * services, configurations and changed properties of a request, a request
+ * evaluated before is answered without running the stack advisor again.
+ * <p/>
+ * The result is cached as the JSON the stack advisor produced, so each caller
+ * gets its own response instance. The least recently used results are evicted
+ * once the cache is full, and all results are dropped when the stack
+ * definitions they were computed with are reloaded.
+ */
+public class StackAdvisorResponseCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StackAdvisorResponseCache.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Cache<String, String> results;
+
+  /**
+   * The stack definitions the cached results were computed with.
+   */
+  private Object stackDefinitions;
+
+  /**
+   * @param maximumSize the maximum number of cached results
+   */
+  public StackAdvisorResponseCache(int maximumSize) {
+    results = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Gets the key of a stack advisor command.
+   *
+   * @param commandType  the command type
+   * @param hostsJSON    the hosts.json document
+   * @param servicesJSON the services.json document
+   * @return the key
+   */
+  public String getKey(StackAdvisorCommandType commandType, String hostsJSON, String servicesJSON) {
+    return DigestUtils.sha256Hex(commandType + "\n" + canonicalize(hostsJSON) + "\n" + canonicalize(servicesJSON));
+  }
+
+  /**
+   * @param key the key of a command
+   * @return the cached result of the command, or {@code null}
+   */
+  public String get(String key) {
+    return results.getIfPresent(key);
+  }
+
+  /**
+   * Caches the result of a command.
+   *
+   * @param key    the key of the command
+   * @param result the result of the command
+   */
+  public void put(String key, String result) {
+    results.put(key, result);
+  }
+
+  /**
+   * Drops all cached results if the stack definitions have been reloaded since
+   * the results were computed.
+   *
+   * @param currentStackDefinitions the stack definitions in use
+   */
+  public synchronized void validate(Object currentStackDefinitions) {
+    if (stackDefinitions != currentStackDefinitions) {
+      if (stackDefinitions != null) {
+        LOG.info("Stack definitions were reloaded, dropping {} cached stack advisor results", results.size());
+      }
+      results.invalidateAll();
+      stackDefinitions = currentStackDefinitions;
+    }
+  }
+
+  /**
+   * Drops all cached results.
+   */
+  public void invalidateAll() {
+    results.invalidateAll();
+  }
+
+  /**
+   * @return the number of cached results
+   */
+  public long size() {
+    return results.size();
+  }
+
+  /**
+   * @return the number of commands answered from the cache
+   */
+  public long getHitCount() {
+    return results.stats().hitCount();
+  }
+
+  /**
+   * Serializes a document with its object members ordered by name, so that
+   * equal documents hash alike regardless of member order.
+   */
+  private static String canonicalize(String json) {
+    if (json == null) {
+      return "";
+    }
+
+    try {
+      return MAPPER.writeValueAsString(sortMembers(MAPPER.readValue(json, Object.class)));
+    } catch (IOException e) {
+      LOG.debug("Unable to parse a stack advisor document, using it as is", e);
+      return json;
+    }
+  }
+
+  private static Object sortMembers(Object value) {
+    if (value instanceof Map) {
+      Map<String, Object> sorted = new TreeMap<>();
+      for (Map.Entry<?, ?> member : ((Map<?, ?>) value).entrySet()) {
+        sorted.put(String.valueOf(member.getKey()), sortMembers(member.getValue()));
+      }
+      return sorted;
+    }
+    if (value instanceof List) {
+      List<Object> elements = new ArrayList<>();
+      for (Object element : (List<?>) value) {
+        elements.add(sortMembers(element));
+      }
+      return elements;
+    }
+    return value;
+  }
+}
@@ -23,7 +23,10 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
 import org.apache.ambari.server.configuration.Configuration;
@@ -45,6 +48,12 @@ public class StackAdvisorRunner {
   @Inject
   private Configuration configs;
 
+  /**
+   * The long-lived Python stack advisor processes, or {@code null} if a
+   * process is started for every request.
+   */
+  private StackAdvisorWorkerPool workerPool;
+
   /**
    * Runs stack_advisor.py script in the specified {@code actionDirectory}.
    *
@@ -66,6 +75,8 @@ public class StackAdvisorRunner {
     LOG.info("StackAdvisorRunner. Expected files: hosts.json={}, services.json={}, output={}, error={}", hostsFile, servicesFile, outputFile, errorFile);
 
     int stackAdvisorReturnCode = -1;
+    long start = System.nanoTime();
+    String mode = serviceAdvisorType.toString();
 
     switch (serviceAdvisorType) {
       case JAVA:
@@ -75,20 +86,70 @@ public class StackAdvisorRunner {
         break;
       case PYTHON:
         LOG.info("StackAdvisorRunner.runScript(): Calling Python Stack Advisor.");
+        StackAdvisorWorkerPool pool = getWorkerPool();
+        if (pool != null) {
+          mode = "PYTHON worker";
+          stackAdvisorReturnCode = pool.run(saCommandType, hostsFile, servicesFile, outputFile, errorFile);
+          break;
+        }
+
         ProcessBuilder builder = prepareShellCommand(ServiceInfo.ServiceAdvisorType.PYTHON, configs.getStackAdvisorScript(), saCommandType,
             actionDirectory, outputFile,
             errorFile);
-        builder.environment().put("METADATA_DIR_PATH", configs.getProperty(Configuration.METADATA_DIR_PATH));
-        builder.environment().put("BASE_SERVICE_ADVISOR", Paths.get(configs.getProperty(Configuration.METADATA_DIR_PATH), "service_advisor.py").toString());
-        builder.environment().put("BASE_STACK_ADVISOR", Paths.get(configs.getProperty(Configuration.METADATA_DIR_PATH), "stack_advisor.py").toString());
+        builder.environment().putAll(getScriptEnvironment());
         stackAdvisorReturnCode = launchProcess(builder);
         break;
     }
 
+    LOG.info("StackAdvisorRunner. {} took {} ms using {}", saCommandType,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), mode);
+
     // For both Python and Java, need to process log files for now.
     processLogs(stackAdvisorReturnCode, outputFile, errorFile);
   }
 
+  /**
+   * Gets the pool of long-lived stack advisor processes, creating it on first
+   * use.
+   *
+   * @return the pool, or {@code null} if a process is started for every request
+   */
+  private synchronized StackAdvisorWorkerPool getWorkerPool() {
+    if (workerPool == null && configs.getStackAdvisorWorkerPoolSize() > 0) {
+      // exec, so that killing the shell kills the worker
+      List<String> command = getShellCommandPrefix();
+      command.add((System.getProperty("os.name").contains("Windows") ? "" : "exec ")
+          + configs.getStackAdvisorScript() + " " + StackAdvisorWorkerPool.WORKER_ARGUMENT);
+
+      workerPool = new StackAdvisorWorkerPool(command, getScriptEnvironment(),
+          configs.getStackAdvisorWorkerPoolSize(), configs.getStackAdvisorWorkerMaxRequests(),
+          TimeUnit.SECONDS.toMillis(configs.getStackAdvisorWorkerTimeout()));
+    }
+    return workerPool;
+  }
+
+  /**
+   * Kills the long-lived stack advisor processes, if any. Called on server
+   * shutdown.
+   */
+  public synchronized void shutdown() {
+    if (workerPool != null) {
+      workerPool.shutdown();
+    }
+  }
+
+  /**
+   * @return the environment variables the Python stack advisor script is run with
+   */
+  private Map<String, String> getScriptEnvironment() {
+    String metadataDirPath = configs.getProperty(Configuration.METADATA_DIR_PATH);
+    Map<String, String> environment = new HashMap<>();
+    environment.put("METADATA_DIR_PATH", metadataDirPath);
+    environment.put("BASE_SERVICE_ADVISOR", Paths.get(metadataDirPath, "service_advisor.py").toString());
+    environment.put("BASE_STACK_ADVISOR", Paths.get(metadataDirPath, "stack_advisor.py").toString());
+    return environment;
+  }
+
   /**
    * Launch a process, wait for it to finish, and return its exit code.
    * @param builder Process Builder
@@ -196,13 +257,7 @@ public class StackAdvisorRunner {
     switch (serviceAdvisorType) {
       case PYTHON:
       case JAVA:
-        if (System.getProperty("os.name").contains("Windows")) {
-          builderParameters.add("cmd");
-          builderParameters.add("/c");
-        } else {
-          builderParameters.add("sh");
-          builderParameters.add("-c");
-        }
+        builderParameters = getShellCommandPrefix();
         break;
       default:
         break;
@@ -224,6 +279,21 @@ public class StackAdvisorRunner {
     return new ProcessBuilder(builderParameters);
   }
 
+  /**
+   * @return the shell invocation which runs a single command string
+   */
+  private List<String> getShellCommandPrefix() {
+    List<String> builderParameters = new ArrayList<>();
+    if (System.getProperty("os.name").contains("Windows")) {
+      builderParameters.add("cmd");
+      builderParameters.add("/c");
+    } else {
+      builderParameters.add("sh");
+      builderParameters.add("-c");
+    }
+    return builderParameters;
+  }
+
   public void setConfigs(Configuration configs) {
     this.configs = configs;
   }
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services.stackadvisor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A pool of long-lived stack advisor processes started in worker mode
+ * ({@value #WORKER_ARGUMENT}), which saves the interpreter startup and stack
+ * advisor module loading paid by starting a process for every request.
+ * <p/>
+ * Requests are written to the standard input of a worker, one per line, as the
+ * tab separated command, hosts file, services file, output file and error
+ * file. The worker writes the output of the request to the given files and
+ * answers with a line holding the exit code the stack advisor script would
+ * have exited with. A worker announces that it is ready with a
+ * {@value #READY} line once started.
+ * <p/>
+ * Workers which died, did not answer in time or answered something else are
+ * killed and replaced; workers are also replaced after a number of requests.
+ */
+class StackAdvisorWorkerPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StackAdvisorWorkerPool.class);
+
+  /**
+   * The argument which starts the stack advisor script in worker mode.
+   */
+  static final String WORKER_ARGUMENT = "--worker";
+
+  /**
+   * The line a worker writes once it is ready for requests.
+   */
+  static final String READY = "ready";
+
+  private final List<String> command;
+  private final Map<String, String> environment;
+  private final int maxRequests;
+  private final long timeoutMillis;
+
+  private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+  private final Semaphore permits;
+  private final AtomicInteger workerIds = new AtomicInteger();
+  private volatile boolean stopped;
+
+  /**
+   * Reads the answers of workers, so that waiting for a worker can time out.
+   */
+  private final ExecutorService readers = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("stack-advisor-worker-reader-%d").setDaemon(true).build());
+
+  /**
+   * @param command       the command starting a worker
+   * @param environment   environment variables of the workers
+   * @param size          the maximum number of workers
+   * @param maxRequests   the number of requests after which a worker is replaced
+   * @param timeoutMillis the time a worker has to start or to answer a request
+   */
+  StackAdvisorWorkerPool(List<String> command, Map<String, String> environment, int size,
+                         int maxRequests, long timeoutMillis) {
+    this.command = command;
+    this.environment = environment;
+    this.maxRequests = maxRequests;
+    this.timeoutMillis = timeoutMillis;
+    permits = new Semaphore(size, true);
+  }
+
+  /**
+   * Runs a stack advisor command on a worker, waiting for a free worker if all
+   * are busy.
+   *
+   * @param saCommandType the command to run
+   * @param hostsFile     path of hosts.json
+   * @param servicesFile  path of services.json
+   * @param outputFile    path of the file receiving the standard output of the command
+   * @param errorFile     path of the file receiving the error output of the command
+   * @return the exit code of the command
+   * @throws StackAdvisorException if no worker could run the command
+   */
+  int run(StackAdvisorCommandType saCommandType, String hostsFile, String servicesFile,
+          String outputFile, String errorFile) throws StackAdvisorException {
+    String request = StringUtils.join(new String[] {
+        saCommandType.toString(), hostsFile, servicesFile, outputFile, errorFile}, '\t');
+
+    permits.acquireUninterruptibly();
+    Worker worker = null;
+    try {
+      if (stopped) {
+        throw new StackAdvisorException("The Stack Advisor workers are shut down");
+      }
+      worker = borrowWorker();
+      int exitCode = worker.execute(request);
+      if (worker.requestCount >= maxRequests) {
+        LOG.info("Replacing stack advisor worker {} after {} requests", worker.id, worker.requestCount);
+        worker.destroy();
+        worker = null;
+      }
+      return exitCode;
+    } catch (IOException e) {
+      if (worker != null) {
+        worker.destroy();
+        worker = null;
+      }
+      String message = "Error executing Stack Advisor worker: ";
+      LOG.error(message, e);
+      throw new StackAdvisorException(message + e.getMessage());
+    } finally {
+      if (worker != null) {
+        if (stopped) {
+          worker.destroy();
+        } else {
+          idleWorkers.offer(worker);
+        }
+      }
+      permits.release();
+    }
+  }
+
+  /**
+   * Kills all idle workers; busy workers are killed when their request is done.
+   */
+  void shutdown() {
+    stopped = true;
+    readers.shutdownNow();
+    Worker worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      worker.destroy();
+    }
+  }
+
+  /**
+   * @return the number of idle workers
+   */
+  int getIdleWorkers() {
+    return idleWorkers.size();
+  }
+
+  /**
+   * Takes an idle worker which is still alive or starts a new one.
+   */
+  private Worker borrowWorker() throws IOException {
+    Worker worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      if (worker.process.isAlive()) {
+        return worker;
+      }
+      LOG.warn("Stack advisor worker {} exited with code {}, replacing it", worker.id, worker.process.exitValue());
+      worker.destroy();
+    }
+    return startWorker();
+  }
+
+  private Worker startWorker() throws IOException {
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.environment().putAll(environment);
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+    Worker worker = new Worker(workerIds.incrementAndGet(), builder.start());
+    try {
+      String line = worker.readLine();
+      if (!READY.equals(line)) {
+        throw new IOException("Stack advisor worker did not start, it answered " + line);
+      }
+    } catch (IOException e) {
+      worker.destroy();
+      throw e;
+    }
+
+    LOG.info("Started stack advisor worker {}", worker.id);
+    return worker;
+  }
+
+  /**
+   * A running worker process.
+   */
+  private final class Worker {
+    private final int id;
+    private final Process process;
+    private final Writer requests;
+    private final BufferedReader responses;
+    private int requestCount;
+
+    private Worker(int id, Process process) {
+      this.id = id;
+      this.process = process;
+      requests = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+      responses = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private int execute(String request) throws IOException {
+      requestCount++;
+      requests.write(request);
+      requests.write('\n');
+      requests.flush();
+
+      String response = readLine();
+      try {
+        return Integer.parseInt(response);
+      } catch (NumberFormatException e) {
+        throw new IOException("Unexpected answer from stack advisor worker " + id + ": " + response);
+      }
+    }
+
+    /**
+     * Reads a line from the worker, giving up if it does not answer in time.
+     */
+    private String readLine() throws IOException {
+      Future<String> line = readers.submit(responses::readLine);
+      try {
+        String response = line.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (response == null) {
+          throw new IOException("Stack advisor worker " + id + " exited");
+        }
+        return response.trim();
+      } catch (TimeoutException e) {
+        throw new IOException("Stack advisor worker " + id + " did not answer within " + timeoutMillis + " ms");
+      } catch (ExecutionException e) {
+        throw new IOException("Unable to read from stack advisor worker " + id, e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for stack advisor worker " + id);
+      }
+    }
+
+    private void destroy() {
+      process.destroyForcibly();
+    }
+  }
+}
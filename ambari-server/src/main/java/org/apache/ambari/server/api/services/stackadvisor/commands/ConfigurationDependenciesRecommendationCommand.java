@@ -33,6 +33,7 @@ import org.apache.ambari.server.api.services.stackadvisor.recommendations.Recomm
 import org.apache.ambari.server.api.services.stackadvisor.recommendations.RecommendationResponse.HostGroup;
 import org.apache.ambari.server.controller.internal.AmbariServerConfigurationHandler;
 import org.apache.ambari.server.state.ServiceInfo;
+import org.codehaus.jackson.JsonNode;
 
 /**
  * {@link StackAdvisorCommand} implementation for
@@ -51,6 +52,18 @@ public class ConfigurationDependenciesRecommendationCommand extends
     super(recommendationsDir, recommendationsArtifactsLifetime, serviceAdvisorType, requestId, saRunner, metaInfo, ambariServerConfigurationHandler);
   }
 
+  public ConfigurationDependenciesRecommendationCommand(File recommendationsDir,
+                                                        String recommendationsArtifactsLifetime,
+                                                        ServiceInfo.ServiceAdvisorType serviceAdvisorType,
+                                                        int requestId,
+                                                        StackAdvisorRunner saRunner,
+                                                        AmbariMetaInfo metaInfo,
+                                                        AmbariServerConfigurationHandler ambariServerConfigurationHandler,
+                                                        Map<String, JsonNode> hostInfoCache) {
+    super(recommendationsDir, recommendationsArtifactsLifetime, serviceAdvisorType, requestId, saRunner, metaInfo,
+        ambariServerConfigurationHandler, hostInfoCache);
+  }
+
   @Override
   protected StackAdvisorCommandType getCommandType() {
     return StackAdvisorCommandType.RECOMMEND_CONFIGURATION_DEPENDENCIES;
@@ -45,6 +45,7 @@ import org.apache.ambari.server.api.services.Request;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorException;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponse;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponseCache;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRunner;
 import org.apache.ambari.server.controller.RootComponent;
 import org.apache.ambari.server.controller.RootService;
@@ -116,6 +117,11 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
   private File requestDirectory;
   private StackAdvisorRunner saRunner;
 
+  /**
+   * Results of previous invocations, or {@code null} to always run the stack advisor.
+   */
+  private StackAdvisorResponseCache responseCache;
+
   protected ObjectMapper mapper;
 
   private final AmbariMetaInfo metaInfo;
@@ -149,6 +155,16 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
 
   protected abstract StackAdvisorCommandType getCommandType();
 
+  /**
+   * Sets the cache answering invocations with the same hosts and services
+   * information as a previous one.
+   *
+   * @param responseCache the cache, or {@code null} to always run the stack advisor
+   */
+  public void setResponseCache(StackAdvisorResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
   /**
    * Simple holder for 'hosts.json' and 'services.json' data.
    */
@@ -317,18 +333,31 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
 
     StackAdvisorData adjusted = adjust(new StackAdvisorData(hostsJSON, servicesJSON), request);
 
-    try {
-      createRequestDirectory();
-
-      FileUtils.writeStringToFile(new File(requestDirectory, "hosts.json"), adjusted.hostsJSON,
-              Charset.defaultCharset());
-      FileUtils
-              .writeStringToFile(new File(requestDirectory, "services.json"), adjusted.servicesJSON,
-                      Charset.defaultCharset());
+    String cacheKey = (responseCache == null)
+        ? null
+        : responseCache.getKey(getCommandType(), adjusted.hostsJSON, adjusted.servicesJSON);
 
-      saRunner.runScript(serviceAdvisorType, getCommandType(), requestDirectory);
-      String result = FileUtils.readFileToString(new File(requestDirectory, getResultFileName()),
-              Charset.defaultCharset());
+    try {
+      String result = (cacheKey == null) ? null : responseCache.get(cacheKey);
+      if (result != null) {
+        LOG.debug("Using the cached stack advisor result for {} with key {}", getCommandType(), cacheKey);
+      } else {
+        createRequestDirectory();
+
+        FileUtils.writeStringToFile(new File(requestDirectory, "hosts.json"), adjusted.hostsJSON,
+                Charset.defaultCharset());
+        FileUtils
+                .writeStringToFile(new File(requestDirectory, "services.json"), adjusted.servicesJSON,
+                        Charset.defaultCharset());
+
+        saRunner.runScript(serviceAdvisorType, getCommandType(), requestDirectory);
+        result = FileUtils.readFileToString(new File(requestDirectory, getResultFileName()),
+                Charset.defaultCharset());
+
+        if (cacheKey != null) {
+          responseCache.put(cacheKey, result);
+        }
+      }
 
       T response = this.mapper.readValue(result, this.type);
       return updateResponse(request, setRequestId(response));
@@ -6,73 +6,204 @@
  * to you under the Apache License, Version 2.0 (the
  * "License"); you may not use this file except in compliance
  * with the License.  You may obtain a copy of the License at
- * <p/>
- * http://www.apache.org/licenses/LICENSE-2.0
- * <p/>
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.apache.ambari.server.audit;
 
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.ambari.server.audit.event.AuditEvent;
 import org.apache.ambari.server.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
 /**
- * This is a wrapper for an audit log implementation that uses {@link EventBus} to make audit logging asynchronous
+ * This is a wrapper for an audit log implementation that makes audit logging asynchronous.
+ * <p>
+ * Events are put into a lock-free ring buffer and a single writer thread drains them, handing them
+ * to the wrapped logger in batches. Callers never format or write events themselves; what happens
+ * when the buffer is full is decided by the configured {@link OverflowPolicy}.
+ * <p>
+ * Events spilled to the overflow file are replayed into the audit log by the writer once the queue
+ * is empty, and on startup for events left over by a previous run. An event may be written twice
+ * if the server stops while replaying.
  */
 @Singleton
 class AsyncAuditLogger implements AuditLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditLogger.class);
+
   /**
    * Name for guice injection
    */
   final static String InnerLogger = "AsyncAuditLogger";
 
   /**
-   * Event bus that holds audit event objects
+   * How long the writer sleeps when it finds the queue empty, unless woken up by a producer.
+   */
+  private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  /**
+   * How long a blocked producer waits before retrying to put an event into the queue.
    */
-  private EventBus eventBus;
+  private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /**
+   * Suffix of the file the overflow file is moved to while it is replayed.
+   */
+  static final String REPLAY_SUFFIX = ".replaying";
+
+  /**
+   * What to do with events which do not fit into the queue.
+   */
+  enum OverflowPolicy {
+    /**
+     * Wait until there is space in the queue.
+     */
+    BLOCK,
+    /**
+     * Discard the event and count it.
+     */
+    DROP,
+    /**
+     * Write the event to the overflow file.
+     */
+    SPILL;
+
+    static OverflowPolicy fromString(String value) {
+      for (OverflowPolicy policy : values()) {
+        if (policy.name().equalsIgnoreCase(value)) {
+          return policy;
+        }
+      }
+      LOG.warn("Unknown audit logger overflow policy '{}', using {}", value, BLOCK);
+      return BLOCK;
+    }
+  }
+
+  /**
+   * The logger that does the actual writing.
+   */
+  private final AuditLogger auditLogger;
+
+  /**
+   * Queue of events waiting to be written
+   */
+  private AuditEventRingBuffer<AuditEvent> queue;
 
   /**
    * Indicates if audit log feature is enabled
    */
   private final boolean isEnabled;
 
+  private final AuditLogStatistics statistics;
+
+  private OverflowPolicy overflowPolicy;
+
+  private int batchSize;
+
+  private String spillFile;
+
+  /**
+   * Lazily opened writer for the overflow file; guarded by {@link #spillLock}.
+   */
+  private Writer spillWriter;
+
+  private final Object spillLock = new Object();
+
+  /**
+   * Set when events were spilled since the last replay.
+   */
+  private volatile boolean spillPending;
+
+  private Thread writerThread;
+
+  /**
+   * Set by the writer before it goes to sleep so that producers know to wake it up.
+   */
+  private volatile boolean writerIdle;
+
   /**
    * Constructor.
    *
    * @param auditLogger the audit logger to use
    */
   @Inject
-  public AsyncAuditLogger(@Named(InnerLogger) AuditLogger auditLogger, Configuration configuration) {
+  public AsyncAuditLogger(@Named(InnerLogger) AuditLogger auditLogger, Configuration configuration,
+                          AuditLogStatistics statistics) {
+    this.auditLogger = auditLogger;
+    this.statistics = statistics;
     isEnabled = configuration.isAuditLogEnabled();
-    if(isEnabled) {
-      eventBus = new AsyncEventBus("AuditLoggerEventBus", new ThreadPoolExecutor(0, 1, 5L, TimeUnit.MINUTES,
-        new LinkedBlockingQueue<>(configuration.getAuditLoggerCapacity()), new AuditLogThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy()));
-      eventBus.register(auditLogger);
+    if (isEnabled) {
+      queue = new AuditEventRingBuffer<>(configuration.getAuditLoggerCapacity());
+      batchSize = Math.max(1, configuration.getAuditLoggerBatchSize());
+      overflowPolicy = OverflowPolicy.fromString(configuration.getAuditLoggerOverflowPolicy());
+      spillFile = configuration.getAuditLoggerSpillFile();
+      statistics.setQueue(queue);
+
+      writerThread = new AuditLogThreadFactory().newThread(new Runnable() {
+        @Override
+        public void run() {
+          writeEvents();
+        }
+      });
+      writerThread.start();
     }
   }
 
   @Override
   public void log(AuditEvent event) {
-    if(isEnabled) {
-      eventBus.post(event);
+    if (!isEnabled) {
+      return;
+    }
+
+    if (!queue.offer(event)) {
+      switch (overflowPolicy) {
+        case DROP:
+          statistics.onDropped();
+          break;
+        case SPILL:
+          spill(event);
+          break;
+        case BLOCK:
+        default:
+          do {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+          } while (!queue.offer(event));
+          break;
+      }
+    }
+
+    if (writerIdle) {
+      LockSupport.unpark(writerThread);
     }
   }
 
@@ -81,6 +212,150 @@ class AsyncAuditLogger implements AuditLogger {
     return isEnabled;
   }
 
+  /**
+   * The writer loop: drains the queue in batches and hands each batch to the wrapped logger.
+   */
+  private void writeEvents() {
+    List<AuditEvent> batch = new ArrayList<>(batchSize);
+    replaySpilledEvents();
+    while (!Thread.currentThread().isInterrupted()) {
+      if (queue.drainTo(batch, batchSize) == 0) {
+        if (spillPending) {
+          replaySpilledEvents();
+          continue;
+        }
+        writerIdle = true;
+        // re-check after publishing the flag so that a wake up from a producer is not missed
+        if (queue.isEmpty()) {
+          LockSupport.parkNanos(this, WRITER_IDLE_NANOS);
+        }
+        writerIdle = false;
+        continue;
+      }
+
+      writeBatch(batch);
+      batch.clear();
+      flushSpillFile();
+    }
+  }
+
+  private void writeBatch(List<AuditEvent> batch) {
+    long start = System.nanoTime();
+    try {
+      auditLogger.log(batch);
+    } catch (RuntimeException e) {
+      LOG.error("Unable to write {} audit events", batch.size(), e);
+    }
+    statistics.onBatchWritten(batch.size(), System.nanoTime() - start);
+  }
+
+  /**
+   * Moves the overflow file aside and writes its events to the audit log. Producers spilling in
+   * the meantime start a new overflow file, which is replayed the next time the queue is empty.
+   */
+  private void replaySpilledEvents() {
+    if (spillFile == null) {
+      return;
+    }
+    File file = new File(spillFile);
+    File replayFile = new File(spillFile + REPLAY_SUFFIX);
+    synchronized (spillLock) {
+      spillPending = false;
+      closeSpillFile();
+      if (replayFile.exists()) {
+        // left over by a run which stopped while replaying; the overflow file comes next
+        spillPending = file.exists();
+      } else if (file.length() == 0 || !file.renameTo(replayFile)) {
+        return;
+      }
+    }
+
+    int replayed = 0;
+    List<AuditEvent> batch = new ArrayList<>(batchSize);
+    try (BufferedReader reader = Files.newBufferedReader(replayFile.toPath(), StandardCharsets.UTF_8)) {
+      AuditEvent event = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        AuditEvent parsed = AuditLoggerDefaultImpl.parse(line);
+        if (parsed == null && event != null) {
+          // a message spanning several lines
+          event = new AuditLoggerDefaultImpl.FormattedAuditEvent(event.getTimestamp(),
+              event.getAuditMessage() + System.lineSeparator() + line);
+          continue;
+        }
+        if (event != null) {
+          batch.add(event);
+        }
+        event = parsed;
+        if (batch.size() >= batchSize) {
+          writeBatch(batch);
+          replayed += batch.size();
+          batch.clear();
+        }
+      }
+      if (event != null) {
+        batch.add(event);
+      }
+      if (!batch.isEmpty()) {
+        writeBatch(batch);
+        replayed += batch.size();
+      }
+    } catch (IOException e) {
+      LOG.error("Unable to replay audit events from {}, it is kept for the next start", replayFile, e);
+      return;
+    }
+
+    statistics.onReplayed(replayed);
+    LOG.info("Replayed {} audit events spilled to {}", replayed, spillFile);
+    if (!replayFile.delete()) {
+      LOG.error("Unable to delete {}, its audit events will be written again on the next start", replayFile);
+    }
+  }
+
+  /**
+   * Writes the event to the overflow file on the calling thread.
+   */
+  private void spill(AuditEvent event) {
+    synchronized (spillLock) {
+      try {
+        if (spillWriter == null) {
+          spillWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillFile, true),
+              StandardCharsets.UTF_8));
+        }
+        spillWriter.write(AuditLoggerDefaultImpl.format(event));
+        spillWriter.write(System.lineSeparator());
+        statistics.onSpilled();
+        spillPending = true;
+      } catch (IOException e) {
+        LOG.error("Unable to write audit event to {}, the event is lost", spillFile, e);
+        statistics.onDropped();
+      }
+    }
+  }
+
+  private void flushSpillFile() {
+    synchronized (spillLock) {
+      if (spillWriter != null) {
+        try {
+          spillWriter.flush();
+        } catch (IOException e) {
+          LOG.error("Unable to flush audit events to {}", spillFile, e);
+        }
+      }
+    }
+  }
+
+  private void closeSpillFile() {
+    if (spillWriter != null) {
+      try {
+        spillWriter.close();
+      } catch (IOException e) {
+        LOG.error("Unable to close {}", spillFile, e);
+      }
+      spillWriter = null;
+    }
+  }
+
   /**
    * A custom {@link ThreadFactory} for the threads that logs audit events
    */
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number telling whether it is free for the producer claiming
+ * position <code>n</code> (sequence == n) or holds the element the consumer expects at position
+ * <code>n</code> (sequence == n + 1). Producers claim positions with a CAS on the tail; the
+ * consumer owns the head and never contends with producers.
+ *
+ * @param <E> the element type
+ */
+class AuditEventRingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Only read and written by the consumer thread; volatile so that {@link #size()} can be
+   * called from other threads.
+   */
+  private volatile long head;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity the requested capacity, rounded up to the next power of two
+   */
+  AuditEventRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    mask = size - 1;
+    elements = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element if there is free space. Safe to call from any thread.
+   *
+   * @param element the element to add
+   * @return true if the element was added; false if the buffer is full
+   */
+  boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Moves up to <code>maxElements</code> elements into the given collection. Must only be called
+   * from the consumer thread.
+   *
+   * @param collection  the collection to add the elements to
+   * @param maxElements the maximum number of elements to move
+   * @return the number of elements moved
+   */
+  int drainTo(Collection<? super E> collection, int maxElements) {
+    long position = head;
+    int count = 0;
+    while (count < maxElements) {
+      int index = (int) (position & mask);
+      if (sequences.get(index) != position + 1) {
+        break;
+      }
+      collection.add(elements.get(index));
+      elements.lazySet(index, null);
+      sequences.lazySet(index, position + mask + 1);
+      position++;
+      count++;
+    }
+    head = position;
+    return count;
+  }
+
+  /**
+   * @return true if there are no elements to consume
+   */
+  boolean isEmpty() {
+    long position = head;
+    return sequences.get((int) (position & mask)) != position + 1;
+  }
+
+  /**
+   * @return the approximate number of elements in the buffer
+   */
+  int size() {
+    return (int) Math.max(0, Math.min(tail.get() - head, mask + 1));
+  }
+
+  /**
+   * @return the capacity of the buffer
+   */
+  int capacity() {
+    return mask + 1;
+  }
+}
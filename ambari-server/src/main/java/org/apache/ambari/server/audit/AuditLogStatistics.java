@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Singleton;
+
+/**
+ * Counters describing the audit log pipeline, read by
+ * {@link org.apache.ambari.server.metrics.system.impl.AuditLogMetricsSource}.
+ */
+@Singleton
+public class AuditLogStatistics {
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong spilled = new AtomicLong();
+  private final AtomicLong replayed = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong writeTimeNanos = new AtomicLong();
+  private final AtomicLong maxWriteTimeNanos = new AtomicLong();
+
+  private volatile AuditEventRingBuffer<?> queue;
+
+  void setQueue(AuditEventRingBuffer<?> queue) {
+    this.queue = queue;
+  }
+
+  void onBatchWritten(int size, long nanos) {
+    written.addAndGet(size);
+    batches.incrementAndGet();
+    writeTimeNanos.addAndGet(nanos);
+    long max = maxWriteTimeNanos.get();
+    while (nanos > max && !maxWriteTimeNanos.compareAndSet(max, nanos)) {
+      max = maxWriteTimeNanos.get();
+    }
+  }
+
+  void onDropped() {
+    dropped.incrementAndGet();
+  }
+
+  void onSpilled() {
+    spilled.incrementAndGet();
+  }
+
+  void onReplayed(int count) {
+    replayed.addAndGet(count);
+  }
+
+  /**
+   * @return the number of events waiting to be written
+   */
+  public int getQueueDepth() {
+    AuditEventRingBuffer<?> buffer = queue;
+    return buffer == null ? 0 : buffer.size();
+  }
+
+  /**
+   * @return the capacity of the queue
+   */
+  public int getQueueCapacity() {
+    AuditEventRingBuffer<?> buffer = queue;
+    return buffer == null ? 0 : buffer.capacity();
+  }
+
+  /**
+   * @return the number of events written to the audit log
+   */
+  public long getWritten() {
+    return written.get();
+  }
+
+  /**
+   * @return the number of events discarded because the queue was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of events written to the overflow file because the queue was full
+   */
+  public long getSpilled() {
+    return spilled.get();
+  }
+
+  /**
+   * @return the number of events read back from the overflow file and written to the audit log
+   */
+  public long getReplayed() {
+    return replayed.get();
+  }
+
+  /**
+   * @return the number of batches written
+   */
+  public long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * @return the average time it took to write a batch, in milliseconds
+   */
+  public double getAverageBatchWriteTime() {
+    long count = batches.get();
+    return count == 0 ? 0 : (double) writeTimeNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Returns the longest time it took to write a batch since the last call, and resets it.
+   *
+   * @return the maximum batch write time, in milliseconds
+   */
+  public double getAndResetMaxBatchWriteTime() {
+    return (double) maxWriteTimeNanos.getAndSet(0) / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -18,6 +18,8 @@
 
 package org.apache.ambari.server.audit;
 
+import java.util.List;
+
 import org.apache.ambari.server.audit.event.AuditEvent;
 
 /**
@@ -31,6 +33,16 @@ public interface AuditLogger {
    */
   void log(final AuditEvent event);
 
+  /**
+   * Logs a batch of audit log events
+   * @param events
+   */
+  default void log(final List<AuditEvent> events) {
+    for (AuditEvent event : events) {
+      log(event);
+    }
+  }
+
   /**
    * Returns if the feature is enabled
    */
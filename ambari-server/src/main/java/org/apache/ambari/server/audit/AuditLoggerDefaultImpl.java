@@ -19,15 +19,16 @@
 package org.apache.ambari.server.audit;
 
 import java.text.DateFormat;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.ambari.server.audit.event.AuditEvent;
 import org.apache.ambari.server.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -44,7 +45,7 @@ public class AuditLoggerDefaultImpl implements AuditLogger {
    */
   private final boolean isEnabled;
 
-  private ThreadLocal<DateFormat> dateFormatThreadLocal = new ThreadLocal<DateFormat>(){
+  private static final ThreadLocal<DateFormat> dateFormatThreadLocal = new ThreadLocal<DateFormat>(){
     @Override
     protected DateFormat initialValue() {
       //2016-03-11T10:42:36.376Z
@@ -61,18 +62,90 @@ public class AuditLoggerDefaultImpl implements AuditLogger {
    * {@inheritDoc}
    */
   @Override
-  @Subscribe
   public void log(AuditEvent event) {
     if(!isEnabled) {
       return;
     }
 
+    LOG.info(format(event));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The whole batch is written as a single log record, one line per event.
+   */
+  @Override
+  public void log(List<AuditEvent> events) {
+    if(!isEnabled || events.isEmpty()) {
+      return;
+    }
+
+    StringBuilder builder = new StringBuilder(events.size() * 256);
+    for (AuditEvent event : events) {
+      if (builder.length() > 0) {
+        builder.append(System.lineSeparator());
+      }
+      builder.append(format(event));
+    }
+    LOG.info(builder.toString());
+  }
+
+  /**
+   * Formats an audit event as a line of the audit log.
+   *
+   * @param event the event
+   * @return the formatted event
+   */
+  static String format(AuditEvent event) {
     Date date = new Date(event.getTimestamp());
-    LOG.info("{}, {}", dateFormatThreadLocal.get().format(date), event.getAuditMessage());
+    return dateFormatThreadLocal.get().format(date) + ", " + event.getAuditMessage();
+  }
+
+  /**
+   * Parses a line written by {@link #format(AuditEvent)} back into an event.
+   *
+   * @param line the formatted event
+   * @return the event, or null if the line does not start with a timestamp
+   */
+  static AuditEvent parse(String line) {
+    int separator = line.indexOf(", ");
+    if (separator < 0) {
+      return null;
+    }
+    ParsePosition position = new ParsePosition(0);
+    Date date = dateFormatThreadLocal.get().parse(line.substring(0, separator), position);
+    if (date == null || position.getIndex() != separator) {
+      return null;
+    }
+    return new FormattedAuditEvent(date.getTime(), line.substring(separator + 2));
   }
 
   @Override
   public boolean isEnabled() {
     return isEnabled;
   }
+
+  /**
+   * An event read back from its formatted line.
+   */
+  static final class FormattedAuditEvent implements AuditEvent {
+    private final long timestamp;
+    private final String message;
+
+    FormattedAuditEvent(long timestamp, String message) {
+      this.timestamp = timestamp;
+      this.message = message;
+    }
+
+    @Override
+    public Long getTimestamp() {
+      return timestamp;
+    }
+
+    @Override
+    public String getAuditMessage() {
+      return message;
+    }
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.bootstrap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.apache.ambari.server.utils.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread that reads the standard output of the bootstrap script as it is written, copies it
+ * to a file, and passes on the host status events the script reports when a host bootstrap
+ * starts or finishes, so that the status of the hosts does not need to be polled.
+ * <p/>
+ * A host status event is a line of the form
+ * {@code BOOTSTRAP_HOST_STATUS:<host>:<RUNNING|DONE|FAILED>:<return code>}.
+ */
+class BSOutputReader extends Thread {
+  private static final Logger LOG = LoggerFactory.getLogger(BSOutputReader.class);
+
+  static final String HOST_STATUS_EVENT_PREFIX = "BOOTSTRAP_HOST_STATUS:";
+
+  /**
+   * Receives the host status events of the bootstrap script.
+   */
+  interface HostStatusListener {
+    /**
+     * @param host the host name
+     * @param status RUNNING, DONE or FAILED
+     * @param returnCode the return code of the host bootstrap, empty while it is running
+     */
+    void onHostStatus(String host, String status, String returnCode);
+  }
+
+  private final InputStream input;
+  private final File outputFile;
+  private final HostStatusListener listener;
+
+  BSOutputReader(InputStream input, File outputFile, HostStatusListener listener) {
+    super("BSOutputReader-" + outputFile.getParentFile().getName());
+    setDaemon(true);
+    this.input = input;
+    this.outputFile = outputFile;
+    this.listener = listener;
+  }
+
+  @Override
+  public void run() {
+    BufferedReader reader = null;
+    Writer writer = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(input, Charset.defaultCharset()));
+      writer = new OutputStreamWriter(new FileOutputStream(outputFile), Charset.defaultCharset());
+      String line;
+      while (null != (line = reader.readLine())) {
+        writer.write(line);
+        writer.write('\n');
+        if (line.startsWith(HOST_STATUS_EVENT_PREFIX)) {
+          writer.flush();
+          handleEvent(line.substring(HOST_STATUS_EVENT_PREFIX.length()));
+        }
+      }
+    } catch (IOException e) {
+      LOG.info("Error reading bootstrap output: " + e.getMessage());
+    } finally {
+      Closeables.closeSilently(writer);
+      Closeables.closeSilently(reader);
+    }
+  }
+
+  private void handleEvent(String event) {
+    // host names never contain ':', the return code is the last field and may be empty
+    String[] fields = event.split(":", -1);
+    if (fields.length < 2 || fields[0].isEmpty()) {
+      LOG.warn("Ignoring malformed bootstrap host status event " + event);
+      return;
+    }
+
+    String returnCode = fields.length > 2 ? fields[2].trim() : "";
+    try {
+      listener.onHostStatus(fields[0], fields[1].trim(), returnCode);
+    } catch (RuntimeException e) {
+      LOG.warn("Error handling bootstrap host status event " + event, e);
+    }
+  }
+}
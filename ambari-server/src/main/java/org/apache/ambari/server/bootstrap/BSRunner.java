@@ -22,14 +22,13 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.bootstrap.BootStrapStatus.BSStat;
 import org.apache.commons.io.FileUtils;
@@ -38,8 +37,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * @author ncole
+ * Runs the bootstrap script for the hosts of a request.  The script reports the status of
+ * each host on its standard output as soon as it changes, and adjusts how many hosts it
+ * bootstraps in parallel between the initial and maximum parallelism.
  *
+ * @author ncole
  */
 class BSRunner extends Thread {
   private static final Logger LOG = LoggerFactory.getLogger(BSRunner.class);
@@ -47,6 +49,23 @@ class BSRunner extends Thread {
   private static final String DEFAULT_USER = "root";
   private static final String DEFAULT_SSHPORT = "22";
 
+  /**
+   * 5 minutes timeout for a host. Same as in bootstrap.py
+   */
+  private static final long HOST_BS_TIMEOUT = 300000L;
+
+  /**
+   * How long the bootstrap script may go without reporting the status of any host.  The
+   * script starts or finishes a host at least once per host timeout while it is healthy.
+   */
+  private static final long PROGRESS_TIMEOUT = 2 * HOST_BS_TIMEOUT;
+
+  /**
+   * How often the logs of the hosts still being bootstrapped are read, so that their
+   * progress is shown before they finish.
+   */
+  private static final long LOG_REFRESH_INTERVAL = 10000L;
+
   private  boolean finished = false;
   private SshHostInfo sshHostInfo;
   private File bootDir;
@@ -63,11 +82,23 @@ class BSRunner extends Thread {
   private final String clusterOsFamily;
   private String projectVersion;
   private int serverPort;
+  private final int initialParallelism;
+  private final int maxParallelism;
+
+  /**
+   * The status of each host, in the order of the request, guarded by its own monitor.
+   */
+  private final Map<String, BSHostStatus> hostStatuses = new LinkedHashMap<>();
+
+  /**
+   * The last time the bootstrap script reported the status of a host.
+   */
+  private volatile long lastProgressTime;
 
   public BSRunner(BootStrapImpl impl, SshHostInfo sshHostInfo, String bootDir,
       String bsScript, String agentSetupScript, String agentSetupPassword,
       int requestId, long timeout, String hostName, boolean isVerbose, String clusterOsFamily,
-      String projectVersion, int serverPort)
+      String projectVersion, int serverPort, int initialParallelism, int maxParallelism)
   {
     this.requestId = requestId;
     this.sshHostInfo = sshHostInfo;
@@ -83,6 +114,8 @@ class BSRunner extends Thread {
     this.projectVersion = projectVersion;
     this.bsImpl = impl;
     this.serverPort = serverPort;
+    this.initialParallelism = initialParallelism;
+    this.maxParallelism = maxParallelism;
     BootStrapStatus status = new BootStrapStatus();
     status.setLog("RUNNING");
     status.setStatus(BSStat.RUNNING);
@@ -90,22 +123,79 @@ class BSRunner extends Thread {
   }
 
   /**
-   * Update the gathered data from reading output
-   *
+   * Updates the status of a host as soon as the bootstrap script reports that it finished.
    */
-  private class BSStatusCollector implements Runnable {
+  private class BSHostStatusUpdater implements BSOutputReader.HostStatusListener {
     @Override
-    public void run() {
-      BSHostStatusCollector collector = new BSHostStatusCollector(requestIdDir,
-          sshHostInfo.getHosts());
-      collector.run();
-      List<BSHostStatus> hostStatus = collector.getHostStatus();
-      BootStrapStatus status = new BootStrapStatus();
-      status.setHostsStatus(hostStatus);
-      status.setLog("");
-      status.setStatus(BSStat.RUNNING);
-      bsImpl.updateStatus(requestId, status);
+    public void onHostStatus(String host, String status, String returnCode) {
+      lastProgressTime = System.currentTimeMillis();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Bootstrap status of host {} is {}, returnCode={}", host, status, returnCode);
+      }
+      // hosts are running until they finish, and the final status is not overwritten
+      if (!"RUNNING".equals(status) && isRunning()) {
+        collectHostStatus(Collections.singletonList(host));
+      }
+    }
+  }
+
+  /**
+   * Marks all hosts as running and publishes their status.
+   */
+  private void initHostStatus() {
+    synchronized (hostStatuses) {
+      for (String host : sshHostInfo.getHosts()) {
+        BSHostStatus status = new BSHostStatus();
+        status.setHostName(host);
+        status.setStatus("RUNNING");
+        status.setLog("");
+        hostStatuses.put(host, status);
+      }
+      publishHostStatus();
+    }
+  }
+
+  /**
+   * Reads the status of the given hosts from their done and log files, and publishes
+   * the status of all hosts.  A host which finished while its files were read keeps its
+   * final status.
+   */
+  private void collectHostStatus(List<String> hosts) {
+    BSHostStatusCollector collector = new BSHostStatusCollector(requestIdDir, hosts);
+    collector.run();
+    synchronized (hostStatuses) {
+      for (BSHostStatus status : collector.getHostStatus()) {
+        BSHostStatus previous = hostStatuses.get(status.getHostName());
+        if (!"RUNNING".equals(status.getStatus()) || previous == null
+            || "RUNNING".equals(previous.getStatus())) {
+          hostStatuses.put(status.getHostName(), status);
+        }
+      }
+      publishHostStatus();
+    }
+  }
+
+  /**
+   * @return the hosts whose bootstrap has not finished yet
+   */
+  private List<String> getPendingHosts() {
+    List<String> pendingHosts = new ArrayList<>();
+    synchronized (hostStatuses) {
+      for (BSHostStatus status : hostStatuses.values()) {
+        if ("RUNNING".equals(status.getStatus())) {
+          pendingHosts.add(status.getHostName());
+        }
+      }
     }
+    return pendingHosts;
+  }
+
+  private void publishHostStatus() {
+    BootStrapStatus status = new BootStrapStatus();
+    status.setHostsStatus(new ArrayList<>(hostStatuses.values()));
+    status.setLog("");
+    status.setStatus(BSStat.RUNNING);
+    bsImpl.updateStatus(requestId, status);
   }
 
   private String createHostString(List<String> list) {
@@ -140,12 +230,17 @@ class BSRunner extends Thread {
   }
 
   /**
-   * Waits until the process has terminated or waiting time elapses.
+   * Waits until the process has terminated, the waiting time elapses or the process has
+   * not reported the status of any host for {@link #PROGRESS_TIMEOUT}.  Meanwhile the logs
+   * of the hosts still being bootstrapped are refreshed every {@link #LOG_REFRESH_INTERVAL}.
    * @param timeout time to wait in miliseconds
    * @return true if process has exited, false otherwise
    */
   private boolean waitForProcessTermination(Process process, long timeout) throws InterruptedException {
     long startTime = System.currentTimeMillis();
+    lastProgressTime = startTime;
+    long lastLogRefreshTime = startTime;
+    long now;
     do {
       try {
         process.exitValue();
@@ -153,19 +248,32 @@ class BSRunner extends Thread {
       } catch (IllegalThreadStateException ignored) {}
       // Check if process has terminated once per second
       Thread.sleep(1000);
-    } while (System.currentTimeMillis() - startTime < timeout);
+      now = System.currentTimeMillis();
+      if (now - lastLogRefreshTime >= LOG_REFRESH_INTERVAL) {
+        List<String> pendingHosts = getPendingHosts();
+        if (!pendingHosts.isEmpty()) {
+          collectHostStatus(pendingHosts);
+        }
+        lastLogRefreshTime = now;
+      }
+      if (now - lastProgressTime >= PROGRESS_TIMEOUT) {
+        LOG.warn("Bootstrap process has not reported the status of any host for {} seconds",
+          (now - lastProgressTime) / 1000);
+        return false;
+      }
+    } while (now - startTime < timeout);
     return false;
   }
 
   /**
-   * Calculates bootstrap timeout as a function of number of hosts.
+   * Calculates bootstrap timeout as a function of number of hosts.  bootstrap.py may lower
+   * its parallelism down to one host at a time when hosts fail or slow down, so the timeout
+   * allows for bootstrapping the hosts one after the other; a stalled bootstrap is detected
+   * earlier by the lack of progress.
    * @return timeout in milliseconds
    */
-  private long calculateBSTimeout(int hostCount) {
-    final int PARALLEL_BS_COUNT = 20; // bootstrap.py bootstraps 20 hosts in parallel
-    final long HOST_BS_TIMEOUT = 300000L; // 5 minutes timeout for a host (average). Same as in bootstrap.py
-
-    return Math.max(HOST_BS_TIMEOUT, HOST_BS_TIMEOUT * hostCount / PARALLEL_BS_COUNT);
+  static long calculateBSTimeout(int hostCount) {
+    return Math.max(HOST_BS_TIMEOUT, HOST_BS_TIMEOUT * hostCount);
   }
 
   public synchronized void finished() {
@@ -176,12 +284,6 @@ class BSRunner extends Thread {
   public void run() {
     String hostString = createHostString(sshHostInfo.getHosts());
     long bootstrapTimeout = calculateBSTimeout(sshHostInfo.getHosts().size());
-    // Startup a scheduled executor service to look through the logs
-    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    BSStatusCollector statusCollector = new BSStatusCollector();
-    ScheduledFuture<?> handle = null;
-    LOG.info("Kicking off the scheduler for polling on logs in " +
-    this.requestIdDir);
     String user = sshHostInfo.getUser();
     String userRunAs = sshHostInfo.getUserRunAs();
     if (user == null || user.isEmpty()) {
@@ -193,13 +295,12 @@ class BSRunner extends Thread {
        sshPort = DEFAULT_SSHPORT;
     }
 
-    String command[] = new String[13];
+    String command[] = new String[15];
     BSStat stat = BSStat.RUNNING;
     String scriptlog = "";
     try {
       createRunDir();
-      handle = scheduler.scheduleWithFixedDelay(statusCollector,
-        0, 10, TimeUnit.SECONDS);
+      initHostStatus();
       if (LOG.isDebugEnabled()) {
         // FIXME needs to be removed later
         // security hole
@@ -233,6 +334,8 @@ class BSRunner extends Thread {
       command[10] = this.serverPort+"";
       command[11] = userRunAs;
       command[12] = (this.passwordFile==null) ? "null" : this.passwordFile.toString();
+      command[13] = Integer.toString(this.initialParallelism);
+      command[14] = Integer.toString(this.maxParallelism);
 
       Map<String, String> envVariables = new HashMap<>();
 
@@ -252,7 +355,7 @@ class BSRunner extends Thread {
           requestIdDir + " user=" + user + " sshPort=" + sshPort + " keyfile=" + this.sshKeyFile +
           " passwordFile " + this.passwordFile + " server=" + this.ambariHostname +
           " version=" + projectVersion + " serverPort=" + this.serverPort + " userRunAs=" + userRunAs +
-          " timeout=" + bootstrapTimeout / 1000);
+          " timeout=" + bootstrapTimeout / 1000 + " progressTimeout=" + PROGRESS_TIMEOUT / 1000 + " parallelism=" + initialParallelism + "-" + maxParallelism);
 
       envVariables.put("AMBARI_PASSPHRASE", agentSetupPassword);
       if (this.verbose)
@@ -266,12 +369,15 @@ class BSRunner extends Thread {
       String bootStrapErrorFilePath = requestIdDir + File.separator + "bootstrap.err";
 
       ProcessBuilder pb = new ProcessBuilder(command);
-      pb.redirectOutput(new File(bootStrapOutputFilePath));
       pb.redirectError(new File(bootStrapErrorFilePath));
       Map<String, String> env = pb.environment();
       env.putAll(envVariables);
 
       Process process = pb.start();
+      // the output is read as it is written to get the status of each host as soon as it is known
+      BSOutputReader outputReader = new BSOutputReader(process.getInputStream(),
+        new File(bootStrapOutputFilePath), new BSHostStatusUpdater());
+      outputReader.start();
 
       try {
         String logInfoMessage = "Bootstrap output, log="
@@ -287,6 +393,7 @@ class BSRunner extends Thread {
           process.destroy();
           timedOut = true;
         }
+        outputReader.join(10000);
 
         String outMesg = "";
         String errMesg = "";       
@@ -310,29 +417,19 @@ class BSRunner extends Thread {
           stat = BSStat.SUCCESS;
         }
 
-        scheduler.schedule(new BSStatusCollector(), 0, TimeUnit.SECONDS);
+        // the status of hosts which were not reported by the script, such as those
+        // marked as failed above, is read from their done files
         long startTime = System.currentTimeMillis();
         while (true) {
+          List<String> pendingHosts = getPendingHosts();
           if (LOG.isDebugEnabled()) {
-            LOG.debug("Waiting for hosts status to be updated");
-          }
-          boolean pendingHosts = false;
-          BootStrapStatus tmpStatus = bsImpl.getStatus(requestId);
-          List <BSHostStatus> hostStatusList = tmpStatus.getHostsStatus();
-          if (hostStatusList != null) {
-            for (BSHostStatus status : hostStatusList) {
-              if (status.getStatus().equals("RUNNING")) {
-                pendingHosts = true;
-              }
-            }
-          } else {
-            //Failed to get host status, waiting for hosts status to be updated
-            pendingHosts = true;
+            LOG.debug("Waiting for hosts status to be updated, pending={}", pendingHosts);
           }
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("Whether hosts status yet to be updated, pending={}", pendingHosts);
+          if (pendingHosts.isEmpty()) {
+            break;
           }
-          if (!pendingHosts) {
+          collectHostStatus(pendingHosts);
+          if (getPendingHosts().isEmpty()) {
             break;
           }
           try {
@@ -349,17 +446,6 @@ class BSRunner extends Thread {
       } catch (InterruptedException e) {
         throw new IOException(e);
       } finally {
-        if (handle != null) {
-          handle.cancel(true);
-        }
-        /* schedule a last update */
-        scheduler.schedule(new BSStatusCollector(), 0, TimeUnit.SECONDS);
-        scheduler.shutdownNow();
-        try {
-          scheduler.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-          LOG.info("Interruped while waiting for scheduler");
-        }
         process.destroy();
       }
     } catch(IOException io) {
@@ -54,6 +54,8 @@ public class BootStrapImpl {
   private final String clusterOsFamily;
   private String projectVersion;
   private int serverPort;
+  private final int initialParallelism;
+  private final int maxParallelism;
 
   @Inject
   public BootStrapImpl(Configuration conf, AmbariMetaInfo ambariMetaInfo) throws IOException {
@@ -69,6 +71,8 @@ public class BootStrapImpl {
     projectVersion = ambariMetaInfo.getServerVersion();
     projectVersion = (projectVersion.equals(DEV_VERSION)) ? DEV_VERSION.replace("$", "") : projectVersion;
     serverPort = (conf.getApiSSLAuthentication())? conf.getClientSSLApiPort() : conf.getClientApiPort();
+    initialParallelism = conf.getBootStrapInitialParallelism();
+    maxParallelism = conf.getBootStrapMaxParallelism();
   }
 
   /**
@@ -130,7 +134,8 @@ public class BootStrapImpl {
     } else {
       bsRunner = new BSRunner(this, info, bootStrapDir.toString(),
           bootScript, bootSetupAgentScript, bootSetupAgentPassword, requestId, 0L,
-          masterHostname, info.isVerbose(), clusterOsFamily, projectVersion, serverPort);
+          masterHostname, info.isVerbose(), clusterOsFamily, projectVersion, serverPort,
+          initialParallelism, maxParallelism);
       bsRunner.start();
       response.setStatus(BSRunStat.OK);
       response.setLog("Running Bootstrap now.");
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.cleanup;
+
+import java.util.List;
+
+import org.apache.ambari.server.orm.dao.Cleanable;
+
+/**
+ * A {@link Cleanable} which can also be purged in small chunks while the server is running.
+ * <p/>
+ * History is purged by root record (e.g. a request together with its stages and tasks). Root
+ * records are identified by ascending ids, which allows a purge to be resumed from the last id it
+ * processed.
+ */
+public interface ChunkedCleanable extends Cleanable {
+
+  /**
+   * Finds the ids of root records matching the policy, in ascending order.
+   *
+   * @param policy  the cleanup policy
+   * @param afterId only ids greater than this are returned
+   * @param limit   the maximum number of ids returned
+   * @return the ids, never {@code null}
+   */
+  List<Long> findCleanupIds(TimeBasedCleanupPolicy policy, long afterId, int limit);
+
+  /**
+   * Counts the root records matching the policy.
+   *
+   * @param policy  the cleanup policy
+   * @param afterId only ids greater than this are counted
+   * @return the number of root records left to purge
+   */
+  long countCleanupIds(TimeBasedCleanupPolicy policy, long afterId);
+
+  /**
+   * Deletes the given root records and their dependent rows in a single transaction.
+   *
+   * @param policy the cleanup policy
+   * @param ids    ids previously returned by {@link #findCleanupIds}
+   * @return the number of deleted rows
+   */
+  long cleanupIds(TimeBasedCleanupPolicy policy, List<Long> ids);
+}
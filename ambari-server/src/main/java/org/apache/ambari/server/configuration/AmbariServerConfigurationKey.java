@@ -85,6 +85,7 @@ public enum AmbariServerConfigurationKey {
   PAGINATION_ENABLED(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.pagination_enabled", PLAINTEXT, "true", "Determines whether results from LDAP are paginated when requested.", false),
   COLLISION_BEHAVIOR(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.collision_behavior", PLAINTEXT, "convert", "Determines how to handle username collision while updating from LDAP.", false),
   DISABLE_ENDPOINT_IDENTIFICATION(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.disable_endpoint_identification", PLAINTEXT, "false", "Determines whether to disable endpoint identification (hostname verification) during SSL handshake while updating from LDAP.", false),
+  SYNC_CHANGE_ATTRIBUTE(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.sync_change_attribute", PLAINTEXT, "modifyTimestamp", "The operational attribute used by incremental LDAP synchronization to find users and groups changed since the previous sync, such as 'modifyTimestamp' or 'uSNChanged'. If blank, incremental syncs read the whole directory and rely on the change index only.", false),
 
   /* ********************************************************
    * SSO Configuration Keys
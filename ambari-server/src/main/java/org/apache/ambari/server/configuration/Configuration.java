@@ -400,6 +400,23 @@ public class Configuration {
   public static final ConfigurationProperty<String> BOOTSTRAP_MASTER_HOSTNAME = new ConfigurationProperty<>(
       "bootstrap.master_host_name", null);
 
+  /**
+   * The number of hosts which are bootstrapped in parallel when a bootstrap
+   * request starts.
+   */
+  @Markdown(description = "The number of hosts which are bootstrapped in parallel when a bootstrap request starts. "
+      + "The parallelism is then adjusted between 1 and `bootstrap.parallel.max` depending on the failure rate and the duration of the host bootstraps.")
+  public static final ConfigurationProperty<Integer> BOOTSTRAP_PARALLEL_INITIAL = new ConfigurationProperty<>(
+      "bootstrap.parallel.initial", 20);
+
+  /**
+   * The maximum number of hosts which are bootstrapped in parallel.
+   */
+  @Markdown(description = "The maximum number of hosts which are bootstrapped in parallel. "
+      + "If it is not greater than `bootstrap.parallel.initial`, the parallelism is fixed.")
+  public static final ConfigurationProperty<Integer> BOOTSTRAP_PARALLEL_MAX = new ConfigurationProperty<>(
+      "bootstrap.parallel.max", 100);
+
   /**
    * The amount of time that recommendation API data is kept on the Ambari
    * Server file system. This is specified using a {@code hdwmy} syntax for
@@ -436,6 +453,39 @@ public class Configuration {
       "stackadvisor.script",
       AmbariPath.getPath("/var/lib/ambari-server/resources/scripts/stack_advisor.py"));
 
+  /**
+   * The number of long-lived Python stack advisor processes used to run
+   * recommendations and validations. {@code 0} starts a new process for every
+   * call.
+   */
+  @Markdown(description = "The number of long-lived Python stack advisor processes which run recommendation and validation requests. When set to `0`, a new stack advisor process is started for every request.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_WORKER_POOL_SIZE = new ConfigurationProperty<>(
+      "stackadvisor.worker.pool.size", 0);
+
+  /**
+   * The number of requests after which a stack advisor worker process is
+   * replaced.
+   */
+  @Markdown(description = "The number of requests a long-lived Python stack advisor process runs before it is replaced by a new one.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_WORKER_MAX_REQUESTS = new ConfigurationProperty<>(
+      "stackadvisor.worker.max.requests", 100);
+
+  /**
+   * The time, in seconds, a stack advisor worker process is given to answer a
+   * request before it is killed.
+   */
+  @Markdown(description = "The time, in seconds, a long-lived Python stack advisor process is given to start or to complete a request before it is killed.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_WORKER_TIMEOUT = new ConfigurationProperty<>(
+      "stackadvisor.worker.timeout", 300);
+
+  /**
+   * The number of stack advisor results kept to answer requests with the same
+   * hosts and services information.
+   */
+  @Markdown(description = "The number of stack advisor results cached by the hosts, services and configurations they were computed from, so that identical recommendation and validation requests do not run the stack advisor again. When set to `0`, results are not cached.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_RESPONSE_CACHE_SIZE = new ConfigurationProperty<>(
+      "stackadvisor.response.cache.size", 100);
+
   /**
    * The name of the shell script used to wrap all invocations of Python by Ambari.
    */
@@ -999,6 +1049,24 @@ public class Configuration {
   @Markdown(description = "Enable the profiling of internal locks.")
   public static final ConfigurationProperty<Boolean> SERVER_LOCKS_PROFILING = new ConfigurationProperty<>("server.locks.profiling", Boolean.FALSE);
 
+  /**
+   * Enable the collection of contention statistics for internal locks. Disabled
+   * by default as it adds about 10 ns to every uncontended acquisition, which
+   * lowers the throughput of short critical sections by a third (see
+   * {@code LockTelemetryBenchmark}).
+   */
+  @Markdown(description = "Enable the collection of contention statistics (acquisitions, sampled wait and hold times) for internal locks. Each uncontended lock acquisition takes about 10 ns longer, so the throughput of very short critical sections drops by 30% to 40%. Ignored if `server.locks.profiling` is enabled.")
+  public static final ConfigurationProperty<Boolean> SERVER_LOCKS_TELEMETRY = new ConfigurationProperty<>("server.locks.telemetry", Boolean.FALSE);
+
+  /**
+   * One in this many lock acquisitions is timed when lock telemetry is enabled.
+   */
+  @Markdown(
+      relatedTo = "server.locks.telemetry",
+      description = "The rate at which lock acquisitions are sampled for wait and hold times when lock telemetry is enabled. One in this many acquisitions is timed.")
+  public static final ConfigurationProperty<Integer> SERVER_LOCKS_TELEMETRY_SAMPLE_RATE = new ConfigurationProperty<>(
+      "server.locks.telemetry.sample.rate", 64);
+
   /**
    * The size of the cache used to hold {@link HostRoleCommand} instances in-memory.
    */
@@ -1053,6 +1121,14 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> SERVER_STALE_CONFIG_CACHE_EXPIRATION = new ConfigurationProperty<>(
       "server.cache.isStale.expiration", 600);
 
+  /**
+   * Determines whether the host component state kept in memory is checked
+   * against the database whenever it is read.
+   */
+  @Markdown(description = "Determines whether the state of host components kept in memory is checked against the database whenever it is read, logging any difference. This is meant for troubleshooting, as it brings back a database lookup on every read.")
+  public static final ConfigurationProperty<Boolean> SERVER_HOST_COMPONENT_STATE_CHECK_ENABLED = new ConfigurationProperty<>(
+      "server.hostComponentState.check.enabled", Boolean.FALSE);
+
   /**
    * The {@link PersistenceType} of the database.
    */
@@ -1159,6 +1235,14 @@ public class Configuration {
   public static final ConfigurationProperty<String> STACK_UPGRADE_AUTO_RETRY_COMMAND_DETAILS_TO_IGNORE = new ConfigurationProperty<>(
       "stack.upgrade.auto.retry.command.details.to.ignore", "\"Execute HDFS Finalize\"");
 
+  /**
+   * The number of threads used to resolve the hosts of the components being
+   * upgraded while the upgrade orchestration is planned.
+   */
+  @Markdown(description = "The number of threads used to resolve the hosts of the upgraded components, including the active and standby masters queried over JMX, while the orchestration of a stack upgrade is planned. When set to `1`, the hosts are resolved one component at a time.")
+  public static final ConfigurationProperty<Integer> STACK_UPGRADE_HOST_RESOLUTION_THREADS = new ConfigurationProperty<>(
+      "stack.upgrade.host.resolution.threads", 8);
+
   /* =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
    * Kerberos authentication-specific properties
    * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-= */
@@ -1553,6 +1637,40 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> REQUEST_LOG_RETAINDAYS = new ConfigurationProperty<>(
           "server.requestlogs.retaindays", 15);
 
+  /**
+   * The number of days of operational history kept by the online purge.
+   */
+  @Markdown(description = "The number of days of request and alert history retained by the online purge, which deletes older history in small chunks while the server is running. A value of `0` disables the online purge.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_ONLINE_RETENTION_DAYS = new ConfigurationProperty<>(
+      "server.purge.online.retention.days", 0);
+
+  /**
+   * The interval between online purge runs.
+   */
+  @Markdown(
+      relatedTo = "server.purge.online.retention.days",
+      description = "The amount of time to wait, in minutes, between runs of the online purge.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_ONLINE_INTERVAL_MINS = new ConfigurationProperty<>(
+      "server.purge.online.interval.mins", 60);
+
+  /**
+   * The maximum number of root records deleted by the online purge in one transaction.
+   */
+  @Markdown(
+      relatedTo = "server.purge.online.retention.days",
+      description = "The maximum number of requests or alert history entries, together with their dependent rows, deleted by the online purge in a single transaction.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_ONLINE_CHUNK_SIZE = new ConfigurationProperty<>(
+      "server.purge.online.chunk.size", 200);
+
+  /**
+   * The target duration of a single online purge chunk.
+   */
+  @Markdown(
+      relatedTo = "server.purge.online.chunk.size",
+      description = "The target duration, in milliseconds, of a single online purge transaction. Chunks are made smaller when deletes take longer than this and larger when they are faster. After each chunk the purge pauses for as long as the chunk took.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_ONLINE_TARGET_LATENCY_MS = new ConfigurationProperty<>(
+      "server.purge.online.target.latency.ms", 500);
+
   /**
    * The time, in {@link TimeUnit#MILLISECONDS}, until an external script is killed.
    */
@@ -1568,6 +1686,14 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT = new ConfigurationProperty<>(
     "server.script.threads", 20);
 
+  /**
+   * The number of generated client configuration archives kept to answer
+   * downloads of unchanged configurations.
+   */
+  @Markdown(description = "The number of generated client configuration archives cached by the configurations, cluster topology and stack scripts they were generated from, so that repeated downloads do not run the stack scripts again. When set to `0`, archives are not cached.")
+  public static final ConfigurationProperty<Integer> CLIENT_CONFIGS_CACHE_SIZE = new ConfigurationProperty<>(
+      "server.clientConfigs.cache.size", 100);
+
   public static final String DEF_ARCHIVE_EXTENSION;
   public static final String DEF_ARCHIVE_CONTENT_TYPE;
 
@@ -1851,6 +1977,23 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AGENTS_REGISTRATION_QUEUE_SIZE = new ConfigurationProperty<>(
       "agents.registration.queue.size", 200);
 
+  /**
+   * Whether agent registrations are admitted at the rate the server completes them.
+   */
+  @Markdown(description = "Determines whether agent registrations are admitted, while agents are registering, at the rate at which the server "
+      + "was measured to complete them over the last few seconds. Agents which are not admitted reconnect later, "
+      + "which spreads out the registration of many agents at once, such as after a server restart.")
+  public static final ConfigurationProperty<Boolean> AGENTS_REGISTRATION_PACING_ENABLED = new ConfigurationProperty<>(
+      "agents.registration.pacing.enabled", Boolean.TRUE);
+
+  /**
+   * Whether the data sent to agents when they register is built for all hosts on startup.
+   */
+  @Markdown(description = "Determines whether the topology, metadata, configurations, host level parameters and alert definitions "
+      + "sent to agents when they register are built for all hosts when the server starts, instead of when each agent registers.")
+  public static final ConfigurationProperty<Boolean> AGENTS_REGISTRATION_DATA_PREBUILD_ENABLED = new ConfigurationProperty<>(
+      "agents.registration.data.prebuild.enabled", Boolean.TRUE);
+
 
   /**
    * Period in seconds with agents reports will be processed.
@@ -2355,6 +2498,35 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AUDIT_LOGGER_CAPACITY = new ConfigurationProperty<>(
       "auditlog.logger.capacity", 10000);
 
+  /**
+   * The maximum number of audit events formatted and written at once.
+   */
+  @Markdown(
+      relatedTo = "auditlog.logger.capacity",
+      description = "The maximum number of audit events the audit logger formats and writes at once.")
+  public static final ConfigurationProperty<Integer> AUDIT_LOGGER_BATCH_SIZE = new ConfigurationProperty<>(
+      "auditlog.logger.batch.size", 256);
+
+  /**
+   * What to do with audit events when the audit logger queue is full.
+   */
+  @Markdown(
+      relatedTo = "auditlog.logger.capacity",
+      description = "Determines what happens to audit events when the audit logger queue is full. " +
+          "`block` makes the caller wait for free space, `drop` discards the event and counts it, " +
+          "`spill` writes the event to the file set in `auditlog.logger.spill.file`.")
+  public static final ConfigurationProperty<String> AUDIT_LOGGER_OVERFLOW_POLICY = new ConfigurationProperty<>(
+      "auditlog.logger.overflow.policy", "block");
+
+  /**
+   * The file audit events are written to when the queue is full and the overflow policy is spill.
+   */
+  @Markdown(
+      relatedTo = "auditlog.logger.overflow.policy",
+      description = "The file audit events are written to when the audit logger queue is full and `auditlog.logger.overflow.policy` is `spill`. The events are replayed into the audit log once the queue is empty, and on server start.")
+  public static final ConfigurationProperty<String> AUDIT_LOGGER_SPILL_FILE = new ConfigurationProperty<>(
+      "auditlog.logger.spill.file", "/var/log/ambari-server/ambari-audit-overflow.log");
+
   /**
    * The UDP port to use when binding the SNMP dispatcher on Ambari Server startup.
    */
@@ -2369,6 +2541,42 @@ public class Configuration {
   public static final ConfigurationProperty<String> ALERTS_AMBARI_SNMP_DISPATCH_UDP_PORT = new ConfigurationProperty<>(
           "alerts.ambari.snmp.dispatcher.udp.port", null);
 
+  /**
+   * The number of threads delivering alert notifications for each notification type.
+   */
+  @Markdown(description = "The number of threads used to deliver alert notifications for each notification type, such as `EMAIL` or `SNMP`. Each type has its own threads so that a slow target type does not delay the others.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_THREADS = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.threads", 2);
+
+  /**
+   * The maximum number of alert notices dispatched to a single target per dispatch run.
+   */
+  @Markdown(description = "The maximum number of alert notices dispatched to a single alert target each time pending notices are processed. Notices over the limit stay pending until the next run. A value of `0` means no limit.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_TARGET_LIMIT = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.target.limit", 0);
+
+  /**
+   * Whether notices for the same alert are coalesced for targets which don't support digests.
+   */
+  @Markdown(description = "Determines whether pending notices for the same alert and host are coalesced into a single notification, carrying the latest state, for alert targets which do not support digests, such as `SNMP` or `ALERT_SCRIPT`.")
+  public static final ConfigurationProperty<Boolean> ALERTS_NOTIFICATION_DISPATCH_COALESCE = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.coalesce", Boolean.FALSE);
+
+  /**
+   * The time, in seconds, that notices for the same alert are held back so
+   * that they are sent together.
+   */
+  @Markdown(description = "The time, in seconds, that pending notices for the same alert, host and target are held back after the first of them, so that the notices which follow within this window are sent as a single notification. Pending notices are processed every 2 minutes, so the window closes on the first run after it elapses. A value of `0` disables the window.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_COALESCE_WINDOW = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.coalesce.window", 0);
+
+  /**
+   * The maximum number of notifications per minute delivered to a single alert target.
+   */
+  @Markdown(description = "The maximum number of notifications per minute delivered to a single alert target. Notices over the rate are left pending for the next dispatch run, every 2 minutes. A value of `0` means no limit.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_TARGET_RATE = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.target.rate", 0);
+
   /**
    * The amount of time, in {@link TimeUnit#MINUTES}, that the
    * {@link MetricsRetrievalService} will cache retrieved metric data.
@@ -2482,7 +2690,7 @@ public class Configuration {
    * Defaults to <code>false</code>.
    * @see #TOPOLOGY_TASK_PARALLEL_CREATION_THREAD_COUNT
    */
-  @Markdown(description = "Indicates whether parallel topology task creation is enabled")
+  @Markdown(description = "Indicates whether parallel topology task creation is enabled. When enabled, the registrations of hosts accepted by blueprint requests are also persisted in batches off the host registration path.")
   public static final ConfigurationProperty<Boolean> TOPOLOGY_TASK_PARALLEL_CREATION_ENABLED = new ConfigurationProperty<>("topology.task.creation.parallel", Boolean.FALSE);
 
   /**
@@ -2493,6 +2701,17 @@ public class Configuration {
   @Markdown(description = "The number of threads to use for parallel topology task creation if enabled")
   public static final ConfigurationProperty<Integer> TOPOLOGY_TASK_PARALLEL_CREATION_THREAD_COUNT = new ConfigurationProperty<>("topology.task.creation.parallel.threads", 10);
 
+  /**
+   * The maximum number of host registrations persisted in one transaction when parallel topology
+   * task creation is enabled. Defaults to 100.
+   * @see #TOPOLOGY_TASK_PARALLEL_CREATION_ENABLED
+   */
+  @Markdown(
+      relatedTo = "topology.task.creation.parallel",
+      description = "The maximum number of registrations of hosts accepted by blueprint requests which are persisted in one transaction, if parallel topology task creation is enabled")
+  public static final ConfigurationProperty<Integer> TOPOLOGY_HOST_REGISTRATION_BATCH_SIZE = new ConfigurationProperty<>(
+      "topology.host.registration.batch.size", 100);
+
   /**
    * The number of acceptor threads for the agent jetty connector.
    */
@@ -3307,6 +3526,20 @@ public class Configuration {
     return getProperty(BOOTSTRAP_SETUP_AGENT_SCRIPT);
   }
 
+  /**
+   * @return the number of hosts bootstrapped in parallel when a bootstrap request starts
+   */
+  public int getBootStrapInitialParallelism() {
+    return Math.max(1, Integer.parseInt(getProperty(BOOTSTRAP_PARALLEL_INITIAL)));
+  }
+
+  /**
+   * @return the maximum number of hosts bootstrapped in parallel, which is at least the initial parallelism
+   */
+  public int getBootStrapMaxParallelism() {
+    return Math.max(getBootStrapInitialParallelism(), Integer.parseInt(getProperty(BOOTSTRAP_PARALLEL_MAX)));
+  }
+
   public String getBootSetupAgentPassword() {
     String pass = configsMap.get(PASSPHRASE.getKey());
 
@@ -3353,6 +3586,41 @@ public class Configuration {
     return getProperty(STACK_ADVISOR_SCRIPT);
   }
 
+  /**
+   * @return the number of long-lived stack advisor processes, or {@code 0} to
+   *         start a process for every request
+   * @see #STACK_ADVISOR_WORKER_POOL_SIZE
+   */
+  public int getStackAdvisorWorkerPoolSize() {
+    return Math.max(0, NumberUtils.toInt(getProperty(STACK_ADVISOR_WORKER_POOL_SIZE)));
+  }
+
+  /**
+   * @return the number of requests after which a stack advisor process is
+   *         replaced
+   * @see #STACK_ADVISOR_WORKER_MAX_REQUESTS
+   */
+  public int getStackAdvisorWorkerMaxRequests() {
+    return Math.max(1, NumberUtils.toInt(getProperty(STACK_ADVISOR_WORKER_MAX_REQUESTS)));
+  }
+
+  /**
+   * @return the time, in seconds, a stack advisor process has to answer
+   * @see #STACK_ADVISOR_WORKER_TIMEOUT
+   */
+  public int getStackAdvisorWorkerTimeout() {
+    return Math.max(1, NumberUtils.toInt(getProperty(STACK_ADVISOR_WORKER_TIMEOUT)));
+  }
+
+  /**
+   * @return the number of cached stack advisor results, or {@code 0} if
+   *         results are not cached
+   * @see #STACK_ADVISOR_RESPONSE_CACHE_SIZE
+   */
+  public int getStackAdvisorResponseCacheSize() {
+    return Math.max(0, NumberUtils.toInt(getProperty(STACK_ADVISOR_RESPONSE_CACHE_SIZE)));
+  }
+
   /**
    * @return a list of prefixes. Packages whose name starts with any of these
    * prefixes, should be skipped during upgrade.
@@ -3397,6 +3665,35 @@ public class Configuration {
     return result >= 0 ? result : 0;
   }
 
+  /**
+   * @return the number of days of history kept by the online purge, {@code 0}
+   *         if the online purge is disabled
+   */
+  public int getOnlinePurgeRetentionDays() {
+    return Math.max(0, NumberUtils.toInt(getProperty(SERVER_PURGE_ONLINE_RETENTION_DAYS)));
+  }
+
+  /**
+   * @return the number of minutes between online purge runs
+   */
+  public int getOnlinePurgeIntervalMins() {
+    return Math.max(1, NumberUtils.toInt(getProperty(SERVER_PURGE_ONLINE_INTERVAL_MINS)));
+  }
+
+  /**
+   * @return the maximum number of root records deleted in one online purge transaction
+   */
+  public int getOnlinePurgeChunkSize() {
+    return Math.max(1, NumberUtils.toInt(getProperty(SERVER_PURGE_ONLINE_CHUNK_SIZE)));
+  }
+
+  /**
+   * @return the target duration of one online purge transaction, in milliseconds
+   */
+  public int getOnlinePurgeTargetLatencyMs() {
+    return Math.max(1, NumberUtils.toInt(getProperty(SERVER_PURGE_ONLINE_TARGET_LATENCY_MS)));
+  }
+
   /**
    * If auto-retry during stack upgrade is enabled, skip any tasks whose custom command name contains at least one
    * of the strings in the following CSV property. Note that values have to be enclosed in quotes and separated by commas.
@@ -3421,6 +3718,15 @@ public class Configuration {
     return list;
   }
 
+  /**
+   * @return the number of threads resolving component hosts while an upgrade
+   *         is planned
+   * @see #STACK_UPGRADE_HOST_RESOLUTION_THREADS
+   */
+  public int getStackUpgradeHostResolutionThreads() {
+    return Math.max(1, NumberUtils.toInt(getProperty(STACK_UPGRADE_HOST_RESOLUTION_THREADS)));
+  }
+
   /**
    * Convert quoted elements separated by commas into a list. Values cannot contain double quotes or commas.
    * @param value, e.g., String with value "a","b","c" => ["a", "b", "c"]
@@ -4414,6 +4720,14 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(SERVER_STALE_CONFIG_CACHE_ENABLED));
   }
 
+  /**
+   * @return whether reads of the host component state kept in memory are
+   *         checked against the database
+   */
+  public boolean isHostComponentStateCheckEnabled() {
+    return Boolean.parseBoolean(getProperty(SERVER_HOST_COMPONENT_STATE_CHECK_ENABLED));
+  }
+
   /**
    * @return expiration time of stale config cache
    */
@@ -4521,6 +4835,15 @@ public class Configuration {
     return Integer.parseInt(getProperty(THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT));
   }
 
+  /**
+   * @return the number of cached client configuration archives, or {@code 0}
+   *         if archives are not cached
+   * @see #CLIENT_CONFIGS_CACHE_SIZE
+   */
+  public int getClientConfigsCacheSize() {
+    return Math.max(0, NumberUtils.toInt(getProperty(CLIENT_CONFIGS_CACHE_SIZE)));
+  }
+
   public boolean getParallelStageExecution() {
     return Boolean.parseBoolean(configsMap.get(PARALLEL_STAGE_EXECUTION.getKey()));
   }
@@ -4637,6 +4960,20 @@ public class Configuration {
     return Integer.parseInt(getProperty(AGENTS_REGISTRATION_QUEUE_SIZE));
   }
 
+  /**
+   * @return whether agent registrations are admitted at the rate the server completes them.
+   */
+  public boolean isAgentsRegistrationPacingEnabled() {
+    return Boolean.parseBoolean(getProperty(AGENTS_REGISTRATION_PACING_ENABLED));
+  }
+
+  /**
+   * @return whether the data sent to registering agents is built for all hosts on startup.
+   */
+  public boolean isAgentsRegistrationDataPrebuildEnabled() {
+    return Boolean.parseBoolean(getProperty(AGENTS_REGISTRATION_DATA_PREBUILD_ENABLED));
+  }
+
 
   /**
    * @return period in seconds with agents reports will be processed.
@@ -5312,6 +5649,20 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(SERVER_LOCKS_PROFILING));
   }
 
+  /**
+   * @return true if LockFactory should create locks which collect contention statistics
+   */
+  public boolean isServerLocksTelemetryEnabled() {
+    return Boolean.parseBoolean(getProperty(SERVER_LOCKS_TELEMETRY));
+  }
+
+  /**
+   * @return one in this many lock acquisitions is timed when lock telemetry is enabled
+   */
+  public int getServerLocksTelemetrySampleRate() {
+    return Integer.parseInt(getProperty(SERVER_LOCKS_TELEMETRY_SAMPLE_RATE));
+  }
+
   /**
    * @return the capacity of async audit logger
    */
@@ -5319,6 +5670,27 @@ public class Configuration {
     return NumberUtils.toInt(getProperty(AUDIT_LOGGER_CAPACITY));
   }
 
+  /**
+   * @return the maximum number of audit events written at once
+   */
+  public int getAuditLoggerBatchSize() {
+    return NumberUtils.toInt(getProperty(AUDIT_LOGGER_BATCH_SIZE));
+  }
+
+  /**
+   * @return the audit logger overflow policy name
+   */
+  public String getAuditLoggerOverflowPolicy() {
+    return getProperty(AUDIT_LOGGER_OVERFLOW_POLICY);
+  }
+
+  /**
+   * @return the file audit events overflow to
+   */
+  public String getAuditLoggerSpillFile() {
+    return getProperty(AUDIT_LOGGER_SPILL_FILE);
+  }
+
   /**
    * Customized UDP port for SNMP dispatcher
    * @return Integer if property exists else null
@@ -5337,6 +5709,41 @@ public class Configuration {
     return StringUtils.isEmpty(udpPort) ? null : Integer.parseInt(udpPort);
   }
 
+  /**
+   * @return the number of threads delivering alert notifications for each notification type
+   */
+  public int getAlertNotificationDispatchThreads() {
+    return Math.max(1, NumberUtils.toInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_THREADS)));
+  }
+
+  /**
+   * @return the maximum number of alert notices dispatched to one target per run, {@code 0} for no limit
+   */
+  public int getAlertNotificationDispatchTargetLimit() {
+    return Math.max(0, NumberUtils.toInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_TARGET_LIMIT)));
+  }
+
+  /**
+   * @return {@code true} if notices for the same alert are coalesced for targets without digest support
+   */
+  public boolean isAlertNotificationDispatchCoalesceEnabled() {
+    return Boolean.parseBoolean(getProperty(ALERTS_NOTIFICATION_DISPATCH_COALESCE));
+  }
+
+  /**
+   * @return the time, in seconds, that notices for the same alert are held back, {@code 0} for none
+   */
+  public int getAlertNotificationDispatchCoalesceWindow() {
+    return Math.max(0, NumberUtils.toInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_COALESCE_WINDOW)));
+  }
+
+  /**
+   * @return the maximum number of notifications per minute delivered to one target, {@code 0} for no limit
+   */
+  public int getAlertNotificationDispatchTargetRate() {
+    return Math.max(0, NumberUtils.toInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_TARGET_RATE)));
+  }
+
   /**
    * Gets the hosts/ports that proxy calls are allowed to be made to.
    *
@@ -5467,6 +5874,17 @@ public class Configuration {
     }
   }
 
+  /**
+   * @return the maximum number of host registrations persisted in one transaction
+   */
+  public int getTopologyHostRegistrationBatchSize() {
+    try {
+      return Integer.parseInt(getProperty(TOPOLOGY_HOST_REGISTRATION_BATCH_SIZE));
+    } catch (NumberFormatException e) {
+      return TOPOLOGY_HOST_REGISTRATION_BATCH_SIZE.getDefaultValue();
+    }
+  }
+
   /**
    * @return true if parallel execution of task creation is enabled explicitly
    */
@@ -48,7 +48,7 @@ public class AgentRegisteringQueueChecker extends ChannelInterceptorAdapter {
 
       return MessageBuilder.createMessage(new byte[0], headerAccessorError.getMessageHeaders());
     } else if (SimpMessageType.DISCONNECT_ACK.equals(headerAccessor.getMessageType())) {
-      agentsRegistrationQueue.complete(sessionId);
+      agentsRegistrationQueue.release(sessionId);
     }
     return message;
   }
@@ -19,9 +19,12 @@ package org.apache.ambari.server.configuration.spring;
 
 import javax.servlet.ServletContext;
 
+import org.apache.ambari.server.agent.stomp.AgentsRegistrationQueue;
 import org.apache.ambari.server.agent.stomp.HeartbeatController;
 import org.apache.ambari.server.events.DefaultMessageEmitter;
 import org.apache.ambari.server.events.listeners.requests.STOMPUpdateListener;
+import org.apache.ambari.server.metrics.system.impl.AgentCommandDeliveryMetricsSource;
+import org.apache.ambari.server.metrics.system.impl.AgentRegistrationMetricsSource;
 import org.eclipse.jetty.websocket.server.WebSocketServerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -61,6 +64,24 @@ public class AgentStompConfig extends AbstractWebSocketMessageBrokerConfigurer {
     return new STOMPUpdateListener(injector, DefaultMessageEmitter.DEFAULT_AGENT_EVENT_TYPES);
   }
 
+  /**
+   * Publishes the delivery statistics of the execution commands, which are emitted to the agents by the emitter of
+   * this context.
+   */
+  @Autowired
+  public void registerDeliveryMetrics(DefaultMessageEmitter defaultMessageEmitter) {
+    AgentCommandDeliveryMetricsSource.setMessageEmitter(defaultMessageEmitter);
+  }
+
+  /**
+   * Starts pacing the registrations of the agents, which connect to this context, and publishes their metrics.
+   */
+  @Autowired
+  public void startRegistrationQueue(AgentsRegistrationQueue agentsRegistrationQueue) {
+    agentsRegistrationQueue.start();
+    AgentRegistrationMetricsSource.setRegistrationQueue(agentsRegistrationQueue);
+  }
+
   public DefaultHandshakeHandler getHandshakeHandler() {
     WebSocketServerFactory webSocketServerFactory = new WebSocketServerFactory(servletContext);
     webSocketServerFactory.getPolicy().setMaxTextMessageSize(configuration.getStompMaxIncomingMessageSize());
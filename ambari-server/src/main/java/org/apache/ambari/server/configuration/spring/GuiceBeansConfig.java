@@ -114,7 +114,7 @@ public class GuiceBeansConfig {
     return new AgentRegisteringQueueChecker();
   }
 
-  @Bean
+  @Bean(destroyMethod = "stop")
   public AgentsRegistrationQueue agentsRegistrationQueue() {
     return new AgentsRegistrationQueue(injector);
   }
@@ -62,7 +62,7 @@ public class RootStompConfig {
     configuration = injector.getInstance(org.apache.ambari.server.configuration.Configuration.class);
   }
 
-  @Bean
+  @Bean(destroyMethod = "stop")
   public DefaultMessageEmitter defaultMessageEmitter(Injector injector) {
     org.apache.ambari.server.configuration.Configuration configuration =
         injector.getInstance(org.apache.ambari.server.configuration.Configuration.class);
@@ -5130,6 +5130,7 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
       LdapSyncRequest userRequest, LdapSyncRequest groupRequest)
       throws AmbariException {
     ldapSyncInProgress = true;
+    boolean incrementalSyncApplied = false;
     try {
 
       final LdapBatchDto batchInfo = new LdapBatchDto();
@@ -5151,6 +5152,9 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
           case EXISTING:
             ldapDataPopulator.synchronizeExistingLdapUsers(batchInfo, postProcessExistingUsers);
             break;
+          case INCREMENTAL:
+            ldapDataPopulator.synchronizeChangedLdapUsers(batchInfo, postProcessExistingUsers);
+            break;
           case SPECIFIC:
             ldapDataPopulator.synchronizeLdapUsers(userRequest.getPrincipalNames(), batchInfo, postProcessExistingUsers);
             break;
@@ -5171,6 +5175,9 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
           case EXISTING:
             ldapDataPopulator.synchronizeExistingLdapGroups(batchInfo, postProcessExistingUsersInGroups);
             break;
+          case INCREMENTAL:
+            ldapDataPopulator.synchronizeChangedLdapGroups(batchInfo, postProcessExistingUsersInGroups);
+            break;
           case SPECIFIC:
             ldapDataPopulator.synchronizeLdapGroups(groupRequest.getPrincipalNames(), batchInfo, postProcessExistingUsersInGroups);
             break;
@@ -5179,6 +5186,10 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
       users.processLdapSync(batchInfo);
 
+      // only skip the entries seen by an incremental sync once they were persisted
+      ldapDataPopulator.commitIncrementalSync();
+      incrementalSyncApplied = true;
+
       if (postProcessExistingUsers || postProcessExistingUsersInGroups) {
         // Execute post user creation hook on ignored users. These users were previously synced with
         // Ambari but the post user creation script may not have been run on them due to various
@@ -5198,6 +5209,9 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
       return batchInfo;
     } finally {
+      if (!incrementalSyncApplied) {
+        ldapDataPopulator.rollbackIncrementalSync();
+      }
       ldapSyncInProgress = false;
     }
   }
@@ -52,6 +52,7 @@ import org.apache.ambari.server.api.services.PersistKeyValueImpl;
 import org.apache.ambari.server.api.services.PersistKeyValueService;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorBlueprintProcessor;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorHelper;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRunner;
 import org.apache.ambari.server.audit.AuditLoggerModule;
 import org.apache.ambari.server.audit.request.RequestAuditLogger;
 import org.apache.ambari.server.bootstrap.BootStrapImpl;
@@ -112,6 +113,7 @@ import org.apache.ambari.server.security.unsecured.rest.CertificateSign;
 import org.apache.ambari.server.security.unsecured.rest.ConnectionInfo;
 import org.apache.ambari.server.serveraction.kerberos.stageutils.KerberosKeytabController;
 import org.apache.ambari.server.stack.UpdateActiveRepoVersionOnStartup;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.topology.AmbariContext;
 import org.apache.ambari.server.topology.BlueprintFactory;
@@ -597,6 +599,8 @@ public class AmbariServer {
         LOG.info("AmbariServer Metrics disabled.");
       }
 
+      Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownComponents, "ambari-server-shutdown"));
+
       server.join();
       LOG.info("Joined the Server");
     } catch (BadPaddingException bpe) {
@@ -893,6 +897,29 @@ public class AmbariServer {
       } catch (Exception e) {
         LOG.error("Error stopping the server", e);
       }
+      shutdownComponents();
+    }
+  }
+
+  /**
+   * Stops the background threads of the components which are not managed services, so that
+   * the work they have queued is completed or failed rather than lost. Called on shutdown.
+   */
+  private void shutdownComponents() {
+    try {
+      injector.getInstance(TopologyManager.class).stop();
+    } catch (Exception e) {
+      LOG.error("Error stopping the topology manager", e);
+    }
+    try {
+      injector.getInstance(StackAdvisorRunner.class).shutdown();
+    } catch (Exception e) {
+      LOG.error("Error stopping the stack advisor workers", e);
+    }
+    try {
+      injector.getInstance(UpgradePlanner.class).stop();
+    } catch (Exception e) {
+      LOG.error("Error stopping the upgrade planner", e);
     }
   }
 
@@ -380,7 +380,9 @@ public class ControllerModule extends AbstractModule {
     bindConstant().annotatedWith(Names.named("alertServiceCorePoolSize")).to(configuration.getAlertServiceCorePoolSize());
 
     bindConstant().annotatedWith(Names.named("dbInitNeeded")).to(dbInitNeeded);
-    bindConstant().annotatedWith(Names.named("statusCheckInterval")).to(5000L);
+    // Batch request jobs wait for request finished events, the status of a batch
+    // request is only checked at this interval in case an event is missed
+    bindConstant().annotatedWith(Names.named("statusCheckInterval")).to(30000L);
 
     //ExecutionCommands cache size
 
@@ -373,7 +373,7 @@ public class AlertDefinitionResourceProvider extends AbstractControllerResourceP
           alertDefinitionDAO.remove(entity);
 
           // publish the hash invalidation
-          final Set<String> invalidatedHosts = alertDefinitionHash.invalidateHosts(entity);
+          final Set<String> invalidatedHosts = alertDefinitionHash.removeFromHosts(entity);
           AlertHashInvalidationEvent event = new AlertHashInvalidationEvent(
               clusterId, invalidatedHosts);
 
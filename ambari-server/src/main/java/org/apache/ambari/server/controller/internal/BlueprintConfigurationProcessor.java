@@ -345,37 +345,26 @@ public class BlueprintConfigurationProcessor {
   }
 
   public Set<String> getRequiredHostGroups() {
+    ClusterTopology topology = beginUpdatePass();
+    try {
+      return doGetRequiredHostGroups();
+    } finally {
+      clusterTopology = topology;
+    }
+  }
+
+  private Set<String> doGetRequiredHostGroups() {
     Set<String> requiredHostGroups = new HashSet<>();
     Collection<Map<String, Map<String, PropertyUpdater>>> updaters = createCollectionOfUpdaters();
 
     // Iterate all registered updaters and collect host groups referenced by related properties and
-    // extracted by the updaters
-    for (Map<String, Map<String, PropertyUpdater>> updaterMap : updaters) {
-      for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
-        String type = entry.getKey();
-        for (Map.Entry<String, PropertyUpdater> updaterEntry : entry.getValue().entrySet()) {
-          String propertyName = updaterEntry.getKey();
-          PropertyUpdater updater = updaterEntry.getValue();
-
-          // cluster scoped configuration which also includes all default and BP properties
-          Map<String, Map<String, String>> clusterProps = clusterTopology.getConfiguration().getFullProperties();
-          Map<String, String> typeMap = clusterProps.get(type);
-          if (typeMap != null && typeMap.containsKey(propertyName) && typeMap.get(propertyName) != null) {
-            requiredHostGroups.addAll(updater.getRequiredHostGroups(
-              propertyName, typeMap.get(propertyName), clusterProps, clusterTopology));
-          }
-
-          // host group configs
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Map<String, Map<String, String>> hgConfigProps = groupInfo.getConfiguration().getProperties();
-            Map<String, String> hgTypeMap = hgConfigProps.get(type);
-            if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
-              requiredHostGroups.addAll(updater.getRequiredHostGroups(
-                propertyName, hgTypeMap.get(propertyName), hgConfigProps, clusterTopology));
-            }
-          }
-        }
-      }
+    // extracted by the updaters, first on the cluster scoped configuration which also includes all
+    // default and BP properties, then on the host group configs
+    Map<String, Map<String, String>> clusterProps = clusterTopology.getConfiguration().getFullProperties();
+    addRequiredHostGroupsByUpdaters(updaters, clusterProps, false, requiredHostGroups);
+    for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
+      Map<String, Map<String, String>> hgConfigProps = groupInfo.getConfiguration().getProperties();
+      addRequiredHostGroupsByUpdaters(updaters, hgConfigProps, true, requiredHostGroups);
     }
 
     // Iterate through all user defined properties (blueprint + cluster template only, no stack defaults) that do not
@@ -396,6 +385,35 @@ public class BlueprintConfigurationProcessor {
     return requiredHostGroups;
   }
 
+  /**
+   * Adds the host groups referenced by the properties of a configuration which have a registered updater.
+   * @param updaters the registered updaters
+   * @param properties properties to scan for host group references
+   * @param includeNullValues whether the updaters should also be called for properties without a value
+   * @param hostGroupAccumulator collection to accumulate required host groups
+   */
+  private void addRequiredHostGroupsByUpdaters(Collection<Map<String, Map<String, PropertyUpdater>>> updaters,
+                                               Map<String, Map<String, String>> properties,
+                                               boolean includeNullValues,
+                                               Set<String> hostGroupAccumulator) {
+    for (Map<String, Map<String, PropertyUpdater>> updaterMap : updaters) {
+      for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
+        Map<String, String> typeMap = properties.get(entry.getKey());
+        if (typeMap == null) {
+          continue;
+        }
+        for (Map.Entry<String, PropertyUpdater> updaterEntry : entry.getValue().entrySet()) {
+          String propertyName = updaterEntry.getKey();
+          String value = typeMap.get(propertyName);
+          if (value != null || (includeNullValues && typeMap.containsKey(propertyName))) {
+            hostGroupAccumulator.addAll(updaterEntry.getValue().getRequiredHostGroups(
+              propertyName, value, properties, clusterTopology));
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Adds required host groups based on user defined (in the blueprint or cluster template) configuration properties and
    * the default property updaters. Only those properties are considered which don't have a configured updater.
@@ -434,6 +452,15 @@ public class BlueprintConfigurationProcessor {
    * @return Set of config type names that were updated by this update call
    */
   public Set<String> doUpdateForClusterCreate() throws ConfigurationTopologyException {
+    ClusterTopology topology = beginUpdatePass();
+    try {
+      return doUpdateForClusterCreate(topology);
+    } finally {
+      clusterTopology = topology;
+    }
+  }
+
+  private Set<String> doUpdateForClusterCreate(ClusterTopology topology) throws ConfigurationTopologyException {
     Set<String> configTypesUpdated = new HashSet<>();
     Configuration clusterConfig = clusterTopology.getConfiguration();
 
@@ -466,7 +493,7 @@ public class BlueprintConfigurationProcessor {
     setStackToolsAndFeatures(clusterConfig, configTypesUpdated);
     addExcludedConfigProperties(clusterConfig, configTypesUpdated, clusterTopology.getBlueprint().getStack());
 
-    trimProperties(clusterConfig, clusterTopology);
+    trimProperties(clusterConfig, topology);
 
     return configTypesUpdated;
   }
@@ -650,54 +677,92 @@ public class BlueprintConfigurationProcessor {
    * Call registered updaters on cluster configuration + call default updater ({@link HostGroupUpdater#INSTANCE}) on
    * properties that were submitted in the blueprint or the cluster template and don't have a registered updater.
    */
-  private void doGeneralPropertyUpdatesForClusterCreate(Configuration clusterConfig,
-                                                        Map<String, Map<String, String>> clusterProps,
-                                                        Set<String> configTypesUpdated) {
-    // Iterate through the updaters and apply them in case applicable properties exist
+  @VisibleForTesting
+  void doGeneralPropertyUpdatesForClusterCreate(Configuration clusterConfig,
+                                                Map<String, Map<String, String>> clusterProps,
+                                                Set<String> configTypesUpdated) {
+    // Iterate through the updaters and apply them in case applicable properties exist, first on the
+    // topo cluster scoped configuration which also includes all default and BP properties, then on
+    // the host group configs
     Collection<Map<String, Map<String, PropertyUpdater>>> updaters = createCollectionOfUpdaters();
+    applyUpdaters(updaters, clusterConfig, clusterProps, configTypesUpdated);
+
+    // Iterate through all user defined properties (blueprint + cluster template) and call the default updater for those
+    // which don't have a configured updater. This is to make sure that %HOSTGROUP::name% tokens are replaced for each property
+    Set<Pair<String, String>> propertiesWithUpdaters = getAllPropertiesWithUpdaters(updaters);
+    // apply default updater on cluster config
+    applyDefaultUpdater(clusterConfig, clusterConfig.getFullProperties(1), configTypesUpdated, propertiesWithUpdaters);
+    // apply default updater on hostgroup configs
+    clusterTopology.getHostGroupInfo().values().stream().forEach(
+      hostGroup -> {
+        Configuration hostGroupConfig = hostGroup.getConfiguration();
+        Map<String, Map<String, String>> hostGroupConfigProps = hostGroupConfig.getFullProperties(1);
+        applyDefaultUpdater(hostGroupConfig, hostGroupConfigProps, configTypesUpdated, propertiesWithUpdaters);
+      });
+  }
+
+  /**
+   * Applies the registered updaters in their registration order, each one first on the cluster configuration, then
+   * on every host group configuration. Host group properties are left alone if the cluster scoped updater returned
+   * {@code null} for the same property.
+   * <p/>
+   * The merged properties of each host group config are materialized once rather than once per updater, and kept
+   * in step with the values written to the cluster and host group configs, so every updater sees exactly what it
+   * would see if they were recomputed.
+   * @param updaters the registered updaters
+   * @param clusterConfig the cluster configuration
+   * @param clusterProps full properties of the cluster configuration, which are not updated by this call
+   * @param configTypesUpdated set of updated config types
+   */
+  private void applyUpdaters(Collection<Map<String, Map<String, PropertyUpdater>>> updaters,
+                             Configuration clusterConfig,
+                             Map<String, Map<String, String>> clusterProps,
+                             Set<String> configTypesUpdated) {
+    List<Pair<Configuration, Map<String, Map<String, String>>>> hostGroupProps = new ArrayList<>();
+    for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
+      Configuration hgConfig = groupInfo.getConfiguration();
+      hostGroupProps.add(Pair.of(hgConfig, hgConfig.getFullProperties(1)));
+    }
+
     for (Map<String, Map<String, PropertyUpdater>> updaterMap : updaters) {
       for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
-        final String configType = entry.getKey();
+        String configType = entry.getKey();
         for (Map.Entry<String, PropertyUpdater> updaterEntry : entry.getValue().entrySet()) {
           String propertyName = updaterEntry.getKey();
           PropertyUpdater updater = updaterEntry.getValue();
 
-          // topo cluster scoped configuration which also includes all default and BP properties
           Map<String, String> typeMap = clusterProps.get(configType);
-          if (typeMap != null && typeMap.containsKey(propertyName) && typeMap.get(propertyName) != null) {
-            final String originalValue = typeMap.get(propertyName);
-            final String updatedValue =
-              updateValue(configType, propertyName, originalValue, updater, clusterProps, clusterConfig, configTypesUpdated, true);
+          if (typeMap != null && typeMap.get(propertyName) != null) {
+            String updatedValue = updateValue(configType, propertyName, typeMap.get(propertyName), updater,
+              clusterProps, clusterConfig, configTypesUpdated, true);
             if (null == updatedValue) {
               continue;
             }
+            // the value is now set on the cluster config, so host groups which inherit it see the new value
+            for (Pair<Configuration, Map<String, Map<String, String>>> hostGroup : hostGroupProps) {
+              Configuration hgConfig = hostGroup.getLeft();
+              Map<String, String> hgOwnTypeMap = hgConfig.getProperties().get(configType);
+              if (hgConfig.getParentConfiguration() == clusterConfig &&
+                (hgOwnTypeMap == null || !hgOwnTypeMap.containsKey(propertyName))) {
+                hostGroup.getRight().computeIfAbsent(configType, type -> new HashMap<>()).put(propertyName, updatedValue);
+              }
+            }
           }
-          // host group configs
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Configuration hgConfig = groupInfo.getConfiguration();
-            Map<String, Map<String, String>> hgConfigProps = hgConfig.getFullProperties(1);
+
+          for (Pair<Configuration, Map<String, Map<String, String>>> hostGroup : hostGroupProps) {
+            Map<String, Map<String, String>> hgConfigProps = hostGroup.getRight();
             Map<String, String> hgTypeMap = hgConfigProps.get(configType);
             if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
-              final String originalValue = hgTypeMap.get(propertyName);
-              updateValue(configType, propertyName, originalValue, updater, hgConfigProps, hgConfig, configTypesUpdated, true);
+              String updatedValue = updateValue(configType, propertyName, hgTypeMap.get(propertyName), updater,
+                hgConfigProps, hostGroup.getLeft(), configTypesUpdated, true);
+              if (null != updatedValue) {
+                hgTypeMap.put(propertyName, updatedValue);
+              }
             }
           }
         }
       }
     }
-
-    // Iterate through all user defined properties (blueprint + cluster template) and call the default updater for those
-    // which don't have a configured updater. This is to make sure that %HOSTGROUP::name% tokens are replaced for each property
-    Set<Pair<String, String>> propertiesWithUpdaters = getAllPropertiesWithUpdaters(updaters);
-    // apply default updater on cluster config
-    applyDefaultUpdater(clusterConfig, clusterConfig.getFullProperties(1), configTypesUpdated, propertiesWithUpdaters);
-    // apply default updater on hostgroup configs
-    clusterTopology.getHostGroupInfo().values().stream().forEach(
-      hostGroup -> {
-        Configuration hostGroupConfig = hostGroup.getConfiguration();
-        Map<String, Map<String, String>> hostGroupConfigProps = hostGroupConfig.getFullProperties(1);
-        applyDefaultUpdater(hostGroupConfig, hostGroupConfigProps, configTypesUpdated, propertiesWithUpdaters);
-      });
   }
 
   /**
@@ -842,6 +907,15 @@ public class BlueprintConfigurationProcessor {
    * This involves converting concrete topology information to host groups.
    */
   public void doUpdateForBlueprintExport(BlueprintExportType exportType) {
+    ClusterTopology topology = beginUpdatePass();
+    try {
+      doUpdateForBlueprintExport(exportType, (IndexedClusterTopology) clusterTopology);
+    } finally {
+      clusterTopology = topology;
+    }
+  }
+
+  private void doUpdateForBlueprintExport(BlueprintExportType exportType, IndexedClusterTopology topology) {
     // HA configs are only processed in cluster configuration, not HG configurations
     if (clusterTopology.isNameNodeHAEnabled()) {
       doNameNodeHAUpdate();
@@ -867,11 +941,13 @@ public class BlueprintConfigurationProcessor {
       }
     }
 
+    Map<String, Collection<String>> hostsByHostGroup = topology.getHostNamesByHostGroup();
+    List<Pair<Pattern, String>> hostReplacements = getHostReplacements(hostsByHostGroup);
     for (Configuration configuration : allConfigs) {
-      doSingleHostExportUpdate(singleHostTopologyUpdaters, configuration);
-      doSingleHostExportUpdate(dbHostTopologyUpdaters, configuration);
+      doSingleHostExportUpdate(singleHostTopologyUpdaters, configuration, hostsByHostGroup);
+      doSingleHostExportUpdate(dbHostTopologyUpdaters, configuration, hostsByHostGroup);
 
-      doMultiHostExportUpdate(multiHostTopologyUpdaters, configuration);
+      doMultiHostExportUpdate(multiHostTopologyUpdaters, configuration, hostReplacements);
 
       doNonTopologyUpdate(nonTopologyUpdaters, configuration);
 
@@ -884,6 +960,34 @@ public class BlueprintConfigurationProcessor {
     applyTypeSpecificFilter(exportType, clusterConfig, blueprint.getStack().getConfiguration(), blueprint.getServices());
   }
 
+  /**
+   * Indexes the topology for the duration of an update pass, as the host assignments do not change
+   * while the configuration is processed.
+   * @return the topology to restore once the pass is done
+   */
+  private ClusterTopology beginUpdatePass() {
+    ClusterTopology topology = clusterTopology;
+    clusterTopology = IndexedClusterTopology.of(topology);
+    return topology;
+  }
+
+  /**
+   * Compiles the patterns replacing the host names with host group tokens in multi host properties, in the
+   * order of the host groups.
+   * @param hostsByHostGroup host group name to the host names of the group
+   * @return host name patterns and their host group token replacements
+   */
+  private static List<Pair<Pattern, String>> getHostReplacements(Map<String, Collection<String>> hostsByHostGroup) {
+    List<Pair<Pattern, String>> hostReplacements = new ArrayList<>();
+    for (Map.Entry<String, Collection<String>> entry : hostsByHostGroup.entrySet()) {
+      String token = "%HOSTGROUP::" + entry.getKey() + "%";
+      for (String host : entry.getValue()) {
+        hostReplacements.add(Pair.of(Pattern.compile(host + "\\b"), token));
+      }
+    }
+    return hostReplacements;
+  }
+
   @VisibleForTesting
   void applyTypeSpecificFilter(BlueprintExportType exportType, Configuration clusterConfig, Configuration stackConfig, Collection<String> services) {
     if (exportType == BlueprintExportType.MINIMAL) {
@@ -1210,7 +1314,8 @@ public class BlueprintConfigurationProcessor {
 
     // perform a single host update on these dynamically generated property names
     if (highAvailabilityUpdaters.get("hdfs-site").size() > 0) {
-      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(),
+        IndexedClusterTopology.of(clusterTopology).getHostNamesByHostGroup());
     }
   }
 
@@ -1226,7 +1331,8 @@ public class BlueprintConfigurationProcessor {
 
     // perform a single host update on these dynamically generated property names
     if (highAvailabilityUpdaters.get("yarn-site").size() > 0) {
-      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(),
+        IndexedClusterTopology.of(clusterTopology).getHostNamesByHostGroup());
     }
   }
 
@@ -1240,7 +1346,8 @@ public class BlueprintConfigurationProcessor {
     Map<String, Map<String, PropertyUpdater>> highAvailabilityUpdaters = createMapOfOozieServerHAUpdaters();
 
     if (highAvailabilityUpdaters.get("oozie-site").size() > 0) {
-      doMultiHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doMultiHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(),
+        getHostReplacements(IndexedClusterTopology.of(clusterTopology).getHostNamesByHostGroup()));
     }
   }
 
@@ -1501,10 +1608,12 @@ public class BlueprintConfigurationProcessor {
   /**
    * Update single host topology configuration properties for blueprint export.
    *
-   * @param updaters       registered updaters
-   * @param configuration  configuration being processed
+   * @param updaters          registered updaters
+   * @param configuration     configuration being processed
+   * @param hostsByHostGroup  host group name to the host names of the group
    */
-  private void doSingleHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration) {
+  private void doSingleHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration,
+                                        Map<String, Collection<String>> hostsByHostGroup) {
     Map<String, Map<String, String>> properties = configuration.getFullProperties();
     for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaters.entrySet()) {
       String type = entry.getKey();
@@ -1515,14 +1624,14 @@ public class BlueprintConfigurationProcessor {
         if (typeProperties != null && typeProperties.containsKey(propertyName)) {
           String propValue = typeProperties.get(propertyName);
 
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Collection<String> hosts = groupInfo.getHostNames();
+          for (Map.Entry<String, Collection<String>> hostGroup : hostsByHostGroup.entrySet()) {
+            Collection<String> hosts = hostGroup.getValue();
             for (String host : hosts) {
               //todo: need to use regular expression to avoid matching a host which is a superset.
               if (propValue.contains(host)) {
                 matchedHost = true;
                 configuration.setProperty(type, propertyName,
-                  propValue.replace(host, "%HOSTGROUP::" + groupInfo.getHostGroupName() + "%"));
+                  propValue.replace(host, "%HOSTGROUP::" + hostGroup.getKey() + "%"));
                 break;
               }
             }
@@ -1601,10 +1710,12 @@ public class BlueprintConfigurationProcessor {
   /**
    * Update multi host topology configuration properties for blueprint export.
    *
-   * @param updaters       registered updaters
-   * @param configuration  configuration being processed
+   * @param updaters          registered updaters
+   * @param configuration     configuration being processed
+   * @param hostReplacements  host name patterns and their host group token replacements
    */
-  private void doMultiHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration) {
+  private void doMultiHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration,
+                                       List<Pair<Pattern, String>> hostReplacements) {
     Map<String, Map<String, String>> properties = configuration.getFullProperties();
     for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaters.entrySet()) {
       String type = entry.getKey();
@@ -1612,12 +1723,8 @@ public class BlueprintConfigurationProcessor {
         Map<String, String> typeProperties = properties.get(type);
         if (typeProperties != null && typeProperties.containsKey(propertyName)) {
           String propValue = typeProperties.get(propertyName);
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Collection<String> hosts = groupInfo.getHostNames();
-            for (String host : hosts) {
-              propValue = propValue.replaceAll(host + "\\b", "%HOSTGROUP::" +
-                groupInfo.getHostGroupName() + "%");
-            }
+          for (Pair<Pattern, String> hostReplacement : hostReplacements) {
+            propValue = hostReplacement.getLeft().matcher(propValue).replaceAll(hostReplacement.getRight());
           }
           Collection<String> addedGroups = new HashSet<>();
           String[] toks = propValue.split(",");
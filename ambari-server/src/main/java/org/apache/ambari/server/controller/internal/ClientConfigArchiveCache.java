@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.events.ClusterConfigChangedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Caches the client configuration archives generated by the stack scripts,
+ * keyed by the content they were generated from: the command script and the
+ * command JSON passed to it. As the command JSON carries the desired
+ * configurations of the host, including its config group overrides, the
+ * cluster topology and the stack version, an archive generated before is
+ * reused as long as none of them changed.
+ * <p/>
+ * Archives are kept as files in a directory of the server's temporary
+ * directory. The least recently used archives are evicted once the cache is
+ * full, and all archives are dropped when the configurations of a cluster
+ * change or the stack definitions they were generated with are reloaded. The
+ * archives returned by the cache are pinned until they are released, so that
+ * an archive evicted while a download bundles or streams it is only deleted
+ * once the download is done with it.
+ * <p/>
+ * The archive of a download is handed from the resource provider to the
+ * service streaming it to the response through the thread serving the
+ * request, as the provider has no access to the response.
+ */
+@Singleton
+public class ClientConfigArchiveCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClientConfigArchiveCache.class);
+
+  /**
+   * The directory, under the server's temporary directory, holding the archives.
+   */
+  private static final String ARCHIVE_DIRECTORY = "client-configs";
+
+  /**
+   * The number of recent generations the generation time percentiles are computed from.
+   */
+  private static final int GENERATION_TIME_SAMPLES = 1024;
+
+  private final File directory;
+
+  /**
+   * Archives by key, {@code null} if disabled.
+   */
+  private final Cache<String, Archive> archives;
+
+  private final Histogram generationTime = new Histogram(new SlidingWindowReservoir(GENERATION_TIME_SAMPLES));
+
+  /**
+   * The archive to stream as the response of the download served by the thread.
+   */
+  private final ThreadLocal<Archive> downloads = new ThreadLocal<>();
+
+  /**
+   * The stack definitions the cached archives were generated with.
+   */
+  private Object stackDefinitions;
+
+  @Inject
+  public ClientConfigArchiveCache(Configuration configuration, AmbariEventPublisher eventPublisher) {
+    directory = new File(configuration.getProperty(Configuration.SERVER_TMP_DIR), ARCHIVE_DIRECTORY);
+
+    int maximumSize = configuration.getClientConfigsCacheSize();
+    if (maximumSize > 0) {
+      archives = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats()
+          .removalListener((RemovalListener<String, Archive>) notification -> {
+            Archive archive = notification.getValue();
+            if (archive != null) {
+              archive.evict();
+            }
+          }).build();
+
+      // archives of a previous run are not known to the cache
+      FileUtils.deleteQuietly(directory);
+      eventPublisher.register(this);
+    } else {
+      archives = null;
+    }
+  }
+
+  /**
+   * @return {@code true} if archives are cached
+   */
+  public boolean isEnabled() {
+    return archives != null;
+  }
+
+  /**
+   * Gets the key of the archive generated by a command.
+   *
+   * @param commandScript the command script generating the archive
+   * @param commandJSON   the command JSON passed to the script
+   * @return the key
+   */
+  public String getKey(String commandScript, String commandJSON) {
+    return DigestUtils.sha256Hex(commandScript + "\n" + commandJSON);
+  }
+
+  /**
+   * Gets the key of an archive bundling other archives.
+   *
+   * @param fileName  the name of the bundle
+   * @param entryKeys the keys of the bundled archives, in bundling order
+   * @return the key
+   */
+  public String getKey(String fileName, Iterable<String> entryKeys) {
+    StringBuilder content = new StringBuilder(fileName);
+    for (String entryKey : entryKeys) {
+      content.append('\n').append(entryKey);
+    }
+    return DigestUtils.sha256Hex(content.toString());
+  }
+
+  /**
+   * Gets a cached archive, pinned until it is released.
+   *
+   * @param key the key of an archive
+   * @return the cached archive, or {@code null}
+   */
+  public Archive get(String key) {
+    Archive archive = archives.getIfPresent(key);
+    if (archive == null || !archive.acquire()) {
+      return null;
+    }
+    if (!archive.getFile().isFile()) {
+      archive.release();
+      archives.asMap().remove(key, archive);
+      return null;
+    }
+    return archive;
+  }
+
+  /**
+   * Creates the file a new archive is to be generated to. Concurrent downloads
+   * generating an archive with the same key each get their own file.
+   *
+   * @param key the key of the archive
+   * @return the file to generate the archive to
+   * @throws IOException if the archive directory could not be created
+   */
+  public File newArchiveFile(String key) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Unable to create the client configuration archive directory " + directory);
+    }
+    return new File(directory, key + "-" + UUID.randomUUID() + Configuration.DEF_ARCHIVE_EXTENSION);
+  }
+
+  /**
+   * Caches a generated archive, unless an archive with the same key was cached
+   * meanwhile.
+   *
+   * @param key  the key of the archive
+   * @param file the generated archive
+   * @return the cached archive, pinned until it is released
+   */
+  public Archive put(String key, File file) {
+    Archive archive = new Archive(file);
+    archive.acquire();
+    while (true) {
+      Archive cached = archives.asMap().putIfAbsent(key, archive);
+      if (cached == null) {
+        return archive;
+      }
+      if (cached.acquire()) {
+        archive.release();
+        archive.evict();
+        return cached;
+      }
+      // the cached archive is being evicted
+      if (archives.asMap().replace(key, cached, archive)) {
+        return archive;
+      }
+    }
+  }
+
+  /**
+   * Hands the archive of the download served by the calling thread over to
+   * the service streaming it. The pin of the archive is handed over too.
+   *
+   * @param archive the pinned archive to download
+   */
+  public void setDownload(Archive archive) {
+    Archive previous = downloads.get();
+    downloads.set(archive);
+    if (previous != null) {
+      previous.release();
+    }
+  }
+
+  /**
+   * Takes the archive of the download served by the calling thread.
+   *
+   * @return the pinned archive to download, or {@code null} if the download
+   *         was not served from the cache
+   */
+  public Archive takeDownload() {
+    Archive archive = downloads.get();
+    downloads.remove();
+    return archive;
+  }
+
+  /**
+   * Records the time taken to generate the archives of a download.
+   *
+   * @param millis   the generation time, in milliseconds
+   * @param archives the number of generated archives
+   */
+  public void recordGeneration(long millis, int archives) {
+    generationTime.update(millis);
+    LOG.info("Generated {} client configuration archives in {} ms, {}% of the archives requested so far were cached",
+        archives, millis, Math.round(getHitRatio() * 100));
+  }
+
+  /**
+   * @return the ratio of requested archives that were cached
+   */
+  public double getHitRatio() {
+    return archives.stats().hitRate();
+  }
+
+  /**
+   * @return the time, in milliseconds, recent downloads took to generate their archives
+   */
+  public Snapshot getGenerationTime() {
+    return generationTime.getSnapshot();
+  }
+
+  /**
+   * @return the number of cached archives
+   */
+  public long size() {
+    return archives.size();
+  }
+
+  /**
+   * Drops all cached archives if the stack definitions have been reloaded
+   * since the archives were generated.
+   *
+   * @param currentStackDefinitions the stack definitions in use
+   */
+  public synchronized void validate(Object currentStackDefinitions) {
+    if (stackDefinitions != currentStackDefinitions) {
+      if (stackDefinitions != null) {
+        LOG.info("Stack definitions were reloaded, dropping {} cached client configuration archives", archives.size());
+      }
+      archives.invalidateAll();
+      stackDefinitions = currentStackDefinitions;
+    }
+  }
+
+  /**
+   * Drops all cached archives once the configurations of a cluster change.
+   * Archives of the new configurations have different keys anyway, so this
+   * only frees the ones that will not be requested again.
+   *
+   * @param event the change event
+   */
+  @Subscribe
+  public void onConfigurationChangedEvent(ClusterConfigChangedEvent event) {
+    archives.invalidateAll();
+  }
+
+  /**
+   * A cached archive. It is deleted once it has been evicted and released by
+   * all the downloads it was returned to.
+   */
+  public static final class Archive {
+    private final File file;
+    private int users;
+    private boolean evicted;
+
+    Archive(File file) {
+      this.file = file;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * Pins the archive, unless it has been evicted.
+     *
+     * @return {@code true} if the archive was pinned
+     */
+    synchronized boolean acquire() {
+      if (evicted) {
+        return false;
+      }
+      users++;
+      return true;
+    }
+
+    /**
+     * Releases a pin of the archive.
+     */
+    public synchronized void release() {
+      users--;
+      deleteIfUnused();
+    }
+
+    /**
+     * Opens the archive to stream it. Closing the stream, or failing to open
+     * it, releases the pin of the caller.
+     *
+     * @return the content of the archive
+     * @throws IOException if the archive could not be opened
+     */
+    public InputStream openStream() throws IOException {
+      InputStream in;
+      try {
+        in = new FileInputStream(file);
+      } catch (IOException e) {
+        release();
+        throw e;
+      }
+
+      AtomicBoolean released = new AtomicBoolean();
+      return new FilterInputStream(in) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            if (released.compareAndSet(false, true)) {
+              release();
+            }
+          }
+        }
+      };
+    }
+
+    synchronized void evict() {
+      evicted = true;
+      deleteIfUnused();
+    }
+
+    private void deleteIfUnused() {
+      if (evicted && users == 0 && !file.delete() && file.exists()) {
+        LOG.debug("Unable to delete the client configuration archive {}", file);
+      }
+    }
+  }
+}
@@ -36,6 +36,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
@@ -88,6 +90,7 @@ import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,12 +98,18 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 
 /**
  * Resource provider for client config resources.
+ * <p/>
+ * The archives generated for a download are kept in the
+ * {@link ClientConfigArchiveCache}, so that downloads of unchanged
+ * configurations do not run the stack scripts again.
  */
+@StaticallyInject
 public class ClientConfigResourceProvider extends AbstractControllerResourceProvider {
 
 
@@ -134,6 +143,10 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
       HOST_COMPONENT_HOST_NAME_PROPERTY_ID);
 
   private MaintenanceStateHelper maintenanceStateHelper;
+
+  @Inject
+  private static ClientConfigArchiveCache archiveCache;
+
   private static final Logger LOG = LoggerFactory.getLogger(ClientConfigResourceProvider.class);
 
   // ----- Constructors ----------------------------------------------------
@@ -210,10 +223,138 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
     Configuration configs = new Configuration();
     Map<String, String> configMap = configs.getConfigsMap();
     String TMP_PATH = configMap.get(Configuration.SERVER_TMP_DIR.getKey());
-    String pythonCmd = configMap.get(Configuration.AMBARI_PYTHON_WRAP.getKey());
     List<String> pythonCompressFilesCmds = new ArrayList<>();
     List<File> commandFiles = new ArrayList<>();
 
+    // the archives of the components and the keys they are cached by, when caching
+    ClientConfigArchiveCache cache = (archiveCache != null && archiveCache.isEnabled()) ? archiveCache : null;
+    Map<String, String> componentArchiveKeys = new HashMap<>();
+    Map<String, ClientConfigArchiveCache.Archive> componentArchives = new HashMap<>();
+    Map<String, File> generatedArchives = new HashMap<>();
+    if (cache != null) {
+      cache.validate(getManagementController().getAmbariMetaInfo().getStackManager());
+    }
+
+    try {
+      addComponentCommands(componentMap, schRequest, configs, configMap, cache, schWithConfigFiles,
+          serviceToComponentMap, pythonCompressFilesCmds, commandFiles, componentArchiveKeys, componentArchives,
+          generatedArchives);
+
+      if (schWithConfigFiles.isEmpty()) {
+        throw new SystemException("No configuration files defined for any component" );
+      }
+
+      if (!pythonCompressFilesCmds.isEmpty()) {
+        long startTime = System.currentTimeMillis();
+        Integer totalCommands = pythonCompressFilesCmds.size() * 2;
+        Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
+        ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
+
+        // put all threads that starts process to compress each component config files in the executor
+        boolean generated = false;
+        try {
+          List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, pythonCompressFilesCmds);
+
+          // wait for all threads to finish
+          Integer timeout = configs.getExternalScriptTimeout();
+          waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
+          generated = true;
+        } finally {
+          for (File each : commandFiles) {
+            each.delete();
+          }
+          if (!generated) {
+            for (File each : generatedArchives.values()) {
+              FileUtils.deleteQuietly(each);
+            }
+          }
+        }
+
+        if (cache != null) {
+          for (Map.Entry<String, File> entry : generatedArchives.entrySet()) {
+            String componentName = entry.getKey();
+            componentArchives.put(componentName, cache.put(componentArchiveKeys.get(componentName), entry.getValue()));
+          }
+          cache.recordGeneration(System.currentTimeMillis() - startTime, generatedArchives.size());
+        }
+      }
+
+      if (StringUtils.isEmpty(requestComponentName)) {
+        String fileName;
+        List <ServiceComponentHostResponse> schToTarConfigFiles = schWithConfigFiles;
+        if (StringUtils.isNotEmpty(requestHostName)) {
+          fileName = requestHostName + "(" + Resource.InternalType.Host.toString().toUpperCase()+")";
+        } else if (StringUtils.isNotEmpty(requestServiceName)) {
+          fileName = requestServiceName + "(" + Resource.InternalType.Service.toString().toUpperCase()+")";
+          schToTarConfigFiles = serviceToComponentMap.get(requestServiceName);
+        } else {
+          fileName = schRequest.getClusterName() + "(" + Resource.InternalType.Cluster.toString().toUpperCase()+")";
+        }
+        if (cache == null) {
+          TarUtils tarUtils = new TarUtils(TMP_PATH, fileName, schToTarConfigFiles);
+          tarUtils.tarConfigFiles();
+        } else {
+          List<String> entryKeys = new ArrayList<>();
+          Map<String, File> entries = new LinkedHashMap<>();
+          for (ServiceComponentHostResponse schResponse : schToTarConfigFiles) {
+            String componentName = schResponse.getComponentName();
+            entryKeys.add(componentArchiveKeys.get(componentName));
+            entries.put(componentName, componentArchives.get(componentName).getFile());
+          }
+
+          String bundleKey = cache.getKey(fileName, entryKeys);
+          ClientConfigArchiveCache.Archive bundle = cache.get(bundleKey);
+          if (bundle == null) {
+            File bundleFile;
+            try {
+              bundleFile = cache.newArchiveFile(bundleKey);
+            } catch (IOException e) {
+              throw new SystemException("Failed to create the configurations archive", e);
+            }
+            try {
+              new TarUtils(bundleFile, entries).tarConfigFiles();
+            } catch (SystemException e) {
+              FileUtils.deleteQuietly(bundleFile);
+              throw e;
+            }
+            bundle = cache.put(bundleKey, bundleFile);
+          }
+          cache.setDownload(bundle);
+        }
+      } else if (cache != null) {
+        // the pin of the archive is handed over with it
+        cache.setDownload(componentArchives.remove(requestComponentName));
+      }
+    } finally {
+      // the archives are pinned while the download bundles them
+      for (ClientConfigArchiveCache.Archive archive : componentArchives.values()) {
+        archive.release();
+      }
+    }
+
+    Resource resource = new ResourceImpl(Resource.Type.ClientConfig);
+    resources.add(resource);
+    return resources;
+  }
+
+  /**
+   * Adds the commands that generate the configuration archives of the components, one
+   * component of every response.  When caching, the archives already cached are pinned
+   * and added to {@code componentArchives} instead, and the archives to generate are
+   * added to {@code generatedArchives}.
+   */
+  private void addComponentCommands(Map<String, ServiceComponentHostResponse> componentMap,
+                                    ServiceComponentHostRequest schRequest, Configuration configs,
+                                    Map<String, String> configMap, ClientConfigArchiveCache cache,
+                                    List<ServiceComponentHostResponse> schWithConfigFiles,
+                                    Map<String, List<ServiceComponentHostResponse>> serviceToComponentMap,
+                                    List<String> pythonCompressFilesCmds, List<File> commandFiles,
+                                    Map<String, String> componentArchiveKeys,
+                                    Map<String, ClientConfigArchiveCache.Archive> componentArchives,
+                                    Map<String, File> generatedArchives) throws SystemException {
+    String TMP_PATH = configMap.get(Configuration.SERVER_TMP_DIR.getKey());
+    String pythonCmd = configMap.get(Configuration.AMBARI_PYTHON_WRAP.getKey());
+
     for (ServiceComponentHostResponse response : componentMap.values()){
 
       AmbariManagementController managementController = getManagementController();
@@ -285,7 +426,7 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
           Config clusterConfig = cluster.getConfig(configType, desiredConfig.getTag());
 
           if (clusterConfig != null) {
-            Map<String, String> props = new HashMap<>(clusterConfig.getProperties());
+            Map<String, String> props = new TreeMap<>(clusterConfig.getProperties());
 
             // Apply global properties for this host from all config groups
             Map<String, Map<String, String>> allConfigTags = null;
@@ -381,7 +522,7 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
         String packageList = gson.toJson(packages);
 
         String jsonConfigurations = null;
-        Map<String, Object> commandParams = new HashMap<>();
+        Map<String, Object> commandParams = new TreeMap<>();
         List<Map<String, String>> xmlConfigs = new LinkedList<>();
         List<Map<String, String>> envConfigs = new LinkedList<>();
         List<Map<String, String>> propertiesConfigs = new LinkedList<>();
@@ -421,7 +562,6 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
         commandParams.put("xml_configs_list", xmlConfigs);
         commandParams.put("env_configs_list", envConfigs);
         commandParams.put("properties_configs_list", propertiesConfigs);
-        commandParams.put("output_file", componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
         commandParams.putAll(topologyCommandParams);
 
         Map<String, Object> jsonContent = new TreeMap<>();
@@ -439,6 +579,24 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
         jsonContent.put("role", componentName);
         jsonContent.put("componentVersionMap", cluster.getComponentVersionMap());
 
+        if (cache != null) {
+          // the command, apart from where the archive is written to, identifies the archive
+          String archiveKey = cache.getKey(commandScriptAbsolute, gson.toJson(jsonContent));
+          componentArchiveKeys.put(componentName, archiveKey);
+
+          ClientConfigArchiveCache.Archive cached = cache.get(archiveKey);
+          if (cached != null) {
+            componentArchives.put(componentName, cached);
+            continue;
+          }
+
+          File archive = cache.newArchiveFile(archiveKey);
+          generatedArchives.put(componentName, archive);
+          commandParams.put("output_file", archive.getAbsolutePath());
+        } else {
+          commandParams.put("output_file", componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
+        }
+
         jsonConfigurations = gson.toJson(jsonContent);
 
         File tmpDirectory = new File(TMP_PATH);
@@ -478,47 +636,6 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
         throw new SystemException("Controller error ", e);
       }
     }
-
-    if (schWithConfigFiles.isEmpty()) {
-      throw new SystemException("No configuration files defined for any component" );
-    }
-
-    Integer totalCommands = pythonCompressFilesCmds.size() * 2;
-    Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
-    ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
-
-    // put all threads that starts process to compress each component config files in the executor
-    try {
-      List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, pythonCompressFilesCmds);
-
-      // wait for all threads to finish
-      Integer timeout = configs.getExternalScriptTimeout();
-      waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
-    } finally {
-      for (File each : commandFiles) {
-        each.delete();
-      }
-    }
-
-    if (StringUtils.isEmpty(requestComponentName)) {
-      TarUtils tarUtils;
-      String fileName;
-      List <ServiceComponentHostResponse> schToTarConfigFiles = schWithConfigFiles;
-      if (StringUtils.isNotEmpty(requestHostName)) {
-        fileName = requestHostName + "(" + Resource.InternalType.Host.toString().toUpperCase()+")";
-      } else if (StringUtils.isNotEmpty(requestServiceName)) {
-        fileName = requestServiceName + "(" + Resource.InternalType.Service.toString().toUpperCase()+")";
-        schToTarConfigFiles = serviceToComponentMap.get(requestServiceName);
-      } else {
-        fileName = schRequest.getClusterName() + "(" + Resource.InternalType.Cluster.toString().toUpperCase()+")";
-      }
-      tarUtils = new TarUtils(TMP_PATH, fileName, schToTarConfigFiles);
-      tarUtils.tarConfigFiles();
-    }
-
-    Resource resource = new ResourceImpl(Resource.Type.ClientConfig);
-    resources.add(resource);
-    return resources;
   }
 
   /**
@@ -788,28 +905,45 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
   protected static class TarUtils {
 
     /**
-     * temporary dir where tar files are saved on ambari server
+     * the compressed file that should be created
      */
-    private String tmpDir;
+    private File compressedOutputFile;
 
     /**
-     * name of the compressed file that should be created
+     * the compressed config files of the components, by component name
      */
-    private String fileName;
-
-
-    private List<ServiceComponentHostResponse> serviceComponentHostResponses;
+    private Map<String, File> componentArchives;
 
     /**
-     * Constructor sets all the fields of the class
+     * Constructor bundling the compressed config files of the components found in the temporary dir
      * @param tmpDir {String}
      * @param fileName {String}
      * @param serviceComponentHostResponses {List}
      */
     TarUtils(String tmpDir, String fileName, List<ServiceComponentHostResponse> serviceComponentHostResponses) {
-      this.tmpDir = tmpDir;
-      this.fileName = fileName;
-      this.serviceComponentHostResponses = serviceComponentHostResponses;
+      this(new File(tmpDir, fileName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION),
+          getComponentArchives(tmpDir, serviceComponentHostResponses));
+    }
+
+    /**
+     * Constructor sets all the fields of the class
+     * @param compressedOutputFile {File}
+     * @param componentArchives {Map}
+     */
+    TarUtils(File compressedOutputFile, Map<String, File> componentArchives) {
+      this.compressedOutputFile = compressedOutputFile;
+      this.componentArchives = componentArchives;
+    }
+
+    private static Map<String, File> getComponentArchives(String tmpDir,
+        List<ServiceComponentHostResponse> serviceComponentHostResponses) {
+      Map<String, File> componentArchives = new LinkedHashMap<>();
+      for (ServiceComponentHostResponse schResponse : serviceComponentHostResponses) {
+        String componentName = schResponse.getComponentName();
+        componentArchives.put(componentName,
+            new File(tmpDir, componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION));
+      }
+      return componentArchives;
     }
 
     /**
@@ -820,7 +954,6 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
       throws SystemException {
 
       try {
-        File compressedOutputFile = new File(tmpDir, fileName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
         FileOutputStream fOut = new FileOutputStream(compressedOutputFile);
         BufferedOutputStream bOut = new BufferedOutputStream(fOut);
         GzipCompressorOutputStream gzOut = new GzipCompressorOutputStream(bOut);
@@ -829,9 +962,9 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
         tOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
 
         try {
-          for (ServiceComponentHostResponse schResponse : serviceComponentHostResponses) {
-            String componentName = schResponse.getComponentName();
-            File compressedInputFile = new File(tmpDir, componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
+          for (Map.Entry<String, File> componentArchive : componentArchives.entrySet()) {
+            String componentName = componentArchive.getKey();
+            File compressedInputFile = componentArchive.getValue();
             FileInputStream fin = new FileInputStream(compressedInputFile);
             BufferedInputStream bIn = new BufferedInputStream(fin);
             GzipCompressorInputStream gzIn = new GzipCompressorInputStream(bIn);
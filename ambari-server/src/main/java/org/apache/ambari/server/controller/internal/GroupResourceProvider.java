@@ -36,6 +36,7 @@ import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.security.authorization.RoleAuthorization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -185,13 +186,18 @@ public class GroupResourceProvider extends AbstractControllerResourceProvider {
       requests.add(req);
     }
 
-    modifyResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        getManagementController().deleteGroups(requests);
-        return null;
-      }
-    });
+    try {
+      modifyResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          getManagementController().deleteGroups(requests);
+          return null;
+        }
+      });
+    } finally {
+      // the privileges of the group and its memberships are gone
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ambari.server.controller.RequestStatusResponse;
+import org.apache.ambari.server.topology.AdvisedConfiguration;
+import org.apache.ambari.server.topology.AmbariContext;
+import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
+import org.apache.ambari.server.topology.Configuration;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.apache.ambari.server.topology.InvalidTopologyException;
+import org.apache.ambari.server.topology.NoSuchHostGroupException;
+import org.apache.ambari.server.topology.TopologyRequest;
+
+/**
+ * A {@link ClusterTopology} which remembers the component to host group, component to host and
+ * host group to host assignments of the topology it wraps.
+ * <p/>
+ * The property updaters of {@link BlueprintConfigurationProcessor} resolve the host groups and
+ * hosts of a component for every property they update, each time scanning the blueprint host
+ * groups and copying the host names of the matching groups. As the assignments do not change
+ * while the configuration is processed, the processor wraps its topology in this class for the
+ * duration of an update pass, so that each assignment is resolved once. The assignments are
+ * resolved lazily through the wrapped topology and are forgotten whenever hosts are added to
+ * or removed from the topology through this instance.
+ * <p/>
+ * Instances are not thread safe.
+ */
+class IndexedClusterTopology implements ClusterTopology {
+
+  private final ClusterTopology topology;
+
+  private final Map<String, Collection<String>> hostGroupsByComponent = new HashMap<>();
+  private final Map<String, Collection<String>> hostsByComponent = new HashMap<>();
+  private final Map<String, String> hostGroupByHost = new HashMap<>();
+  private Map<String, Collection<String>> hostsByHostGroup;
+
+  /**
+   * @param topology the topology to index
+   */
+  IndexedClusterTopology(ClusterTopology topology) {
+    this.topology = topology;
+  }
+
+  /**
+   * Wraps a topology unless it is indexed already.
+   *
+   * @param topology the topology to index
+   * @return the indexed topology
+   */
+  static IndexedClusterTopology of(ClusterTopology topology) {
+    return (topology instanceof IndexedClusterTopology)
+        ? (IndexedClusterTopology) topology
+        : new IndexedClusterTopology(topology);
+  }
+
+  /**
+   * @return the wrapped topology
+   */
+  ClusterTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * Gets the host names of every host group, in the iteration order of
+   * {@link #getHostGroupInfo()}.
+   *
+   * @return host group name to the host names of the group
+   */
+  Map<String, Collection<String>> getHostNamesByHostGroup() {
+    if (hostsByHostGroup == null) {
+      Map<String, Collection<String>> hosts = new LinkedHashMap<>();
+      for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+        hosts.put(groupInfo.getHostGroupName(), Collections.unmodifiableCollection(groupInfo.getHostNames()));
+      }
+      hostsByHostGroup = Collections.unmodifiableMap(hosts);
+    }
+    return hostsByHostGroup;
+  }
+
+  @Override
+  public Collection<String> getHostGroupsForComponent(String component) {
+    return hostGroupsByComponent.computeIfAbsent(component,
+        name -> Collections.unmodifiableCollection(topology.getHostGroupsForComponent(name)));
+  }
+
+  @Override
+  public Collection<String> getHostAssignmentsForComponent(String component) {
+    return hostsByComponent.computeIfAbsent(component,
+        name -> Collections.unmodifiableCollection(topology.getHostAssignmentsForComponent(name)));
+  }
+
+  @Override
+  public String getHostGroupForHost(String hostname) {
+    // host groups may be null, which computeIfAbsent would not remember
+    if (!hostGroupByHost.containsKey(hostname)) {
+      hostGroupByHost.put(hostname, topology.getHostGroupForHost(hostname));
+    }
+    return hostGroupByHost.get(hostname);
+  }
+
+  @Override
+  public void update(TopologyRequest topologyRequest) throws InvalidTopologyException {
+    topology.update(topologyRequest);
+    clear();
+  }
+
+  @Override
+  public void addHostToTopology(String hostGroupName, String host) throws InvalidTopologyException, NoSuchHostGroupException {
+    topology.addHostToTopology(hostGroupName, host);
+    clear();
+  }
+
+  @Override
+  public void removeHost(String hostname) {
+    topology.removeHost(hostname);
+    clear();
+  }
+
+  private void clear() {
+    hostGroupsByComponent.clear();
+    hostsByComponent.clear();
+    hostGroupByHost.clear();
+    hostsByHostGroup = null;
+  }
+
+  @Override
+  public Long getClusterId() {
+    return topology.getClusterId();
+  }
+
+  @Override
+  public void setClusterId(Long clusterId) {
+    topology.setClusterId(clusterId);
+  }
+
+  @Override
+  public Blueprint getBlueprint() {
+    return topology.getBlueprint();
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return topology.getConfiguration();
+  }
+
+  @Override
+  public Map<String, HostGroupInfo> getHostGroupInfo() {
+    return topology.getHostGroupInfo();
+  }
+
+  @Override
+  public Set<String> getAllHosts() {
+    return topology.getAllHosts();
+  }
+
+  @Override
+  public boolean isNameNodeHAEnabled() {
+    return topology.isNameNodeHAEnabled();
+  }
+
+  @Override
+  public boolean isYarnResourceManagerHAEnabled() {
+    return topology.isYarnResourceManagerHAEnabled();
+  }
+
+  @Override
+  public boolean isClusterKerberosEnabled() {
+    return topology.isClusterKerberosEnabled();
+  }
+
+  @Override
+  public RequestStatusResponse installHost(String hostName, boolean skipInstallTaskCreate, boolean skipFailure) {
+    return topology.installHost(hostName, skipInstallTaskCreate, skipFailure);
+  }
+
+  @Override
+  public RequestStatusResponse startHost(String hostName, boolean skipFailure) {
+    return topology.startHost(hostName, skipFailure);
+  }
+
+  @Override
+  public void setConfigRecommendationStrategy(ConfigRecommendationStrategy strategy) {
+    topology.setConfigRecommendationStrategy(strategy);
+  }
+
+  @Override
+  public ConfigRecommendationStrategy getConfigRecommendationStrategy() {
+    return topology.getConfigRecommendationStrategy();
+  }
+
+  @Override
+  public void setProvisionAction(ProvisionAction provisionAction) {
+    topology.setProvisionAction(provisionAction);
+  }
+
+  @Override
+  public ProvisionAction getProvisionAction() {
+    return topology.getProvisionAction();
+  }
+
+  @Override
+  public Map<String, AdvisedConfiguration> getAdvisedConfigurations() {
+    return topology.getAdvisedConfigurations();
+  }
+
+  @Override
+  public AmbariContext getAmbariContext() {
+    return topology.getAmbariContext();
+  }
+
+  @Override
+  public String getDefaultPassword() {
+    return topology.getDefaultPassword();
+  }
+
+  @Override
+  public boolean isComponentHadoopCompatible(String component) {
+    return topology.isComponentHadoopCompatible(component);
+  }
+}
@@ -493,7 +493,12 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
           break;
       }
     }
-    return getManagementController().synchronizeLdapUsersAndGroups(userRequest, groupRequest);
+    try {
+      return getManagementController().synchronizeLdapUsersAndGroups(userRequest, groupRequest);
+    } finally {
+      // the sync changes group memberships, and with them privileges
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
   }
 
   /**
@@ -511,6 +516,8 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
         return new LdapSyncRequest(LdapSyncSpecEntity.SyncType.ALL, spec.getPostProcessExistingUsers());
       case EXISTING:
         return new LdapSyncRequest(LdapSyncSpecEntity.SyncType.EXISTING, spec.getPostProcessExistingUsers());
+      case INCREMENTAL:
+        return new LdapSyncRequest(LdapSyncSpecEntity.SyncType.INCREMENTAL, spec.getPostProcessExistingUsers());
       case SPECIFIC:
         Set<String> principalNames = new HashSet<>(spec.getPrincipalNames());
         if (request == null ) {
@@ -37,6 +37,7 @@ import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.security.authorization.RoleAuthorization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,13 +103,18 @@ public class MemberResourceProvider extends AbstractControllerResourceProvider {
     for (Map<String, Object> propertyMap : request.getProperties()) {
       requests.add(getRequest(propertyMap));
     }
-    createResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        getManagementController().createMembers(requests);
-        return null;
-      }
-    });
+    try {
+      createResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          getManagementController().createMembers(requests);
+          return null;
+        }
+      });
+    } finally {
+      // group memberships grant privileges, drop the authorizations compiled from the old ones
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -165,13 +171,18 @@ public class MemberResourceProvider extends AbstractControllerResourceProvider {
       requests.add(getRequest(propertyMap));
     }
 
-    modifyResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        getManagementController().updateMembers(requests);
-        return null;
-      }
-    });
+    try {
+      modifyResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          getManagementController().updateMembers(requests);
+          return null;
+        }
+      });
+    } finally {
+      // group memberships grant privileges, drop the authorizations compiled from the old ones
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -187,13 +198,18 @@ public class MemberResourceProvider extends AbstractControllerResourceProvider {
       requests.add(req);
     }
 
-    modifyResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        getManagementController().deleteMembers(requests);
-        return null;
-      }
-    });
+    try {
+      modifyResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          getManagementController().deleteMembers(requests);
+          return null;
+        }
+      });
+    } finally {
+      // group memberships grant privileges, drop the authorizations compiled from the old ones
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
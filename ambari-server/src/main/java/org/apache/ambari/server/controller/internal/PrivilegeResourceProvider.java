@@ -52,6 +52,7 @@ import org.apache.ambari.server.orm.entities.PrincipalTypeEntity;
 import org.apache.ambari.server.orm.entities.PrivilegeEntity;
 import org.apache.ambari.server.orm.entities.ResourceEntity;
 import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -172,8 +173,13 @@ public abstract class PrivilegeResourceProvider<T> extends AbstractAuthorizedRes
   public RequestStatus createResourcesAuthorized(Request request)
       throws SystemException, UnsupportedPropertyException,
       ResourceAlreadyExistsException, NoSuchParentResourceException {
-    for (Map<String, Object> properties : request.getProperties()) {
-      createResources(getCreateCommand(properties));
+    try {
+      for (Map<String, Object> properties : request.getProperties()) {
+        createResources(getCreateCommand(properties));
+      }
+    } finally {
+      // the privileges are committed by now, drop the authorizations compiled from the old ones
+      AuthorizationHelper.invalidateAuthorizationCache();
     }
     notifyCreate(resourceType, request);
 
@@ -267,7 +273,11 @@ public abstract class PrivilegeResourceProvider<T> extends AbstractAuthorizedRes
   @Override
   public RequestStatus updateResourcesAuthorized(Request request, Predicate predicate)
       throws SystemException, UnsupportedPropertyException, NoSuchResourceException, NoSuchParentResourceException {
-    modifyResources(getUpdateCommand(request, predicate));
+    try {
+      modifyResources(getUpdateCommand(request, predicate));
+    } finally {
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
     notifyUpdate(resourceType, request, predicate);
     return getRequestStatus(null);
   }
@@ -275,7 +285,11 @@ public abstract class PrivilegeResourceProvider<T> extends AbstractAuthorizedRes
   @Override
   public RequestStatus deleteResourcesAuthorized(Request request, Predicate predicate)
       throws SystemException, UnsupportedPropertyException, NoSuchResourceException, NoSuchParentResourceException {
-    modifyResources(getDeleteCommand(predicate));
+    try {
+      modifyResources(getDeleteCommand(predicate));
+    } finally {
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
     notifyDelete(resourceType, predicate);
     return getRequestStatus(null);
   }
@@ -103,6 +103,8 @@ import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeContext;
 import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeContextFactory;
 import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeGroupHolder;
 import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeHelper;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner.Planning;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ConfigHelper;
@@ -191,6 +193,24 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
    */
   public static final String UPGRADE_REVERT_UPGRADE_ID = "Upgrade/revert_upgrade_id";
 
+  /**
+   * When {@code true}, the upgrade is planned and persisted in the background
+   * and the request returns as soon as it has been validated. The upgrade is
+   * then reported with a {@link #UPGRADE_PLANNING_STATUS} until it exists.
+   */
+  public static final String UPGRADE_ASYNC_PLANNING = "Upgrade/async_planning";
+
+  /**
+   * The {@link UpgradePlanner.PlanningStatus} of an upgrade which is being
+   * planned in the background, or whose planning failed.
+   */
+  public static final String UPGRADE_PLANNING_STATUS = "Upgrade/planning_status";
+
+  /**
+   * The reason the background planning of an upgrade failed.
+   */
+  public static final String UPGRADE_PLANNING_ERROR = "Upgrade/planning_error";
+
   /**
    * The role that will be used when creating HRC's for the type
    * {@link StageWrapper.Type#UPGRADE_TASKS}.
@@ -262,6 +282,13 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
   @Inject
   private static UpgradeContextFactory s_upgradeContextFactory;
 
+  /**
+   * Plans the upgrades requested with {@link #UPGRADE_ASYNC_PLANNING} and
+   * records the planning times of all upgrades.
+   */
+  @Inject
+  private static UpgradePlanner s_upgradePlanner;
+
   @Inject
   private STOMPUpdatePublisher STOMPUpdatePublisher;
 
@@ -297,6 +324,9 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     PROPERTY_IDS.add(UPGRADE_FAIL_ON_CHECK_WARNINGS);
     PROPERTY_IDS.add(UPGRADE_HOST_ORDERED_HOSTS);
     PROPERTY_IDS.add(UPGRADE_REVERT_UPGRADE_ID);
+    PROPERTY_IDS.add(UPGRADE_ASYNC_PLANNING);
+    PROPERTY_IDS.add(UPGRADE_PLANNING_STATUS);
+    PROPERTY_IDS.add(UPGRADE_PLANNING_ERROR);
 
     PROPERTY_IDS.add(REQUEST_CONTEXT_ID);
     PROPERTY_IDS.add(REQUEST_CREATE_TIME_ID);
@@ -353,12 +383,16 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
           "manage upgrade and downgrade");
     }
 
+    if (Boolean.parseBoolean((String) requestMap.get(UPGRADE_ASYNC_PLANNING))) {
+      return createUpgradeInBackground(request, cluster, requestMap);
+    }
+
     UpgradeEntity entity = createResources(new Command<UpgradeEntity>() {
       @Override
       public UpgradeEntity invoke() throws AmbariException, AuthorizationException {
 
         // create the context, validating the properties in the process
-        final UpgradeContext upgradeContext = s_upgradeContextFactory.create(cluster, requestMap);
+        final UpgradeContext upgradeContext = createUpgradeContext(cluster, requestMap);
 
         try {
           return createUpgrade(upgradeContext);
@@ -386,6 +420,61 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     return new RequestStatusImpl(null, Collections.singleton(res));
   }
 
+  /**
+   * Validates an upgrade request and queues the planning of the upgrade, which
+   * creates it. The upgrade is reported by its request ID with a
+   * {@link #UPGRADE_PLANNING_STATUS} until it is created.
+   */
+  private RequestStatus createUpgradeInBackground(Request request, Cluster cluster,
+      Map<String, Object> requestMap)
+      throws SystemException, ResourceAlreadyExistsException, NoSuchParentResourceException {
+
+    final Planning planning = createResources(new Command<Planning>() {
+      @Override
+      public Planning invoke() throws AmbariException, AuthorizationException {
+        final UpgradeContext upgradeContext = createUpgradeContext(cluster, requestMap);
+        final long requestId = getManagementController().getActionManager().getNextRequestId();
+
+        return s_upgradePlanner.submit(cluster.getClusterId(), requestId, () -> {
+          try {
+            return createUpgrade(upgradeContext, requestId);
+          } catch (Exception e) {
+            clusters.get().invalidate(cluster);
+            throw e;
+          }
+        });
+      }
+    });
+
+    notifyCreate(Resource.Type.Upgrade, request);
+
+    Resource res = new ResourceImpl(Resource.Type.Upgrade);
+    res.setProperty(UPGRADE_CLUSTER_NAME, cluster.getClusterName());
+    res.setProperty(UPGRADE_REQUEST_ID, planning.getRequestId());
+    res.setProperty(UPGRADE_PLANNING_STATUS, planning.getStatus());
+    return new RequestStatusImpl(null, Collections.singleton(res));
+  }
+
+  /**
+   * Creates the context of an upgrade, validating the request in the process.
+   *
+   * @throws AmbariException
+   *           if the request is not valid, or if another upgrade of the
+   *           cluster is being planned
+   */
+  private UpgradeContext createUpgradeContext(Cluster cluster, Map<String, Object> requestMap)
+      throws AmbariException {
+    // fails early, before validating the request; submitting a planning checks again, atomically
+    Planning planning = s_upgradePlanner.getPlanningInProgress(cluster.getClusterId());
+    if (null != planning) {
+      throw new AmbariException(String.format(
+          "Unable to create an upgrade as another upgrade (request ID %s) is being planned.",
+          planning.getRequestId()));
+    }
+
+    return s_upgradeContextFactory.create(cluster, requestMap);
+  }
+
   @Override
   public Set<Resource> getResources(Request request, Predicate predicate) throws SystemException,
       UnsupportedPropertyException, NoSuchResourceException, NoSuchParentResourceException {
@@ -417,9 +506,18 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
 
         if (null != upgrade) {
           upgrades.add(upgrade);
+        } else {
+          // the upgrade may not exist yet because it is being planned
+          Planning planning = s_upgradePlanner.getPlanning(Long.valueOf(upgradeIdStr));
+          if (null != planning && planning.getClusterId() == cluster.getClusterId()) {
+            results.add(toResource(planning, clusterName, requestPropertyIds));
+          }
         }
       } else {
         upgrades = s_upgradeDAO.findUpgrades(cluster.getClusterId());
+        for (Planning planning : s_upgradePlanner.getPlannings(cluster.getClusterId())) {
+          results.add(toResource(planning, clusterName, requestPropertyIds));
+        }
       }
 
       for (UpgradeEntity entity : upgrades) {
@@ -637,6 +735,22 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     return PK_PROPERTY_IDS;
   }
 
+  /**
+   * Converts an upgrade which does not exist yet, as it is being planned or its
+   * planning failed, to a resource.
+   */
+  private Resource toResource(Planning planning, String clusterName, Set<String> requestedIds) {
+    ResourceImpl resource = new ResourceImpl(Resource.Type.Upgrade);
+
+    setResourceProperty(resource, UPGRADE_CLUSTER_NAME, clusterName, requestedIds);
+    setResourceProperty(resource, UPGRADE_REQUEST_ID, planning.getRequestId(), requestedIds);
+    setResourceProperty(resource, UPGRADE_PLANNING_STATUS, planning.getStatus(), requestedIds);
+    setResourceProperty(resource, UPGRADE_PLANNING_ERROR, planning.getError(), requestedIds);
+    setResourceProperty(resource, REQUEST_CREATE_TIME_ID, planning.getSubmitTime(), requestedIds);
+
+    return resource;
+  }
+
   private Resource toResource(UpgradeEntity entity, String clusterName, Set<String> requestedIds) {
     ResourceImpl resource = new ResourceImpl(Resource.Type.Upgrade);
 
@@ -727,6 +841,21 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
    */
   protected UpgradeEntity createUpgrade(UpgradeContext upgradeContext)
       throws AmbariException, AuthorizationException {
+    return createUpgrade(upgradeContext, getManagementController().getActionManager().getNextRequestId());
+  }
+
+  /**
+   * Plans an upgrade, then builds and persists its stages along with the
+   * upgrade.
+   *
+   * @param upgradeContext
+   *          the validated context of the upgrade
+   * @param requestId
+   *          the ID of the request the upgrade is created with
+   * @return the upgrade
+   */
+  protected UpgradeEntity createUpgrade(UpgradeContext upgradeContext, long requestId)
+      throws AmbariException, AuthorizationException {
 
     UpgradePack pack = upgradeContext.getUpgradePack();
     Cluster cluster = upgradeContext.getCluster();
@@ -734,7 +863,9 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
 
     ConfigHelper configHelper = getManagementController().getConfigHelper();
 
+    long startTime = System.currentTimeMillis();
     List<UpgradeGroupHolder> groups = s_upgradeHelper.createSequence(pack, upgradeContext);
+    long plannedTime = System.currentTimeMillis();
 
     if (groups.isEmpty()) {
       throw new AmbariException("There are no groupings available");
@@ -759,7 +890,7 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     }
 
     List<UpgradeGroupEntity> groupEntities = new ArrayList<>();
-    RequestStageContainer req = createRequest(upgradeContext);
+    RequestStageContainer req = createRequest(upgradeContext, requestId);
 
     UpgradeEntity upgrade = new UpgradeEntity();
     upgrade.setRepositoryVersion(upgradeContext.getRepositoryVersion());
@@ -924,7 +1055,18 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     upgrade.setUpgradeGroups(groupEntities);
 
     req.getRequestStatusResponse();
-    return createUpgradeInsideTransaction(cluster, req, upgrade, upgradeContext);
+    long builtTime = System.currentTimeMillis();
+
+    UpgradeEntity upgradeEntity = createUpgradeInsideTransaction(cluster, req, upgrade, upgradeContext);
+    long persistedTime = System.currentTimeMillis();
+
+    s_upgradePlanner.recordPlanning(plannedTime - startTime, builtTime - plannedTime, persistedTime - builtTime);
+    LOG.info("Created request {} with {} stages for the {} upgrade pack in {} ms: planning took {} ms, "
+        + "building the stages {} ms and persisting them {} ms", req.getId(), req.getStages().size(),
+        pack.getName(), persistedTime - startTime, plannedTime - startTime,
+        builtTime - plannedTime, persistedTime - builtTime);
+
+    return upgradeEntity;
   }
 
   /**
@@ -975,11 +1117,12 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
     return upgradeEntity;
   }
 
-  private RequestStageContainer createRequest(UpgradeContext upgradeContext) throws AmbariException {
+  private RequestStageContainer createRequest(UpgradeContext upgradeContext, long requestId)
+      throws AmbariException {
     ActionManager actionManager = getManagementController().getActionManager();
 
     RequestStageContainer requestStages = new RequestStageContainer(
-        actionManager.getNextRequestId(), null, s_requestFactory.get(), actionManager);
+        requestId, null, s_requestFactory.get(), actionManager);
 
     Direction direction = upgradeContext.getDirection();
     RepositoryVersionEntity repositoryVersion = upgradeContext.getRepositoryVersion();
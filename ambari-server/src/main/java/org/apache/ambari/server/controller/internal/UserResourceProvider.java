@@ -166,17 +166,22 @@ public class UserResourceProvider extends AbstractControllerResourceProvider imp
       requests.add(getRequest(propertyMap));
     }
 
-    createResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        try {
-          createUsers(requests);
-        } catch (AuthorizationException e) {
-          throw new AmbariException(e.getMessage(), e);
+    try {
+      createResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          try {
+            createUsers(requests);
+          } catch (AuthorizationException e) {
+            throw new AmbariException(e.getMessage(), e);
+          }
+          return null;
         }
-        return null;
-      }
-    });
+      });
+    } finally {
+      // users may have been granted the administrator privilege
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -261,13 +266,18 @@ public class UserResourceProvider extends AbstractControllerResourceProvider imp
       requests.add(req);
     }
 
-    modifyResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException, AuthorizationException {
-        updateUsers(requests);
-        return null;
-      }
-    });
+    try {
+      modifyResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException, AuthorizationException {
+          updateUsers(requests);
+          return null;
+        }
+      });
+    } finally {
+      // the administrator privilege may have been granted or revoked
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -283,13 +293,17 @@ public class UserResourceProvider extends AbstractControllerResourceProvider imp
       requests.add(req);
     }
 
-    modifyResources(new Command<Void>() {
-      @Override
-      public Void invoke() throws AmbariException {
-        deleteUsers(requests);
-        return null;
-      }
-    });
+    try {
+      modifyResources(new Command<Void>() {
+        @Override
+        public Void invoke() throws AmbariException {
+          deleteUsers(requests);
+          return null;
+        }
+      });
+    } finally {
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
 
     return getRequestStatus(null);
   }
@@ -42,6 +42,7 @@ import org.apache.ambari.server.orm.entities.ViewEntity;
 import org.apache.ambari.server.orm.entities.ViewInstanceDataEntity;
 import org.apache.ambari.server.orm.entities.ViewInstanceEntity;
 import org.apache.ambari.server.orm.entities.ViewURLEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.security.authorization.RoleAuthorization;
 import org.apache.ambari.server.view.ViewRegistry;
 import org.apache.ambari.server.view.validation.InstanceValidationResultImpl;
@@ -229,7 +230,12 @@ public class ViewInstanceResourceProvider extends AbstractAuthorizedResourceProv
   protected RequestStatus deleteResourcesAuthorized(Request request, Predicate predicate)
       throws SystemException, UnsupportedPropertyException, NoSuchResourceException, NoSuchParentResourceException {
 
-    modifyResources(getDeleteCommand(predicate));
+    try {
+      modifyResources(getDeleteCommand(predicate));
+    } finally {
+      // the privileges on the deleted instances are gone
+      AuthorizationHelper.invalidateAuthorizationCache();
+    }
     notifyDelete(Resource.Type.ViewInstance, predicate);
     return getRequestStatus(null);
   }
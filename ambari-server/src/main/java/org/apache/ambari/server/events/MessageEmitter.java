@@ -17,17 +17,15 @@
  */
 package org.apache.ambari.server.events;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ambari.server.AmbariException;
@@ -35,7 +33,7 @@ import org.apache.ambari.server.HostNotRegisteredException;
 import org.apache.ambari.server.agent.AgentSessionManager;
 import org.apache.ambari.server.agent.stomp.dto.AckReport;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
-import org.apache.ambari.server.utils.ScheduledExecutorCompletionService;
+import org.apache.ambari.server.utils.HashedWheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.MessageHeaders;
@@ -48,25 +46,38 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Is used to define a strategy for emitting message to subscribers.
+ * <p/>
+ * Execution commands are delivered to each host one at a time: the next command is emitted as soon as the agent
+ * acknowledges the previous one, and an unacknowledged command is emitted again once its retry deadline passes.
+ * The delivery state is partitioned by host, so that acknowledgements and deadlines of one host never wait for
+ * another, and the retry deadlines are kept in a {@link HashedWheelTimer}. A command has at most one retry deadline
+ * at a time.
  */
 public abstract class MessageEmitter {
   protected static final AtomicLong MESSAGE_ID = new AtomicLong(0);
   private final static Logger LOG = LoggerFactory.getLogger(MessageEmitter.class);
+
+  /**
+   * The duration of a tick of the retry timer, in milliseconds.
+   */
+  private static final long RETRY_TICK_MILLIS = 100;
+
+  /**
+   * The number of buckets of the retry timer, covering about a minute of retry deadlines in one round.
+   */
+  private static final int RETRY_TICKS_PER_WHEEL = 512;
+
   public final int retryCount;
   public final int retryInterval;
   protected final AgentSessionManager agentSessionManager;
   protected final SimpMessagingTemplate simpMessagingTemplate;
-  protected final ScheduledExecutorService emitExecutor = Executors.newScheduledThreadPool(10,
+  protected final ExecutorService emitExecutor = Executors.newFixedThreadPool(10,
       new ThreadFactoryBuilder().setNameFormat("agent-message-emitter-%d").build());
-  protected final ExecutorService monitorExecutor = Executors.newSingleThreadExecutor(
-      new ThreadFactoryBuilder().setNameFormat("agent-message-monitor-%d").build());
-  protected final ExecutorService retryExecutor = Executors.newSingleThreadExecutor(
-      new ThreadFactoryBuilder().setNameFormat("agent-message-retry-%d").build());
-  protected final ScheduledExecutorCompletionService<EmitTaskWrapper> emitCompletionService =
-      new ScheduledExecutorCompletionService(emitExecutor, new LinkedBlockingQueue<>());
-  protected ConcurrentHashMap<Long, EmitTaskWrapper> unconfirmedMessages = new ConcurrentHashMap<>();
-  protected ConcurrentHashMap<Long, BlockingQueue<EmitTaskWrapper>> messagesToEmit = new ConcurrentHashMap<>();
+  protected final HashedWheelTimer retryTimer = new HashedWheelTimer("agent-message-retry",
+      RETRY_TICK_MILLIS, TimeUnit.MILLISECONDS, RETRY_TICKS_PER_WHEEL);
+  protected ConcurrentHashMap<Long, HostMessages> messagesToEmit = new ConcurrentHashMap<>();
   private AmbariEventPublisher ambariEventPublisher;
+  private volatile boolean stopped;
 
   public MessageEmitter(AgentSessionManager agentSessionManager, SimpMessagingTemplate simpMessagingTemplate,
                         AmbariEventPublisher ambariEventPublisher, int retryCount, int retryInterval) {
@@ -76,8 +87,6 @@ public abstract class MessageEmitter {
     this.retryCount = retryCount;
     this.retryInterval = retryInterval;
     ambariEventPublisher.register(this);
-    monitorExecutor.execute(new MessagesToEmitMonitor());
-    retryExecutor.execute(new MessagesToRetryMonitor());
   }
 
   /**
@@ -93,34 +102,73 @@ public abstract class MessageEmitter {
     EmitTaskWrapper wrapper = new EmitTaskWrapper(0, MESSAGE_ID.getAndIncrement(), event);
 
     Long hostId = event.getHostId();
-    messagesToEmit.compute(hostId, (id, hostMessages) -> {
-      if (hostMessages == null) {
-        LOG.error("Trying to emit message to unregistered host with id {}", hostId);
-        return null;
-      } else {
-        hostMessages.add(wrapper);
-        return hostMessages;
+    HostMessages hostMessages = messagesToEmit.get(hostId);
+    if (hostMessages == null) {
+      LOG.error("Trying to emit message to unregistered host with id {}", hostId);
+      return;
+    }
+
+    synchronized (hostMessages) {
+      // the host may have been released since it was looked up
+      if (stopped || messagesToEmit.get(hostId) != hostMessages) {
+        LOG.error("Trying to emit message to released host with id {}", hostId);
+        return;
       }
-    });
+      hostMessages.queue.add(wrapper);
+      emitNext(hostMessages);
+    }
   }
 
   public void processReceiveReport(Long hostId, AckReport ackReport) {
     Long messageId = ackReport.getMessageId();
     if (AckReport.AckStatus.OK.equals(ackReport.getStatus())) {
-      unconfirmedMessages.compute(hostId, (id, commandInUse) -> {
-        if (commandInUse != null && commandInUse.getMessageId().equals(ackReport.getMessageId())) {
-          return null;
+      HostMessages hostMessages = messagesToEmit.get(hostId);
+      if (hostMessages == null) {
+        LOG.warn("OK agent report was received for command with message id {} to unregistered host with id {}",
+            messageId, hostId);
+        return;
+      }
+
+      synchronized (hostMessages) {
+        EmitTaskWrapper commandInUse = hostMessages.commandInUse;
+        if (commandInUse != null && commandInUse.getMessageId().equals(messageId)) {
+          hostMessages.acknowledged(commandInUse);
+          emitNext(hostMessages);
         } else {
           LOG.warn("OK agent report was received again for already complete command with message id {}", messageId);
         }
-        return commandInUse;
-      });
+      }
     } else {
       LOG.error("Received {} agent report for execution command with messageId {} with following reason: {}",
           ackReport.getStatus(), messageId, ackReport.getReason());
     }
   }
 
+  /**
+   * Gets the delivery statistics of the execution commands emitted to each registered host.
+   *
+   * @return host id to the delivery statistics of the host
+   */
+  public Map<Long, DeliveryStatistics> getDeliveryStatistics() {
+    Map<Long, DeliveryStatistics> statistics = new HashMap<>();
+    for (HostMessages hostMessages : messagesToEmit.values()) {
+      synchronized (hostMessages) {
+        statistics.put(hostMessages.hostId, new DeliveryStatistics(hostMessages));
+      }
+    }
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  /**
+   * Stops emitting. The retry deadlines are dropped and the commands queued or awaiting acknowledgement are not
+   * emitted again.
+   */
+  public void stop() {
+    stopped = true;
+    retryTimer.stop();
+    emitExecutor.shutdownNow();
+  }
+
   protected abstract String getDestination(STOMPEvent stompEvent);
 
   /**
@@ -192,95 +240,72 @@ public abstract class MessageEmitter {
   @Subscribe
   public void onHostRegister(HostRegisteredEvent hostRegisteredEvent) {
     Long hostId = hostRegisteredEvent.getHostId();
-    messagesToEmit.computeIfAbsent(hostId, id -> new LinkedBlockingQueue<>());
+    messagesToEmit.computeIfAbsent(hostId, HostMessages::new);
   }
 
   /**
-   * Is used for first emit of arrived messages. There is a single command in process per host at each time.
-   * Host will be released on agent ACK response receiving or {@link MessageNotDelivered} event firing.
-   * In case no new operations were emitted thread will sleep for a small time.
+   * Emits the next queued command of a host unless a command is awaiting acknowledgement. There is a single command
+   * in process per host at each time. Host will be released on agent ACK response receiving or
+   * {@link MessageNotDelivered} event firing. Must be called holding the lock of the host messages.
+   *
+   * @param hostMessages the messages of the host
    */
-  private class MessagesToEmitMonitor implements Runnable {
-
-    /**
-     * Is used to check any message was emitted over available hosts.
-     */
-    private boolean anyActionPerformed;
+  private void emitNext(HostMessages hostMessages) {
+    if (hostMessages.commandInUse != null) {
+      return;
+    }
 
-    @Override
-    public void run() {
-      while (true) {
-        anyActionPerformed = false;
-        for (Long hostId : messagesToEmit.keySet()) {
-          unconfirmedMessages.computeIfAbsent(hostId, id -> {
-            EmitTaskWrapper event = messagesToEmit.get(hostId).poll();
-            if (event != null) {
-              LOG.info("Schedule execution command emitting, retry: {}, messageId: {}",
-                  event.getRetryCounter(), event.getMessageId());
-              emitCompletionService.submit(new EmitMessageTask(event, false));
-              anyActionPerformed = true;
-            }
-            return event;
-          });
-        }
-        if (!anyActionPerformed) {
-          try {
-            Thread.sleep(200);
-          } catch (InterruptedException e) {
-            LOG.error("Exception during sleep", e);
-          }
-        }
-      }
+    EmitTaskWrapper event = hostMessages.queue.poll();
+    if (event != null) {
+      LOG.info("Schedule execution command emitting, retry: {}, messageId: {}",
+          event.getRetryCounter(), event.getMessageId());
+      hostMessages.commandInUse = event;
+      event.firstEmitTime = System.currentTimeMillis();
+      emitExecutor.execute(new EmitMessageTask(hostMessages, event, event.getRetryCounter()));
     }
   }
 
   /**
-   * After first emit completion message will be scheduled to re-emit with delay.
-   * Re-emit task also should check was message already delivered.
-   * After {@link MessageEmitter#retryCount} retries limit exceeded {@link MessageNotDelivered} event will be fired.
+   * Re-emits a command which was not acknowledged in time. After {@link MessageEmitter#retryCount} retries limit
+   * exceeded {@link MessageNotDelivered} event will be fired and the queued commands of the host are dropped.
+   *
+   * @param hostMessages the messages of the host
+   * @param event the command which was not acknowledged
    */
-  private class MessagesToRetryMonitor implements Runnable {
+  private void onRetryDeadline(HostMessages hostMessages, EmitTaskWrapper event) {
+    synchronized (hostMessages) {
+      // check ack was already received
+      if (stopped || hostMessages.commandInUse != event) {
+        return;
+      }
 
-    @Override
-    public void run() {
-      while (true) {
-        try {
-          Future<EmitTaskWrapper> future = emitCompletionService.take();
-          EmitTaskWrapper result = future.get();
-          Long hostId = result.getExecutionCommandEvent().getHostId();
-          unconfirmedMessages.compute(hostId, (id, commandInUse) -> {
-            if (commandInUse != null && commandInUse.getMessageId().equals(result.getMessageId())) {
-              if (result.getRetryCounter() < retryCount) {
-                result.retry();
-                LOG.warn("Reschedule execution command emitting, retry: {}, messageId: {}",
-                    result.getRetryCounter(), result.getMessageId());
-                emitCompletionService.schedule(new EmitMessageTask(result, true), retryInterval, TimeUnit.SECONDS);
-              } else {
-                ExecutionCommandEvent event = result.getExecutionCommandEvent();
-                // remove commands queue for host
-                messagesToEmit.remove(event.getHostId());
-
-                // generate delivery failed event and cancel emitter
-                ambariEventPublisher.publish(new MessageNotDelivered(event.getHostId()));
-
-                return null;
-              }
-            }
-            return commandInUse;
-          });
-        } catch (InterruptedException e) {
-          LOG.error("Retry message emitting monitor was interrupted", e);
-        } catch (ExecutionException e) {
-          LOG.error("Exception during message emitting retry", e);
-        }
+      // the deadline has passed, the retry schedules the next one
+      hostMessages.retryTimeout = null;
+      if (event.getRetryCounter() < retryCount) {
+        event.retry();
+        hostMessages.retries++;
+        LOG.warn("Reschedule execution command emitting, retry: {}, messageId: {}",
+            event.getRetryCounter(), event.getMessageId());
+        emitExecutor.execute(new EmitMessageTask(hostMessages, event, event.getRetryCounter()));
+        return;
       }
+
+      // remove commands queue for host
+      hostMessages.commandInUse = null;
+      hostMessages.failures++;
+      messagesToEmit.remove(hostMessages.hostId, hostMessages);
     }
+
+    // generate delivery failed event and cancel emitter
+    ambariEventPublisher.publish(new MessageNotDelivered(hostMessages.hostId));
   }
 
   /**
-   * Task to emit command.
+   * Task to emit one attempt of a command and schedule its retry deadline.
    */
-  private class EmitMessageTask implements Callable<EmitTaskWrapper> {
+  private class EmitMessageTask implements Runnable {
+
+    private final HostMessages hostMessages;
 
     /**
      * Wrapped command to emit.
@@ -288,50 +313,188 @@ public abstract class MessageEmitter {
     private final EmitTaskWrapper emitTaskWrapper;
 
     /**
-     * Should {@link #call()} check for command was successfully emitted and ACK already received.
+     * The retry counter of the command when this attempt was scheduled.
      */
-    private final boolean checkRelevance;
+    private final int attempt;
 
-    public EmitMessageTask(EmitTaskWrapper emitTaskWrapper, boolean checkRelevance) {
+    public EmitMessageTask(HostMessages hostMessages, EmitTaskWrapper emitTaskWrapper, int attempt) {
+      this.hostMessages = hostMessages;
       this.emitTaskWrapper = emitTaskWrapper;
-      this.checkRelevance = checkRelevance;
+      this.attempt = attempt;
     }
 
     @Override
-    public EmitTaskWrapper call() throws Exception {
-      try {
-        if (checkRelevance) {
-          Long hostId = emitTaskWrapper.getExecutionCommandEvent().getHostId();
-          EmitTaskWrapper commandInUse = unconfirmedMessages.get(hostId);
-
-          // check ack was already received
-          if (commandInUse != null && commandInUse.getMessageId().equals(emitTaskWrapper.getMessageId())) {
-            emitExecutionCommandToHost(emitTaskWrapper);
-          }
-        } else {
-          emitExecutionCommandToHost(emitTaskWrapper);
+    public void run() {
+      // a retry may have been acknowledged while waiting to be emitted
+      synchronized (hostMessages) {
+        if (!isCurrentAttempt()) {
+          return;
         }
+      }
+
+      try {
+        emitExecutionCommandToHost(emitTaskWrapper);
       } catch (HostNotRegisteredException e) {
         LOG.error("Trying to emit execution command to unregistered host {} on attempt {}",
             emitTaskWrapper.getMessageId(), emitTaskWrapper.getRetryCounter(), e);
+      } catch (RuntimeException e) {
+        LOG.error("Exception during execution command emitting, messageId: {}", emitTaskWrapper.getMessageId(), e);
+      }
+
+      // checking and scheduling under the same lock keeps a single deadline per command, even if a later attempt
+      // was emitted meanwhile
+      synchronized (hostMessages) {
+        if (isCurrentAttempt() && hostMessages.retryTimeout == null) {
+          hostMessages.retryTimeout = retryTimer.newTimeout(
+              () -> onRetryDeadline(hostMessages, emitTaskWrapper), retryInterval, TimeUnit.SECONDS);
+        }
       }
-      return emitTaskWrapper;
+    }
+
+    /**
+     * Must be called holding the lock of the host messages.
+     *
+     * @return {@code true} if the command still awaits acknowledgement and has not been retried since this attempt
+     */
+    private boolean isCurrentAttempt() {
+      return !stopped && hostMessages.commandInUse == emitTaskWrapper && emitTaskWrapper.getRetryCounter() == attempt;
+    }
+  }
+
+  /**
+   * The execution commands of a host, along with their delivery statistics. Guarded by its own lock.
+   */
+  protected static class HostMessages {
+    private final Long hostId;
+    private final Queue<EmitTaskWrapper> queue = new ArrayDeque<>();
+
+    /**
+     * The command awaiting acknowledgement, if any.
+     */
+    private EmitTaskWrapper commandInUse;
+
+    /**
+     * The retry deadline of {@link #commandInUse}, once it has been emitted.
+     */
+    private HashedWheelTimer.Timeout retryTimeout;
+
+    private long delivered;
+    private long retries;
+    private long failures;
+    private long lastDeliveryLatency;
+    private long maxDeliveryLatency;
+    private long totalDeliveryLatency;
+
+    private HostMessages(Long hostId) {
+      this.hostId = hostId;
+    }
+
+    private void acknowledged(EmitTaskWrapper command) {
+      if (retryTimeout != null) {
+        retryTimeout.cancel();
+        retryTimeout = null;
+      }
+      commandInUse = null;
+
+      long latency = System.currentTimeMillis() - command.firstEmitTime;
+      delivered++;
+      lastDeliveryLatency = latency;
+      maxDeliveryLatency = Math.max(maxDeliveryLatency, latency);
+      totalDeliveryLatency += latency;
     }
   }
 
-  private class EmitTaskWrapper {
+  /**
+   * A snapshot of the delivery statistics of the execution commands emitted to a host. The delivery latency of a
+   * command is the time from its first emit until the agent acknowledged it, including any retries.
+   */
+  public static final class DeliveryStatistics {
+    private final long delivered;
+    private final long retries;
+    private final long failures;
+    private final int pending;
+    private final long lastDeliveryLatency;
+    private final long maxDeliveryLatency;
+    private final long totalDeliveryLatency;
+
+    private DeliveryStatistics(HostMessages hostMessages) {
+      delivered = hostMessages.delivered;
+      retries = hostMessages.retries;
+      failures = hostMessages.failures;
+      pending = hostMessages.queue.size() + (hostMessages.commandInUse == null ? 0 : 1);
+      lastDeliveryLatency = hostMessages.lastDeliveryLatency;
+      maxDeliveryLatency = hostMessages.maxDeliveryLatency;
+      totalDeliveryLatency = hostMessages.totalDeliveryLatency;
+    }
+
+    /**
+     * @return the number of acknowledged commands
+     */
+    public long getDelivered() {
+      return delivered;
+    }
+
+    /**
+     * @return the number of times a command was emitted again for lack of acknowledgement
+     */
+    public long getRetries() {
+      return retries;
+    }
+
+    /**
+     * @return the number of commands given up on after exhausting the retries
+     */
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * @return the number of commands queued or awaiting acknowledgement
+     */
+    public int getPending() {
+      return pending;
+    }
+
+    /**
+     * @return the delivery latency of the last acknowledged command, in milliseconds
+     */
+    public long getLastDeliveryLatency() {
+      return lastDeliveryLatency;
+    }
+
+    /**
+     * @return the highest delivery latency of an acknowledged command, in milliseconds
+     */
+    public long getMaxDeliveryLatency() {
+      return maxDeliveryLatency;
+    }
+
+    /**
+     * @return the average delivery latency of the acknowledged commands, in milliseconds
+     */
+    public long getAverageDeliveryLatency() {
+      return delivered == 0 ? 0 : totalDeliveryLatency / delivered;
+    }
+  }
+
+  private static class EmitTaskWrapper {
     private final Long messageId;
     private final ExecutionCommandEvent executionCommandEvent;
-    private final AtomicInteger retryCounter;
+    private volatile int retryCounter;
+
+    /**
+     * The time the command was first emitted at.
+     */
+    private long firstEmitTime;
 
     public EmitTaskWrapper(int retryCounter, Long messageId, ExecutionCommandEvent executionCommandEvent) {
-      this.retryCounter = new AtomicInteger(retryCounter);
+      this.retryCounter = retryCounter;
       this.messageId = messageId;
       this.executionCommandEvent = executionCommandEvent;
     }
 
     public int getRetryCounter() {
-      return retryCounter.get();
+      return retryCounter;
     }
 
     public ExecutionCommandEvent getExecutionCommandEvent() {
@@ -343,7 +506,7 @@ public abstract class MessageEmitter {
     }
 
     public void retry() {
-      retryCounter.incrementAndGet();
+      retryCounter++;
     }
   }
 }
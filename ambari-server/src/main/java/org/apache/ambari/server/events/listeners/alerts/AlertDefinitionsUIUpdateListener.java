@@ -137,7 +137,11 @@ public class AlertDefinitionsUIUpdateListener {
   private void handleSingleDefinitionChange(AlertDefinitionEventType eventType, AlertDefinition alertDefinition) throws AmbariException {
     LOG.info("{} alert definition '{}'", eventType, alertDefinition);
     Cluster cluster = clusters.get().getCluster(alertDefinition.getClusterId());
-    helper.get().invalidateHosts(alertDefinition); // do we need to invalidate, what's the purpose of this?
+    if (eventType == DELETE) {
+      helper.get().removeFromHosts(alertDefinition);
+    } else {
+      helper.get().invalidateHosts(alertDefinition);
+    }
     for (String hostName : alertDefinition.matchingHosts(clusters.get())) {
       alertDefinitionsHolder.provideAlertDefinitionAgentUpdateEvent(eventType, alertDefinition.getClusterId(),
           Collections.singletonMap(alertDefinition.getDefinitionId(), alertDefinition), hostName);
@@ -26,6 +26,7 @@ import org.apache.ambari.server.agent.HeartBeatResponse;
 import org.apache.ambari.server.events.AlertHashInvalidationEvent;
 import org.apache.ambari.server.events.AmbariEvent.AmbariEventType;
 import org.apache.ambari.server.events.ClusterEvent;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
 import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.state.alert.AlertDefinitionHash;
@@ -103,7 +104,26 @@ public class AlertHashInvalidationListener {
   }
 
   /**
-   * Handles {@link AlertHashInvalidationEvent} by performing the following
+   * Handles {@link ServiceComponentInstalledEvent} by adding the definitions of
+   * the component to the cached alert definition hash of its host.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onEvent(ServiceComponentInstalledEvent event) {
+    LOG.debug("Received event {}", event);
+
+    String hostName = event.getHostName();
+    if (null == hostName) {
+      return;
+    }
+
+    m_alertDefinitionHash.get().addComponent(event.getClusterId(), hostName,
+        event.getServiceName(), event.getComponentName(),
+        event.isMasterComponent());
+  }
+
+  /**
+   * Handles {@link ServiceComponentUninstalledEvent} by performing the following
    * tasks:
    * <ul>
    * <li>Alert has invalidation</li>
@@ -122,8 +142,10 @@ public class AlertHashInvalidationListener {
       return;
     }
 
-    // invalidate hash and enqueue commands
-    m_alertDefinitionHash.get().invalidate(hostName);
+    // update hash and enqueue commands
+    m_alertDefinitionHash.get().removeComponent(clusterId, hostName,
+        event.getServiceName(), event.getComponentName(),
+        event.isMasterComponent());
     m_alertDefinitionHash.get().enqueueAgentCommands(clusterId,
         Collections.singletonList(hostName));
   }
@@ -30,6 +30,7 @@ import org.apache.ambari.server.orm.dao.AlertsDAO;
 import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
 import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
 import org.apache.ambari.server.state.alert.AggregateDefinitionMapping;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex;
 import org.apache.ambari.server.state.alert.AlertDefinition;
 import org.apache.ambari.server.state.alert.AlertDefinitionHash;
 import org.apache.ambari.server.state.alert.SourceType;
@@ -80,6 +81,13 @@ public class AlertLifecycleListener {
   @Inject
   private AlertsDAO m_alertsDao;
 
+  /**
+   * Used to move the stale alert deadlines when a definition's interval
+   * changes.
+   */
+  @Inject
+  private AlertDeadlineIndex m_alertDeadlines;
+
   /**
    * Constructor.
    *
@@ -120,6 +128,7 @@ public class AlertLifecycleListener {
    * <ul>
    * <li>Updating definition with {@link AggregateDefinitionMapping}</li>
    * <li>Updating current alerts with definition label</li>
+   * <li>Moving the deadlines of current alerts in {@link AlertDeadlineIndex}</li>
    * </ul>
    *
    * @param event
@@ -138,6 +147,10 @@ public class AlertLifecycleListener {
       m_aggregateMapping.registerAggregate(event.getClusterId(), definition);
     }
 
+    // the stale alert deadlines depend on the interval
+    m_alertDeadlines.setInterval(event.getClusterId(), definition.getDefinitionId(),
+        definition.getInterval());
+
     // update any current alerts
     List<AlertCurrentEntity> currentAlerts = m_alertsDao.findCurrentByDefinitionId(definition.getDefinitionId());
     for (AlertCurrentEntity current : currentAlerts) {
@@ -180,7 +193,7 @@ public class AlertLifecycleListener {
 
     // invalidate and publish
     AlertDefinitionHash hashHelper = m_alertDefinitionHash.get();
-    Set<String> invalidatedHosts = hashHelper.invalidateHosts(definition);
+    Set<String> invalidatedHosts = hashHelper.removeFromHosts(definition);
     AlertHashInvalidationEvent hashInvalidationEvent = new AlertHashInvalidationEvent(
         definition.getClusterId(), invalidatedHosts);
 
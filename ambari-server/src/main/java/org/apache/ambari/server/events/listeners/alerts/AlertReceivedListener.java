@@ -52,6 +52,7 @@ import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ConfigHelper;
 import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.MaintenanceState;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex;
 import org.apache.ambari.server.state.alert.AlertHelper;
 import org.apache.ambari.server.state.alert.SourceType;
 import org.apache.commons.lang.StringUtils;
@@ -112,6 +113,12 @@ public class AlertReceivedListener {
   @Inject
   private AlertHelper alertHelper;
 
+  /**
+   * Used to track when the received alerts are expected to report again.
+   */
+  @Inject
+  private AlertDeadlineIndex m_alertDeadlines;
+
   /**
    * Receives and publishes {@link AlertEvent} instances.
    */
@@ -155,6 +162,7 @@ public class AlertReceivedListener {
     // these can be wrapped in their own transaction
     List<AlertCurrentEntity> toMerge = new ArrayList<>();
     List<AlertCurrentEntity> toCreateHistoryAndMerge = new ArrayList<>();
+    List<AlertCurrentEntity> created = new ArrayList<>();
 
     List<AlertEvent> alertEvents = new ArrayList<>(20);
     Map<Long, Map<String, AlertSummaryGroupedRenderer.AlertDefinitionSummary>> alertUpdates = new HashMap<>();
@@ -251,6 +259,7 @@ public class AlertReceivedListener {
           current.setFirmness(AlertFirmness.HARD);
 
           m_alertsDao.create(current);
+          created.add(current);
 
           // create the event to fire later
           alertEvents.add(new InitialAlertEvent(clusterId, alert, current));
@@ -387,6 +396,11 @@ public class AlertReceivedListener {
     // transaction
     saveEntities(toMerge, toCreateHistoryAndMerge);
 
+    // move the deadlines of the received alerts
+    updateDeadlines(created);
+    updateDeadlines(toMerge);
+    updateDeadlines(toCreateHistoryAndMerge);
+
     // broadcast events
     for (AlertEvent eventToFire : alertEvents) {
       m_alertEventPublisher.publish(eventToFire);
@@ -396,6 +410,15 @@ public class AlertReceivedListener {
     }
   }
 
+  private void updateDeadlines(List<AlertCurrentEntity> currentAlerts) {
+    for (AlertCurrentEntity current : currentAlerts) {
+      Long clusterId = current.getAlertHistory().getClusterId();
+      if (null != clusterId) {
+        m_alertDeadlines.update(clusterId, current);
+      }
+    }
+  }
+
   private void clearStaleAlerts(String hostName, Long definitionId) throws AmbariException {
     if (StringUtil.isNotBlank(hostName)) {
       Host host = m_clusters.get().getHosts().stream().filter(h -> h.getHostName().equals(hostName))
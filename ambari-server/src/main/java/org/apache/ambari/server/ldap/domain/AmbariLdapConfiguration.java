@@ -199,6 +199,10 @@ public class AmbariLdapConfiguration extends AmbariServerConfiguration {
     return Boolean.valueOf(configValue(AmbariServerConfigurationKey.DISABLE_ENDPOINT_IDENTIFICATION));
   }
 
+  public String syncChangeAttribute() {
+    return configValue(AmbariServerConfigurationKey.SYNC_CHANGE_ATTRIBUTE);
+  }
+
   public Map<String, String> toMap() {
     return new HashMap<>(configurationMap);
   }
@@ -265,6 +269,7 @@ public class AmbariLdapConfiguration extends AmbariServerConfiguration {
     ldapServerProperties.setSyncGroupMemberFilter(configValue(AmbariServerConfigurationKey.GROUP_MEMBER_FILTER));
     ldapServerProperties.setPaginationEnabled(parseBoolean(configValue(AmbariServerConfigurationKey.PAGINATION_ENABLED)));
     ldapServerProperties.setDisableEndpointIdentification(disableEndpointIdentification());
+    ldapServerProperties.setSyncChangeAttribute(syncChangeAttribute());
 
     if (hasAnyValueWithKey(AmbariServerConfigurationKey.GROUP_BASE, AmbariServerConfigurationKey.GROUP_OBJECT_CLASS, AmbariServerConfigurationKey.GROUP_MEMBER_ATTRIBUTE,
         AmbariServerConfigurationKey.GROUP_NAME_ATTRIBUTE, AmbariServerConfigurationKey.GROUP_MAPPING_RULES, AmbariServerConfigurationKey.GROUP_SEARCH_FILTER)) {
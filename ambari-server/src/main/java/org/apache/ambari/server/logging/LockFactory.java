@@ -17,7 +17,11 @@
  */
 package org.apache.ambari.server.logging;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -35,23 +39,35 @@ import com.google.inject.Singleton;
 /**
  * Factory to create locks depending on configuration.  If lock profiling is enabled,
  * it creates instrumented locks that collect statistics and log requests.  If profiling is
- * disabled, it creates regular reentrant locks.
+ * disabled but lock telemetry is enabled, it creates locks that record their contention to
+ * {@link LockStatistics} shared by label.  Otherwise it creates regular reentrant locks.
  *
  * @see Configuration#isServerLocksProfilingEnabled()
+ * @see Configuration#isServerLocksTelemetryEnabled()
  */
 @Singleton
 public class LockFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(LockFactory.class);
 
+  private static final String READ_LOCK_SUFFIX = ".read";
+  private static final String WRITE_LOCK_SUFFIX = ".write";
+
   private final boolean profiling;
   private final Set<ProfiledLock> profiledLocks;
+  private final boolean telemetry;
+  private final int telemetrySampleRate;
+  private final ConcurrentMap<String, LockStatistics> lockStatistics;
 
   @Inject
   public LockFactory(Configuration config) {
     profiling = config.isServerLocksProfilingEnabled();
     profiledLocks = profiling ? new CopyOnWriteArraySet<>() : null;
+    telemetry = !profiling && config.isServerLocksTelemetryEnabled();
+    telemetrySampleRate = telemetry ? config.getServerLocksTelemetrySampleRate() : 0;
+    lockStatistics = telemetry ? new ConcurrentHashMap<>() : null;
     LOG.info("Lock profiling is {}", profiling ? "enabled" : "disabled");
+    LOG.info("Lock telemetry is {}", telemetry ? "enabled" : "disabled");
   }
 
   /**
@@ -65,6 +81,9 @@ public class LockFactory {
    * @return a new Lock instance (implementation depends on configuration setting) with <code>label</code> to identify it in log messages
    */
   public Lock newLock(String label) {
+    if (telemetry) {
+      return new TelemetryReentrantLock(getStatistics(label), Ticker.systemTicker());
+    }
     ReentrantLock baseLock = new ReentrantLock();
     if (profiling) {
       ProfiledReentrantLock profiledLock = new ProfiledReentrantLock(baseLock, Ticker.systemTicker(), label);
@@ -85,11 +104,32 @@ public class LockFactory {
    * @return a new ReadWriteLock instance (implementation depends on configuration setting) with <code>label</code> to identify it in log messages
    */
   public ReadWriteLock newReadWriteLock(String label) {
+    return newReadWriteLock(label, true);
+  }
+
+  /**
+   * Creates a ReadWriteLock for one of many instances of a class, such as the host components.
+   * If lock profiling is enabled, the lock is profiled but not listed by {@link #debugDump(StringBuilder)},
+   * so that the factory does not keep every instance's lock for the lifetime of the server.
+   *
+   * @return a new ReadWriteLock instance (implementation depends on configuration setting) with <code>label</code> to identify it in log messages
+   */
+  public ReadWriteLock newInstanceReadWriteLock(String label) {
+    return newReadWriteLock(label, false);
+  }
+
+  private ReadWriteLock newReadWriteLock(String label, boolean register) {
+    if (telemetry) {
+      return new TelemetryReentrantReadWriteLock(getStatistics(label + READ_LOCK_SUFFIX),
+        getStatistics(label + WRITE_LOCK_SUFFIX), Ticker.systemTicker());
+    }
     ReentrantReadWriteLock baseLock = new ReentrantReadWriteLock();
     if (profiling) {
       ProfiledReentrantReadWriteLock profiledLock = new ProfiledReentrantReadWriteLock(baseLock, Ticker.systemTicker(), label);
-      profiledLocks.add(profiledLock.readLock());
-      profiledLocks.add(profiledLock.writeLock());
+      if (register) {
+        profiledLocks.add(profiledLock.readLock());
+        profiledLocks.add(profiledLock.writeLock());
+      }
       return profiledLock;
     }
     return baseLock;
@@ -116,6 +156,28 @@ public class LockFactory {
     }
   }
 
+  /**
+   * @return whether locks record their contention to {@link LockStatistics}
+   */
+  public boolean isTelemetryEnabled() {
+    return telemetry;
+  }
+
+  /**
+   * If lock telemetry is enabled, get the contention statistics of the locks created so far,
+   * one for each label.  Read-write locks have separate statistics for their read and write
+   * locks, labelled with a {@value #READ_LOCK_SUFFIX} or {@value #WRITE_LOCK_SUFFIX} suffix.
+   *
+   * @return the statistics, or an empty collection if telemetry is disabled
+   */
+  public Collection<LockStatistics> getLockStatistics() {
+    return telemetry ? new ArrayList<>(lockStatistics.values()) : new ArrayList<>();
+  }
+
+  private LockStatistics getStatistics(String label) {
+    return lockStatistics.computeIfAbsent(label, key -> new LockStatistics(key, telemetrySampleRate));
+  }
+
   private static String getDefaultPrefix() {
     StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
     // 0: getStackTrace()
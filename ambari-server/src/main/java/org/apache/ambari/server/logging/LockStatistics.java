@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ambari.server.utils.LatencyHistogram;
+
+/**
+ * Contention statistics shared by all telemetry locks with the same label.
+ * <p>
+ * Every acquisition is counted, along with whether the lock was held by another thread
+ * when it was requested.  Wait and hold times are only measured for a sample of the
+ * acquisitions and are kept in {@link LatencyHistogram}s, so that recording never allocates.
+ */
+public final class LockStatistics {
+
+  private final String label;
+  private final int sampleRate;
+
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder contended = new LongAdder();
+  private final LongAdder waitSamples = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder holdSamples = new LongAdder();
+  private final LongAdder holdNanos = new LongAdder();
+  private final LatencyHistogram waitHistogram = new LatencyHistogram();
+  private final LatencyHistogram holdHistogram = new LatencyHistogram();
+
+  /**
+   * @param label the label of the locks
+   * @param sampleRate one in this many acquisitions is timed (1 to time all of them)
+   */
+  LockStatistics(String label, int sampleRate) {
+    this.label = label;
+    this.sampleRate = Math.max(1, sampleRate);
+  }
+
+  /**
+   * @return the label of the locks these statistics are collected for
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * @return whether the next acquisition should be timed
+   */
+  boolean sample() {
+    return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+  }
+
+  /**
+   * Records an acquisition which was not timed.
+   *
+   * @param wasContended whether the lock was held by another thread when requested
+   */
+  void recordAcquisition(boolean wasContended) {
+    acquisitions.increment();
+    if (wasContended) {
+      contended.increment();
+    }
+  }
+
+  /**
+   * Records a timed acquisition.
+   *
+   * @param wasContended whether the lock was held by another thread when requested
+   * @param nanos the time spent waiting for the lock
+   */
+  void recordWait(boolean wasContended, long nanos) {
+    recordAcquisition(wasContended);
+    waitSamples.increment();
+    waitNanos.add(nanos);
+    waitHistogram.record(nanos);
+  }
+
+  /**
+   * Records the time a lock was held for, from a timed acquisition until its release.
+   *
+   * @param nanos the time the lock was held
+   */
+  void recordHold(long nanos) {
+    holdSamples.increment();
+    holdNanos.add(nanos);
+    holdHistogram.record(nanos);
+  }
+
+  /**
+   * @return the number of times the locks were acquired
+   */
+  public long getAcquisitions() {
+    return acquisitions.sum();
+  }
+
+  /**
+   * @return the number of times the locks were held by another thread when requested
+   */
+  public long getContended() {
+    return contended.sum();
+  }
+
+  /**
+   * @return the number of timed acquisitions
+   */
+  public long getSampledAcquisitions() {
+    return waitSamples.sum();
+  }
+
+  /**
+   * @return the average time (in microseconds) spent waiting for the locks in timed acquisitions
+   */
+  public double getAverageWaitMicros() {
+    return average(waitNanos, waitSamples);
+  }
+
+  /**
+   * @return the average time (in microseconds) the locks were held in timed acquisitions
+   */
+  public double getAverageHoldMicros() {
+    return average(holdNanos, holdSamples);
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the upper bound (in microseconds) of the bucket the percentile of the wait times falls in
+   */
+  public long getWaitPercentileMicros(double percentile) {
+    return LatencyHistogram.getPercentileMicros(waitHistogram.getCounts(), percentile);
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the upper bound (in microseconds) of the bucket the percentile of the hold times falls in
+   */
+  public long getHoldPercentileMicros(double percentile) {
+    return LatencyHistogram.getPercentileMicros(holdHistogram.getCounts(), percentile);
+  }
+
+  private static double average(LongAdder nanos, LongAdder samples) {
+    long count = samples.sum();
+    return count == 0 ? 0 : nanos.sum() / 1000.0 / count;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Ticker;
+
+/**
+ * A ReentrantLock which records its contention to {@link LockStatistics}.
+ * <p>
+ * Untimed acquisitions only cost a check of whether the lock is held and a counter
+ * increment.  Timed acquisitions also measure the time spent waiting for the lock
+ * and the time it is held for.
+ */
+final class TelemetryReentrantLock extends ReentrantLock {
+
+  private final transient LockStatistics statistics;
+  private final transient Ticker ticker;
+
+  /**
+   * The time the lock was acquired at, if the acquisition is timed; only accessed by the owner.
+   */
+  private long acquiredAt;
+
+  /**
+   * @param statistics where to record the contention of the lock
+   * @param ticker is the source of time information, replaceable for testing purpose
+   */
+  TelemetryReentrantLock(LockStatistics statistics, Ticker ticker) {
+    this.statistics = statistics;
+    this.ticker = ticker;
+  }
+
+  @Override
+  public void lock() {
+    boolean contended = isContended();
+    if (statistics.sample()) {
+      long start = ticker.read();
+      super.lock();
+      acquired(contended, start);
+    } else {
+      super.lock();
+      statistics.recordAcquisition(contended);
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    boolean contended = isContended();
+    if (statistics.sample()) {
+      long start = ticker.read();
+      super.lockInterruptibly();
+      acquired(contended, start);
+    } else {
+      super.lockInterruptibly();
+      statistics.recordAcquisition(contended);
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    boolean result = super.tryLock();
+    if (result) {
+      statistics.recordAcquisition(false);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+    boolean contended = isContended();
+    long start = ticker.read();
+    boolean result = super.tryLock(timeout, unit);
+    if (result) {
+      acquired(contended, start);
+    }
+    return result;
+  }
+
+  @Override
+  public void unlock() {
+    long start = 0;
+    if (getHoldCount() == 1) {
+      start = acquiredAt;
+      acquiredAt = 0;
+    }
+    super.unlock();
+    if (start != 0) {
+      statistics.recordHold(ticker.read() - start);
+    }
+  }
+
+  /**
+   * @return the statistics the lock records its contention to
+   */
+  LockStatistics getStatistics() {
+    return statistics;
+  }
+
+  private boolean isContended() {
+    return isLocked() && !isHeldByCurrentThread();
+  }
+
+  private void acquired(boolean contended, long start) {
+    long now = ticker.read();
+    statistics.recordWait(contended, now - start);
+    if (getHoldCount() == 1) {
+      acquiredAt = now;
+    }
+  }
+}
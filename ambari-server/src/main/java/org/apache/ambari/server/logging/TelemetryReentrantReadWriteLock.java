@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.logging;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.base.Ticker;
+
+/**
+ * A ReentrantReadWriteLock which records the contention of its read and write locks to
+ * separate {@link LockStatistics}.
+ *
+ * @see TelemetryReentrantLock
+ */
+final class TelemetryReentrantReadWriteLock extends ReentrantReadWriteLock {
+
+  private final TelemetryReadLock readLock;
+  private final TelemetryWriteLock writeLock;
+
+  /**
+   * @param readStatistics where to record the contention of the read lock
+   * @param writeStatistics where to record the contention of the write lock
+   * @param ticker is the source of time information, replaceable for testing purpose
+   */
+  TelemetryReentrantReadWriteLock(LockStatistics readStatistics, LockStatistics writeStatistics, Ticker ticker) {
+    readLock = new TelemetryReadLock(this, readStatistics, ticker);
+    writeLock = new TelemetryWriteLock(this, writeStatistics, ticker);
+  }
+
+  @Override
+  public TelemetryReadLock readLock() {
+    return readLock;
+  }
+
+  @Override
+  public TelemetryWriteLock writeLock() {
+    return writeLock;
+  }
+
+  static final class TelemetryReadLock extends ReentrantReadWriteLock.ReadLock {
+
+    /**
+     * The time each read lock held by the thread through a timed acquisition was acquired at.
+     * It is shared by all read locks so that the number of thread-local entries does not grow
+     * with the number of locks, and a lock is only in it while held.
+     */
+    private static final ThreadLocal<Map<TelemetryReadLock, Long>> ACQUIRED_AT =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+    private final transient ReentrantReadWriteLock lock;
+    private final transient LockStatistics statistics;
+    private final transient Ticker ticker;
+
+    /**
+     * The number of threads holding the read lock through a timed acquisition, so that
+     * other threads can skip looking up their acquisition time on release.
+     */
+    private final transient AtomicInteger timedHolders = new AtomicInteger();
+
+    TelemetryReadLock(ReentrantReadWriteLock lock, LockStatistics statistics, Ticker ticker) {
+      super(lock);
+      this.lock = lock;
+      this.statistics = statistics;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void lock() {
+      boolean contended = isContended();
+      if (statistics.sample()) {
+        long start = ticker.read();
+        super.lock();
+        acquired(contended, start);
+      } else {
+        super.lock();
+        statistics.recordAcquisition(contended);
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      boolean contended = isContended();
+      if (statistics.sample()) {
+        long start = ticker.read();
+        super.lockInterruptibly();
+        acquired(contended, start);
+      } else {
+        super.lockInterruptibly();
+        statistics.recordAcquisition(contended);
+      }
+    }
+
+    @Override
+    public boolean tryLock() {
+      boolean result = super.tryLock();
+      if (result) {
+        statistics.recordAcquisition(false);
+      }
+      return result;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+      boolean contended = isContended();
+      long start = ticker.read();
+      boolean result = super.tryLock(timeout, unit);
+      if (result) {
+        acquired(contended, start);
+      }
+      return result;
+    }
+
+    @Override
+    public void unlock() {
+      Long start = null;
+      if (timedHolders.get() > 0 && lock.getReadHoldCount() == 1) {
+        start = ACQUIRED_AT.get().remove(this);
+        if (start != null) {
+          timedHolders.decrementAndGet();
+        }
+      }
+      super.unlock();
+      if (start != null) {
+        statistics.recordHold(ticker.read() - start);
+      }
+    }
+
+    LockStatistics getStatistics() {
+      return statistics;
+    }
+
+    private boolean isContended() {
+      return lock.isWriteLocked() && !lock.isWriteLockedByCurrentThread();
+    }
+
+    private void acquired(boolean contended, long start) {
+      long now = ticker.read();
+      statistics.recordWait(contended, now - start);
+      if (lock.getReadHoldCount() == 1) {
+        ACQUIRED_AT.get().put(this, now);
+        timedHolders.incrementAndGet();
+      }
+    }
+  }
+
+  static final class TelemetryWriteLock extends ReentrantReadWriteLock.WriteLock {
+
+    private final transient ReentrantReadWriteLock lock;
+    private final transient LockStatistics statistics;
+    private final transient Ticker ticker;
+
+    /**
+     * The time the write lock was acquired at, if the acquisition is timed; only accessed by the owner.
+     */
+    private long acquiredAt;
+
+    TelemetryWriteLock(ReentrantReadWriteLock lock, LockStatistics statistics, Ticker ticker) {
+      super(lock);
+      this.lock = lock;
+      this.statistics = statistics;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void lock() {
+      boolean contended = isContended();
+      if (statistics.sample()) {
+        long start = ticker.read();
+        super.lock();
+        acquired(contended, start);
+      } else {
+        super.lock();
+        statistics.recordAcquisition(contended);
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      boolean contended = isContended();
+      if (statistics.sample()) {
+        long start = ticker.read();
+        super.lockInterruptibly();
+        acquired(contended, start);
+      } else {
+        super.lockInterruptibly();
+        statistics.recordAcquisition(contended);
+      }
+    }
+
+    @Override
+    public boolean tryLock() {
+      boolean result = super.tryLock();
+      if (result) {
+        statistics.recordAcquisition(false);
+      }
+      return result;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+      boolean contended = isContended();
+      long start = ticker.read();
+      boolean result = super.tryLock(timeout, unit);
+      if (result) {
+        acquired(contended, start);
+      }
+      return result;
+    }
+
+    @Override
+    public void unlock() {
+      long start = 0;
+      if (getHoldCount() == 1) {
+        start = acquiredAt;
+        acquiredAt = 0;
+      }
+      super.unlock();
+      if (start != 0) {
+        statistics.recordHold(ticker.read() - start);
+      }
+    }
+
+    LockStatistics getStatistics() {
+      return statistics;
+    }
+
+    private boolean isContended() {
+      return !isHeldByCurrentThread() && (lock.isWriteLocked() || lock.getReadLockCount() > 0);
+    }
+
+    private void acquired(boolean contended, long start) {
+      long now = ticker.read();
+      statistics.recordWait(contended, now - start);
+      if (getHoldCount() == 1) {
+        acquiredAt = now;
+      }
+    }
+  }
+}
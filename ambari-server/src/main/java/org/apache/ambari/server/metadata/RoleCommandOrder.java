@@ -23,11 +23,14 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.stageplanner.RoleDependencyGraph;
 import org.apache.ambari.server.stageplanner.RoleGraphNode;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Service;
@@ -37,6 +40,9 @@ import org.apache.ambari.server.state.StackInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
@@ -75,6 +81,17 @@ public class RoleCommandOrder implements Cloneable {
    */
   private Map<RoleCommandPair, Set<RoleCommandPair>> dependencies = new HashMap<>();
 
+  /**
+   * The maximum number of role sets for which the dependency graph is kept.
+   */
+  private static final int MAX_DEPENDENCY_GRAPHS = 256;
+
+  /**
+   * Dependency graphs compiled from {@link #dependencies}, by the role and
+   * command of each role they order.
+   */
+  private Cache<Map<String, RoleCommand>, RoleDependencyGraph> dependencyGraphs = createDependencyGraphCache();
+
   /**
    * Add a pair of tuples where the tuple defined by the first two parameters are blocked on
    * the tuple defined by the last two pair.
@@ -86,6 +103,7 @@ public class RoleCommandOrder implements Cloneable {
   private void addDependency(Role blockedRole,
       RoleCommand blockedCommand, Role blockerRole, RoleCommand blockerCommand,
       boolean overrideExisting) {
+    dependencyGraphs.invalidateAll();
     RoleCommandPair rcp1 = new RoleCommandPair(blockedRole, blockedCommand);
     RoleCommandPair rcp2 = new RoleCommandPair(blockerRole, blockerCommand);
 
@@ -132,6 +150,7 @@ public class RoleCommandOrder implements Cloneable {
     // clean RCO instance
     this.sectionKeys = sectionKeys;
     dependencies.clear();
+    dependencyGraphs.invalidateAll();
 
     Set<StackId> stackIds = new HashSet<>();
     for (Service service : cluster.getServices().values()) {
@@ -188,6 +207,32 @@ public class RoleCommandOrder implements Cloneable {
     return 0;
   }
 
+  /**
+   * Gets the dependencies between a set of roles, compiling them on first use.
+   * The dependencies are kept until the order is initialized again.
+   *
+   * @param nodes
+   *          the nodes to order, keyed by role
+   * @return the dependency graph of the roles
+   */
+  public RoleDependencyGraph getDependencyGraph(Map<String, RoleGraphNode> nodes) {
+    Map<String, RoleCommand> roleCommands = new TreeMap<>();
+    for (Map.Entry<String, RoleGraphNode> entry : nodes.entrySet()) {
+      roleCommands.put(entry.getKey(), entry.getValue().getCommand());
+    }
+
+    try {
+      return dependencyGraphs.get(ImmutableMap.copyOf(roleCommands),
+          () -> RoleDependencyGraph.compile(this, nodes));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to compile the role dependency graph", e.getCause());
+    }
+  }
+
+  private static Cache<Map<String, RoleCommand>, RoleDependencyGraph> createDependencyGraphCache() {
+    return CacheBuilder.newBuilder().maximumSize(MAX_DEPENDENCY_GRAPHS).build();
+  }
+
   /**
    * Returns transitive dependencies as a services list
    * @param service to check if it depends on another services
@@ -282,6 +327,7 @@ public class RoleCommandOrder implements Cloneable {
     }
     if (!missingDependencies.isEmpty()) {
       dependencies.putAll(missingDependencies);
+      dependencyGraphs.invalidateAll();
     }
   }
 
@@ -374,6 +420,7 @@ public class RoleCommandOrder implements Cloneable {
     RoleCommandOrder clone = (RoleCommandOrder) super.clone();
     clone.sectionKeys = new LinkedHashSet<>(sectionKeys);
     clone.dependencies = new HashMap<>(dependencies);
+    clone.dependencyGraphs = createDependencyGraphCache();
 
     return clone;
   }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.events.MessageEmitter;
+import org.apache.ambari.server.events.MessageEmitter.DeliveryStatistics;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+
+/**
+ * @{link AgentCommandDeliveryMetricsSource} publishes the delivery of execution
+ * commands to the agents (commands delivered, retried, given up on and pending, and
+ * their delivery latency), summed over the registered hosts, to the Metrics Sink.
+ * <p/>
+ * The emitter is created by the STOMP configuration, outside of Guice, which hands
+ * it over with {@link #setMessageEmitter(MessageEmitter)}.
+ */
+public class AgentCommandDeliveryMetricsSource extends ScheduledMetricsSource {
+  private static final String DELIVERY_PREFIX = "agent.commands.";
+
+  private static volatile MessageEmitter messageEmitter;
+
+  public static void setMessageEmitter(MessageEmitter emitter) {
+    messageEmitter = emitter;
+  }
+
+  public AgentCommandDeliveryMetricsSource() {
+    super("agent command delivery");
+  }
+
+  /**
+   * Gets the current command delivery metrics. The counts are totals since the
+   * hosts registered; the latencies, in milliseconds, are the highest and the
+   * average over all the commands acknowledged.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    MessageEmitter emitter = messageEmitter;
+    if (emitter == null) {
+      return metrics;
+    }
+
+    long delivered = 0;
+    long retries = 0;
+    long failures = 0;
+    long pending = 0;
+    long maxLatency = 0;
+    long totalLatency = 0;
+    for (DeliveryStatistics statistics : emitter.getDeliveryStatistics().values()) {
+      delivered += statistics.getDelivered();
+      retries += statistics.getRetries();
+      failures += statistics.getFailures();
+      pending += statistics.getPending();
+      maxLatency = Math.max(maxLatency, statistics.getMaxDeliveryLatency());
+      totalLatency += statistics.getAverageDeliveryLatency() * statistics.getDelivered();
+    }
+
+    long now = System.currentTimeMillis();
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "delivered", delivered, now));
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "retries", retries, now));
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "failures", failures, now));
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "pending", pending, now));
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "latency.max", maxLatency, now));
+    metrics.add(new SingleMetric(DELIVERY_PREFIX + "latency.avg", delivered == 0 ? 0 : totalLatency / delivered, now));
+    return metrics;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.agent.stomp.AgentsRegistrationQueue;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+
+import com.codahale.metrics.Snapshot;
+
+/**
+ * @{link AgentRegistrationMetricsSource} publishes the registration of the agents
+ * (registrations completed and their measured rate, agents asked to reconnect, the
+ * admission rate and the percentiles of the registration latency) to the Metrics Sink.
+ * <p/>
+ * The registration queue is created by the STOMP configuration, outside of Guice,
+ * which hands it over with {@link #setRegistrationQueue(AgentsRegistrationQueue)}.
+ */
+public class AgentRegistrationMetricsSource extends ScheduledMetricsSource {
+  private static final String REGISTRATION_PREFIX = "agent.registration.";
+
+  private static volatile AgentsRegistrationQueue registrationQueue;
+
+  public static void setRegistrationQueue(AgentsRegistrationQueue queue) {
+    registrationQueue = queue;
+  }
+
+  public AgentRegistrationMetricsSource() {
+    super("agent registration");
+  }
+
+  /**
+   * Gets the current agent registration metrics. The latencies, in milliseconds,
+   * are those of the most recent registrations, from admission to the first
+   * heartbeat.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    AgentsRegistrationQueue queue = registrationQueue;
+    if (queue == null) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    Snapshot latency = queue.getRegistrationLatency();
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "completed", queue.getCompletedRegistrations(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "rate", queue.getRegistrationRate(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "rejected", queue.getRejectedRegistrations(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "admission.rate", queue.getAdmissionRate(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "latency.p50", latency.getMedian(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "latency.p95", latency.get95thPercentile(), now));
+    metrics.add(new SingleMetric(REGISTRATION_PREFIX + "latency.p99", latency.get99thPercentile(), now));
+    return metrics;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.state.services.AlertNoticeDispatchService;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link AlertNoticeDispatchMetricsSource} publishes the throughput and lag of alert
+ * notification dispatch (notifications dispatched, notices delivered and failed, the age of
+ * the oldest dispatched alert and the notices left pending) to the Metrics Sink.
+ */
+@StaticallyInject
+public class AlertNoticeDispatchMetricsSource extends ScheduledMetricsSource {
+  private static final String DISPATCH_PREFIX = "alerts.dispatch.";
+
+  @Inject
+  private static AlertNoticeDispatchService dispatchService;
+
+  private long lastPublished;
+  private long lastDelivered;
+
+  public AlertNoticeDispatchMetricsSource() {
+    super("alert dispatch");
+  }
+
+  /**
+   * Gets the current alert dispatch metrics. Besides the totals since startup,
+   * {@code alerts.dispatch.delivered.rate} is the number of notices delivered
+   * per second since the previous call.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (dispatchService == null) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    long delivered = dispatchService.getNoticesDelivered();
+    double deliveredRate = 0;
+    if (lastPublished > 0 && now > lastPublished) {
+      deliveredRate = (delivered - lastDelivered) * 1000.0 / (now - lastPublished);
+    }
+    lastPublished = now;
+    lastDelivered = delivered;
+
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "notifications", dispatchService.getNotificationsDispatched(), now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "delivered", delivered, now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "delivered.rate", deliveredRate, now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "failed", dispatchService.getNoticesFailed(), now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "lag", dispatchService.getMaxDispatchLag(), now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "deferred", dispatchService.getDeferredNotices(), now));
+    metrics.add(new SingleMetric(DISPATCH_PREFIX + "held", dispatchService.getHeldNotices(), now));
+    return metrics;
+  }
+}
@@ -19,13 +19,18 @@
 package org.apache.ambari.server.metrics.system.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.apache.ambari.server.metrics.system.SingleMetric;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Record;
 import org.eclipse.persistence.sessions.SessionProfiler;
 import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
 import org.slf4j.Logger;
@@ -35,6 +40,8 @@ import com.google.inject.Singleton;
 
 /**
  * Class to extend the EclipseLink PerformanceMonitor, and dump the collected metrics to the AmbariServer Database Metrics source.
+ * It also times each query as a whole, by named query (or query type and entity for dynamic queries),
+ * into {@link QueryStatistics}, which are published along with the EclipseLink metrics.
  */
 @Singleton
 public class AmbariPerformanceMonitor extends PerformanceMonitor {
@@ -43,6 +50,14 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
   private DatabaseMetricsSource metricsSource;
   private static String entityPackagePrefix = "org.apache"; //Can be made into a set later if needed.
 
+  /**
+   * The nesting depth of query executions on the current thread, so that only the outermost
+   * execution of a query is timed (a unit of work executes queries through its parent session).
+   */
+  private static final ThreadLocal<int[]> queryDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+  private volatile QueryStatistics queryStatistics;
+
   public AmbariPerformanceMonitor() {
     super();
     LOG.info("AmbariPerformanceMonitor instantiated");
@@ -64,6 +79,11 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
       String profileWeight = metricsSource.getConfigurationValue("query.weight", "HEAVY");
       this.setProfileWeight(getWeight(profileWeight));
 
+      if (Boolean.parseBoolean(metricsSource.getConfigurationValue("query.statistics", "true"))) {
+        long slowQueryThreshold = Long.parseLong(metricsSource.getConfigurationValue("slow.query.threshold", "1000"));
+        queryStatistics = new QueryStatistics(slowQueryThreshold);
+      }
+
       isInitialized = true;
 
     } else {
@@ -71,6 +91,42 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
     }
   }
 
+  /**
+   * Times the outermost execution of each query into the {@link QueryStatistics}, and writes it to the
+   * slow query log if it took longer than the threshold.
+   */
+  @Override
+  public Object profileExecutionOfQuery(DatabaseQuery query, Record row, AbstractSession session) {
+    QueryStatistics statistics = queryStatistics;
+    int[] depth = queryDepth.get();
+    if (statistics == null || depth[0] > 0) {
+      return super.profileExecutionOfQuery(query, row, session);
+    }
+
+    Object result = null;
+    depth[0]++;
+    long start = System.nanoTime();
+    try {
+      result = super.profileExecutionOfQuery(query, row, session);
+      return result;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      depth[0]--;
+
+      String queryName = getQueryName(query);
+      long rows = getRowCount(result);
+      statistics.record(queryName, elapsed, rows);
+      if (statistics.isSlow(elapsed)) {
+        statistics.logSlowQuery(queryName, elapsed, rows, row);
+      }
+
+      // the parent only dumps results when profiling heavy operations
+      if (getProfileWeight() < SessionProfiler.HEAVY) {
+        checkDumpTime();
+      }
+    }
+  }
+
   /**
    * Overridden dump metrics method for dumping Metrics to source rather than writing to Log file.
    */
@@ -115,6 +171,50 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
         metricsSource.publish(metrics);
       }
     }
+
+    QueryStatistics statistics = queryStatistics;
+    if (statistics != null) {
+      List<SingleMetric> queryMetrics = statistics.getMetrics(lastDumpTime);
+      if (!queryMetrics.isEmpty()) {
+        LOG.debug("Publishing {} query metrics to sink.", queryMetrics.size());
+        metricsSource.publishQueryMetrics(queryMetrics);
+      }
+    }
+  }
+
+  /**
+   * Gets the name under which a query is timed: the name of named queries, which includes their entity,
+   * and the type of query and entity for the others.
+   *
+   * @param query the query
+   * @return the name of the query, such as AlertCurrentEntity.findByService or ReadObjectQuery.HostEntity
+   */
+  static String getQueryName(DatabaseQuery query) {
+    String name = query.getName();
+    if (StringUtils.isNotEmpty(name)) {
+      return name;
+    }
+
+    Class<?> referenceClass = query.getReferenceClass();
+    String queryType = query.getClass().getSimpleName();
+    return referenceClass == null ? queryType : queryType + "." + referenceClass.getSimpleName();
+  }
+
+  /**
+   * @param result the result of a query
+   * @return the number of rows the query read (or modified, for modify queries)
+   */
+  static long getRowCount(Object result) {
+    if (result == null) {
+      return 0;
+    }
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof Number) {
+      return ((Number) result).longValue();
+    }
+    return 1;
   }
 
   /**
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.audit.AuditLogStatistics;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link AuditLogMetricsSource} publishes the state of the audit log pipeline (queue depth,
+ * throughput, batch write latency and overflow counters) to the Metrics Sink.
+ */
+@StaticallyInject
+public class AuditLogMetricsSource extends ScheduledMetricsSource {
+  private static final String AUDIT_PREFIX = "auditlog.";
+
+  @Inject
+  private static AuditLogStatistics statistics;
+
+  private long lastWritten;
+
+  public AuditLogMetricsSource() {
+    super("audit log");
+  }
+
+  /**
+   * Gets the current audit log metrics. The write rate is computed since the previous call.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (statistics == null) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    long written = statistics.getWritten();
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "queue.depth", statistics.getQueueDepth(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "queue.capacity", statistics.getQueueCapacity(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "written", written, now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "written.rate", (double) (written - lastWritten) / interval, now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "dropped", statistics.getDropped(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "spilled", statistics.getSpilled(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "replayed", statistics.getReplayed(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "batch.write.time.avg", statistics.getAverageBatchWriteTime(), now));
+    metrics.add(new SingleMetric(AUDIT_PREFIX + "batch.write.time.max", statistics.getAndResetMaxBatchWriteTime(), now));
+    lastWritten = written;
+    return metrics;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.controller.internal.ClientConfigArchiveCache;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+
+import com.codahale.metrics.Snapshot;
+import com.google.inject.Inject;
+
+/**
+ * @{link ClientConfigArchiveMetricsSource} publishes the ratio of client
+ * configuration archives served from the cache, the number of cached archives
+ * and the time recent downloads took to generate theirs to the Metrics Sink.
+ */
+@StaticallyInject
+public class ClientConfigArchiveMetricsSource extends ScheduledMetricsSource {
+  private static final String CACHE_PREFIX = "client.configs.cache.";
+
+  @Inject
+  private static ClientConfigArchiveCache archiveCache;
+
+  public ClientConfigArchiveMetricsSource() {
+    super("client configuration archive");
+  }
+
+  /**
+   * Gets the current client configuration archive metrics. The generation
+   * times are in milliseconds.
+   *
+   * @return the metrics, none if the archives are not cached
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (archiveCache == null || !archiveCache.isEnabled()) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    Snapshot generationTime = archiveCache.getGenerationTime();
+    metrics.add(new SingleMetric(CACHE_PREFIX + "hit.ratio", archiveCache.getHitRatio(), now));
+    metrics.add(new SingleMetric(CACHE_PREFIX + "size", archiveCache.size(), now));
+    metrics.add(new SingleMetric(CACHE_PREFIX + "generation.time.avg", generationTime.getMean(), now));
+    metrics.add(new SingleMetric(CACHE_PREFIX + "generation.time.p95", generationTime.get95thPercentile(), now));
+    metrics.add(new SingleMetric(CACHE_PREFIX + "generation.time.max", generationTime.getMax(), now));
+    return metrics;
+  }
+}
@@ -139,6 +139,24 @@ public class DatabaseMetricsSource extends AbstractMetricsSource {
     }
   }
 
+  /**
+   * Method to publish the per-query metrics to Sink asynchronously. These are not filtered by entity
+   * so that slow queries can be found without knowing them in advance.
+   * @param metrics per-query metrics to be published to Sink
+   */
+  public void publishQueryMetrics(final List<SingleMetric> metrics) {
+    try {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          sink.publish(metrics);
+        }
+      });
+    } catch (Exception e) {
+      LOG.info("Exception when publishing query metrics to sink", e);
+    }
+  }
+
   /**
    * Accept a metric to be passed to Sink or not.
    * @param metricName
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.state.services.HistoryPurgeService;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link HistoryPurgeMetricsSource} publishes the progress of the online history purge
+ * (rows purged, throughput of the last purge and the backlog per cluster and history type)
+ * to the Metrics Sink.
+ */
+@StaticallyInject
+public class HistoryPurgeMetricsSource extends ScheduledMetricsSource {
+  private static final String PURGE_PREFIX = "purge.";
+
+  @Inject
+  private static HistoryPurgeService purgeService;
+
+  public HistoryPurgeMetricsSource() {
+    super("history purge");
+  }
+
+  /**
+   * Gets the current history purge metrics. The backlog is published as
+   * {@code purge.backlog.<cluster>.<history type>}.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (purgeService == null) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    metrics.add(new SingleMetric(PURGE_PREFIX + "rows", purgeService.getPurgedRows(), now));
+    metrics.add(new SingleMetric(PURGE_PREFIX + "rows.rate", purgeService.getRowsPerSecond(), now));
+    for (Map.Entry<String, Long> entry : purgeService.getBacklog().entrySet()) {
+      String name = entry.getKey().substring(HistoryPurgeService.CHECKPOINT_KEY_PREFIX.length());
+      metrics.add(new SingleMetric(PURGE_PREFIX + "backlog." + name, entry.getValue(), now));
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.logging.LockStatistics;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link LockMetricsSource} publishes the contention statistics of the locks created by the
+ * {@link LockFactory} (acquisition and contention rates, sampled wait and hold time percentiles)
+ * to the Metrics Sink, one set of metrics per lock label.
+ */
+@StaticallyInject
+public class LockMetricsSource extends ScheduledMetricsSource {
+  private static final String LOCK_PREFIX = "locks.";
+
+  @Inject
+  private static LockFactory lockFactory;
+
+  private final Map<String, long[]> lastCounts = new HashMap<>();
+
+  public LockMetricsSource() {
+    super("lock");
+  }
+
+  /**
+   * Gets the current lock metrics. The acquisition and contention rates are computed since the
+   * previous call.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (lockFactory == null || !lockFactory.isTelemetryEnabled()) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    for (LockStatistics statistics : lockFactory.getLockStatistics()) {
+      String prefix = LOCK_PREFIX + statistics.getLabel().replaceAll("\\s+", "_") + ".";
+      long acquisitions = statistics.getAcquisitions();
+      long contended = statistics.getContended();
+      long[] last = lastCounts.computeIfAbsent(statistics.getLabel(), label -> new long[2]);
+
+      metrics.add(new SingleMetric(prefix + "acquisitions.rate", (double) (acquisitions - last[0]) / interval, now));
+      metrics.add(new SingleMetric(prefix + "contended.rate", (double) (contended - last[1]) / interval, now));
+      metrics.add(new SingleMetric(prefix + "wait.avg", statistics.getAverageWaitMicros(), now));
+      metrics.add(new SingleMetric(prefix + "wait.p50", statistics.getWaitPercentileMicros(50), now));
+      metrics.add(new SingleMetric(prefix + "wait.p99", statistics.getWaitPercentileMicros(99), now));
+      metrics.add(new SingleMetric(prefix + "hold.avg", statistics.getAverageHoldMicros(), now));
+      metrics.add(new SingleMetric(prefix + "hold.p50", statistics.getHoldPercentileMicros(50), now));
+      metrics.add(new SingleMetric(prefix + "hold.p99", statistics.getHoldPercentileMicros(99), now));
+      last[0] = acquisitions;
+      last[1] = contended;
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.utils.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latency histograms, row counts and call counts of database queries, by query name (the named
+ * query, or the query type and entity for dynamic queries).  Queries which take longer than the
+ * slow query threshold are also written to the "slowqueries" log along with the shape of their
+ * bind parameters.
+ * <p/>
+ * Latencies are kept in {@link LatencyHistogram}s, so that recording a query never allocates;
+ * the published percentiles are the upper bounds of their buckets.
+ */
+public class QueryStatistics {
+  private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("slowqueries");
+  private static final String QUERY_PREFIX = "query.";
+
+  private final long slowQueryThresholdNanos;
+  private final ConcurrentMap<String, QueryTimer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * @param slowQueryThresholdMillis queries taking at least this long are logged; 0 or less disables the log
+   */
+  public QueryStatistics(long slowQueryThresholdMillis) {
+    slowQueryThresholdNanos = slowQueryThresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis) : Long.MAX_VALUE;
+  }
+
+  /**
+   * @param nanos the duration of a query
+   * @return whether the query should be written to the slow query log
+   */
+  public boolean isSlow(long nanos) {
+    return nanos >= slowQueryThresholdNanos;
+  }
+
+  /**
+   * Records the execution of a query.
+   *
+   * @param queryName the name of the query
+   * @param nanos the time the query took
+   * @param rows the number of rows read or modified
+   */
+  public void record(String queryName, long nanos, long rows) {
+    QueryTimer timer = timers.get(queryName);
+    if (timer == null) {
+      timer = timers.computeIfAbsent(queryName, QueryTimer::new);
+    }
+    timer.record(nanos, rows);
+  }
+
+  /**
+   * Writes a query to the slow query log.
+   *
+   * @param queryName the name of the query
+   * @param nanos the time the query took
+   * @param rows the number of rows read or modified
+   * @param parameters the bind parameters of the query, by name (may be {@code null})
+   */
+  public void logSlowQuery(String queryName, long nanos, long rows, Map<String, Object> parameters) {
+    SLOW_QUERY_LOG.warn("{} took {} ms, rows={}, parameters={}", queryName,
+      TimeUnit.NANOSECONDS.toMillis(nanos), rows, getParameterShape(parameters));
+  }
+
+  /**
+   * Gets the metrics of the queries executed since the previous call, for each query:
+   * the number of calls, the average number of rows, and the average, median, 95th and 99th
+   * percentile latency in milliseconds.
+   *
+   * @param timestamp the timestamp of the metrics
+   * @return the metrics
+   */
+  public List<SingleMetric> getMetrics(long timestamp) {
+    List<SingleMetric> metrics = new ArrayList<>();
+    for (QueryTimer timer : timers.values()) {
+      timer.snapshot(metrics, timestamp);
+    }
+    return metrics;
+  }
+
+  /**
+   * @return the names of the queries executed so far
+   */
+  public Collection<String> getQueryNames() {
+    return new ArrayList<>(timers.keySet());
+  }
+
+  /**
+   * Describes the bind parameters of a query without their values, which could be large or
+   * sensitive: the type of each parameter and, for collections, their size.
+   *
+   * @param parameters the bind parameters of the query, by name (may be {@code null})
+   * @return the shape of the parameters, such as {@code {requestId=Long, statuses=List[4]}}
+   */
+  public static String getParameterShape(Map<String, Object> parameters) {
+    if (parameters == null || parameters.isEmpty()) {
+      return "{}";
+    }
+
+    StringBuilder shape = new StringBuilder("{");
+    for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+      if (shape.length() > 1) {
+        shape.append(", ");
+      }
+      shape.append(parameter.getKey()).append('=');
+      Object value = parameter.getValue();
+      if (value == null) {
+        shape.append("null");
+      } else if (value instanceof Collection) {
+        shape.append(getCollectionType(value)).append('[').append(((Collection<?>) value).size()).append(']');
+      } else if (value.getClass().isArray() && !(value instanceof byte[])) {
+        shape.append(value.getClass().getComponentType().getSimpleName()).append('[')
+          .append(Array.getLength(value)).append(']');
+      } else {
+        shape.append(value.getClass().getSimpleName());
+      }
+    }
+    return shape.append('}').toString();
+  }
+
+  private static String getCollectionType(Object collection) {
+    if (collection instanceof List) {
+      return "List";
+    }
+    return collection instanceof Set ? "Set" : "Collection";
+  }
+
+  /**
+   * The statistics of a single query.  The counters are cumulative; the values of the previous
+   * snapshot are kept so that each snapshot only covers the queries executed since.
+   */
+  private static final class QueryTimer {
+    private final String metricPrefix;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * The counters as of the previous snapshot, guarded by the timer's monitor.
+     */
+    private long lastCalls;
+    private long lastRows;
+    private long lastNanos;
+    private final long[] lastHistogram = new long[LatencyHistogram.BUCKETS];
+
+    private QueryTimer(String queryName) {
+      metricPrefix = QUERY_PREFIX + queryName + ".";
+    }
+
+    private void record(long duration, long rowCount) {
+      calls.increment();
+      rows.add(rowCount);
+      nanos.add(duration);
+      histogram.record(duration);
+    }
+
+    private synchronized void snapshot(List<SingleMetric> metrics, long timestamp) {
+      long totalCalls = calls.sum();
+      long intervalCalls = totalCalls - lastCalls;
+      if (intervalCalls <= 0) {
+        return;
+      }
+
+      long totalRows = rows.sum();
+      long totalNanos = nanos.sum();
+      long[] intervalHistogram = histogram.getIntervalCounts(lastHistogram);
+
+      metrics.add(new SingleMetric(metricPrefix + "calls", intervalCalls, timestamp));
+      metrics.add(new SingleMetric(metricPrefix + "rows", (double) (totalRows - lastRows) / intervalCalls, timestamp));
+      metrics.add(new SingleMetric(metricPrefix + "avg", (totalNanos - lastNanos) / 1000000.0 / intervalCalls, timestamp));
+      metrics.add(new SingleMetric(metricPrefix + "p50", percentile(intervalHistogram, 50), timestamp));
+      metrics.add(new SingleMetric(metricPrefix + "p95", percentile(intervalHistogram, 95), timestamp));
+      metrics.add(new SingleMetric(metricPrefix + "p99", percentile(intervalHistogram, 99), timestamp));
+
+      lastCalls = totalCalls;
+      lastRows = totalRows;
+      lastNanos = totalNanos;
+    }
+
+    /**
+     * @return the upper bound in milliseconds of the bucket the percentile falls in
+     */
+    private static double percentile(long[] counts, double percentile) {
+      return LatencyHistogram.getPercentileMicros(counts, percentile) / 1000.0;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @{link ScheduledMetricsSource} publishes the metrics returned by {@link #getMetrics()}
+ * to the Metrics Sink every {@code interval} seconds (60 by default).
+ */
+public abstract class ScheduledMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(ScheduledMetricsSource.class);
+
+  private final String name;
+  private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+
+  /**
+   * The publishing interval, in seconds.
+   */
+  protected int interval = 60;
+
+  /**
+   * @param name what the metrics are about, for logging
+   */
+  protected ScheduledMetricsSource(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized {} metrics source...", name);
+  }
+
+  @Override
+  public void start() {
+    try {
+      executor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            sink.publish(getMetrics());
+            LOG.debug("Published {} metrics to sink", name);
+          } catch (Exception e) {
+            LOG.debug("Error in publishing {} metrics to sink.", name, e);
+          }
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      LOG.info("Started {} metrics source...", name);
+    } catch (Exception e) {
+      LOG.info("Throwing exception when starting {} metrics source", name, e);
+    }
+  }
+
+  /**
+   * Gets the current metrics.
+   *
+   * @return the metrics, none if there is nothing to publish
+   */
+  public abstract List<SingleMetric> getMetrics();
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link UpgradePlanningMetricsSource} publishes how long the last upgrade took to
+ * plan, to build its stages and to persist them, along with the number of upgrades
+ * created, being planned in the background and whose planning failed, to the
+ * Metrics Sink.
+ */
+@StaticallyInject
+public class UpgradePlanningMetricsSource extends ScheduledMetricsSource {
+  private static final String PLANNING_PREFIX = "upgrade.planning.";
+
+  @Inject
+  private static UpgradePlanner upgradePlanner;
+
+  public UpgradePlanningMetricsSource() {
+    super("upgrade planning");
+  }
+
+  /**
+   * Gets the current upgrade planning metrics. The times, in milliseconds, are
+   * those of the last upgrade created.
+   *
+   * @return the metrics
+   */
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (upgradePlanner == null) {
+      return metrics;
+    }
+
+    long now = System.currentTimeMillis();
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "time", upgradePlanner.getLastPlanningTime(), now));
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "stage.build.time", upgradePlanner.getLastStageBuildTime(), now));
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "persist.time", upgradePlanner.getLastPersistTime(), now));
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "upgrades", upgradePlanner.getUpgradesPlanned(), now));
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "in.progress", upgradePlanner.getPlanningsInProgress(), now));
+    metrics.add(new SingleMetric(PLANNING_PREFIX + "failures", upgradePlanner.getPlanningFailures(), now));
+    return metrics;
+  }
+}
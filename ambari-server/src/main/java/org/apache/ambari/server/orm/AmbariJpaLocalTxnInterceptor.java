@@ -20,8 +20,10 @@ package org.apache.ambari.server.orm;
 
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -56,6 +58,10 @@ import com.google.inject.persist.jpa.AmbariJpaPersistService;
  * back. This ensures that transactional methods invoke from an already running
  * transaction can have their lock invoked for the lifespan of the outer
  * "parent" transaction.
+ * <p/>
+ * Objects which keep copies of what they persist can register actions with
+ * {@link #onRollback(Runnable)} to restore these copies if the outer-most
+ * transaction is rolled back.
  */
 public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
 
@@ -77,6 +83,12 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     }
   };
 
+  /**
+   * The actions to run if the transaction of the thread is rolled back, or
+   * {@code null} if the thread is not running a transaction.
+   */
+  private static final ThreadLocal<List<Runnable>> s_rollbackActions = new ThreadLocal<>();
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -118,10 +130,12 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       return methodInvocation.proceed();
     }
 
+    boolean committed = false;
     try {
       // this is the outer-most transactional, begin a transaction
       final EntityTransaction txn = em.getTransaction();
       txn.begin();
+      s_rollbackActions.set(new ArrayList<>());
 
       Object result;
       try {
@@ -131,6 +145,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         // commit transaction only if rollback didn't occur
         if (rollbackIfNecessary(transactional, e, txn)) {
           txn.commit();
+          committed = true;
         }
 
         detailedLogForPersistenceError(e);
@@ -151,6 +166,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // interferes with the advised method's throwing semantics)
       try {
         txn.commit();
+        committed = true;
       } catch (Exception e) {
         detailedLogForPersistenceError(e);
         throw e;
@@ -167,6 +183,38 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     } finally {
       // unlock all lock areas for this transaction
       unlockTransaction();
+
+      List<Runnable> rollbackActions = s_rollbackActions.get();
+      s_rollbackActions.remove();
+      if (!committed && null != rollbackActions) {
+        runRollbackActions(rollbackActions);
+      }
+    }
+  }
+
+  /**
+   * Registers an action to run if the transaction of the calling thread is
+   * rolled back. The action runs once the transaction has ended, outside of
+   * any transaction. Nothing is registered if the thread is not running a
+   * transaction, since what it persisted is already committed.
+   *
+   * @param action
+   *          the action to run on rollback
+   */
+  public static void onRollback(Runnable action) {
+    List<Runnable> rollbackActions = s_rollbackActions.get();
+    if (null != rollbackActions) {
+      rollbackActions.add(action);
+    }
+  }
+
+  private static void runRollbackActions(List<Runnable> rollbackActions) {
+    for (Runnable action : rollbackActions) {
+      try {
+        action.run();
+      } catch (RuntimeException e) {
+        LOG.error("Unable to run an action after the transaction was rolled back", e);
+      }
     }
   }
 
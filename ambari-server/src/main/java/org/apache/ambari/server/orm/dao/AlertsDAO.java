@@ -18,6 +18,7 @@
 package org.apache.ambari.server.orm.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
@@ -40,6 +41,7 @@ import org.apache.ambari.annotations.ExperimentalFeature;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.api.query.JpaPredicateVisitor;
 import org.apache.ambari.server.api.query.JpaSortBuilder;
+import org.apache.ambari.server.cleanup.ChunkedCleanable;
 import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AlertCurrentRequest;
@@ -84,7 +86,7 @@ import com.google.inject.persist.Transactional;
  */
 @Singleton
 @Experimental(feature = ExperimentalFeature.ALERT_CACHING)
-public class AlertsDAO implements Cleanable {
+public class AlertsDAO implements ChunkedCleanable {
   /**
    * Logger.
    */
@@ -468,6 +470,35 @@ public class AlertsDAO implements Cleanable {
     return m_entityManagerProvider.get().find(AlertCurrentEntity.class, alertId);
   }
 
+  /**
+   * Gets the current alerts with the specified IDs, reading them in batches
+   * rather than one at a time.
+   *
+   * @param alertIds
+   *          the IDs of the alerts to retrieve.
+   * @return the alerts which exist or an empty list if none exist (never
+   *         {@code null}).
+   */
+  @RequiresSession
+  public List<AlertCurrentEntity> findCurrentByIds(Collection<Long> alertIds) {
+    List<AlertCurrentEntity> alerts = new ArrayList<>();
+    List<Long> ids = new ArrayList<>(alertIds);
+    for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+      TypedQuery<AlertCurrentEntity> query = m_entityManagerProvider.get().createNamedQuery(
+          "AlertCurrentEntity.findByIds", AlertCurrentEntity.class);
+
+      query.setParameter("alertIds", ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())));
+      alerts.addAll(m_daoUtils.selectList(query));
+    }
+
+    // if caching is enabled, replace results with cached values when present
+    if (m_configuration.isAlertCacheEnabled()) {
+      alerts = supplementWithCachedAlerts(alerts);
+    }
+
+    return alerts;
+  }
+
   /**
    * Gets the current alerts for the specified definition ID.
    *
@@ -1239,6 +1270,73 @@ public class AlertsDAO implements Cleanable {
     return affectedRows;
   }
 
+  /**
+   * Finds the ids of alert history entries in a cluster older than the policy
+   * date, in ascending order. Entries still referenced by a current alert are
+   * left out, since an alert which has not changed state for longer than the
+   * retention period is still current.
+   */
+  @Override
+  public List<Long> findCleanupIds(TimeBasedCleanupPolicy policy, long afterId, int limit) {
+    TypedQuery<Long> query = m_entityManagerProvider.get().createNamedQuery(
+        "AlertHistoryEntity.findIdsInClusterBeforeDateAfterId", Long.class);
+
+    query.setParameter("clusterId", getClusterId(policy));
+    query.setParameter("beforeDate", policy.getToDateInMillis());
+    query.setParameter("afterId", afterId);
+    query.setMaxResults(limit);
+
+    return m_daoUtils.selectList(query);
+  }
+
+  @Override
+  public long countCleanupIds(TimeBasedCleanupPolicy policy, long afterId) {
+    TypedQuery<Long> query = m_entityManagerProvider.get().createNamedQuery(
+        "AlertHistoryEntity.countInClusterBeforeDateAfterId", Long.class);
+
+    query.setParameter("clusterId", getClusterId(policy));
+    query.setParameter("beforeDate", policy.getToDateInMillis());
+    query.setParameter("afterId", afterId);
+
+    Long count = m_daoUtils.selectSingle(query);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Deletes the given alert history entries together with the notices
+   * referencing them.
+   */
+  @Transactional
+  @Override
+  public long cleanupIds(TimeBasedCleanupPolicy policy, List<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    EntityManager entityManager = m_entityManagerProvider.get();
+    long affectedRows = 0;
+    for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+      List<Long> idsSubList = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+      affectedRows += entityManager.createNamedQuery("AlertNoticeEntity.removeByHistoryIds", AlertNoticeEntity.class)
+          .setParameter("historyIds", idsSubList).executeUpdate();
+      affectedRows += entityManager.createNamedQuery("AlertHistoryEntity.removeByIds", AlertHistoryEntity.class)
+          .setParameter("historyIds", idsSubList).executeUpdate();
+    }
+
+    entityManager.clear();
+
+    return affectedRows;
+  }
+
+  private Long getClusterId(TimeBasedCleanupPolicy policy) {
+    try {
+      return m_clusters.get().getCluster(policy.getClusterName()).getClusterId();
+    } catch (AmbariException e) {
+      LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
+      throw new IllegalStateException(e);
+    }
+  }
+
 
   /**
    * The {@link HistoryPredicateVisitor} is used to convert an Ambari
@@ -34,6 +34,7 @@ import javax.persistence.TypedQuery;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.cleanup.ChunkedCleanable;
 import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.ExecutionCommandEntity;
@@ -59,7 +60,7 @@ import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
 
 @Singleton
-public class RequestDAO implements Cleanable {
+public class RequestDAO implements ChunkedCleanable {
 
   private static final Logger LOG = LoggerFactory.getLogger(RequestDAO.class);
 
@@ -268,6 +269,116 @@ public class RequestDAO implements Cleanable {
     }
   }
 
+  /**
+   * Finds the ids of requests in a cluster created before the policy date, in
+   * ascending order. Requests belonging to upgrades are left out, as they are
+   * kept as long as the upgrade.
+   */
+  @Override
+  public List<Long> findCleanupIds(TimeBasedCleanupPolicy policy, long afterId, int limit) {
+    TypedQuery<Long> query = entityManagerProvider.get().createNamedQuery(
+        "RequestEntity.findIdsInClusterBeforeDateAfterId", Long.class);
+
+    query.setParameter("clusterId", getClusterId(policy));
+    query.setParameter("beforeDate", policy.getToDateInMillis());
+    query.setParameter("afterId", afterId);
+    query.setMaxResults(limit);
+
+    return daoUtils.selectList(query);
+  }
+
+  @Override
+  public long countCleanupIds(TimeBasedCleanupPolicy policy, long afterId) {
+    TypedQuery<Long> query = entityManagerProvider.get().createNamedQuery(
+        "RequestEntity.countInClusterBeforeDateAfterId", Long.class);
+
+    query.setParameter("clusterId", getClusterId(policy));
+    query.setParameter("beforeDate", policy.getToDateInMillis());
+    query.setParameter("afterId", afterId);
+
+    Long count = daoUtils.selectSingle(query);
+    return count == null ? 0 : count;
+  }
+
+  @Transactional
+  @Override
+  public long cleanupIds(TimeBasedCleanupPolicy policy, List<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    Set<Long> requestIds = new HashSet<>(ids);
+
+    TypedQuery<StageEntityPK> query = entityManagerProvider.get().createNamedQuery(
+        "RequestEntity.findRequestStageIdsByRequestIds", StageEntityPK.class);
+    query.setParameter("requestIds", new ArrayList<>(requestIds));
+    List<StageEntityPK> requestStageIds = daoUtils.selectList(query);
+
+    return cleanupRequests(requestIds, requestStageIds, policy.getToDateInMillis());
+  }
+
+  private Long getClusterId(TimeBasedCleanupPolicy policy) {
+    try {
+      return m_clusters.get().getCluster(policy.getClusterName()).getClusterId();
+    } catch (AmbariException e) {
+      LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Removes the given requests together with their stages, tasks and related
+   * topology entities.
+   *
+   * @param requestIds       the ids of the requests to remove
+   * @param requestStageIds  the request/stage ids of all stages of these requests
+   * @param beforeDateMillis the purge date, only used for logging
+   * @return the number of removed rows
+   */
+  private long cleanupRequests(Set<Long> requestIds, List<StageEntityPK> requestStageIds, long beforeDateMillis) {
+    // find task ids using request stage ids
+    Set<Long> taskIds = hostRoleCommandDAO.findTaskIdsByRequestStageIds(requestStageIds);
+
+    // find host task ids, to find related host requests and also to remove needed host tasks
+    final Set<Long> hostTaskIds = findHostTaskIds(taskIds);
+
+    // find host request ids by host task ids to remove later needed host requests
+    final Set<Long> hostRequestIds = findHostRequestIds(hostTaskIds);
+
+    final Set<Long> topologyRequestIds = findTopologyRequestIds(hostRequestIds);
+
+    final LinkedList<String> params = new LinkedList<>();
+    params.add("stageId");
+    params.add("requestId");
+    long affectedRows = 0;
+    //removing all entities one by one according to their relations using stage, task and request ids
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "ExecutionCommand", beforeDateMillis,
+            "ExecutionCommandEntity.removeByTaskIds", ExecutionCommandEntity.class);
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "TopologyLogicalTask", beforeDateMillis,
+            "TopologyLogicalTaskEntity.removeByPhysicalTaskIds", TopologyLogicalTaskEntity.class);
+    affectedRows += cleanTableByIds(hostTaskIds, "hostTaskIds", "TopologyHostTask", beforeDateMillis,
+            "TopologyHostTaskEntity.removeByTaskIds", TopologyHostTaskEntity.class);
+    affectedRows += cleanTableByIds(hostRequestIds, "hostRequestIds", "TopologyHostRequest", beforeDateMillis,
+            "TopologyHostRequestEntity.removeByIds", TopologyHostRequestEntity.class);
+    for (Long topologyRequestId : topologyRequestIds) {
+      topologyRequestDAO.removeByPK(topologyRequestId);
+    }
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "HostRoleCommand", beforeDateMillis,
+            "HostRoleCommandEntity.removeByTaskIds", HostRoleCommandEntity.class);
+    affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "RoleSuccessCriteria", beforeDateMillis,
+            "RoleSuccessCriteriaEntity.removeByRequestStageIds", RoleSuccessCriteriaEntity.class);
+    affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "Stage", beforeDateMillis,
+            "StageEntity.removeByRequestStageIds", StageEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestResourceFilter", beforeDateMillis,
+            "RequestResourceFilterEntity.removeByRequestIds", RequestResourceFilterEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestOperationLevel", beforeDateMillis,
+            "RequestOperationLevelEntity.removeByRequestIds", RequestOperationLevelEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "Request", beforeDateMillis,
+            "RequestEntity.removeByRequestIds", RequestEntity.class);
+
+    return affectedRows;
+  }
+
   /**
    * Search for all request ids in Upgrade table
    * @return the list of request ids
@@ -392,47 +503,7 @@ public class RequestDAO implements Cleanable {
         requestIds.add(ids.getRequestId());
       }
 
-      // find task ids using request stage ids
-      Set<Long> taskIds = hostRoleCommandDAO.findTaskIdsByRequestStageIds(requestStageIds);
-
-      // find host task ids, to find related host requests and also to remove needed host tasks
-      final Set<Long> hostTaskIds = findHostTaskIds(taskIds);
-
-      // find host request ids by host task ids to remove later needed host requests
-      final Set<Long> hostRequestIds = findHostRequestIds(hostTaskIds);
-
-      final Set<Long> topologyRequestIds = findTopologyRequestIds(hostRequestIds);
-
-      final LinkedList<String> params = new LinkedList<>();
-      params.add("stageId");
-      params.add("requestId");
-      long affectedRows = 0;
-      //removing all entities one by one according to their relations using stage, task and request ids
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "ExecutionCommand", policy.getToDateInMillis(),
-              "ExecutionCommandEntity.removeByTaskIds", ExecutionCommandEntity.class);
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "TopologyLogicalTask", policy.getToDateInMillis(),
-              "TopologyLogicalTaskEntity.removeByPhysicalTaskIds", TopologyLogicalTaskEntity.class);
-      affectedRows += cleanTableByIds(hostTaskIds, "hostTaskIds", "TopologyHostTask", policy.getToDateInMillis(),
-              "TopologyHostTaskEntity.removeByTaskIds", TopologyHostTaskEntity.class);
-      affectedRows += cleanTableByIds(hostRequestIds, "hostRequestIds", "TopologyHostRequest", policy.getToDateInMillis(),
-              "TopologyHostRequestEntity.removeByIds", TopologyHostRequestEntity.class);
-      for (Long topologyRequestId : topologyRequestIds) {
-        topologyRequestDAO.removeByPK(topologyRequestId);
-      }
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "HostRoleCommand", policy.getToDateInMillis(),
-              "HostRoleCommandEntity.removeByTaskIds", HostRoleCommandEntity.class);
-      affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "RoleSuccessCriteria", policy.getToDateInMillis(),
-              "RoleSuccessCriteriaEntity.removeByRequestStageIds", RoleSuccessCriteriaEntity.class);
-      affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "Stage", policy.getToDateInMillis(),
-              "StageEntity.removeByRequestStageIds", StageEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestResourceFilter", policy.getToDateInMillis(),
-              "RequestResourceFilterEntity.removeByRequestIds", RequestResourceFilterEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestOperationLevel", policy.getToDateInMillis(),
-              "RequestOperationLevelEntity.removeByRequestIds", RequestOperationLevelEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "Request", policy.getToDateInMillis(),
-              "RequestEntity.removeByRequestIds", RequestEntity.class);
-
-      return affectedRows;
+      return cleanupRequests(requestIds, requestStageIds, policy.getToDateInMillis());
     } catch (AmbariException e) {
       LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
       throw new IllegalStateException(e);
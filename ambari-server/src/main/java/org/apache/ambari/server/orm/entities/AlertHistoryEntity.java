@@ -55,6 +55,9 @@ import org.apache.ambari.server.state.AlertState;
   @NamedQuery(name = "AlertHistoryEntity.findAllIdsInClusterBeforeDate", query = "SELECT alertHistory.alertId FROM AlertHistoryEntity alertHistory WHERE alertHistory.clusterId = :clusterId AND alertHistory.alertTimestamp <= :beforeDate"),
   @NamedQuery(name = "AlertHistoryEntity.findAllInClusterAfterDate", query = "SELECT alertHistory FROM AlertHistoryEntity alertHistory WHERE alertHistory.clusterId = :clusterId AND alertHistory.alertTimestamp >= :afterDate"),
   @NamedQuery(name = "AlertHistoryEntity.removeByDefinitionId", query = "DELETE FROM AlertHistoryEntity alertHistory WHERE alertHistory.alertDefinitionId = :definitionId"),
+  @NamedQuery(name = "AlertHistoryEntity.findIdsInClusterBeforeDateAfterId", query = "SELECT alertHistory.alertId FROM AlertHistoryEntity alertHistory WHERE alertHistory.clusterId = :clusterId AND alertHistory.alertTimestamp <= :beforeDate AND alertHistory.alertId > :afterId AND alertHistory.alertId NOT IN (SELECT alert.historyId FROM AlertCurrentEntity alert) ORDER BY alertHistory.alertId"),
+  @NamedQuery(name = "AlertHistoryEntity.countInClusterBeforeDateAfterId", query = "SELECT COUNT(alertHistory.alertId) FROM AlertHistoryEntity alertHistory WHERE alertHistory.clusterId = :clusterId AND alertHistory.alertTimestamp <= :beforeDate AND alertHistory.alertId > :afterId AND alertHistory.alertId NOT IN (SELECT alert.historyId FROM AlertCurrentEntity alert)"),
+  @NamedQuery(name = "AlertHistoryEntity.removeByIds", query = "DELETE FROM AlertHistoryEntity alertHistory WHERE alertHistory.alertId IN :historyIds"),
   @NamedQuery(name = "AlertHistoryEntity.removeInClusterBeforeDate", query = "DELETE FROM AlertHistoryEntity alertHistory WHERE alertHistory.clusterId = :clusterId AND alertHistory.alertTimestamp <= :beforeDate"),
   @NamedQuery(name = "AlertHistoryEntity.findHistoryIdsByDefinitionId", query = "SELECT alertHistory.alertId FROM AlertHistoryEntity alertHistory WHERE alertHistory.alertDefinitionId = :definitionId ORDER BY alertHistory.alertId")
 })
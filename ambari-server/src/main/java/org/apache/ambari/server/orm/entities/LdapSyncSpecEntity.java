@@ -145,8 +145,9 @@ public class LdapSyncSpecEntity {
    */
   public enum SyncType {
     ALL,       // sync all principals
-    EXISTING,  // sync only principals that currently exist in Ambari
-    SPECIFIC;  // sync only the named principals
+    EXISTING,     // sync only principals that currently exist in Ambari
+    SPECIFIC,     // sync only the named principals
+    INCREMENTAL;  // sync only principals changed since the previous sync
 
     /**
      * Get the enum value for the given sync type name string, ignoring case.
@@ -44,6 +44,9 @@ import org.apache.ambari.server.actionmanager.RequestType;
 @Entity
 @NamedQueries({
   @NamedQuery(name = "RequestEntity.findRequestStageIdsInClusterBeforeDate", query = "SELECT NEW org.apache.ambari.server.orm.dao.RequestDAO.StageEntityPK(request.requestId, stage.stageId) FROM RequestEntity request JOIN StageEntity stage ON request.requestId = stage.requestId WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate"),
+  @NamedQuery(name = "RequestEntity.findRequestStageIdsByRequestIds", query = "SELECT NEW org.apache.ambari.server.orm.dao.RequestDAO.StageEntityPK(stage.requestId, stage.stageId) FROM StageEntity stage WHERE stage.requestId IN :requestIds"),
+  @NamedQuery(name = "RequestEntity.findIdsInClusterBeforeDateAfterId", query = "SELECT request.requestId FROM RequestEntity request WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate AND request.requestId > :afterId AND request.requestId NOT IN (SELECT upgrade.requestId FROM UpgradeEntity upgrade) ORDER BY request.requestId"),
+  @NamedQuery(name = "RequestEntity.countInClusterBeforeDateAfterId", query = "SELECT COUNT(request.requestId) FROM RequestEntity request WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate AND request.requestId > :afterId AND request.requestId NOT IN (SELECT upgrade.requestId FROM UpgradeEntity upgrade)"),
   @NamedQuery(name = "RequestEntity.removeByRequestIds", query = "DELETE FROM RequestEntity request WHERE request.requestId IN :requestIds")
 })
 public class RequestEntity {
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.events.RequestFinishedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link BatchRequestCompletionTracker} lets batch request jobs wait for
+ * the requests they submitted to finish, by listening for
+ * {@link RequestFinishedEvent}s, instead of polling the request status.
+ * <p/>
+ * A request must be watched before its status is checked for the first time,
+ * so that an event published between the check and the wait is not missed.
+ */
+@Singleton
+public class BatchRequestCompletionTracker {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchRequestCompletionTracker.class);
+
+  /**
+   * The watched requests, counted down when they finish.
+   */
+  private final ConcurrentMap<Long, CountDownLatch> watchedRequests = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param publisher
+   */
+  @Inject
+  public BatchRequestCompletionTracker(AmbariEventPublisher publisher) {
+    publisher.register(this);
+  }
+
+  /**
+   * Starts watching a request for its completion.
+   *
+   * @param requestId the request id
+   */
+  public void watch(long requestId) {
+    watchedRequests.putIfAbsent(requestId, new CountDownLatch(1));
+  }
+
+  /**
+   * Stops watching a request.
+   *
+   * @param requestId the request id
+   */
+  public void unwatch(long requestId) {
+    watchedRequests.remove(requestId);
+  }
+
+  /**
+   * Waits for a watched request to finish.
+   *
+   * @param requestId the request id
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return {@code true} if the request finished, {@code false} if the timeout
+   *         elapsed first
+   * @throws InterruptedException if the thread is interrupted while waiting
+   * @throws IllegalStateException if the request is not watched
+   */
+  public boolean await(long requestId, long timeout, TimeUnit unit) throws InterruptedException {
+    CountDownLatch latch = watchedRequests.get(requestId);
+    if (latch == null) {
+      throw new IllegalStateException("Request " + requestId + " is not watched");
+    }
+    return latch.await(timeout, unit);
+  }
+
+  /**
+   * Releases the jobs waiting for a request when it finishes.
+   *
+   * @param event the event
+   */
+  @Subscribe
+  public void onRequestFinished(RequestFinishedEvent event) {
+    CountDownLatch latch = watchedRequests.get(event.getRequestId());
+    if (latch != null) {
+      LOG.debug("Batch request {} finished", event.getRequestId());
+      latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.ambari.server.api.resources.ResourceInstance;
+import org.apache.ambari.server.api.services.BaseService;
+import org.apache.ambari.server.api.services.LocalUriInfo;
+import org.apache.ambari.server.api.services.Request;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.authentication.AmbariUserAuthentication;
+import org.apache.ambari.server.security.authentication.AmbariUserDetailsImpl;
+import org.apache.ambari.server.security.authorization.Users;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link BatchRequestSubmitter} submits the requests of the batches of a
+ * request schedule to the API layer of this server, without going through
+ * HTTP. The requests are authorized as the user who created the schedule, as
+ * the {@link org.apache.ambari.server.security.authorization.AmbariUserAuthorizationFilter}
+ * does for the requests sent by the schedules over HTTP.
+ * <p/>
+ * Only the resources the batches of the schedules created by the web client
+ * act on are served; the requests for any other URI are left to be sent over
+ * HTTP.
+ */
+@Singleton
+public class BatchRequestSubmitter extends BaseService {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchRequestSubmitter.class);
+
+  /**
+   * The resource types served, by the collections of their path.
+   */
+  private static final Map<String, Resource.Type> RESOURCE_TYPES = ImmutableMap.<String, Resource.Type>builder()
+      .put("clusters", Resource.Type.Cluster)
+      .put("clusters/requests", Resource.Type.Request)
+      .put("clusters/hosts", Resource.Type.Host)
+      .put("clusters/hosts/host_components", Resource.Type.HostComponent)
+      .put("clusters/services", Resource.Type.Service)
+      .put("clusters/services/components", Resource.Type.Component)
+      .build();
+
+  private final Users users;
+
+  /**
+   * Constructor.
+   *
+   * @param users
+   */
+  @Inject
+  public BatchRequestSubmitter(Users users) {
+    this.users = users;
+  }
+
+  /**
+   * Submits the request of a batch.
+   *
+   * @param uri
+   *          the URI of the request, relative to the root of the API
+   * @param body
+   *          the body of the request
+   * @param method
+   *          the HTTP method of the request
+   * @param userId
+   *          the ID of the user who created the schedule
+   * @return the response, or {@code null} if the resource of the URI is not
+   *         served in-process
+   */
+  public Response submit(String uri, String body, String method, Integer userId) {
+    Request.Type requestType = getRequestType(method);
+    ResourceInstance resource = createResource(uri);
+    LocalUriInfo uriInfo = createUriInfo(uri);
+    if (null == requestType || null == resource || null == uriInfo) {
+      LOG.debug("Request {} {} is not served in-process", method, uri);
+      return null;
+    }
+
+    UserEntity userEntity = users.getUserEntity(userId);
+    if (null == userEntity) {
+      return Response.status(Response.Status.FORBIDDEN).entity("Authentication required").build();
+    }
+    if (!userEntity.getActive()) {
+      return Response.status(Response.Status.FORBIDDEN).entity("User is not active").build();
+    }
+
+    AmbariUserDetailsImpl userDetails = new AmbariUserDetailsImpl(users.getUser(userEntity), null,
+        users.getUserAuthorities(userEntity));
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(new AmbariUserAuthentication(null, userDetails, true));
+
+    SecurityContext previousContext = SecurityContextHolder.getContext();
+    SecurityContextHolder.setContext(context);
+    try {
+      return handleRequest(null, body, uriInfo, requestType, resource);
+    } finally {
+      SecurityContextHolder.setContext(previousContext);
+    }
+  }
+
+  /**
+   * Creates the instance of the resource a URI refers to.
+   *
+   * @param uri
+   *          the URI of the request, relative to the root of the API
+   * @return the resource instance, or {@code null} if it is not served
+   *         in-process
+   */
+  ResourceInstance createResource(String uri) {
+    String path = StringUtils.substringBefore(uri, "?");
+    path = StringUtils.removeStart(StringUtils.removeStart(path, "/"),
+        ExecutionScheduleManager.DEFAULT_API_PATH);
+
+    List<String> collections = new ArrayList<>();
+    List<String> ids = new ArrayList<>();
+    String[] segments = StringUtils.split(path, '/');
+    if (null == segments) {
+      return null;
+    }
+    for (int i = 0; i < segments.length; i += 2) {
+      collections.add(segments[i]);
+      ids.add(i + 1 < segments.length ? segments[i + 1] : null);
+    }
+
+    Map<Resource.Type, String> mapIds = new HashMap<>();
+    Resource.Type type = null;
+    for (int i = 0; i < collections.size(); i++) {
+      type = RESOURCE_TYPES.get(StringUtils.join(collections.subList(0, i + 1), '/'));
+      if (null == type) {
+        return null;
+      }
+      mapIds.put(type, ids.get(i));
+    }
+    return (null == type) ? null : createResource(type, mapIds);
+  }
+
+  private static LocalUriInfo createUriInfo(String uri) {
+    try {
+      return new LocalUriInfo(uri);
+    } catch (RuntimeException e) {
+      LOG.debug("Unable to parse the URI {}", uri, e);
+      return null;
+    }
+  }
+
+  private static Request.Type getRequestType(String method) {
+    if (null == method) {
+      return null;
+    }
+    switch (StringUtils.upperCase(method)) {
+      case "GET":
+        return Request.Type.GET;
+      case "POST":
+        return Request.Type.POST;
+      case "PUT":
+        return Request.Type.PUT;
+      case "DELETE":
+        return Request.Type.DELETE;
+      default:
+        return null;
+    }
+  }
+}
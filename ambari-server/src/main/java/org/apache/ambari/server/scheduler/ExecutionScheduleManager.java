@@ -46,12 +46,14 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import javax.ws.rs.core.Response;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.ActionDBAccessor;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.AbstractControllerResourceProvider;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.controller.internal.RequestImpl;
 import org.apache.ambari.server.controller.internal.RequestResourceProvider;
 import org.apache.ambari.server.controller.spi.Predicate;
@@ -59,6 +61,8 @@ import org.apache.ambari.server.controller.spi.RequestStatus;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.ResourceProvider;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
+import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.security.authorization.internal.InternalTokenClientFilter;
 import org.apache.ambari.server.security.authorization.internal.InternalTokenStorage;
 import org.apache.ambari.server.state.Cluster;
@@ -70,9 +74,10 @@ import org.apache.ambari.server.state.scheduler.BatchRequestResponse;
 import org.apache.ambari.server.state.scheduler.BatchSettings;
 import org.apache.ambari.server.state.scheduler.RequestExecution;
 import org.apache.ambari.server.state.scheduler.Schedule;
+import org.apache.ambari.server.topology.LogicalRequest;
+import org.apache.ambari.server.topology.TopologyManager;
 import org.apache.ambari.server.utils.DateUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.text.StrBuilder;
 import org.quartz.CronExpression;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
@@ -111,6 +116,15 @@ public class ExecutionScheduleManager {
   ExecutionScheduler executionScheduler;
   Configuration configuration;
 
+  @Inject
+  HostRoleCommandDAO hostRoleCommandDAO;
+
+  @Inject
+  TopologyManager topologyManager;
+
+  @Inject
+  BatchRequestSubmitter batchRequestSubmitter;
+
   private volatile boolean schedulerAvailable = false;
   protected static final String BATCH_REQUEST_JOB_PREFIX = "BatchRequestJob";
   protected static final String REQUEST_EXECUTION_TRIGGER_PREFIX =
@@ -647,7 +661,10 @@ public class ExecutionScheduleManager {
 
   /**
    * Execute a Batch request and return request id if the server responds with
-   * a request id for long running operations.
+   * a request id for long running operations. The request is submitted
+   * in-process when the resource of its URI is served by the
+   * {@link BatchRequestSubmitter}, otherwise it is sent to the API of this
+   * server.
    * @return request id
    * @throws AmbariException
    */
@@ -667,7 +684,11 @@ public class ExecutionScheduleManager {
 
       body = requestExecution.getRequestBody(batchId);
 
-      BatchRequestResponse batchRequestResponse = performApiRequest(uri, body, type, requestExecution.getAuthenticatedUserId());
+      Integer userId = requestExecution.getAuthenticatedUserId();
+      BatchRequestResponse batchRequestResponse = performLocalApiRequest(uri, body, type, userId);
+      if (batchRequestResponse == null) {
+        batchRequestResponse = performApiRequest(uri, body, type, userId);
+      }
 
       updateBatchRequest(executionId, batchId, clusterName, batchRequestResponse, false);
 
@@ -685,22 +706,49 @@ public class ExecutionScheduleManager {
   }
 
   /**
-   * Get status of a long running operation
+   * Get status of a long running operation. The status and task counts are
+   * calculated in-process from the task status summary of the request and,
+   * for the logical requests of the topology manager, from the summary of its
+   * pending tasks, as the request status API would, instead of calling the
+   * API of this server.
    * @return
    * @throws AmbariException
    */
   public BatchRequestResponse getBatchRequestResponse(Long requestId, String clusterName)
     throws AmbariException {
 
-    StrBuilder sb = new StrBuilder();
-    sb.append(DEFAULT_API_PATH)
-      .append("/clusters/")
-      .append(clusterName)
-      .append("/requests/")
-      .append(requestId);
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary =
+      new HashMap<>(hostRoleCommandDAO.findAggregateCounts(requestId));
 
-    return performApiGetRequest(sb.toString(), true);
+    // get summaries from TopologyManager for logical requests
+    summary.putAll(topologyManager.getStageSummaries(requestId));
 
+    // a logical request has no summary until the hosts it waits for register
+    CalculatedStatus status;
+    LogicalRequest logicalRequest = topologyManager.getRequest(requestId);
+    if (summary.isEmpty() && null != logicalRequest) {
+      status = logicalRequest.calculateStatus();
+    } else {
+      status = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
+    }
+    Map<HostRoleStatus, Integer> statusCounts =
+      CalculatedStatus.calculateTaskStatusCounts(summary, summary.keySet());
+
+    int taskCount = 0;
+    for (HostRoleCommandStatusSummaryDTO dto : summary.values()) {
+      taskCount += dto.getTaskTotal();
+    }
+
+    BatchRequestResponse batchRequestResponse = new BatchRequestResponse();
+    batchRequestResponse.setReturnCode(200);
+    batchRequestResponse.setRequestId(requestId);
+    batchRequestResponse.setStatus(status.getStatus().toString());
+    batchRequestResponse.setFailedTaskCount(statusCounts.get(HostRoleStatus.FAILED));
+    batchRequestResponse.setAbortedTaskCount(statusCounts.get(HostRoleStatus.ABORTED));
+    batchRequestResponse.setTimedOutTaskCount(statusCounts.get(HostRoleStatus.TIMEDOUT));
+    batchRequestResponse.setTotalTaskCount(taskCount);
+
+    return batchRequestResponse;
   }
 
   protected RequestStatus abortRequestById(RequestExecution requestExecution, Long requestId) throws AmbariException {
@@ -731,12 +779,15 @@ public class ExecutionScheduleManager {
   }
 
   private BatchRequestResponse convertToBatchRequestResponse(ClientResponse clientResponse) {
+    return convertToBatchRequestResponse(clientResponse.getStatus(),
+      clientResponse.getEntity(String.class));
+  }
+
+  private BatchRequestResponse convertToBatchRequestResponse(int retCode, String responseString) {
     BatchRequestResponse batchRequestResponse = new BatchRequestResponse();
-    int retCode = clientResponse.getStatus();
 
     batchRequestResponse.setReturnCode(retCode);
 
-    String responseString = clientResponse.getEntity(String.class);
     LOG.debug("Processing API response: status={}, body={}", retCode, responseString);
     Map<String, Object> httpResponseMap;
     try {
@@ -855,6 +906,24 @@ public class ExecutionScheduleManager {
     return convertToBatchRequestResponse(response);
   }
 
+  /**
+   * Submits a request in-process, as the given user.
+   * @return the response, or {@code null} if the request has to be sent to
+   * the API of this server
+   */
+  protected BatchRequestResponse performLocalApiRequest(String relativeUri, String body, String method, Integer userId) {
+    if (userId == null) {
+      return null;
+    }
+    Response response = batchRequestSubmitter.submit(relativeUri, body, method, userId);
+    if (response == null) {
+      return null;
+    }
+    Object entity = response.getEntity();
+    return convertToBatchRequestResponse(response.getStatus(),
+      entity == null ? null : entity.toString());
+  }
+
   protected BatchRequestResponse performApiRequest(String relativeUri, String body, String method, Integer userId) {
     ClientResponse response;
     try {
@@ -25,9 +25,7 @@ import java.util.Set;
 
 import org.apache.ambari.server.orm.dao.PrivilegeDAO;
 import org.apache.ambari.server.orm.dao.ViewInstanceDAO;
-import org.apache.ambari.server.orm.entities.PermissionEntity;
 import org.apache.ambari.server.orm.entities.PrivilegeEntity;
-import org.apache.ambari.server.orm.entities.ResourceEntity;
 import org.apache.ambari.server.orm.entities.RoleAuthorizationEntity;
 import org.apache.ambari.server.security.authentication.AmbariProxiedUserDetailsImpl;
 import org.apache.ambari.server.security.authentication.AmbariUserDetails;
@@ -41,6 +39,8 @@ import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -59,6 +59,13 @@ public class AuthorizationHelper {
   @Inject
   static Provider<ViewInstanceDAO> viewInstanceDAOProvider;
 
+  /**
+   * The compiled authorizations of the authenticated users, keyed by (the identity of) their
+   * authorities.
+   */
+  private static final Cache<Collection<? extends GrantedAuthority>, CompiledAuthorizations> compiledAuthorizations =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   /**
    * Gets the name of the logged-in proxy user, if any.
    *
@@ -216,49 +223,48 @@ public class AuthorizationHelper {
     } else if (authentication == null) {
       return false;
     } else {
-      // Iterate through the set of required authorizations to see if at least one match is found.
-      // If the user has at least one authorization that exists in the set of required authorizations,
-      // that user is authorized to perform the operation.
-      for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
-        AmbariGrantedAuthority ambariGrantedAuthority = (AmbariGrantedAuthority) grantedAuthority;
-        PrivilegeEntity privilegeEntity = ambariGrantedAuthority.getPrivilegeEntity();
-        ResourceEntity privilegeResource = privilegeEntity.getResource();
-        ResourceType privilegeResourceType = ResourceType.translate(privilegeResource.getResourceType().getName());
-        boolean resourceOK;
-
-        if (ResourceType.AMBARI == privilegeResourceType) {
-          // This resource type indicates administrative access
-          resourceOK = true;
-        } else if ((resourceType == null) || (resourceType == privilegeResourceType)) {
-          resourceOK = (resourceId == null) || resourceId.equals(privilegeResource.getId());
-        } else {
-          resourceOK = false;
-        }
+      // If the user has at least one authorization on the resource that exists in the set of
+      // required authorizations, that user is authorized to perform the operation.
+      return getCompiledAuthorizations(authentication)
+          .isAuthorized(resourceType, resourceId, requiredAuthorizations);
+    }
+  }
 
-        // The the authority is for the relevant resource, see if one of the authorizations matches
-        // one of the required authorizations...
-        if (resourceOK) {
-          PermissionEntity permission = privilegeEntity.getPermission();
-          Collection<RoleAuthorizationEntity> userAuthorizations = (permission == null)
-              ? null
-              : permission.getAuthorizations();
-
-          if (userAuthorizations != null) {
-            for (RoleAuthorizationEntity userAuthorization : userAuthorizations) {
-              try {
-                if (requiredAuthorizations.contains(RoleAuthorization.translate(userAuthorization.getAuthorizationId()))) {
-                  return true;
-                }
-              } catch (IllegalArgumentException e) {
-                LOG.warn("Invalid authorization name, '{}'... ignoring.", userAuthorization.getAuthorizationId());
-              }
-            }
-          }
-        }
-      }
+  /**
+   * Gets the authorizations granted to the authenticated user, compiling them on first use.
+   * <p/>
+   * The authorities of an {@link Authentication} are fixed when the user logs in, so the compiled
+   * authorizations are cached by the identity of the authorities collection and dropped along with
+   * it. The resource providers changing the privileges, permissions or group memberships they were
+   * built from clear the cache with {@link #invalidateAuthorizationCache()} once the change is
+   * committed.
+   *
+   * @param authentication the authenticated user and associated access privileges
+   * @return the compiled authorizations
+   */
+  static CompiledAuthorizations getCompiledAuthorizations(Authentication authentication) {
+    Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+    if (authorities == null) {
+      return CompiledAuthorizations.compile(null);
+    }
 
-      return false;
+    CompiledAuthorizations compiled = compiledAuthorizations.getIfPresent(authorities);
+    if (compiled == null) {
+      compiled = CompiledAuthorizations.compile(authorities);
+      compiledAuthorizations.put(authorities, compiled);
     }
+    return compiled;
+  }
+
+  /**
+   * Drops all compiled authorizations so that they are rebuilt from the current privileges on
+   * their next use.
+   * <p/>
+   * Call it after the transaction changing the privileges has committed; called from within the
+   * transaction, a concurrent check could compile and cache the old privileges again.
+   */
+  public static void invalidateAuthorizationCache() {
+    compiledAuthorizations.invalidateAll();
   }
 
   /**
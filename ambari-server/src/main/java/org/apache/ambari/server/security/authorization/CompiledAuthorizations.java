@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.authorization;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ambari.server.orm.entities.PermissionEntity;
+import org.apache.ambari.server.orm.entities.PrivilegeEntity;
+import org.apache.ambari.server.orm.entities.ResourceEntity;
+import org.apache.ambari.server.orm.entities.RoleAuthorizationEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * The {@link RoleAuthorization}s granted by a set of {@link AmbariGrantedAuthority}s, indexed by
+ * the resource they were granted on.
+ * <p/>
+ * Walking the privilege, permission and authorization entities of a principal and translating
+ * each authorization id is done once, when the instance is compiled; an authorization check is
+ * then a few map lookups and an {@link EnumSet} intersection. Instances are immutable.
+ */
+final class CompiledAuthorizations {
+  private static final Logger LOG = LoggerFactory.getLogger(CompiledAuthorizations.class);
+
+  /**
+   * Authorizations granted on the Ambari resource, which apply to every resource.
+   */
+  private final EnumSet<RoleAuthorization> global = EnumSet.noneOf(RoleAuthorization.class);
+
+  /**
+   * Authorizations granted on any resource.
+   */
+  private final EnumSet<RoleAuthorization> all = EnumSet.noneOf(RoleAuthorization.class);
+
+  /**
+   * Authorizations granted on any resource of a type.
+   */
+  private final Map<ResourceType, EnumSet<RoleAuthorization>> byType = new HashMap<>();
+
+  /**
+   * Authorizations granted on a resource, regardless of its type.
+   */
+  private final Map<Long, EnumSet<RoleAuthorization>> byResourceId = new HashMap<>();
+
+  /**
+   * Authorizations granted on a resource of a type.
+   */
+  private final Map<ResourceType, Map<Long, EnumSet<RoleAuthorization>>> byTypeAndResourceId = new HashMap<>();
+
+  private CompiledAuthorizations() {
+  }
+
+  /**
+   * Compiles the authorizations granted by the given authorities.
+   *
+   * @param authorities the {@link AmbariGrantedAuthority}s of a principal
+   * @return the compiled authorizations
+   */
+  static CompiledAuthorizations compile(Collection<? extends GrantedAuthority> authorities) {
+    CompiledAuthorizations compiled = new CompiledAuthorizations();
+    if (authorities == null) {
+      return compiled;
+    }
+
+    for (GrantedAuthority grantedAuthority : authorities) {
+      PrivilegeEntity privilegeEntity = ((AmbariGrantedAuthority) grantedAuthority).getPrivilegeEntity();
+      EnumSet<RoleAuthorization> authorizations = translate(privilegeEntity.getPermission());
+      if (authorizations.isEmpty()) {
+        continue;
+      }
+
+      ResourceEntity privilegeResource = privilegeEntity.getResource();
+      ResourceType privilegeResourceType = ResourceType.translate(privilegeResource.getResourceType().getName());
+
+      compiled.all.addAll(authorizations);
+      if (ResourceType.AMBARI == privilegeResourceType) {
+        // This resource type indicates administrative access
+        compiled.global.addAll(authorizations);
+      } else {
+        Long resourceId = privilegeResource.getId();
+        compiled.byType.computeIfAbsent(privilegeResourceType, type -> EnumSet.noneOf(RoleAuthorization.class))
+            .addAll(authorizations);
+        compiled.byResourceId.computeIfAbsent(resourceId, id -> EnumSet.noneOf(RoleAuthorization.class))
+            .addAll(authorizations);
+        compiled.byTypeAndResourceId.computeIfAbsent(privilegeResourceType, type -> new HashMap<>())
+            .computeIfAbsent(resourceId, id -> EnumSet.noneOf(RoleAuthorization.class))
+            .addAll(authorizations);
+      }
+    }
+
+    return compiled;
+  }
+
+  /**
+   * Determines if at least one of the required authorizations is granted on the resource.
+   *
+   * @param resourceType           the resource type, or <code>null</code> for any type
+   * @param resourceId             the privilege resource id, or <code>null</code> for any resource
+   * @param requiredAuthorizations a set of requirements for which one match will allow authorization
+   * @return true if authorized; otherwise false
+   * @see AuthorizationHelper#isAuthorized(org.springframework.security.core.Authentication, ResourceType, Long, Set)
+   */
+  boolean isAuthorized(ResourceType resourceType, Long resourceId, Set<RoleAuthorization> requiredAuthorizations) {
+    if (intersects(global, requiredAuthorizations)) {
+      return true;
+    }
+
+    EnumSet<RoleAuthorization> granted;
+    if (resourceType == null) {
+      granted = (resourceId == null) ? all : byResourceId.get(resourceId);
+    } else if (resourceId == null) {
+      granted = byType.get(resourceType);
+    } else {
+      Map<Long, EnumSet<RoleAuthorization>> resources = byTypeAndResourceId.get(resourceType);
+      granted = (resources == null) ? null : resources.get(resourceId);
+    }
+
+    return intersects(granted, requiredAuthorizations);
+  }
+
+  private static boolean intersects(EnumSet<RoleAuthorization> granted, Set<RoleAuthorization> required) {
+    if (granted == null || granted.isEmpty()) {
+      return false;
+    }
+
+    for (RoleAuthorization authorization : required) {
+      if (granted.contains(authorization)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static EnumSet<RoleAuthorization> translate(PermissionEntity permission) {
+    EnumSet<RoleAuthorization> authorizations = EnumSet.noneOf(RoleAuthorization.class);
+    Collection<RoleAuthorizationEntity> userAuthorizations = (permission == null)
+        ? null
+        : permission.getAuthorizations();
+
+    if (userAuthorizations != null) {
+      for (RoleAuthorizationEntity userAuthorization : userAuthorizations) {
+        try {
+          RoleAuthorization authorization = RoleAuthorization.translate(userAuthorization.getAuthorizationId());
+          if (authorization != null) {
+            authorizations.add(authorization);
+          }
+        } catch (IllegalArgumentException e) {
+          LOG.warn("Invalid authorization name, '{}'... ignoring.", userAuthorization.getAuthorizationId());
+        }
+      }
+    }
+
+    return authorizations;
+  }
+}
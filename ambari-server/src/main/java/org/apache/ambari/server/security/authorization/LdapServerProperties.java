@@ -68,6 +68,8 @@ public class LdapServerProperties {
   private boolean disableEndpointIdentification = false;
   //LDAP pagination properties
   private boolean paginationEnabled = true;
+  //LDAP incremental sync properties
+  private String syncChangeAttribute = "";
   private String adminGroupMappingMemberAttr = ""; // custom group search filter for admin mappings
 
   public List<String> getLdapUrls() {
@@ -313,6 +315,14 @@ public class LdapServerProperties {
     this.paginationEnabled = paginationEnabled;
   }
 
+  public String getSyncChangeAttribute() {
+    return syncChangeAttribute;
+  }
+
+  public void setSyncChangeAttribute(String syncChangeAttribute) {
+    this.syncChangeAttribute = syncChangeAttribute;
+  }
+
   public String getSyncGroupMemberReplacePattern() {
     return syncGroupMemberReplacePattern;
   }
@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.security.ldap;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -52,6 +53,7 @@ import org.springframework.ldap.core.support.LdapContextSource;
 import org.springframework.ldap.filter.AndFilter;
 import org.springframework.ldap.filter.EqualsFilter;
 import org.springframework.ldap.filter.Filter;
+import org.springframework.ldap.filter.GreaterThanOrEqualsFilter;
 import org.springframework.ldap.filter.HardcodedFilter;
 import org.springframework.ldap.filter.LikeFilter;
 import org.springframework.ldap.filter.OrFilter;
@@ -91,6 +93,17 @@ public class AmbariLdapDataPopulator {
    */
   private LdapTemplate ldapTemplate;
 
+  /**
+   * State kept between incremental syncs.
+   */
+  private final LdapSyncState syncState = new LdapSyncState();
+
+  /**
+   * The LDAP properties the sync state was built from: base DN, user and group object classes and
+   * change tracking attribute.
+   */
+  private List<String> syncStateProperties;
+
   // Constants
   private static final String UID_ATTRIBUTE = "uid";
   private static final String OBJECT_CLASS_ATTRIBUTE = "objectClass";
@@ -397,6 +410,162 @@ public class AmbariLdapDataPopulator {
     return batchInfo;
   }
 
+  /**
+   * Performs incremental synchronization of users: only users created or changed in LDAP since the
+   * previous incremental sync are processed. Entries are streamed page by page rather than loaded
+   * into memory at once. Users removed from LDAP are not detected; a full sync is needed for that.
+   * The changes seen are kept in the sync state once {@link #commitIncrementalSync()} is called.
+   *
+   * @param collectIgnoredUsers true, to collect the set of existing users that would normally be ignored;
+   *                            false, to continue to ignore them
+   * @throws AmbariException if synchronization failed for any reason
+   */
+  public LdapBatchDto synchronizeChangedLdapUsers(final LdapBatchDto batchInfo, final boolean collectIgnoredUsers) throws AmbariException {
+    LOG.trace("Synchronize changed LDAP users...");
+    final LdapServerProperties ldapServerProperties = getIncrementalSyncProperties();
+    final LdapSyncState.Tracker tracker = syncState.getUsers();
+    final Map<String, User> internalUsersMap = getInternalUsers();
+    final LdapSyncPhaseStats stats = new LdapSyncPhaseStats("users");
+
+    Filter filter = getChangedSinceFilter(new EqualsFilter(OBJECT_CLASS_ATTRIBUTE,
+        ldapServerProperties.getUserObjectClass()), tracker);
+    final LdapUserContextMapper userMapper = new LdapUserContextMapper(ldapServerProperties);
+
+    streamLdapEntries(ldapServerProperties.getBaseDN(), filter, stats, new ContextMapper() {
+      @Override
+      public Object mapFromContext(Object ctx) {
+        tracker.observe(getChangeAttributeValue((DirContextAdapter) ctx));
+        LdapUserDto userDto = (LdapUserDto) userMapper.mapFromContext(ctx);
+        if (userDto == null || userDto.getUserName() == null) {
+          return null;
+        }
+        String userName = userDto.getUserName();
+        User user = internalUsersMap.get(userName);
+        // an unchanged entry only needs processing if the internal user is out of sync with it
+        if (!tracker.update(userName, LdapSyncState.fingerprint(userDto)) && user != null && user.isLdapUser()) {
+          return null;
+        }
+        stats.changed++;
+        if (user == null) {
+          batchInfo.getUsersToBeCreated().add(userDto);
+        } else if (!user.isLdapUser()) {
+          if (LdapUsernameCollisionHandlingBehavior.SKIP == getConfiguration().syncCollisionHandlingBehavior()) {
+            LOG.info("User '{}' skipped because it is local user", userName);
+            batchInfo.getUsersSkipped().add(userDto);
+          } else {
+            batchInfo.getUsersToBecomeLdap().add(userDto);
+          }
+        } else if (collectIgnoredUsers) {
+          batchInfo.getUsersIgnored().add(userDto);
+        }
+        return null;
+      }
+    });
+
+    LOG.info("Incremental LDAP sync {}", stats);
+    return batchInfo;
+  }
+
+  /**
+   * Performs incremental synchronization of groups: only groups created or changed in LDAP since the
+   * previous incremental sync have their membership refreshed. Entries are streamed page by page rather
+   * than loaded into memory at once. Groups removed from LDAP are not detected; a full sync is needed for that.
+   * The changes seen are kept in the sync state once {@link #commitIncrementalSync()} is called.
+   *
+   * @param collectIgnoredUsers true, to collect the set of existing users that would normally be ignored;
+   *                            false, to continue to ignore them
+   * @throws AmbariException if synchronization failed for any reason
+   */
+  public LdapBatchDto synchronizeChangedLdapGroups(final LdapBatchDto batchInfo, final boolean collectIgnoredUsers) throws AmbariException {
+    LOG.trace("Synchronize changed LDAP groups...");
+    final LdapServerProperties ldapServerProperties = getIncrementalSyncProperties();
+    final LdapSyncState.Tracker tracker = syncState.getGroups();
+    final Map<String, Group> internalGroupsMap = getInternalGroups();
+    final LdapSyncPhaseStats stats = new LdapSyncPhaseStats("groups");
+    final Set<LdapGroupDto> changedGroups = new HashSet<>();
+
+    Filter filter = getChangedSinceFilter(new EqualsFilter(OBJECT_CLASS_ATTRIBUTE,
+        ldapServerProperties.getGroupObjectClass()), tracker);
+    final Set<LdapGroupDto> page = new HashSet<>();
+    final LdapGroupContextMapper groupMapper = new LdapGroupContextMapper(page, ldapServerProperties);
+
+    streamLdapEntries(ldapServerProperties.getBaseDN(), filter, stats, new ContextMapper() {
+      @Override
+      public Object mapFromContext(Object ctx) {
+        tracker.observe(getChangeAttributeValue((DirContextAdapter) ctx));
+        page.clear();
+        groupMapper.mapFromContext(ctx);
+        for (LdapGroupDto groupDto : page) {
+          Group group = internalGroupsMap.get(groupDto.getGroupName());
+          if (tracker.update(groupDto.getGroupName(), LdapSyncState.fingerprint(groupDto))
+              || group == null || !group.isLdapGroup()) {
+            changedGroups.add(groupDto);
+          }
+        }
+        return null;
+      }
+    });
+
+    long start = System.currentTimeMillis();
+    Map<String, User> internalUsersMap = changedGroups.isEmpty() ? Collections.emptyMap() : getInternalUsers();
+    for (LdapGroupDto groupDto : changedGroups) {
+      stats.changed++;
+      addLdapGroup(batchInfo, internalGroupsMap, groupDto);
+      refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, false, collectIgnoredUsers);
+    }
+    stats.processingTime = System.currentTimeMillis() - start;
+
+    LOG.info("Incremental LDAP sync {}", stats);
+    return batchInfo;
+  }
+
+  /**
+   * Keep the changes seen by the incremental syncs of this sync event. To be called once the
+   * batch was applied, so entries are only skipped by later syncs after they were persisted.
+   */
+  public void commitIncrementalSync() {
+    syncState.commit();
+  }
+
+  /**
+   * Discard the changes seen by the incremental syncs of this sync event, so the next sync
+   * processes the same entries again.
+   */
+  public void rollbackIncrementalSync() {
+    syncState.rollback();
+  }
+
+  /**
+   * Reload the LDAP properties and drop the incremental sync state if it was built from different ones,
+   * as its high-water marks and fingerprints then do not describe the entries to synchronize.
+   *
+   * @return the LDAP properties
+   */
+  private synchronized LdapServerProperties getIncrementalSyncProperties() {
+    loadLdapTemplate();
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    List<String> properties = Arrays.asList(ldapServerProperties.getBaseDN(),
+        ldapServerProperties.getUserObjectClass(), ldapServerProperties.getGroupObjectClass(),
+        ldapServerProperties.getSyncChangeAttribute());
+    if (!properties.equals(syncStateProperties)) {
+      if (syncStateProperties != null) {
+        LOG.info("LDAP properties changed, the next incremental sync reads the whole directory");
+      }
+      syncState.reset();
+      syncStateProperties = properties;
+    }
+    return ldapServerProperties;
+  }
+
+  /**
+   * Get the incremental sync state.
+   *
+   * @return the sync state
+   */
+  public LdapSyncState getSyncState() {
+    return syncState;
+  }
+
   /**
    * Check group members of the synced group: add missing ones and remove the ones absent in external LDAP.
    *
@@ -733,6 +902,57 @@ public class AmbariLdapDataPopulator {
     return users;
   }
 
+  /**
+   * Restricts the given filter to entries changed since the tracker's high-water mark, if there is one
+   * and the change tracking attribute is configured.
+   */
+  private Filter getChangedSinceFilter(Filter objectClassFilter, LdapSyncState.Tracker tracker) {
+    String changeAttribute = getLdapProperties().getSyncChangeAttribute();
+    String highWaterMark = tracker.getHighWaterMark();
+    if (StringUtils.isEmpty(changeAttribute) || highWaterMark == null) {
+      return objectClassFilter;
+    }
+    return new AndFilter().and(objectClassFilter).and(new GreaterThanOrEqualsFilter(changeAttribute, highWaterMark));
+  }
+
+  private String getChangeAttributeValue(DirContextAdapter adapter) {
+    String changeAttribute = getLdapProperties().getSyncChangeAttribute();
+    return StringUtils.isEmpty(changeAttribute) ? null : adapter.getStringAttribute(changeAttribute);
+  }
+
+  /**
+   * Runs a paged search handing every entry to the given mapper as it is read, so that no more than
+   * one page of results is held in memory.
+   */
+  private void streamLdapEntries(String baseDn, Filter filter, LdapSyncPhaseStats stats, ContextMapper mapper) {
+    final LdapTemplate ldapTemplate = loadLdapTemplate();
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    PagedResultsDirContextProcessor processor = createPagingProcessor();
+    SearchControls searchControls = new SearchControls();
+    searchControls.setReturningObjFlag(true);
+    searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+    if (StringUtils.isNotEmpty(ldapServerProperties.getSyncChangeAttribute())) {
+      // operational attributes are only returned when asked for explicitly
+      searchControls.setReturningAttributes(new String[]{"*", ldapServerProperties.getSyncChangeAttribute()});
+    }
+    String encodedFilter = filter.encode();
+    long start = System.currentTimeMillis();
+
+    do {
+      LOG.trace("LDAP Incremental Query - Base DN: '{}' ; Filter: '{}'", baseDn, encodedFilter);
+      ContextMapper countingMapper = new CountingContextMapper(mapper, stats);
+      if (ldapServerProperties.isPaginationEnabled()) {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, countingMapper, processor);
+      } else {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, countingMapper);
+      }
+      stats.pages++;
+    } while (ldapServerProperties.isPaginationEnabled()
+        && (processor.getCookie() != null) && (processor.getCookie().getCookie() != null));
+
+    stats.readTime = System.currentTimeMillis() - start;
+  }
+
   /**
    * Creates a map of internal groups.
    *
@@ -895,6 +1115,48 @@ public class AmbariLdapDataPopulator {
     }
   }
 
+  /**
+   * Counts the entries handed to a delegate mapper.
+   */
+  private static class CountingContextMapper implements ContextMapper {
+
+    private final ContextMapper delegate;
+    private final LdapSyncPhaseStats stats;
+
+    private CountingContextMapper(ContextMapper delegate, LdapSyncPhaseStats stats) {
+      this.delegate = delegate;
+      this.stats = stats;
+    }
+
+    @Override
+    public Object mapFromContext(Object ctx) throws NamingException {
+      stats.read++;
+      return delegate.mapFromContext(ctx);
+    }
+  }
+
+  /**
+   * Statistics of one phase of an incremental sync.
+   */
+  static class LdapSyncPhaseStats {
+    private final String phase;
+    long read;
+    long pages;
+    long changed;
+    long readTime;
+    long processingTime;
+
+    LdapSyncPhaseStats(String phase) {
+      this.phase = phase;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: read %d entries in %d pages (%d ms), %d changed (%d ms)",
+          phase, read, pages, readTime, changed, processingTime);
+    }
+  }
+
   private AmbariLdapConfiguration getConfiguration() {
     return configurationProvider.get();
   }
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Keeps the state needed to run incremental LDAP synchronizations between sync events.
+ * <p>
+ * For users and groups separately it tracks:
+ * <ul>
+ *   <li>the highest value of the change tracking attribute (e.g. <code>modifyTimestamp</code>
+ *   or <code>uSNChanged</code>) seen during the last sync, used to only request entries changed
+ *   since then</li>
+ *   <li>a compact fingerprint per principal name, used to skip entries which the directory reports
+ *   as changed but whose synced attributes did not change</li>
+ * </ul>
+ * Changes recorded while a sync runs are pending until {@link #commit()} is called once the batch
+ * was applied; {@link #rollback()} discards them so a failed sync is retried in full by the next one.
+ * The state is kept in memory only; after a server restart the first incremental sync reads the
+ * whole directory and seeds the index.
+ */
+public class LdapSyncState {
+
+  private final Tracker users = new Tracker();
+  private final Tracker groups = new Tracker();
+
+  /**
+   * Get the tracker for LDAP users.
+   *
+   * @return the user tracker
+   */
+  public Tracker getUsers() {
+    return users;
+  }
+
+  /**
+   * Get the tracker for LDAP groups.
+   *
+   * @return the group tracker
+   */
+  public Tracker getGroups() {
+    return groups;
+  }
+
+  /**
+   * Keep the changes recorded by the sync in progress, once its batch was applied.
+   */
+  public synchronized void commit() {
+    users.commit();
+    groups.commit();
+  }
+
+  /**
+   * Discard the changes recorded by the sync in progress, so the next sync processes the same
+   * entries again.
+   */
+  public synchronized void rollback() {
+    users.rollback();
+    groups.rollback();
+  }
+
+  /**
+   * Drop all state, forcing the next incremental sync to read the whole directory.
+   */
+  public synchronized void reset() {
+    users.reset();
+    groups.reset();
+  }
+
+  /**
+   * Computes the fingerprint of an LDAP user.
+   *
+   * @param user the user
+   * @return the fingerprint
+   */
+  static int fingerprint(LdapUserDto user) {
+    return Objects.hash(user.getUserName(), user.getUid(), user.getDn());
+  }
+
+  /**
+   * Computes the fingerprint of an LDAP group. Member attributes are order independent.
+   *
+   * @param group the group
+   * @return the fingerprint
+   */
+  static int fingerprint(LdapGroupDto group) {
+    return 31 * Objects.hashCode(group.getGroupName()) + group.getMemberAttributes().hashCode();
+  }
+
+  /**
+   * Per principal type incremental sync state.
+   */
+  public static class Tracker {
+
+    /**
+     * The highest value of the change tracking attribute seen by a completed sync, or
+     * <code>null</code> if no sync has completed yet.
+     */
+    private String highWaterMark;
+
+    /**
+     * The highest value of the change tracking attribute seen by the sync in progress.
+     */
+    private String pendingHighWaterMark;
+
+    /**
+     * Principal name to fingerprint index.
+     */
+    private final Map<String, Integer> fingerprints = new HashMap<>();
+
+    /**
+     * Fingerprints recorded by the sync in progress, not yet applied to the index.
+     */
+    private final Map<String, Integer> pendingFingerprints = new HashMap<>();
+
+    /**
+     * Get the high-water mark of the last completed sync.
+     *
+     * @return the high-water mark, or <code>null</code> if the whole directory has to be read
+     */
+    public synchronized String getHighWaterMark() {
+      return highWaterMark;
+    }
+
+    /**
+     * Record the fingerprint of the given principal for the sync in progress.
+     *
+     * @param name        the principal name
+     * @param fingerprint the fingerprint of the synced attributes
+     * @return true if the principal is new or its fingerprint changed; false otherwise
+     */
+    public synchronized boolean update(String name, int fingerprint) {
+      Integer previous = pendingFingerprints.put(name, fingerprint);
+      if (previous == null) {
+        previous = fingerprints.get(name);
+      }
+      return previous == null || previous != fingerprint;
+    }
+
+    /**
+     * Record a value of the change tracking attribute seen during the sync in progress.
+     *
+     * @param value the attribute value; ignored if blank
+     */
+    public synchronized void observe(String value) {
+      if (StringUtils.isNotBlank(value) && compare(value, pendingHighWaterMark) > 0) {
+        pendingHighWaterMark = value;
+      }
+    }
+
+    /**
+     * Mark the sync in progress as completed so the next sync only asks for newer entries and
+     * skips the unchanged ones.
+     */
+    public synchronized void commit() {
+      if (pendingHighWaterMark != null) {
+        highWaterMark = pendingHighWaterMark;
+      }
+      fingerprints.putAll(pendingFingerprints);
+      pendingFingerprints.clear();
+    }
+
+    /**
+     * Discard what the sync in progress recorded.
+     */
+    public synchronized void rollback() {
+      pendingHighWaterMark = highWaterMark;
+      pendingFingerprints.clear();
+    }
+
+    /**
+     * Get the number of principals in the fingerprint index.
+     *
+     * @return the index size
+     */
+    public synchronized int size() {
+      return fingerprints.size();
+    }
+
+    private synchronized void reset() {
+      highWaterMark = null;
+      pendingHighWaterMark = null;
+      fingerprints.clear();
+      pendingFingerprints.clear();
+    }
+
+    /**
+     * Compares change tracking attribute values. USN style values are compared numerically,
+     * generalized time values lexicographically (which matches their chronological order).
+     */
+    static int compare(String value, String other) {
+      if (other == null) {
+        return 1;
+      }
+      if (StringUtils.isNumeric(value) && StringUtils.isNumeric(other)) {
+        return Long.compare(Long.parseLong(value), Long.parseLong(other));
+      }
+      return value.compareTo(other);
+    }
+  }
+}
@@ -35,9 +35,7 @@ import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.events.StackUpgradeFinishEvent;
 import org.apache.ambari.server.events.publishers.VersionEventPublisher;
-import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
 import org.apache.ambari.server.orm.dao.HostVersionDAO;
-import org.apache.ambari.server.orm.entities.HostComponentStateEntity;
 import org.apache.ambari.server.orm.entities.HostVersionEntity;
 import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
 import org.apache.ambari.server.orm.entities.UpgradeEntity;
@@ -73,9 +71,6 @@ public class FinalizeUpgradeAction extends AbstractUpgradeServerAction {
   @Inject
   private HostVersionDAO hostVersionDAO;
 
-  @Inject
-  private HostComponentStateDAO hostComponentStateDAO;
-
   @Inject
   private AmbariMetaInfo ambariMetaInfo;
 
@@ -191,10 +186,8 @@ public class FinalizeUpgradeAction extends AbstractUpgradeServerAction {
       // at this point, all host versions are correct - do some cleanup like
       // resetting the upgrade state
       for (HostVersionEntity hostVersion : hostVersionsAllowed) {
-        Collection<HostComponentStateEntity> hostComponentStates = hostComponentStateDAO.findByHost(hostVersion.getHostName());
-        for (HostComponentStateEntity hostComponentStateEntity: hostComponentStates) {
-          hostComponentStateEntity.setUpgradeState(UpgradeState.NONE);
-          hostComponentStateDAO.merge(hostComponentStateEntity);
+        for (ServiceComponentHost sch : cluster.getServiceComponentHosts(hostVersion.getHostName())) {
+          sch.setUpgradeState(UpgradeState.NONE);
         }
       }
 
@@ -304,12 +297,8 @@ public class FinalizeUpgradeAction extends AbstractUpgradeServerAction {
             hostVersionDAO.merge(hostVersion);
           }
 
-          List<HostComponentStateEntity> hostComponentStates = hostComponentStateDAO.findByHost(
-              hostVersion.getHostName());
-
-          for (HostComponentStateEntity hostComponentState : hostComponentStates) {
-            hostComponentState.setUpgradeState(UpgradeState.NONE);
-            hostComponentStateDAO.merge(hostComponentState);
+          for (ServiceComponentHost sch : cluster.getServiceComponentHosts(hostVersion.getHostName())) {
+            sch.setUpgradeState(UpgradeState.NONE);
           }
         }
       }
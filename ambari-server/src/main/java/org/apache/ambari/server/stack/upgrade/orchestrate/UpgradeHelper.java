@@ -23,11 +23,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -36,6 +41,7 @@ import org.apache.ambari.annotations.Experimental;
 import org.apache.ambari.annotations.ExperimentalFeature;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariManagementControllerImpl;
 import org.apache.ambari.server.controller.internal.TaskResourceProvider;
@@ -96,6 +102,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -150,6 +157,12 @@ public class UpgradeHelper {
   @Inject
   private AmbariEventPublisher ambariEventPublisher;
 
+  /**
+   * Used to size the pool resolving component hosts.
+   */
+  @Inject
+  private Provider<Configuration> m_configuration;
+
   /**
    * Get right Upgrade Pack, depends on stack, direction and upgrade type
    * information
@@ -275,6 +288,97 @@ public class UpgradeHelper {
     return result;
   }
 
+  /**
+   * Resolves the hosts of every component orchestrated by the given groups.
+   * Each group gets its own {@link HostsType} instances, since they are
+   * modified while the stages of the group are built. The hosts are resolved
+   * concurrently, using up to
+   * {@link Configuration#getStackUpgradeHostResolutionThreads()} threads.
+   *
+   * @param upgradePack
+   *          the upgrade pack
+   * @param context
+   *          the upgrade context
+   * @param groupings
+   *          the groups being orchestrated
+   * @return the hosts of each group, keyed by {@code service/component};
+   *         components which have no hosts are mapped to {@code null}
+   * @throws AmbariException
+   *           if the hosts of a component could not be resolved
+   */
+  private Map<Grouping, Map<String, HostsType>> resolveHosts(UpgradePack upgradePack,
+      UpgradeContext context, List<Grouping> groupings) throws AmbariException {
+
+    MasterHostResolver mhr = context.getResolver();
+    Map<String, Map<String, ProcessingComponent>> allTasks = upgradePack.getTasks();
+    boolean rolling = upgradePack.getType() == UpgradeType.ROLLING;
+
+    Map<Grouping, Map<String, HostsType>> resolvedHosts = new IdentityHashMap<>();
+    Map<Grouping, Map<String, Future<HostsType>>> pendingHosts = new IdentityHashMap<>();
+
+    int componentCount = 0;
+    for (Grouping group : groupings) {
+      resolvedHosts.put(group, new HashMap<>());
+      pendingHosts.put(group, new HashMap<>());
+
+      for (UpgradePack.OrderService service : group.services) {
+        if (!context.isServiceSupported(service.serviceName)
+            || (rolling && !allTasks.containsKey(service.serviceName))) {
+          continue;
+        }
+
+        for (String component : service.components) {
+          if (!rolling || allTasks.get(service.serviceName).containsKey(component)) {
+            pendingHosts.get(group).put(service.serviceName + "/" + component, null);
+            componentCount++;
+          }
+        }
+      }
+    }
+
+    int threads = Math.min(m_configuration.get().getStackUpgradeHostResolutionThreads(), componentCount);
+    if (threads <= 1) {
+      for (Grouping group : groupings) {
+        for (String serviceAndComponent : pendingHosts.get(group).keySet()) {
+          String[] names = serviceAndComponent.split("/", 2);
+          resolvedHosts.get(group).put(serviceAndComponent, mhr.getMasterAndHosts(names[0], names[1]));
+        }
+      }
+
+      return resolvedHosts;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("upgrade-host-resolver-%d").setDaemon(true).build());
+
+    try {
+      for (Map<String, Future<HostsType>> groupHosts : pendingHosts.values()) {
+        for (Map.Entry<String, Future<HostsType>> entry : groupHosts.entrySet()) {
+          String[] names = entry.getKey().split("/", 2);
+          entry.setValue(executor.submit(() -> mhr.getMasterAndHosts(names[0], names[1])));
+        }
+      }
+
+      for (Map.Entry<Grouping, Map<String, Future<HostsType>>> groupHosts : pendingHosts.entrySet()) {
+        for (Map.Entry<String, Future<HostsType>> entry : groupHosts.getValue().entrySet()) {
+          resolvedHosts.get(groupHosts.getKey()).put(entry.getKey(), entry.getValue().get());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while resolving the hosts of the upgraded components", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AmbariException("Unable to resolve the hosts of the upgraded components", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return resolvedHosts;
+  }
+
   /**
    * Generates a list of UpgradeGroupHolder items that are used to execute either
    * an upgrade or a downgrade.
@@ -296,7 +400,9 @@ public class UpgradeHelper {
     Map<String, Map<String, ProcessingComponent>> allTasks = upgradePack.getTasks();
     List<UpgradeGroupHolder> groups = new ArrayList<>();
 
-    UpgradeGroupHolder previousGroupHolder = null;
+    long startTime = System.currentTimeMillis();
+
+    List<Grouping> groupings = new ArrayList<>();
     for (Grouping group : upgradePack.getGroups(context.getDirection())) {
 
       // !!! grouping is not scoped to context
@@ -311,6 +417,17 @@ public class UpgradeHelper {
         continue;
       }
 
+      groupings.add(group);
+    }
+
+    // !!! resolving masters can query each of them over JMX, so resolve the
+    // hosts of every component up front and in parallel
+    Map<Grouping, Map<String, HostsType>> resolvedHosts = resolveHosts(upgradePack, context, groupings);
+    long resolvedTime = System.currentTimeMillis();
+
+    UpgradeGroupHolder previousGroupHolder = null;
+    for (Grouping group : groupings) {
+
       UpgradeGroupHolder groupHolder = new UpgradeGroupHolder();
       groupHolder.name = group.name;
       groupHolder.title = group.title;
@@ -410,7 +527,12 @@ public class UpgradeHelper {
             continue;
           }
 
-          HostsType hostsType = mhr.getMasterAndHosts(service.serviceName, component);
+          String serviceAndComponentHash = service.serviceName + "/" + component;
+
+          Map<String, HostsType> groupHosts = resolvedHosts.get(group);
+          HostsType hostsType = groupHosts.containsKey(serviceAndComponentHash)
+              ? groupHosts.get(serviceAndComponentHash)
+              : mhr.getMasterAndHosts(service.serviceName, component);
 
           // only worry about adding future commands if this is a start/restart task
           boolean taskIsRestartOrStart = functionName == null || functionName == Type.START
@@ -419,7 +541,6 @@ public class UpgradeHelper {
           // see if this component has an add component task which will indicate
           // we need to dynamically schedule some more tasks by predicting where
           // the components will be installed
-          String serviceAndComponentHash = service.serviceName + "/" + component;
           if (taskIsRestartOrStart && addedComponentsDuringUpgrade.containsKey(serviceAndComponentHash)) {
             AddComponentTask task = addedComponentsDuringUpgrade.get(serviceAndComponentHash);
 
@@ -557,6 +678,10 @@ public class UpgradeHelper {
       canServiceCheck |= holder.processingGroup;
     }
 
+    LOG.info("Planned {} groups of the {} upgrade pack in {} ms ({} ms resolving component hosts)",
+        groups.size(), upgradePack.getName(), System.currentTimeMillis() - startTime,
+        resolvedTime - startTime);
+
     return groups;
   }
 
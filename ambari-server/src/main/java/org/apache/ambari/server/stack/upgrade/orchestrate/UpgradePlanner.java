@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.stack.upgrade.orchestrate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.server.AmbariException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link UpgradePlanner} plans upgrades in the background for the clients
+ * which ask not to wait for the orchestration to be planned and the stages to be
+ * persisted. It tracks the upgrades being planned, and those whose planning
+ * failed, by the ID of their request until the upgrade exists. Only one upgrade
+ * of a cluster is planned at a time.
+ * <p/>
+ * It also records how long planning, building the stages and persisting them
+ * took, for every upgrade created, so that they can be published as metrics.
+ */
+@Singleton
+public class UpgradePlanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpgradePlanner.class);
+
+  /**
+   * How long a failed planning is reported after it failed.
+   */
+  private static final long FAILED_PLANNING_RETENTION_MINUTES = 60;
+
+  /**
+   * The state of an upgrade which does not exist yet.
+   */
+  public enum PlanningStatus {
+    /**
+     * The upgrade is queued or being planned.
+     */
+    PLANNING,
+
+    /**
+     * The upgrade could not be planned; it will not be created.
+     */
+    FAILED
+  }
+
+  /**
+   * An upgrade being planned, or whose planning failed.
+   */
+  public static final class Planning {
+    private final long clusterId;
+    private final long requestId;
+    private final long submitTime = System.currentTimeMillis();
+    private volatile PlanningStatus status = PlanningStatus.PLANNING;
+    private volatile String error;
+
+    private Planning(long clusterId, long requestId) {
+      this.clusterId = clusterId;
+      this.requestId = requestId;
+    }
+
+    public long getClusterId() {
+      return clusterId;
+    }
+
+    public long getRequestId() {
+      return requestId;
+    }
+
+    public long getSubmitTime() {
+      return submitTime;
+    }
+
+    public PlanningStatus getStatus() {
+      return status;
+    }
+
+    /**
+     * @return the reason the planning failed, or {@code null}
+     */
+    public String getError() {
+      return error;
+    }
+  }
+
+  /**
+   * The upgrades queued or being planned, by request ID.
+   */
+  private final ConcurrentMap<Long, Planning> m_plannings = new ConcurrentHashMap<>();
+
+  /**
+   * The upgrades queued or being planned, by cluster ID.
+   */
+  private final ConcurrentMap<Long, Planning> m_clusterPlannings = new ConcurrentHashMap<>();
+
+  /**
+   * The upgrades whose planning failed, by request ID.
+   */
+  private final Cache<Long, Planning> m_failedPlannings = CacheBuilder.newBuilder().expireAfterWrite(
+      FAILED_PLANNING_RETENTION_MINUTES, TimeUnit.MINUTES).build();
+
+  /**
+   * Plans one upgrade at a time. Its thread is only started when an upgrade is
+   * submitted and ends once the queue has been idle for a minute.
+   */
+  private final ThreadPoolExecutor m_executor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("ambari-upgrade-planner-%d").setDaemon(true).build());
+
+  private final AtomicLong m_upgradesPlanned = new AtomicLong();
+  private final AtomicLong m_planningFailures = new AtomicLong();
+  private volatile long m_lastPlanningTime;
+  private volatile long m_lastStageBuildTime;
+  private volatile long m_lastPersistTime;
+
+  /**
+   * Queues the planning of an upgrade. The security context of the caller is
+   * used to plan it.
+   *
+   * @param clusterId
+   *          the cluster being upgraded
+   * @param requestId
+   *          the ID of the request the upgrade is created with
+   * @param plan
+   *          plans, builds and persists the upgrade
+   * @return the planning, which is reported until the upgrade exists
+   * @throws AmbariException
+   *           if another upgrade of the cluster is queued or being planned
+   * @throws IllegalStateException
+   *           if the planner has been stopped
+   */
+  public Planning submit(long clusterId, long requestId, Callable<?> plan) throws AmbariException {
+    Planning planning = new Planning(clusterId, requestId);
+    Planning inProgress = m_clusterPlannings.putIfAbsent(clusterId, planning);
+    if (null != inProgress) {
+      throw new AmbariException(String.format(
+          "Unable to create an upgrade as another upgrade (request ID %s) is being planned.",
+          inProgress.getRequestId()));
+    }
+    m_plannings.put(requestId, planning);
+
+    Runnable task = () -> {
+      try {
+        plan.call();
+        remove(planning);
+      } catch (Exception e) {
+        LOG.error("Unable to plan the upgrade of request {}", requestId, e);
+        fail(planning, e);
+      }
+    };
+
+    try {
+      m_executor.execute(new DelegatingSecurityContextRunnable(task));
+    } catch (RejectedExecutionException e) {
+      remove(planning);
+      throw new IllegalStateException("The upgrade planner has been stopped", e);
+    }
+    return planning;
+  }
+
+  /**
+   * @param requestId
+   *          the ID of the request of an upgrade
+   * @return the planning of the upgrade if it is queued, being planned or
+   *         failed, or {@code null}
+   */
+  public Planning getPlanning(long requestId) {
+    Planning planning = m_plannings.get(requestId);
+    return (null != planning) ? planning : m_failedPlannings.getIfPresent(requestId);
+  }
+
+  /**
+   * @param clusterId
+   *          the ID of a cluster
+   * @return the plannings of the upgrades of the cluster which are queued,
+   *         being planned or failed
+   */
+  public Collection<Planning> getPlannings(long clusterId) {
+    List<Planning> plannings = new ArrayList<>();
+    for (Planning planning : m_plannings.values()) {
+      if (planning.clusterId == clusterId) {
+        plannings.add(planning);
+      }
+    }
+    for (Planning planning : m_failedPlannings.asMap().values()) {
+      if (planning.clusterId == clusterId) {
+        plannings.add(planning);
+      }
+    }
+    return plannings;
+  }
+
+  /**
+   * @param clusterId
+   *          the ID of a cluster
+   * @return the upgrade of the cluster which is queued or being planned, or
+   *         {@code null}
+   */
+  public Planning getPlanningInProgress(long clusterId) {
+    return m_clusterPlannings.get(clusterId);
+  }
+
+  /**
+   * Records the time taken to create an upgrade, whether it was planned in the
+   * background or not.
+   *
+   * @param planningTime
+   *          the time taken to plan the orchestration, in milliseconds
+   * @param stageBuildTime
+   *          the time taken to build the stages, in milliseconds
+   * @param persistTime
+   *          the time taken to persist the stages and the upgrade, in
+   *          milliseconds
+   */
+  public void recordPlanning(long planningTime, long stageBuildTime, long persistTime) {
+    m_upgradesPlanned.incrementAndGet();
+    m_lastPlanningTime = planningTime;
+    m_lastStageBuildTime = stageBuildTime;
+    m_lastPersistTime = persistTime;
+  }
+
+  /**
+   * Stops planning. The upgrades which have not been planned yet fail.
+   */
+  public void stop() {
+    for (Runnable task : m_executor.shutdownNow()) {
+      LOG.debug("Discarding queued upgrade planning {}", task);
+    }
+    for (Planning planning : m_plannings.values()) {
+      if (planning.status == PlanningStatus.PLANNING) {
+        fail(planning, new IllegalStateException("The server stopped before the upgrade was planned"));
+      }
+    }
+  }
+
+  /**
+   * @return the number of upgrades created since the server started
+   */
+  public long getUpgradesPlanned() {
+    return m_upgradesPlanned.get();
+  }
+
+  /**
+   * @return the number of background plannings which failed since the server
+   *         started
+   */
+  public long getPlanningFailures() {
+    return m_planningFailures.get();
+  }
+
+  /**
+   * @return the number of upgrades queued or being planned in the background
+   */
+  public int getPlanningsInProgress() {
+    return m_plannings.size();
+  }
+
+  /**
+   * @return the time taken to plan the orchestration of the last upgrade, in
+   *         milliseconds
+   */
+  public long getLastPlanningTime() {
+    return m_lastPlanningTime;
+  }
+
+  /**
+   * @return the time taken to build the stages of the last upgrade, in
+   *         milliseconds
+   */
+  public long getLastStageBuildTime() {
+    return m_lastStageBuildTime;
+  }
+
+  /**
+   * @return the time taken to persist the last upgrade, in milliseconds
+   */
+  public long getLastPersistTime() {
+    return m_lastPersistTime;
+  }
+
+  private void fail(Planning planning, Exception e) {
+    planning.error = (null != e.getMessage()) ? e.getMessage() : e.getClass().getName();
+    planning.status = PlanningStatus.FAILED;
+    m_failedPlannings.put(planning.requestId, planning);
+    remove(planning);
+    m_planningFailures.incrementAndGet();
+  }
+
+  private void remove(Planning planning) {
+    m_plannings.remove(planning.requestId);
+    m_clusterPlannings.remove(planning.clusterId, planning);
+  }
+}
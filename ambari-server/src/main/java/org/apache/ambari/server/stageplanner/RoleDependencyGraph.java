@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.stageplanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.metadata.RoleCommandOrder;
+
+/**
+ * The dependencies between a set of roles and commands as established by a
+ * {@link RoleCommandOrder}, along with the stages they are executed in.
+ * <p/>
+ * Comparing every pair of roles against the role command order and peeling the
+ * resulting graph into stages only depends on the roles and commands being
+ * ordered, not on the hosts they run on. Instances are therefore compiled once
+ * for each set of roles and commands and cached by the {@link RoleCommandOrder}
+ * (see {@link RoleCommandOrder#getDependencyGraph(Map)}); a {@link RoleGraph}
+ * then only has to add the edges to its nodes and group them by stage.
+ * <p/>
+ * Instances are immutable.
+ */
+public final class RoleDependencyGraph {
+
+  /**
+   * Role to the roles which can only run once it is done, in the order of
+   * {@link RoleGraphNode#getEdges()}.
+   */
+  private final Map<String, List<String>> edges;
+
+  /**
+   * The roles executed in each stage, or {@code null} if the roles can not be
+   * ordered due to circular dependencies.
+   */
+  private final List<List<String>> stages;
+
+  /**
+   * A description of the first circular dependency between two roles, or
+   * {@code null} if there are none.
+   */
+  private final String cycleError;
+
+  private RoleDependencyGraph(Map<String, List<String>> edges, List<List<String>> stages, String cycleError) {
+    this.edges = edges;
+    this.stages = stages;
+    this.cycleError = cycleError;
+  }
+
+  /**
+   * Compiles the dependencies between the given roles.
+   *
+   * @param roleCommandOrder
+   *          the order to establish the dependencies with
+   * @param nodes
+   *          the nodes to order, keyed by role; only their role and command are
+   *          taken into account
+   * @return the compiled dependencies
+   */
+  public static RoleDependencyGraph compile(RoleCommandOrder roleCommandOrder, Map<String, RoleGraphNode> nodes) {
+    Map<String, RoleGraphNode> graph = new TreeMap<>();
+    for (Map.Entry<String, RoleGraphNode> entry : nodes.entrySet()) {
+      RoleGraphNode node = entry.getValue();
+      graph.put(entry.getKey(), new RoleGraphNode(node.getRole(), node.getCommand()));
+    }
+
+    for (String roleI : graph.keySet()) {
+      for (String roleJ : graph.keySet()) {
+        if (!roleI.equals(roleJ)) {
+          RoleGraphNode rgnI = graph.get(roleI);
+          RoleGraphNode rgnJ = graph.get(roleJ);
+          int order = roleCommandOrder.order(rgnI, rgnJ);
+          if (order == -1) {
+            rgnI.addEdge(rgnJ);
+          } else if (order == 1) {
+            rgnJ.addEdge(rgnI);
+          }
+        }
+      }
+    }
+
+    Map<String, List<String>> edges = new TreeMap<>();
+    for (Map.Entry<String, RoleGraphNode> entry : graph.entrySet()) {
+      Collection<RoleGraphNode> dependents = entry.getValue().getEdges();
+      if (!dependents.isEmpty()) {
+        List<String> roles = new ArrayList<>(dependents.size());
+        for (RoleGraphNode dependent : dependents) {
+          roles.add(dependent.getRole().toString());
+        }
+        edges.put(entry.getKey(), Collections.unmodifiableList(roles));
+      }
+    }
+
+    String cycleError = findCycle(graph);
+    return new RoleDependencyGraph(Collections.unmodifiableMap(edges), peelStages(graph), cycleError);
+  }
+
+  /**
+   * Adds the edges of this graph to the nodes of a {@link RoleGraph}.
+   *
+   * @param graph
+   *          the nodes, keyed by role, which must be the roles this graph was
+   *          compiled for
+   */
+  void addEdges(Map<String, RoleGraphNode> graph) {
+    for (Map.Entry<String, List<String>> entry : edges.entrySet()) {
+      RoleGraphNode from = graph.get(entry.getKey());
+      for (String role : entry.getValue()) {
+        from.addEdge(graph.get(role));
+      }
+    }
+  }
+
+  /**
+   * @return the roles executed in each stage, or {@code null} if the roles can
+   *         not be ordered due to circular dependencies
+   */
+  List<List<String>> getStages() {
+    return stages;
+  }
+
+  /**
+   * @return a description of the first circular dependency between two roles,
+   *         or {@code null} if there are none
+   */
+  String getCycleError() {
+    return cycleError;
+  }
+
+  /**
+   * Looks for two roles depending on each other.
+   *
+   * @param graph
+   *          the nodes of a graph, keyed by role
+   * @return a description of the first circular dependency found, or
+   *         {@code null} if there are none
+   * @see RoleGraph#breakCycleGraph()
+   */
+  static String findCycle(Map<String, RoleGraphNode> graph) {
+    Set<String> edges = new HashSet<>();
+    for (String role : graph.keySet()) {
+      RoleGraphNode fromNode = graph.get(role);
+      String fnRole = fromNode.getRole().name();
+      String fnCommand = fromNode.getCommand().name();
+
+      Iterator<RoleGraphNode> it = fromNode.getEdges().iterator();
+      while (it.hasNext()) {
+        RoleGraphNode toNode = it.next();
+        String tnRole = toNode.getRole().name();
+        String tnCommand = toNode.getCommand().name();
+        // check if the reversed edge exists already
+        String format = "%s:%s --> %s:%s";
+        String edge = String.format(format, fnRole, fnCommand, tnRole, tnCommand);
+        String reversedEdge = String.format(format, tnRole, tnCommand, fnRole, fnCommand);
+        if (edges.contains(reversedEdge)) {
+          return String.format(
+              "Circular dependencies detected between %s and %s for %s. "
+              + "%s already exists in the role command order.", fnRole, tnRole, edge, reversedEdge);
+        }
+        edges.add(edge);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes the nodes without incoming edges from the graph, stage by stage.
+   *
+   * @return the roles of each stage, or {@code null} if the remaining nodes all
+   *         have incoming edges
+   */
+  private static List<List<String>> peelStages(Map<String, RoleGraphNode> graph) {
+    List<List<String>> stages = new ArrayList<>();
+    while (!graph.isEmpty()) {
+      List<RoleGraphNode> stageNodes = new ArrayList<>();
+      for (RoleGraphNode rgn : graph.values()) {
+        if (rgn.getInDegree() == 0) {
+          stageNodes.add(rgn);
+        }
+      }
+      if (stageNodes.isEmpty()) {
+        return null;
+      }
+
+      List<String> stage = new ArrayList<>(stageNodes.size());
+      for (RoleGraphNode rgn : stageNodes) {
+        String role = rgn.getRole().toString();
+        graph.remove(role);
+        for (RoleGraphNode edgeNode : rgn.getEdges()) {
+          edgeNode.decrementInDegree();
+        }
+        stage.add(role);
+      }
+      stages.add(Collections.unmodifiableList(stage));
+    }
+    return Collections.unmodifiableList(stages);
+  }
+}
@@ -19,7 +19,6 @@ package org.apache.ambari.server.stageplanner;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -46,8 +45,13 @@ public class RoleGraph {
 
   Map<String, RoleGraphNode> graph = null;
   private RoleCommandOrder roleDependencies;
+
+  /**
+   * The dependencies between the roles of {@link #graph}, or {@code null} if
+   * the roles do not depend on each other.
+   */
+  private RoleDependencyGraph dependencyGraph = null;
   private Stage initialStage = null;
-  private boolean sameHostOptimization = true;
   private CommandExecutionType commandExecutionType = CommandExecutionType.STAGE;
 
   @Inject
@@ -113,6 +117,7 @@ public class RoleGraph {
    */
   private void build(Map<String, Map<String, HostRoleCommand>> hostRoleCommands) {
     graph = new TreeMap<>();
+    dependencyGraph = null;
 
     for (String host : hostRoleCommands.keySet()) {
       for (String role : hostRoleCommands.get(host).keySet()) {
@@ -131,22 +136,10 @@ public class RoleGraph {
     // In case commandExecutionType == DEPENDENCY_ORDERED there will be only one stage, thus no need to add edges to
     // the graph
     if (commandExecutionType == CommandExecutionType.STAGE) {
-      if (null != roleDependencies) {
-        //Add edges
-        for (String roleI : graph.keySet()) {
-          for (String roleJ : graph.keySet()) {
-            if (!roleI.equals(roleJ)) {
-              RoleGraphNode rgnI = graph.get(roleI);
-              RoleGraphNode rgnJ = graph.get(roleJ);
-              int order = roleDependencies.order(rgnI, rgnJ);
-              if (order == -1) {
-                rgnI.addEdge(rgnJ);
-              } else if (order == 1) {
-                rgnJ.addEdge(rgnI);
-              }
-            }
-          }
-        }
+      if (null != roleDependencies && graph.size() > 1) {
+        // Add edges, which are compiled once for each set of roles and commands
+        dependencyGraph = roleDependencies.getDependencyGraph(graph);
+        dependencyGraph.addEdges(graph);
       }
     }
   }
@@ -170,35 +163,15 @@ public class RoleGraph {
   public List<Stage> getStages() throws AmbariException {
     long initialStageId = initialStage.getStageId();
     List<Stage> stageList = new ArrayList<>();
-    List<RoleGraphNode> firstStageNodes = new ArrayList<>();
     if(!graph.isEmpty()){
       LOG.info("Detecting cycle graphs");
       LOG.info(stringifyGraph());
       breakCycleGraph();
     }
-    while (!graph.isEmpty()) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug(stringifyGraph());
-      }
-
-      for (String role: graph.keySet()) {
-        RoleGraphNode rgn = graph.get(role);
-        if (rgn.getInDegree() == 0) {
-          firstStageNodes.add(rgn);
-        }
-      }
-      Stage aStage = getStageFromGraphNodes(initialStage, firstStageNodes);
+    for (List<RoleGraphNode> stageNodes : removeStageNodes()) {
+      Stage aStage = getStageFromGraphNodes(initialStage, stageNodes);
       aStage.setStageId(++initialStageId);
       stageList.add(aStage);
-      //Remove first stage nodes from the graph, we know that none of
-      //these nodes have an incoming edges.
-      for (RoleGraphNode rgn : firstStageNodes) {
-        if (sameHostOptimization) {
-          //Perform optimization
-        }
-        removeZeroInDegreeNode(rgn.getRole().toString());
-      }
-      firstStageNodes.clear();
     }
     return stageList;
   }
@@ -233,15 +206,7 @@ public class RoleGraph {
     // represents an ordered list of stages
     List<Map<String, List<HostRoleCommand>>> orderedCommands = new ArrayList<>();
 
-    List<RoleGraphNode> firstStageNodes = new ArrayList<>();
-    while (!graph.isEmpty()) {
-      for (String role : graph.keySet()) {
-        RoleGraphNode rgn = graph.get(role);
-        if (rgn.getInDegree() == 0) {
-          firstStageNodes.add(rgn);
-        }
-      }
-
+    for (List<RoleGraphNode> firstStageNodes : removeStageNodes()) {
       // represents a stage
       Map<String, List<HostRoleCommand>> commandsPerHost = new HashMap<>();
 
@@ -261,27 +226,45 @@ public class RoleGraph {
 
       // add the stage to the list of stages
       orderedCommands.add(commandsPerHost);
-
-      // Remove first stage nodes from the graph, we know that none of
-      // these nodes have an incoming edges.
-      for (RoleGraphNode rgn : firstStageNodes) {
-        removeZeroInDegreeNode(rgn.getRole().toString());
-      }
-
-      firstStageNodes.clear();
     }
 
     return orderedCommands;
   }
 
   /**
-   * Assumes there are no incoming edges.
+   * Removes all nodes from the graph, grouped by the stage they are executed
+   * in. Each stage holds the nodes which have no incoming edges once the nodes
+   * of the previous stages are removed.
+   *
+   * @return the nodes of each stage
+   * @throws IllegalStateException
+   *           if the nodes can not be ordered due to circular dependencies
    */
-  private synchronized void removeZeroInDegreeNode(String role) {
-    RoleGraphNode nodeToRemove = graph.remove(role);
-    for (RoleGraphNode edgeNode : nodeToRemove.getEdges()) {
-      edgeNode.decrementInDegree();
+  private synchronized List<List<RoleGraphNode>> removeStageNodes() {
+    List<List<RoleGraphNode>> stages = new ArrayList<>();
+    if (graph.isEmpty()) {
+      return stages;
+    }
+
+    if (dependencyGraph == null) {
+      // without dependencies, all roles are executed in a single stage
+      stages.add(new ArrayList<>(graph.values()));
+    } else {
+      List<List<String>> stageRoles = dependencyGraph.getStages();
+      if (stageRoles == null) {
+        throw new IllegalStateException("Unable to order the roles due to circular dependencies: " + stringifyGraph());
+      }
+      for (List<String> roles : stageRoles) {
+        List<RoleGraphNode> stageNodes = new ArrayList<>(roles.size());
+        for (String role : roles) {
+          stageNodes.add(graph.get(role));
+        }
+        stages.add(stageNodes);
+      }
     }
+
+    graph.clear();
+    return stages;
   }
 
   private Stage getStageFromGraphNodes(Stage origStage,
@@ -332,32 +315,13 @@ public class RoleGraph {
    * when Ambari supports mpacks, custom services and service level role command order.
    * */
   public void breakCycleGraph() throws AmbariException{
-    List<String> edges = new ArrayList<>();
-    for (String role : graph.keySet()){
-      RoleGraphNode fromNode = graph.get(role);
-      String fnRole = fromNode.getRole().name();
-      String fnCommand = fromNode.getCommand().name();
-
-      Iterator<RoleGraphNode> it = fromNode.getEdges().iterator();
-      while(it.hasNext()){
-        RoleGraphNode toNode = it.next();
-        String tnRole = toNode.getRole().name();
-        String tnCommand = toNode.getCommand().name();
-        //Check if the reversed edge exists in the list already
-        //If the edit exists, print an error message and break the edge
-        String format = "%s:%s --> %s:%s";
-        String edge = String.format(format, fnRole, fnCommand, tnRole, tnCommand);
-        String reversedEdge = String.format(format, tnRole, tnCommand, fnRole, fnCommand);
-        if (edges.contains(reversedEdge)){
-          String msg = String.format(
-              "Circular dependencies detected between %s and %s for %s. "
-              + "%s already exists in the role command order.", fnRole, tnRole, edge, reversedEdge);
-          LOG.error(msg);
-          throw new AmbariException(msg);
-        } else {
-          edges.add(edge);
-        }
-      }
+    // the check is done once, when the dependencies of the roles are compiled
+    String msg = (dependencyGraph != null)
+        ? dependencyGraph.getCycleError()
+        : RoleDependencyGraph.findCycle(graph);
+    if (msg != null) {
+      LOG.error(msg);
+      throw new AmbariException(msg);
     }
   }
 }
@@ -571,8 +571,7 @@ public class ConfigHelper {
    */
   public boolean isStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> requestDesiredConfigs)
       throws AmbariException {
-    HostComponentDesiredStateEntity hostComponentDesiredStateEntity = sch.getDesiredStateEntity();
-    return isStaleConfigs(sch, requestDesiredConfigs, hostComponentDesiredStateEntity);
+    return isStaleConfigs(sch, requestDesiredConfigs, null);
   }
 
   public boolean isStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> requestDesiredConfigs,
@@ -1406,7 +1405,8 @@ public class ConfigHelper {
   private boolean calculateIsStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> desiredConfigs,
                                           HostComponentDesiredStateEntity hostComponentDesiredStateEntity) throws AmbariException {
 
-    if (sch.isRestartRequired(hostComponentDesiredStateEntity)) {
+    if (hostComponentDesiredStateEntity == null ? sch.isRestartRequired()
+        : sch.isRestartRequired(hostComponentDesiredStateEntity)) {
       return true;
     }
 
@@ -1666,8 +1666,7 @@ public class ConfigHelper {
    */
   public boolean checkStaleConfigsStatusForHostComponent(ServiceComponentHost sch,
                                                          Map<String, Collection<String>> changedConfigs) throws AmbariException {
-    HostComponentDesiredStateEntity hostComponentDesiredStateEntity = sch.getDesiredStateEntity();
-    if (sch.isRestartRequired(hostComponentDesiredStateEntity)) {
+    if (sch.isRestartRequired()) {
       return true;
     }
     boolean stale = false;
@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.alert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ambari.server.alerts.StaleAlertRunnable;
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+
+import com.google.inject.Singleton;
+
+/**
+ * The {@link AlertDeadlineIndex} keeps, for every current alert, the time by
+ * which it is expected to have reported again: its latest timestamp plus its
+ * definition's interval times the stale interval multiplier. It is updated as
+ * alerts are received so that the {@link StaleAlertRunnable} only needs to
+ * examine the alerts whose deadline has passed, along with those that are on
+ * hosts which lost their heartbeat or reported stale alerts, instead of every
+ * current alert of the cluster.
+ * <p/>
+ * {@link SourceType#AGGREGATE} alerts and alerts which have not run yet are
+ * not indexed since they are never considered stale. The deadlines of the
+ * alerts of a definition are recalculated when its interval changes.
+ */
+@Singleton
+public class AlertDeadlineIndex {
+
+  /**
+   * Convert the minutes for the interval of an alert into milliseconds.
+   */
+  private static final long MINUTE_TO_MS_CONVERSION = 60L * 1000L;
+
+  /**
+   * The multiplier applied to the interval of the definitions, as configured
+   * on the stale alert definition.
+   */
+  private volatile int m_waitFactor = 2;
+
+  /**
+   * The deadlines of the current alerts, by cluster ID.
+   */
+  private final ConcurrentMap<Long, ClusterDeadlines> m_clusterDeadlines = new ConcurrentHashMap<>();
+
+  /**
+   * Gets whether the current alerts of the cluster were loaded into the index.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @return {@code true} if the cluster was loaded.
+   */
+  public boolean isLoaded(long clusterId) {
+    return m_clusterDeadlines.containsKey(clusterId);
+  }
+
+  /**
+   * Loads the current alerts of a cluster into the index. Alerts received
+   * while the current alerts were read are kept, as an alert's deadline only
+   * ever moves forward.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param currentAlerts
+   *          the current alerts of the cluster.
+   */
+  public void load(long clusterId, Collection<AlertCurrentEntity> currentAlerts) {
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.computeIfAbsent(clusterId,
+        id -> new ClusterDeadlines());
+
+    synchronized (clusterDeadlines) {
+      for (AlertCurrentEntity current : currentAlerts) {
+        clusterDeadlines.put(current, m_waitFactor);
+      }
+    }
+  }
+
+  /**
+   * Updates the deadline of an alert which was just received. This does
+   * nothing for clusters which were not loaded yet since the alert will be
+   * loaded along with the others.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param current
+   *          the received alert.
+   */
+  public void update(long clusterId, AlertCurrentEntity current) {
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.get(clusterId);
+    if (null == clusterDeadlines) {
+      return;
+    }
+
+    synchronized (clusterDeadlines) {
+      clusterDeadlines.put(current, m_waitFactor);
+    }
+  }
+
+  /**
+   * Removes an alert which no longer exists from the index.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param alertId
+   *          the ID of the current alert.
+   */
+  public void remove(long clusterId, long alertId) {
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.get(clusterId);
+    if (null == clusterDeadlines) {
+      return;
+    }
+
+    synchronized (clusterDeadlines) {
+      clusterDeadlines.remove(alertId);
+    }
+  }
+
+  /**
+   * Sets the multiplier applied to the interval of the definitions,
+   * recalculating the deadlines of all alerts if it changed.
+   *
+   * @param waitFactor
+   *          the stale interval multiplier.
+   */
+  public void setWaitFactor(int waitFactor) {
+    if (waitFactor == m_waitFactor) {
+      return;
+    }
+
+    m_waitFactor = waitFactor;
+    for (ClusterDeadlines clusterDeadlines : m_clusterDeadlines.values()) {
+      synchronized (clusterDeadlines) {
+        clusterDeadlines.reschedule(waitFactor);
+      }
+    }
+  }
+
+  /**
+   * Sets the interval of a definition whose alerts are indexed, recalculating
+   * the deadlines of its alerts if it changed.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param definitionId
+   *          the ID of the alert definition.
+   * @param interval
+   *          the interval of the definition, in minutes.
+   */
+  public void setInterval(long clusterId, long definitionId, int interval) {
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.get(clusterId);
+    if (null == clusterDeadlines) {
+      return;
+    }
+
+    synchronized (clusterDeadlines) {
+      clusterDeadlines.reschedule(definitionId, interval * MINUTE_TO_MS_CONVERSION, m_waitFactor);
+    }
+  }
+
+  /**
+   * Gets the hosts which have current alerts in the cluster.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @return the host names (never {@code null}).
+   */
+  public Set<String> getHostNames(long clusterId) {
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.get(clusterId);
+    if (null == clusterDeadlines) {
+      return new HashSet<>();
+    }
+
+    synchronized (clusterDeadlines) {
+      return new HashSet<>(clusterDeadlines.hostAlerts.keySet());
+    }
+  }
+
+  /**
+   * Gets the alerts of the cluster which may be stale: those whose deadline
+   * has passed, those which are not bound to a host and those on any of the
+   * specified hosts.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param now
+   *          the current time.
+   * @param hostNames
+   *          the hosts whose alerts should all be examined.
+   * @return the deadlines of the alerts, by alert ID (never {@code null}).
+   */
+  public Map<Long, Deadline> getCandidates(long clusterId, long now, Set<String> hostNames) {
+    Map<Long, Deadline> candidates = new LinkedHashMap<>();
+    ClusterDeadlines clusterDeadlines = m_clusterDeadlines.get(clusterId);
+    if (null == clusterDeadlines) {
+      return candidates;
+    }
+
+    synchronized (clusterDeadlines) {
+      for (Deadline deadline : clusterDeadlines.deadlines) {
+        if (deadline.deadline > now) {
+          break;
+        }
+        candidates.put(deadline.alertId, deadline);
+      }
+
+      for (Long alertId : clusterDeadlines.noHostAlerts) {
+        candidates.put(alertId, clusterDeadlines.alerts.get(alertId));
+      }
+
+      for (String hostName : hostNames) {
+        Set<Long> alertIds = clusterDeadlines.hostAlerts.get(hostName);
+        if (null != alertIds) {
+          for (Long alertId : alertIds) {
+            candidates.put(alertId, clusterDeadlines.alerts.get(alertId));
+          }
+        }
+      }
+    }
+
+    return candidates;
+  }
+
+  /**
+   * The time by which a current alert should have reported again.
+   */
+  public static final class Deadline {
+
+    private final long alertId;
+
+    private final Long definitionId;
+
+    private final String hostName;
+
+    private final long latestTimestamp;
+
+    private long intervalInMillis;
+
+    private long deadline;
+
+    private Deadline(long alertId, Long definitionId, String hostName, long latestTimestamp,
+        long intervalInMillis, int waitFactor) {
+      this.alertId = alertId;
+      this.definitionId = definitionId;
+      this.hostName = hostName;
+      this.latestTimestamp = latestTimestamp;
+      this.intervalInMillis = intervalInMillis;
+      deadline = latestTimestamp + waitFactor * intervalInMillis;
+    }
+
+    /**
+     * @return the ID of the current alert.
+     */
+    public long getAlertId() {
+      return alertId;
+    }
+
+    /**
+     * @return the latest time the alert was received.
+     */
+    public long getLatestTimestamp() {
+      return latestTimestamp;
+    }
+
+    /**
+     * @return the time after which the alert is stale.
+     */
+    public long getDeadline() {
+      return deadline;
+    }
+  }
+
+  /**
+   * The deadlines of the current alerts of a cluster, ordered by deadline and
+   * indexed by host. Guarded by its own monitor.
+   */
+  private static final class ClusterDeadlines {
+
+    private final Map<Long, Deadline> alerts = new HashMap<>();
+
+    private final TreeSet<Deadline> deadlines = new TreeSet<>(
+        Comparator.<Deadline> comparingLong(deadline -> deadline.deadline).thenComparingLong(
+            deadline -> deadline.alertId));
+
+    private final Map<String, Set<Long>> hostAlerts = new HashMap<>();
+
+    private final Set<Long> noHostAlerts = new HashSet<>();
+
+    private void put(AlertCurrentEntity current, int waitFactor) {
+      Long alertId = current.getAlertId();
+      Long latestTimestamp = current.getLatestTimestamp();
+      AlertHistoryEntity history = current.getAlertHistory();
+      if (null == alertId || null == latestTimestamp || latestTimestamp == 0 || null == history) {
+        return;
+      }
+
+      AlertDefinitionEntity definition = history.getAlertDefinition();
+      if (null == definition || definition.getSourceType() == SourceType.AGGREGATE) {
+        return;
+      }
+
+      Deadline previous = alerts.get(alertId);
+      if (null != previous && previous.latestTimestamp >= latestTimestamp) {
+        return;
+      }
+
+      remove(alertId);
+
+      Deadline deadline = new Deadline(alertId, definition.getDefinitionId(),
+          history.getHostName(), latestTimestamp,
+          definition.getScheduleInterval() * MINUTE_TO_MS_CONVERSION, waitFactor);
+
+      alerts.put(alertId, deadline);
+      deadlines.add(deadline);
+      if (null == deadline.hostName) {
+        noHostAlerts.add(alertId);
+      } else {
+        hostAlerts.computeIfAbsent(deadline.hostName, key -> new HashSet<>()).add(alertId);
+      }
+    }
+
+    private void remove(long alertId) {
+      Deadline deadline = alerts.remove(alertId);
+      if (null == deadline) {
+        return;
+      }
+
+      deadlines.remove(deadline);
+      if (null == deadline.hostName) {
+        noHostAlerts.remove(alertId);
+      } else {
+        Set<Long> alertIds = hostAlerts.get(deadline.hostName);
+        if (null != alertIds && alertIds.remove(alertId) && alertIds.isEmpty()) {
+          hostAlerts.remove(deadline.hostName);
+        }
+      }
+    }
+
+    private void reschedule(int waitFactor) {
+      List<Deadline> rescheduled = new ArrayList<>(deadlines);
+      deadlines.clear();
+      for (Deadline deadline : rescheduled) {
+        deadline.deadline = deadline.latestTimestamp + waitFactor * deadline.intervalInMillis;
+        deadlines.add(deadline);
+      }
+    }
+
+    private void reschedule(long definitionId, long intervalInMillis, int waitFactor) {
+      List<Deadline> rescheduled = new ArrayList<>();
+      for (Deadline deadline : alerts.values()) {
+        if (Objects.equals(deadline.definitionId, definitionId)
+            && deadline.intervalInMillis != intervalInMillis) {
+          rescheduled.add(deadline);
+        }
+      }
+
+      for (Deadline deadline : rescheduled) {
+        // the deadline is part of the ordering, so it is re-added once changed
+        deadlines.remove(deadline);
+        deadline.intervalInMillis = intervalInMillis;
+        deadline.deadline = deadline.latestTimestamp + waitFactor * intervalInMillis;
+        deadlines.add(deadline);
+      }
+    }
+  }
+}
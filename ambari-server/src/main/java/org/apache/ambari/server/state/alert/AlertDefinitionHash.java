@@ -17,14 +17,11 @@
  */
 package org.apache.ambari.server.state.alert;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -50,6 +47,7 @@ import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -111,10 +109,9 @@ public class AlertDefinitionHash {
   private ReentrantLock m_actionQueueLock = new ReentrantLock();
 
   /**
-   * The hashes for all hosts for any cluster. The key is the hostname and the
-   * value is a map between cluster name and hash.
+   * The definitions of the hosts whose hash was calculated, by cluster name.
    */
-  private ConcurrentMap<String, ConcurrentMap<String, String>> m_hashes =
+  private final ConcurrentMap<String, ClusterDefinitions> m_clusterDefinitions =
     new ConcurrentHashMap<>();
 
   /**
@@ -125,7 +122,9 @@ public class AlertDefinitionHash {
    * {@link SourceType#AGGREGATE} since aggregate definitions are not scheduled
    * to run on agent hosts.
    * <p/>
-   * Hash values from this method are cached.
+   * Hash values from this method are cached, along with the definitions they
+   * were combined from. The cached hashes are then kept up to date as
+   * definitions change and components are installed or uninstalled.
    *
    * @param clusterName
    *          the cluster name (not {@code null}).
@@ -134,31 +133,51 @@ public class AlertDefinitionHash {
    * @return the unique hash or {@value #NULL_MD5_HASH} if none.
    */
   public String getHash(String clusterName, String hostName) {
-    ConcurrentMap<String, String> clusterMapping = m_hashes.get(hostName);
-    if (null == clusterMapping) {
-      clusterMapping = new ConcurrentHashMap<>();
-      ConcurrentMap<String, String> temp = m_hashes.putIfAbsent(hostName, clusterMapping);
-      if (temp != null) {
-        clusterMapping = temp;
+    ClusterDefinitions clusterDefinitions = getClusterDefinitions(clusterName);
+    long generation;
+    synchronized (clusterDefinitions) {
+      HostDefinitions hostDefinitions = clusterDefinitions.hosts.get(hostName);
+      if (null != hostDefinitions) {
+        return hostDefinitions.hash;
       }
+      generation = clusterDefinitions.generation;
     }
 
-    String hash = clusterMapping.get(hostName);
-    if (null != hash) {
-      return hash;
+    Set<String> scopes = new HashSet<>();
+    Set<String> masterComponents = new HashSet<>();
+    Set<AlertDefinitionEntity> definitions = getAlertDefinitionEntities(
+        clusterName, hostName, scopes, masterComponents);
+
+    HostDefinitions hostDefinitions = new HostDefinitions(scopes, masterComponents);
+    for (AlertDefinitionEntity definition : definitions) {
+      String scope = getScope(definition.getSourceType(),
+          definition.getServiceName(), definition.getComponentName(),
+          definition.getScope());
+      if (null != scope) {
+        hostDefinitions.put(definition.getDefinitionId(), scope, definition.getHash());
+      }
     }
 
-    hash = hash(clusterName, hostName);
-    clusterMapping.put(clusterName, hash);
+    synchronized (clusterDefinitions) {
+      // only cache the hash if nothing changed while it was calculated
+      if (generation == clusterDefinitions.generation
+          && !clusterDefinitions.hosts.containsKey(hostName)) {
+        clusterDefinitions.add(hostName, hostDefinitions);
+      }
+    }
 
-    return hash;
+    return hostDefinitions.hash;
   }
 
   /**
    * Invalidate all cached hashes causing subsequent lookups to recalculate.
    */
   public void invalidateAll() {
-    m_hashes.clear();
+    for (ClusterDefinitions clusterDefinitions : m_clusterDefinitions.values()) {
+      synchronized (clusterDefinitions) {
+        clusterDefinitions.clear();
+      }
+    }
   }
 
   /**
@@ -169,7 +188,11 @@ public class AlertDefinitionHash {
    *          the host to invalidate the cache for (not {@code null}).
    */
   public void invalidate(String hostName) {
-    m_hashes.remove(hostName);
+    for (ClusterDefinitions clusterDefinitions : m_clusterDefinitions.values()) {
+      synchronized (clusterDefinitions) {
+        clusterDefinitions.remove(hostName);
+      }
+    }
   }
 
   /**
@@ -182,9 +205,11 @@ public class AlertDefinitionHash {
    *          the host to invalidate the cache for (not {@code null}).
    */
   public void invalidate(String clusterName, String hostName) {
-    Map<String, String> clusterMapping = m_hashes.get(hostName);
-    if (null != clusterMapping) {
-      clusterMapping.remove(clusterName);
+    ClusterDefinitions clusterDefinitions = m_clusterDefinitions.get(clusterName);
+    if (null != clusterDefinitions) {
+      synchronized (clusterDefinitions) {
+        clusterDefinitions.remove(hostName);
+      }
     }
   }
 
@@ -201,12 +226,14 @@ public class AlertDefinitionHash {
       return false;
     }
 
-    Map<String, String> clusterMapping = m_hashes.get(hostName);
-    if (null == clusterMapping) {
+    ClusterDefinitions clusterDefinitions = m_clusterDefinitions.get(clusterName);
+    if (null == clusterDefinitions) {
       return false;
     }
 
-    return clusterMapping.containsKey(clusterName);
+    synchronized (clusterDefinitions) {
+      return clusterDefinitions.hosts.containsKey(hostName);
+    }
   }
 
   /**
@@ -248,9 +275,10 @@ public class AlertDefinitionHash {
   }
 
   /**
-   * Invalidate the hashes of any host that would be affected by the specified
-   * definition. If the definition is an {@link SourceType#AGGREGATE}, this will
-   * return an empty set since aggregates do not affect hosts.
+   * Updates the cached hashes of any host that would be affected by the
+   * specified definition, which has been created or changed. If the definition
+   * is an {@link SourceType#AGGREGATE}, this will return an empty set since
+   * aggregates do not affect hosts.
    *
    * @param definition
    *          the definition to use to find the hosts to invlidate (not
@@ -260,15 +288,16 @@ public class AlertDefinitionHash {
    */
   public Set<String> invalidateHosts(AlertDefinitionEntity definition) {
     return invalidateHosts(definition.getClusterId(),
-        definition.getSourceType(),
-        definition.getDefinitionName(), definition.getServiceName(),
-        definition.getComponentName());
+        definition.getDefinitionId(), definition.getHash(),
+        definition.getSourceType(), definition.getServiceName(),
+        definition.getComponentName(), definition.getScope(), false);
   }
 
   /**
-   * Invalidate the hashes of any host that would be affected by the specified
-   * definition. If the definition is an {@link SourceType#AGGREGATE}, this will
-   * return an empty set since aggregates do not affect hosts.
+   * Updates the cached hashes of any host that would be affected by the
+   * specified definition, which has been created or changed. If the definition
+   * is an {@link SourceType#AGGREGATE}, this will return an empty set since
+   * aggregates do not affect hosts.
    *
    * @param definition
    *          the definition to use to find the hosts to invlidate (not
@@ -278,64 +307,227 @@ public class AlertDefinitionHash {
    */
   public Set<String> invalidateHosts(AlertDefinition definition) {
     return invalidateHosts(definition.getClusterId(),
-        definition.getSource().getType(), definition.getName(),
-        definition.getServiceName(), definition.getComponentName());
+        definition.getDefinitionId(), definition.getUuid(),
+        definition.getSource().getType(), definition.getServiceName(),
+        definition.getComponentName(), definition.getScope(), false);
+  }
+
+  /**
+   * Removes the specified definition, which has been deleted, from the cached
+   * hashes of any host that it affected.
+   *
+   * @param definition
+   *          the deleted definition (not {@code null}).
+   * @return the hosts that were invalidated, or an empty set (never
+   *         {@code null}).
+   */
+  public Set<String> removeFromHosts(AlertDefinitionEntity definition) {
+    return invalidateHosts(definition.getClusterId(),
+        definition.getDefinitionId(), definition.getHash(),
+        definition.getSourceType(), definition.getServiceName(),
+        definition.getComponentName(), definition.getScope(), true);
+  }
+
+  /**
+   * Removes the specified definition, which has been deleted, from the cached
+   * hashes of any host that it affected.
+   *
+   * @param definition
+   *          the deleted definition (not {@code null}).
+   * @return the hosts that were invalidated, or an empty set (never
+   *         {@code null}).
+   */
+  public Set<String> removeFromHosts(AlertDefinition definition) {
+    return invalidateHosts(definition.getClusterId(),
+        definition.getDefinitionId(), definition.getUuid(),
+        definition.getSource().getType(), definition.getServiceName(),
+        definition.getComponentName(), definition.getScope(), true);
   }
 
   /**
-   * Invalidate the hashes of any host that would be affected by the specified
-   * definition. If the definition is an {@link SourceType#AGGREGATE}, this will
-   * return an empty set since aggregates do not affect hosts.
+   * Updates the cached hashes of the hosts affected by the specified
+   * definition. Only the hosts that ran the definition before the change, or
+   * run it after the change, are updated; each by replacing the definition's
+   * share of its hash.
    *
    * @param clusterId
    *          the cluster ID
+   * @param definitionId
+   *          the definition ID.
+   * @param definitionHash
+   *          the definition's hash, which changes with the definition.
    * @param definitionSourceType
    *          the type of alert definition
-   * @param definitionName
-   *          the definition unique name.
    * @param definitionServiceName
    *          the definition's service name.
    * @param definitionComponentName
    *          the definition's component name.
+   * @param definitionScope
+   *          the definition's scope.
+   * @param removed
+   *          {@code true} if the definition was deleted.
    * @return the hosts that were invalidated, or an empty set (never
    *         {@code null}).
    */
-  private Set<String> invalidateHosts(long clusterId,
-      SourceType definitionSourceType, String definitionName,
-      String definitionServiceName, String definitionComponentName) {
+  private Set<String> invalidateHosts(long clusterId, long definitionId,
+      String definitionHash, SourceType definitionSourceType,
+      String definitionServiceName, String definitionComponentName,
+      Scope definitionScope, boolean removed) {
 
-    Cluster cluster = null;
-    String clusterName = null;
-    try {
-      cluster = m_clusters.get().getClusterById(clusterId);
-      if (null != cluster) {
-        clusterName = cluster.getClusterName();
+    Cluster cluster = getCluster(clusterId);
+    if (null == cluster) {
+      return Collections.emptySet();
+    }
+
+    String definitionHostsScope = getScope(definitionSourceType,
+        definitionServiceName, definitionComponentName, definitionScope);
+    String scope = removed ? null : definitionHostsScope;
+
+    // the hosts running the definition, whether their hash is cached or not
+    Set<String> affectedHosts = new HashSet<>(getScopeHosts(cluster, definitionHostsScope));
+
+    ClusterDefinitions clusterDefinitions = getClusterDefinitions(cluster.getClusterName());
+    synchronized (clusterDefinitions) {
+      clusterDefinitions.generation++;
+
+      // hosts that no longer run the definition
+      Set<String> previousHosts = clusterDefinitions.definitionHosts.get(definitionId);
+      if (null != previousHosts) {
+        for (String hostName : new ArrayList<>(previousHosts)) {
+          if (null == scope || !clusterDefinitions.hasScope(hostName, scope)) {
+            clusterDefinitions.removeDefinition(hostName, definitionId);
+            affectedHosts.add(hostName);
+          }
+        }
       }
 
-      if (null == cluster) {
-        LOG.warn("Unable to lookup cluster with ID {}", clusterId);
+      // hosts that run the definition, which may have changed
+      if (null != scope) {
+        Set<String> scopeHosts = clusterDefinitions.scopeHosts.get(scope);
+        if (null != scopeHosts) {
+          for (String hostName : scopeHosts) {
+            clusterDefinitions.putDefinition(hostName, definitionId, scope, definitionHash);
+            affectedHosts.add(hostName);
+          }
+        }
       }
-    } catch (Exception exception) {
-      LOG.error("Unable to lookup cluster with ID {}", clusterId, exception);
     }
 
-    if (null == cluster) {
-      return Collections.emptySet();
+    return affectedHosts;
+  }
+
+  /**
+   * Updates the cached hash of a host on which a component was installed with
+   * the definitions that run because of the component.
+   *
+   * @param clusterId
+   *          the cluster ID.
+   * @param hostName
+   *          the host the component was installed on.
+   * @param serviceName
+   *          the component's service.
+   * @param componentName
+   *          the component.
+   * @param masterComponent
+   *          whether the component is a master.
+   */
+  public void addComponent(long clusterId, String hostName, String serviceName,
+      String componentName, boolean masterComponent) {
+    ClusterDefinitions clusterDefinitions = getClusterDefinitions(clusterId);
+    if (null == clusterDefinitions) {
+      return;
     }
 
-    // determine which hosts in the cluster would be affected by a change
-    // to the specified definition; pass in the definition source type
-    // to check for AGGREGATE
-    Set<String> affectedHosts = getAssociatedHosts(cluster,
-        definitionSourceType, definitionName,
-        definitionServiceName, definitionComponentName);
+    synchronized (clusterDefinitions) {
+      // a hash of the host being calculated concurrently must not be cached,
+      // as it may have been combined from the definitions without the component
+      clusterDefinitions.generation++;
+      if (!clusterDefinitions.hosts.containsKey(hostName)) {
+        return;
+      }
+    }
+
+    List<AlertDefinitionEntity> componentDefinitions =
+        m_definitionDao.findByServiceComponent(clusterId, serviceName, componentName);
+    List<AlertDefinitionEntity> serviceDefinitions = masterComponent
+        ? m_definitionDao.findByServiceMaster(clusterId, Collections.singleton(serviceName))
+        : Collections.emptyList();
+
+    synchronized (clusterDefinitions) {
+      clusterDefinitions.generation++;
+      HostDefinitions hostDefinitions = clusterDefinitions.hosts.get(hostName);
+      if (null == hostDefinitions) {
+        return;
+      }
 
-    // invalidate all returned hosts
-    for (String hostName : affectedHosts) {
-      invalidate(clusterName, hostName);
+      addScope(clusterDefinitions, hostName, getComponentScope(serviceName, componentName),
+          componentDefinitions);
+      if (masterComponent) {
+        hostDefinitions.masterComponents.add(getComponentScope(serviceName, componentName));
+        addScope(clusterDefinitions, hostName, serviceName, serviceDefinitions);
+      }
     }
+  }
 
-    return affectedHosts;
+  /**
+   * Updates the cached hash of a host from which a component was uninstalled,
+   * dropping the definitions that ran because of the component.
+   *
+   * @param clusterId
+   *          the cluster ID.
+   * @param hostName
+   *          the host the component was uninstalled from.
+   * @param serviceName
+   *          the component's service.
+   * @param componentName
+   *          the component.
+   * @param masterComponent
+   *          whether the component is a master.
+   */
+  public void removeComponent(long clusterId, String hostName, String serviceName,
+      String componentName, boolean masterComponent) {
+    ClusterDefinitions clusterDefinitions = getClusterDefinitions(clusterId);
+    if (null == clusterDefinitions) {
+      return;
+    }
+
+    synchronized (clusterDefinitions) {
+      // a hash of the host being calculated concurrently must not be cached,
+      // as it may have been combined from the definitions with the component
+      clusterDefinitions.generation++;
+      HostDefinitions hostDefinitions = clusterDefinitions.hosts.get(hostName);
+      if (null == hostDefinitions) {
+        return;
+      }
+
+      String componentScope = getComponentScope(serviceName, componentName);
+      clusterDefinitions.removeScope(hostName, componentScope);
+
+      // service definitions run as long as any master of the service does
+      if (masterComponent && hostDefinitions.masterComponents.remove(componentScope)) {
+        String masterPrefix = getComponentScope(serviceName, "");
+        boolean otherMaster = false;
+        for (String masterComponentScope : hostDefinitions.masterComponents) {
+          otherMaster |= masterComponentScope.startsWith(masterPrefix);
+        }
+        if (!otherMaster) {
+          clusterDefinitions.removeScope(hostName, serviceName);
+        }
+      }
+    }
+  }
+
+  private void addScope(ClusterDefinitions clusterDefinitions, String hostName,
+      String scope, List<AlertDefinitionEntity> definitions) {
+    clusterDefinitions.addScope(hostName, scope);
+    for (AlertDefinitionEntity definition : definitions) {
+      if (scope.equals(getScope(definition.getSourceType(),
+          definition.getServiceName(), definition.getComponentName(),
+          definition.getScope()))) {
+        clusterDefinitions.putDefinition(hostName, definition.getDefinitionId(),
+            scope, definition.getHash());
+      }
+    }
   }
 
   /**
@@ -537,56 +729,89 @@ public class AlertDefinitionHash {
   }
 
   /**
-   * Calculates a unique hash value representing all of the alert definitions
-   * that should be scheduled to run on a given host. Alerts of type
+   * Gets the scope through which a definition applies to hosts: the
+   * service/component pair of the component it is bound to, including
+   * {@link RootComponent#AMBARI_AGENT} for host alerts, or the service name
+   * for service alerts run on the service's masters. Definitions of type
    * {@link SourceType#AGGREGATE} are not included in the hash since they are
    * not run on the agents.
    *
-   * @param clusterName
-   *          the cluster name (not {@code null}).
-   * @param hostName
-   *          the host name (not {@code null}).
-   * @return the unique hash or {@value #NULL_MD5_HASH} if none.
+   * @return the scope, or {@code null} if the definition is not run on any
+   *         host.
    */
-  private String hash(String clusterName, String hostName) {
-    Set<AlertDefinitionEntity> definitions = getAlertDefinitionEntities(
-        clusterName,
-        hostName);
+  private static String getScope(SourceType sourceType, String serviceName,
+      String componentName, Scope scope) {
+    if (SourceType.AGGREGATE == sourceType || null == serviceName) {
+      return null;
+    }
 
-    // no definitions found for this host, don't bother hashing
-    if(definitions.isEmpty()) {
-      return NULL_MD5_HASH;
+    if (null != componentName) {
+      return getComponentScope(serviceName, componentName);
     }
 
-    // strip out all AGGREGATE types
-    Iterator<AlertDefinitionEntity> iterator = definitions.iterator();
-    while (iterator.hasNext()) {
-      if (SourceType.AGGREGATE.equals(iterator.next().getSourceType())) {
-        iterator.remove();
-      }
+    return Scope.SERVICE == scope ? serviceName : null;
+  }
+
+  private static String getComponentScope(String serviceName, String componentName) {
+    return serviceName + "/" + componentName;
+  }
+
+  /**
+   * Gets the hosts of a cluster in the specified scope from the cluster's
+   * components, without walking all of its hosts.
+   */
+  private Set<String> getScopeHosts(Cluster cluster, String scope) {
+    if (null == scope) {
+      return Collections.emptySet();
     }
 
-    // build the UUIDs
-    List<String> uuids = new ArrayList<>(definitions.size());
-    for (AlertDefinitionEntity definition : definitions) {
-      uuids.add(definition.getHash());
+    String agentScope = getComponentScope(RootService.AMBARI.name(), RootComponent.AMBARI_AGENT.name());
+    if (agentScope.equals(scope)) {
+      return m_clusters.get().getHostsForCluster(cluster.getClusterName()).keySet();
     }
 
-    // sort the UUIDs so that the digest is created with bytes in the same order
-    Collections.sort(uuids);
+    int separator = scope.indexOf('/');
+    String serviceName = separator < 0 ? scope : scope.substring(0, separator);
+    Service service = cluster.getServices().get(serviceName);
+    if (null == service) {
+      return Collections.emptySet();
+    }
 
-    try {
-      MessageDigest digest = MessageDigest.getInstance("MD5");
-      for (String uuid : uuids) {
-        digest.update(uuid.getBytes());
+    Set<String> hosts = new HashSet<>();
+    for (Entry<String, ServiceComponent> component : service.getServiceComponents().entrySet()) {
+      boolean inScope = separator < 0 ? component.getValue().isMasterComponent()
+          : component.getKey().equals(scope.substring(separator + 1));
+      if (inScope) {
+        hosts.addAll(component.getValue().getServiceComponentHosts().keySet());
       }
+    }
+    return hosts;
+  }
 
-      byte[] hashBytes = digest.digest();
-      return Hex.encodeHexString(hashBytes);
-    } catch (NoSuchAlgorithmException nsae) {
-      LOG.warn("Unable to calculate MD5 alert definition hash", nsae);
-      return NULL_MD5_HASH;
+  private Cluster getCluster(long clusterId) {
+    Cluster cluster = null;
+    try {
+      cluster = m_clusters.get().getClusterById(clusterId);
+      if (null == cluster) {
+        LOG.warn("Unable to lookup cluster with ID {}", clusterId);
+      }
+    } catch (Exception exception) {
+      LOG.error("Unable to lookup cluster with ID {}", clusterId, exception);
     }
+    return cluster;
+  }
+
+  private ClusterDefinitions getClusterDefinitions(String clusterName) {
+    return m_clusterDefinitions.computeIfAbsent(clusterName, name -> new ClusterDefinitions());
+  }
+
+  /**
+   * @return the cached definitions of the cluster, or {@code null} if none
+   *         are cached.
+   */
+  private ClusterDefinitions getClusterDefinitions(long clusterId) {
+    Cluster cluster = getCluster(clusterId);
+    return null == cluster ? null : m_clusterDefinitions.get(cluster.getClusterName());
   }
 
   /**
@@ -607,6 +832,27 @@ public class AlertDefinitionHash {
    */
   private Set<AlertDefinitionEntity> getAlertDefinitionEntities(
       String clusterName, String hostName) {
+    return getAlertDefinitionEntities(clusterName, hostName, new HashSet<>(), new HashSet<>());
+  }
+
+  /**
+   * Gets the alert definition entities for the specified host, along with the
+   * scopes through which they apply to the host.
+   *
+   * @param clusterName
+   *          the cluster name (not {@code null}).
+   * @param hostName
+   *          the host name (not {@code null}).
+   * @param scopes
+   *          filled with the scopes of the host.
+   * @param masterComponents
+   *          filled with the master components of the host.
+   * @return the alert definitions for the host, or an empty set (never
+   *         {@code null}).
+   */
+  private Set<AlertDefinitionEntity> getAlertDefinitionEntities(
+      String clusterName, String hostName, Set<String> scopes,
+      Set<String> masterComponents) {
 
     Set<AlertDefinitionEntity> definitions = new HashSet<>();
 
@@ -628,6 +874,7 @@ public class AlertDefinitionHash {
 
             // add all alerts for this service/component pair
             definitions.addAll(m_definitionDao.findByServiceComponent(clusterId, serviceName, componentName));
+            scopes.add(getComponentScope(serviceName, componentName));
           }
         }
 
@@ -643,6 +890,7 @@ public class AlertDefinitionHash {
 
               if (hosts.containsKey(hostName)) {
                 services.add(service.getName());
+                masterComponents.add(getComponentScope(service.getName(), component.getKey()));
               }
             }
           }
@@ -652,11 +900,13 @@ public class AlertDefinitionHash {
         if (services.size() > 0) {
           definitions.addAll(m_definitionDao.findByServiceMaster(clusterId,
               services));
+          scopes.addAll(services);
         }
       }
 
       // add any alerts not bound to a service (host level alerts)
       definitions.addAll(m_definitionDao.findAgentScoped(clusterId));
+      scopes.add(getComponentScope(RootService.AMBARI.name(), RootComponent.AMBARI_AGENT.name()));
     }
     catch (ClusterNotFoundException clusterNotFound) {
       LOG.warn("Unable to get alert definitions for the missing cluster {}",
@@ -682,4 +932,174 @@ public class AlertDefinitionHash {
       .collect(Collectors.toMap(AlertDefinition::getDefinitionId, Function.identity()));
   }
 
+  /**
+   * The definitions of the hosts of a cluster whose hash was calculated,
+   * indexed by the scopes they are in and by the definitions they run so that
+   * a change affects only the hosts it applies to. Guarded by its own monitor.
+   */
+  private static final class ClusterDefinitions {
+
+    private final Map<String, HostDefinitions> hosts = new HashMap<>();
+
+    /**
+     * The hosts in each scope.
+     */
+    private final Map<String, Set<String>> scopeHosts = new HashMap<>();
+
+    /**
+     * The hosts running each definition.
+     */
+    private final Map<Long, Set<String>> definitionHosts = new HashMap<>();
+
+    /**
+     * Incremented on every change, so that hashes calculated concurrently with
+     * a change are not cached.
+     */
+    private long generation;
+
+    private void add(String hostName, HostDefinitions hostDefinitions) {
+      hosts.put(hostName, hostDefinitions);
+      for (String scope : hostDefinitions.scopes) {
+        scopeHosts.computeIfAbsent(scope, key -> new HashSet<>()).add(hostName);
+      }
+      for (Long definitionId : hostDefinitions.definitionScopes.keySet()) {
+        definitionHosts.computeIfAbsent(definitionId, key -> new HashSet<>()).add(hostName);
+      }
+    }
+
+    private void remove(String hostName) {
+      HostDefinitions hostDefinitions = hosts.remove(hostName);
+      if (null == hostDefinitions) {
+        return;
+      }
+
+      generation++;
+      for (String scope : hostDefinitions.scopes) {
+        removeFromIndex(scopeHosts, scope, hostName);
+      }
+      for (Long definitionId : hostDefinitions.definitionScopes.keySet()) {
+        removeFromIndex(definitionHosts, definitionId, hostName);
+      }
+    }
+
+    private void clear() {
+      generation++;
+      hosts.clear();
+      scopeHosts.clear();
+      definitionHosts.clear();
+    }
+
+    private boolean hasScope(String hostName, String scope) {
+      HostDefinitions hostDefinitions = hosts.get(hostName);
+      return null != hostDefinitions && hostDefinitions.scopes.contains(scope);
+    }
+
+    private void addScope(String hostName, String scope) {
+      if (hosts.get(hostName).scopes.add(scope)) {
+        scopeHosts.computeIfAbsent(scope, key -> new HashSet<>()).add(hostName);
+      }
+    }
+
+    private void removeScope(String hostName, String scope) {
+      HostDefinitions hostDefinitions = hosts.get(hostName);
+      if (!hostDefinitions.scopes.remove(scope)) {
+        return;
+      }
+
+      removeFromIndex(scopeHosts, scope, hostName);
+      for (Long definitionId : hostDefinitions.getDefinitions(scope)) {
+        removeDefinition(hostName, definitionId);
+      }
+    }
+
+    private void putDefinition(String hostName, long definitionId, String scope, String definitionHash) {
+      hosts.get(hostName).put(definitionId, scope, definitionHash);
+      definitionHosts.computeIfAbsent(definitionId, key -> new HashSet<>()).add(hostName);
+    }
+
+    private void removeDefinition(String hostName, long definitionId) {
+      hosts.get(hostName).remove(definitionId);
+      removeFromIndex(definitionHosts, definitionId, hostName);
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<String>> index, K key, String hostName) {
+      Set<String> indexedHosts = index.get(key);
+      if (null != indexedHosts && indexedHosts.remove(hostName) && indexedHosts.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  /**
+   * The definitions run on a host and their combined hash. The hash is the
+   * XOR of the MD5 digests of the definitions' own hashes; as the XOR does not
+   * depend on order, adding, removing or replacing a definition updates it
+   * without going over the host's other definitions.
+   */
+  private static final class HostDefinitions {
+
+    private final Set<String> scopes;
+
+    private final Set<String> masterComponents;
+
+    /**
+     * The scope of each definition run on the host.
+     */
+    private final Map<Long, String> definitionScopes = new HashMap<>();
+
+    /**
+     * The MD5 digest of the hash of each definition run on the host.
+     */
+    private final Map<Long, byte[]> definitionDigests = new HashMap<>();
+
+    private final byte[] combinedDigest = new byte[16];
+
+    private String hash = NULL_MD5_HASH;
+
+    private HostDefinitions(Set<String> scopes, Set<String> masterComponents) {
+      this.scopes = scopes;
+      this.masterComponents = masterComponents;
+    }
+
+    private void put(long definitionId, String scope, String definitionHash) {
+      byte[] digest = DigestUtils.md5(String.valueOf(definitionHash));
+      byte[] previousDigest = definitionDigests.put(definitionId, digest);
+      definitionScopes.put(definitionId, scope);
+      if (null != previousDigest) {
+        xor(previousDigest);
+      }
+      xor(digest);
+      updateHash();
+    }
+
+    private void remove(long definitionId) {
+      definitionScopes.remove(definitionId);
+      byte[] previousDigest = definitionDigests.remove(definitionId);
+      if (null != previousDigest) {
+        xor(previousDigest);
+        updateHash();
+      }
+    }
+
+    private List<Long> getDefinitions(String scope) {
+      List<Long> definitions = new ArrayList<>();
+      for (Entry<Long, String> definitionScope : definitionScopes.entrySet()) {
+        if (scope.equals(definitionScope.getValue())) {
+          definitions.add(definitionScope.getKey());
+        }
+      }
+      return definitions;
+    }
+
+    private void xor(byte[] digest) {
+      for (int i = 0; i < combinedDigest.length; i++) {
+        combinedDigest[i] ^= digest[i];
+      }
+    }
+
+    private void updateHash() {
+      hash = definitionDigests.isEmpty() ? NULL_MD5_HASH : Hex.encodeHexString(combinedDigest);
+    }
+  }
+
 }
@@ -19,10 +19,12 @@ package org.apache.ambari.server.state.scheduler;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.scheduler.AbstractLinearExecutionJob;
+import org.apache.ambari.server.scheduler.BatchRequestCompletionTracker;
 import org.apache.ambari.server.scheduler.ExecutionScheduleManager;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.PersistJobDataAfterExecution;
@@ -50,12 +52,26 @@ public class BatchRequestJob extends AbstractLinearExecutionJob {
   public static final String BATCH_REQUEST_TOTAL_TASKS_KEY =
     "BatchRequestJob.TotalTaskCount";
 
+  /**
+   * Time to wait before checking the status again when the request finished
+   * event arrived before the final status of the request could be read.
+   */
+  private static final long FINISHED_STATUS_CHECK_INTERVAL = 1000L;
+
+  private final BatchRequestCompletionTracker completionTracker;
+
+  /**
+   * The maximum time to wait for a request finished event before checking the
+   * status of the request again.
+   */
   private final long statusCheckInterval;
 
   @Inject
   public BatchRequestJob(ExecutionScheduleManager executionScheduleManager,
+                         BatchRequestCompletionTracker completionTracker,
                          @Named("statusCheckInterval") long statusCheckInterval) {
     super(executionScheduleManager);
+    this.completionTracker = completionTracker;
     this.statusCheckInterval = statusCheckInterval;
   }
 
@@ -84,23 +100,36 @@ public class BatchRequestJob extends AbstractLinearExecutionJob {
     if (requestId != null) {
       HostRoleStatus status;
       BatchRequestResponse batchRequestResponse;
-      do {
-        batchRequestResponse = executionScheduleManager
-          .getBatchRequestResponse(requestId, clusterName);
-
-        status = HostRoleStatus.valueOf(batchRequestResponse.getStatus());
-
-        executionScheduleManager.updateBatchRequest(executionId, batchId,
-          clusterName, batchRequestResponse, true);
-
-        try {
-          Thread.sleep(statusCheckInterval);
-        } catch (InterruptedException e) {
-          String message = "Job Thread interrupted";
-          LOG.error(message, e);
-          throw new AmbariException(message, e);
-        }
-      } while (!status.isCompletedState());
+      // watch before the first status check, so that the request finishing in
+      // between is not missed
+      completionTracker.watch(requestId);
+      try {
+        boolean finished = false;
+        do {
+          batchRequestResponse = executionScheduleManager
+            .getBatchRequestResponse(requestId, clusterName);
+
+          status = HostRoleStatus.valueOf(batchRequestResponse.getStatus());
+
+          executionScheduleManager.updateBatchRequest(executionId, batchId,
+            clusterName, batchRequestResponse, true);
+
+          if (!status.isCompletedState()) {
+            if (finished) {
+              Thread.sleep(FINISHED_STATUS_CHECK_INTERVAL);
+            } else {
+              finished = completionTracker.await(requestId, statusCheckInterval,
+                TimeUnit.MILLISECONDS);
+            }
+          }
+        } while (!status.isCompletedState());
+      } catch (InterruptedException e) {
+        String message = "Job Thread interrupted";
+        LOG.error(message, e);
+        throw new AmbariException(message, e);
+      } finally {
+        completionTracker.unwatch(requestId);
+      }
 
       // Store aggregated task status counts in the DataMap
       Map<String, Integer> aggregateCounts = addTaskCountToProperties
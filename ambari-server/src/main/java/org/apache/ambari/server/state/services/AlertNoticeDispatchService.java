@@ -21,29 +21,36 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
@@ -65,12 +72,16 @@ import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.NotificationState;
 import org.apache.ambari.server.state.alert.AlertNotification;
 import org.apache.commons.io.IOUtils;
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.Velocity;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.RuntimeSingleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -164,7 +175,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
   /**
    * The factory used to get an {@link NotificationDispatcher} instance to
-   * submit to the {@link #m_executor}.
+   * submit to the dispatch executors.
    */
   @Inject
   private DispatchFactory m_dispatchFactory;
@@ -188,18 +199,61 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
   private Provider<AmbariMetaInfo> m_metaInfo;
 
   /**
-   * The executor responsible for dispatching.
+   * The executors responsible for dispatching, one per notification type so
+   * that a slow target type, such as an unreachable SMTP server, does not hold
+   * back the others.
+   */
+  private final Map<String, ExecutorService> m_executors = new ConcurrentHashMap<>();
+
+  /**
+   * An executor used for all notification types instead of
+   * {@link #m_executors}; only set by unit tests.
    */
   private Executor m_executor;
 
+  /**
+   * The number of notifications handed to dispatchers.
+   */
+  private final AtomicLong m_notificationsDispatched = new AtomicLong();
+
+  /**
+   * The number of notices whose notification was delivered.
+   */
+  private final AtomicLong m_noticesDelivered = new AtomicLong();
+
+  /**
+   * The number of notices whose notification could not be delivered.
+   */
+  private final AtomicLong m_noticesFailed = new AtomicLong();
+
+  /**
+   * The longest time, in milliseconds, between an alert and the dispatch of
+   * its notice during the last run.
+   */
+  private volatile long m_maxDispatchLag;
+
+  /**
+   * The number of notices left pending by the last run because their target
+   * reached its limit.
+   */
+  private volatile int m_deferredNotices;
+
+  /**
+   * The number of notices left pending by the last run because the coalescing
+   * window of their alert was still open.
+   */
+  private volatile int m_heldNotices;
+
+  /**
+   * The rate limiters of the targets, by target ID, when
+   * {@link Configuration#ALERTS_NOTIFICATION_DISPATCH_TARGET_RATE} is set.
+   */
+  private final Map<Long, RateLimiter> m_rateLimiters = new ConcurrentHashMap<>();
+
   /**
    * Constructor.
    */
   public AlertNoticeDispatchService() {
-    m_executor = new ThreadPoolExecutor(0, 2, 5L, TimeUnit.MINUTES,
-      new LinkedBlockingQueue<>(), new AlertDispatchThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy());
-
     GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(AlertTargetProperties.class,
         new AlertTargetPropertyDeserializer());
@@ -243,6 +297,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
       }
 
       m_alertTemplates = (AlertTemplates) unmarshaller.unmarshal(inputStream);
+      m_alertTemplates.compile();
     } catch (Exception exception) {
       LOG.error(
           "Unable to load alert template file {}, outbound notifications will not be formatted",
@@ -254,6 +309,17 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void shutDown() throws Exception {
+    for (ExecutorService executor : m_executors.values()) {
+      executor.shutdown();
+    }
+    super.shutDown();
+  }
+
   /**
    * Sets the {@link Executor} to use when dispatching {@link Notification}s.
    * This should only be used by unit tests to provide a mock executor.
@@ -279,6 +345,19 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     LOG.info("There are {} pending alert notices about to be dispatched...",
         pending.size());
 
+    long start = System.currentTimeMillis();
+    int targetLimit = m_configuration.getAlertNotificationDispatchTargetLimit();
+    long coalesceWindow = TimeUnit.SECONDS.toMillis(
+        m_configuration.getAlertNotificationDispatchCoalesceWindow());
+    boolean coalesce = coalesceWindow > 0
+        || m_configuration.isAlertNotificationDispatchCoalesceEnabled();
+    Map<String, Long> firstAlertTimestamps = coalesceWindow > 0
+        ? getFirstAlertTimestamps(pending) : Collections.emptyMap();
+    long dispatchedBefore = m_notificationsDispatched.get();
+    long maxLag = 0;
+    int deferred = 0;
+    int held = 0;
+
     Map<AlertTargetEntity, List<AlertNoticeEntity>> aggregateMap =
       new HashMap<>(pending.size());
 
@@ -286,17 +365,39 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     for (AlertNoticeEntity notice : pending) {
       AlertTargetEntity target = notice.getAlertTarget();
 
+      // notices stay pending until the coalescing window of their alert,
+      // opened by its first pending notice, closes; later notices for the
+      // same alert are then sent along with it
+      if (coalesceWindow > 0) {
+        Long firstAlertTimestamp = firstAlertTimestamps.get(getCoalesceKey(notice));
+        if (null != firstAlertTimestamp && start - firstAlertTimestamp < coalesceWindow) {
+          held++;
+          continue;
+        }
+      }
+
       List<AlertNoticeEntity> notices = aggregateMap.get(target);
       if (null == notices) {
         notices = new ArrayList<>();
         aggregateMap.put(target, notices);
       }
 
+      // notices over the limit of their target stay pending for the next run
+      if (targetLimit > 0 && notices.size() >= targetLimit) {
+        deferred++;
+        continue;
+      }
+
       // at this point, notices have been processed but not yet delivered
       notice.setNotifyState(NotificationState.DISPATCHED);
       notice = m_dao.merge(notice);
 
       notices.add(notice);
+
+      AlertHistoryEntity history = notice.getAlertHistory();
+      if (null != history && null != history.getAlertTimestamp()) {
+        maxLag = Math.max(maxLag, start - history.getAlertTimestamp());
+      }
     }
 
     // now that all of the notices are grouped by target, dispatch them
@@ -312,6 +413,11 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
         // create a single digest notification if supported
         if (dispatcher.isDigestSupported()) {
+          if (!tryAcquireRate(target)) {
+            deferred += deferNotices(notices);
+            continue;
+          }
+
           AlertNotification notification = buildNotificationFromTarget(target);
           notification.CallbackIds = new ArrayList<>(notices.size());
           List<AlertHistoryEntity> histories = new ArrayList<>(
@@ -333,8 +439,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
             renderDigestNotificationContent(dispatcher, notification, histories, target);
 
             // dispatch
-            DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-            m_executor.execute(runnable);
+            dispatch(target, dispatcher, notification);
           } catch (Exception exception) {
             LOG.error("Unable to create notification for alerts", exception);
 
@@ -344,12 +449,27 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
             notification.Callback.onFailure(notification.CallbackIds);
           }
         } else {
-          // the dispatcher does not support digest, each notice must have a 1:1
-          // notification created for it
-          for (AlertNoticeEntity notice : notices) {
+          // the dispatcher does not support digest, each notice (or group of
+          // coalesced notices for the same alert) must have a 1:1 notification
+          // created for it
+          for (List<AlertNoticeEntity> group : groupNotices(notices, coalesce)) {
+            if (!tryAcquireRate(target)) {
+              deferred += deferNotices(group);
+              continue;
+            }
+
             AlertNotification notification = buildNotificationFromTarget(target);
-            AlertHistoryEntity history = notice.getAlertHistory();
-            notification.CallbackIds = Collections.singletonList(notice.getUuid());
+
+            // the latest notice of the group carries the current alert state
+            AlertHistoryEntity history = group.get(group.size() - 1).getAlertHistory();
+            if (group.size() == 1) {
+              notification.CallbackIds = Collections.singletonList(group.get(0).getUuid());
+            } else {
+              notification.CallbackIds = new ArrayList<>(group.size());
+              for (AlertNoticeEntity notice : group) {
+                notification.CallbackIds.add(notice.getUuid());
+              }
+            }
 
             // populate the subject and body fields; if there is a problem
             // generating the content, then mark the notices as FAILED
@@ -357,8 +477,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
               renderNotificationContent(dispatcher, notification, history, target);
 
               // dispatch
-              DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-              m_executor.execute(runnable);
+              dispatch(target, dispatcher, notification);
             } catch (Exception exception) {
               LOG.error("Unable to create notification for alert", exception);
 
@@ -371,6 +490,204 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         LOG.error("Caught exception during Alert Notice dispatching.", e);
       }
     }
+
+    m_maxDispatchLag = maxLag;
+    m_deferredNotices = deferred;
+    m_heldNotices = held;
+
+    LOG.info("Dispatched {} notifications for {} alert notices in {} ms, the oldest alert was {} ms old, {} notices left pending, {} held for coalescing",
+        m_notificationsDispatched.get() - dispatchedBefore, pending.size() - deferred - held,
+        System.currentTimeMillis() - start, maxLag, deferred, held);
+  }
+
+  /**
+   * Gets the key under which notices are coalesced: their target, alert
+   * definition and host.
+   */
+  private static String getCoalesceKey(AlertNoticeEntity notice) {
+    AlertHistoryEntity history = notice.getAlertHistory();
+    if (null == history) {
+      return notice.getUuid();
+    }
+
+    return notice.getAlertTarget().getTargetId() + "/" + history.getAlertDefinitionId() + "/"
+        + history.getHostName();
+  }
+
+  /**
+   * Gets the timestamp of the oldest pending alert for each coalescing key.
+   *
+   * @param pending
+   *          the pending notices (not {@code null}).
+   * @return the timestamps by {@link #getCoalesceKey(AlertNoticeEntity)}.
+   */
+  private static Map<String, Long> getFirstAlertTimestamps(List<AlertNoticeEntity> pending) {
+    Map<String, Long> firstAlertTimestamps = new HashMap<>();
+    for (AlertNoticeEntity notice : pending) {
+      AlertHistoryEntity history = notice.getAlertHistory();
+      if (null == history || null == history.getAlertTimestamp()) {
+        continue;
+      }
+
+      firstAlertTimestamps.merge(getCoalesceKey(notice), history.getAlertTimestamp(), Math::min);
+    }
+
+    return firstAlertTimestamps;
+  }
+
+  /**
+   * Groups the notices of a target without digest support into the notices
+   * each notification is sent for. Without coalescing every notice is its own
+   * group; otherwise notices for the same alert definition and host form one
+   * group, ordered from oldest to latest.
+   *
+   * @param notices
+   *          the notices of a single target (not {@code null}).
+   * @param coalesce
+   *          whether to coalesce notices for the same alert.
+   * @return the groups of notices.
+   */
+  static Collection<List<AlertNoticeEntity>> groupNotices(List<AlertNoticeEntity> notices,
+      boolean coalesce) {
+    Map<String, List<AlertNoticeEntity>> groups = new LinkedHashMap<>();
+    for (AlertNoticeEntity notice : notices) {
+      String key = notice.getUuid();
+      AlertHistoryEntity history = notice.getAlertHistory();
+      if (coalesce && null != history) {
+        key = history.getAlertDefinitionId() + "/" + history.getHostName();
+      }
+
+      List<AlertNoticeEntity> group = groups.get(key);
+      if (null == group) {
+        group = new ArrayList<>(1);
+        groups.put(key, group);
+      }
+      group.add(notice);
+    }
+
+    return groups.values();
+  }
+
+  /**
+   * Hands the notification to the executor of its notification type.
+   */
+  private void dispatch(AlertTargetEntity target, NotificationDispatcher dispatcher,
+      AlertNotification notification) {
+    Executor executor = m_executor;
+    if (null == executor) {
+      executor = m_executors.computeIfAbsent(target.getNotificationType(), type -> {
+        int threads = m_configuration.getAlertNotificationDispatchThreads();
+        ThreadPoolExecutor typeExecutor = new ThreadPoolExecutor(threads, threads, 5L,
+            TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new AlertDispatchThreadFactory(type));
+        typeExecutor.allowCoreThreadTimeOut(true);
+        return typeExecutor;
+      });
+    }
+
+    executor.execute(new DispatchRunnable(dispatcher, notification));
+    m_notificationsDispatched.incrementAndGet();
+  }
+
+  /**
+   * Takes a permit to send a notification to a target, without waiting, so
+   * that a target over its rate does not hold up the dispatch threads shared
+   * with other targets.
+   *
+   * @return {@code true} if the notification can be sent, {@code false} if the
+   *         target is over its rate limit.
+   */
+  private boolean tryAcquireRate(AlertTargetEntity target) {
+    RateLimiter rateLimiter = getRateLimiter(target);
+    return null == rateLimiter || rateLimiter.tryAcquire();
+  }
+
+  /**
+   * Leaves notices pending for the next run, after they were marked as
+   * dispatched.
+   *
+   * @return the number of deferred notices.
+   */
+  private int deferNotices(List<AlertNoticeEntity> notices) {
+    for (AlertNoticeEntity notice : notices) {
+      notice.setNotifyState(NotificationState.PENDING);
+      m_dao.merge(notice);
+    }
+
+    return notices.size();
+  }
+
+  /**
+   * Gets the rate limiter of a target.
+   *
+   * @return the rate limiter, or {@code null} if the rate is not limited.
+   */
+  private RateLimiter getRateLimiter(AlertTargetEntity target) {
+    int notificationsPerMinute = m_configuration.getAlertNotificationDispatchTargetRate();
+    if (notificationsPerMinute <= 0 || null == target.getTargetId()) {
+      return null;
+    }
+
+    return m_rateLimiters.computeIfAbsent(target.getTargetId(),
+        targetId -> RateLimiter.create(notificationsPerMinute / 60.0));
+  }
+
+  /**
+   * Gets the number of notifications handed to dispatchers since startup.
+   *
+   * @return the number of dispatched notifications.
+   */
+  public long getNotificationsDispatched() {
+    return m_notificationsDispatched.get();
+  }
+
+  /**
+   * Gets the number of notices delivered since startup.
+   *
+   * @return the number of delivered notices.
+   */
+  public long getNoticesDelivered() {
+    return m_noticesDelivered.get();
+  }
+
+  /**
+   * Gets the number of notices which failed to be delivered since startup.
+   *
+   * @return the number of failed notices.
+   */
+  public long getNoticesFailed() {
+    return m_noticesFailed.get();
+  }
+
+  /**
+   * Gets the longest time between an alert and the dispatch of its notice
+   * during the last run.
+   *
+   * @return the dispatch lag, in milliseconds.
+   */
+  public long getMaxDispatchLag() {
+    return m_maxDispatchLag;
+  }
+
+  /**
+   * Gets the number of notices left pending by the last run because their
+   * target reached {@link Configuration#ALERTS_NOTIFICATION_DISPATCH_TARGET_LIMIT}
+   * or {@link Configuration#ALERTS_NOTIFICATION_DISPATCH_TARGET_RATE}.
+   *
+   * @return the number of deferred notices.
+   */
+  public int getDeferredNotices() {
+    return m_deferredNotices;
+  }
+
+  /**
+   * Gets the number of notices left pending by the last run because the
+   * {@link Configuration#ALERTS_NOTIFICATION_DISPATCH_COALESCE_WINDOW} of their
+   * alert was still open.
+   *
+   * @return the number of held notices.
+   */
+  public int getHeldNotices() {
+    return m_heldNotices;
   }
 
   /**
@@ -473,14 +790,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         velocityContext.put(VELOCITY_DISPATCH_KEY, dispatch);
 
         // render the template and assign the content to the notification
-        String subjectTemplate = template.getSubject();
-        String bodyTemplate = template.getBody();
-
-        // render the subject
-        Velocity.evaluate(velocityContext, subjectWriter, VELOCITY_LOG_TAG, subjectTemplate);
-
-        // render the body
-        Velocity.evaluate(velocityContext, bodyWriter, VELOCITY_LOG_TAG, bodyTemplate);
+        template.render(velocityContext, subjectWriter, bodyWriter);
       } else {
         // a null template is possible from parsing incorrectly or not
         // having the correct type defined for the target
@@ -542,14 +852,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         velocityContext.put(VELOCITY_DISPATCH_KEY, dispatch);
 
         // render the template and assign the content to the notification
-        String subjectTemplate = template.getSubject();
-        String bodyTemplate = template.getBody();
-
-        // render the subject
-        Velocity.evaluate(velocityContext, subjectWriter, VELOCITY_LOG_TAG, subjectTemplate);
-
-        // render the body
-        Velocity.evaluate(velocityContext, bodyWriter, VELOCITY_LOG_TAG, bodyTemplate);
+        template.render(velocityContext, subjectWriter, bodyWriter);
       } else {
         // a null template is possible from parsing incorrectly or not
         // having the correct type defined for the target
@@ -641,12 +944,21 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
     private static final AtomicInteger s_threadIdPool = new AtomicInteger(1);
 
+    /**
+     * The notification type the threads dispatch, used in thread names.
+     */
+    private final String m_type;
+
+    private AlertDispatchThreadFactory(String type) {
+      m_type = type.toLowerCase();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Thread newThread(Runnable r) {
-      Thread thread = new Thread(r, "alert-dispatch-"
+      Thread thread = new Thread(r, "alert-dispatch-" + m_type + "-"
           + s_threadIdPool.getAndIncrement());
 
       thread.setDaemon(false);
@@ -668,6 +980,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onSuccess(List<String> callbackIds) {
+      m_noticesDelivered.addAndGet(callbackIds.size());
       for (String callbackId : callbackIds) {
         updateAlertNotice(callbackId, NotificationState.DELIVERED);
       }
@@ -678,6 +991,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onFailure(List<String> callbackIds) {
+      m_noticesFailed.addAndGet(callbackIds.size());
       for (String callbackId : callbackIds) {
         updateAlertNotice(callbackId, NotificationState.FAILED);
       }
@@ -1178,6 +1492,15 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
       return null;
     }
+
+    /**
+     * Parses all templates once so that rendering does not have to.
+     */
+    public void compile() {
+      for (AlertTemplate template : m_templates) {
+        template.compile();
+      }
+    }
   }
 
   /**
@@ -1206,6 +1529,71 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     @XmlElement(name = "body", required = true)
     private String m_body;
 
+    /**
+     * The parsed subject template, or {@code null} if it could not be parsed.
+     */
+    @XmlTransient
+    private Template m_compiledSubject;
+
+    /**
+     * The parsed body template, or {@code null} if it could not be parsed.
+     */
+    @XmlTransient
+    private Template m_compiledBody;
+
+    /**
+     * Parses the subject and body templates. Templates which fail to parse are
+     * evaluated from source on every render, surfacing the error there.
+     */
+    public void compile() {
+      m_compiledSubject = compile(m_type + "-subject", m_subject);
+      m_compiledBody = compile(m_type + "-body", m_body);
+    }
+
+    /**
+     * Renders the subject and body templates.
+     *
+     * @param context
+     *          the context to render with.
+     * @param subjectWriter
+     *          the writer receiving the subject.
+     * @param bodyWriter
+     *          the writer receiving the body.
+     */
+    public void render(VelocityContext context, Writer subjectWriter, Writer bodyWriter)
+        throws IOException {
+      render(m_compiledSubject, m_subject, context, subjectWriter);
+      render(m_compiledBody, m_body, context, bodyWriter);
+    }
+
+    private static Template compile(String name, String source) {
+      if (null == source) {
+        return null;
+      }
+
+      try {
+        RuntimeServices runtimeServices = RuntimeSingleton.getRuntimeServices();
+        Template template = new Template();
+        template.setName(name);
+        template.setRuntimeServices(runtimeServices);
+        template.setData(runtimeServices.parse(new StringReader(source), name));
+        template.initDocument();
+        return template;
+      } catch (Exception exception) {
+        LOG.warn("Unable to parse the alert template {}", name, exception);
+        return null;
+      }
+    }
+
+    private static void render(Template compiled, String source, VelocityContext context,
+        Writer writer) throws IOException {
+      if (null != compiled) {
+        compiled.merge(context, writer);
+      } else {
+        Velocity.evaluate(context, writer, VELOCITY_LOG_TAG, source);
+      }
+    }
+
     /**
      * Gets the template type.
      *
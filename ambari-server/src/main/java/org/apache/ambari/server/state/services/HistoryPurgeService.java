@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.server.AmbariService;
+import org.apache.ambari.server.cleanup.ChunkedCleanable;
+import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.dao.MetainfoDAO;
+import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.orm.entities.MetainfoEntity;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.commons.lang.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Purges request and alert history older than
+ * {@link Configuration#SERVER_PURGE_ONLINE_RETENTION_DAYS} while the server is
+ * running.
+ * <p/>
+ * Unlike the offline {@code db-purge-history} command, history is deleted a
+ * small chunk at a time, each chunk in its own transaction, so that tables are
+ * never locked for long. The chunk size adapts to the measured duration of
+ * the previous chunk and the purge pauses between chunks for as long as the
+ * chunk took, keeping the purge from using more than about half of the
+ * database time. The id of the last purged record is stored in the
+ * {@code metainfo} table so that a purge interrupted by a restart continues
+ * where it stopped. Once a purge completes, the next one starts over from the
+ * first id, picking up records which were kept back, such as alert history
+ * which was current during the previous purge.
+ * <p/>
+ * The throughput and backlog are published by
+ * {@link org.apache.ambari.server.metrics.system.impl.HistoryPurgeMetricsSource}.
+ */
+@AmbariService
+public class HistoryPurgeService extends AbstractScheduledService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HistoryPurgeService.class);
+
+  /**
+   * Prefix of the {@code metainfo} keys holding purge checkpoints.
+   */
+  public static final String CHECKPOINT_KEY_PREFIX = "purge.checkpoint.";
+
+  /**
+   * The largest chunk, bounded by the number of parameters databases accept in
+   * an {@code IN} clause.
+   */
+  static final int MAX_CHUNK_SIZE = 999;
+
+  @Inject
+  private Configuration m_configuration;
+
+  @Inject
+  private Provider<Clusters> m_clustersProvider;
+
+  @Inject
+  private MetainfoDAO m_metainfoDAO;
+
+  @Inject
+  private RequestDAO m_requestDAO;
+
+  @Inject
+  private AlertsDAO m_alertsDAO;
+
+  /**
+   * The remaining number of records to purge by checkpoint key, as of the end
+   * of the last run.
+   */
+  private final Map<String, Long> m_backlog = new ConcurrentHashMap<>();
+
+  private volatile double m_rowsPerSecond;
+
+  /**
+   * The number of rows deleted since the server started.
+   */
+  private final AtomicLong m_purgedRows = new AtomicLong();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Scheduler scheduler() {
+    int minutes = m_configuration.getOnlinePurgeIntervalMins();
+    return Scheduler.newFixedDelaySchedule(minutes, minutes, TimeUnit.MINUTES);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Only run if a retention period is configured.
+   */
+  @Override
+  protected void startUp() throws Exception {
+    if (m_configuration.getOnlinePurgeRetentionDays() < 1) {
+      LOG.info("Will not start service {} since the property {} is not set to a positive number of days",
+          getClass().getSimpleName(), Configuration.SERVER_PURGE_ONLINE_RETENTION_DAYS.getKey());
+      stopAsync();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Purges the history of each cluster.
+   */
+  @Override
+  protected void runOneIteration() throws Exception {
+    long toDate = System.currentTimeMillis()
+        - TimeUnit.DAYS.toMillis(m_configuration.getOnlinePurgeRetentionDays());
+
+    for (Cluster cluster : m_clustersProvider.get().getClusters().values()) {
+      TimeBasedCleanupPolicy policy = new TimeBasedCleanupPolicy(cluster.getClusterName(), toDate);
+      for (Map.Entry<String, ChunkedCleanable> entry : getCleanables().entrySet()) {
+        try {
+          purge(policy, entry.getKey(), entry.getValue());
+        } catch (Exception e) {
+          LOG.error("Unable to purge {} history of cluster {}", entry.getKey(), cluster.getClusterName(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of records left to purge, as of the end of the last run.
+   *
+   * @return the backlog by cluster and history type
+   */
+  public Map<String, Long> getBacklog() {
+    return Collections.unmodifiableMap(m_backlog);
+  }
+
+  /**
+   * Gets the delete throughput of the last purge.
+   *
+   * @return the number of rows deleted per second
+   */
+  public double getRowsPerSecond() {
+    return m_rowsPerSecond;
+  }
+
+  /**
+   * Gets the number of rows deleted since the server started.
+   *
+   * @return the number of purged rows
+   */
+  public long getPurgedRows() {
+    return m_purgedRows.get();
+  }
+
+  /**
+   * Gets the DAOs to purge by the name of the history they hold. The names are
+   * part of the checkpoint keys and must not change.
+   */
+  Map<String, ChunkedCleanable> getCleanables() {
+    Map<String, ChunkedCleanable> cleanables = new LinkedHashMap<>();
+    cleanables.put("request", m_requestDAO);
+    cleanables.put("alert", m_alertsDAO);
+    return cleanables;
+  }
+
+  /**
+   * Purges the records matching the policy, one chunk at a time, starting
+   * after the stored checkpoint.
+   *
+   * @param policy    the cleanup policy
+   * @param name      the name of the history type
+   * @param cleanable the DAO to purge
+   * @return the number of deleted rows
+   */
+  long purge(TimeBasedCleanupPolicy policy, String name, ChunkedCleanable cleanable) throws InterruptedException {
+    String key = CHECKPOINT_KEY_PREFIX + policy.getClusterName() + "." + name;
+    long checkpoint = readCheckpoint(key);
+    long targetMillis = m_configuration.getOnlinePurgeTargetLatencyMs();
+    int chunkSize = Math.min(MAX_CHUNK_SIZE, m_configuration.getOnlinePurgeChunkSize());
+
+    long rows = 0;
+    long purgeStart = System.nanoTime();
+    boolean completed = false;
+    while (state() != State.STOPPING) {
+      List<Long> ids = cleanable.findCleanupIds(policy, checkpoint, chunkSize);
+      if (ids.isEmpty()) {
+        completed = true;
+        break;
+      }
+
+      long start = System.nanoTime();
+      long chunkRows = cleanable.cleanupIds(policy, ids);
+      long chunkNanos = System.nanoTime() - start;
+      rows += chunkRows;
+      m_purgedRows.addAndGet(chunkRows);
+
+      checkpoint = ids.get(ids.size() - 1);
+      writeCheckpoint(key, checkpoint);
+
+      long chunkMillis = TimeUnit.NANOSECONDS.toMillis(chunkNanos);
+      LOG.debug("Purged {} {} records up to id {} in {} ms", ids.size(), name, checkpoint, chunkMillis);
+
+      chunkSize = nextChunkSize(chunkSize, chunkMillis, targetMillis);
+      Thread.sleep(chunkMillis);
+    }
+
+    if (completed && checkpoint > 0) {
+      checkpoint = 0;
+      writeCheckpoint(key, checkpoint);
+    }
+
+    long backlog = cleanable.countCleanupIds(policy, checkpoint);
+    m_backlog.put(key, backlog);
+    if (rows > 0) {
+      long elapsedNanos = Math.max(1, System.nanoTime() - purgeStart);
+      m_rowsPerSecond = rows * TimeUnit.SECONDS.toNanos(1) / (double) elapsedNanos;
+      LOG.info("Purged {} rows of {} history for cluster {} at {} rows/sec, {} records left",
+          rows, name, policy.getClusterName(), (long) m_rowsPerSecond, backlog);
+    }
+
+    return rows;
+  }
+
+  /**
+   * Computes the size of the next chunk: halved if the last chunk took longer
+   * than the target, grown by a quarter if it took less than half the target.
+   */
+  static int nextChunkSize(int chunkSize, long chunkMillis, long targetMillis) {
+    if (chunkMillis > targetMillis) {
+      return Math.max(1, chunkSize / 2);
+    }
+    if (chunkMillis < targetMillis / 2) {
+      return Math.min(MAX_CHUNK_SIZE, chunkSize + chunkSize / 4 + 1);
+    }
+    return chunkSize;
+  }
+
+  private long readCheckpoint(String key) {
+    MetainfoEntity entity = m_metainfoDAO.findByKey(key);
+    return entity == null ? 0L : NumberUtils.toLong(entity.getMetainfoValue(), 0L);
+  }
+
+  private void writeCheckpoint(String key, long checkpoint) {
+    MetainfoEntity entity = m_metainfoDAO.findByKey(key);
+    if (entity == null) {
+      entity = new MetainfoEntity();
+      entity.setMetainfoName(key);
+      entity.setMetainfoValue(Long.toString(checkpoint));
+      m_metainfoDAO.create(entity);
+    } else {
+      entity.setMetainfoValue(Long.toString(checkpoint));
+      m_metainfoDAO.merge(entity);
+    }
+  }
+}
@@ -22,18 +22,19 @@ import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.agent.AlertDefinitionCommand;
 import org.apache.ambari.server.agent.stomp.HostLevelParamsHolder;
 import org.apache.ambari.server.agent.stomp.TopologyHolder;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.ServiceComponentHostRequest;
 import org.apache.ambari.server.controller.ServiceComponentHostResponse;
@@ -48,6 +49,8 @@ import org.apache.ambari.server.events.StaleConfigsUpdateEvent;
 import org.apache.ambari.server.events.TopologyUpdateEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.dao.HostComponentDesiredStateDAO;
 import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
 import org.apache.ambari.server.orm.dao.HostDAO;
@@ -83,7 +86,6 @@ import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.StackInfo;
 import org.apache.ambari.server.state.State;
 import org.apache.ambari.server.state.UpgradeState;
-import org.apache.ambari.server.state.alert.AlertDefinitionHash;
 import org.apache.ambari.server.state.fsm.InvalidStateTransitionException;
 import org.apache.ambari.server.state.fsm.SingleArcTransition;
 import org.apache.ambari.server.state.fsm.StateMachine;
@@ -104,8 +106,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
   private static final Logger LOG =
       LoggerFactory.getLogger(ServiceComponentHostImpl.class);
 
-  private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-  private final Lock writeLock = readWriteLock.writeLock();
+  /**
+   * A label for {@link #readWriteLock} to use with the {@link LockFactory}.
+   */
+  private static final String READ_WRITE_LOCK_LABEL = "serviceComponentHostLock";
+
+  private final ReadWriteLock readWriteLock;
+  private final Lock writeLock;
 
   private final ServiceComponent serviceComponent;
 
@@ -145,13 +152,6 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
   @Inject
   private Provider<HostLevelParamsHolder> m_hostLevelParamsHolder;
 
-  /**
-   * Used for creating commands to send to the agents when alert definitions are
-   * added as the result of a service install.
-   */
-  @Inject
-  private AlertDefinitionHash alertDefinitionHash;
-
   /**
    * Used for topology event creation updates
    */
@@ -177,6 +177,25 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
    */
   private final Long hostComponentStateId;
 
+  /**
+   * Write-through copies of the state and desired state entity fields which
+   * are read the most, so that reading them does not look the entities up.
+   * They are set when the entities are created or loaded and whenever this
+   * host component changes them, so the entities must not be changed behind
+   * its back. They are reloaded if the transaction which changed them is
+   * rolled back.
+   */
+  private volatile String version;
+  private volatile UpgradeState upgradeState;
+  private volatile State desiredState;
+  private volatile HostComponentAdminState adminState;
+  private volatile boolean restartRequired;
+
+  /**
+   * Whether reads of the fields above are checked against the entities.
+   */
+  private boolean stateRecordCheckEnabled;
+
   private long lastOpStartTime;
   private long lastOpEndTime;
   private long lastOpLastUpdateTime;
@@ -685,9 +704,9 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
         return;
       }
 
-      // invalidate the host
+      // the cached hash of the host already includes the definitions of the
+      // component, which were added when the component was installed
       String hostName = impl.getHostName();
-      impl.alertDefinitionHash.invalidate(impl.getClusterName(), hostName);
 
       // publish the event
       AlertHashInvalidationEvent hashInvalidationEvent = new AlertHashInvalidationEvent(
@@ -775,7 +794,10 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
       ServiceComponentDesiredStateDAO serviceComponentDesiredStateDAO,
       HostComponentStateDAO hostComponentStateDAO,
       HostComponentDesiredStateDAO hostComponentDesiredStateDAO,
-      AmbariEventPublisher eventPublisher) {
+      AmbariEventPublisher eventPublisher, LockFactory lockFactory) {
+
+    readWriteLock = lockFactory.newInstanceReadWriteLock(READ_WRITE_LOCK_LABEL);
+    writeLock = readWriteLock.writeLock();
 
     this.serviceComponent = serviceComponent;
     this.hostName = hostName;
@@ -832,6 +854,7 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     }
 
     persistEntities(hostEntity, stateEntity, desiredStateEntity, serviceComponentDesiredStateEntity);
+    loadStateRecord(stateEntity, desiredStateEntity);
 
     // publish the service component installed event
     ServiceComponentInstalledEvent event = new ServiceComponentInstalledEvent(getClusterId(),
@@ -852,9 +875,10 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
       ServiceComponentDesiredStateDAO serviceComponentDesiredStateDAO,
       HostComponentStateDAO hostComponentStateDAO,
       HostComponentDesiredStateDAO hostComponentDesiredStateDAO,
-      AmbariEventPublisher eventPublisher) {
+      AmbariEventPublisher eventPublisher, LockFactory lockFactory) {
       this(serviceComponent, hostName, null, clusters, stackDAO, hostDAO,
-          serviceComponentDesiredStateDAO, hostComponentStateDAO, hostComponentDesiredStateDAO, eventPublisher);
+          serviceComponentDesiredStateDAO, hostComponentStateDAO, hostComponentDesiredStateDAO, eventPublisher,
+          lockFactory);
   }
 
   @AssistedInject
@@ -865,7 +889,10 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
       ServiceComponentDesiredStateDAO serviceComponentDesiredStateDAO,
       HostComponentStateDAO hostComponentStateDAO,
       HostComponentDesiredStateDAO hostComponentDesiredStateDAO,
-      AmbariEventPublisher eventPublisher) {
+      AmbariEventPublisher eventPublisher, LockFactory lockFactory) {
+
+    readWriteLock = lockFactory.newInstanceReadWriteLock(READ_WRITE_LOCK_LABEL);
+    writeLock = readWriteLock.writeLock();
 
     hostName = stateEntity.getHostName();
 
@@ -880,6 +907,7 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
     desiredStateEntityId = desiredStateEntity.getId();
     hostComponentStateId = stateEntity.getId();
+    loadStateRecord(stateEntity, desiredStateEntity);
 
     //TODO implement State Machine init as now type choosing is hardcoded in above code
     if (serviceComponent.isClientComponent()) {
@@ -898,6 +926,48 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     }
   }
 
+  private void loadStateRecord(HostComponentStateEntity stateEntity,
+      HostComponentDesiredStateEntity desiredStateEntity) {
+    version = stateEntity.getVersion();
+    upgradeState = stateEntity.getUpgradeState();
+    desiredState = desiredStateEntity.getDesiredState();
+    adminState = desiredStateEntity.getAdminState();
+    restartRequired = desiredStateEntity.isRestartRequired();
+  }
+
+  /**
+   * Reloads the state record from the entities if the transaction of the
+   * caller, which changed it, is rolled back.
+   */
+  private void reloadStateRecordOnRollback() {
+    AmbariJpaLocalTxnInterceptor.onRollback(() -> {
+      HostComponentStateEntity stateEntity = getStateEntity();
+      HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
+      if (stateEntity != null && desiredStateEntity != null) {
+        loadStateRecord(stateEntity, desiredStateEntity);
+      }
+    });
+  }
+
+  @Inject
+  void setConfiguration(Configuration configuration) {
+    stateRecordCheckEnabled = configuration.isHostComponentStateCheckEnabled();
+  }
+
+  /**
+   * Compares a field of the state record with the entity it was copied from.
+   *
+   * @return the value from the entity, which is logged if it differs from the
+   *         value in memory
+   */
+  private <T> T checkStateRecord(String field, T value, T persistedValue) {
+    if (!Objects.equals(value, persistedValue)) {
+      LOG.warn("The {} of {} on host {} is {} in memory but {} in the database", field,
+          getServiceComponentName(), getHostName(), value, persistedValue);
+    }
+    return persistedValue;
+  }
+
   @Override
   public State getState() {
     // there's no reason to lock around the state machine for this SCH since
@@ -927,16 +997,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public String getVersion() {
-    HostComponentStateEntity stateEntity = getStateEntity();
-    if (stateEntity != null) {
-      return stateEntity.getVersion();
-    } else {
-      LOG.warn("Trying to fetch a member from an entity object that may "
-          + "have been previously deleted, serviceName = " + getServiceName() + ", "
-          + "componentName = " + getServiceComponentName() + ", " + "hostName = " + getHostName());
+    if (stateRecordCheckEnabled) {
+      HostComponentStateEntity stateEntity = getStateEntity();
+      if (stateEntity != null) {
+        version = checkStateRecord("version", version, stateEntity.getVersion());
+      }
     }
-
-    return null;
+    return version;
   }
 
   @Override
@@ -946,6 +1013,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (stateEntity != null) {
       stateEntity.setVersion(version);
       stateEntity = hostComponentStateDAO.merge(stateEntity);
+      this.version = version;
+      reloadStateRecordOnRollback();
 
       ServiceComponentHostRequest serviceComponentHostRequest = new ServiceComponentHostRequest(
           serviceComponent.getClusterName(), serviceComponent.getServiceName(),
@@ -978,6 +1047,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (stateEntity != null) {
       stateEntity.setUpgradeState(upgradeState);
       stateEntity = hostComponentStateDAO.merge(stateEntity);
+      this.upgradeState = upgradeState;
+      reloadStateRecordOnRollback();
     } else {
       LOG.warn("Setting a member on an entity object that may have been "
           + "previously deleted, serviceName = " + getServiceName() + ", " + "componentName = "
@@ -987,16 +1058,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public UpgradeState getUpgradeState() {
-    HostComponentStateEntity stateEntity = getStateEntity();
-    if (stateEntity != null) {
-      return stateEntity.getUpgradeState();
-    } else {
-      LOG.warn("Trying to fetch a state entity from an object that may "
-          + "have been previously deleted, serviceName = " + getServiceName() + ", "
-          + "componentName = " + getServiceComponentName() + ", " + "hostName = " + getHostName());
+    if (stateRecordCheckEnabled) {
+      HostComponentStateEntity stateEntity = getStateEntity();
+      if (stateEntity != null) {
+        upgradeState = checkStateRecord("upgrade state", upgradeState, stateEntity.getUpgradeState());
+      }
     }
-
-    return UpgradeState.NONE;
+    return upgradeState;
   }
 
 
@@ -1142,16 +1210,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public State getDesiredState() {
-    HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
-    if (desiredStateEntity != null) {
-      return desiredStateEntity.getDesiredState();
-    } else {
-      LOG.warn("Trying to fetch a member from an entity object that may "
-          + "have been previously deleted, serviceName = " + getServiceName() + ", "
-          + "componentName = " + getServiceComponentName() + ", " + "hostName = " + getHostName());
+    if (stateRecordCheckEnabled) {
+      HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
+      if (desiredStateEntity != null) {
+        desiredState = checkStateRecord("desired state", desiredState, desiredStateEntity.getDesiredState());
+      }
     }
-
-    return null;
+    return desiredState;
   }
 
   @Override
@@ -1163,6 +1228,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (desiredStateEntity != null) {
       desiredStateEntity.setDesiredState(state);
       hostComponentDesiredStateDAO.merge(desiredStateEntity);
+      desiredState = state;
+      reloadStateRecordOnRollback();
     } else {
       LOG.warn("Setting a member on an entity object that may have been "
           + "previously deleted, serviceName = " + getServiceName() + ", " + "componentName = "
@@ -1172,21 +1239,19 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public HostComponentAdminState getComponentAdminState() {
-    HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
-    return getComponentAdminStateFromDesiredStateEntity(desiredStateEntity);
-  }
-
-  private HostComponentAdminState getComponentAdminStateFromDesiredStateEntity(HostComponentDesiredStateEntity desiredStateEntity) {
-    if (desiredStateEntity != null) {
-      HostComponentAdminState adminState = desiredStateEntity.getAdminState();
-      if (adminState == null && !serviceComponent.isClientComponent()
-              && !serviceComponent.isMasterComponent()) {
-        adminState = HostComponentAdminState.INSERVICE;
+    if (stateRecordCheckEnabled) {
+      HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
+      if (desiredStateEntity != null) {
+        adminState = checkStateRecord("admin state", adminState, desiredStateEntity.getAdminState());
       }
-      return adminState;
     }
 
-    return null;
+    HostComponentAdminState adminState = this.adminState;
+    if (adminState == null && !serviceComponent.isClientComponent()
+            && !serviceComponent.isMasterComponent()) {
+      adminState = HostComponentAdminState.INSERVICE;
+    }
+    return adminState;
   }
 
   @Override
@@ -1198,6 +1263,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (desiredStateEntity != null) {
       desiredStateEntity.setAdminState(attribute);
       hostComponentDesiredStateDAO.merge(desiredStateEntity);
+      adminState = attribute;
+      reloadStateRecordOnRollback();
     } else {
       LOG.warn("Setting a member on an entity object that may have been "
           + "previously deleted, serviceName = " + getServiceName() + ", " + "componentName = "
@@ -1207,21 +1274,16 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public ServiceComponentHostResponse convertToResponse(Map<String, DesiredConfig> desiredConfigs) {
-    HostComponentStateEntity hostComponentStateEntity = getStateEntity();
-    HostEntity hostEntity = hostComponentStateEntity.getHostEntity();
-
-    HostComponentDesiredStateEntity hostComponentDesiredStateEntity = getDesiredStateEntity();
-
     String clusterName = serviceComponent.getClusterName();
     String serviceName = serviceComponent.getServiceName();
     String serviceComponentName = serviceComponent.getName();
     String hostName = getHostName();
-    String publicHostName = hostEntity.getPublicHostName();
+    String publicHostName = getPublicHostName();
     String state = getState().toString();
-    String desiredState = (hostComponentDesiredStateEntity == null) ? null : hostComponentDesiredStateEntity.getDesiredState().toString();
+    State desiredState = getDesiredState();
     String desiredStackId = serviceComponent.getDesiredStackId().getStackId();
-    HostComponentAdminState componentAdminState = getComponentAdminStateFromDesiredStateEntity(hostComponentDesiredStateEntity);
-    UpgradeState upgradeState = hostComponentStateEntity.getUpgradeState();
+    HostComponentAdminState componentAdminState = getComponentAdminState();
+    UpgradeState upgradeState = getUpgradeState();
 
     String displayName = null;
     try {
@@ -1241,13 +1303,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
     ServiceComponentHostResponse r = new ServiceComponentHostResponse(clusterName, serviceName,
         serviceComponentName, displayName, hostName, publicHostName, state, getVersion(),
-        desiredState, desiredStackId, desiredRepositoryVersion, componentAdminState);
+        desiredState == null ? null : desiredState.toString(), desiredStackId, desiredRepositoryVersion, componentAdminState);
 
     r.setActualConfigs(actualConfigs);
     r.setUpgradeState(upgradeState);
 
     try {
-      r.setStaleConfig(helper.isStaleConfigs(this, desiredConfigs, hostComponentDesiredStateEntity));
+      r.setStaleConfig(helper.isStaleConfigs(this, desiredConfigs));
     } catch (Exception e) {
       LOG.error("Could not determine stale config", e);
     }
@@ -1280,8 +1342,7 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (collectStaleConfigsStatus) {
 
       try {
-        HostComponentDesiredStateEntity hostComponentDesiredStateEntity = getDesiredStateEntity();
-        r.setStaleConfig(helper.isStaleConfigs(this, desiredConfigs, hostComponentDesiredStateEntity));
+        r.setStaleConfig(helper.isStaleConfigs(this, desiredConfigs));
       } catch (Exception e) {
         LOG.error("Could not determine stale config", e);
       }
@@ -1471,7 +1532,14 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
 
   @Override
   public boolean isRestartRequired() {
-    return getDesiredStateEntity().isRestartRequired();
+    if (stateRecordCheckEnabled) {
+      HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
+      if (desiredStateEntity != null) {
+        restartRequired = checkStateRecord("restart required flag", restartRequired,
+            desiredStateEntity.isRestartRequired());
+      }
+    }
+    return restartRequired;
   }
 
   @Override
@@ -1497,6 +1565,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     if (desiredStateEntity != null) {
       desiredStateEntity.setRestartRequired(restartRequired);
       hostComponentDesiredStateDAO.merge(desiredStateEntity);
+      this.restartRequired = restartRequired;
+      reloadStateRecordOnRollback();
       return true;
     } else {
       LOG.warn("Setting a member on an entity object that may have been "
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.ambari.server.state.host.HostImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves hosts accepted by a {@link LogicalRequest} through the persistence and
+ * task creation stages of provisioning off the registration path.
+ * <p/>
+ * Matching a registering host to a request stays on the caller's thread, as it
+ * has to happen under the {@link TopologyManager} locks. Accepted offers are
+ * queued here; a single writer thread persists the host request to host name
+ * associations of all queued offers in one transaction and then hands each
+ * host to the task creation stage, which runs on the per cluster topology task
+ * executors.
+ * <p/>
+ * The future returned for each offer completes once its registration is
+ * persisted, or exceptionally if it could not be, so that callers can fail the
+ * registration of the host as they would without the pipeline. Callers which
+ * can't wait for the future, such as the registration of the host itself which
+ * runs under the lock of the host, pass a failure handler instead; it runs on
+ * the thread which failed the offer, never on the caller's.
+ */
+class HostRegistrationPipeline {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HostRegistrationPipeline.class);
+
+  /**
+   * An accepted host offer waiting to be persisted.
+   */
+  static final class AcceptedOffer {
+    final ClusterTopology topology;
+    final HostOfferResponse response;
+    final HostImpl host;
+    final CompletableFuture<Void> persisted = new CompletableFuture<>();
+    private final Consumer<Throwable> failureHandler;
+
+    AcceptedOffer(ClusterTopology topology, HostOfferResponse response, HostImpl host) {
+      this(topology, response, host, null);
+    }
+
+    AcceptedOffer(ClusterTopology topology, HostOfferResponse response, HostImpl host,
+                  Consumer<Throwable> failureHandler) {
+      this.topology = topology;
+      this.response = response;
+      this.host = host;
+      this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Fails the registration of the host: completes the future exceptionally
+     * and calls the failure handler, if any.
+     */
+    void fail(Throwable failure) {
+      persisted.completeExceptionally(failure);
+      if (failureHandler != null) {
+        try {
+          failureHandler.accept(failure);
+        } catch (RuntimeException e) {
+          LOG.error("Unable to handle the failed registration of host {}", host.getHostName(), e);
+        }
+      }
+    }
+  }
+
+  private final BlockingQueue<AcceptedOffer> queue = new LinkedBlockingQueue<>();
+  private final int batchSize;
+  private final Consumer<List<AcceptedOffer>> persister;
+  private final Consumer<AcceptedOffer> taskCreator;
+
+  private final AtomicLong hostsProcessed = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+
+  private Thread writerThread;
+  private volatile boolean stopped;
+
+  /**
+   * @param batchSize   the maximum number of offers persisted in one transaction
+   * @param persister   persists a batch of offers in a single transaction
+   * @param taskCreator queues the topology tasks of a persisted offer
+   */
+  HostRegistrationPipeline(int batchSize, Consumer<List<AcceptedOffer>> persister,
+                           Consumer<AcceptedOffer> taskCreator) {
+    this.batchSize = Math.max(1, batchSize);
+    this.persister = persister;
+    this.taskCreator = taskCreator;
+  }
+
+  /**
+   * Queues an accepted host offer.
+   *
+   * @param failureHandler called if the registration of the host is queued but
+   *                       can't be persisted, may be {@code null}
+   * @return a future completed once the registration of the host is persisted;
+   *         already failed, without calling the failure handler, if the
+   *         pipeline is stopped
+   */
+  CompletableFuture<Void> submit(ClusterTopology topology, HostOfferResponse response, HostImpl host,
+                                 Consumer<Throwable> failureHandler) {
+    AcceptedOffer offer = new AcceptedOffer(topology, response, host, failureHandler);
+    synchronized (this) {
+      if (stopped) {
+        offer.persisted.completeExceptionally(
+            new IllegalStateException("The host registration pipeline is stopped"));
+        return offer.persisted;
+      }
+      ensureStarted();
+      queue.add(offer);
+    }
+    return offer.persisted;
+  }
+
+  /**
+   * Stops the writer thread, waiting for the batch in progress. Offers still
+   * queued are failed.
+   */
+  void stop() {
+    Thread thread;
+    synchronized (this) {
+      stopped = true;
+      thread = writerThread;
+    }
+    if (thread != null) {
+      // the writer notices within a second; it is not interrupted so that the batch in progress completes
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<AcceptedOffer> pending = new ArrayList<>();
+    queue.drainTo(pending);
+    for (AcceptedOffer offer : pending) {
+      offer.fail(new IllegalStateException("The host registration pipeline was stopped"));
+    }
+    if (!pending.isEmpty()) {
+      LOG.warn("Stopped the host registration pipeline with {} registrations not persisted", pending.size());
+    }
+  }
+
+  /**
+   * @return the number of hosts which went through all stages
+   */
+  long getHostsProcessed() {
+    return hostsProcessed.get();
+  }
+
+  /**
+   * @return the number of persisted batches
+   */
+  long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * @return the number of offers waiting to be persisted
+   */
+  int getQueueDepth() {
+    return queue.size();
+  }
+
+  private synchronized void ensureStarted() {
+    if (writerThread == null) {
+      writerThread = new Thread(this::run, "topology-host-registration");
+      writerThread.setDaemon(true);
+      writerThread.start();
+    }
+  }
+
+  private void run() {
+    List<AcceptedOffer> batch = new ArrayList<>(batchSize);
+    long start = 0;
+    while (!stopped) {
+      AcceptedOffer offer;
+      try {
+        offer = queue.poll(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      if (offer == null) {
+        continue;
+      }
+      batch.add(offer);
+      queue.drainTo(batch, batchSize - 1);
+
+      if (start == 0) {
+        start = System.nanoTime();
+      }
+      processBatch(batch);
+      batch.clear();
+
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      LOG.info("Processed {} host registrations in {} batches, {} hosts/min",
+          hostsProcessed.get(), batches.get(), hostsProcessed.get() * 60000 / Math.max(1, elapsedMillis));
+    }
+  }
+
+  /**
+   * Persists the batch in one transaction. If that fails the offers are
+   * persisted one by one so that a single bad host does not hold back the
+   * others; hosts which can't be persisted get no tasks and their futures
+   * complete exceptionally.
+   */
+  void processBatch(List<AcceptedOffer> batch) {
+    List<AcceptedOffer> persisted = batch;
+    try {
+      persister.accept(batch);
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to persist {} host registrations in one batch, persisting them one by one", batch.size(), e);
+      persisted = new ArrayList<>(batch.size());
+      for (AcceptedOffer offer : batch) {
+        try {
+          persister.accept(Collections.singletonList(offer));
+          persisted.add(offer);
+        } catch (RuntimeException hostException) {
+          LOG.error("Unable to persist registration of host {}", offer.host.getHostName(), hostException);
+          offer.fail(hostException);
+        }
+      }
+    }
+    batches.incrementAndGet();
+
+    for (AcceptedOffer offer : persisted) {
+      offer.persisted.complete(null);
+    }
+
+    for (AcceptedOffer offer : persisted) {
+      try {
+        taskCreator.accept(offer);
+        hostsProcessed.incrementAndGet();
+      } catch (RuntimeException e) {
+        LOG.error("Unable to queue topology tasks for host {}", offer.host.getHostName(), e);
+      }
+    }
+  }
+}
@@ -30,11 +30,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 
@@ -74,6 +77,8 @@ import org.apache.ambari.server.orm.entities.StageEntity;
 import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.SecurityType;
+import org.apache.ambari.server.state.fsm.InvalidStateTransitionException;
+import org.apache.ambari.server.state.host.HostHeartbeatLostEvent;
 import org.apache.ambari.server.state.host.HostImpl;
 import org.apache.ambari.server.state.quicklinksprofile.QuickLinksProfile;
 import org.apache.ambari.server.topology.addservice.ResourceProviderAdapter;
@@ -125,6 +130,13 @@ public class TopologyManager {
    */
   private final Map<Long, ManagedThreadPoolExecutor> topologyTaskExecutorServiceMap = new HashMap<>();
 
+  /**
+   * Persists accepted host offers in batches and queues their tasks off the host registration path.
+   * Only used if parallel topology task creation is enabled, otherwise accepted offers are processed
+   * synchronously.
+   */
+  private HostRegistrationPipeline hostRegistrationPipeline;
+
   private Collection<String> hostsToIgnore = new HashSet<>();
   private final List<HostImpl> availableHosts = new LinkedList<>();
   private final Map<String, LogicalRequest> reservedHosts = new HashMap<>();
@@ -186,6 +198,10 @@ public class TopologyManager {
     topologyTaskExecutorThreadPoolSize = configuration.getParallelTopologyTaskCreationThreadPoolSize();
     if (!configuration.isParallelTopologyTaskCreationEnabled()) {
       topologyTaskExecutorThreadPoolSize = 1;
+    } else {
+      hostRegistrationPipeline = new HostRegistrationPipeline(configuration.getTopologyHostRegistrationBatchSize(),
+          offers -> persistHostRegistrationsWithRetry(offers),
+          offer -> queueHostTasks(offer.topology, offer.response, offer.host.getHostName()));
     }
   }
 
@@ -362,7 +378,10 @@ public class TopologyManager {
 
   @Subscribe
   public void onClusterConfigFinishedEvent(ClusterConfigFinishedEvent event) {
-    ManagedThreadPoolExecutor taskExecutor = topologyTaskExecutorServiceMap.get(event.getClusterId());
+    ManagedThreadPoolExecutor taskExecutor;
+    synchronized (topologyTaskExecutorServiceMap) {
+      taskExecutor = topologyTaskExecutorServiceMap.get(event.getClusterId());
+    }
     if (taskExecutor == null) {
       LOG.error("Can't find executor service taskQueue not found for cluster: {} ", event.getClusterName());
     } else {
@@ -639,6 +658,7 @@ public class TopologyManager {
     }
 
     boolean matchedToRequest = false;
+    CompletableFuture<Void> registration = null;
     String hostName = host.getHostName();
     // The lock ordering in this method must always be the same ordering as TopologyManager.processRequest
     // TODO: Locking strategies for TopologyManager should be reviewed and possibly rewritten in a future release
@@ -652,7 +672,8 @@ public class TopologyManager {
           }
 
           LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for reserved host = {}", hostName);
-          processAcceptedHostOffer(getClusterTopology(request.getClusterId()), response, host);
+          registration = processAcceptedHostOffer(getClusterTopology(request.getClusterId()), response, host,
+              failure -> onHostRegistrationFailed(host, failure));
           matchedToRequest = true;
         }
       }
@@ -668,7 +689,8 @@ public class TopologyManager {
               case ACCEPTED:
                 matchedToRequest = true;
                 LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for matched host = {}", hostName);
-                processAcceptedHostOffer(getClusterTopology(request.getClusterId()), hostOfferResponse, host);
+                registration = processAcceptedHostOffer(getClusterTopology(request.getClusterId()), hostOfferResponse, host,
+                    failure -> onHostRegistrationFailed(host, failure));
                 break;
               case DECLINED_DONE:
                 LOG.info("TopologyManager.onHostRegistered: DECLINED_DONE received for host = {}", hostName);
@@ -698,6 +720,27 @@ public class TopologyManager {
         }
       }
     }
+
+    // a batched registration is not waited for, as this runs under the lock of the host while the
+    // batch writer may need it; it only fails here if the pipeline is stopped
+    if (registration != null && registration.isCompletedExceptionally()) {
+      awaitHostRegistrations(Collections.singletonList(registration));
+    }
+  }
+
+  /**
+   * Fails a host whose batched registration could not be persisted, as its registration would have
+   * failed without batching: the host is marked as having lost its heartbeat, so that its agent is
+   * told to register again.
+   */
+  private void onHostRegistrationFailed(HostImpl host, Throwable failure) {
+    LOG.error("Unable to persist the registration of host {}, its agent will be told to register again",
+        host.getHostName(), failure);
+    try {
+      host.handleEvent(new HostHeartbeatLostEvent(host.getHostName()));
+    } catch (InvalidStateTransitionException e) {
+      LOG.warn("Unable to mark host {} as having lost its heartbeat", host.getHostName(), e);
+    }
   }
 
   /**
@@ -845,6 +888,7 @@ public class TopologyManager {
     finalizeTopology(request, topology);
 
     boolean requestHostComplete = false;
+    List<CompletableFuture<Void>> registrations = new ArrayList<>();
     //todo: overall synchronization. Currently we have nested synchronization here
 
     // The lock ordering in this method must always be the same ordering as TopologyManager.onHostRegistered
@@ -883,7 +927,7 @@ public class TopologyManager {
             hostIterator.remove();
             LOG.info("TopologyManager.processRequest: host name = {} was ACCEPTED by LogicalRequest ID = {} , host has been removed from available hosts.",
                 host.getHostName(), logicalRequest.getRequestId());
-            processAcceptedHostOffer(getClusterTopology(logicalRequest.getClusterId()), response, host);
+            registrations.add(processAcceptedHostOffer(getClusterTopology(logicalRequest.getClusterId()), response, host, null));
             break;
           case DECLINED_DONE:
             requestHostComplete = true;
@@ -906,6 +950,8 @@ public class TopologyManager {
         }
       }
     }
+
+    awaitHostRegistrations(registrations);
   }
 
   @Transactional
@@ -928,7 +974,15 @@ public class TopologyManager {
     return logicalRequest;
   }
 
-  private void processAcceptedHostOffer(final ClusterTopology topology, final HostOfferResponse response, final HostImpl host) {
+  /**
+   * Adds the host to the topology, persists its registration and queues its tasks.
+   *
+   * @param failureHandler called if a batched registration can't be persisted, may be {@code null}
+   * @return a future completed once the registration is persisted if it is batched by the
+   *         {@link HostRegistrationPipeline}, otherwise {@code null}
+   */
+  private CompletableFuture<Void> processAcceptedHostOffer(final ClusterTopology topology, final HostOfferResponse response,
+                                                           final HostImpl host, Consumer<Throwable> failureHandler) {
     final String hostName = host.getHostName();
     try {
       topology.addHostToTopology(response.getHostGroupName(), hostName);
@@ -941,6 +995,11 @@ public class TopologyManager {
       throw new RuntimeException("An internal error occurred while performing request host registration: " + e, e);
     }
 
+    if (hostRegistrationPipeline != null) {
+      LOG.info("TopologyManager.processAcceptedHostOffer: queue registration of host = {} which responded {}", hostName, response.getAnswer());
+      return hostRegistrationPipeline.submit(topology, response, host, failureHandler);
+    }
+
     // persist the host request -> hostName association
     try {
       RetryHelper.executeWithRetry(new Callable<Void>() {
@@ -957,7 +1016,39 @@ public class TopologyManager {
 
     LOG.info("TopologyManager.processAcceptedHostOffer: queue tasks for host = {} which responded {}", hostName, response.getAnswer());
     queueHostTasks(topology, response, hostName);
+    return null;
+  }
+
+  /**
+   * Waits until the batched registrations are persisted, failing like the unbatched registration
+   * does if one of them could not be.
+   *
+   * @param registrations the futures returned by {@link #processAcceptedHostOffer}, may contain {@code null}
+   */
+  private void awaitHostRegistrations(List<CompletableFuture<Void>> registrations) {
+    for (CompletableFuture<Void> registration : registrations) {
+      if (registration == null) {
+        continue;
+      }
+      try {
+        registration.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while registering host name", e);
+      } catch (ExecutionException e) {
+        LOG.error("Exception ocurred while registering host name", e.getCause());
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
 
+  /**
+   * Stops the background processing of host registrations. Called on server shutdown.
+   */
+  public void stop() {
+    if (hostRegistrationPipeline != null) {
+      hostRegistrationPipeline.stop();
+    }
   }
 
   @Transactional
@@ -966,17 +1057,43 @@ public class TopologyManager {
     persistedState.registerInTopologyHostInfo(host);
   }
 
+  /**
+   * Persists the host request -> hostName associations of several accepted host offers in one transaction.
+   */
+  @Transactional
+  protected void persistTopologyHostRegistrations(List<HostRegistrationPipeline.AcceptedOffer> offers) {
+    for (HostRegistrationPipeline.AcceptedOffer offer : offers) {
+      persistTopologyHostRegistration(offer.response.getHostRequestId(), offer.host);
+    }
+  }
+
+  private void persistHostRegistrationsWithRetry(final List<HostRegistrationPipeline.AcceptedOffer> offers) {
+    try {
+      RetryHelper.executeWithRetry(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          persistTopologyHostRegistrations(offers);
+          return null;
+        }
+      });
+    } catch (AmbariException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private ManagedThreadPoolExecutor getOrCreateTopologyTaskExecutor(Long clusterId) {
-    ManagedThreadPoolExecutor topologyTaskExecutor = this.topologyTaskExecutorServiceMap.get(clusterId);
-    if (topologyTaskExecutor == null) {
-      LOG.info("Creating TopologyTaskExecutorService for clusterId: {}", clusterId);
-
-      topologyTaskExecutor = new ManagedThreadPoolExecutor(topologyTaskExecutorThreadPoolSize,
-              topologyTaskExecutorThreadPoolSize, 0L, TimeUnit.MILLISECONDS,
-              new LinkedBlockingQueue<Runnable>());
-      topologyTaskExecutorServiceMap.put(clusterId, topologyTaskExecutor);
+    synchronized (topologyTaskExecutorServiceMap) {
+      ManagedThreadPoolExecutor topologyTaskExecutor = this.topologyTaskExecutorServiceMap.get(clusterId);
+      if (topologyTaskExecutor == null) {
+        LOG.info("Creating TopologyTaskExecutorService for clusterId: {}", clusterId);
+
+        topologyTaskExecutor = new ManagedThreadPoolExecutor(topologyTaskExecutorThreadPoolSize,
+                topologyTaskExecutorThreadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        topologyTaskExecutorServiceMap.put(clusterId, topologyTaskExecutor);
+      }
+      return topologyTaskExecutor;
     }
-    return topologyTaskExecutor;
   }
 
   private void queueHostTasks(ClusterTopology topology, HostOfferResponse response, String hostName) {
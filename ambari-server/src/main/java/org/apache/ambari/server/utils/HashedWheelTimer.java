@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer which keeps its timeouts in a hashed timing wheel: a ring of buckets,
+ * each covering one tick, where a timeout is hashed to the bucket of the tick it
+ * expires in. Scheduling and cancelling a timeout take constant time regardless
+ * of the number of pending timeouts, which suits large numbers of timeouts that
+ * are usually cancelled before they expire, such as the delivery deadlines of
+ * messages awaiting acknowledgement.
+ * <p/>
+ * Timeouts expire with a precision of one tick, on the single thread driving the
+ * wheel. Their tasks should therefore be short, handing any real work off to an
+ * executor.
+ */
+public class HashedWheelTimer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+
+  /**
+   * Timeouts scheduled since the last tick, which the worker moves into the
+   * wheel so that the buckets are only ever touched by the worker.
+   */
+  private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+  private final Thread worker;
+  private final long startTime = System.nanoTime();
+  private volatile boolean stopped;
+
+  /**
+   * @param threadName the name of the thread driving the wheel
+   * @param tickDuration the duration of a tick
+   * @param unit the unit of {@code tickDuration}
+   * @param ticksPerWheel the number of buckets, rounded up to a power of two
+   */
+  public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+    if (tickDuration <= 0 || ticksPerWheel <= 0) {
+      throw new IllegalArgumentException("The tick duration and ticks per wheel must be positive");
+    }
+
+    tickNanos = unit.toNanos(tickDuration);
+    int size = Integer.highestOneBit(ticksPerWheel);
+    if (size < ticksPerWheel) {
+      size <<= 1;
+    }
+    wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    mask = size - 1;
+
+    worker = new Thread(new Worker(), threadName);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * Schedules a task to run once the given delay has elapsed.
+   *
+   * @param task the task to run
+   * @param delay the delay
+   * @param unit the unit of {@code delay}
+   * @return the timeout, which can be used to cancel the task
+   */
+  public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+    if (stopped) {
+      throw new IllegalStateException("The timer has been stopped");
+    }
+
+    Timeout timeout = new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+    scheduled.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Stops the timer. Pending timeouts never expire.
+   */
+  public void stop() {
+    stopped = true;
+    worker.interrupt();
+  }
+
+  /**
+   * A task scheduled with {@link HashedWheelTimer#newTimeout(Runnable, long, TimeUnit)}.
+   */
+  public static final class Timeout {
+    private final Runnable task;
+    private final long deadline;
+    private long remainingRounds;
+    private volatile boolean cancelled;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the task, unless it has started running already.
+     */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /**
+     * @return {@code true} if the timeout was cancelled
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  private static final class Bucket {
+    private final LinkedList<Timeout> timeouts = new LinkedList<>();
+  }
+
+  private final class Worker implements Runnable {
+
+    private long tick;
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        if (!waitForNextTick()) {
+          break;
+        }
+
+        transferScheduledTimeouts();
+        expireTimeouts(wheel[(int) (tick & mask)]);
+        tick++;
+      }
+    }
+
+    /**
+     * @return {@code false} if the timer was stopped while waiting
+     */
+    private boolean waitForNextTick() {
+      long deadline = tickNanos * (tick + 1);
+      while (true) {
+        long sleepNanos = deadline - (System.nanoTime() - startTime);
+        if (sleepNanos <= 0) {
+          return true;
+        }
+
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          if (stopped) {
+            return false;
+          }
+        }
+      }
+    }
+
+    private void transferScheduledTimeouts() {
+      Timeout timeout;
+      while ((timeout = scheduled.poll()) != null) {
+        if (timeout.cancelled) {
+          continue;
+        }
+
+        // timeouts already past their deadline expire on the current tick
+        long expiryTick = Math.max(timeout.deadline / tickNanos, tick);
+        timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+        wheel[(int) (expiryTick & mask)].timeouts.add(timeout);
+      }
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+      Iterator<Timeout> iterator = bucket.timeouts.iterator();
+      while (iterator.hasNext()) {
+        Timeout timeout = iterator.next();
+        if (timeout.cancelled) {
+          iterator.remove();
+        } else if (timeout.remainingRounds <= 0) {
+          iterator.remove();
+          try {
+            timeout.task.run();
+          } catch (RuntimeException e) {
+            LOG.error("Unable to run the task of an expired timeout", e);
+          }
+        } else {
+          timeout.remainingRounds--;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations with power-of-two microsecond buckets, which can be recorded
+ * concurrently without allocating.  Percentiles are estimated as the upper bound of the
+ * bucket they fall in.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * Bucket {@code i} counts durations of less than {@code 2^i} microseconds; the last bucket
+   * counts everything longer.
+   */
+  public static final int BUCKETS = 32;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration; negative durations are counted as 0
+   */
+  public void record(long nanos) {
+    counts.incrementAndGet(bucket(nanos));
+  }
+
+  /**
+   * @return the number of durations recorded so far, by bucket
+   */
+  public long[] getCounts() {
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Gets the durations recorded since a previous snapshot.  The callers are responsible for
+   * not taking interval snapshots against the same array concurrently.
+   *
+   * @param lastCounts the counts of the previous snapshot, by bucket, which are replaced
+   *                   with the current counts
+   * @return the number of durations recorded since the previous snapshot, by bucket
+   */
+  public long[] getIntervalCounts(long[] lastCounts) {
+    long[] interval = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = counts.get(i);
+      interval[i] = count - lastCounts[i];
+      lastCounts[i] = count;
+    }
+    return interval;
+  }
+
+  /**
+   * @param nanos a duration
+   * @return the bucket the duration is counted in
+   */
+  public static int bucket(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  /**
+   * @param counts the number of durations, by bucket
+   * @param percentile between 0 and 100
+   * @return the upper bound (in microseconds) of the bucket the percentile falls in, or 0 if
+   *         there are no durations
+   */
+  public static long getPercentileMicros(long[] counts, double percentile) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total <= 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(total * percentile / 100.0);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return 1L << i;
+      }
+    }
+    return 1L << (BUCKETS - 1);
+  }
+}
@@ -44,8 +44,14 @@ else:
 
 AMBARI_PASSPHRASE_VAR_NAME = "AMBARI_PASSPHRASE"
 HOST_BOOTSTRAP_TIMEOUT = 300
-# how many parallel bootstraps may be run at a time
+# how many parallel bootstraps may be run at a time (unless overridden by the server)
 MAX_PARALLEL_BOOTSTRAPS = 20
+# the parallelism is lowered when more than this ratio of a round of bootstraps fails
+ADAPTIVE_FAILURE_RATIO = 0.25
+# or when a round of bootstraps takes this many times longer than the fastest round
+ADAPTIVE_LATENCY_FACTOR = 2.0
+# prefix of the lines written to stdout to report host status to the server as it changes
+HOST_STATUS_EVENT_PREFIX = "BOOTSTRAP_HOST_STATUS:"
 # How many seconds to wait between polling parallel bootstraps
 POLL_INTERVAL_SEC = 1
 DEBUG = False
@@ -795,11 +801,55 @@ class BootstrapDefault(Bootstrap):
 
 
 
+class AdaptiveParallelism:
+  """ Adjusts how many bootstraps run in parallel, between 1 and max_parallel, after each round
+  of as many bootstraps as the current parallelism: the parallelism is halved if too many of them
+  failed or if they took much longer than the fastest round so far (the network or the repository
+  is saturated), and raised by a quarter otherwise."""
+  def __init__(self, initial_parallel, max_parallel):
+    self.max_parallel = max(1, max_parallel)
+    self.parallel = min(max(1, initial_parallel), self.max_parallel)
+    self.adaptive = self.parallel < self.max_parallel
+    self.round_count = 0
+    self.round_failures = 0
+    self.round_elapsed = 0.0
+    self.best_latency = None
+
+  def get_parallel(self):
+    return self.parallel
+
+  def finished(self, success, elapsed):
+    if not self.adaptive:
+      return
+    self.round_count += 1
+    self.round_elapsed += elapsed
+    if not success:
+      self.round_failures += 1
+    if self.round_count < self.parallel:
+      return
+
+    latency = self.round_elapsed / self.round_count
+    failure_ratio = float(self.round_failures) / self.round_count
+    if self.best_latency is None or latency < self.best_latency:
+      self.best_latency = latency
+    if failure_ratio > ADAPTIVE_FAILURE_RATIO or latency > ADAPTIVE_LATENCY_FACTOR * self.best_latency:
+      self.parallel = max(1, self.parallel // 2)
+    else:
+      self.parallel = min(self.max_parallel, self.parallel + max(1, self.parallel // 4))
+    logging.info("Parallel bootstrap round of {0} hosts: failures={1}, average time={2:.1f}s; running {3} "
+                 "hosts in parallel".format(self.round_count, self.round_failures, latency, self.parallel))
+    self.round_count = 0
+    self.round_failures = 0
+    self.round_elapsed = 0.0
+
+
 class PBootstrap:
   """ BootStrapping the agents on a list of hosts"""
-  def __init__(self, hosts, sharedState):
+  def __init__(self, hosts, sharedState, initial_parallel=MAX_PARALLEL_BOOTSTRAPS,
+               max_parallel=MAX_PARALLEL_BOOTSTRAPS):
     self.hostlist = hosts
     self.sharedState = sharedState
+    self.parallelism = AdaptiveParallelism(initial_parallel, max_parallel)
     pass
 
   def run_bootstrap(self, host):
@@ -807,8 +857,14 @@ class PBootstrap:
     bootstrap.start()
     return bootstrap
 
+  def report_status(self, host, status, return_code=""):
+    """ Reports the status of a host to the server as soon as it changes, so that it does not need
+    to poll the .done files """
+    sys.stdout.write("{0}{1}:{2}:{3}\n".format(HOST_STATUS_EVENT_PREFIX, host, status, return_code))
+    sys.stdout.flush()
+
   def run(self):
-    """ Run up to MAX_PARALLEL_BOOTSTRAPS at a time in parallel """
+    """ Run up to the adaptive parallelism bootstraps at a time in parallel """
     logging.info("Executing parallel bootstrap")
     queue = list(self.hostlist)
     queue.reverse()
@@ -817,26 +873,31 @@ class PBootstrap:
     while queue or running_list: # until queue is not empty or not all parallel bootstraps are
       # poll running bootstraps
       for bootstrap in running_list:
-        if bootstrap.getStatus()["return_code"] is not None:
+        return_code = bootstrap.getStatus()["return_code"]
+        starttime = bootstrap.getStatus()["start_time"]
+        elapsedtime = time.time() - starttime if starttime is not None else 0
+        if return_code is not None:
+          finished_list.append(bootstrap)
+          self.parallelism.finished(return_code == 0, elapsedtime)
+          self.report_status(bootstrap.host, "DONE" if return_code == 0 else "FAILED", return_code)
+        elif elapsedtime > HOST_BOOTSTRAP_TIMEOUT:
+          # bootstrap timed out
+          logging.warn("Bootstrap at host {0} timed out and will be "
+                          "interrupted".format(bootstrap.host))
+          bootstrap.interruptBootstrap()
           finished_list.append(bootstrap)
-        else:
-          starttime = bootstrap.getStatus()["start_time"]
-          elapsedtime = time.time() - starttime
-          if elapsedtime > HOST_BOOTSTRAP_TIMEOUT:
-            # bootstrap timed out
-            logging.warn("Bootstrap at host {0} timed out and will be "
-                            "interrupted".format(bootstrap.host))
-            bootstrap.interruptBootstrap()
-            finished_list.append(bootstrap)
+          self.parallelism.finished(False, elapsedtime)
+          self.report_status(bootstrap.host, "FAILED", 199)
       # Remove finished from the running list
       running_list[:] = [b for b in running_list if not b in finished_list]
       # Start new bootstraps from the queue
-      free_slots = MAX_PARALLEL_BOOTSTRAPS - len(running_list)
+      free_slots = self.parallelism.get_parallel() - len(running_list)
       for i in range(free_slots):
         if queue:
           next_host = queue.pop()
           bootstrap = self.run_bootstrap(next_host)
           running_list.append(bootstrap)
+          self.report_status(next_host, "RUNNING")
       time.sleep(POLL_INTERVAL_SEC)
     logging.info("Finished parallel bootstrap")
 
@@ -870,7 +931,8 @@ def main(argv=None):
   if len(onlyargs) < 3:
     sys.stderr.write("Usage: <comma separated hosts> "
                      "<tmpdir for storage> <user> <sshPort> <sshkey_file> <agent setup script>"
-                     " <ambari-server name> <cluster os type> <ambari version> <ambari port> <user_run_as> <passwordFile>\n")
+                     " <ambari-server name> <cluster os type> <ambari version> <ambari port> <user_run_as> <passwordFile>"
+                     " [<initial parallel bootstraps> <max parallel bootstraps>]\n")
     sys.exit(2)
     pass
   
@@ -888,6 +950,8 @@ def main(argv=None):
   server_port = onlyargs[9]
   user_run_as = onlyargs[10]
   passwordFile = onlyargs[11]
+  initialParallel = int(onlyargs[12]) if len(onlyargs) > 12 else MAX_PARALLEL_BOOTSTRAPS
+  maxParallel = int(onlyargs[13]) if len(onlyargs) > 13 else initialParallel
 
   if not OSCheck.is_windows_family():
     # ssh doesn't like open files
@@ -904,7 +968,7 @@ def main(argv=None):
   sharedState = SharedState(user, sshPort, sshkey_file, scriptDir, bootdir, setupAgentFile,
                        ambariServer, cluster_os_type, ambariVersion,
                        server_port, user_run_as, passwordFile)
-  pbootstrap = PBootstrap(hostList, sharedState)
+  pbootstrap = PBootstrap(hostList, sharedState, initialParallel, maxParallel)
   pbootstrap.run()
   return 0 # Hack to comply with current usage
 
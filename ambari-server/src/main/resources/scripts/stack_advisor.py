@@ -19,6 +19,7 @@ limitations under the License.
 '''
 
 import ambari_simplejson as json
+import copy
 import os
 import sys
 import traceback
@@ -42,6 +43,10 @@ ALL_ACTIONS = [RECOMMEND_COMPONENT_LAYOUT_ACTION,
                VALIDATE_CONFIGURATIONS]
 USAGE = "Usage: <action> <hosts_file> <services_file>\nPossible actions are: {0}\n".format( str(ALL_ACTIONS) )
 
+# runs requests read from stdin instead of a single action, see serve()
+WORKER_ARG = '--worker'
+WORKER_READY = 'ready'
+
 SCRIPT_DIRECTORY = os.path.dirname(os.path.abspath(__file__))
 STACKS_DIRECTORY = os.path.join(SCRIPT_DIRECTORY, '../stacks')
 STACK_ADVISOR_PATH = os.path.join(STACKS_DIRECTORY, 'stack_advisor.py')
@@ -53,6 +58,14 @@ STACK_ADVISOR_IMPL_CLASS_TEMPLATE = '{0}{1}StackAdvisor'
 ADVISOR_CONTEXT = "advisor_context"
 CALL_TYPE = "call_type"
 
+# the modules the stack advisor classes are loaded into; a worker resets their
+# globals before each request so that state left by one request does not leak
+# into the next
+STACK_ADVISOR_MODULES = ['ambari_configuration', 'stack_advisor', 'stack_advisor_impl']
+
+# the stack advisor class loaded last along with the globals of its modules
+# right after loading, keyed by getStackAdvisorKey()
+loadedStackAdvisor = {}
 
 
 class StackAdvisorException(Exception):
@@ -103,7 +116,7 @@ def main(argv=None):
   if "stack_hierarchy" in services["Versions"]:
     parentVersions = services["Versions"]["stack_hierarchy"]["stack_versions"]
 
-  stackAdvisor = instantiateStackAdvisor(stackName, stackVersion, parentVersions)
+  stackAdvisor = instantiateStackAdvisor(stackName, stackVersion, parentVersions, services)
 
   # Perform action
   actionDir = os.path.realpath(os.path.dirname(args[1]))
@@ -147,8 +160,141 @@ def main(argv=None):
   dumpJson(result, result_file)
 
 
-def instantiateStackAdvisor(stackName, stackVersion, parentVersions):
+def serve():
+  """
+  Runs stack advisor requests read from stdin until it is closed, so that a
+  long-lived process pays for interpreter startup and module loading once.
+
+  Each request is a line holding the tab separated action, hosts file,
+  services file, stdout file and stderr file. Output of the request goes to
+  the given files and the exit code the script would have exited with is
+  written back as a line.
+  """
+  responses = os.fdopen(os.dup(1), 'w')
+  stderr = os.dup(2)
+  devnull = os.open(os.devnull, os.O_WRONLY)
+  os.dup2(devnull, 1)
+
+  responses.write(WORKER_READY + "\n")
+  responses.flush()
+
+  while True:
+    line = sys.stdin.readline()
+    if not line:
+      break
+
+    request = line.rstrip("\n").split("\t")
+    if len(request) == 5:
+      exitCode = serveRequest(request[0:3], request[3], request[4])
+    else:
+      exitCode = 2
+
+    # restore the worker's own output
+    sys.stdout.flush()
+    sys.stderr.flush()
+    os.dup2(devnull, 1)
+    os.dup2(stderr, 2)
+
+    responses.write("{0}\n".format(exitCode))
+    responses.flush()
+
+
+def serveRequest(args, stdoutFile, stderrFile):
+  """Runs a single action with its output redirected, returning its exit code"""
+  sys.stdout.flush()
+  sys.stderr.flush()
+  for path, fd in ((stdoutFile, 1), (stderrFile, 2)):
+    redirect = os.open(path, os.O_WRONLY | os.O_CREAT | os.O_TRUNC, 0644)
+    os.dup2(redirect, fd)
+    os.close(redirect)
+
+  try:
+    main([sys.argv[0]] + args)
+    return 0
+  except SystemExit as exit:
+    return exit.code if isinstance(exit.code, int) else 2
+  except StackAdvisorException as stack_exception:
+    traceback.print_exc()
+    print "Error occured in stack advisor.\nError details: {0}".format(str(stack_exception))
+    return 1
+  except Exception as e:
+    traceback.print_exc()
+    print "Error occured in stack advisor.\nError details: {0}".format(str(e))
+    return 2
+
+
+def instantiateStackAdvisor(stackName, stackVersion, parentVersions, services=None):
   """Instantiates StackAdvisor implementation for the specified Stack"""
+  key = getStackAdvisorKey(stackName, stackVersion, parentVersions, services)
+  if key in loadedStackAdvisor:
+    clazz, moduleGlobals = loadedStackAdvisor[key]
+    restoreModuleGlobals(moduleGlobals)
+    return clazz()
+
+  # modules of different stacks are loaded under the same names, only the last one is kept
+  loadedStackAdvisor.clear()
+  clazz = loadStackAdvisor(stackName, stackVersion, parentVersions)
+  loadedStackAdvisor[key] = (clazz, saveModuleGlobals())
+  return clazz()
+
+
+def getStackAdvisorKey(stackName, stackVersion, parentVersions, services=None):
+  """
+  Gets the key a loaded stack advisor class is kept under: the stack, its parent
+  versions and the service advisors of the request, along with the modification
+  times of their files so that an updated stack or service advisor is loaded again
+  """
+  paths = [AMBARI_CONFIGURATION_PATH, STACK_ADVISOR_PATH]
+  for version in [stackVersion] + list(parentVersions):
+    paths.append(STACK_ADVISOR_IMPL_PATH_TEMPLATE.format(stackName, version))
+
+  serviceAdvisorPaths = set()
+  if services is not None:
+    for service in services.get("services", []):
+      path = service.get("StackServices", {}).get("advisor_path")
+      if path is not None:
+        serviceAdvisorPaths.add(path)
+  paths.extend(sorted(serviceAdvisorPaths))
+
+  files = tuple((path, os.path.getmtime(path) if os.path.isfile(path) else None) for path in paths)
+  return (stackName, stackVersion, tuple(parentVersions), files)
+
+
+def saveModuleGlobals():
+  """Copies the globals of the stack advisor modules as they are right after loading"""
+  moduleGlobals = {}
+  for name in STACK_ADVISOR_MODULES:
+    module = sys.modules.get(name)
+    # skip this script, which is loaded as stack_advisor by the unit tests
+    if module is None or module.__dict__ is globals():
+      continue
+    moduleGlobals[name] = (module, copyModuleGlobals(module.__dict__))
+  return moduleGlobals
+
+
+def restoreModuleGlobals(moduleGlobals):
+  """Resets the globals of the stack advisor modules to the copies taken after loading"""
+  for name, (module, saved) in moduleGlobals.iteritems():
+    sys.modules[name] = module
+    module.__dict__.clear()
+    module.__dict__.update(copyModuleGlobals(saved))
+
+
+def copyModuleGlobals(moduleGlobals):
+  """Copies module globals, duplicating the containers a request could change in place"""
+  copied = {}
+  for name, value in moduleGlobals.iteritems():
+    if isinstance(value, (dict, list, set)):
+      try:
+        value = copy.deepcopy(value)
+      except Exception:
+        pass
+    copied[name] = value
+  return copied
+
+
+def loadStackAdvisor(stackName, stackVersion, parentVersions):
+  """Loads the StackAdvisor implementation class for the specified Stack"""
   import imp
 
   with open(AMBARI_CONFIGURATION_PATH, 'rb') as fp:
@@ -178,14 +324,18 @@ def instantiateStackAdvisor(stackName, stackVersion, parentVersions):
   try:
     clazz = getattr(stack_advisor, className)
     print "Returning " + className + " implementation"
-    return clazz()
+    return clazz
   except Exception as e:
     traceback.print_exc()
     print "Returning default implementation"
-    return default_stack_advisor.DefaultStackAdvisor()
+    return default_stack_advisor.DefaultStackAdvisor
 
 
 if __name__ == '__main__':
+  if len(sys.argv) > 1 and sys.argv[1] == WORKER_ARG:
+    serve()
+    sys.exit(0)
+
   try:
     main(sys.argv)
   except StackAdvisorException as stack_exception:
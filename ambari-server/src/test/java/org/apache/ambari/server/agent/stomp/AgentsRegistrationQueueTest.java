@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent.stomp;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.junit.Test;
+
+import com.google.inject.Injector;
+
+public class AgentsRegistrationQueueTest {
+
+  @Test
+  public void testAdmissionRateFollowsMeasuredRate() {
+    AgentsRegistrationQueue queue = createQueue(true);
+
+    // admissions are not paced until the registration rate has been measured
+    assertEquals(0, queue.getAdmissionRate(), 0.01);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(queue.offer("session" + i));
+    }
+
+    // nothing completed while agents are registering
+    queue.adjustAdmissionRate();
+    assertEquals(1, queue.getAdmissionRate(), 0.01);
+
+    for (int i = 0; i < 10; i++) {
+      queue.complete("session" + i);
+    }
+    assertEquals(10, queue.getRegistrationLatency().size());
+    assertEquals(10, queue.getCompletedRegistrations());
+
+    // heartbeats of registered agents are not counted again
+    queue.complete("session0");
+    assertEquals(10, queue.getCompletedRegistrations());
+
+    // 10 registrations in the 5 second window, with 50% headroom
+    assertTrue(queue.offer("session10"));
+    queue.adjustAdmissionRate();
+    assertEquals(3, queue.getAdmissionRate(), 0.01);
+
+    // once idle the admissions are no longer paced
+    queue.complete("session10");
+    queue.adjustAdmissionRate();
+    assertEquals(0, queue.getAdmissionRate(), 0.01);
+    assertEquals(0, queue.getRejectedRegistrations());
+  }
+
+  @Test
+  public void testQueueCapacityWithoutPacing() {
+    AgentsRegistrationQueue queue = createQueue(false);
+    assertEquals(0, queue.getAdmissionRate(), 0.01);
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(queue.offer("session" + i));
+    }
+    assertFalse(queue.offer("session10"));
+
+    queue.complete("session0");
+    assertTrue(queue.offer("session10"));
+    assertEquals(1, queue.getRegistrationLatency().size());
+  }
+
+  @Test
+  public void testReleaseOnDisconnect() {
+    AgentsRegistrationQueue queue = createQueue(false);
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(queue.offer("session" + i));
+    }
+    assertFalse(queue.offer("session10"));
+
+    // a disconnect frees the place of the session without completing its registration
+    queue.release("session0");
+    assertEquals(0, queue.getCompletedRegistrations());
+    assertEquals(0, queue.getRegistrationLatency().size());
+    assertTrue(queue.offer("session10"));
+  }
+
+  @Test
+  public void testSessionOfferedTwice() {
+    AgentsRegistrationQueue queue = createQueue(false);
+
+    assertTrue(queue.offer("session0"));
+    assertTrue(queue.offer("session0"));
+    for (int i = 1; i < 9; i++) {
+      assertTrue(queue.offer("session" + i));
+    }
+
+    // every place taken by the session is released, though its registration is only counted once
+    queue.complete("session0");
+    queue.complete("session0");
+    assertEquals(1, queue.getCompletedRegistrations());
+    assertTrue(queue.offer("session9"));
+    assertTrue(queue.offer("session10"));
+    assertFalse(queue.offer("session11"));
+  }
+
+  private AgentsRegistrationQueue createQueue(boolean pacing) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AGENTS_REGISTRATION_QUEUE_SIZE.getKey(), "10");
+    properties.setProperty(Configuration.AGENTS_REGISTRATION_PACING_ENABLED.getKey(), Boolean.toString(pacing));
+    properties.setProperty(Configuration.AGENTS_REGISTRATION_DATA_PREBUILD_ENABLED.getKey(), "false");
+
+    Injector injector = createNiceMock(Injector.class);
+    expect(injector.getInstance(Configuration.class)).andReturn(new Configuration(properties)).anyTimes();
+    replay(injector);
+
+    return new AgentsRegistrationQueue(injector);
+  }
+}
@@ -163,6 +163,7 @@ public class StaleAlertRunnableTest {
     // mock the current dao
     expect(m_alertsDao.findCurrentByCluster(CLUSTER_ID)).andReturn(
         m_currentAlerts).atLeastOnce();
+    expect(m_alertsDao.findCurrentByIds(anyObject())).andReturn(m_currentAlerts).anyTimes();
 
     m_host = createNiceMock(Host.class);
     expect(m_host.getHostId()).andReturn(1L);
@@ -283,6 +284,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(1L).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
@@ -328,6 +330,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(1L).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
@@ -355,6 +358,58 @@ public class StaleAlertRunnableTest {
     verify(m_cluster, m_clusters, m_definitionDao, m_alertHelper);
   }
 
+  /**
+   * Tests that once the index is loaded, the alerts which may be stale are
+   * read together rather than one at a time.
+   */
+  @Test
+  public void testCandidatesAreReadTogether() {
+    AlertDefinitionEntity definition = new AlertDefinitionEntity();
+    definition.setClusterId(CLUSTER_ID);
+    definition.setDefinitionName("foo-definition");
+    definition.setServiceName("HDFS");
+    definition.setComponentName("NAMENODE");
+    definition.setEnabled(true);
+    definition.setScheduleInterval(1);
+
+    // create current alerts that are stale
+    AlertCurrentEntity current1 = createNiceMock(AlertCurrentEntity.class);
+    AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
+
+    expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
+    expect(current1.getDefinitionId()).andReturn(1L).atLeastOnce();
+    expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
+
+    // a really old timestampt to trigger the alert
+    expect(current1.getMaintenanceState()).andReturn(MaintenanceState.OFF).atLeastOnce();
+    expect(current1.getLatestTimestamp()).andReturn(1L).atLeastOnce();
+
+    replay(current1, history1);
+
+    m_currentAlerts.add(current1);
+
+    // both runs need the server to have been up for a while
+    EasyMock.reset(m_runtimeMXBean);
+    expect(m_runtimeMXBean.getUptime()).andReturn(360000L).anyTimes();
+    replay(m_runtimeMXBean);
+
+    StaleAlertRunnable runnable = new StaleAlertRunnable(m_definition.getDefinitionName());
+    m_injector.injectMembers(runnable);
+
+    // the first run loads the index and the second reads the candidates
+    runnable.run();
+    runnable.run();
+
+    List<AlertEvent> events = m_listener.getAlertEventInstances(AlertReceivedEvent.class);
+    assertEquals(2, events.size());
+    for (AlertEvent event : events) {
+      assertEquals(AlertState.CRITICAL, ((AlertReceivedEvent) event).getAlert().getState());
+    }
+
+    verify(m_cluster, m_clusters, m_definitionDao, m_alertHelper);
+  }
+
   /**
    * Tests that a stale message from agent triggers the event with a status of CRITICAL.
    */
@@ -376,6 +431,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(alertDefinitionId).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
     expect(history1.getHostName()).andReturn("host1").atLeastOnce();
@@ -433,6 +489,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(alertDefinitionId).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
     expect(history1.getHostName()).andReturn("host1").atLeastOnce();
@@ -497,6 +554,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(alertDefinitionId).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
@@ -567,6 +625,7 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history1 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(current1.getDefinitionId()).andReturn(alertDefinitionId).atLeastOnce();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
@@ -647,9 +706,11 @@ public class StaleAlertRunnableTest {
     AlertHistoryEntity history2 = createNiceMock(AlertHistoryEntity.class);
 
     expect(current1.getAlertHistory()).andReturn(history1).atLeastOnce();
+    expect(current1.getAlertId()).andReturn(1L).anyTimes();
     expect(history1.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
     expect(current2.getAlertHistory()).andReturn(history2).atLeastOnce();
+    expect(current2.getAlertId()).andReturn(2L).anyTimes();
     expect(history2.getAlertDefinition()).andReturn(definition).atLeastOnce();
 
     // maintenance mode with a really old timestamp
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services.stackadvisor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
+import org.junit.Test;
+
+/**
+ * StackAdvisorResponseCache unit tests.
+ */
+public class StackAdvisorResponseCacheTest {
+
+  private static final String HOSTS = "{\"items\": [{\"Hosts\": {\"host_name\": \"h1\", \"cpu_count\": 4}}]}";
+  private static final String SERVICES = "{\"services\": [], \"configurations\": {\"hdfs-site\": {\"properties\": {\"a\": \"1\", \"b\": \"2\"}}}}";
+
+  @Test
+  public void testKeyIgnoresMemberOrder() {
+    StackAdvisorResponseCache cache = new StackAdvisorResponseCache(10);
+    String reorderedHosts = "{\"items\":[{\"Hosts\":{\"cpu_count\":4,\"host_name\":\"h1\"}}]}";
+    String reorderedServices = "{\"configurations\": {\"hdfs-site\": {\"properties\": {\"b\": \"2\", \"a\": \"1\"}}}, \"services\": []}";
+
+    assertEquals(cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, HOSTS, SERVICES),
+        cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, reorderedHosts, reorderedServices));
+  }
+
+  @Test
+  public void testKeyDependsOnCommandAndContent() {
+    StackAdvisorResponseCache cache = new StackAdvisorResponseCache(10);
+    String key = cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, HOSTS, SERVICES);
+
+    assertFalse(key.equals(cache.getKey(StackAdvisorCommandType.VALIDATE_CONFIGURATIONS, HOSTS, SERVICES)));
+    assertFalse(key.equals(cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, HOSTS,
+        SERVICES.replace("\"2\"", "\"3\""))));
+  }
+
+  @Test
+  public void testResultsAreDroppedOnStackReload() {
+    StackAdvisorResponseCache cache = new StackAdvisorResponseCache(10);
+    Object stackDefinitions = new Object();
+    String key = cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, HOSTS, SERVICES);
+
+    cache.validate(stackDefinitions);
+    cache.put(key, "{}");
+    cache.validate(stackDefinitions);
+    assertEquals("{}", cache.get(key));
+    assertEquals(1, cache.getHitCount());
+
+    cache.validate(new Object());
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    StackAdvisorResponseCache cache = new StackAdvisorResponseCache(2);
+    for (int i = 0; i < 5; i++) {
+      cache.put(cache.getKey(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS, HOSTS, "{\"i\": " + i + "}"), "{}");
+    }
+
+    assertEquals(2, cache.size());
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services.stackadvisor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * StackAdvisorWorkerPool unit tests, using a shell script speaking the worker
+ * protocol in place of the stack advisor script.
+ */
+public class StackAdvisorWorkerPoolTest {
+
+  /**
+   * Writes its process id to the output file and answers per command:
+   * recommend-configurations fails, validate-configurations makes the worker
+   * exit and validate-component-layout never answers.
+   */
+  private static final String WORKER_SCRIPT = "echo ready\n" +
+      "while IFS=\"$(printf '\\t')\" read -r action hosts services out err; do\n" +
+      "  echo $$ > \"$out\"\n" +
+      "  case \"$action\" in\n" +
+      "    recommend-configurations) echo 1 ;;\n" +
+      "    validate-configurations) exit 1 ;;\n" +
+      "    validate-component-layout) sleep 30 ;;\n" +
+      "    *) echo 0 ;;\n" +
+      "  esac\n" +
+      "done\n";
+
+  private TemporaryFolder temp = new TemporaryFolder();
+  private File worker;
+  private File output;
+  private StackAdvisorWorkerPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    temp.create();
+    worker = temp.newFile("worker.sh");
+    output = new File(temp.getRoot(), "stackadvisor.out");
+    FileUtils.writeStringToFile(worker, WORKER_SCRIPT, StandardCharsets.UTF_8);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (pool != null) {
+      pool.shutdown();
+    }
+    temp.delete();
+  }
+
+  @Test
+  public void testWorkerIsReused() throws Exception {
+    pool = createPool(100, 10000);
+
+    assertEquals(0, run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT));
+    String pid = readPid();
+    assertEquals(1, run(StackAdvisorCommandType.RECOMMEND_CONFIGURATIONS));
+    assertEquals(pid, readPid());
+    assertEquals(1, pool.getIdleWorkers());
+  }
+
+  @Test
+  public void testWorkerIsRecycled() throws Exception {
+    pool = createPool(2, 10000);
+
+    run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+    String pid = readPid();
+    run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+    assertEquals(pid, readPid());
+    assertEquals(0, pool.getIdleWorkers());
+
+    run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+    assertFalse(pid.equals(readPid()));
+  }
+
+  @Test
+  public void testExitedWorkerIsReplaced() throws Exception {
+    pool = createPool(100, 10000);
+
+    run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+    String pid = readPid();
+    try {
+      run(StackAdvisorCommandType.VALIDATE_CONFIGURATIONS);
+      fail("Expected StackAdvisorException");
+    } catch (StackAdvisorException expected) {
+      // the worker exited without answering
+    }
+
+    assertEquals(0, run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT));
+    assertFalse(pid.equals(readPid()));
+  }
+
+  @Test
+  public void testHungWorkerIsKilled() throws Exception {
+    pool = createPool(100, 500);
+
+    try {
+      run(StackAdvisorCommandType.VALIDATE_COMPONENT_LAYOUT);
+      fail("Expected StackAdvisorException");
+    } catch (StackAdvisorException expected) {
+      // the worker did not answer in time
+    }
+
+    assertEquals(0, pool.getIdleWorkers());
+    assertEquals(0, run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT));
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    pool = createPool(100, 10000);
+
+    run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+    assertEquals(1, pool.getIdleWorkers());
+
+    pool.shutdown();
+    assertEquals(0, pool.getIdleWorkers());
+    try {
+      run(StackAdvisorCommandType.RECOMMEND_COMPONENT_LAYOUT);
+      fail("Expected StackAdvisorException");
+    } catch (StackAdvisorException expected) {
+      // no worker is started after shutdown
+    }
+    assertEquals(0, pool.getIdleWorkers());
+  }
+
+  private StackAdvisorWorkerPool createPool(int maxRequests, long timeoutMillis) {
+    return new StackAdvisorWorkerPool(Arrays.asList("sh", worker.getAbsolutePath()),
+        Collections.emptyMap(), 1, maxRequests, timeoutMillis);
+  }
+
+  private int run(StackAdvisorCommandType saCommandType) throws StackAdvisorException {
+    File root = temp.getRoot();
+    return pool.run(saCommandType, new File(root, "hosts.json").getPath(),
+        new File(root, "services.json").getPath(), output.getPath(),
+        new File(root, "stackadvisor.err").getPath());
+  }
+
+  private String readPid() throws Exception {
+    return FileUtils.readFileToString(output, StandardCharsets.UTF_8).trim();
+  }
+}
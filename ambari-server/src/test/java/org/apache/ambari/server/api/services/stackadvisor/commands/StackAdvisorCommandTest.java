@@ -29,6 +29,8 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
@@ -55,6 +57,7 @@ import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest.StackAdvisorRequestBuilder;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequestException;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponse;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponseCache;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRunner;
 import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommand.StackAdvisorData;
 import org.apache.ambari.server.controller.internal.AmbariServerConfigurationHandler;
@@ -212,6 +215,49 @@ public class StackAdvisorCommandTest {
     assertEquals(requestId, result.getId());
   }
 
+  @Test
+  public void testInvoke_cachedResult() throws StackAdvisorException {
+    final String testResourceString = "{\"type\": \"success\"}";
+    final File recommendationsDir = temp.newFolder("recommendationDir");
+    final int requestId = 2;
+    StackAdvisorRunner saRunner = mock(StackAdvisorRunner.class);
+    AmbariMetaInfo metaInfo = mock(AmbariMetaInfo.class);
+    doReturn(Collections.emptyList()).when(metaInfo).getStackParentVersions(anyString(), anyString());
+    final StackAdvisorCommand<TestResource> command = spy(new TestStackAdvisorCommand(
+        recommendationsDir, "1w", ServiceInfo.ServiceAdvisorType.PYTHON, requestId,
+        saRunner, metaInfo, null));
+    command.setResponseCache(new StackAdvisorResponseCache(10));
+
+    StackAdvisorRequest request = StackAdvisorRequestBuilder.forStack("stackName", "stackVersion")
+        .build();
+
+    String hostsJSON = "{\"hosts\" : \"localhost\"}";
+    String servicesJSON = "{\"services\" : \"HDFS\"}";
+    StackAdvisorData data = new StackAdvisorData(hostsJSON, servicesJSON);
+    doReturn(hostsJSON).when(command).getHostsInformation(request);
+    doReturn(servicesJSON).when(command).getServicesInformation(request);
+    doReturn(data).when(command)
+        .adjust(any(StackAdvisorData.class), any(StackAdvisorRequest.class));
+
+    doAnswer(invocation -> {
+      String resultFilePath = String.format("%s/%s", requestId, command.getResultFileName());
+      File resultFile = new File(recommendationsDir, resultFilePath);
+      resultFile.getParentFile().mkdirs();
+      FileUtils.writeStringToFile(resultFile, testResourceString, Charset.defaultCharset());
+      return null;
+    }).when(saRunner).runScript(any(ServiceInfo.ServiceAdvisorType.class),
+            any(StackAdvisorCommandType.class), any(File.class));
+
+    TestResource first = command.invoke(request, ServiceInfo.ServiceAdvisorType.PYTHON);
+    TestResource second = command.invoke(request, ServiceInfo.ServiceAdvisorType.PYTHON);
+
+    assertEquals("success", second.getType());
+    assertEquals(requestId, second.getId());
+    assertTrue(first != second);
+    verify(saRunner, times(1)).runScript(any(ServiceInfo.ServiceAdvisorType.class),
+        any(StackAdvisorCommandType.class), any(File.class));
+  }
+
   @Test
   public void testPopulateStackHierarchy() throws Exception {
     File file = mock(File.class);
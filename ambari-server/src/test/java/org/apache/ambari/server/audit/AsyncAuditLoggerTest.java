@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.audit;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.audit.event.AuditEvent;
+import org.apache.ambari.server.audit.event.LoginAuditEvent;
+import org.apache.ambari.server.configuration.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AsyncAuditLoggerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRingBufferOfferAndDrain() {
+    AuditEventRingBuffer<Integer> buffer = new AuditEventRingBuffer<>(3);
+    assertEquals(4, buffer.capacity());
+    assertTrue(buffer.isEmpty());
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertFalse(buffer.offer(4));
+    assertEquals(4, buffer.size());
+
+    List<Integer> drained = new ArrayList<>();
+    assertEquals(3, buffer.drainTo(drained, 3));
+    assertTrue(buffer.offer(5));
+    assertEquals(2, buffer.drainTo(drained, 10));
+    assertEquals(Arrays.asList(0, 1, 2, 3, 5), drained);
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test(timeout = 30000)
+  public void testRingBufferConcurrentProducers() throws Exception {
+    final AuditEventRingBuffer<Integer> buffer = new AuditEventRingBuffer<>(64);
+    final int producers = 4;
+    final int perProducer = 10000;
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final int base = p * perProducer;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < perProducer; i++) {
+            while (!buffer.offer(base + i)) {
+              Thread.yield();
+            }
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    List<Integer> drained = new ArrayList<>();
+    while (drained.size() < producers * perProducer) {
+      if (buffer.drainTo(drained, 32) == 0) {
+        Thread.yield();
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Collections.sort(drained);
+    for (int i = 0; i < drained.size(); i++) {
+      assertEquals(i, (int) drained.get(i));
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testEventsAreWrittenInBatches() throws Exception {
+    RecordingAuditLogger inner = new RecordingAuditLogger(100);
+    AuditLogStatistics statistics = new AuditLogStatistics();
+    AsyncAuditLogger logger = new AsyncAuditLogger(inner, createConfiguration("block", 16), statistics);
+
+    for (int i = 0; i < 100; i++) {
+      logger.log(createEvent(i));
+    }
+
+    assertTrue(inner.latch.await(10, TimeUnit.SECONDS));
+    assertEquals(100, inner.events.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Long.valueOf(i), inner.events.get(i).getTimestamp());
+    }
+    assertEquals(0, statistics.getDropped());
+  }
+
+  @Test(timeout = 30000)
+  public void testDropPolicyCountsDroppedEvents() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    RecordingAuditLogger inner = new RecordingAuditLogger(1) {
+      @Override
+      public void log(List<AuditEvent> batch) {
+        super.log(batch);
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    AuditLogStatistics statistics = new AuditLogStatistics();
+    AsyncAuditLogger logger = new AsyncAuditLogger(inner, createConfiguration("drop", 2), statistics);
+
+    // the writer takes the first event and then blocks
+    logger.log(createEvent(0));
+    assertTrue(inner.latch.await(10, TimeUnit.SECONDS));
+
+    for (int i = 1; i <= 10; i++) {
+      logger.log(createEvent(i));
+    }
+    assertEquals(2, statistics.getQueueDepth());
+    assertEquals(8, statistics.getDropped());
+    release.countDown();
+  }
+
+  @Test(timeout = 30000)
+  public void testSpilledEventsAreReplayed() throws Exception {
+    final CountDownLatch taken = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    RecordingAuditLogger inner = new RecordingAuditLogger(11) {
+      @Override
+      public void log(List<AuditEvent> batch) {
+        super.log(batch);
+        taken.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    File spillFile = new File(temporaryFolder.getRoot(), "audit-overflow.log");
+    AuditLogStatistics statistics = new AuditLogStatistics();
+    AsyncAuditLogger logger = new AsyncAuditLogger(inner,
+        createConfiguration("spill", 2, spillFile.getAbsolutePath()), statistics);
+
+    // the writer takes the first event and then blocks, so all but two of the others are spilled
+    logger.log(createEvent(0));
+    assertTrue(taken.await(10, TimeUnit.SECONDS));
+    for (int i = 1; i <= 10; i++) {
+      logger.log(createEvent(i));
+    }
+    assertEquals(8, statistics.getSpilled());
+    release.countDown();
+
+    assertTrue(inner.latch.await(10, TimeUnit.SECONDS));
+    List<Long> timestamps = new ArrayList<>();
+    for (AuditEvent event : inner.events) {
+      timestamps.add(event.getTimestamp());
+    }
+    Collections.sort(timestamps);
+    for (int i = 0; i <= 10; i++) {
+      assertEquals(Long.valueOf(i), timestamps.get(i));
+    }
+    waitForDeletion(new File(spillFile.getPath() + AsyncAuditLogger.REPLAY_SUFFIX));
+    assertEquals(8, statistics.getReplayed());
+  }
+
+  @Test(timeout = 30000)
+  public void testSpillFileOfPreviousRunIsReplayedOnStart() throws Exception {
+    File spillFile = new File(temporaryFolder.getRoot(), "audit-overflow.log");
+    AuditEvent multiLine = new AuditLoggerDefaultImpl.FormattedAuditEvent(2000L,
+        "User(admin), Operation(Request), Details(first line" + System.lineSeparator() + "second line)");
+    List<String> lines = Arrays.asList(
+        AuditLoggerDefaultImpl.format(createEvent(1000)),
+        AuditLoggerDefaultImpl.format(multiLine),
+        AuditLoggerDefaultImpl.format(createEvent(3000)));
+    Files.write(spillFile.toPath(), lines, StandardCharsets.UTF_8);
+
+    RecordingAuditLogger inner = new RecordingAuditLogger(3);
+    AuditLogStatistics statistics = new AuditLogStatistics();
+    new AsyncAuditLogger(inner, createConfiguration("spill", 16, spillFile.getAbsolutePath()), statistics);
+
+    assertTrue(inner.latch.await(10, TimeUnit.SECONDS));
+    assertEquals(3, inner.events.size());
+    assertEquals(Long.valueOf(1000), inner.events.get(0).getTimestamp());
+    assertEquals(createEvent(1000).getAuditMessage(), inner.events.get(0).getAuditMessage());
+    assertEquals(Long.valueOf(2000), inner.events.get(1).getTimestamp());
+    assertEquals(multiLine.getAuditMessage(), inner.events.get(1).getAuditMessage());
+    assertEquals(Long.valueOf(3000), inner.events.get(2).getTimestamp());
+    assertFalse(spillFile.exists());
+    waitForDeletion(new File(spillFile.getPath() + AsyncAuditLogger.REPLAY_SUFFIX));
+  }
+
+  private void waitForDeletion(File file) throws InterruptedException {
+    while (file.exists()) {
+      Thread.sleep(10);
+    }
+  }
+
+  private Configuration createConfiguration(String overflowPolicy, int capacity) {
+    return createConfiguration(overflowPolicy, capacity, null);
+  }
+
+  private Configuration createConfiguration(String overflowPolicy, int capacity, String spillFile) {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.isAuditLogEnabled()).andReturn(true).anyTimes();
+    expect(configuration.getAuditLoggerCapacity()).andReturn(capacity).anyTimes();
+    expect(configuration.getAuditLoggerBatchSize()).andReturn(8).anyTimes();
+    expect(configuration.getAuditLoggerOverflowPolicy()).andReturn(overflowPolicy).anyTimes();
+    expect(configuration.getAuditLoggerSpillFile()).andReturn(spillFile).anyTimes();
+    replay(configuration);
+    return configuration;
+  }
+
+  private AuditEvent createEvent(long timestamp) {
+    return LoginAuditEvent.builder()
+        .withTimestamp(timestamp)
+        .withRemoteIp("127.0.0.1")
+        .withUserName("user")
+        .build();
+  }
+
+  private static class RecordingAuditLogger implements AuditLogger {
+    final List<AuditEvent> events = Collections.synchronizedList(new ArrayList<AuditEvent>());
+    final CountDownLatch latch;
+
+    RecordingAuditLogger(int expected) {
+      latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void log(AuditEvent event) {
+      log(Collections.singletonList(event));
+    }
+
+    @Override
+    public void log(List<AuditEvent> batch) {
+      events.addAll(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        latch.countDown();
+      }
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+  }
+}
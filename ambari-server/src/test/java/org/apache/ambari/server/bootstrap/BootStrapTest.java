@@ -207,6 +207,84 @@ public class BootStrapTest extends TestCase {
   }
 
 
+  @Test
+  public void testStreamedHostStatus() throws Exception {
+    if (System.getProperty("os.name").contains("Windows")) {
+      return;
+    }
+    Properties properties = new Properties();
+    String bootdir = temp.newFolder("bootdir").toString();
+    String metadetadir = temp.newFolder("metadetadir").toString();
+    String serverVersionFilePath = temp.newFolder("serverVersionFilePath").toString();
+
+    properties.setProperty(Configuration.BOOTSTRAP_DIRECTORY.getKey(), bootdir);
+    properties.setProperty(Configuration.BOOTSTRAP_SCRIPT.getKey(), prepareFakeBootstrapCommand(bootdir));
+    properties.setProperty(Configuration.BOOTSTRAP_PARALLEL_INITIAL.getKey(), "5");
+    properties.setProperty(Configuration.BOOTSTRAP_PARALLEL_MAX.getKey(), "50");
+    properties.setProperty(Configuration.SRVR_KSTR_DIR.getKey(), "target" + File.separator + "classes");
+    properties.setProperty(Configuration.METADATA_DIR_PATH.getKey(), metadetadir);
+    properties.setProperty(Configuration.SERVER_VERSION_FILE.getKey(), serverVersionFilePath);
+    properties.setProperty(Configuration.SHARED_RESOURCES_DIR.getKey(), "src/test/resources/");
+    properties.setProperty(Configuration.MPACKS_V2_STAGING_DIR_PATH.getKey(), "src/main/resources/mpacks-v2");
+    Configuration conf = new Configuration(properties);
+    AmbariMetaInfo ambariMetaInfo = new AmbariMetaInfo(conf);
+    BootStrapImpl impl = new BootStrapImpl(conf, ambariMetaInfo);
+    impl.init();
+    SshHostInfo info = new SshHostInfo();
+    info.setSshKey("xyz");
+    ArrayList<String> hosts = new ArrayList<>();
+    hosts.add("host1");
+    hosts.add("host2");
+    info.setHosts(hosts);
+    info.setUser("user");
+    info.setUserRunAs("root");
+    BSResponse response = impl.runBootStrap(info);
+
+    /* the hosts are reported as finished while the script is still running */
+    boolean streamed = false;
+    int num = 0;
+    BootStrapStatus status = impl.getStatus(response.getRequestId());
+    while (status.getStatus() == BSStat.RUNNING && num < 500) {
+      List<BSHostStatus> hostStatus = status.getHostsStatus();
+      if (hostStatus != null && hostStatus.size() == 2
+          && "DONE".equals(hostStatus.get(0).getStatus())
+          && "FAILED".equals(hostStatus.get(1).getStatus())) {
+        streamed = true;
+      }
+      Thread.sleep(100);
+      num++;
+      status = impl.getStatus(response.getRequestId());
+    }
+
+    Assert.assertTrue(streamed);
+    Assert.assertEquals(BSStat.ERROR, status.getStatus());
+    Assert.assertEquals("bootstrapping host1", status.getHostsStatus().get(0).getLog());
+    Assert.assertEquals("1", status.getHostsStatus().get(1).getStatusCode());
+    Assert.assertTrue(status.getLog(), status.getLog().contains("parallelism=5-50"));
+  }
+
+  /**
+   * Creates a script which stands in for bootstrap.py: it reports each host as
+   * bootstrapped (host2 failing) without connecting to it, then keeps running for a while.
+   */
+  private static String prepareFakeBootstrapCommand(String bootdir) throws IOException {
+    String script = "#!/bin/sh\n" +
+        "for host in $(echo \"$1\" | tr ',' ' '); do\n" +
+        "  echo \"BOOTSTRAP_HOST_STATUS:$host:RUNNING:\"\n" +
+        "  code=0; status=DONE\n" +
+        "  if [ \"$host\" = \"host2\" ]; then code=1; status=FAILED; fi\n" +
+        "  echo \"bootstrapping $host\" > \"$2/$host.log\"\n" +
+        "  echo $code > \"$2/$host.done\"\n" +
+        "  echo \"BOOTSTRAP_HOST_STATUS:$host:$status:$code\"\n" +
+        "done\n" +
+        "echo \"parallelism=${13}-${14}\"\n" +
+        "sleep 3\n";
+    File fakeBootstrap = new File(bootdir, "fake_bootstrap.sh");
+    FileUtils.writeStringToFile(fakeBootstrap, script, Charset.defaultCharset());
+    fakeBootstrap.setExecutable(true);
+    return fakeBootstrap.getPath();
+  }
+
   @Test
   public void testPolling() throws Exception {
     File tmpFolder = temp.newFolder("bootstrap");
@@ -236,4 +314,12 @@ public class BootStrapTest extends TestCase {
 
   }
 
+  @Test
+  public void testTimeoutAllowsSequentialBootstrap() {
+    // bootstrap.py may end up bootstrapping one host at a time
+    Assert.assertEquals(300000L, BSRunner.calculateBSTimeout(0));
+    Assert.assertEquals(300000L, BSRunner.calculateBSTimeout(1));
+    Assert.assertEquals(100 * 300000L, BSRunner.calculateBSTimeout(100));
+  }
+
 }
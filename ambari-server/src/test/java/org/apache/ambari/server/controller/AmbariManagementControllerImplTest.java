@@ -41,6 +41,7 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -2278,6 +2279,9 @@ public class AmbariManagementControllerImplTest {
     users.processLdapSync(capture(ldapBatchDtoCapture));
     expectLastCall().anyTimes();
 
+    ldapDataPopulator.commitIncrementalSync();
+    expectLastCall().times(3);
+
     //replay
     replay(ldapDataPopulator, clusters, actionDBAccessor, ambariMetaInfo, users, ldapBatchDto);
 
@@ -2304,6 +2308,39 @@ public class AmbariManagementControllerImplTest {
     verify(ldapDataPopulator, clusters, users, ldapBatchDto);
   }
 
+  @Test
+  public void testSynchronizeLdapUsersAndGroupsIncrementalFailure() throws Exception {
+    Injector injector = Guice.createInjector(Modules.override(new InMemoryDefaultTestModule()).with(new MockModule()));
+
+    LdapBatchDto ldapBatchDto = createNiceMock(LdapBatchDto.class);
+
+    expect(ldapDataPopulator.synchronizeChangedLdapUsers(anyObject(LdapBatchDto.class), eq(false))).andReturn(ldapBatchDto);
+    expect(ldapDataPopulator.synchronizeChangedLdapGroups(anyObject(LdapBatchDto.class), eq(false))).andReturn(ldapBatchDto);
+
+    users.processLdapSync(anyObject(LdapBatchDto.class));
+    expectLastCall().andThrow(new IllegalStateException("failed"));
+
+    // the changes seen must not be kept when the batch could not be applied
+    ldapDataPopulator.rollbackIncrementalSync();
+    expectLastCall().once();
+
+    replay(ldapDataPopulator, clusters, actionDBAccessor, ambariMetaInfo, users, ldapBatchDto);
+
+    AmbariManagementControllerImpl controller = injector.getInstance(AmbariManagementControllerImpl.class);
+
+    try {
+      controller.synchronizeLdapUsersAndGroups(
+          new LdapSyncRequest(LdapSyncSpecEntity.SyncType.INCREMENTAL, false),
+          new LdapSyncRequest(LdapSyncSpecEntity.SyncType.INCREMENTAL, false));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertFalse(controller.isLdapSyncInProgress());
+
+    verify(ldapDataPopulator, users);
+  }
+
   private void setAmbariMetaInfo(AmbariMetaInfo metaInfo, AmbariManagementController controller) throws NoSuchFieldException, IllegalAccessException {
     //need to set private field 'ambariMetaInfo' which is injected at runtime
     Class<?> c = controller.getClass();
@@ -39,6 +39,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -2421,6 +2422,158 @@ public class BlueprintConfigurationProcessorTest extends EasyMockSupport {
     assertTrue("There are properties with multiple updaters: " + duplicates, duplicates.isEmpty());
   }
 
+  /**
+   * Applying the updaters configuration by configuration must give the same result as the per property loop, which
+   * updated the cluster config and then every host group config for one property before moving on to the next.
+   */
+  @Test
+  public void testDoUpdateForClusterCreate_SameResultAsPerPropertyUpdates() throws Exception {
+    Map<String, Map<String, String>> stackProperties = new HashMap<>(ImmutableMap.of(
+      "hdfs-site", new HashMap<>(ImmutableMap.of(
+        "dfs.http.address", "testhost2",
+        "dfs.namenode.http-address", "localhost:50070")),
+      "myservice-env", new HashMap<>(ImmutableMap.of(
+        "myservice_master_address", "%HOSTGROUP::group1%:8080",
+        "myservice_some_other_property", "some_value"))));
+
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    properties.put("yarn-site", new HashMap<>(ImmutableMap.of(
+      "yarn.resourcemanager.hostname", "localhost",
+      "yarn.resourcemanager.address", "localhost:8050")));
+    properties.put("hbase-site", new HashMap<>(ImmutableMap.of(
+      "hbase.zookeeper.quorum", "localhost")));
+    properties.put("core-site", new HashMap<>(ImmutableMap.of(
+      "fs.defaultFS", "localhost:8020")));
+    properties.put("hive-site", new HashMap<>(ImmutableMap.of(
+      "hive.metastore.uris", "thrift://localhost:9083")));
+    properties.put("oozie-site", new HashMap<>(ImmutableMap.of(
+      "oozie.base.url", "http://localhost:11000/oozie")));
+    properties.put("livy2-conf", new HashMap<>(ImmutableMap.of(
+      "livy.server.recovery.state-store.url", "/livy2-recovery")));
+
+    Configuration clusterConfig = new Configuration(properties, emptyMap());
+    clusterConfig.setParentConfiguration(new Configuration(stackProperties, emptyMap()));
+
+    Map<String, Map<String, String>> group1Properties = new HashMap<>(ImmutableMap.of(
+      "hdfs-site", new HashMap<>(ImmutableMap.of(
+        "dfs.https.address", "testhost3")),
+      "myservice-site", new HashMap<>(ImmutableMap.of(
+        "myservice_slave_address", "%HOSTGROUP::group1%:8080"))));
+    group1Properties.get("hdfs-site").put("null_property", null);
+    TestHostGroup group1 = new TestHostGroup("group1",
+      Sets.newHashSet("NAMENODE", "SECONDARY_NAMENODE", "RESOURCEMANAGER", "ZOOKEEPER_SERVER", "HIVE_METASTORE"),
+      Collections.singleton("testhost"), new Configuration(group1Properties, emptyMap()));
+
+    Map<String, Map<String, String>> group2Properties = new HashMap<>(ImmutableMap.of(
+      "yarn-site", new HashMap<>(ImmutableMap.of(
+        "yarn.resourcemanager.resource-tracker.address", "localhost")),
+      "hbase-site", new HashMap<>(ImmutableMap.of(
+        "hbase.zookeeper.quorum", "localhost"))));
+    TestHostGroup group2 = new TestHostGroup("group2",
+      Sets.newHashSet("DATANODE", "HDFS_CLIENT", "ZOOKEEPER_SERVER", "OOZIE_SERVER"),
+      Sets.newHashSet("testhost2", "testhost2a", "testhost2b"), new Configuration(group2Properties, emptyMap()));
+
+    TestHostGroup group3 = new TestHostGroup("group3",
+      Sets.newHashSet("HDFS_CLIENT", "ZOOKEEPER_CLIENT"), Sets.newHashSet("testhost3", "testhost3a"));
+
+    ClusterTopology topology = createClusterTopology(bp, clusterConfig, Lists.newArrayList(group1, group2, group3));
+    BlueprintConfigurationProcessor configProcessor = new BlueprintConfigurationProcessor(topology);
+
+    List<Configuration> configurations = new ArrayList<>();
+    configurations.add(clusterConfig);
+    for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+      configurations.add(groupInfo.getConfiguration());
+    }
+    List<Map<String, Map<String, String>>> initialProperties = copyProperties(configurations);
+
+    Set<String> expectedTypesUpdated = new HashSet<>();
+    doGeneralPropertyUpdatesPerProperty(configProcessor, topology, clusterConfig.getFullProperties(), expectedTypesUpdated);
+    List<Map<String, Map<String, String>>> expectedProperties = copyProperties(configurations);
+
+    for (int i = 0; i < configurations.size(); i++) {
+      Map<String, Map<String, String>> configProperties = configurations.get(i).getProperties();
+      configProperties.clear();
+      configProperties.putAll(initialProperties.get(i));
+    }
+
+    Set<String> configTypesUpdated = new HashSet<>();
+    configProcessor.doGeneralPropertyUpdatesForClusterCreate(clusterConfig, clusterConfig.getFullProperties(),
+      configTypesUpdated);
+
+    assertEquals(expectedProperties, copyProperties(configurations));
+    assertEquals(expectedTypesUpdated, configTypesUpdated);
+    assertEquals("testhost", clusterConfig.getPropertyValue("yarn-site", "yarn.resourcemanager.hostname"));
+  }
+
+  /**
+   * The general property updates as they were applied before the updaters were applied configuration by
+   * configuration: for each property, the cluster config first and then every host group config, recomputing the
+   * host group properties each time.
+   */
+  private void doGeneralPropertyUpdatesPerProperty(BlueprintConfigurationProcessor configProcessor,
+                                                   ClusterTopology topology,
+                                                   Map<String, Map<String, String>> clusterProps,
+                                                   Set<String> configTypesUpdated) throws Exception {
+    Method updateValue = BlueprintConfigurationProcessor.class.getDeclaredMethod("updateValue", String.class,
+      String.class, String.class, BlueprintConfigurationProcessor.PropertyUpdater.class, Map.class,
+      Configuration.class, Set.class, boolean.class);
+    updateValue.setAccessible(true);
+    Method getAllPropertiesWithUpdaters = BlueprintConfigurationProcessor.class.getDeclaredMethod(
+      "getAllPropertiesWithUpdaters", Collection.class);
+    getAllPropertiesWithUpdaters.setAccessible(true);
+    Method applyDefaultUpdater = BlueprintConfigurationProcessor.class.getDeclaredMethod("applyDefaultUpdater",
+      Configuration.class, Map.class, Set.class, Set.class);
+    applyDefaultUpdater.setAccessible(true);
+
+    Configuration clusterConfig = topology.getConfiguration();
+    Collection<Map<String, Map<String, BlueprintConfigurationProcessor.PropertyUpdater>>> updaters =
+      configProcessor.createCollectionOfUpdaters();
+    for (Map<String, Map<String, BlueprintConfigurationProcessor.PropertyUpdater>> updaterMap : updaters) {
+      for (Map.Entry<String, Map<String, BlueprintConfigurationProcessor.PropertyUpdater>> entry : updaterMap.entrySet()) {
+        String configType = entry.getKey();
+        for (Map.Entry<String, BlueprintConfigurationProcessor.PropertyUpdater> updaterEntry : entry.getValue().entrySet()) {
+          String propertyName = updaterEntry.getKey();
+          Map<String, String> typeMap = clusterProps.get(configType);
+          if (typeMap != null && typeMap.get(propertyName) != null &&
+            null == updateValue.invoke(configProcessor, configType, propertyName, typeMap.get(propertyName),
+              updaterEntry.getValue(), clusterProps, clusterConfig, configTypesUpdated, true)) {
+            continue;
+          }
+          for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+            Configuration hgConfig = groupInfo.getConfiguration();
+            Map<String, Map<String, String>> hgConfigProps = hgConfig.getFullProperties(1);
+            Map<String, String> hgTypeMap = hgConfigProps.get(configType);
+            if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
+              updateValue.invoke(configProcessor, configType, propertyName, hgTypeMap.get(propertyName),
+                updaterEntry.getValue(), hgConfigProps, hgConfig, configTypesUpdated, true);
+            }
+          }
+        }
+      }
+    }
+
+    Object propertiesWithUpdaters = getAllPropertiesWithUpdaters.invoke(configProcessor, updaters);
+    applyDefaultUpdater.invoke(configProcessor, clusterConfig, clusterConfig.getFullProperties(1), configTypesUpdated,
+      propertiesWithUpdaters);
+    for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+      Configuration hgConfig = groupInfo.getConfiguration();
+      applyDefaultUpdater.invoke(configProcessor, hgConfig, hgConfig.getFullProperties(1), configTypesUpdated,
+        propertiesWithUpdaters);
+    }
+  }
+
+  private static List<Map<String, Map<String, String>>> copyProperties(List<Configuration> configurations) {
+    List<Map<String, Map<String, String>>> copies = new ArrayList<>();
+    for (Configuration configuration : configurations) {
+      Map<String, Map<String, String>> copy = new HashMap<>();
+      for (Map.Entry<String, Map<String, String>> entry : configuration.getProperties().entrySet()) {
+        copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+      }
+      copies.add(copy);
+    }
+    return copies;
+  }
+
 
   @Test
   public void testDoUpdateForClusterCreate_SingleHostProperty__defaultValue_providedInParent() throws Exception {
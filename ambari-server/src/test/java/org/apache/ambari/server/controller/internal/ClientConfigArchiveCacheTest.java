@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.events.ClusterConfigChangedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ClientConfigArchiveCache unit tests.
+ */
+public class ClientConfigArchiveCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testKeyDependsOnScriptAndCommand() {
+    ClientConfigArchiveCache cache = createCache(10);
+    String key = cache.getKey("/PIG/package/scripts/pig_client.py", "{\"configurations\": {\"a\": \"1\"}}");
+
+    assertEquals(key, cache.getKey("/PIG/package/scripts/pig_client.py", "{\"configurations\": {\"a\": \"1\"}}"));
+    assertFalse(key.equals(cache.getKey("/PIG/package/scripts/pig_client.py", "{\"configurations\": {\"a\": \"2\"}}")));
+    assertFalse(key.equals(cache.getKey("/HIVE/package/scripts/hive_client.py", "{\"configurations\": {\"a\": \"1\"}}")));
+    assertFalse(cache.getKey("c1(CLUSTER)", Arrays.asList("k1", "k2")).equals(
+        cache.getKey("c1(CLUSTER)", Arrays.asList("k2", "k1"))));
+  }
+
+  @Test
+  public void testArchivesAreCachedOnce() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    assertNull(cache.get("key"));
+
+    File first = writeArchive(cache.newArchiveFile("key"), "first");
+    File second = writeArchive(cache.newArchiveFile("key"), "second");
+    assertFalse(first.equals(second));
+
+    // an archive generated concurrently is dropped in favour of the cached one
+    cache.put("key", first).release();
+    ClientConfigArchiveCache.Archive cached = cache.put("key", second);
+    assertEquals(first, cached.getFile());
+    assertFalse(second.exists());
+    cached.release();
+
+    cached = cache.get("key");
+    assertEquals(first, cached.getFile());
+    cached.release();
+    assertEquals(0.5, cache.getHitRatio(), 0.01);
+  }
+
+  @Test
+  public void testArchivesAreDeletedOnConfigurationChange() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    ClientConfigArchiveCache.Archive archive = cache.put("key", writeArchive(cache.newArchiveFile("key"), "archive"));
+    archive.release();
+
+    cache.onConfigurationChangedEvent(new ClusterConfigChangedEvent("c1", "hdfs-site", "version2", 2L));
+    assertNull(cache.get("key"));
+    assertFalse(archive.getFile().exists());
+  }
+
+  @Test
+  public void testArchivesAreDeletedOnStackReload() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    Object stackDefinitions = new Object();
+
+    cache.validate(stackDefinitions);
+    ClientConfigArchiveCache.Archive archive = cache.put("key", writeArchive(cache.newArchiveFile("key"), "archive"));
+    archive.release();
+    cache.validate(stackDefinitions);
+    ClientConfigArchiveCache.Archive cached = cache.get("key");
+    assertEquals(archive, cached);
+    cached.release();
+
+    cache.validate(new Object());
+    assertNull(cache.get("key"));
+    assertFalse(archive.getFile().exists());
+  }
+
+  @Test
+  public void testCacheIsBounded() throws Exception {
+    ClientConfigArchiveCache cache = createCache(2);
+    for (int i = 0; i < 5; i++) {
+      cache.put("key" + i, writeArchive(cache.newArchiveFile("key" + i), "archive" + i)).release();
+    }
+
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.newArchiveFile("key").getParentFile().list().length);
+  }
+
+  @Test
+  public void testArchiveInUseIsDeletedOnceReleased() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    cache.put("key", writeArchive(cache.newArchiveFile("key"), "archive")).release();
+
+    // a download bundles the archive while the configurations change
+    ClientConfigArchiveCache.Archive archive = cache.get("key");
+    cache.onConfigurationChangedEvent(new ClusterConfigChangedEvent("c1", "hdfs-site", "version2", 2L));
+    assertNull(cache.get("key"));
+    assertEquals("archive", FileUtils.readFileToString(archive.getFile(), StandardCharsets.UTF_8));
+
+    archive.release();
+    assertFalse(archive.getFile().exists());
+  }
+
+  @Test
+  public void testArchiveIsRegeneratedWhileTheEvictedOneIsInUse() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    ClientConfigArchiveCache.Archive evicted = cache.put("key", writeArchive(cache.newArchiveFile("key"), "old"));
+    cache.onConfigurationChangedEvent(new ClusterConfigChangedEvent("c1", "hdfs-site", "version2", 2L));
+
+    ClientConfigArchiveCache.Archive archive = cache.put("key", writeArchive(cache.newArchiveFile("key"), "new"));
+    assertFalse(evicted.equals(archive));
+    evicted.release();
+    archive.release();
+
+    ClientConfigArchiveCache.Archive cached = cache.get("key");
+    assertEquals("new", FileUtils.readFileToString(cached.getFile(), StandardCharsets.UTF_8));
+    cached.release();
+    assertFalse(evicted.getFile().exists());
+  }
+
+  @Test
+  public void testDownloadStreamsArchive() throws Exception {
+    ClientConfigArchiveCache cache = createCache(10);
+    assertNull(cache.takeDownload());
+
+    cache.setDownload(cache.put("key", writeArchive(cache.newArchiveFile("key"), "archive")));
+    ClientConfigArchiveCache.Archive archive = cache.takeDownload();
+    assertNull(cache.takeDownload());
+
+    InputStream in = archive.openStream();
+    cache.onConfigurationChangedEvent(new ClusterConfigChangedEvent("c1", "hdfs-site", "version2", 2L));
+    assertEquals("archive", IOUtils.toString(in, StandardCharsets.UTF_8));
+    assertTrue(archive.getFile().exists());
+
+    // closing the stream releases the archive
+    in.close();
+    in.close();
+    assertFalse(archive.getFile().exists());
+  }
+
+  private ClientConfigArchiveCache createCache(int size) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.SERVER_TMP_DIR.getKey(), temporaryFolder.getRoot().getAbsolutePath());
+    properties.setProperty(Configuration.CLIENT_CONFIGS_CACHE_SIZE.getKey(), Integer.toString(size));
+
+    return new ClientConfigArchiveCache(new Configuration(properties), createNiceMock(AmbariEventPublisher.class));
+  }
+
+  private File writeArchive(File file, String content) throws Exception {
+    FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    return file;
+  }
+}
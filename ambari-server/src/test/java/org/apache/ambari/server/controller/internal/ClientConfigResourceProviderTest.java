@@ -26,13 +26,18 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -42,6 +47,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
@@ -56,6 +62,8 @@ import org.apache.ambari.server.controller.spi.ResourceProvider;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.apache.ambari.server.events.ClusterConfigChangedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.security.TestAuthenticationFactory;
 import org.apache.ambari.server.security.authorization.AuthorizationException;
 import org.apache.ambari.server.stack.StackManager;
@@ -77,10 +85,13 @@ import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.UserGroupInfo;
 import org.apache.ambari.server.state.ValueAttributesInfo;
 import org.apache.ambari.server.utils.StageUtils;
+import org.apache.commons.io.FileUtils;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.api.mockito.PowerMockito;
@@ -95,9 +106,13 @@ import org.springframework.security.core.context.SecurityContextHolder;
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({ClientConfigResourceProvider.class, StageUtils.class})
 public class ClientConfigResourceProviderTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @After
-  public void clearAuthentication() {
+  public void clearAuthentication() throws Exception {
     SecurityContextHolder.getContext().setAuthentication(null);
+    setArchiveCache(null);
   }
 
   @Test
@@ -209,6 +224,35 @@ public class ClientConfigResourceProviderTest {
     testGetResources(TestAuthenticationFactory.createNoRoleUser());
   }
 
+  @Test
+  public void testGetResourcesFromArchiveCache() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.SERVER_TMP_DIR.getKey(), temporaryFolder.getRoot().getAbsolutePath());
+    properties.setProperty(Configuration.CLIENT_CONFIGS_CACHE_SIZE.getKey(), "10");
+    ClientConfigArchiveCache cache = new ClientConfigArchiveCache(new Configuration(properties),
+        createNiceMock(AmbariEventPublisher.class));
+    setArchiveCache(cache);
+
+    testGetResources(TestAuthenticationFactory.createAdministrator());
+
+    // the archive of the component and the bundle of the service are cached
+    assertEquals(2, cache.size());
+    ClientConfigArchiveCache.Archive download = cache.takeDownload();
+    assertNotNull(download);
+    File bundle = download.getFile();
+    assertEquals(new File(temporaryFolder.getRoot(), "client-configs"),
+        bundle.getParentFile());
+
+    // the bundle outlives its eviction until the download is done with it
+    FileUtils.writeStringToFile(bundle, "bundle", StandardCharsets.UTF_8);
+    cache.onConfigurationChangedEvent(new ClusterConfigChangedEvent("c1", "pig-env", "version2", 2L));
+    assertEquals(0, cache.size());
+    assertTrue(bundle.exists());
+
+    download.release();
+    assertFalse(bundle.exists());
+  }
+
   @Test
   public void testGetResourcesFromCommonServicesForAdministrator() throws Exception {
     testGetResourcesFromCommonServices(TestAuthenticationFactory.createAdministrator());
@@ -488,6 +532,15 @@ public class ClientConfigResourceProviderTest {
     PowerMock.verifyAll();
   }
 
+  /**
+   * Sets the archive cache injected into the provider.
+   */
+  private static void setArchiveCache(ClientConfigArchiveCache cache) throws Exception {
+    Field field = ClientConfigResourceProvider.class.getDeclaredField("archiveCache");
+    field.setAccessible(true);
+    field.set(null, cache);
+  }
+
   private void testGetResourcesFromCommonServices(Authentication authentication) throws Exception {
     Resource.Type type = Resource.Type.ClientConfig;
 
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.junit.Test;
+
+/**
+ * IndexedClusterTopology unit tests.
+ */
+public class IndexedClusterTopologyTest {
+
+  @Test
+  public void testAssignmentsAreResolvedOnce() throws Exception {
+    ClusterTopology topology = createMock(ClusterTopology.class);
+    expect(topology.getHostGroupsForComponent("NAMENODE")).andReturn(asList("group1")).once();
+    expect(topology.getHostAssignmentsForComponent("NAMENODE")).andReturn(asList("host1")).once();
+    expect(topology.getHostGroupForHost("host1")).andReturn("group1").once();
+    expect(topology.getHostGroupForHost("host2")).andReturn(null).once();
+    replay(topology);
+
+    IndexedClusterTopology indexed = IndexedClusterTopology.of(topology);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(asList("group1"), asList(indexed.getHostGroupsForComponent("NAMENODE").toArray()));
+      assertEquals(asList("host1"), asList(indexed.getHostAssignmentsForComponent("NAMENODE").toArray()));
+      assertEquals("group1", indexed.getHostGroupForHost("host1"));
+      assertNull(indexed.getHostGroupForHost("host2"));
+    }
+    assertSame(indexed, IndexedClusterTopology.of(indexed));
+
+    verify(topology);
+  }
+
+  @Test
+  public void testAddingHostsClearsAssignments() throws Exception {
+    ClusterTopology topology = createMock(ClusterTopology.class);
+    expect(topology.getHostAssignmentsForComponent("DATANODE")).andReturn(asList("host1"));
+    topology.addHostToTopology("group1", "host2");
+    expectLastCall();
+    expect(topology.getHostAssignmentsForComponent("DATANODE")).andReturn(asList("host1", "host2"));
+    replay(topology);
+
+    IndexedClusterTopology indexed = new IndexedClusterTopology(topology);
+    assertEquals(1, indexed.getHostAssignmentsForComponent("DATANODE").size());
+    indexed.addHostToTopology("group1", "host2");
+    assertEquals(2, indexed.getHostAssignmentsForComponent("DATANODE").size());
+
+    verify(topology);
+  }
+
+  @Test
+  public void testHostNamesByHostGroup() {
+    HostGroupInfo group1 = new HostGroupInfo("group1");
+    group1.addHosts(asList("host1", "host2"));
+    HostGroupInfo group2 = new HostGroupInfo("group2");
+    group2.addHost("host3");
+    Map<String, HostGroupInfo> hostGroupInfo = new LinkedHashMap<>();
+    hostGroupInfo.put("group1", group1);
+    hostGroupInfo.put("group2", group2);
+
+    ClusterTopology topology = createMock(ClusterTopology.class);
+    expect(topology.getHostGroupInfo()).andReturn(hostGroupInfo).once();
+    replay(topology);
+
+    IndexedClusterTopology indexed = new IndexedClusterTopology(topology);
+    Map<String, Collection<String>> hosts = indexed.getHostNamesByHostGroup();
+    assertEquals(asList("group1", "group2"), asList(hosts.keySet().toArray()));
+    assertEquals(2, hosts.get("group1").size());
+    assertEquals(1, hosts.get("group2").size());
+    assertSame(hosts, indexed.getHostNamesByHostGroup());
+
+    verify(topology);
+  }
+}
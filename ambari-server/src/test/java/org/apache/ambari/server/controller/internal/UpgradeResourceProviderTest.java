@@ -39,6 +39,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
@@ -101,6 +102,8 @@ import org.apache.ambari.server.stack.upgrade.Direction;
 import org.apache.ambari.server.stack.upgrade.RegenerateKeytabsTask;
 import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeContext;
 import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradeHelper;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner.PlanningStatus;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.Config;
@@ -443,6 +446,63 @@ public class UpgradeResourceProviderTest extends EasyMockSupport {
     assertEquals("Save Cluster State", postClusterUpgradeItems.get(0).getText());
   }
 
+  /**
+   * Tests that an upgrade planned in the background is reported by the ID of its
+   * request until it has been created.
+   */
+  @Test
+  public void testCreateResourcesWithAsyncPlanning() throws Exception {
+    Cluster cluster = clusters.getCluster("c1");
+
+    Map<String, Object> requestProps = new HashMap<>();
+    requestProps.put(UpgradeResourceProvider.UPGRADE_CLUSTER_NAME, "c1");
+    requestProps.put(UpgradeResourceProvider.UPGRADE_REPO_VERSION_ID, String.valueOf(repoVersionEntity2200.getId()));
+    requestProps.put(UpgradeResourceProvider.UPGRADE_PACK, "upgrade_test");
+    requestProps.put(UpgradeResourceProvider.UPGRADE_TYPE, UpgradeType.ROLLING.toString());
+    requestProps.put(UpgradeResourceProvider.UPGRADE_SKIP_PREREQUISITE_CHECKS, Boolean.TRUE.toString());
+    requestProps.put(UpgradeResourceProvider.UPGRADE_DIRECTION, Direction.UPGRADE.name());
+    requestProps.put(UpgradeResourceProvider.UPGRADE_ASYNC_PLANNING, Boolean.TRUE.toString());
+
+    ResourceProvider upgradeResourceProvider = createProvider(amc);
+    Request request = PropertyHelper.getCreateRequest(Collections.singleton(requestProps), null);
+    RequestStatus status = upgradeResourceProvider.createResources(request);
+
+    Resource created = status.getAssociatedResources().iterator().next();
+    Long requestId = (Long) created.getPropertyValue(UpgradeResourceProvider.UPGRADE_REQUEST_ID);
+    assertNotNull(requestId);
+    assertNotNull(created.getPropertyValue(UpgradeResourceProvider.UPGRADE_PLANNING_STATUS));
+
+    // poll the upgrade as a client would until it has been planned
+    Predicate predicate = new PredicateBuilder()
+        .property(UpgradeResourceProvider.UPGRADE_REQUEST_ID).equals(requestId.toString()).and()
+        .property(UpgradeResourceProvider.UPGRADE_CLUSTER_NAME).equals("c1")
+        .toPredicate();
+    Request readRequest = PropertyHelper.getReadRequest(Collections.singleton("Upgrade"));
+
+    UpgradePlanner upgradePlanner = injector.getInstance(UpgradePlanner.class);
+    UpgradeEntity entity = null;
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+    while ((null == entity || null != upgradePlanner.getPlanning(requestId))
+        && System.currentTimeMillis() < deadline) {
+      for (Resource resource : upgradeResourceProvider.getResources(readRequest, predicate)) {
+        assertEquals(requestId, resource.getPropertyValue(UpgradeResourceProvider.UPGRADE_REQUEST_ID));
+        assertFalse(String.valueOf(resource.getPropertyValue(UpgradeResourceProvider.UPGRADE_PLANNING_ERROR)),
+            PlanningStatus.FAILED == resource.getPropertyValue(UpgradeResourceProvider.UPGRADE_PLANNING_STATUS));
+      }
+      entity = upgradeDao.findUpgradeByRequestId(requestId);
+      Thread.sleep(100);
+    }
+
+    assertNotNull(entity);
+    assertEquals(cluster.getClusterId(), entity.getClusterId().longValue());
+    assertEquals(3, entity.getUpgradeGroups().size());
+
+    Resource upgrade = upgradeResourceProvider.getResources(readRequest, predicate).iterator().next();
+    assertNull(upgrade.getPropertyValue(UpgradeResourceProvider.UPGRADE_PLANNING_STATUS));
+    assertEquals(1, upgradePlanner.getUpgradesPlanned());
+    assertEquals(0, upgradePlanner.getPlanningFailures());
+  }
+
   @Test
   public void testCreateResourcesWithAutoSkipAll() throws Exception {
     Cluster cluster = clusters.getCluster("c1");
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.agent.AgentSessionManager;
+import org.apache.ambari.server.agent.stomp.dto.AckReport;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+
+/**
+ * MessageEmitter tests.
+ */
+public class MessageEmitterTest {
+
+  private static final Long HOST_ID = 1L;
+
+  private final BlockingQueue<Long> emittedMessageIds = new LinkedBlockingQueue<>();
+  private final BlockingQueue<AmbariEvent> publishedEvents = new LinkedBlockingQueue<>();
+
+  private AgentSessionManager agentSessionManager;
+  private SimpMessagingTemplate simpMessagingTemplate;
+  private AmbariEventPublisher ambariEventPublisher;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    agentSessionManager = createNiceMock(AgentSessionManager.class);
+    expect(agentSessionManager.getSessionId(anyLong())).andReturn("session").anyTimes();
+
+    simpMessagingTemplate = createNiceMock(SimpMessagingTemplate.class);
+    simpMessagingTemplate.convertAndSendToUser(eq("session"), anyString(), anyObject(), anyObject(Map.class));
+    expectLastCall().andAnswer(() -> {
+      Map<String, Object> headers = (Map<String, Object>) getCurrentArguments()[3];
+      Map<String, List<String>> nativeHeaders =
+          (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+      emittedMessageIds.add(Long.valueOf(nativeHeaders.get("messageId").get(0)));
+      return null;
+    }).anyTimes();
+
+    ambariEventPublisher = createNiceMock(AmbariEventPublisher.class);
+    ambariEventPublisher.publish(anyObject(AmbariEvent.class));
+    expectLastCall().andAnswer(() -> {
+      publishedEvents.add((AmbariEvent) getCurrentArguments()[0]);
+      return null;
+    }).anyTimes();
+
+    replay(agentSessionManager, simpMessagingTemplate, ambariEventPublisher);
+  }
+
+  @Test
+  public void testCommandsAreEmittedOneAtATimePerHost() throws Exception {
+    MessageEmitter emitter = new DefaultMessageEmitter(agentSessionManager, simpMessagingTemplate,
+        ambariEventPublisher, 3, 60);
+    emitter.onHostRegister(new HostRegisteredEvent("host1", HOST_ID));
+
+    emitter.emitMessageRetriable(createCommand());
+    emitter.emitMessageRetriable(createCommand());
+
+    Long first = emittedMessageIds.poll(10, TimeUnit.SECONDS);
+    assertNotNull(first);
+    assertNull(emittedMessageIds.poll(200, TimeUnit.MILLISECONDS));
+    assertEquals(2, emitter.getDeliveryStatistics().get(HOST_ID).getPending());
+
+    // an ack for another command does not release the host
+    emitter.processReceiveReport(HOST_ID, createAck(first + 100));
+    assertNull(emittedMessageIds.poll(200, TimeUnit.MILLISECONDS));
+
+    emitter.processReceiveReport(HOST_ID, createAck(first));
+    Long second = emittedMessageIds.poll(10, TimeUnit.SECONDS);
+    assertNotNull(second);
+    emitter.processReceiveReport(HOST_ID, createAck(second));
+
+    MessageEmitter.DeliveryStatistics statistics = emitter.getDeliveryStatistics().get(HOST_ID);
+    assertEquals(2, statistics.getDelivered());
+    assertEquals(0, statistics.getRetries());
+    assertEquals(0, statistics.getPending());
+    assertTrue(statistics.getMaxDeliveryLatency() >= statistics.getAverageDeliveryLatency());
+    assertTrue(publishedEvents.isEmpty());
+  }
+
+  @Test
+  public void testUnacknowledgedCommandIsRetriedUntilHostIsReleased() throws Exception {
+    MessageEmitter emitter = new DefaultMessageEmitter(agentSessionManager, simpMessagingTemplate,
+        ambariEventPublisher, 1, 1);
+    emitter.onHostRegister(new HostRegisteredEvent("host1", HOST_ID));
+
+    emitter.emitMessageRetriable(createCommand());
+    emitter.emitMessageRetriable(createCommand());
+
+    Long first = emittedMessageIds.poll(10, TimeUnit.SECONDS);
+    assertEquals(first, emittedMessageIds.poll(10, TimeUnit.SECONDS));
+    assertEquals(1, emitter.getDeliveryStatistics().get(HOST_ID).getRetries());
+
+    AmbariEvent event = publishedEvents.poll(10, TimeUnit.SECONDS);
+    assertTrue(event instanceof MessageNotDelivered);
+    assertEquals(HOST_ID, ((MessageNotDelivered) event).getHostId());
+
+    // the queued command is dropped along with the host
+    assertFalse(emitter.getDeliveryStatistics().containsKey(HOST_ID));
+    assertNull(emittedMessageIds.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testEachAttemptSchedulesASingleRetry() throws Exception {
+    MessageEmitter emitter = new DefaultMessageEmitter(agentSessionManager, simpMessagingTemplate,
+        ambariEventPublisher, 2, 1);
+    emitter.onHostRegister(new HostRegisteredEvent("host1", HOST_ID));
+
+    emitter.emitMessageRetriable(createCommand());
+
+    // the first emit and exactly one retry per deadline
+    Long first = emittedMessageIds.poll(10, TimeUnit.SECONDS);
+    assertEquals(first, emittedMessageIds.poll(10, TimeUnit.SECONDS));
+    assertEquals(first, emittedMessageIds.poll(10, TimeUnit.SECONDS));
+    assertTrue(publishedEvents.poll(10, TimeUnit.SECONDS) instanceof MessageNotDelivered);
+    assertNull(emittedMessageIds.poll(1500, TimeUnit.MILLISECONDS));
+    assertTrue(publishedEvents.isEmpty());
+    emitter.stop();
+  }
+
+  @Test
+  public void testStopCancelsRetries() throws Exception {
+    MessageEmitter emitter = new DefaultMessageEmitter(agentSessionManager, simpMessagingTemplate,
+        ambariEventPublisher, 3, 1);
+    emitter.onHostRegister(new HostRegisteredEvent("host1", HOST_ID));
+
+    emitter.emitMessageRetriable(createCommand());
+    assertNotNull(emittedMessageIds.poll(10, TimeUnit.SECONDS));
+
+    emitter.stop();
+    emitter.emitMessageRetriable(createCommand());
+
+    assertNull(emittedMessageIds.poll(2000, TimeUnit.MILLISECONDS));
+    assertTrue(publishedEvents.isEmpty());
+  }
+
+  private ExecutionCommandEvent createCommand() {
+    return new ExecutionCommandEvent(HOST_ID, 0L, new TreeMap<>());
+  }
+
+  private AckReport createAck(Long messageId) {
+    AckReport ackReport = new AckReport();
+    ackReport.setStatus(AckReport.AckStatus.OK);
+    ackReport.setMessageId(messageId);
+    return ackReport;
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.ambari.server.logging;
 
 import static org.easymock.EasyMock.expect;
 
+import java.util.Properties;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -92,4 +93,87 @@ public class LockFactoryTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void instanceReadWriteLockIsNotListedIfProfilingIsEnabled() {
+    Configuration config = createNiceMock(Configuration.class);
+    expect(config.isServerLocksProfilingEnabled()).andReturn(true);
+    replayAll();
+
+    LockFactory factory = new LockFactory(config);
+    ReadWriteLock lock = factory.newInstanceReadWriteLock("instanceLock");
+    factory.newReadWriteLock("sharedLock");
+    Assert.assertTrue(lock instanceof ProfiledReentrantReadWriteLock);
+
+    // the factory keeps no reference to the locks of instances
+    StringBuilder sb = new StringBuilder();
+    factory.debugDump(sb);
+    Assert.assertTrue(sb.toString(), sb.toString().contains("sharedLock"));
+    Assert.assertFalse(sb.toString(), sb.toString().contains("instanceLock"));
+
+    verifyAll();
+  }
+
+  @Test
+  public void telemetryIsDisabledByDefault() {
+    LockFactory factory = new LockFactory(new Configuration(new Properties()));
+
+    Assert.assertFalse(factory.isTelemetryEnabled());
+    Assert.assertFalse(factory.newLock("label") instanceof TelemetryReentrantLock);
+    Assert.assertFalse(factory.newReadWriteLock("label") instanceof TelemetryReentrantReadWriteLock);
+    Assert.assertTrue(factory.getLockStatistics().isEmpty());
+  }
+
+  @Test
+  public void createsTelemetryLockIfTelemetryIsEnabled() {
+    Configuration config = createNiceMock(Configuration.class);
+    expect(config.isServerLocksProfilingEnabled()).andReturn(false);
+    expect(config.isServerLocksTelemetryEnabled()).andReturn(true);
+    expect(config.getServerLocksTelemetrySampleRate()).andReturn(1);
+    replayAll();
+
+    LockFactory factory = new LockFactory(config);
+    Lock lock = factory.newLock("label");
+    Lock other = factory.newLock("label");
+
+    Assert.assertTrue(lock instanceof TelemetryReentrantLock);
+    Assert.assertSame(((TelemetryReentrantLock) lock).getStatistics(), ((TelemetryReentrantLock) other).getStatistics());
+    Assert.assertEquals(1, factory.getLockStatistics().size());
+
+    verifyAll();
+  }
+
+  @Test
+  public void createsTelemetryReadWriteLockIfTelemetryIsEnabled() {
+    Configuration config = createNiceMock(Configuration.class);
+    expect(config.isServerLocksProfilingEnabled()).andReturn(false);
+    expect(config.isServerLocksTelemetryEnabled()).andReturn(true);
+    expect(config.getServerLocksTelemetrySampleRate()).andReturn(1);
+    replayAll();
+
+    LockFactory factory = new LockFactory(config);
+    ReadWriteLock lock = factory.newReadWriteLock("label");
+
+    Assert.assertTrue(lock instanceof TelemetryReentrantReadWriteLock);
+    Assert.assertEquals("label.read", ((TelemetryReentrantReadWriteLock) lock).readLock().getStatistics().getLabel());
+    Assert.assertEquals("label.write", ((TelemetryReentrantReadWriteLock) lock).writeLock().getStatistics().getLabel());
+
+    verifyAll();
+  }
+
+  @Test
+  public void profilingTakesPrecedenceOverTelemetry() {
+    Configuration config = createNiceMock(Configuration.class);
+    expect(config.isServerLocksProfilingEnabled()).andReturn(true);
+    expect(config.isServerLocksTelemetryEnabled()).andReturn(true).anyTimes();
+    replayAll();
+
+    LockFactory factory = new LockFactory(config);
+
+    Assert.assertTrue(factory.newLock() instanceof ProfiledReentrantLock);
+    Assert.assertFalse(factory.isTelemetryEnabled());
+    Assert.assertTrue(factory.getLockStatistics().isEmpty());
+
+    verifyAll();
+  }
+
 }
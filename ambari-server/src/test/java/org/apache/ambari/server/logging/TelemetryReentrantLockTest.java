@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.logging;
+
+import static org.easymock.EasyMock.expect;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.easymock.EasyMockSupport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class TelemetryReentrantLockTest extends EasyMockSupport {
+
+  private static final String LABEL = "label";
+
+  @Test
+  public void waitAndHoldTimesAreRecorded() {
+    Ticker ticker = createMock(Ticker.class);
+    LockStatistics statistics = new LockStatistics(LABEL, 1);
+    Lock testSubject = new TelemetryReentrantLock(statistics, ticker);
+    timesAreRecorded(testSubject, statistics, ticker);
+  }
+
+  @Test
+  public void readLockWaitAndHoldTimesAreRecorded() {
+    Ticker ticker = createMock(Ticker.class);
+    LockStatistics statistics = new LockStatistics(LABEL, 1);
+    Lock testSubject = new TelemetryReentrantReadWriteLock(statistics, new LockStatistics(LABEL, 1), ticker).readLock();
+    timesAreRecorded(testSubject, statistics, ticker);
+  }
+
+  @Test
+  public void writeLockWaitAndHoldTimesAreRecorded() {
+    Ticker ticker = createMock(Ticker.class);
+    LockStatistics statistics = new LockStatistics(LABEL, 1);
+    Lock testSubject = new TelemetryReentrantReadWriteLock(new LockStatistics(LABEL, 1), statistics, ticker).writeLock();
+    timesAreRecorded(testSubject, statistics, ticker);
+  }
+
+  @Test
+  public void reentrantAcquisitionIsHeldUntilLastRelease() {
+    Ticker ticker = createMock(Ticker.class);
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(1L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(1L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(2L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(2L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(9L));
+    replayAll();
+
+    LockStatistics statistics = new LockStatistics(LABEL, 1);
+    Lock testSubject = new TelemetryReentrantLock(statistics, ticker);
+
+    testSubject.lock();
+    testSubject.lock();
+    testSubject.unlock();
+    testSubject.unlock();
+
+    Assert.assertEquals(2, statistics.getAcquisitions());
+    Assert.assertEquals(8000.0, statistics.getAverageHoldMicros(), 0.001);
+    verifyAll();
+  }
+
+  @Test
+  public void readLocksHeldTogetherAreTimedSeparately() {
+    Ticker ticker = createMock(Ticker.class);
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(1L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(1L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(2L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(2L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(5L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(9L));
+    replayAll();
+
+    LockStatistics firstStatistics = new LockStatistics(LABEL, 1);
+    LockStatistics secondStatistics = new LockStatistics(LABEL, 1);
+    Lock first = new TelemetryReentrantReadWriteLock(firstStatistics, new LockStatistics(LABEL, 1), ticker).readLock();
+    Lock second = new TelemetryReentrantReadWriteLock(secondStatistics, new LockStatistics(LABEL, 1), ticker).readLock();
+
+    first.lock();
+    second.lock();
+    second.unlock();
+    first.unlock();
+
+    Assert.assertEquals(3000.0, secondStatistics.getAverageHoldMicros(), 0.001);
+    Assert.assertEquals(8000.0, firstStatistics.getAverageHoldMicros(), 0.001);
+    verifyAll();
+  }
+
+  @Test
+  public void contendedAcquisitionIsCounted() throws Exception {
+    LockStatistics statistics = new LockStatistics(LABEL, 1);
+    TelemetryReentrantReadWriteLock lock = new TelemetryReentrantReadWriteLock(new LockStatistics(LABEL, 1), statistics, Ticker.systemTicker());
+
+    lock.readLock().lock();
+    Thread writer = new Thread(() -> {
+      lock.writeLock().lock();
+      lock.writeLock().unlock();
+    });
+    writer.start();
+    while (!lock.hasQueuedThreads()) {
+      Thread.sleep(1);
+    }
+    lock.readLock().unlock();
+    writer.join();
+
+    lock.writeLock().lock();
+    lock.writeLock().unlock();
+
+    Assert.assertEquals(2, statistics.getAcquisitions());
+    Assert.assertEquals(1, statistics.getContended());
+  }
+
+  private void timesAreRecorded(Lock testSubject, LockStatistics statistics, Ticker ticker) {
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(1L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(4L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(9L));
+    replayAll();
+
+    testSubject.lock();
+    testSubject.unlock();
+
+    Assert.assertEquals(1, statistics.getAcquisitions());
+    Assert.assertEquals(1, statistics.getSampledAcquisitions());
+    Assert.assertEquals(0, statistics.getContended());
+    Assert.assertEquals(3000.0, statistics.getAverageWaitMicros(), 0.001);
+    Assert.assertEquals(5000.0, statistics.getAverageHoldMicros(), 0.001);
+    Assert.assertEquals(4096L, statistics.getWaitPercentileMicros(99));
+    Assert.assertEquals(8192L, statistics.getHoldPercentileMicros(50));
+    verifyAll();
+  }
+}
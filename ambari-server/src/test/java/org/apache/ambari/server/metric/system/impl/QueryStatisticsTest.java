@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metric.system.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.metrics.system.impl.QueryStatistics;
+import org.junit.Test;
+
+public class QueryStatisticsTest {
+
+  private static final String QUERY = "HostRoleCommandEntity.findByRequestIdAndStatuses";
+
+  @Test
+  public void testMetricsCoverQueriesSincePreviousSnapshot() {
+    QueryStatistics statistics = new QueryStatistics(1000L);
+    statistics.record(QUERY, TimeUnit.MICROSECONDS.toNanos(100L), 10);
+    statistics.record(QUERY, TimeUnit.MICROSECONDS.toNanos(300L), 30);
+    statistics.record(QUERY, TimeUnit.MILLISECONDS.toNanos(3L), 2);
+    statistics.record(QUERY, TimeUnit.MILLISECONDS.toNanos(100L), 2);
+
+    Map<String, Double> metrics = toMap(statistics.getMetrics(1L));
+    assertEquals(4.0, metrics.get("query." + QUERY + ".calls"), 0.001);
+    assertEquals(11.0, metrics.get("query." + QUERY + ".rows"), 0.001);
+    assertEquals(25.85, metrics.get("query." + QUERY + ".avg"), 0.001);
+    assertEquals(0.512, metrics.get("query." + QUERY + ".p50"), 0.001);
+    assertEquals(131.072, metrics.get("query." + QUERY + ".p99"), 0.001);
+
+    // nothing new was recorded
+    assertTrue(statistics.getMetrics(2L).isEmpty());
+
+    statistics.record(QUERY, TimeUnit.MILLISECONDS.toNanos(3L), 1);
+    metrics = toMap(statistics.getMetrics(3L));
+    assertEquals(1.0, metrics.get("query." + QUERY + ".calls"), 0.001);
+    assertEquals(4.096, metrics.get("query." + QUERY + ".p99"), 0.001);
+  }
+
+  @Test
+  public void testSlowQueryThreshold() {
+    QueryStatistics statistics = new QueryStatistics(1000L);
+    assertFalse(statistics.isSlow(TimeUnit.MILLISECONDS.toNanos(999L)));
+    assertTrue(statistics.isSlow(TimeUnit.MILLISECONDS.toNanos(1000L)));
+
+    statistics = new QueryStatistics(0L);
+    assertFalse(statistics.isSlow(TimeUnit.HOURS.toNanos(1L)));
+  }
+
+  @Test
+  public void testParameterShapeHidesValues() {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    parameters.put("requestId", 12L);
+    parameters.put("statuses", Arrays.asList("PENDING", "QUEUED"));
+    parameters.put("hostName", null);
+
+    assertEquals("{requestId=Long, statuses=List[2], hostName=null}", QueryStatistics.getParameterShape(parameters));
+    assertEquals("{}", QueryStatistics.getParameterShape(null));
+  }
+
+  private static Map<String, Double> toMap(List<SingleMetric> metrics) {
+    Map<String, Double> map = new HashMap<>();
+    for (SingleMetric metric : metrics) {
+      map.put(metric.getMetricName(), metric.getValue());
+    }
+    return map;
+  }
+}
@@ -36,6 +36,7 @@ import java.util.UUID;
 import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
 import org.apache.ambari.server.controller.AlertCurrentRequest;
 import org.apache.ambari.server.controller.AlertHistoryRequest;
 import org.apache.ambari.server.controller.internal.AlertHistoryResourceProvider;
@@ -226,6 +227,28 @@ public class AlertsDAOTest {
     assertEquals(5, currentAlerts.size());
   }
 
+  /**
+   * Test looking up current alerts by their IDs.
+   */
+  @Test
+  public void testFindCurrentByIds() {
+    List<AlertCurrentEntity> currentAlerts = m_dao.findCurrent();
+    assertEquals(5, currentAlerts.size());
+
+    List<Long> alertIds = new ArrayList<>();
+    alertIds.add(currentAlerts.get(0).getAlertId());
+    alertIds.add(currentAlerts.get(2).getAlertId());
+    alertIds.add(Long.MAX_VALUE);
+
+    List<AlertCurrentEntity> found = m_dao.findCurrentByIds(alertIds);
+    assertEquals(2, found.size());
+    for (AlertCurrentEntity current : found) {
+      assertTrue(alertIds.contains(current.getAlertId()));
+    }
+
+    assertTrue(m_dao.findCurrentByIds(Collections.emptyList()).isEmpty());
+  }
+
   /**
    * Test looking up current alerts by definition ID.
    */
@@ -1472,4 +1495,62 @@ public class AlertsDAOTest {
     currentAlerts = m_dao.findCurrent();
     assertEquals(4, currentAlerts.size());
   }
+
+  /**
+   * Tests that alert history can be purged in chunks by id.
+   */
+  @Test
+  public void testChunkedCleanup() throws Exception {
+    calendar.clear();
+    calendar.set(2014, Calendar.JANUARY, 1);
+    calendar.add(Calendar.DATE, 20);
+    TimeBasedCleanupPolicy policy = new TimeBasedCleanupPolicy(m_cluster.getClusterName(),
+        calendar.getTimeInMillis());
+
+    // 21 entries are old enough, 2 of which are the current alerts of the first definitions
+    assertEquals(19, m_dao.countCleanupIds(policy, 0));
+
+    List<Long> ids = m_dao.findCleanupIds(policy, 0, 10);
+    assertEquals(10, ids.size());
+    for (int i = 1; i < ids.size(); i++) {
+      assertTrue(ids.get(i - 1) < ids.get(i));
+    }
+
+    assertTrue(m_dao.cleanupIds(policy, ids) >= 10);
+
+    long checkpoint = ids.get(ids.size() - 1);
+    assertEquals(9, m_dao.countCleanupIds(policy, checkpoint));
+    assertEquals(9, m_dao.findCleanupIds(policy, checkpoint, 100).size());
+    assertEquals(40, m_dao.findAll(m_cluster.getClusterId()).size());
+    assertEquals(5, m_dao.findCurrent().size());
+  }
+
+  /**
+   * Tests that the chunked cleanup keeps current alerts, and the history they
+   * point to, however old they are.
+   */
+  @Test
+  public void testChunkedCleanupKeepsCurrentAlerts() throws Exception {
+    TimeBasedCleanupPolicy policy = new TimeBasedCleanupPolicy(m_cluster.getClusterName(),
+        System.currentTimeMillis());
+
+    List<AlertCurrentEntity> currentAlerts = m_dao.findCurrent();
+    assertEquals(5, currentAlerts.size());
+
+    assertEquals(45, m_dao.countCleanupIds(policy, 0));
+    long checkpoint = 0;
+    List<Long> ids;
+    while (!(ids = m_dao.findCleanupIds(policy, checkpoint, 10)).isEmpty()) {
+      m_dao.cleanupIds(policy, ids);
+      checkpoint = ids.get(ids.size() - 1);
+    }
+    assertEquals(0, m_dao.countCleanupIds(policy, 0));
+
+    assertEquals(5, m_dao.findCurrent().size());
+    List<AlertHistoryEntity> history = m_dao.findAll(m_cluster.getClusterId());
+    assertEquals(5, history.size());
+    for (AlertCurrentEntity current : currentAlerts) {
+      assertNotNull(m_dao.findById(current.getAlertHistory().getAlertId()));
+    }
+  }
 }
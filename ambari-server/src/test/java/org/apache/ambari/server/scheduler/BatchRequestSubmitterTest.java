@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.scheduler;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.ambari.server.api.resources.ResourceInstance;
+import org.apache.ambari.server.api.services.Request;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.ambari.server.security.authorization.User;
+import org.apache.ambari.server.security.authorization.Users;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Tests {@link BatchRequestSubmitter}.
+ */
+public class BatchRequestSubmitterTest {
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void testCreateResource() {
+    BatchRequestSubmitter submitter = new BatchRequestSubmitter(createMock(Users.class));
+
+    ResourceInstance resource = submitter.createResource("/clusters/c1/requests");
+    assertEquals(Resource.Type.Request, resource.getResourceDefinition().getType());
+    assertEquals("c1", resource.getKeyValueMap().get(Resource.Type.Cluster));
+    assertNull(resource.getKeyValueMap().get(Resource.Type.Request));
+
+    resource = submitter.createResource("api/v1/clusters/c1/hosts/h1/host_components/DATANODE");
+    assertEquals(Resource.Type.HostComponent, resource.getResourceDefinition().getType());
+    assertEquals("c1", resource.getKeyValueMap().get(Resource.Type.Cluster));
+    assertEquals("h1", resource.getKeyValueMap().get(Resource.Type.Host));
+    assertEquals("DATANODE", resource.getKeyValueMap().get(Resource.Type.HostComponent));
+
+    resource = submitter.createResource("/clusters/c1/services/HDFS/components/DATANODE");
+    assertEquals(Resource.Type.Component, resource.getResourceDefinition().getType());
+    assertEquals("HDFS", resource.getKeyValueMap().get(Resource.Type.Service));
+
+    // the resources of any other URI are not served in-process
+    assertNull(submitter.createResource("/clusters/c1/configurations"));
+    assertNull(submitter.createResource("/hosts/h1/host_components"));
+    assertNull(submitter.createResource("/"));
+  }
+
+  @Test
+  public void testSubmitAsScheduleUser() {
+    Users users = createMock(Users.class);
+    UserEntity userEntity = createNiceMock(UserEntity.class);
+    User user = createNiceMock(User.class);
+    expect(users.getUserEntity(1)).andReturn(userEntity).once();
+    expect(userEntity.getActive()).andReturn(true).anyTimes();
+    expect(users.getUser(userEntity)).andReturn(user).once();
+    expect(users.getUserAuthorities(userEntity)).andReturn(Collections.emptyList()).once();
+    expect(user.getUserName()).andReturn("admin").anyTimes();
+    replay(users, userEntity, user);
+
+    Map<String, Object> handled = new HashMap<>();
+    BatchRequestSubmitter submitter = new BatchRequestSubmitter(users) {
+      @Override
+      protected Response handleRequest(HttpHeaders headers, String body, UriInfo uriInfo,
+                                       Request.Type requestType, ResourceInstance resource) {
+        handled.put("user", AuthorizationHelper.getAuthenticatedName());
+        handled.put("body", body);
+        handled.put("type", requestType);
+        handled.put("uri", uriInfo.getRequestUri().toString());
+        return Response.status(202).build();
+      }
+    };
+
+    Response response = submitter.submit("/clusters/c1/requests", "body", "post", 1);
+
+    verify(users, userEntity, user);
+    assertEquals(202, response.getStatus());
+    assertEquals("admin", handled.get("user"));
+    assertEquals("body", handled.get("body"));
+    assertEquals(Request.Type.POST, handled.get("type"));
+    assertEquals("/clusters/c1/requests", handled.get("uri"));
+
+    // the user is only authenticated while the request is handled
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  public void testSubmitAsInactiveUser() {
+    Users users = createMock(Users.class);
+    UserEntity userEntity = createNiceMock(UserEntity.class);
+    expect(users.getUserEntity(1)).andReturn(userEntity).once();
+    expect(userEntity.getActive()).andReturn(false).anyTimes();
+    replay(users, userEntity);
+
+    BatchRequestSubmitter submitter = new BatchRequestSubmitter(users);
+    Response response = submitter.submit("/clusters/c1/requests", "body", "POST", 1);
+
+    verify(users, userEntity);
+    assertEquals(Response.Status.FORBIDDEN.getStatusCode(), response.getStatus());
+  }
+
+  @Test
+  public void testSubmitUnsupportedRequest() {
+    Users users = createMock(Users.class);
+    replay(users);
+
+    BatchRequestSubmitter submitter = new BatchRequestSubmitter(users);
+    assertNull(submitter.submit("/clusters/c1/configurations", "body", "POST", 1));
+    assertNull(submitter.submit("/clusters/c1/requests", "body", "PATCH", 1));
+
+    verify(users);
+  }
+}
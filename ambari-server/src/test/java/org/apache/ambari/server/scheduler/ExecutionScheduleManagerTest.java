@@ -39,14 +39,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.core.Response;
+
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
 import org.apache.ambari.server.actionmanager.ActionDBAccessor;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
+import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.security.authorization.internal.InternalTokenStorage;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
@@ -59,6 +64,8 @@ import org.apache.ambari.server.state.scheduler.BatchSettings;
 import org.apache.ambari.server.state.scheduler.RequestExecution;
 import org.apache.ambari.server.state.scheduler.RequestExecutionFactory;
 import org.apache.ambari.server.state.scheduler.Schedule;
+import org.apache.ambari.server.topology.LogicalRequest;
+import org.apache.ambari.server.topology.TopologyManager;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.AfterClass;
@@ -375,7 +382,7 @@ public class ExecutionScheduleManagerTest {
     ExecutionScheduleManager scheduleManager = createMockBuilder(ExecutionScheduleManager.class).
         withConstructor(configurationMock, executionSchedulerMock, tokenStorageMock, clustersMock,
             actionDBAccessorMock, gson).
-        addMockedMethods("performApiRequest", "updateBatchRequest").createNiceMock();
+        addMockedMethods("performLocalApiRequest", "performApiRequest", "updateBatchRequest").createNiceMock();
 
     expect(clustersMock.getCluster(clusterName)).andReturn(clusterMock).anyTimes();
     expect(clusterMock.getAllRequestExecutions()).andReturn(executionMap).anyTimes();
@@ -391,6 +398,8 @@ public class ExecutionScheduleManagerTest {
     batchRequestMock.setRequestId(5L);
     expectLastCall().once();
 
+    // the resource of the URI is not served in-process
+    expect(scheduleManager.performLocalApiRequest(eq(uri), eq(body), eq(type), eq(userId))).andReturn(null).once();
     expect(scheduleManager.performApiRequest(eq(uri), eq(body), eq(type), eq(userId))).andReturn(batchRequestResponse).once();
 
     scheduleManager.updateBatchRequest(eq(executionId), eq(batchId), eq(clusterName), eq(batchRequestResponse), eq(false));
@@ -409,6 +418,76 @@ public class ExecutionScheduleManagerTest {
 
   }
 
+  @Test
+  public void testExecuteBatchRequestInProcess() throws Exception {
+    Clusters clustersMock = createMock(Clusters.class);
+    Cluster clusterMock = createMock(Cluster.class);
+    RequestExecution requestExecutionMock = createMock(RequestExecution.class);
+    Configuration configurationMock = createNiceMock(Configuration.class);
+    ExecutionScheduler executionSchedulerMock = createMock(ExecutionScheduler.class);
+    InternalTokenStorage tokenStorageMock = createMock(InternalTokenStorage.class);
+    ActionDBAccessor actionDBAccessorMock = createMock(ActionDBAccessor.class);
+    BatchRequestSubmitter batchRequestSubmitterMock = createMock(BatchRequestSubmitter.class);
+    Gson gson = new Gson();
+    BatchRequest batchRequestMock = createMock(BatchRequest.class);
+
+    long executionId = 11L;
+    long batchId = 1L;
+    long requestId = 5L;
+    String clusterName = "mycluster";
+    String uri = "/clusters/mycluster/requests";
+    String type = "POST";
+    String body = "body";
+    Integer userId = 1;
+    Map<Long, RequestExecution> executionMap = new HashMap<>();
+    executionMap.put(executionId, requestExecutionMock);
+
+    EasyMock.expect(configurationMock.getApiSSLAuthentication()).andReturn(Boolean.FALSE);
+    EasyMock.replay(configurationMock);
+
+    // the request is not sent to the API
+    ExecutionScheduleManager scheduleManager = createMockBuilder(ExecutionScheduleManager.class).
+        withConstructor(configurationMock, executionSchedulerMock, tokenStorageMock, clustersMock,
+            actionDBAccessorMock, gson).
+        addMockedMethods("performApiRequest", "updateBatchRequest").createMock();
+    scheduleManager.batchRequestSubmitter = batchRequestSubmitterMock;
+
+    expect(clustersMock.getCluster(clusterName)).andReturn(clusterMock).anyTimes();
+    expect(clusterMock.getAllRequestExecutions()).andReturn(executionMap).anyTimes();
+
+    expect(requestExecutionMock.getBatchRequest(eq(batchId))).andReturn(batchRequestMock).once();
+    expect(requestExecutionMock.getRequestBody(eq(batchId))).andReturn(body).once();
+    expect(requestExecutionMock.getAuthenticatedUserId()).andReturn(userId).once();
+
+    expect(batchRequestMock.getUri()).andReturn(uri).once();
+    expect(batchRequestMock.getType()).andReturn(type).once();
+
+    batchRequestMock.setRequestId(requestId);
+    expectLastCall().once();
+
+    expect(batchRequestSubmitterMock.submit(uri, body, type, userId)).andReturn(
+        Response.status(202).entity("{\"Requests\" : {\"id\" : 5, \"status\" : \"Accepted\"}}").build()).once();
+
+    Capture<BatchRequestResponse> batchRequestResponse = EasyMock.newCapture();
+    scheduleManager.updateBatchRequest(eq(executionId), eq(batchId), eq(clusterName), capture(batchRequestResponse), eq(false));
+    expectLastCall().once();
+
+    actionDBAccessorMock.setSourceScheduleForRequest(eq(requestId), eq(executionId));
+    expectLastCall().once();
+
+    replay(clusterMock, clustersMock, requestExecutionMock, executionSchedulerMock,
+        tokenStorageMock, batchRequestMock, batchRequestSubmitterMock, scheduleManager, actionDBAccessorMock);
+
+    assertEquals(Long.valueOf(requestId), scheduleManager.executeBatchRequest(executionId, batchId, clusterName));
+
+    verify(clusterMock, clustersMock, configurationMock, requestExecutionMock, executionSchedulerMock,
+        tokenStorageMock, batchRequestMock, batchRequestSubmitterMock, scheduleManager, actionDBAccessorMock);
+
+    assertEquals(202, batchRequestResponse.getValue().getReturnCode());
+    assertEquals(Long.valueOf(requestId), batchRequestResponse.getValue().getRequestId());
+    assertEquals("Accepted", batchRequestResponse.getValue().getStatus());
+  }
+
   @Test
   public void testUpdateBatchRequest() throws Exception {
     Clusters clustersMock = createMock(Clusters.class);
@@ -462,22 +541,72 @@ public class ExecutionScheduleManagerTest {
   @Test
   public void testGetBatchRequestResponse() throws Exception {
     Clusters clustersMock = createMock(Clusters.class);
-    Cluster clusterMock = createMock(Cluster.class);
     Configuration configurationMock = createNiceMock(Configuration.class);
     ExecutionScheduler executionSchedulerMock = createMock(ExecutionScheduler.class);
     InternalTokenStorage tokenStorageMock = createMock(InternalTokenStorage.class);
     ActionDBAccessor actionDBAccessorMock = createMock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = createMock(HostRoleCommandDAO.class);
+    TopologyManager topologyManagerMock = createMock(TopologyManager.class);
     Gson gson = new Gson();
 
     long requestId = 5L;
     String clusterName = "mycluster";
-    String apiUri = "api/v1/clusters/mycluster/requests/5";
-    Capture<String> uriCapture = EasyMock.newCapture();
 
-    BatchRequestResponse batchRequestResponse = new BatchRequestResponse();
-    batchRequestResponse.setStatus(HostRoleStatus.IN_PROGRESS.toString());
-    batchRequestResponse.setRequestId(requestId);
-    batchRequestResponse.setReturnCode(202);
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary = new HashMap<>();
+    summary.put(1L, HostRoleCommandStatusSummaryDTO.create().completed(3).failed(1));
+    summary.put(2L, HostRoleCommandStatusSummaryDTO.create().inProgress(2).timedout(1));
+
+    EasyMock.expect(configurationMock.getApiSSLAuthentication()).andReturn(Boolean.FALSE);
+    EasyMock.replay(configurationMock);
+
+    ExecutionScheduleManager scheduleManager = createMockBuilder(ExecutionScheduleManager.class).
+        withConstructor(configurationMock, executionSchedulerMock, tokenStorageMock, clustersMock,
+            actionDBAccessorMock, gson).
+        addMockedMethods("performApiGetRequest").createNiceMock();
+    scheduleManager.hostRoleCommandDAO = hostRoleCommandDAOMock;
+    scheduleManager.topologyManager = topologyManagerMock;
+
+    expect(hostRoleCommandDAOMock.findAggregateCounts(requestId)).andReturn(summary).once();
+    expect(topologyManagerMock.getStageSummaries(requestId)).andReturn(
+        Collections.emptyMap()).once();
+    expect(topologyManagerMock.getRequest(requestId)).andReturn(null).once();
+
+    replay(clustersMock, executionSchedulerMock, tokenStorageMock, hostRoleCommandDAOMock,
+        topologyManagerMock, scheduleManager);
+
+    BatchRequestResponse batchRequestResponse =
+        scheduleManager.getBatchRequestResponse(requestId, clusterName);
+
+    // the status is read in-process, not through the API
+    verify(clustersMock, configurationMock, executionSchedulerMock, tokenStorageMock,
+        hostRoleCommandDAOMock, topologyManagerMock, scheduleManager);
+
+    assertEquals(Long.valueOf(requestId), batchRequestResponse.getRequestId());
+    assertEquals(HostRoleStatus.IN_PROGRESS.toString(), batchRequestResponse.getStatus());
+    assertEquals(1, batchRequestResponse.getFailedTaskCount());
+    assertEquals(0, batchRequestResponse.getAbortedTaskCount());
+    assertEquals(1, batchRequestResponse.getTimedOutTaskCount());
+    assertEquals(7, batchRequestResponse.getTotalTaskCount());
+  }
+
+  @Test
+  public void testGetBatchRequestResponseForLogicalRequest() throws Exception {
+    Clusters clustersMock = createMock(Clusters.class);
+    Configuration configurationMock = createNiceMock(Configuration.class);
+    ExecutionScheduler executionSchedulerMock = createMock(ExecutionScheduler.class);
+    InternalTokenStorage tokenStorageMock = createMock(InternalTokenStorage.class);
+    ActionDBAccessor actionDBAccessorMock = createMock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = createMock(HostRoleCommandDAO.class);
+    TopologyManager topologyManagerMock = createMock(TopologyManager.class);
+    LogicalRequest logicalRequestMock = createMock(LogicalRequest.class);
+    Gson gson = new Gson();
+
+    long requestId = 5L;
+    String clusterName = "mycluster";
+
+    // the tasks of the hosts which have not registered yet
+    Map<Long, HostRoleCommandStatusSummaryDTO> logicalSummary = new HashMap<>();
+    logicalSummary.put(1L, HostRoleCommandStatusSummaryDTO.create().pending(4));
 
     EasyMock.expect(configurationMock.getApiSSLAuthentication()).andReturn(Boolean.FALSE);
     EasyMock.replay(configurationMock);
@@ -486,18 +615,74 @@ public class ExecutionScheduleManagerTest {
         withConstructor(configurationMock, executionSchedulerMock, tokenStorageMock, clustersMock,
             actionDBAccessorMock, gson).
         addMockedMethods("performApiGetRequest").createNiceMock();
+    scheduleManager.hostRoleCommandDAO = hostRoleCommandDAOMock;
+    scheduleManager.topologyManager = topologyManagerMock;
+
+    expect(hostRoleCommandDAOMock.findAggregateCounts(requestId)).andReturn(
+        Collections.emptyMap()).once();
+    expect(topologyManagerMock.getStageSummaries(requestId)).andReturn(logicalSummary).once();
+    expect(topologyManagerMock.getRequest(requestId)).andReturn(logicalRequestMock).once();
+
+    replay(clustersMock, executionSchedulerMock, tokenStorageMock, hostRoleCommandDAOMock,
+        topologyManagerMock, logicalRequestMock, scheduleManager);
+
+    BatchRequestResponse batchRequestResponse =
+        scheduleManager.getBatchRequestResponse(requestId, clusterName);
+
+    verify(clustersMock, configurationMock, executionSchedulerMock, tokenStorageMock,
+        hostRoleCommandDAOMock, topologyManagerMock, logicalRequestMock, scheduleManager);
+
+    assertEquals(Long.valueOf(requestId), batchRequestResponse.getRequestId());
+    assertEquals(HostRoleStatus.PENDING.toString(), batchRequestResponse.getStatus());
+    assertEquals(0, batchRequestResponse.getFailedTaskCount());
+    assertEquals(4, batchRequestResponse.getTotalTaskCount());
+  }
+
+  @Test
+  public void testGetBatchRequestResponseForLogicalRequestWithoutTasks() throws Exception {
+    Clusters clustersMock = createMock(Clusters.class);
+    Configuration configurationMock = createNiceMock(Configuration.class);
+    ExecutionScheduler executionSchedulerMock = createMock(ExecutionScheduler.class);
+    InternalTokenStorage tokenStorageMock = createMock(InternalTokenStorage.class);
+    ActionDBAccessor actionDBAccessorMock = createMock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = createMock(HostRoleCommandDAO.class);
+    TopologyManager topologyManagerMock = createMock(TopologyManager.class);
+    LogicalRequest logicalRequestMock = createMock(LogicalRequest.class);
+    Gson gson = new Gson();
+
+    long requestId = 5L;
+    String clusterName = "mycluster";
+
+    EasyMock.expect(configurationMock.getApiSSLAuthentication()).andReturn(Boolean.FALSE);
+    EasyMock.replay(configurationMock);
+
+    ExecutionScheduleManager scheduleManager = createMockBuilder(ExecutionScheduleManager.class).
+        withConstructor(configurationMock, executionSchedulerMock, tokenStorageMock, clustersMock,
+            actionDBAccessorMock, gson).
+        addMockedMethods("performApiGetRequest").createNiceMock();
+    scheduleManager.hostRoleCommandDAO = hostRoleCommandDAOMock;
+    scheduleManager.topologyManager = topologyManagerMock;
+
+    expect(hostRoleCommandDAOMock.findAggregateCounts(requestId)).andReturn(
+        Collections.emptyMap()).once();
+    expect(topologyManagerMock.getStageSummaries(requestId)).andReturn(
+        Collections.emptyMap()).once();
+    expect(topologyManagerMock.getRequest(requestId)).andReturn(logicalRequestMock).once();
 
-    expect(scheduleManager.performApiGetRequest(capture(uriCapture), eq(true))).andReturn(batchRequestResponse).once();
+    // the status of the logical request is used when it has no tasks
+    expect(logicalRequestMock.calculateStatus()).andReturn(CalculatedStatus.ABORTED).once();
 
-    replay(clusterMock, clustersMock, executionSchedulerMock,
-        tokenStorageMock, scheduleManager);
+    replay(clustersMock, executionSchedulerMock, tokenStorageMock, hostRoleCommandDAOMock,
+        topologyManagerMock, logicalRequestMock, scheduleManager);
 
-    scheduleManager.getBatchRequestResponse(requestId, clusterName);
+    BatchRequestResponse batchRequestResponse =
+        scheduleManager.getBatchRequestResponse(requestId, clusterName);
 
-    verify(clusterMock, clustersMock, configurationMock, executionSchedulerMock,
-        tokenStorageMock, scheduleManager);
+    verify(clustersMock, configurationMock, executionSchedulerMock, tokenStorageMock,
+        hostRoleCommandDAOMock, topologyManagerMock, logicalRequestMock, scheduleManager);
 
-    assertEquals(apiUri, uriCapture.getValue());
+    assertEquals(HostRoleStatus.ABORTED.toString(), batchRequestResponse.getStatus());
+    assertEquals(0, batchRequestResponse.getTotalTaskCount());
   }
 
   @Test
@@ -25,6 +25,7 @@ import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -421,6 +422,52 @@ public class AuthorizationHelperTest  extends EasyMockSupport {
     assertTrue(AuthorizationHelper.isAuthorized(ResourceType.VIEW, 50L, permissionsViewUse));
   }
 
+  @Test
+  public void testCompiledAuthorizations() {
+    RoleAuthorizationEntity viewMetricsEntity = new RoleAuthorizationEntity();
+    viewMetricsEntity.setAuthorizationId(RoleAuthorization.CLUSTER_VIEW_METRICS.getId());
+
+    RoleAuthorizationEntity toggleKerberosEntity = new RoleAuthorizationEntity();
+    toggleKerberosEntity.setAuthorizationId(RoleAuthorization.CLUSTER_TOGGLE_KERBEROS.getId());
+
+    ResourceTypeEntity clusterResourceTypeEntity = new ResourceTypeEntity();
+    clusterResourceTypeEntity.setId(1);
+    clusterResourceTypeEntity.setName(ResourceType.CLUSTER.name());
+
+    ResourceEntity clusterResourceEntity = new ResourceEntity();
+    clusterResourceEntity.setResourceType(clusterResourceTypeEntity);
+    clusterResourceEntity.setId(1L);
+
+    PermissionEntity permissionEntity = new PermissionEntity();
+    permissionEntity.addAuthorization(viewMetricsEntity);
+
+    PrivilegeEntity privilegeEntity = new PrivilegeEntity();
+    privilegeEntity.setPermission(permissionEntity);
+    privilegeEntity.setResource(clusterResourceEntity);
+
+    Authentication user = new TestAuthentication(Collections.singleton(new AmbariGrantedAuthority(privilegeEntity)));
+    Set<RoleAuthorization> viewMetrics = EnumSet.of(RoleAuthorization.CLUSTER_VIEW_METRICS);
+    Set<RoleAuthorization> toggleKerberos = EnumSet.of(RoleAuthorization.CLUSTER_TOGGLE_KERBEROS);
+
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, viewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, null, viewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, null, 1L, viewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, null, null, viewMetrics));
+    assertFalse(AuthorizationHelper.isAuthorized(user, null, 2L, viewMetrics));
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.VIEW, 1L, viewMetrics));
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.VIEW, null, viewMetrics));
+
+    // the authorizations of a user are compiled once...
+    assertSame(AuthorizationHelper.getCompiledAuthorizations(user),
+        AuthorizationHelper.getCompiledAuthorizations(user));
+
+    // ... and rebuilt once the privileges have changed
+    permissionEntity.addAuthorization(toggleKerberosEntity);
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, toggleKerberos));
+    AuthorizationHelper.invalidateAuthorizationCache();
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, toggleKerberos));
+  }
+
   public void testAddLoginNameAlias() throws Exception {
     // Given
     reset(servletRequestAttributes);
@@ -1743,6 +1743,223 @@ public class AmbariLdapDataPopulatorTest {
     verify(ldapTemplate, ldapServerProperties, users, configurationProvider, configuration, processor, cookie);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSynchronizeChangedLdapUsers() throws Exception {
+    final Provider<AmbariLdapConfiguration> configurationProvider = createNiceMock(Provider.class);
+    AmbariLdapConfiguration configuration = createNiceMock(AmbariLdapConfiguration.class);
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+
+    User syncedUser = createNiceMock(User.class);
+    expect(syncedUser.getUserName()).andReturn("synced_user").anyTimes();
+    expect(syncedUser.isLdapUser()).andReturn(true).anyTimes();
+    User localUser = createNiceMock(User.class);
+    expect(localUser.getUserName()).andReturn("local_user").anyTimes();
+    expect(localUser.isLdapUser()).andReturn(false).anyTimes();
+    expect(users.getAllUsers()).andReturn(Arrays.asList(syncedUser, localUser)).anyTimes();
+
+    expect(configurationProvider.get()).andReturn(configuration).anyTimes();
+    expect(configuration.getLdapServerProperties()).andReturn(ldapServerProperties).anyTimes();
+    expect(ldapServerProperties.isPaginationEnabled()).andReturn(false).anyTimes();
+    expect(ldapServerProperties.getUserObjectClass()).andReturn("person").anyTimes();
+    expect(ldapServerProperties.getUsernameAttribute()).andReturn("uid").anyTimes();
+    expect(ldapServerProperties.getBaseDN()).andReturn("dc=example,dc=com").anyTimes();
+    expect(ldapServerProperties.getSyncChangeAttribute()).andReturn("modifyTimestamp").anyTimes();
+
+    final List<DirContextAdapter> firstRun = Arrays.asList(
+        createUserAdapter("synced_user", "20240101000000Z"),
+        createUserAdapter("local_user", "20240102000000Z"),
+        createUserAdapter("new_user", "20240103000000Z"));
+    final List<DirContextAdapter> secondRun = Arrays.asList(
+        createUserAdapter("new_user", "20240103000000Z"),
+        createUserAdapter("another_user", "20240104000000Z"));
+
+    Capture<ContextMapper> firstMapper = EasyMock.newCapture();
+    Capture<ContextMapper> secondMapper = EasyMock.newCapture();
+    expect(ldapTemplate.search(eq(LdapUtils.newLdapName("dc=example,dc=com")), eq("(objectClass=person)"),
+        anyObject(SearchControls.class), capture(firstMapper))).andAnswer(new MapperAnswer(firstMapper, firstRun));
+    expect(ldapTemplate.search(eq(LdapUtils.newLdapName("dc=example,dc=com")),
+        eq("(&(objectClass=person)(modifyTimestamp>=20240103000000Z))"),
+        anyObject(SearchControls.class), capture(secondMapper))).andAnswer(new MapperAnswer(secondMapper, secondRun));
+
+    PowerMock.mockStatic(AmbariLdapUtils.class);
+    expect(AmbariLdapUtils.isLdapObjectOutOfScopeFromBaseDn(anyObject(DirContextAdapter.class), eq("dc=example,dc=com")))
+        .andReturn(false).anyTimes();
+
+    replay(ldapTemplate, ldapServerProperties, users, configurationProvider, configuration, syncedUser, localUser);
+    PowerMock.replayAll();
+
+    AmbariLdapDataPopulatorTestInstance populator = new AmbariLdapDataPopulatorTestInstance(configurationProvider, users);
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    // the first sync reads the whole directory and seeds the index once its batch was applied
+    LdapBatchDto result = populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    verifyUsersInSet(result.getUsersToBeCreated(), Sets.newHashSet("new_user"));
+    verifyUsersInSet(result.getUsersToBecomeLdap(), Sets.newHashSet("local_user"));
+    assertTrue(result.getUsersToBeRemoved().isEmpty());
+    assertNull(populator.getSyncState().getUsers().getHighWaterMark());
+    populator.commitIncrementalSync();
+    assertEquals("20240103000000Z", populator.getSyncState().getUsers().getHighWaterMark());
+    assertEquals(3, populator.getSyncState().getUsers().size());
+
+    // the second sync only asks for newer entries and skips the ones that did not change
+    result = populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    verifyUsersInSet(result.getUsersToBeCreated(), Sets.newHashSet("new_user", "another_user"));
+    assertTrue(result.getUsersToBecomeLdap().isEmpty());
+    populator.commitIncrementalSync();
+    assertEquals("20240104000000Z", populator.getSyncState().getUsers().getHighWaterMark());
+
+    verify(ldapTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSynchronizeChangedLdapUsersRetriedAfterFailedApply() throws Exception {
+    final Provider<AmbariLdapConfiguration> configurationProvider = createNiceMock(Provider.class);
+    AmbariLdapConfiguration configuration = createNiceMock(AmbariLdapConfiguration.class);
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+
+    expect(users.getAllUsers()).andReturn(Collections.emptyList()).anyTimes();
+
+    expect(configurationProvider.get()).andReturn(configuration).anyTimes();
+    expect(configuration.getLdapServerProperties()).andReturn(ldapServerProperties).anyTimes();
+    expect(ldapServerProperties.isPaginationEnabled()).andReturn(false).anyTimes();
+    expect(ldapServerProperties.getUserObjectClass()).andReturn("person").anyTimes();
+    expect(ldapServerProperties.getUsernameAttribute()).andReturn("uid").anyTimes();
+    expect(ldapServerProperties.getBaseDN()).andReturn("dc=example,dc=com").anyTimes();
+    expect(ldapServerProperties.getSyncChangeAttribute()).andReturn("modifyTimestamp").anyTimes();
+
+    final List<DirContextAdapter> entries = Arrays.asList(
+        createUserAdapter("user1", "20240101000000Z"),
+        createUserAdapter("user2", "20240102000000Z"));
+
+    // both syncs read the whole directory as the first one was never applied
+    Capture<ContextMapper> mapper = EasyMock.newCapture();
+    expect(ldapTemplate.search(eq(LdapUtils.newLdapName("dc=example,dc=com")), eq("(objectClass=person)"),
+        anyObject(SearchControls.class), capture(mapper))).andAnswer(new MapperAnswer(mapper, entries)).times(2);
+
+    PowerMock.mockStatic(AmbariLdapUtils.class);
+    expect(AmbariLdapUtils.isLdapObjectOutOfScopeFromBaseDn(anyObject(DirContextAdapter.class), eq("dc=example,dc=com")))
+        .andReturn(false).anyTimes();
+
+    replay(ldapTemplate, ldapServerProperties, users, configurationProvider, configuration);
+    PowerMock.replayAll();
+
+    AmbariLdapDataPopulatorTestInstance populator = new AmbariLdapDataPopulatorTestInstance(configurationProvider, users);
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    LdapBatchDto result = populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    verifyUsersInSet(result.getUsersToBeCreated(), Sets.newHashSet("user1", "user2"));
+
+    // processLdapSync failed, so nothing seen by the sync may be skipped later
+    populator.rollbackIncrementalSync();
+    assertNull(populator.getSyncState().getUsers().getHighWaterMark());
+    assertEquals(0, populator.getSyncState().getUsers().size());
+
+    result = populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    verifyUsersInSet(result.getUsersToBeCreated(), Sets.newHashSet("user1", "user2"));
+    populator.commitIncrementalSync();
+    assertEquals("20240102000000Z", populator.getSyncState().getUsers().getHighWaterMark());
+    assertEquals(2, populator.getSyncState().getUsers().size());
+
+    verify(ldapTemplate);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSynchronizeChangedLdapUsersAfterBaseDnChange() throws Exception {
+    final Provider<AmbariLdapConfiguration> configurationProvider = createNiceMock(Provider.class);
+    AmbariLdapConfiguration configuration = createNiceMock(AmbariLdapConfiguration.class);
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+    LdapServerProperties otherLdapServerProperties = createNiceMock(LdapServerProperties.class);
+
+    expect(users.getAllUsers()).andReturn(Collections.emptyList()).anyTimes();
+
+    expect(configurationProvider.get()).andReturn(configuration).anyTimes();
+    expect(configuration.getLdapServerProperties()).andReturn(ldapServerProperties).anyTimes();
+    for (LdapServerProperties properties : Arrays.asList(ldapServerProperties, otherLdapServerProperties)) {
+      expect(properties.isPaginationEnabled()).andReturn(false).anyTimes();
+      expect(properties.getUserObjectClass()).andReturn("person").anyTimes();
+      expect(properties.getUsernameAttribute()).andReturn("uid").anyTimes();
+      expect(properties.getSyncChangeAttribute()).andReturn("modifyTimestamp").anyTimes();
+    }
+    expect(ldapServerProperties.getBaseDN()).andReturn("dc=example,dc=com").anyTimes();
+    expect(otherLdapServerProperties.getBaseDN()).andReturn("dc=other,dc=com").anyTimes();
+
+    final List<DirContextAdapter> entries = Arrays.asList(
+        createUserAdapter("user1", "20240101000000Z"),
+        createUserAdapter("user2", "20240102000000Z"));
+
+    // the high-water mark seen under the previous base DN is not applied to the new one
+    Capture<ContextMapper> firstMapper = EasyMock.newCapture();
+    Capture<ContextMapper> secondMapper = EasyMock.newCapture();
+    expect(ldapTemplate.search(eq(LdapUtils.newLdapName("dc=example,dc=com")), eq("(objectClass=person)"),
+        anyObject(SearchControls.class), capture(firstMapper))).andAnswer(new MapperAnswer(firstMapper, entries)).once();
+    expect(ldapTemplate.search(eq(LdapUtils.newLdapName("dc=other,dc=com")), eq("(objectClass=person)"),
+        anyObject(SearchControls.class), capture(secondMapper))).andAnswer(new MapperAnswer(secondMapper, entries)).once();
+
+    PowerMock.mockStatic(AmbariLdapUtils.class);
+    expect(AmbariLdapUtils.isLdapObjectOutOfScopeFromBaseDn(anyObject(DirContextAdapter.class), anyString()))
+        .andReturn(false).anyTimes();
+
+    replay(ldapTemplate, ldapServerProperties, otherLdapServerProperties, users, configurationProvider, configuration);
+    PowerMock.replayAll();
+
+    AmbariLdapDataPopulatorTestInstance populator = new AmbariLdapDataPopulatorTestInstance(configurationProvider, users);
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    populator.commitIncrementalSync();
+    assertEquals("20240102000000Z", populator.getSyncState().getUsers().getHighWaterMark());
+
+    populator.setLdapServerProperties(otherLdapServerProperties);
+    LdapBatchDto result = populator.synchronizeChangedLdapUsers(new LdapBatchDto(), false);
+    verifyUsersInSet(result.getUsersToBeCreated(), Sets.newHashSet("user1", "user2"));
+    assertNull(populator.getSyncState().getUsers().getHighWaterMark());
+
+    verify(ldapTemplate);
+  }
+
+  private DirContextAdapter createUserAdapter(String userName, String modifyTimestamp) {
+    DirContextAdapter adapter = createNiceMock(DirContextAdapter.class);
+    expect(adapter.getStringAttribute("uid")).andReturn(userName).anyTimes();
+    expect(adapter.getStringAttribute("modifyTimestamp")).andReturn(modifyTimestamp).anyTimes();
+    expect(adapter.getNameInNamespace()).andReturn("uid=" + userName + ",dc=example,dc=com").anyTimes();
+    replay(adapter);
+    return adapter;
+  }
+
+  /**
+   * Hands the given entries to the captured context mapper, the way LdapTemplate does.
+   */
+  private static class MapperAnswer implements IAnswer<List> {
+    private final Capture<ContextMapper> mapper;
+    private final List<DirContextAdapter> entries;
+
+    private MapperAnswer(Capture<ContextMapper> mapper, List<DirContextAdapter> entries) {
+      this.mapper = mapper;
+      this.entries = entries;
+    }
+
+    @Override
+    public List answer() throws Throwable {
+      List<Object> results = new ArrayList<>();
+      for (DirContextAdapter entry : entries) {
+        results.add(mapper.getValue().mapFromContext(entry));
+      }
+      return results;
+    }
+  }
+
   @Test
   public void testLdapUserContextMapper_uidIsNull() throws Exception {
     LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LdapSyncStateTest {
+
+  @Test
+  public void testHighWaterMarkNumeric() {
+    LdapSyncState.Tracker tracker = new LdapSyncState().getUsers();
+    tracker.observe("999");
+    tracker.observe("1000");
+    tracker.observe("");
+    assertNull(tracker.getHighWaterMark());
+
+    tracker.commit();
+    assertEquals("1000", tracker.getHighWaterMark());
+  }
+
+  @Test
+  public void testHighWaterMarkGeneralizedTime() {
+    LdapSyncState.Tracker tracker = new LdapSyncState().getGroups();
+    tracker.observe("20240301000000Z");
+    tracker.observe("20240201000000Z");
+    tracker.commit();
+    assertEquals("20240301000000Z", tracker.getHighWaterMark());
+  }
+
+  @Test
+  public void testFingerprints() {
+    LdapSyncState state = new LdapSyncState();
+    LdapGroupDto group = new LdapGroupDto();
+    group.setGroupName("group1");
+    group.getMemberAttributes().add("uid=user1");
+
+    assertTrue(state.getGroups().update("group1", LdapSyncState.fingerprint(group)));
+    assertFalse(state.getGroups().update("group1", LdapSyncState.fingerprint(group)));
+
+    group.getMemberAttributes().add("uid=user2");
+    assertTrue(state.getGroups().update("group1", LdapSyncState.fingerprint(group)));
+
+    state.reset();
+    assertEquals(0, state.getGroups().size());
+  }
+
+  @Test
+  public void testRollback() {
+    LdapSyncState state = new LdapSyncState();
+    LdapSyncState.Tracker users = state.getUsers();
+    users.observe("100");
+    users.update("user1", 1);
+    state.commit();
+
+    users.observe("200");
+    assertTrue(users.update("user2", 2));
+    assertTrue(users.update("user1", 3));
+    state.rollback();
+
+    // the failed sync left no trace, so its entries are processed again
+    assertEquals("100", users.getHighWaterMark());
+    assertEquals(1, users.size());
+    assertTrue(users.update("user2", 2));
+    assertTrue(users.update("user1", 3));
+    assertFalse(state.getUsers().update("user1", 3));
+    state.commit();
+    assertEquals("100", users.getHighWaterMark());
+    assertEquals(2, users.size());
+  }
+}
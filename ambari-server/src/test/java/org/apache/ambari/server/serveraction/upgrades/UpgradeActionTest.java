@@ -558,10 +558,8 @@ public class UpgradeActionTest {
     }
 
     // push all components to the correct version
-    List<HostComponentStateEntity> hostComponentStates = hostComponentStateDAO.findByHost(hostName);
-    for (HostComponentStateEntity hostComponentState : hostComponentStates) {
-      hostComponentState.setVersion(repositoryVersion2111.getVersion());
-      hostComponentStateDAO.merge(hostComponentState);
+    for (ServiceComponentHost sch : cluster.getServiceComponentHosts(hostName)) {
+      sch.setVersion(repositoryVersion2111.getVersion());
     }
 
     Map<String, String> commandParams = new HashMap<>();
@@ -659,10 +657,8 @@ public class UpgradeActionTest {
     }
 
     // push all components to the revert version
-    List<HostComponentStateEntity> hostComponentStates = hostComponentStateDAO.findByHost(hostName);
-    for (HostComponentStateEntity hostComponentState : hostComponentStates) {
-      hostComponentState.setVersion(repositoryVersion2110.getVersion());
-      hostComponentStateDAO.merge(hostComponentState);
+    for (ServiceComponentHost sch : cluster.getServiceComponentHosts(hostName)) {
+      sch.setVersion(repositoryVersion2110.getVersion());
     }
 
     Map<String, String> commandParams = new HashMap<>();
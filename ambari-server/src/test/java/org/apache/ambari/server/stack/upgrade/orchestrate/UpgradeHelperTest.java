@@ -37,6 +37,7 @@ import java.io.File;
 import java.lang.reflect.Field;
 import java.nio.charset.Charset;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -59,6 +60,7 @@ import org.apache.ambari.server.H2DatabaseCleaner;
 import org.apache.ambari.server.actionmanager.HostRoleCommandFactory;
 import org.apache.ambari.server.agent.stomp.AgentConfigsHolder;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.ClusterRequest;
 import org.apache.ambari.server.controller.ConfigurationRequest;
@@ -564,6 +566,57 @@ public class UpgradeHelperTest extends EasyMockSupport {
     ambariMetaInfo.init();
   }
 
+  /**
+   * Tests that the hosts of the upgraded components are resolved concurrently
+   * and that the orchestration matches the one planned with a single thread.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testHostsResolvedConcurrently() throws Exception {
+    UpgradePack upgrade = ambariMetaInfo.getUpgradePacks("HDP", "2.1.1").get("upgrade_test");
+    assertNotNull(upgrade);
+
+    Cluster cluster = makeCluster();
+    Configuration configuration = injector.getInstance(Configuration.class);
+    Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+
+    List<String> orchestrations = new ArrayList<>();
+    for (String threads : new String[] { "8", "1" }) {
+      configuration.setProperty(Configuration.STACK_UPGRADE_HOST_RESOLUTION_THREADS.getKey(), threads);
+
+      UpgradeContext context = getMockUpgradeContextNoReplay(cluster, Direction.UPGRADE,
+          UpgradeType.ROLLING, repositoryVersion2210);
+
+      MasterHostResolver masterHostResolver = new MasterHostResolver(cluster, m_configHelper, context) {
+        @Override
+        public HostsType getMasterAndHosts(String serviceName, String componentName) {
+          threadNames.add(Thread.currentThread().getName());
+          return super.getMasterAndHosts(serviceName, componentName);
+        }
+      };
+      expect(context.getResolver()).andReturn(masterHostResolver).anyTimes();
+      replay(context);
+
+      StringBuilder orchestration = new StringBuilder();
+      for (UpgradeGroupHolder group : m_upgradeHelper.createSequence(upgrade, context)) {
+        orchestration.append(group.name).append('\n');
+        for (StageWrapper stageWrapper : group.items) {
+          orchestration.append(stageWrapper.getText()).append(' ').append(stageWrapper.getHosts()).append('\n');
+        }
+      }
+      orchestrations.add(orchestration.toString());
+    }
+
+    assertTrue(threadNames.stream().anyMatch(name -> name.startsWith("upgrade-host-resolver-")));
+
+    assertEquals(orchestrations.get(0), orchestrations.get(1));
+
+    // Do stacks cleanup
+    stackManagerMock.invalidateCurrentPaths();
+    ambariMetaInfo.init();
+  }
+
   /**
    * Verify that a Rolling Upgrades restarts the NameNodes in the following order: standby, active.
    * @throws Exception
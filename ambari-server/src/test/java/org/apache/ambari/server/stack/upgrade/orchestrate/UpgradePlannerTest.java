@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.stack.upgrade.orchestrate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner.Planning;
+import org.apache.ambari.server.stack.upgrade.orchestrate.UpgradePlanner.PlanningStatus;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link UpgradePlanner}.
+ */
+public class UpgradePlannerTest {
+
+  private final UpgradePlanner planner = new UpgradePlanner();
+
+  @After
+  public void tearDown() {
+    planner.stop();
+  }
+
+  /**
+   * Tests that only one upgrade of a cluster is planned at a time.
+   */
+  @Test
+  public void testOnePlanningPerCluster() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Planning planning = planner.submit(1L, 10L, () -> {
+      started.countDown();
+      return release.await(10, TimeUnit.SECONDS);
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertSame(planning, planner.getPlanningInProgress(1L));
+
+    try {
+      planner.submit(1L, 11L, () -> null);
+      fail("Expected the second planning of the cluster to be refused");
+    } catch (AmbariException e) {
+      assertTrue(e.getMessage().contains("10"));
+    }
+    assertNull(planner.getPlanning(11L));
+
+    // the upgrades of other clusters are still planned
+    Planning otherPlanning = planner.submit(2L, 12L, () -> null);
+    assertEquals(PlanningStatus.PLANNING, otherPlanning.getStatus());
+
+    release.countDown();
+    waitForPlanning(10L);
+    assertNull(planner.getPlanningInProgress(1L));
+
+    // once planned, the next upgrade of the cluster can be planned
+    planner.submit(1L, 13L, () -> null);
+    waitForPlanning(13L);
+    assertEquals(0, planner.getPlanningFailures());
+  }
+
+  /**
+   * Tests that a failed planning does not keep the next upgrade of the cluster
+   * from being planned.
+   */
+  @Test
+  public void testFailedPlanningReleasesCluster() throws Exception {
+    planner.submit(1L, 10L, () -> {
+      throw new IllegalArgumentException("invalid");
+    });
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (PlanningStatus.FAILED != planner.getPlanning(10L).getStatus()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertEquals("invalid", planner.getPlanning(10L).getError());
+    assertNull(planner.getPlanningInProgress(1L));
+    planner.submit(1L, 11L, () -> null);
+    waitForPlanning(11L);
+  }
+
+  private void waitForPlanning(long requestId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (null != planner.getPlanning(requestId) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertNull(planner.getPlanning(requestId));
+  }
+}
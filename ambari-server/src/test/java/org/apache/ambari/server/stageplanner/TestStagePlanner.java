@@ -22,13 +22,18 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
 import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.CommandExecutionType;
+import org.apache.ambari.server.actionmanager.ExecutionCommandWrapper;
 import org.apache.ambari.server.actionmanager.Stage;
 import org.apache.ambari.server.actionmanager.StageFactory;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
@@ -219,6 +224,65 @@ public class TestStagePlanner {
     Assert.assertTrue(exceptionThrown);
   }
 
+  @Test
+  public void testDependencyGraphIsReused() throws AmbariException {
+    ClusterImpl cluster = mock(ClusterImpl.class);
+    when(cluster.getCurrentStackVersion()).thenReturn(new StackId("HDP-2.0.6"));
+
+    Service hbaseService = mock(Service.class);
+    when(hbaseService.getDesiredStackId()).thenReturn(new StackId("HDP-2.0.6"));
+    Service zkService = mock(Service.class);
+    when(zkService.getDesiredStackId()).thenReturn(new StackId("HDP-2.0.6"));
+
+    when(cluster.getServices()).thenReturn(ImmutableMap.<String, Service>builder()
+        .put("HBASE", hbaseService)
+        .put("ZOOKEEPER", zkService)
+        .build());
+
+    RoleCommandOrder rco = roleCommandOrderProvider.getRoleCommandOrder(cluster);
+
+    Map<String, RoleGraphNode> nodes = new HashMap<>();
+    nodes.put("HBASE_MASTER", new RoleGraphNode(Role.HBASE_MASTER, RoleCommand.START));
+    nodes.put("ZOOKEEPER_SERVER", new RoleGraphNode(Role.ZOOKEEPER_SERVER, RoleCommand.START));
+    RoleDependencyGraph dependencyGraph = rco.getDependencyGraph(nodes);
+
+    RoleGraphNode master = new RoleGraphNode(Role.HBASE_MASTER, RoleCommand.START);
+    master.addHost("host2");
+    nodes.put("HBASE_MASTER", master);
+    Assert.assertSame(dependencyGraph, rco.getDependencyGraph(nodes));
+
+    nodes.put("HBASE_MASTER", new RoleGraphNode(Role.HBASE_MASTER, RoleCommand.STOP));
+    Assert.assertNotSame(dependencyGraph, rco.getDependencyGraph(nodes));
+
+    // the same roles on other hosts are planned alike
+    List<List<String>> plannedRoles = new ArrayList<>();
+    for (String host : new String[] {"host2", "host3"}) {
+      long now = System.currentTimeMillis();
+      Stage stage = StageUtils.getATestStage(1, 1, "host1", "", "");
+      stage.addHostRoleExecutionCommand(host, Role.HBASE_MASTER,
+          RoleCommand.START, new ServiceComponentHostStartEvent("HBASE_MASTER",
+              host, now), "cluster1", "HBASE", false, false);
+      stage.addHostRoleExecutionCommand(host, Role.ZOOKEEPER_SERVER,
+          RoleCommand.START, new ServiceComponentHostStartEvent("ZOOKEEPER_SERVER",
+              host, now), "cluster1", "ZOOKEEPER", false, false);
+
+      RoleGraph rg = roleGraphFactory.createNew(rco);
+      rg.build(stage);
+      List<String> roles = new ArrayList<>();
+      for (Stage outStage : rg.getStages()) {
+        List<ExecutionCommandWrapper> wrappers = outStage.getExecutionCommands(host);
+        if (wrappers != null) {
+          for (ExecutionCommandWrapper wrapper : wrappers) {
+            roles.add(wrapper.getExecutionCommand().getRole());
+          }
+        }
+      }
+      plannedRoles.add(roles);
+    }
+    assertEquals(Arrays.asList("ZOOKEEPER_SERVER", "HBASE_MASTER"), plannedRoles.get(0));
+    assertEquals(plannedRoles.get(0), plannedRoles.get(1));
+  }
+
   @Test
   public void testNoSCCInGraphDetected() {
     ClusterImpl cluster = mock(ClusterImpl.class);
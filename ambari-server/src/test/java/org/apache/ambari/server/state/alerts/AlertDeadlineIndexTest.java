@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.alerts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex;
+import org.apache.ambari.server.state.alert.AlertDeadlineIndex.Deadline;
+import org.apache.ambari.server.state.alert.SourceType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link AlertDeadlineIndex}.
+ */
+public class AlertDeadlineIndexTest {
+
+  private static final long CLUSTER_ID = 1L;
+  private static final long MINUTE = 60L * 1000L;
+
+  private AlertDeadlineIndex m_index;
+
+  @Before
+  public void setup() {
+    m_index = new AlertDeadlineIndex();
+  }
+
+  /**
+   * Tests that only the alerts whose deadline passed are candidates.
+   */
+  @Test
+  public void testOverdueAlerts() {
+    assertFalse(m_index.isLoaded(CLUSTER_ID));
+
+    m_index.load(CLUSTER_ID, Arrays.asList(
+        createCurrent(1L, "host1", 1000L, 1, SourceType.PORT),
+        createCurrent(2L, "host1", 10 * MINUTE, 1, SourceType.PORT),
+        createCurrent(3L, "host2", 1000L, 1, SourceType.AGGREGATE),
+        createCurrent(4L, "host2", 0L, 1, SourceType.PORT)));
+
+    assertTrue(m_index.isLoaded(CLUSTER_ID));
+
+    // the deadline of alert 1 is 2 minutes after it last ran
+    Map<Long, Deadline> candidates = m_index.getCandidates(CLUSTER_ID, 5 * MINUTE,
+        Collections.emptySet());
+
+    assertEquals(Collections.singleton(1L), candidates.keySet());
+    assertEquals(1000L + 2 * MINUTE, candidates.get(1L).getDeadline());
+
+    // receiving the alert moves its deadline
+    m_index.update(CLUSTER_ID, createCurrent(1L, "host1", 4 * MINUTE, 1, SourceType.PORT));
+    assertTrue(m_index.getCandidates(CLUSTER_ID, 5 * MINUTE, Collections.emptySet()).isEmpty());
+
+    // but an older timestamp does not
+    m_index.update(CLUSTER_ID, createCurrent(1L, "host1", 1000L, 1, SourceType.PORT));
+    assertTrue(m_index.getCandidates(CLUSTER_ID, 5 * MINUTE, Collections.emptySet()).isEmpty());
+
+    // a larger multiplier moves all deadlines
+    m_index.setWaitFactor(10);
+    assertTrue(m_index.getCandidates(CLUSTER_ID, 13 * MINUTE, Collections.emptySet()).isEmpty());
+    assertEquals(Collections.singleton(1L),
+        m_index.getCandidates(CLUSTER_ID, 14 * MINUTE, Collections.emptySet()).keySet());
+  }
+
+  /**
+   * Tests that alerts without a host and alerts of the specified hosts are
+   * always candidates.
+   */
+  @Test
+  public void testHostAlerts() {
+    m_index.load(CLUSTER_ID, Arrays.asList(
+        createCurrent(1L, "host1", 10 * MINUTE, 1, SourceType.PORT),
+        createCurrent(2L, "host2", 10 * MINUTE, 1, SourceType.PORT),
+        createCurrent(3L, null, 10 * MINUTE, 1, SourceType.SERVER)));
+
+    assertEquals(2, m_index.getHostNames(CLUSTER_ID).size());
+    assertEquals(Collections.singleton(3L),
+        m_index.getCandidates(CLUSTER_ID, 0L, Collections.emptySet()).keySet());
+
+    Map<Long, Deadline> candidates = m_index.getCandidates(CLUSTER_ID, 0L,
+        Collections.singleton("host2"));
+    assertEquals(2, candidates.size());
+    assertTrue(candidates.containsKey(2L));
+
+    m_index.remove(CLUSTER_ID, 2L);
+    assertEquals(Collections.singleton("host1"), m_index.getHostNames(CLUSTER_ID));
+    assertEquals(Collections.singleton(3L), m_index.getCandidates(CLUSTER_ID, 0L,
+        Collections.singleton("host2")).keySet());
+  }
+
+  /**
+   * Tests that alerts received before the cluster was loaded are ignored.
+   */
+  @Test
+  public void testUpdateBeforeLoad() {
+    m_index.update(CLUSTER_ID, createCurrent(1L, "host1", 1000L, 1, SourceType.PORT));
+    assertFalse(m_index.isLoaded(CLUSTER_ID));
+    assertTrue(m_index.getCandidates(CLUSTER_ID, 5 * MINUTE, Collections.emptySet()).isEmpty());
+  }
+
+  /**
+   * Tests that changing the interval of a definition moves the deadlines of
+   * its alerts only.
+   */
+  @Test
+  public void testIntervalChange() {
+    m_index.load(CLUSTER_ID, Arrays.asList(
+        createCurrent(1L, 10L, "host1", 1000L, 1, SourceType.PORT),
+        createCurrent(2L, 10L, "host2", 1000L, 1, SourceType.PORT),
+        createCurrent(3L, 20L, "host1", 1000L, 1, SourceType.PORT)));
+
+    assertEquals(3, m_index.getCandidates(CLUSTER_ID, 5 * MINUTE, Collections.emptySet()).size());
+
+    // the deadlines of definition 10 are now 10 minutes after the alerts ran
+    m_index.setInterval(CLUSTER_ID, 10L, 5);
+    Map<Long, Deadline> candidates = m_index.getCandidates(CLUSTER_ID, 5 * MINUTE,
+        Collections.emptySet());
+    assertEquals(Collections.singleton(3L), candidates.keySet());
+
+    candidates = m_index.getCandidates(CLUSTER_ID, 1000L + 10 * MINUTE, Collections.emptySet());
+    assertEquals(3, candidates.size());
+    assertEquals(1000L + 10 * MINUTE, candidates.get(1L).getDeadline());
+
+    // a later stale multiplier applies to the new interval
+    m_index.setWaitFactor(3);
+    assertEquals(1000L + 15 * MINUTE, m_index.getCandidates(CLUSTER_ID, 1000L + 15 * MINUTE,
+        Collections.emptySet()).get(2L).getDeadline());
+  }
+
+  private AlertCurrentEntity createCurrent(long alertId, String hostName, long latestTimestamp,
+      int interval, SourceType sourceType) {
+    return createCurrent(alertId, null, hostName, latestTimestamp, interval, sourceType);
+  }
+
+  private AlertCurrentEntity createCurrent(long alertId, Long definitionId, String hostName,
+      long latestTimestamp, int interval, SourceType sourceType) {
+    AlertDefinitionEntity definition = new AlertDefinitionEntity();
+    definition.setDefinitionId(definitionId);
+    definition.setClusterId(CLUSTER_ID);
+    definition.setScheduleInterval(interval);
+    definition.setSourceType(sourceType);
+
+    AlertHistoryEntity history = new AlertHistoryEntity();
+    history.setClusterId(CLUSTER_ID);
+    history.setHostName(hostName);
+    history.setAlertDefinition(definition);
+
+    AlertCurrentEntity current = new AlertCurrentEntity();
+    current.setAlertId(alertId);
+    current.setLatestTimestamp(latestTimestamp);
+    current.setAlertHistory(history);
+    return current;
+  }
+}
@@ -302,11 +302,60 @@ public class AlertDefinitionHashTest extends TestCase {
     assertNotNull(hash);
     assertTrue(m_hash.isHashCached(CLUSTERNAME, HOSTNAME));
 
+    // the cached hash is updated in place
+    m_hdfsHost.setHash(UUID.randomUUID().toString());
     Set<String> invalidatedHosts = m_hash.invalidateHosts(m_hdfsHost);
-    assertFalse(m_hash.isHashCached(CLUSTERNAME, HOSTNAME));
+    assertTrue(m_hash.isHashCached(CLUSTERNAME, HOSTNAME));
     assertNotNull(invalidatedHosts);
     assertEquals(1, invalidatedHosts.size());
     assertTrue(invalidatedHosts.contains(HOSTNAME));
+
+    String newHash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+    assertFalse(hash.equals(newHash));
+
+    m_hash.invalidateAll();
+    assertEquals(newHash, m_hash.getHash(CLUSTERNAME, HOSTNAME));
+  }
+
+  /**
+   * Test {@link AlertDefinitionHash#removeFromHosts(AlertDefinitionEntity)}.
+   */
+  @Test
+  public void testRemoveFromHosts() {
+    String hash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+
+    Set<String> invalidatedHosts = m_hash.removeFromHosts(m_hdfsHost);
+    assertTrue(m_hash.isHashCached(CLUSTERNAME, HOSTNAME));
+    assertEquals(Collections.singleton(HOSTNAME), invalidatedHosts);
+    assertFalse(hash.equals(m_hash.getHash(CLUSTERNAME, HOSTNAME)));
+
+    // restoring the definition restores the hash
+    m_hash.invalidateHosts(m_hdfsHost);
+    assertEquals(hash, m_hash.getHash(CLUSTERNAME, HOSTNAME));
+  }
+
+  /**
+   * Test that the cached hash follows the components of its host.
+   */
+  @Test
+  public void testAddAndRemoveComponent() {
+    String hash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+
+    m_hash.removeComponent(1L, HOSTNAME, "HDFS", "DATANODE", false);
+    assertTrue(m_hash.isHashCached(CLUSTERNAME, HOSTNAME));
+    String newHash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+    assertFalse(hash.equals(newHash));
+
+    // removing it again changes nothing
+    m_hash.removeComponent(1L, HOSTNAME, "HDFS", "DATANODE", false);
+    assertEquals(newHash, m_hash.getHash(CLUSTERNAME, HOSTNAME));
+
+    m_hash.addComponent(1L, HOSTNAME, "HDFS", "DATANODE", false);
+    assertEquals(hash, m_hash.getHash(CLUSTERNAME, HOSTNAME));
+
+    // hosts whose hash is not cached are not affected
+    m_hash.addComponent(1L, "c6402.ambari.apache.org", "HDFS", "DATANODE", false);
+    assertFalse(m_hash.isHashCached(CLUSTERNAME, "c6402.ambari.apache.org"));
   }
 
   /**
@@ -356,14 +405,15 @@ public class AlertDefinitionHashTest extends TestCase {
       uuids.add(entity.getHash());
     }
 
-    Collections.sort(uuids);
-
-    MessageDigest digest = MessageDigest.getInstance("MD5");
+    // the digests of the definitions are combined regardless of their order
+    byte[] hashBytes = new byte[16];
     for (String uuid : uuids) {
-      digest.update(uuid.getBytes());
+      byte[] digest = MessageDigest.getInstance("MD5").digest(uuid.getBytes());
+      for (int i = 0; i < hashBytes.length; i++) {
+        hashBytes[i] ^= digest[i];
+      }
     }
 
-    byte[] hashBytes = digest.digest();
     String expected = Hex.encodeHexString(hashBytes);
 
     assertEquals(expected, m_hash.getHash(CLUSTERNAME, HOSTNAME));
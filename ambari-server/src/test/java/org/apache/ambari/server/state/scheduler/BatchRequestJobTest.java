@@ -33,7 +33,11 @@ import static org.easymock.EasyMock.verify;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.events.RequestFinishedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.scheduler.BatchRequestCompletionTracker;
 import org.apache.ambari.server.scheduler.ExecutionScheduleManager;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -50,7 +54,10 @@ public class BatchRequestJobTest {
   @Test
   public void testDoWork() throws Exception {
     ExecutionScheduleManager scheduleManagerMock = createMock(ExecutionScheduleManager.class);
-    BatchRequestJob batchRequestJob = new BatchRequestJob(scheduleManagerMock, 100L);
+    BatchRequestCompletionTracker completionTracker =
+      new BatchRequestCompletionTracker(createNiceMock(AmbariEventPublisher.class));
+    BatchRequestJob batchRequestJob = new BatchRequestJob(scheduleManagerMock,
+      completionTracker, 100L);
     String clusterName = "mycluster";
     long requestId = 11L;
     long executionId = 31L;
@@ -107,12 +114,82 @@ public class BatchRequestJobTest {
     Assert.assertEquals(clusterName, clusterNameCapture.getValue());
   }
 
+  @Test(timeout = 30000)
+  public void testDoWorkWakesUpOnRequestFinished() throws Exception {
+    ExecutionScheduleManager scheduleManagerMock = createMock(ExecutionScheduleManager.class);
+    final BatchRequestCompletionTracker completionTracker =
+      new BatchRequestCompletionTracker(createNiceMock(AmbariEventPublisher.class));
+    // without the event the job would only check the status again after an hour
+    BatchRequestJob batchRequestJob = new BatchRequestJob(scheduleManagerMock,
+      completionTracker, 3600000L);
+    String clusterName = "mycluster";
+    final long requestId = 11L;
+    long executionId = 31L;
+    long batchId = 1L;
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(BatchRequestJob.BATCH_REQUEST_EXECUTION_ID_KEY, executionId);
+    properties.put(BatchRequestJob.BATCH_REQUEST_BATCH_ID_KEY, batchId);
+    properties.put(BatchRequestJob.BATCH_REQUEST_CLUSTER_NAME_KEY, clusterName);
+
+    BatchRequestResponse inProgressResponse = new BatchRequestResponse();
+    inProgressResponse.setStatus(HostRoleStatus.IN_PROGRESS.toString());
+    BatchRequestResponse failedResponse = new BatchRequestResponse();
+    failedResponse.setStatus(HostRoleStatus.FAILED.toString());
+    failedResponse.setFailedTaskCount(2);
+    failedResponse.setTotalTaskCount(5);
+
+    HashMap<String, Integer> taskCounts = new HashMap<String, Integer>()
+    {{ put(BatchRequestJob.BATCH_REQUEST_FAILED_TASKS_KEY, 2);
+      put(BatchRequestJob.BATCH_REQUEST_FAILED_TASKS_IN_CURRENT_BATCH_KEY, 2);
+      put(BatchRequestJob.BATCH_REQUEST_TOTAL_TASKS_KEY, 5); }};
+
+    expect(scheduleManagerMock.executeBatchRequest(executionId, batchId, clusterName))
+      .andReturn(requestId);
+    expect(scheduleManagerMock.getBatchRequestResponse(requestId, clusterName))
+      .andReturn(inProgressResponse).once();
+    expect(scheduleManagerMock.getBatchRequestResponse(requestId, clusterName))
+      .andReturn(failedResponse).once();
+    expect(scheduleManagerMock.hasToleranceThresholdExceeded(executionId,
+      clusterName, taskCounts)).andReturn(true);
+
+    scheduleManagerMock.updateBatchRequest(eq(executionId), eq(batchId), eq(clusterName),
+      anyObject(BatchRequestResponse.class), eq(true));
+    expectLastCall().times(2);
+
+    replay(scheduleManagerMock);
+
+    Thread finisher = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(500);
+        } catch (InterruptedException e) {
+          return;
+        }
+        completionTracker.onRequestFinished(new RequestFinishedEvent(1L, requestId));
+      }
+    };
+    finisher.start();
+
+    try {
+      batchRequestJob.doWork(properties);
+      Assert.fail("Expected the failure tolerance to be exceeded");
+    } catch (AmbariException e) {
+      Assert.assertTrue(e.getMessage().contains("Task failure tolerance limit exceeded"));
+    }
+    finisher.join();
+
+    verify(scheduleManagerMock);
+  }
+
   @Test
   public void testTaskCountsPersistedWithTrigger() throws Exception {
     ExecutionScheduleManager scheduleManagerMock = createNiceMock
       (ExecutionScheduleManager.class);
     BatchRequestJob batchRequestJobMock = createMockBuilder
-      (BatchRequestJob.class).withConstructor(scheduleManagerMock, 100L)
+      (BatchRequestJob.class).withConstructor(scheduleManagerMock,
+        new BatchRequestCompletionTracker(createNiceMock(AmbariEventPublisher.class)), 100L)
       .addMockedMethods("doWork")
       .createMock();
     JobExecutionContext executionContext = createNiceMock(JobExecutionContext.class);
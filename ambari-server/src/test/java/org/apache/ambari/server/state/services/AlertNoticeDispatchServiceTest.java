@@ -30,6 +30,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.EnumSet;
 import java.util.LinkedList;
@@ -39,8 +40,10 @@ import java.util.TimeZone;
 import java.util.UUID;
 import java.util.Vector;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.notifications.DispatchFactory;
 import org.apache.ambari.server.notifications.Notification;
 import org.apache.ambari.server.notifications.NotificationDispatcher;
@@ -332,6 +335,183 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     assertEquals(2, notifications.size());
   }
 
+  /**
+   * Tests that notices over the limit of their target are left pending.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testTargetLimit() throws Exception {
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_DISPATCH_TARGET_LIMIT.getKey(), "1");
+
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+
+    service.setExecutor(new MockExecutor());
+    service.runOneIteration();
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    assertEquals(1, dispatcher.getNotifications().size());
+    assertEquals(NotificationState.PENDING, notice2.getNotifyState());
+    assertEquals(1, service.getDeferredNotices());
+    assertEquals(1, service.getNotificationsDispatched());
+  }
+
+  /**
+   * Tests that notices for the same alert are coalesced into one
+   * notification for dispatchers without digest support.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testCoalescedDispatch() throws Exception {
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_DISPATCH_COALESCE.getKey(), "true");
+
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+
+    service.setExecutor(new MockExecutor());
+    service.runOneIteration();
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    // the latest state of the alert is sent, on behalf of both notices
+    List<Notification> notifications = dispatcher.getNotifications();
+    assertEquals(1, notifications.size());
+    assertEquals(Arrays.asList(ALERT_NOTICE_UUID_1, ALERT_NOTICE_UUID_2),
+        notifications.get(0).CallbackIds);
+    assertTrue(notifications.get(0).Body.contains("CRITICAL"));
+  }
+
+  /**
+   * Tests that notices are held back until the coalescing window of their
+   * alert closes, and are then sent as one notification.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testCoalesceWindow() throws Exception {
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).times(2);
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_DISPATCH_COALESCE_WINDOW.getKey(), "60");
+
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+    service.setExecutor(new MockExecutor());
+
+    // the window opened by the first alert is still open
+    service.runOneIteration();
+    assertEquals(0, dispatcher.getNotifications().size());
+    assertEquals(2, service.getHeldNotices());
+    assertEquals(NotificationState.PENDING, notice1.getNotifyState());
+
+    // the window has closed; both notices go out together
+    notice1.getAlertHistory().setAlertTimestamp(System.currentTimeMillis() - 120000L);
+    service.runOneIteration();
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    assertEquals(0, service.getHeldNotices());
+    List<Notification> notifications = dispatcher.getNotifications();
+    assertEquals(1, notifications.size());
+    assertEquals(Arrays.asList(ALERT_NOTICE_UUID_1, ALERT_NOTICE_UUID_2),
+        notifications.get(0).CallbackIds);
+  }
+
+  /**
+   * Tests that notices to a target over its rate limit are left pending for
+   * the next run rather than waiting for a permit.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testTargetRate() throws Exception {
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).times(2);
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    // one notification per second
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_DISPATCH_TARGET_RATE.getKey(), "60");
+
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+    service.setExecutor(new MockExecutor());
+
+    long start = System.nanoTime();
+    service.runOneIteration();
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    assertEquals(1, dispatcher.getNotifications().size());
+    assertEquals(NotificationState.PENDING, notice2.getNotifyState());
+    assertEquals(1, service.getDeferredNotices());
+    assertTrue("The run waited for the rate limit", elapsedMillis < 900);
+  }
+
+  /**
+   * Tests the grouping of notices with and without coalescing.
+   */
+  @Test
+  public void testGroupNotices() throws Exception {
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    assertEquals(2, AlertNoticeDispatchService.groupNotices(notices, false).size());
+    assertEquals(1, AlertNoticeDispatchService.groupNotices(notices, true).size());
+
+    notices.get(1).getAlertHistory().setHostName(HOSTNAME);
+    assertEquals(2, AlertNoticeDispatchService.groupNotices(notices, true).size());
+  }
+
   /**
    * Tests a digest dispatch for Ambari SNMP.
    *
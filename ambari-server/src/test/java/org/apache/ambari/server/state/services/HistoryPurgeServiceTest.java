@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.services;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ambari.server.cleanup.ChunkedCleanable;
+import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.dao.MetainfoDAO;
+import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.orm.entities.MetainfoEntity;
+import org.apache.ambari.server.state.Clusters;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.EasyMockSupport;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests the {@link HistoryPurgeService}.
+ */
+public class HistoryPurgeServiceTest extends EasyMockSupport {
+
+  private static final String CHECKPOINT_KEY = HistoryPurgeService.CHECKPOINT_KEY_PREFIX + "c1.request";
+
+  private Injector m_injector;
+  private Configuration m_configuration;
+  private MetainfoDAO m_metainfoDAO;
+  private TimeBasedCleanupPolicy m_policy = new TimeBasedCleanupPolicy("c1", 1000L);
+
+  @Before
+  public void before() {
+    m_configuration = createNiceMock(Configuration.class);
+    m_metainfoDAO = createMock(MetainfoDAO.class);
+
+    m_injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toProvider(Providers.of(m_configuration));
+        bind(MetainfoDAO.class).toProvider(Providers.of(m_metainfoDAO));
+        bind(Clusters.class).toProvider(Providers.of(createNiceMock(Clusters.class)));
+        bind(RequestDAO.class).toProvider(Providers.of(createNiceMock(RequestDAO.class)));
+        bind(AlertsDAO.class).toProvider(Providers.of(createNiceMock(AlertsDAO.class)));
+      }
+    });
+
+    expect(m_configuration.getOnlinePurgeChunkSize()).andReturn(200).anyTimes();
+    expect(m_configuration.getOnlinePurgeTargetLatencyMs()).andReturn(500).anyTimes();
+  }
+
+  /**
+   * Tests that records are purged chunk by chunk, that the checkpoint is
+   * advanced after each chunk and that it is reset once the purge completes.
+   */
+  @Test
+  public void testPurgeInChunks() throws Exception {
+    ChunkedCleanable cleanable = createStrictMock(ChunkedCleanable.class);
+    expect(cleanable.findCleanupIds(m_policy, 0L, 200)).andReturn(Arrays.asList(1L, 2L, 3L));
+    expect(cleanable.cleanupIds(m_policy, Arrays.asList(1L, 2L, 3L))).andReturn(10L);
+    expect(cleanable.findCleanupIds(eq(m_policy), eq(3L), anyInt())).andReturn(Arrays.asList(7L));
+    expect(cleanable.cleanupIds(m_policy, Collections.singletonList(7L))).andReturn(4L);
+    expect(cleanable.findCleanupIds(eq(m_policy), eq(7L), anyInt())).andReturn(Collections.emptyList());
+    expect(cleanable.countCleanupIds(m_policy, 0L)).andReturn(0L);
+
+    final MetainfoEntity checkpoint = new MetainfoEntity();
+    checkpoint.setMetainfoName(CHECKPOINT_KEY);
+    checkpoint.setMetainfoValue("3");
+
+    final List<String> merged = new ArrayList<>();
+    Capture<MetainfoEntity> created = EasyMock.newCapture();
+    expect(m_metainfoDAO.findByKey(CHECKPOINT_KEY)).andReturn(null).times(2);
+    m_metainfoDAO.create(capture(created));
+    expectLastCall().once();
+    expect(m_metainfoDAO.findByKey(CHECKPOINT_KEY)).andReturn(checkpoint).times(2);
+    expect(m_metainfoDAO.merge(checkpoint)).andAnswer(new IAnswer<MetainfoEntity>() {
+      @Override
+      public MetainfoEntity answer() throws Throwable {
+        merged.add(checkpoint.getMetainfoValue());
+        return checkpoint;
+      }
+    }).times(2);
+
+    replayAll();
+
+    HistoryPurgeService service = new HistoryPurgeService();
+    m_injector.injectMembers(service);
+    assertEquals(14L, service.purge(m_policy, "request", cleanable));
+
+    verifyAll();
+    assertEquals("3", created.getValue().getMetainfoValue());
+    assertEquals(Arrays.asList("7", "0"), merged);
+    assertEquals(Long.valueOf(0L), service.getBacklog().get(CHECKPOINT_KEY));
+    assertEquals(14L, service.getPurgedRows());
+  }
+
+  /**
+   * Tests that a purge resumes after the stored checkpoint, and that the next
+   * purge starts over once it completes.
+   */
+  @Test
+  public void testPurgeResumesFromCheckpoint() throws Exception {
+    MetainfoEntity checkpoint = new MetainfoEntity();
+    checkpoint.setMetainfoName(CHECKPOINT_KEY);
+    checkpoint.setMetainfoValue("41");
+    expect(m_metainfoDAO.findByKey(CHECKPOINT_KEY)).andReturn(checkpoint).times(2);
+    expect(m_metainfoDAO.merge(checkpoint)).andReturn(checkpoint);
+
+    ChunkedCleanable cleanable = createStrictMock(ChunkedCleanable.class);
+    expect(cleanable.findCleanupIds(m_policy, 41L, 200)).andReturn(Collections.emptyList());
+    expect(cleanable.countCleanupIds(m_policy, 0L)).andReturn(5L);
+
+    replayAll();
+
+    HistoryPurgeService service = new HistoryPurgeService();
+    m_injector.injectMembers(service);
+    assertEquals(0L, service.purge(m_policy, "request", cleanable));
+
+    verifyAll();
+    assertEquals("0", checkpoint.getMetainfoValue());
+    assertEquals(Long.valueOf(5L), service.getBacklog().get(CHECKPOINT_KEY));
+  }
+
+  /**
+   * Tests that the chunk size follows the measured chunk duration.
+   */
+  @Test
+  public void testNextChunkSize() {
+    assertEquals(50, HistoryPurgeService.nextChunkSize(100, 600, 500));
+    assertEquals(1, HistoryPurgeService.nextChunkSize(1, 600, 500));
+    assertEquals(100, HistoryPurgeService.nextChunkSize(100, 300, 500));
+    assertEquals(126, HistoryPurgeService.nextChunkSize(100, 100, 500));
+    assertEquals(HistoryPurgeService.MAX_CHUNK_SIZE,
+        HistoryPurgeService.nextChunkSize(HistoryPurgeService.MAX_CHUNK_SIZE, 100, 500));
+  }
+}
@@ -26,12 +26,14 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
 import org.apache.ambari.server.ServiceComponentNotFoundException;
 import org.apache.ambari.server.ServiceNotFoundException;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.ServiceComponentHostResponse;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
@@ -51,6 +53,7 @@ import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.Config;
 import org.apache.ambari.server.state.ConfigFactory;
 import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostComponentAdminState;
 import org.apache.ambari.server.state.HostConfig;
 import org.apache.ambari.server.state.MaintenanceState;
 import org.apache.ambari.server.state.RepositoryVersionState;
@@ -81,6 +84,7 @@ import org.slf4j.LoggerFactory;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.persist.Transactional;
 
 public class ServiceComponentHostTest {
   private static final Logger LOG = LoggerFactory.getLogger(ServiceComponentHostTest.class);
@@ -1067,6 +1071,79 @@ public class ServiceComponentHostTest {
     Assert.assertEquals(MaintenanceState.ON, entity.getMaintenanceState());
   }
 
+  @Test
+  public void testStateRecordIsWrittenThrough() throws Exception {
+    ServiceComponentHost sch = createNewServiceComponentHost(clusterName, "HDFS", "NAMENODE", hostName1, false);
+
+    sch.setDesiredState(State.STARTED);
+    sch.setUpgradeState(UpgradeState.IN_PROGRESS);
+    sch.setRestartRequired(true);
+
+    HostComponentDesiredStateEntity desiredStateEntity = sch.getDesiredStateEntity();
+    Assert.assertEquals(State.STARTED, desiredStateEntity.getDesiredState());
+    Assert.assertTrue(desiredStateEntity.isRestartRequired());
+    Assert.assertEquals(State.STARTED, sch.getDesiredState());
+    Assert.assertEquals(UpgradeState.IN_PROGRESS, sch.getUpgradeState());
+    Assert.assertTrue(sch.isRestartRequired());
+
+    // changes made behind the host component's back are not read
+    desiredStateEntity.setDesiredState(State.INSTALLED);
+    hostComponentDesiredStateDAO.merge(desiredStateEntity);
+    Assert.assertEquals(State.STARTED, sch.getDesiredState());
+
+    // unless the reads are checked against the database
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.SERVER_HOST_COMPONENT_STATE_CHECK_ENABLED.getKey(), "true");
+    ((ServiceComponentHostImpl) sch).setConfiguration(new Configuration(properties));
+    Assert.assertEquals(State.INSTALLED, sch.getDesiredState());
+    Assert.assertEquals(UpgradeState.IN_PROGRESS, sch.getUpgradeState());
+  }
+
+  @Test
+  public void testStateRecordIsReloadedOnRollback() throws Exception {
+    ServiceComponentHost sch = createNewServiceComponentHost(clusterName, "HDFS", "NAMENODE", hostName1, false);
+    sch.setDesiredState(State.INSTALLED);
+    UpgradeState upgradeState = sch.getUpgradeState();
+    HostComponentAdminState adminState = sch.getComponentAdminState();
+
+    try {
+      injector.getInstance(TransactionRunner.class).runAndFail(() -> {
+        sch.setDesiredState(State.STARTED);
+        sch.setUpgradeState(UpgradeState.IN_PROGRESS);
+        sch.setComponentAdminState(HostComponentAdminState.DECOMMISSIONED);
+        sch.setRestartRequired(true);
+
+        // the transaction reads its own changes
+        Assert.assertEquals(State.STARTED, sch.getDesiredState());
+      });
+      Assert.fail("The transaction should have failed");
+    } catch (IllegalStateException expected) {
+    }
+
+    Assert.assertEquals(State.INSTALLED, sch.getDesiredState());
+    Assert.assertEquals(upgradeState, sch.getUpgradeState());
+    Assert.assertEquals(adminState, sch.getComponentAdminState());
+    Assert.assertFalse(sch.isRestartRequired());
+
+    // the values in memory are those of the database
+    HostComponentDesiredStateEntity desiredStateEntity = sch.getDesiredStateEntity();
+    Assert.assertEquals(State.INSTALLED, desiredStateEntity.getDesiredState());
+    Assert.assertFalse(desiredStateEntity.isRestartRequired());
+    Assert.assertEquals(adminState, desiredStateEntity.getAdminState());
+    Assert.assertEquals(upgradeState, sch.getStateEntity().getUpgradeState());
+  }
+
+  /**
+   * Runs changes in a transaction which is then rolled back.
+   */
+  static class TransactionRunner {
+    @Transactional
+    void runAndFail(Runnable changes) {
+      changes.run();
+      throw new IllegalStateException("Rolling back");
+    }
+  }
+
   /**
    * Tests that the host version for a repository can transition properly to
    * CURRENT even if other components on that host have not reported in correct
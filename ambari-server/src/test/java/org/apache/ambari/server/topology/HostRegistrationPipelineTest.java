@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.topology;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.state.host.HostImpl;
+import org.easymock.EasyMockSupport;
+import org.junit.Test;
+
+/**
+ * Tests the {@link HostRegistrationPipeline}.
+ */
+public class HostRegistrationPipelineTest extends EasyMockSupport {
+
+  @Test
+  public void testOffersArePersistedInBatches() throws Exception {
+    int hostCount = 50;
+    CountDownLatch latch = new CountDownLatch(hostCount);
+    List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    List<String> hostsWithTasks = new CopyOnWriteArrayList<>();
+
+    HostRegistrationPipeline pipeline = new HostRegistrationPipeline(20,
+        offers -> batchSizes.add(offers.size()),
+        offer -> {
+          hostsWithTasks.add(offer.host.getHostName());
+          latch.countDown();
+        });
+
+    List<HostImpl> hosts = new ArrayList<>();
+    for (int i = 0; i < hostCount; i++) {
+      hosts.add(host("host" + i));
+    }
+    replayAll();
+
+    for (HostImpl host : hosts) {
+      pipeline.submit(null, null, host, null);
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(hostCount, pipeline.getHostsProcessed());
+    assertEquals(hostCount, hostsWithTasks.size());
+    assertEquals("host0", hostsWithTasks.get(0));
+
+    int persisted = 0;
+    for (int size : batchSizes) {
+      assertTrue(size <= 20);
+      persisted += size;
+    }
+    assertEquals(hostCount, persisted);
+  }
+
+  @Test
+  public void testFailedBatchIsPersistedOneByOne() {
+    HostImpl good = host("good");
+    HostImpl bad = host("bad");
+    replayAll();
+
+    List<String> hostsWithTasks = new ArrayList<>();
+    HostRegistrationPipeline pipeline = new HostRegistrationPipeline(10,
+        offers -> {
+          for (HostRegistrationPipeline.AcceptedOffer offer : offers) {
+            if (offer.host == bad) {
+              throw new RuntimeException("constraint violation");
+            }
+          }
+        },
+        offer -> hostsWithTasks.add(offer.host.getHostName()));
+
+    // the failure handler is only called for the host which could not be persisted
+    List<Throwable> failures = new ArrayList<>();
+    HostRegistrationPipeline.AcceptedOffer goodOffer = new HostRegistrationPipeline.AcceptedOffer(null, null, good, failures::add);
+    HostRegistrationPipeline.AcceptedOffer badOffer = new HostRegistrationPipeline.AcceptedOffer(null, null, bad, failures::add);
+    pipeline.processBatch(Arrays.asList(goodOffer, badOffer));
+
+    assertEquals(Collections.singletonList("good"), hostsWithTasks);
+    assertEquals(1, pipeline.getHostsProcessed());
+    assertEquals(1, pipeline.getBatches());
+
+    assertTrue(goodOffer.persisted.isDone());
+    assertFalse(goodOffer.persisted.isCompletedExceptionally());
+    assertTrue(badOffer.persisted.isCompletedExceptionally());
+    assertEquals(1, failures.size());
+    assertEquals("constraint violation", failures.get(0).getMessage());
+  }
+
+  @Test
+  public void testFailedPersistFailsTheRegistration() throws Exception {
+    HostImpl host = host("host1");
+    replayAll();
+
+    HostRegistrationPipeline pipeline = new HostRegistrationPipeline(10,
+        offers -> {
+          throw new RuntimeException("database unavailable");
+        },
+        offer -> fail("No tasks expected for a host which was not persisted"));
+
+    CompletableFuture<Void> registration = pipeline.submit(null, null, host, null);
+    try {
+      registration.get(10, TimeUnit.SECONDS);
+      fail("Expected the registration to fail");
+    } catch (ExecutionException e) {
+      assertEquals("database unavailable", e.getCause().getMessage());
+    } finally {
+      pipeline.stop();
+    }
+    assertEquals(0, pipeline.getHostsProcessed());
+  }
+
+  @Test
+  public void testStopFailsQueuedRegistrations() throws Exception {
+    HostImpl first = host("first");
+    HostImpl second = host("second");
+    HostImpl third = host("third");
+    replayAll();
+
+    CountDownLatch persisting = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    HostRegistrationPipeline pipeline = new HostRegistrationPipeline(1,
+        offers -> {
+          persisting.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        },
+        offer -> { });
+
+    CompletableFuture<Void> firstRegistration = pipeline.submit(null, null, first, null);
+    assertTrue(persisting.await(10, TimeUnit.SECONDS));
+    CompletableFuture<Void> secondRegistration = pipeline.submit(null, null, second, null);
+
+    Thread stopper = new Thread(pipeline::stop);
+    stopper.start();
+    // once the stopper waits for the writer, the batch in progress may complete
+    while (stopper.getState() != Thread.State.TIMED_WAITING) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+    firstRegistration.get(10, TimeUnit.SECONDS);
+    assertTrue(secondRegistration.isCompletedExceptionally());
+    assertTrue(pipeline.submit(null, null, third, null).isCompletedExceptionally());
+  }
+
+  private HostImpl host(String hostName) {
+    HostImpl host = createNiceMock(HostImpl.class);
+    expect(host.getHostName()).andReturn(hostName).anyTimes();
+    return host;
+  }
+}
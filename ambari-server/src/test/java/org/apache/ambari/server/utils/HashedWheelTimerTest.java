@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * HashedWheelTimer tests.
+ */
+public class HashedWheelTimerTest {
+
+  private HashedWheelTimer timer;
+
+  @Before
+  public void setUp() {
+    // 8 buckets of 10ms, so that delays over 80ms take more than one round
+    timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 5);
+  }
+
+  @After
+  public void tearDown() {
+    timer.stop();
+  }
+
+  @Test
+  public void testTimeoutsExpireInDeadlineOrder() throws Exception {
+    BlockingQueue<Integer> expired = new LinkedBlockingQueue<>();
+    long start = System.nanoTime();
+    timer.newTimeout(() -> expired.add(250), 250, TimeUnit.MILLISECONDS);
+    timer.newTimeout(() -> expired.add(30), 30, TimeUnit.MILLISECONDS);
+    timer.newTimeout(() -> expired.add(100), 100, TimeUnit.MILLISECONDS);
+
+    assertEquals(Integer.valueOf(30), expired.poll(5, TimeUnit.SECONDS));
+    assertEquals(Integer.valueOf(100), expired.poll(5, TimeUnit.SECONDS));
+    assertEquals(Integer.valueOf(250), expired.poll(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+  }
+
+  @Test
+  public void testCancelledTimeoutDoesNotExpire() throws Exception {
+    CountDownLatch cancelledRan = new CountDownLatch(1);
+    CountDownLatch laterRan = new CountDownLatch(1);
+
+    HashedWheelTimer.Timeout timeout = timer.newTimeout(cancelledRan::countDown, 50, TimeUnit.MILLISECONDS);
+    timer.newTimeout(laterRan::countDown, 100, TimeUnit.MILLISECONDS);
+    timeout.cancel();
+
+    assertTrue(timeout.isCancelled());
+    assertTrue(laterRan.await(5, TimeUnit.SECONDS));
+    assertFalse(cancelledRan.await(0, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsArePowersOfTwoMicroseconds() {
+    assertEquals(0, LatencyHistogram.bucket(0L));
+    assertEquals(0, LatencyHistogram.bucket(-5L));
+    assertEquals(0, LatencyHistogram.bucket(999L));
+    assertEquals(1, LatencyHistogram.bucket(1000L));
+    assertEquals(2, LatencyHistogram.bucket(2000L));
+    assertEquals(11, LatencyHistogram.bucket(TimeUnit.MICROSECONDS.toNanos(1024L)));
+    assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0L, LatencyHistogram.getPercentileMicros(histogram.getCounts(), 99));
+
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(100L));
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(300L));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(3L));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(100L));
+
+    long[] counts = histogram.getCounts();
+    assertEquals(512L, LatencyHistogram.getPercentileMicros(counts, 50));
+    assertEquals(131072L, LatencyHistogram.getPercentileMicros(counts, 99));
+  }
+
+  @Test
+  public void testIntervalCountsCoverDurationsSincePreviousSnapshot() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    long[] lastCounts = new long[LatencyHistogram.BUCKETS];
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(100L));
+    histogram.getIntervalCounts(lastCounts);
+
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(3L));
+    long[] interval = histogram.getIntervalCounts(lastCounts);
+    assertEquals(4096L, LatencyHistogram.getPercentileMicros(interval, 99));
+    assertArrayEquals(histogram.getCounts(), lastCounts);
+
+    // nothing new was recorded
+    assertEquals(0L, LatencyHistogram.getPercentileMicros(histogram.getIntervalCounts(lastCounts), 99));
+  }
+}
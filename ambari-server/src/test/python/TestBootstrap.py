@@ -26,7 +26,7 @@ import tempfile
 import pprint
 
 from ambari_commons.os_check import OSCheck
-from bootstrap import PBootstrap, Bootstrap, BootstrapDefault, SharedState, HostLog, SCP, SSH
+from bootstrap import PBootstrap, Bootstrap, BootstrapDefault, SharedState, HostLog, SCP, SSH, AdaptiveParallelism
 from unittest import TestCase
 from ambari_commons.subprocess32 import Popen
 from bootstrap import AMBARI_PASSPHRASE_VAR_NAME
@@ -877,3 +877,70 @@ class TestBootstrap:#(TestCase):
     self.assertEqual(start_mock.call_count, n)
     self.assertEqual(interruptBootstrap_mock.call_count, n / 5)
 
+
+
+@not_for_platform(PLATFORM_WINDOWS)
+class TestAdaptiveParallelism(TestCase):
+
+  def finish_round(self, parallelism, failures, elapsed):
+    round_size = parallelism.get_parallel()
+    for i in range(round_size):
+      parallelism.finished(i >= failures, elapsed)
+
+  @patch("logging.info")
+  def test_fixed_parallelism(self, info_mock):
+    parallelism = AdaptiveParallelism(8, 8)
+    self.finish_round(parallelism, 8, 100.0)
+    self.assertEqual(parallelism.get_parallel(), 8)
+    self.assertEqual(info_mock.call_count, 0)
+
+  def test_initial_parallelism_is_bounded(self):
+    self.assertEqual(AdaptiveParallelism(0, 8).get_parallel(), 1)
+    self.assertEqual(AdaptiveParallelism(30, 8).get_parallel(), 8)
+    self.assertEqual(AdaptiveParallelism(4, 0).get_parallel(), 1)
+
+  @patch("logging.info")
+  def test_parallelism_is_raised_up_to_max(self, info_mock):
+    parallelism = AdaptiveParallelism(8, 12)
+    self.finish_round(parallelism, 0, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 10)
+    self.finish_round(parallelism, 0, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 12)
+    self.finish_round(parallelism, 0, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 12)
+
+  @patch("logging.info")
+  def test_parallelism_is_halved_on_failures(self, info_mock):
+    parallelism = AdaptiveParallelism(8, 20)
+    # 2 failures out of 8 is not more than the allowed ratio
+    self.finish_round(parallelism, 2, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 10)
+    self.finish_round(parallelism, 3, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 5)
+
+  @patch("logging.info")
+  def test_parallelism_is_halved_on_slow_rounds(self, info_mock):
+    parallelism = AdaptiveParallelism(8, 20)
+    self.finish_round(parallelism, 0, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 10)
+    # twice as slow as the fastest round is still fine
+    self.finish_round(parallelism, 0, 20.0)
+    self.assertEqual(parallelism.get_parallel(), 12)
+    self.finish_round(parallelism, 0, 25.0)
+    self.assertEqual(parallelism.get_parallel(), 6)
+
+  @patch("logging.info")
+  def test_parallelism_does_not_drop_below_one(self, info_mock):
+    parallelism = AdaptiveParallelism(8, 20)
+    for expected in [4, 2, 1, 1, 1]:
+      self.finish_round(parallelism, parallelism.get_parallel(), 10.0)
+      self.assertEqual(parallelism.get_parallel(), expected)
+
+  @patch("logging.info")
+  def test_round_waits_for_all_bootstraps(self, info_mock):
+    parallelism = AdaptiveParallelism(4, 20)
+    for i in range(3):
+      parallelism.finished(False, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 4)
+    parallelism.finished(False, 10.0)
+    self.assertEqual(parallelism.get_parallel(), 2)
@@ -91,6 +91,37 @@ class TestStackAdvisorInitialization(TestCase):
     '''Check that value is populated from child class, not parent'''
     self.assertEquals("-Xmx101m", yarn_configs["yarn.nodemanager.resource.memory-mb"])
 
+  def test_stackAdvisorClassIsReusedWithFreshModuleGlobals(self):
+    import sys
+    path_template = os.path.join(self.test_directory, '../resources/stacks/{0}/{1}/services/stack_advisor.py')
+    setattr(self.stack_advisor, "STACK_ADVISOR_IMPL_PATH_TEMPLATE", path_template)
+
+    first = self.stack_advisor.instantiateStackAdvisor("XYZ", "1.0.1", ["1.0.0"])
+    # state a request leaves behind in the globals of the stack advisor modules
+    sys.modules['stack_advisor_impl'].leaked_state = ['from the first request']
+
+    second = self.stack_advisor.instantiateStackAdvisor("XYZ", "1.0.1", ["1.0.0"])
+    self.assertTrue(first.__class__ is second.__class__)
+    self.assertFalse(hasattr(sys.modules['stack_advisor_impl'], 'leaked_state'))
+
+  def test_stackAdvisorKey(self):
+    key = self.stack_advisor.getStackAdvisorKey("XYZ", "1.0.1", ["1.0.0"])
+    self.assertEquals(key, self.stack_advisor.getStackAdvisorKey("XYZ", "1.0.1", ["1.0.0"]))
+    self.assertNotEquals(key, self.stack_advisor.getStackAdvisorKey("XYZ", "1.0.2", ["1.0.0"]))
+    self.assertNotEquals(key, self.stack_advisor.getStackAdvisorKey("XYZ", "1.0.1", []))
+
+    services = {
+      "services": [
+        {
+          "StackServices": {
+            "service_name": "YARN",
+            "advisor_path": os.path.join(self.test_directory, 'service_advisor.py')
+          }
+        }
+      ]
+    }
+    self.assertNotEquals(key, self.stack_advisor.getStackAdvisorKey("XYZ", "1.0.1", ["1.0.0"], services))
+
   def test_stackAdvisorDefaultImpl(self):
     instantiate_stack_advisor_method_name = 'instantiateStackAdvisor'
     instantiate_stack_advisor_method = getattr(self.stack_advisor, instantiate_stack_advisor_method_name)
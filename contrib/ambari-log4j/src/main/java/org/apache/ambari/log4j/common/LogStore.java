@@ -26,5 +26,7 @@ public interface LogStore {
   void persist(LoggingEvent originalEvent, Object parsedEvent) 
       throws IOException;
   
+  void flush() throws IOException;
+  
   void close() throws IOException;
 }
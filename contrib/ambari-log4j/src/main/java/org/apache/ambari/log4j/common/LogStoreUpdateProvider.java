@@ -29,4 +29,6 @@ public interface LogStoreUpdateProvider {
   void update(LoggingEvent originalEvent, Object parsedEvent) 
       throws IOException;
   
+  void flush() throws IOException;
+  
 }
@@ -45,29 +45,21 @@ public class LoggingThreadRunnable implements Runnable {
   @Override
   public void run() {
     while (!done.get()) {
-      LoggingEvent event = null;
-      while ((event = events.poll()) != null) {
-        Object result = null;
-        try {
-          parser.addEventToParse(event);
-          while ((result = parser.getParseResult()) != null) {
-            try {
-              store.persist(event, result);
-            } catch (IOException e) {
-              LOG.warn("Failed to persist " + result);
-            }
-          }
-        } catch (IOException ioe) {
-          LOG.warn("Failed to parse log-event: " + event);
-        }
+      drain();
+      try {
+        store.flush();
+      } catch (IOException ioe) {
+        LOG.warn("Failed to flush logStore", ioe);
       }
       try {
         Thread.sleep(WAIT_EMPTY_QUEUE);
       } catch(InterruptedException ie) {
-        //ignore and continue
+        //ignore and continue, unless closed
       }
     	  
     }
+    // store the events queued since the last pass, closing the store commits them
+    drain();
     try {
       store.close();
     } catch (IOException ioe) {
@@ -75,6 +67,29 @@ public class LoggingThreadRunnable implements Runnable {
     }
   }
   
+  private void drain() {
+    LoggingEvent event = null;
+    while ((event = events.poll()) != null) {
+      Object result = null;
+      try {
+        parser.addEventToParse(event);
+        while ((result = parser.getParseResult()) != null) {
+          try {
+            store.persist(event, result);
+          } catch (IOException e) {
+            LOG.warn("Failed to persist " + result);
+          }
+        }
+      } catch (IOException ioe) {
+        LOG.warn("Failed to parse log-event: " + event);
+      }
+    }
+  }
+  
+  /**
+   * Stops the thread once it has stored the events queued so far. The thread
+   * has to be interrupted if it is waiting for events.
+   */
   public void close() throws IOException {
     done.set(true);
   }
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.ambari.log4j.common.LogStore;
 import org.apache.ambari.log4j.common.LogStoreUpdateProvider;
@@ -29,22 +31,49 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.log4j.spi.LoggingEvent;
 
+/**
+ * Stores parsed events through a {@link LogStoreUpdateProvider}.
+ *
+ * When the batch size is above 1, the updates of consecutive events are
+ * committed together, once batchSize events were persisted or flushInterval
+ * milliseconds passed since the first of them, or on {@link #flush()}. The
+ * provider may group them into JDBC batches meanwhile. If a batch fails, it is
+ * rolled back and its events are stored again one at a time, so that a bad
+ * event does not take the others with it.
+ */
 public class DatabaseStore implements LogStore {
 
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final long DEFAULT_FLUSH_INTERVAL = 5000;
+
   final private String database;
   final private String user;
   final private String password;
   final private LogStoreUpdateProvider updateProvider;
   final private String driver;
+  final private int batchSize;
+  final private long flushInterval;
   private Connection connection;
   private boolean initialized;
 
+  final private List<LoggingEvent> pendingEvents = new ArrayList<LoggingEvent>();
+  final private List<Object> pendingParsedEvents = new ArrayList<Object>();
+  private long firstPendingTime;
+
   private static final Log LOG = LogFactory.getLog(DatabaseStore.class);
 
   public DatabaseStore(String driver,
                        String database, String user, String password,
                        LogStoreUpdateProvider updateProvider)
       throws IOException {
+    this(driver, database, user, password, updateProvider, 1, 0);
+  }
+
+  public DatabaseStore(String driver,
+                       String database, String user, String password,
+                       LogStoreUpdateProvider updateProvider,
+                       int batchSize, long flushInterval)
+      throws IOException {
     this.initialized = false;
     this.driver = driver;
     try {
@@ -57,6 +86,8 @@ public class DatabaseStore implements LogStore {
     this.user = (user == null) ? "" : user;
     this.password = (password == null) ? "" : password;
     this.updateProvider = updateProvider;
+    this.batchSize = Math.max(1, batchSize);
+    this.flushInterval = flushInterval;
   }
 
   @Override
@@ -68,6 +99,9 @@ public class DatabaseStore implements LogStore {
           try {
             this.connection =
                 DriverManager.getConnection(this.database, this.user, this.password);
+            if (this.batchSize > 1) {
+              this.connection.setAutoCommit(false);
+            }
           } catch (SQLException sqle) {
             LOG.debug("Failed to connect to db " + this.database, sqle);
             System.err.println("Failed to connect to db " + this.database +
@@ -90,18 +124,103 @@ public class DatabaseStore implements LogStore {
       }
     }
 
-    updateProvider.update(originalEvent, parsedEvent);
+    if (this.batchSize == 1) {
+      updateProvider.update(originalEvent, parsedEvent);
+      return;
+    }
+
+    if (pendingEvents.isEmpty()) {
+      firstPendingTime = System.currentTimeMillis();
+    }
+    pendingEvents.add(originalEvent);
+    pendingParsedEvents.add(parsedEvent);
+
+    try {
+      updateProvider.update(originalEvent, parsedEvent);
+    } catch (IOException ioe) {
+      LOG.warn("Failed to store batch of " + pendingEvents.size() +
+          " events, storing them one at a time", ioe);
+      storeOneAtATime();
+      return;
+    }
+
+    if (pendingEvents.size() >= this.batchSize ||
+        System.currentTimeMillis() - firstPendingTime >= this.flushInterval) {
+      flush();
+    }
   }
 
   @Override
-  public void close() throws IOException {
+  public void flush() throws IOException {
+    if (!this.initialized || pendingEvents.isEmpty()) {
+      return;
+    }
+
+    try {
+      updateProvider.flush();
+      connection.commit();
+    } catch (Exception e) {
+      LOG.warn("Failed to store batch of " + pendingEvents.size() +
+          " events, storing them one at a time", e);
+      storeOneAtATime();
+      return;
+    }
+
+    if (LOG.isDebugEnabled()) {
+      long elapsed = Math.max(1, System.currentTimeMillis() - firstPendingTime);
+      LOG.debug("Stored " + pendingEvents.size() + " events in " + elapsed +
+          " ms (" + (pendingEvents.size() * 1000L / elapsed) + " events/s)");
+    }
+    pendingEvents.clear();
+    pendingParsedEvents.clear();
+  }
+
+  /*
+   * Roll back the pending batch and store its events again, each committed on
+   * its own.
+   */
+  private void storeOneAtATime() throws IOException {
     try {
-      if (this.initialized && this.connection != null) {
-        connection.close();
+      connection.rollback();
+      connection.setAutoCommit(true);
+      try {
+        for (int i = 0; i < pendingEvents.size(); i++) {
+          try {
+            updateProvider.update(pendingEvents.get(i), pendingParsedEvents.get(i));
+          } catch (IOException ioe) {
+            LOG.warn("Failed to persist " + pendingParsedEvents.get(i), ioe);
+          }
+        }
+        // only resets the provider, nothing is left batched with auto-commit
+        try {
+          updateProvider.flush();
+        } catch (IOException ioe) {
+          LOG.debug("Failures while storing events one at a time", ioe);
+        }
+      } finally {
+        connection.setAutoCommit(false);
       }
     } catch (SQLException sqle) {
-      throw new IOException(
-          "Failed to close connection to database " + this.database, sqle);
+      throw new IOException("Failed to store events into " + this.database, sqle);
+    } finally {
+      pendingEvents.clear();
+      pendingParsedEvents.clear();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      try {
+        if (this.initialized && this.connection != null) {
+          connection.close();
+        }
+      } catch (SQLException sqle) {
+        throw new IOException(
+            "Failed to close connection to database " + this.database, sqle);
+      }
     }
   }
 }
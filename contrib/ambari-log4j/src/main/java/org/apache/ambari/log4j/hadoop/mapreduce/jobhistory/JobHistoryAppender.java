@@ -36,6 +36,11 @@ import org.apache.log4j.spi.LoggingEvent;
 public class JobHistoryAppender extends AppenderSkeleton implements Appender {
 
   private static final Log LOG = LogFactory.getLog(JobHistoryAppender.class);
+
+  /**
+   * How long closing waits for the queued events to be stored, in milliseconds.
+   */
+  private static final long CLOSE_TIMEOUT = 30000;
   
   private final Queue<LoggingEvent> events;
   private LoggingThreadRunnable logThreadRunnable;
@@ -51,6 +56,9 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
           LOG.info(((HistoryEvent)parsedEvent).toString());
         }
 
+        @Override
+        public void flush() throws IOException {}
+
         @Override
         public void close() throws IOException {}
   };
@@ -59,6 +67,8 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
   private String database;
   private String user;
   private String password;
+  private int batchSize = DatabaseStore.DEFAULT_BATCH_SIZE;
+  private long flushInterval = DatabaseStore.DEFAULT_FLUSH_INTERVAL;
   
   private LogStore logStore;
   
@@ -102,6 +112,22 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
     this.password = password;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public long getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(long flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
   /* --------------------------- */
 
   @Override
@@ -115,7 +141,7 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
         try {
           logStore = 
               new DatabaseStore(driver, database, user, password, 
-                  new MapReduceJobHistoryUpdater());
+                  new MapReduceJobHistoryUpdater(), batchSize, flushInterval);
         } catch (IOException ioe) {
           LOG.debug("Failed to connect to db " + database, ioe);
           System.err.println("Failed to connect to db " + database + 
@@ -151,8 +177,10 @@ public class JobHistoryAppender extends AppenderSkeleton implements Appender {
     } catch (IOException ioe) {
       LOG.info("Failed to close logThreadRunnable", ioe);
     }
+    // wake the thread up, it stores the queued events before it ends
+    logThread.interrupt();
     try {
-      logThread.join(1000);
+      logThread.join(CLOSE_TIMEOUT);
     } catch (InterruptedException ie) {
       LOG.info("logThread interrupted", ie);
     }
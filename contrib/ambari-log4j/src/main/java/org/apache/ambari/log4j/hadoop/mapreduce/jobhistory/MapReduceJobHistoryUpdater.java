@@ -23,6 +23,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -84,6 +85,28 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
   private Map<Class<? extends HistoryEvent>, PreparedStatement> entitySqlMap =
       new HashMap<Class<? extends HistoryEvent>, PreparedStatement>();
   
+  /**
+   * Task and task attempt statements, which are batched unless the connection
+   * is in auto-commit mode. Consecutive events of the same kind are added to
+   * the same batch, which is executed as soon as an event of another kind
+   * arrives, so that the statements run in the order of their events: an
+   * update of a row never overtakes an earlier insert or update of it. Job
+   * events are executed on their own, after the pending batch.
+   */
+  private final Set<PreparedStatement> batchedStatements =
+      new HashSet<PreparedStatement>();
+  
+  /**
+   * The statement whose batch has not been executed yet, if any.
+   */
+  private PreparedStatement pendingBatch = null;
+  
+  /**
+   * Set when a statement fails while the connection is not in auto-commit
+   * mode, as the transaction may not be committed then.
+   */
+  private boolean failed = false;
+  
   @Override
   public void init(Connection connection) throws IOException {
     this.connection = connection;
@@ -93,6 +116,16 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     } catch (SQLException sqle) {
       throw new IOException(sqle);
     }
+    
+    batchedStatements.add(entitySqlMap.get(TaskStartedEvent.class));
+    batchedStatements.add(entitySqlMap.get(TaskAttemptStartedEvent.class));
+    batchedStatements.add(entitySqlMap.get(TaskFinishedEvent.class));
+    batchedStatements.add(entitySqlMap.get(TaskFailedEvent.class));
+    batchedStatements.add(entitySqlMap.get(TaskAttemptFinishedEvent.class));
+    batchedStatements.add(
+        entitySqlMap.get(TaskAttemptUnsuccessfulCompletionEvent.class));
+    batchedStatements.add(entitySqlMap.get(MapAttemptFinishedEvent.class));
+    batchedStatements.add(entitySqlMap.get(ReduceAttemptFinishedEvent.class));
   }
   
   private void initializePreparedStatements() throws SQLException {
@@ -493,6 +526,11 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       return;
     }
   
+    // events of another kind run after the pending batch
+    if (entityPS != pendingBatch) {
+      executeBatches();
+    }
+  
     if (eventClass == JobSubmittedEvent.class) {
       processJobSubmittedEvent(entityPS, workflowSelectPS, workflowPS, 
           workflowUpdateTimePS, originalEvent, 
@@ -539,12 +577,47 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     }
   }
   
+  private void executeUpdate(PreparedStatement ps) throws SQLException {
+    try {
+      ps.executeUpdate();
+    } catch (SQLException sqle) {
+      if (!connection.getAutoCommit()) {
+        failed = true;
+      }
+      throw sqle;
+    }
+  }
+  
+  private void addBatch(PreparedStatement ps) throws SQLException {
+    if (connection.getAutoCommit() || !batchedStatements.contains(ps)) {
+      executeUpdate(ps);
+    } else {
+      ps.addBatch();
+      pendingBatch = ps;
+    }
+  }
+  
+  private void executeBatches() throws SQLException {
+    if (pendingBatch == null) {
+      return;
+    }
+    PreparedStatement ps = pendingBatch;
+    pendingBatch = null;
+    try {
+      ps.executeBatch();
+    } catch (SQLException sqle) {
+      ps.clearBatch();
+      failed = true;
+      throw sqle;
+    }
+  }
+  
   private void updateJobStatsAtFinish(String jobId) {
     try {
       jobEndUpdate.setString(1, "MAP");
       jobEndUpdate.setString(2, "REDUCE");
       jobEndUpdate.setString(3, jobId);
-      jobEndUpdate.executeUpdate();
+      executeUpdate(jobEndUpdate);
     } catch (SQLException sqle) {
       LOG.info("Failed to update mapsRuntime/reducesRuntime for " + jobId, 
           sqle);
@@ -697,6 +770,9 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         }
       } catch (SQLException sqle) {
         LOG.warn("workflow select failed with: ", sqle);
+        if (!connection.getAutoCommit()) {
+          failed = true;
+        }
         insertWorkflow = false;
       } finally {
         try {
@@ -716,7 +792,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         workflowPS.setLong(5, historyEvent.getSubmitTime());
         workflowPS.setLong(6, historyEvent.getSubmitTime());
         workflowPS.setLong(7, workflowContext.getWorkflowDag().size());
-        workflowPS.executeUpdate();
+        executeUpdate(workflowPS);
         LOG.debug("Successfully inserted workflowId = " + 
             workflowContext.getWorkflowId());
       } else {
@@ -735,7 +811,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         workflowUpdateTimePS.setLong(3, historyEvent.getSubmitTime());
         workflowUpdateTimePS.setLong(4, historyEvent.getSubmitTime());
         workflowUpdateTimePS.setString(5, workflowContext.getWorkflowId());
-        workflowUpdateTimePS.executeUpdate();
+        executeUpdate(workflowUpdateTimePS);
         LOG.debug("Successfully updated workflowId = " + 
             workflowContext.getWorkflowId());
       }
@@ -743,7 +819,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       // Insert job
       jobPS.setString(7, workflowContext.getWorkflowId());
       jobPS.setString(8, workflowContext.getWorkflowEntityName());
-      jobPS.executeUpdate();
+      executeUpdate(jobPS);
       LOG.debug("Successfully inserted job = " + jobId + 
           " and workflowId = " + workflowContext.getWorkflowId());
 
@@ -790,12 +866,12 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(6, inputBytes);
       entityPS.setLong(7, outputBytes);
       entityPS.setString(8, historyEvent.getJobid().toString());
-      entityPS.executeUpdate();
+      executeUpdate(entityPS);
       // job finished events always have success status
       workflowUpdateNumCompletedPS.setLong(1, historyEvent.getFinishTime());
       workflowUpdateNumCompletedPS.setLong(2, historyEvent.getFinishTime());
       workflowUpdateNumCompletedPS.setString(3, historyEvent.getJobid().toString());
-      workflowUpdateNumCompletedPS.executeUpdate();
+      executeUpdate(workflowUpdateNumCompletedPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobid() + " into " + JOB_TABLE, sqle);
@@ -814,7 +890,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setInt(3, historyEvent.getTotalReduces());
       entityPS.setString(4, historyEvent.getStatus());
       entityPS.setString(5, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeUpdate(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -827,7 +903,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     try {
       entityPS.setString(1, historyEvent.getStatus());
       entityPS.setString(2, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeUpdate(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -841,7 +917,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(1, historyEvent.getSubmitTime());
       entityPS.setLong(2, historyEvent.getLaunchTime());
       entityPS.setString(3, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeUpdate(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -857,7 +933,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setLong(3, historyEvent.getFinishedReduces());
       entityPS.setString(4, historyEvent.getStatus());
       entityPS.setString(5, historyEvent.getJobId().toString());
-      entityPS.executeUpdate();
+      executeUpdate(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for job " + 
           historyEvent.getJobId() + " into " + JOB_TABLE, sqle);
@@ -875,7 +951,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(3, historyEvent.getSplitLocations());
       entityPS.setLong(4, historyEvent.getStartTime());
       entityPS.setString(5, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -892,7 +968,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(3, historyEvent.getTaskStatus());
       entityPS.setLong(4, historyEvent.getFinishTime());
       entityPS.setString(5, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -915,7 +991,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
         entityPS.setString(6, "task_na");
       }
       entityPS.setString(7, historyEvent.getTaskId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + " for task " + 
           historyEvent.getTaskId() + " into " + TASK_TABLE, sqle);
@@ -935,7 +1011,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(6, historyEvent.getLocality().toString());
       entityPS.setString(7, historyEvent.getAvataar().toString());
       entityPS.setString(8, historyEvent.getTaskAttemptId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getTaskAttemptId() + 
@@ -963,7 +1039,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(5, historyEvent.getTaskStatus());
       entityPS.setString(6, historyEvent.getHostname());
       entityPS.setString(7, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -985,7 +1061,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(6, historyEvent.getHostname());
       entityPS.setString(7, historyEvent.getError());
       entityPS.setString(8, historyEvent.getTaskAttemptId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getTaskAttemptId() + 
@@ -1017,7 +1093,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(8, historyEvent.getTaskStatus());
       entityPS.setString(9, historyEvent.getHostname());
       entityPS.setString(10, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -1050,7 +1126,7 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
       entityPS.setString(9, historyEvent.getTaskStatus());
       entityPS.setString(10, historyEvent.getHostname());
       entityPS.setString(11, historyEvent.getAttemptId().toString());
-      entityPS.executeUpdate();
+      addBatch(entityPS);
     } catch (SQLException sqle) {
       LOG.info("Failed to store " + historyEvent.getEventType() + 
           " for taskAttempt " + historyEvent.getAttemptId() + 
@@ -1089,4 +1165,18 @@ public class MapReduceJobHistoryUpdater implements LogStoreUpdateProvider {
     }
   }
 
+  @Override
+  public void flush() throws IOException {
+    boolean wasFailed = failed;
+    failed = false;
+    try {
+      executeBatches();
+    } catch (SQLException sqle) {
+      throw new IOException(sqle);
+    }
+    if (wasFailed) {
+      throw new IOException("Failed to store some of the events since the last flush");
+    }
+  }
+
 }
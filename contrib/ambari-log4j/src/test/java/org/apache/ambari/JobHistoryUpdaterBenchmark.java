@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari;
+
+import org.apache.ambari.log4j.common.store.DatabaseStore;
+import org.apache.ambari.log4j.hadoop.mapreduce.jobhistory.MapReduceJobHistoryUpdater;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.tools.rumen.TaskFinishedEvent;
+import org.apache.hadoop.tools.rumen.TaskStartedEvent;
+
+/**
+ * Measures how many job history events per second the updater stores with
+ * different batch sizes: each task of a job starts, then finishes.
+ *
+ * By default the statements go to a {@link RecordingDriver}, which measures
+ * the cost of the updater and the store alone. To include the database, give
+ * the driver, URL, user and password of an initialized job history database.
+ *
+ * Run after mvn test-compile with
+ *   java -cp target/classes:target/test-classes:[dependencies]
+ *     org.apache.ambari.JobHistoryUpdaterBenchmark [tasks] [driver url user password]
+ */
+public class JobHistoryUpdaterBenchmark {
+
+  private static final int[] BATCH_SIZES = {1, 50, DatabaseStore.DEFAULT_BATCH_SIZE};
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  private static int jobs;
+
+  public static void main(String[] args) throws Exception {
+    int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    String driver = args.length > 1 ? args[1] : RecordingDriver.class.getName();
+    String url = args.length > 2 ? args[2] : RecordingDriver.URL;
+    String user = args.length > 3 ? args[3] : "";
+    String password = args.length > 4 ? args[4] : "";
+
+    System.out.println(String.format("%d tasks, %d events against %s", tasks, 2 * tasks, url));
+    for (int batchSize : BATCH_SIZES) {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        run(driver, url, user, password, batchSize, tasks);
+      }
+      long total = 0;
+      for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+        total += run(driver, url, user, password, batchSize, tasks);
+      }
+      double seconds = total / 1e9 / MEASURED_ITERATIONS;
+      System.out.println(String.format("batch size %4d: %10.0f events/s", batchSize,
+          2 * tasks / seconds));
+    }
+  }
+
+  /*
+   * Store the events of a new job, returning the time taken in nanoseconds.
+   */
+  private static long run(String driver, String url, String user, String password,
+      int batchSize, int tasks) throws Exception {
+    int job = ++jobs;
+    TaskStartedEvent[] started = new TaskStartedEvent[tasks];
+    TaskFinishedEvent[] finished = new TaskFinishedEvent[tasks];
+    for (int i = 0; i < tasks; i++) {
+      TaskID id = TaskID.forName(String.format("task_201301010000_%04d_m_%06d", job, i));
+      started[i] = new TaskStartedEvent(id, i, TaskType.MAP, "");
+      finished[i] = new TaskFinishedEvent(id, i + 1, TaskType.MAP, "SUCCEEDED", new Counters());
+    }
+
+    DatabaseStore store = new DatabaseStore(driver, url, user, password,
+        new MapReduceJobHistoryUpdater(), batchSize, DatabaseStore.DEFAULT_FLUSH_INTERVAL);
+    long start = System.nanoTime();
+    for (int i = 0; i < tasks; i++) {
+      store.persist(null, started[i]);
+    }
+    for (int i = 0; i < tasks; i++) {
+      store.persist(null, finished[i]);
+    }
+    store.close();
+    return System.nanoTime() - start;
+  }
+}
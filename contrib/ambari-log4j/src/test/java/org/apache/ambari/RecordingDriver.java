@@ -0,0 +1,260 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A JDBC driver whose connections execute nothing, but record the statements
+ * they execute along with their parameters, in order. Connect to
+ * {@link #URL} and get the last connection with {@link #getConnection()}.
+ */
+public class RecordingDriver implements Driver {
+
+  public static final String URL = "jdbc:recording:";
+
+  private static volatile RecordingConnection lastConnection;
+
+  static {
+    try {
+      DriverManager.registerDriver(new RecordingDriver());
+    } catch (SQLException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * @return the last connection opened
+   */
+  public static RecordingConnection getConnection() {
+    return lastConnection;
+  }
+
+  /**
+   * A statement executed by a recording connection.
+   */
+  public static class Execution {
+    private final String sql;
+    private final List<Object> parameters;
+
+    private Execution(String sql, Map<Integer, Object> parameters) {
+      this.sql = sql;
+      this.parameters = new ArrayList<Object>(parameters.values());
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    /**
+     * @return the parameters, in the order of their index
+     */
+    public List<Object> getParameters() {
+      return parameters;
+    }
+
+    /**
+     * @return the last parameter, which identifies the row of most statements
+     */
+    public Object getKey() {
+      return parameters.get(parameters.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+      return sql.substring(0, sql.indexOf(' ')) + " " + parameters;
+    }
+  }
+
+  /**
+   * Records the statements executed through it.
+   */
+  public static class RecordingConnection implements InvocationHandler {
+    private final List<Execution> executions =
+        Collections.synchronizedList(new ArrayList<Execution>());
+    private boolean autoCommit = true;
+    private int commits;
+    private int rollbacks;
+    private boolean closed;
+
+    private final Connection connection = (Connection) Proxy.newProxyInstance(
+        RecordingDriver.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+
+    public Connection getConnection() {
+      return connection;
+    }
+
+    /**
+     * @return the statements executed so far, in order
+     */
+    public List<Execution> getExecutions() {
+      return new ArrayList<Execution>(executions);
+    }
+
+    public int getCommits() {
+      return commits;
+    }
+
+    public int getRollbacks() {
+      return rollbacks;
+    }
+
+    public boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if (name.equals("prepareStatement")) {
+        return new RecordingStatement((String) args[0]).statement;
+      } else if (name.equals("setAutoCommit")) {
+        autoCommit = (Boolean) args[0];
+      } else if (name.equals("getAutoCommit")) {
+        return autoCommit;
+      } else if (name.equals("commit")) {
+        commits++;
+      } else if (name.equals("rollback")) {
+        rollbacks++;
+      } else if (name.equals("close")) {
+        closed = true;
+      } else if (name.equals("isClosed")) {
+        return closed;
+      }
+      return defaultValue(method.getReturnType());
+    }
+
+    private class RecordingStatement implements InvocationHandler {
+      private final String sql;
+      private final Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+      private final List<Map<Integer, Object>> batch = new ArrayList<Map<Integer, Object>>();
+
+      private final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+          RecordingDriver.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, this);
+
+      private RecordingStatement(String sql) {
+        this.sql = sql;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.startsWith("set") && args != null && args.length == 2
+            && args[0] instanceof Integer) {
+          parameters.put((Integer) args[0], args[1]);
+        } else if (name.equals("addBatch")) {
+          batch.add(new TreeMap<Integer, Object>(parameters));
+        } else if (name.equals("clearBatch")) {
+          batch.clear();
+        } else if (name.equals("executeBatch")) {
+          int[] counts = new int[batch.size()];
+          for (int i = 0; i < batch.size(); i++) {
+            executions.add(new Execution(sql, batch.get(i)));
+            counts[i] = 1;
+          }
+          batch.clear();
+          return counts;
+        } else if (name.equals("executeUpdate")) {
+          executions.add(new Execution(sql, parameters));
+          return 1;
+        } else if (name.equals("executeQuery")) {
+          // no rows
+          return Proxy.newProxyInstance(RecordingDriver.class.getClassLoader(),
+              new Class<?>[] {ResultSet.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                  return defaultValue(method.getReturnType());
+                }
+              });
+        }
+        return defaultValue(method.getReturnType());
+      }
+    }
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == short.class) {
+      return (short) 0;
+    } else if (type == byte.class) {
+      return (byte) 0;
+    } else if (type == float.class) {
+      return 0f;
+    } else if (type == double.class) {
+      return 0d;
+    }
+    return null;
+  }
+
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException {
+    if (!acceptsURL(url)) {
+      return null;
+    }
+    lastConnection = new RecordingConnection();
+    return lastConnection.getConnection();
+  }
+
+  @Override
+  public boolean acceptsURL(String url) throws SQLException {
+    return url != null && url.startsWith(URL);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion() {
+    return 1;
+  }
+
+  @Override
+  public int getMinorVersion() {
+    return 0;
+  }
+
+  @Override
+  public boolean jdbcCompliant() {
+    return false;
+  }
+
+  public java.util.logging.Logger getParentLogger() {
+    return java.util.logging.Logger.getLogger(RecordingDriver.class.getName());
+  }
+}
@@ -16,14 +16,26 @@
  */
 package org.apache.ambari;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.ambari.RecordingDriver.Execution;
+import org.apache.ambari.RecordingDriver.RecordingConnection;
 import org.apache.ambari.eventdb.model.WorkflowContext;
 import org.apache.ambari.eventdb.model.WorkflowDag;
 import org.apache.ambari.eventdb.model.WorkflowDag.WorkflowDagEntry;
+import org.apache.ambari.log4j.common.store.DatabaseStore;
 import org.apache.ambari.log4j.hadoop.mapreduce.jobhistory.MapReduceJobHistoryUpdater;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.tools.rumen.TaskFailedEvent;
+import org.apache.hadoop.tools.rumen.TaskFinishedEvent;
+import org.apache.hadoop.tools.rumen.TaskStartedEvent;
 
 /**
  * 
@@ -72,6 +84,103 @@ public class TestMapReduceJobHistoryUpdater extends TestCase {
     assertEquals(emptyDag, MapReduceJobHistoryUpdater.constructMergedDag(three, three));
   }
   
+  public void testBatchesKeepArrivalOrder() throws Exception {
+    RecordingConnection recording = connect();
+    Connection connection = recording.getConnection();
+    connection.setAutoCommit(false);
+    MapReduceJobHistoryUpdater updater = new MapReduceJobHistoryUpdater();
+    updater.init(connection);
+
+    updater.update(null, taskStarted(TASK_1));
+    updater.update(null, taskStarted(TASK_2));
+    updater.update(null, taskFinished(TASK_1, "SUCCEEDED"));
+    updater.update(null, taskFailed(TASK_1, "KILLED"));
+    updater.update(null, taskStarted(TASK_3));
+
+    // the batch of the last kind of event is still pending
+    assertEquals("[INSERT " + TASK_1 + ", INSERT " + TASK_2 + ", UPDATE SUCCEEDED " + TASK_1 +
+        ", UPDATE KILLED " + TASK_1 + "]", describe(recording.getExecutions()));
+
+    updater.flush();
+    assertEquals("[INSERT " + TASK_1 + ", INSERT " + TASK_2 + ", UPDATE SUCCEEDED " + TASK_1 +
+        ", UPDATE KILLED " + TASK_1 + ", INSERT " + TASK_3 + "]",
+        describe(recording.getExecutions()));
+  }
+
+  public void testEventsAreExecutedRightAwayWithAutoCommit() throws Exception {
+    RecordingConnection recording = connect();
+    MapReduceJobHistoryUpdater updater = new MapReduceJobHistoryUpdater();
+    updater.init(recording.getConnection());
+
+    updater.update(null, taskStarted(TASK_1));
+    updater.update(null, taskStarted(TASK_2));
+    assertEquals("[INSERT " + TASK_1 + ", INSERT " + TASK_2 + "]",
+        describe(recording.getExecutions()));
+  }
+
+  public void testPendingBatchIsCommittedOnClose() throws Exception {
+    DatabaseStore store = new DatabaseStore(RecordingDriver.class.getName(), RecordingDriver.URL,
+        "", "", new MapReduceJobHistoryUpdater(), 500, 60000);
+
+    store.persist(null, taskStarted(TASK_1));
+    store.persist(null, taskStarted(TASK_2));
+    store.persist(null, taskFinished(TASK_1, "SUCCEEDED"));
+
+    RecordingConnection recording = RecordingDriver.getConnection();
+    assertEquals(0, recording.getCommits());
+
+    store.close();
+    assertEquals("[INSERT " + TASK_1 + ", INSERT " + TASK_2 + ", UPDATE SUCCEEDED " + TASK_1 + "]",
+        describe(recording.getExecutions()));
+    assertEquals(1, recording.getCommits());
+    assertEquals(0, recording.getRollbacks());
+    assertTrue(recording.isClosed());
+  }
+
+  private static final String TASK_1 = "task_201301010000_0001_m_000001";
+  private static final String TASK_2 = "task_201301010000_0001_m_000002";
+  private static final String TASK_3 = "task_201301010000_0001_r_000001";
+
+  private static RecordingConnection connect() throws Exception {
+    Class.forName(RecordingDriver.class.getName());
+    DriverManager.getConnection(RecordingDriver.URL);
+    return RecordingDriver.getConnection();
+  }
+
+  private static TaskStartedEvent taskStarted(String taskId) {
+    TaskID id = TaskID.forName(taskId);
+    return new TaskStartedEvent(id, 1L, id.isMap() ? TaskType.MAP : TaskType.REDUCE, "");
+  }
+
+  private static TaskFinishedEvent taskFinished(String taskId, String status) {
+    TaskID id = TaskID.forName(taskId);
+    return new TaskFinishedEvent(id, 2L, id.isMap() ? TaskType.MAP : TaskType.REDUCE, status,
+        new Counters());
+  }
+
+  private static TaskFailedEvent taskFailed(String taskId, String status) {
+    TaskID id = TaskID.forName(taskId);
+    return new TaskFailedEvent(id, 2L, id.isMap() ? TaskType.MAP : TaskType.REDUCE, "error", status,
+        null);
+  }
+
+  /*
+   * Describe each statement by its kind, the status it sets if any, and the
+   * task it is about.
+   */
+  private static String describe(List<Execution> executions) {
+    List<String> descriptions = new ArrayList<String>();
+    for (Execution execution : executions) {
+      String kind = execution.getSql().trim().split(" ")[0];
+      if (kind.equals("UPDATE")) {
+        descriptions.add(kind + " " + execution.getParameters().get(2) + " " + execution.getKey());
+      } else {
+        descriptions.add(kind + " " + execution.getKey());
+      }
+    }
+    return descriptions.toString();
+  }
+
   private static WorkflowDagEntry getEntry(String source, String... targets) {
     WorkflowDagEntry entry = new WorkflowDagEntry();
     entry.setSource(source);
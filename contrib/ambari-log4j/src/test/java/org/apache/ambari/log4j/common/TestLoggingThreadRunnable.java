@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.log4j.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class TestLoggingThreadRunnable extends TestCase {
+
+  class MessageParser implements LogParser {
+    private LoggingEvent event;
+
+    public void addEventToParse(LoggingEvent event) {
+      this.event = event;
+    }
+
+    public Object getParseResult() throws IOException {
+      Object result = (event == null) ? null : event.getMessage();
+      event = null;
+      return result;
+    }
+  }
+
+  class RecordingStore implements LogStore {
+    final List<Object> persisted = new ArrayList<Object>();
+    int flushes;
+    boolean closed;
+
+    public synchronized void persist(LoggingEvent originalEvent, Object parsedEvent)
+        throws IOException {
+      persisted.add(parsedEvent);
+    }
+
+    public synchronized void flush() throws IOException {
+      flushes++;
+      notifyAll();
+    }
+
+    public synchronized void close() throws IOException {
+      closed = true;
+    }
+
+    synchronized void awaitFlush() throws InterruptedException {
+      while (flushes == 0) {
+        wait();
+      }
+    }
+  }
+
+  public void testEventsQueuedBeforeCloseAreStored() throws Exception {
+    Queue<LoggingEvent> events = new ConcurrentLinkedQueue<LoggingEvent>();
+    RecordingStore store = new RecordingStore();
+    LoggingThreadRunnable runnable =
+        new LoggingThreadRunnable(events, new MessageParser(), store);
+    Thread thread = new Thread(runnable);
+    thread.start();
+
+    // the thread is now waiting for more events
+    store.awaitFlush();
+    for (int i = 0; i < 3; i++) {
+      events.add(newEvent("event " + i));
+    }
+    runnable.close();
+    thread.interrupt();
+    thread.join(10000);
+
+    assertFalse(thread.isAlive());
+    synchronized (store) {
+      assertEquals("[event 0, event 1, event 2]", store.persisted.toString());
+      assertTrue(store.closed);
+    }
+    assertTrue(events.isEmpty());
+  }
+
+  private static LoggingEvent newEvent(String message) {
+    Logger logger = Logger.getLogger(TestLoggingThreadRunnable.class);
+    return new LoggingEvent(TestLoggingThreadRunnable.class.getName(), logger, Level.INFO,
+        message, null);
+  }
+}
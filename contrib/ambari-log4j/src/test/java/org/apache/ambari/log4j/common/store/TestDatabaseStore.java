@@ -32,6 +32,9 @@ public class TestDatabaseStore extends TestCase {
     public void update(LoggingEvent originalEvent, Object parsedEvent)
         throws IOException {
     }
+
+    public void flush() throws IOException {
+    }
   }
 
   public void testDatabaseStore() throws IOException {
@@ -239,55 +239,70 @@ public class Resource {
   }
 
   /*
-   * Set permissions on resource - {mode}
+   * Set permissions and owner on resource - {mode}, {owner}, {group}
+   *
+   * Sub-directories and files are listed once for both, and only those whose
+   * permissions or owner differ are changed.
    */
-  public static void setMode(Resource resource,
-      FileSystem dfs, Path pathHadoop) throws IOException {
+  public static void setModeAndOwner(Resource resource, FileSystem dfs,
+      Path pathHadoop) throws IOException {
 
+    FsPermission permission = null;
     if (resource.getMode() != null) {
-      FsPermission permission = new FsPermission((short)Integer.parseInt(resource.getMode(), 8));
-      dfs.setPermission(pathHadoop, permission);
-
-      // Recursive
-      
-        // Get the list of sub-directories and files
-        HashSet<String> resultSet = new HashSet<String>();
-        
-        if (resource.isRecursiveChmod())
-          resource.fillDirectoryList(dfs, resource.getTarget(), resultSet);
-        
-        if(resource.isChangePermissionOnParents())
-          resource.fillInParentDirectories(dfs, resource.getTarget(), resultSet);
-
-        for (String path : resultSet) {
-          dfs.setPermission(new Path(path), permission);
-        }
-
+      permission = new FsPermission((short)Integer.parseInt(resource.getMode(), 8));
     }
-  }
+    boolean changeOwner = !(resource.getOwner() == null && resource.getGroup() == null);
 
-  /*
-   * Set owner on resource - {owner}
-   */
-  public static void setOwner(Resource resource, FileSystem dfs,
-      Path pathHadoop) throws IOException {
+    if (permission == null && !changeOwner) {
+      return;
+    }
 
-    if (!(resource.getOwner() == null && resource.getGroup() == null)) {
+    if (permission != null) {
+      dfs.setPermission(pathHadoop, permission);
+    }
+    if (changeOwner) {
       dfs.setOwner(pathHadoop, resource.getOwner(), resource.getGroup());
+    }
 
+    boolean recursiveChmod = permission != null && resource.isRecursiveChmod();
+    boolean recursiveChown = changeOwner && resource.isRecursiveChown();
+
+    // Recursive
+    if (recursiveChmod || recursiveChown) {
       // Get the list of sub-directories and files
+      ArrayList<FileStatus> resultList = new ArrayList<FileStatus>();
+      resource.fillDirectoryList(dfs, new Path(resource.getTarget()), resultList);
+
+      for (FileStatus status : resultList) {
+        if (recursiveChmod && !permission.equals(status.getPermission())) {
+          dfs.setPermission(status.getPath(), permission);
+        }
+        if (recursiveChown && !resource.isOwnedBy(status)) {
+          dfs.setOwner(status.getPath(), resource.getOwner(), resource.getGroup());
+        }
+      }
+    }
+
+    if (resource.isChangePermissionOnParents()) {
       HashSet<String> resultSet = new HashSet<String>();
-      if (resource.isRecursiveChown())
-        resource.fillDirectoryList(dfs, resource.getTarget(), resultSet);
-      if(resource.isChangePermissionOnParents())
-        resource.fillInParentDirectories(dfs, resource.getTarget(), resultSet);
+      resource.fillInParentDirectories(dfs, resource.getTarget(), resultSet);
 
       for (String path : resultSet) {
-        dfs.setOwner(new Path(path), resource.getOwner(), resource.getGroup());
+        if (permission != null) {
+          dfs.setPermission(new Path(path), permission);
+        }
+        if (changeOwner) {
+          dfs.setOwner(new Path(path), resource.getOwner(), resource.getGroup());
+        }
       }
     }
   }
-  
+
+  private boolean isOwnedBy(FileStatus status) {
+    return (owner == null || owner.equals(status.getOwner()))
+        && (group == null || group.equals(status.getGroup()));
+  }
+
   public void fillInParentDirectories(FileSystem dfs, String path, HashSet<String> resultSet) throws IOException {
     Path filePath = new Path(path);
       
@@ -305,20 +320,18 @@ public class Resource {
   /*
    * List all files and sub-directories recursively
    */
-  public void fillDirectoryList(FileSystem dfs, String path,
-      HashSet<String> resultSet) throws IOException {
+  public void fillDirectoryList(FileSystem dfs, Path path,
+      ArrayList<FileStatus> resultList) throws IOException {
 
-    FileStatus[] fileStatus = dfs.listStatus(new Path(path));
+    FileStatus[] fileStatus = dfs.listStatus(path);
     if (fileStatus != null) {
       // Go through all resources in directory
       for (FileStatus fs : fileStatus) {
-        String pathToResource = path + "/" + fs.getPath().getName();
-
-        resultSet.add(pathToResource);
+        resultList.add(fs);
 
         if (fs.isDir()) {
           // recursive
-          fillDirectoryList(dfs, pathToResource, resultSet);
+          fillDirectoryList(dfs, fs.getPath(), resultList);
         }
       }
     }
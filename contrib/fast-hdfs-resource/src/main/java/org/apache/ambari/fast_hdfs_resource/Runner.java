@@ -26,6 +26,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -34,16 +39,33 @@ import org.apache.hadoop.fs.FileSystem;
 import com.google.gson.Gson;
 
 public class Runner {
+  /**
+   * Number of resources applied at the same time, unless given on the command line.
+   * Resources are applied one after the other by default.
+   */
+  private static final int DEFAULT_THREADS = 1;
+
   public static void main(String[] args)
       throws IOException, URISyntaxException {
     // 1 - Check arguments
-    if (args.length != 1) {
+    if (args.length < 1 || args.length > 2) {
       System.err.println("Incorrect number of arguments. Please provide:\n"
           + "1) Path to json file\n"
+          + "2) (optional) Number of resources to apply in parallel, " + DEFAULT_THREADS + " by default\n"
           + "Exiting...");
       System.exit(1);
     }
 
+    int threads = DEFAULT_THREADS;
+    if (args.length == 2) {
+      try {
+        threads = Math.max(1, Integer.parseInt(args[1]));
+      } catch (NumberFormatException e) {
+        System.err.println("Number of threads " + args[1] + " is not a number.\nExiting...");
+        System.exit(1);
+      }
+    }
+
     // 2 - Check if json-file exists
     final String jsonFilePath = args[0];
     File file = new File(jsonFilePath);
@@ -109,51 +131,7 @@ public class Runner {
         fileSystemToResource.get(fsName).add(resource);
       }
 
-      //for (Resource resource : resources) {
-      for (Map.Entry<String, List<Resource>> entry : fileSystemToResource.entrySet()) {
-        String nameservice = entry.getKey();
-        List<Resource> resourcesNameservice = entry.getValue();
-
-        for(Resource resource: resourcesNameservice) {
-          if (nameservice != null) {
-            System.out.println("Creating: " + resource + " in " + nameservice);
-          } else {
-            System.out.println("Creating: " + resource + " in default filesystem");
-          }
-
-          dfs = fileSystemNameToInstance.get(nameservice);
-
-          Resource.checkResourceParameters(resource, dfs);
-
-          Path pathHadoop = null;
-
-          if (resource.getAction().equals("download")) {
-            pathHadoop = new Path(resource.getSource());
-          } else {
-            String path = resource.getTarget();
-            pathHadoop = new Path(path);
-            if (!resource.isManageIfExists() && dfs.exists(pathHadoop)) {
-              System.out.println(
-                  String.format("Skipping the operation for not managed DFS directory %s  since immutable_paths contains it.", path)
-              );
-              continue;
-            }
-          }
-
-          if (resource.getAction().equals("create")) {
-            // 5 - Create
-            Resource.createResource(resource, dfs, pathHadoop);
-            Resource.setMode(resource, dfs, pathHadoop);
-            Resource.setOwner(resource, dfs, pathHadoop);
-          } else if (resource.getAction().equals("delete")) {
-            // 6 - Delete
-            dfs.delete(pathHadoop, true);
-          } else if (resource.getAction().equals("download")) {
-            // 7 - Download
-            dfs.copyToLocalFile(pathHadoop, new Path(resource.getTarget()));
-          }
-        }
-      }
+      applyResources(fileSystemToResource, fileSystemNameToInstance, threads);
     } 
     catch(Exception e) {
        System.out.println("Exception occurred, Reason: " + e.getMessage());
@@ -172,4 +150,151 @@ public class Runner {
     }
   }
 
+  /*
+   * Apply resources, one after the other, or in parallel when more than one
+   * thread is given.
+   */
+  static void applyResources(Map<String, List<Resource>> fileSystemToResource,
+      Map<String, FileSystem> fileSystemNameToInstance, int threads) throws Exception {
+    if (threads == 1) {
+      for (Map.Entry<String, List<Resource>> entry : fileSystemToResource.entrySet()) {
+        for (Resource resource : entry.getValue()) {
+          applyResource(resource, fileSystemNameToInstance.get(entry.getKey()), entry.getKey());
+        }
+      }
+    } else {
+      applyResourcesInParallel(fileSystemToResource, fileSystemNameToInstance, threads);
+    }
+  }
+
+  /*
+   * Apply resources on a pool of threads. Resources on different filesystems are
+   * independent, while a resource on a path is only applied once every earlier
+   * resource on the same path, a parent or a child of it is done, so that the
+   * outcome is the same as applying them one after the other.
+   */
+  private static void applyResourcesInParallel(Map<String, List<Resource>> fileSystemToResource,
+      Map<String, FileSystem> fileSystemNameToInstance, int threads) throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    try {
+      for (Map.Entry<String, List<Resource>> entry : fileSystemToResource.entrySet()) {
+        final String nameservice = entry.getKey();
+        final FileSystem dfs = fileSystemNameToInstance.get(nameservice);
+        List<Resource> submitted = new ArrayList<Resource>();
+        List<Future<Void>> submittedFutures = new ArrayList<Future<Void>>();
+
+        for (final Resource resource : entry.getValue()) {
+          final List<Future<Void>> dependencies = new ArrayList<Future<Void>>();
+          for (int i = 0; i < submitted.size(); i++) {
+            if (dependsOn(resource, submitted.get(i))) {
+              dependencies.add(submittedFutures.get(i));
+            }
+          }
+
+          // tasks are taken from the queue in order, so the ones waited for
+          // have always been started already and cannot starve this one
+          Future<Void> future = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              for (Future<Void> dependency : dependencies) {
+                dependency.get();
+              }
+              applyResource(resource, dfs, nameservice);
+              return null;
+            }
+          });
+
+          submitted.add(resource);
+          submittedFutures.add(future);
+          futures.add(future);
+        }
+      }
+
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          // resources waiting for the failed one fail with the same cause
+          Throwable cause = e.getCause();
+          while (cause instanceof ExecutionException) {
+            cause = cause.getCause();
+          }
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          }
+          throw e;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /*
+   * Check if a resource has to wait for an earlier one on the same filesystem.
+   * Changing permissions on parents touches paths shared by unrelated resources,
+   * so such a resource waits for, and is waited for by, all the others.
+   */
+  static boolean dependsOn(Resource resource, Resource earlier) {
+    if (resource.isChangePermissionOnParents() || earlier.isChangePermissionOnParents()) {
+      return true;
+    }
+
+    String path = getDfsPath(resource);
+    String earlierPath = getDfsPath(earlier);
+    return isSameOrAncestor(path, earlierPath) || isSameOrAncestor(earlierPath, path);
+  }
+
+  private static String getDfsPath(Resource resource) {
+    String path = "download".equals(resource.getAction()) ? resource.getSource() : resource.getTarget();
+    return path == null ? "" : new Path(path).toUri().getPath();
+  }
+
+  private static boolean isSameOrAncestor(String ancestor, String path) {
+    if (!path.startsWith(ancestor)) {
+      return false;
+    }
+    return path.length() == ancestor.length() || ancestor.endsWith("/")
+        || path.charAt(ancestor.length()) == '/';
+  }
+
+  private static void applyResource(Resource resource, FileSystem dfs, String nameservice)
+      throws IOException {
+    if (nameservice != null) {
+      System.out.println("Creating: " + resource + " in " + nameservice);
+    } else {
+      System.out.println("Creating: " + resource + " in default filesystem");
+    }
+
+    Resource.checkResourceParameters(resource, dfs);
+
+    Path pathHadoop = null;
+
+    if (resource.getAction().equals("download")) {
+      pathHadoop = new Path(resource.getSource());
+    } else {
+      String path = resource.getTarget();
+      pathHadoop = new Path(path);
+      if (!resource.isManageIfExists() && dfs.exists(pathHadoop)) {
+        System.out.println(
+            String.format("Skipping the operation for not managed DFS directory %s  since immutable_paths contains it.", path)
+        );
+        return;
+      }
+    }
+
+    if (resource.getAction().equals("create")) {
+      // 5 - Create
+      Resource.createResource(resource, dfs, pathHadoop);
+      Resource.setModeAndOwner(resource, dfs, pathHadoop);
+    } else if (resource.getAction().equals("delete")) {
+      // 6 - Delete
+      dfs.delete(pathHadoop, true);
+    } else if (resource.getAction().equals("download")) {
+      // 7 - Download
+      dfs.copyToLocalFile(pathHadoop, new Path(resource.getTarget()));
+    }
+  }
 }
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.fast_hdfs_resource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Times applying the same resources with different numbers of threads against
+ * the local filesystem: directories, the files in them with a mode, and the
+ * deletion of the whole tree.
+ *
+ * Run after mvn test-compile with
+ *   java -cp target/classes:target/test-classes:[dependencies]
+ *     org.apache.ambari.fast_hdfs_resource.RunnerBenchmark [directories] [files per directory] [threads...]
+ */
+public class RunnerBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+
+  public static void main(String[] args) throws Exception {
+    int directories = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int files = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    List<Integer> threadCounts = new ArrayList<Integer>();
+    for (int i = 2; i < args.length; i++) {
+      threadCounts.add(Integer.parseInt(args[i]));
+    }
+    if (threadCounts.isEmpty()) {
+      Collections.addAll(threadCounts, 1, 2, 4, 8, 16);
+    }
+
+    File root = File.createTempFile("fast-hdfs-resource", "");
+    root.delete();
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    try {
+      System.out.println(String.format("%d directories of %d files", directories, files));
+      for (int threads : threadCounts) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+          run(fs, root, directories, files, threads);
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+          total += run(fs, root, directories, files, threads);
+        }
+        System.out.println(String.format("%3d threads: %8.1f ms", threads,
+            total / 1e6 / MEASURED_ITERATIONS));
+      }
+    } finally {
+      fs.delete(new Path(root.getPath()), true);
+      fs.close();
+    }
+  }
+
+  /*
+   * Apply the resources once, returning the time taken in nanoseconds.
+   */
+  private static long run(FileSystem fs, File root, int directories, int files, int threads)
+      throws Exception {
+    List<Resource> resources = new ArrayList<Resource>();
+    for (int i = 0; i < directories; i++) {
+      String dir = root.getPath() + "/dir" + i;
+      resources.add(createResource("create", "directory", dir));
+      for (int j = 0; j < files; j++) {
+        Resource file = createResource("create", "file", dir + "/file" + j);
+        file.setMode("644");
+        resources.add(file);
+      }
+    }
+    resources.add(createResource("delete", "directory", root.getPath()));
+
+    Map<String, List<Resource>> fileSystemToResource = new HashMap<String, List<Resource>>();
+    fileSystemToResource.put(null, resources);
+    Map<String, FileSystem> fileSystemNameToInstance = Collections.singletonMap(null, fs);
+
+    long start = System.nanoTime();
+    Runner.applyResources(fileSystemToResource, fileSystemNameToInstance, threads);
+    return System.nanoTime() - start;
+  }
+
+  private static Resource createResource(String action, String type, String target) {
+    Resource resource = new Resource();
+    resource.setAction(action);
+    resource.setType(type);
+    resource.setTarget(target);
+    resource.setManageIfExists(true);
+    return resource;
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.fast_hdfs_resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that applying resources in parallel has the same outcome as applying
+ * them in order, against the local filesystem.
+ */
+public class RunnerTest {
+
+  private static final int THREADS = 8;
+
+  /**
+   * Each case is repeated, as a wrong order only shows when the threads happen
+   * to interleave.
+   */
+  private static final int REPETITIONS = 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private OrderCheckingFileSystem fs;
+
+  @Before
+  public void setUp() throws Exception {
+    fs = new OrderCheckingFileSystem(FileSystem.getLocal(new Configuration()));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.close();
+  }
+
+  @Test
+  public void testDirectoryIsCreatedBeforeItsFiles() throws Exception {
+    for (int i = 0; i < REPETITIONS; i++) {
+      String dir = folder.getRoot() + "/create" + i;
+      List<Resource> resources = new ArrayList<Resource>();
+      resources.add(createResource("create", "directory", dir));
+      for (int j = 0; j < 10; j++) {
+        resources.add(createResource("create", "file", dir + "/file" + j));
+      }
+      // a sibling with a common prefix does not depend on the directory
+      resources.add(createResource("create", "directory", dir + "_other"));
+
+      apply(resources, THREADS);
+
+      assertTrue(fs.isDirectory(new Path(dir)));
+      for (int j = 0; j < 10; j++) {
+        assertTrue(fs.isFile(new Path(dir + "/file" + j)));
+      }
+      assertTrue(fs.isDirectory(new Path(dir + "_other")));
+    }
+    assertEquals(Collections.emptyList(), fs.violations);
+  }
+
+  @Test
+  public void testDeleteIsAppliedBeforeCreateOnTheSamePath() throws Exception {
+    for (int i = 0; i < REPETITIONS; i++) {
+      String path = folder.getRoot() + "/replace" + i;
+      assertTrue(new File(path).createNewFile());
+
+      // the directory can only be created once the file has been deleted
+      List<Resource> resources = new ArrayList<Resource>();
+      resources.add(createResource("delete", "file", path));
+      resources.add(createResource("create", "directory", path));
+      resources.add(createResource("create", "file", path + "/file"));
+      resources.add(createResource("delete", "file", path + "/file"));
+
+      apply(resources, THREADS);
+
+      assertTrue(fs.isDirectory(new Path(path)));
+      assertFalse(fs.exists(new Path(path + "/file")));
+    }
+  }
+
+  @Test
+  public void testFailureIsPropagated() throws Exception {
+    for (int threads : new int[] {1, THREADS}) {
+      String dir = folder.getRoot() + "/failure" + threads;
+      List<Resource> resources = new ArrayList<Resource>();
+      resources.add(createResource("rename", "directory", dir));
+      resources.add(createResource("create", "file", dir + "/file"));
+
+      try {
+        apply(resources, threads);
+        fail("Expected the unsupported action to fail the run with " + threads + " threads");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Action is not supported.", e.getMessage());
+      }
+
+      // the resource waiting for the failed one is not applied
+      assertFalse(fs.exists(new Path(dir + "/file")));
+    }
+  }
+
+  @Test
+  public void testDependsOn() {
+    Resource dir = createResource("create", "directory", "/apps/hive");
+    Resource file = createResource("create", "file", "/apps/hive/warehouse");
+    Resource sibling = createResource("create", "directory", "/apps/hive2");
+    Resource other = createResource("create", "directory", "/tmp");
+
+    assertTrue(Runner.dependsOn(file, dir));
+    assertTrue(Runner.dependsOn(dir, file));
+    assertTrue(Runner.dependsOn(dir, createResource("delete", "directory", "/apps/hive")));
+    assertTrue(Runner.dependsOn(file, createResource("create", "directory", "hdfs://nn:8020/apps")));
+    assertFalse(Runner.dependsOn(sibling, dir));
+    assertFalse(Runner.dependsOn(other, dir));
+
+    // a download reads its source from the filesystem
+    Resource download = createResource("download", "file", "/local/warehouse");
+    download.setSource("/apps/hive/warehouse");
+    assertTrue(Runner.dependsOn(download, file));
+
+    // changing the permissions of the parents touches paths of unrelated resources
+    other.setChangePermissionOnParents(true);
+    assertTrue(Runner.dependsOn(other, dir));
+    assertTrue(Runner.dependsOn(sibling, other));
+  }
+
+  private void apply(List<Resource> resources, int threads) throws Exception {
+    Map<String, List<Resource>> fileSystemToResource = new HashMap<String, List<Resource>>();
+    fileSystemToResource.put(null, resources);
+    Map<String, FileSystem> fileSystemNameToInstance = Collections.singletonMap(null, fs);
+    Runner.applyResources(fileSystemToResource, fileSystemNameToInstance, threads);
+  }
+
+  /**
+   * The local filesystem creates the missing parents of a file, so files
+   * created before their directory are recorded instead.
+   */
+  private static class OrderCheckingFileSystem extends FilterFileSystem {
+    private final List<String> violations = Collections.synchronizedList(new ArrayList<String>());
+
+    OrderCheckingFileSystem(FileSystem fs) {
+      super(fs);
+      setConf(fs.getConf());
+    }
+
+    @Override
+    public boolean createNewFile(Path f) throws IOException {
+      if (!fs.isDirectory(f.getParent())) {
+        violations.add("Created " + f + " before its directory");
+      }
+      return super.createNewFile(f);
+    }
+  }
+
+  private static Resource createResource(String action, String type, String target) {
+    Resource resource = new Resource();
+    resource.setAction(action);
+    resource.setType(type);
+    resource.setTarget(target);
+    resource.setManageIfExists(true);
+    return resource;
+  }
+}